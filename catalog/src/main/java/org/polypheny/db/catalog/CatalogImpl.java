@@ -22,6 +22,7 @@
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -54,7 +55,9 @@
 import org.polypheny.db.catalog.entity.CatalogForeignKey;
 import org.polypheny.db.catalog.entity.CatalogIndex;
 import org.polypheny.db.catalog.entity.CatalogKey;
+import org.polypheny.db.catalog.entity.CatalogMaterializedView;
 import org.polypheny.db.catalog.entity.CatalogPartition;
+import org.polypheny.db.catalog.entity.CatalogPendingPlacement;
 import org.polypheny.db.catalog.entity.CatalogPrimaryKey;
 import org.polypheny.db.catalog.entity.CatalogQueryInterface;
 import org.polypheny.db.catalog.entity.CatalogSchema;
@@ -135,6 +138,8 @@ public class CatalogImpl extends Catalog {
     private static HTreeMap<Long, CatalogForeignKey> foreignKeys;
     private static HTreeMap<Long, CatalogConstraint> constraints;
     private static HTreeMap<Long, CatalogIndex> indexes;
+    private static HTreeMap<Long, CatalogMaterializedView> materializedViews;
+    private static HTreeMap<Long, CatalogPendingPlacement> pendingPlacements;
 
     private static Long openTable;
 
@@ -475,6 +480,8 @@ private void initQueryInterfaceInfo( DB db ) {
      * foreignKeys: keyId -> CatalogForeignKey
      * constraints: constraintId -> CatalogConstraint
      * indexes: indexId -> CatalogIndex
+     * materializedViews: tableId -> CatalogMaterializedView
+     * pendingPlacements: tableId -> CatalogPendingPlacement
      */
     private void initKeysAndConstraintsInfo( DB db ) {
         keyColumns = db.hashMap( "keyColumns", Serializer.LONG_ARRAY, Serializer.LONG ).createOrOpen();
@@ -483,6 +490,8 @@ private void initKeysAndConstraintsInfo( DB db ) {
         foreignKeys = db.hashMap( "foreignKeys", Serializer.LONG, new GenericSerializer<CatalogForeignKey>() ).createOrOpen();
         constraints = db.hashMap( "constraints", Serializer.LONG, new GenericSerializer<CatalogConstraint>() ).createOrOpen();
         indexes = db.hashMap( "indexes", Serializer.LONG, new GenericSerializer<CatalogIndex>() ).createOrOpen();
+        materializedViews = db.hashMap( "materializedViews", Serializer.LONG, new GenericSerializer<CatalogMaterializedView>() ).createOrOpen();
+        pendingPlacements = db.hashMap( "pendingPlacements", Serializer.LONG, new GenericSerializer<CatalogPendingPlacement>() ).createOrOpen();
     }
 
 
@@ -1341,7 +1350,7 @@ public long addView( String name, long schemaId, int ownerId, TableType tableTyp
                     ImmutableMap.copyOf( underlyingTables ),
                     fieldList
             );
-            addConnectedViews( underlyingTables, viewTable.id );
+            addConnectedViews( underlyingTables.keySet(), viewTable.id );
             updateTableLogistics( name, schemaId, id, schema, viewTable );
         } else {
 
@@ -1369,8 +1378,8 @@ private void updateTableLogistics( String name, long schemaId, long id, CatalogS
     /**
      * Add additional Information to Table, what Views are connected to table
      */
-    public void addConnectedViews( Map<Long, List<Long>> underlyingTables, long viewId ) {
-        for ( long id : underlyingTables.keySet() ) {
+    public void addConnectedViews( Collection<Long> underlyingTables, long viewId ) {
+        for ( long id : underlyingTables ) {
             CatalogTable old = getTable( id );
             List<Long> connectedViews;
             connectedViews = new ArrayList<>( old.connectedViews );
@@ -1392,9 +1401,14 @@ public void addConnectedViews( Map<Long, List<Long>> underlyingTables, long view
      * @param catalogView view to be deleted
      */
     public void deleteViewDependencies( CatalogView catalogView ) {
-        for ( long id : catalogView.getUnderlyingTables().keySet() ) {
+        deleteConnectedViews( catalogView.getUnderlyingTables().keySet(), catalogView.id );
+    }
+
+
+    private void deleteConnectedViews( Collection<Long> underlyingTables, long viewId ) {
+        for ( long id : underlyingTables ) {
             CatalogTable old = getTable( id );
-            List<Long> connectedViews = old.connectedViews.stream().filter( e -> e != catalogView.id ).collect( Collectors.toList() );
+            List<Long> connectedViews = old.connectedViews.stream().filter( e -> e != viewId ).collect( Collectors.toList() );
 
             CatalogTable table = old.getConnectedViews( ImmutableList.copyOf( connectedViews ) );
 
@@ -1461,6 +1475,7 @@ public void deleteTable( long tableId ) {
             tableChildren.remove( tableId );
             tables.remove( tableId );
             tableNames.remove( new Object[]{ table.databaseId, table.schemaId, table.name } );
+            pendingPlacements.remove( tableId );
             flagTableForDeletion( table.id, false );
             // primary key was deleted and open table has to be closed
             if ( openTable != null && openTable == tableId ) {
@@ -2887,6 +2902,123 @@ public void deleteIndex( long indexId ) {
     }
 
 
+    /**
+     * Returns the definitions of all materialized views
+     *
+     * @return List of materialized views
+     */
+    @Override
+    public List<CatalogMaterializedView> getMaterializedViews() {
+        return new ArrayList<>( materializedViews.values() );
+    }
+
+
+    /**
+     * Returns the definition of the materialized view whose rows are stored in the specified table
+     *
+     * @param tableId The id of the table of type MATERIALIZED_VIEW
+     * @return The definition of the materialized view
+     */
+    @Override
+    public CatalogMaterializedView getMaterializedView( long tableId ) {
+        try {
+            return Objects.requireNonNull( materializedViews.get( tableId ) );
+        } catch ( NullPointerException e ) {
+            throw new UnknownTableIdRuntimeException( tableId );
+        }
+    }
+
+
+    /**
+     * Adds the definition of a materialized view. The materialized rows are stored in the specified table.
+     *
+     * @param tableId The id of the table of type MATERIALIZED_VIEW
+     * @param query The query defining the view with fully qualified identifiers
+     * @param underlyingTables The ids of the tables read by the query
+     * @param freshness When the materialized rows are refreshed
+     * @param interval The maximum time in milliseconds between refreshes if the freshness is INTERVAL
+     */
+    @Override
+    public void addMaterializedView( long tableId, String query, List<Long> underlyingTables, Freshness freshness, long interval ) {
+        CatalogTable table = getTable( tableId );
+        if ( table.tableType != TableType.MATERIALIZED_VIEW ) {
+            throw new RuntimeException( "The table '" + table.name + "' is not of type MATERIALIZED_VIEW" );
+        }
+        CatalogMaterializedView materializedView = new CatalogMaterializedView( tableId, query, ImmutableList.copyOf( underlyingTables ), freshness, interval );
+        synchronized ( this ) {
+            materializedViews.put( tableId, materializedView );
+        }
+        addConnectedViews( underlyingTables, tableId );
+        listeners.firePropertyChange( "materializedView", null, materializedView );
+    }
+
+
+    /**
+     * Deletes the definition of a materialized view. Does not delete the table holding the materialized rows.
+     *
+     * @param tableId The id of the table of type MATERIALIZED_VIEW
+     */
+    @Override
+    public void deleteMaterializedView( long tableId ) {
+        CatalogMaterializedView materializedView = getMaterializedView( tableId );
+        deleteConnectedViews( materializedView.underlyingTables, tableId );
+        synchronized ( this ) {
+            materializedViews.remove( tableId );
+        }
+        listeners.firePropertyChange( "materializedView", materializedView, null );
+    }
+
+
+    /**
+     * Returns all placements which have been added, but not yet been fully populated
+     *
+     * @return List of pending placements
+     */
+    @Override
+    public List<CatalogPendingPlacement> getPendingPlacements() {
+        return new ArrayList<>( pendingPlacements.values() );
+    }
+
+
+    /**
+     * Records that the placements of the specified columns on the adapter are being populated. There can be at most
+     * one pending placement per table.
+     *
+     * @param tableId The id of the table
+     * @param adapterId The id of the adapter
+     * @param columnIds The ids of the columns whose placements are being populated
+     * @param newDataPlacement Whether there have been no placements of this table on the adapter before
+     */
+    @Override
+    public void addPendingPlacement( long tableId, int adapterId, List<Long> columnIds, boolean newDataPlacement ) {
+        CatalogPendingPlacement pendingPlacement = new CatalogPendingPlacement( tableId, adapterId, ImmutableList.copyOf( columnIds ), newDataPlacement );
+        synchronized ( this ) {
+            if ( pendingPlacements.containsKey( tableId ) ) {
+                throw new RuntimeException( "There is already a placement of the table with id " + tableId + " being populated" );
+            }
+            pendingPlacements.put( tableId, pendingPlacement );
+        }
+        listeners.firePropertyChange( "pendingPlacement", null, pendingPlacement );
+    }
+
+
+    /**
+     * Deletes the pending placement of the specified table. If there is none, this operation is a NoOp.
+     *
+     * @param tableId The id of the table
+     */
+    @Override
+    public void deletePendingPlacement( long tableId ) {
+        CatalogPendingPlacement pendingPlacement;
+        synchronized ( this ) {
+            pendingPlacement = pendingPlacements.remove( tableId );
+        }
+        if ( pendingPlacement != null ) {
+            listeners.firePropertyChange( "pendingPlacement", pendingPlacement, null );
+        }
+    }
+
+
     /**
      * Deletes the specified primary key (including the entry in the key table). If there is an index on this key, make sure to delete it first.
      * If there is no primary key, this operation is a NoOp.
@@ -336,6 +336,33 @@ SqlCreate SqlCreateView(Span s, boolean replace) :
     }
 }
 
+SqlCreate SqlCreateMaterializedView(Span s, boolean replace) :
+{
+    final SqlIdentifier id;
+    SqlNodeList columnList = null;
+    SqlIdentifier store = null;
+    SqlLiteral freshness = null;
+    final SqlNode query;
+}
+{
+    <MATERIALIZED> <VIEW> id = CompoundIdentifier()
+    [ columnList = ParenthesizedSimpleIdentifierList() ]
+    [ <ON> <STORE> store = SimpleIdentifier() ]
+    [
+        <FRESHNESS>
+        (
+                <IMMEDIATE> { freshness = SqlLiteral.createSymbol(Catalog.Freshness.IMMEDIATE, getPos()); }
+            |
+                <DEFERRED> { freshness = SqlLiteral.createSymbol(Catalog.Freshness.DEFERRED, getPos()); }
+            |
+                freshness = IntervalLiteral()
+        )
+    ]
+    <AS> query = OrderedQueryOrExpr(ExprContext.ACCEPT_QUERY) {
+        return SqlDdlNodes.createMaterializedView(s.end(this), replace, id, columnList, store, freshness, query);
+    }
+}
+
 private void FunctionJarDef(SqlNodeList usingList) :
 {
     final SqlDdlNodes.FileType fileType;
@@ -426,6 +453,17 @@ SqlDrop SqlDropView(Span s, boolean replace) :
     }
 }
 
+SqlDrop SqlDropMaterializedView(Span s, boolean replace) :
+{
+    final boolean ifExists;
+    final SqlIdentifier id;
+}
+{
+    <MATERIALIZED> <VIEW> ifExists = IfExistsOpt() id = CompoundIdentifier() {
+        return SqlDdlNodes.dropMaterializedView(s.end(this), ifExists, id);
+    }
+}
+
 SqlDrop SqlDropFunction(Span s, boolean replace) :
 {
     final boolean ifExists;
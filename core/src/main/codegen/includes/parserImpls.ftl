@@ -91,6 +91,22 @@ SqlAlterView SqlAlterView(Span s) :
     )
 }
 
+/**
+* Parses a ALTER MATERIALIZED VIEW statement.
+**/
+SqlAlterMaterializedViewRefresh SqlAlterMaterializedView(Span s) :
+{
+    final SqlIdentifier view;
+}
+{
+    <MATERIALIZED> <VIEW>
+    view = CompoundIdentifier()
+    <REFRESH>
+    {
+        return new SqlAlterMaterializedViewRefresh(s.end(this), view);
+    }
+}
+
 /**
 * Parses a ALTER TABLE statement.
 */
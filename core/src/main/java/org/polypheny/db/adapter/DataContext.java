@@ -32,6 +32,7 @@
 import org.apache.calcite.linq4j.tree.ParameterExpression;
 import org.polypheny.db.adapter.java.JavaTypeFactory;
 import org.polypheny.db.rel.type.RelDataType;
+import org.polypheny.db.runtime.MemoryBudget;
 import org.polypheny.db.schema.SchemaPlus;
 import org.polypheny.db.sql.advise.SqlAdvisor;
 import org.polypheny.db.transaction.Statement;
@@ -157,7 +158,17 @@ enum Variable {
         /**
          * Time zone in which the current statement is executing. Required; defaults to the time zone of the JVM if the connection does not specify a time zone.
          */
-        TIME_ZONE( "timeZone", TimeZone.class );
+        TIME_ZONE( "timeZone", TimeZone.class ),
+
+        /**
+         * Memory budget of the current statement for the operators of the enumerable engine. Created on first use.
+         */
+        MEMORY_BUDGET( "memoryBudget", MemoryBudget.class ),
+
+        /**
+         * Degree of parallelism requested for the current statement; overrides the configured degree.
+         */
+        PARALLELISM( "parallelism", Integer.class );
 
         public final String camelName;
         public final Class clazz;
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter;
+
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import java.io.File;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.information.InformationAction;
+import org.polypheny.db.information.InformationGroup;
+import org.polypheny.db.information.InformationKeyValue;
+import org.polypheny.db.information.InformationManager;
+import org.polypheny.db.information.InformationPage;
+import org.polypheny.db.information.InformationTable;
+
+
+/**
+ * In-memory cache for parsed copies of files read by data sources. Entries are keyed by the kind of the cached
+ * representation and the path of the file. Every entry remembers the size and the modification time of the file
+ * it has been created from and is reloaded if one of them has changed. If the configured memory budget is exceeded,
+ * the least recently used entries are evicted.
+ */
+@Slf4j
+public class SourceFileCache {
+
+    public static final SourceFileCache INSTANCE = new SourceFileCache();
+
+    private final Cache<String, CachedFile> cache;
+
+    private final AtomicLong hitsCounter = new AtomicLong(); // Number of requests for which the cache contained an up-to-date entry
+    private final AtomicLong missesCounter = new AtomicLong(); // Number of requests for which the file had to be read
+    private final AtomicLong staleCounter = new AtomicLong(); // Number of requests for which the cached entry was outdated
+
+
+    private SourceFileCache() {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight( RuntimeConfig.SOURCE_FILE_CACHING_SIZE.getInteger() * 1024L * 1024L )
+                .weigher( (Weigher<String, CachedFile>) ( key, value ) -> (int) Math.min( Integer.MAX_VALUE, value.getSizeInBytes() ) )
+                .build();
+        registerMonitoringPage();
+    }
+
+
+    public static boolean isEnabled() {
+        return RuntimeConfig.SOURCE_FILE_CACHING.getBoolean();
+    }
+
+
+    /**
+     * Returns the cached representation of the specified file. If there is no entry for this file or if the file
+     * has been modified since the entry has been created, the file is (re-)loaded using the provided loader.
+     *
+     * @param file The file to return the cached representation for
+     * @param clazz The kind of cached representation
+     * @param loader Function creating the cached representation from the file
+     * @return The cached representation of the file
+     */
+    public <T extends CachedFile> T get( final File file, final Class<T> clazz, final Function<File, T> loader ) {
+        final String key = clazz.getName() + ":" + file.getAbsolutePath();
+        final long length = file.length();
+        final long lastModified = file.lastModified();
+
+        CachedFile cached = cache.getIfPresent( key );
+        if ( cached != null ) {
+            if ( cached.getLength() == length && cached.getLastModified() == lastModified ) {
+                hitsCounter.incrementAndGet();
+                return clazz.cast( cached );
+            }
+            staleCounter.incrementAndGet();
+            cache.invalidate( key );
+        }
+        try {
+            cached = cache.get( key, () -> {
+                missesCounter.incrementAndGet();
+                T loaded = loader.apply( file );
+                loaded.setLength( length );
+                loaded.setLastModified( lastModified );
+                return loaded;
+            } );
+        } catch ( ExecutionException e ) {
+            throw new RuntimeException( "Unable to load file into the source file cache: " + file.getAbsolutePath(), e.getCause() );
+        }
+        return clazz.cast( cached );
+    }
+
+
+    public void reset() {
+        cache.invalidateAll();
+        hitsCounter.set( 0 );
+        missesCounter.set( 0 );
+        staleCounter.set( 0 );
+    }
+
+
+    private long getUsedMemory() {
+        long bytes = 0;
+        for ( CachedFile cachedFile : cache.asMap().values() ) {
+            bytes += cachedFile.getSizeInBytes();
+        }
+        return bytes;
+    }
+
+
+    private void registerMonitoringPage() {
+        InformationManager im = InformationManager.getInstance();
+
+        InformationPage page = new InformationPage( "Source File Cache" );
+        im.addPage( page );
+
+        // General
+        InformationGroup generalGroup = new InformationGroup( page, "General" ).setOrder( 1 );
+        im.addGroup( generalGroup );
+
+        InformationKeyValue generalKv = new InformationKeyValue( generalGroup );
+        im.registerInformation( generalKv );
+        generalGroup.setRefreshFunction( () -> {
+            generalKv.putPair( "Status", isEnabled() ? "Active" : "Disabled" );
+            generalKv.putPair( "Cached Files", cache.size() + "" );
+            generalKv.putPair( "Used Memory (MB)", (getUsedMemory() / (1024 * 1024)) + "" );
+            generalKv.putPair( "Memory Budget (MB)", RuntimeConfig.SOURCE_FILE_CACHING_SIZE.getInteger() + "" );
+        } );
+
+        // Hit ratio
+        InformationGroup hitRatioGroup = new InformationGroup( page, "Hit Ratio" ).setOrder( 2 );
+        im.addGroup( hitRatioGroup );
+
+        InformationTable hitInfoTable = new InformationTable(
+                hitRatioGroup,
+                Arrays.asList( "Attribute", "Percent", "Absolute" )
+        );
+        im.registerInformation( hitInfoTable );
+
+        hitRatioGroup.setRefreshFunction( () -> {
+            long hits = hitsCounter.longValue();
+            long misses = missesCounter.longValue();
+            long stale = staleCounter.longValue();
+            long total = hits + misses;
+
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+            symbols.setDecimalSeparator( '.' );
+            DecimalFormat df = new DecimalFormat( "0.0", symbols );
+            hitInfoTable.reset();
+            hitInfoTable.addRow( "Hits", df.format( total == 0 ? 0 : ((double) hits / total * 100) ) + " %", hits );
+            hitInfoTable.addRow( "Misses", df.format( total == 0 ? 0 : ((double) misses / total * 100) ) + " %", misses );
+            hitInfoTable.addRow( "Thereof outdated", df.format( total == 0 ? 0 : ((double) stale / total * 100) ) + " %", stale );
+        } );
+
+        // Invalidate cache
+        InformationGroup invalidateGroup = new InformationGroup( page, "Invalidate" ).setOrder( 3 );
+        im.addGroup( invalidateGroup );
+
+        InformationAction invalidateAction = new InformationAction( invalidateGroup, "Invalidate", parameters -> {
+            reset();
+            generalGroup.refresh();
+            hitRatioGroup.refresh();
+            return "Successfully invalidated the source file cache!";
+        } );
+        im.registerInformation( invalidateAction );
+    }
+
+
+    /**
+     * Base class for the representations of files stored in the {@link SourceFileCache}.
+     */
+    public abstract static class CachedFile {
+
+        private long length;
+        private long lastModified;
+
+
+        /**
+         * @return The estimated amount of memory (in bytes) used by this entry
+         */
+        public abstract long getSizeInBytes();
+
+
+        long getLength() {
+            return length;
+        }
+
+
+        void setLength( long length ) {
+            this.length = length;
+        }
+
+
+        long getLastModified() {
+            return lastModified;
+        }
+
+
+        void setLastModified( long lastModified ) {
+            this.lastModified = lastModified;
+        }
+
+    }
+
+}
@@ -50,6 +50,7 @@
 import org.apache.calcite.linq4j.tree.Expressions;
 import org.apache.calcite.linq4j.tree.ParameterExpression;
 import org.apache.calcite.linq4j.tree.Types;
+import org.polypheny.db.adapter.DataContext;
 import org.polypheny.db.adapter.enumerable.impl.AggAddContextImpl;
 import org.polypheny.db.adapter.enumerable.impl.AggResultContextImpl;
 import org.polypheny.db.adapter.java.JavaTypeFactory;
@@ -361,6 +362,22 @@ public RexToLixTranslator rowTranslator() {
         } else {
             final Expression keySelector_ = builder.append( "keySelector", inputPhysType.generateSelector( parameter, groupSet.asList(), keyPhysType.getFormat() ) );
             final Expression resultSelector_ = builder.append( "resultSelector", Expressions.lambda( Function2.class, resultBlock.toBlock(), key_, acc_ ) );
+            if ( RuntimeConfig.SPILLING.getBoolean() ) {
+                // Hybrid hash aggregation which spills to disk if the groups do not fit into the memory budget of the query
+                builder.add(
+                        Expressions.return_(
+                                null,
+                                Expressions.call(
+                                        BuiltInMethod.SPILLING_GROUP_BY.method,
+                                        DataContext.ROOT,
+                                        childExp,
+                                        keySelector_,
+                                        Expressions.call( lambdaFactory, BuiltInMethod.AGG_LAMBDA_FACTORY_ACC_INITIALIZER.method ),
+                                        Expressions.call( lambdaFactory, BuiltInMethod.AGG_LAMBDA_FACTORY_ACC_ADDER.method ),
+                                        Expressions.call( lambdaFactory, BuiltInMethod.AGG_LAMBDA_FACTORY_ACC_RESULT_SELECTOR.method, resultSelector_ ),
+                                        Util.first( keyPhysType.comparer(), Expressions.constant( null ) ) ) ) );
+                return implementor.result( physType, builder.toBlock() );
+            }
             builder.add(
                     Expressions.return_(
                             null,
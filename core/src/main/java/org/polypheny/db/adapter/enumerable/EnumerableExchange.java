@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.adapter.enumerable;
+
+
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.linq4j.tree.ParameterExpression;
+import org.polypheny.db.adapter.enumerable.batch.BatchRel;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelCollationTraitDef;
+import org.polypheny.db.rel.RelCollations;
+import org.polypheny.db.rel.RelDistribution;
+import org.polypheny.db.rel.RelDistributionTraitDef;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.Exchange;
+import org.polypheny.db.runtime.ParallelEnumerables;
+import org.polypheny.db.util.BuiltInMethod;
+
+
+/**
+ * Implementation of {@link Exchange} in {@link EnumerableConvention enumerable calling convention}.
+ *
+ * An exchange with {@link RelDistribution.Type#SINGLETON singleton} distribution is a <em>gather</em>: its input is
+ * evaluated once per partition on the workers of {@link ParallelEnumerables} and the rows of all partitions are merged.
+ * The other exchanges distribute the rows of their input over the partitions of the enclosing gather by hash,
+ * round-robin or broadcast. Outside of a gather, there is only one consumer and they return their input unchanged.
+ *
+ * The input of a gather has to contain an exchange which partitions the rows, otherwise every partition would return
+ * all rows. If it does not, the gather returns its input unchanged as well.
+ *
+ * The inputs of the exchanges are read concurrently. Exchanges whose inputs read from the same store are told so,
+ * because the store is accessed through a single connection of the transaction.
+ */
+public class EnumerableExchange extends Exchange implements EnumerableRel {
+
+    public EnumerableExchange( RelOptCluster cluster, RelTraitSet traitSet, RelNode input, RelDistribution distribution ) {
+        super( cluster, traitSet, input, distribution );
+        assert getConvention() instanceof EnumerableConvention;
+        assert isSupported( distribution.getType() ) : distribution;
+    }
+
+
+    /**
+     * Creates an EnumerableExchange. The rows returned by an exchange are not ordered.
+     */
+    public static EnumerableExchange create( RelNode input, RelDistribution distribution ) {
+        final RelOptCluster cluster = input.getCluster();
+        distribution = RelDistributionTraitDef.INSTANCE.canonize( distribution );
+        final RelTraitSet traitSet = input.getTraitSet()
+                .replace( EnumerableConvention.INSTANCE )
+                .replace( distribution )
+                .replaceIf( RelCollationTraitDef.INSTANCE, () -> RelCollations.EMPTY );
+        return new EnumerableExchange( cluster, traitSet, input, distribution );
+    }
+
+
+    public static boolean isSupported( RelDistribution.Type type ) {
+        switch ( type ) {
+            case SINGLETON:
+            case HASH_DISTRIBUTED:
+            case RANDOM_DISTRIBUTED:
+            case ROUND_ROBIN_DISTRIBUTED:
+            case BROADCAST_DISTRIBUTED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+
+    @Override
+    public EnumerableExchange copy( RelTraitSet traitSet, RelNode newInput, RelDistribution newDistribution ) {
+        return new EnumerableExchange( getCluster(), traitSet, newInput, newDistribution );
+    }
+
+
+    public boolean isGather() {
+        return distribution.getType() == RelDistribution.Type.SINGLETON;
+    }
+
+
+    /**
+     * Whether the rows of the given relational expression are split over the partitions of a gather.
+     */
+    private static boolean isPartitioned( RelNode rel ) {
+        if ( rel instanceof EnumerableExchange ) {
+            final RelDistribution.Type type = ((EnumerableExchange) rel).distribution.getType();
+            return type != RelDistribution.Type.SINGLETON && type != RelDistribution.Type.BROADCAST_DISTRIBUTED;
+        }
+        for ( RelNode input : rel.getInputs() ) {
+            if ( isPartitioned( input ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Adds the names of the conventions of the stores read by the given relational expression. Everything which is
+     * not evaluated by the enumerable engine itself is read from a store.
+     */
+    private static void collectStores( RelNode rel, Set<String> stores ) {
+        if ( !(rel instanceof EnumerableRel) && !(rel instanceof BatchRel) && rel.getConvention() != null ) {
+            stores.add( rel.getConvention().getName() );
+        }
+        for ( RelNode input : rel.getInputs() ) {
+            collectStores( input, stores );
+        }
+    }
+
+
+    @Override
+    public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
+        if ( isGather() ) {
+            return implementGather( implementor, pref );
+        }
+        final ParameterExpression partition_ = implementor.getPartition();
+        // The input is read once for all partitions
+        implementor.pushPartition( null );
+        final Result result = implementor.visitChild( this, 0, (EnumerableRel) getInput(), pref );
+        implementor.popPartition();
+        if ( partition_ == null ) {
+            return result;
+        }
+        final BlockBuilder builder = new BlockBuilder();
+        final Expression input_ = builder.append( "input", result.block );
+        final Expression key_ =
+                distribution.getType() == RelDistribution.Type.HASH_DISTRIBUTED
+                        ? result.physType.generateAccessor( distribution.getKeys() )
+                        : Expressions.constant( null, Function1.class );
+        final Set<String> stores = new TreeSet<>();
+        collectStores( getInput(), stores );
+        builder.add(
+                Expressions.call(
+                        partition_,
+                        BuiltInMethod.PARALLEL_EXCHANGE.method,
+                        Expressions.constant( getId() ),
+                        input_,
+                        Expressions.constant( distribution.getType() ),
+                        key_,
+                        Expressions.constant( stores.toArray( new String[0] ) ) ) );
+        return implementor.result( result.physType, builder.toBlock() );
+    }
+
+
+    private Result implementGather( EnumerableRelImplementor implementor, Prefer pref ) {
+        if ( !isPartitioned( getInput() ) ) {
+            return implementor.visitChild( this, 0, (EnumerableRel) getInput(), pref );
+        }
+        final ParameterExpression partition_ = Expressions.parameter( ParallelEnumerables.Partition.class, "partition" + getId() );
+        implementor.pushPartition( partition_ );
+        final Result result = implementor.visitChild( this, 0, (EnumerableRel) getInput(), pref );
+        implementor.popPartition();
+        final BlockBuilder builder = new BlockBuilder();
+        builder.add(
+                Expressions.call(
+                        BuiltInMethod.PARALLEL_GATHER.method,
+                        implementor.getRootExpression(),
+                        Expressions.lambda( Function1.class, result.block, partition_ ) ) );
+        return implementor.result( result.physType, builder.toBlock() );
+    }
+}
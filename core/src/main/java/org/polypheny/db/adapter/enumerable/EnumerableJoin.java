@@ -39,6 +39,8 @@
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.plan.RelOptCluster;
 import org.polypheny.db.plan.RelOptCost;
 import org.polypheny.db.plan.RelOptPlanner;
@@ -47,6 +49,7 @@
 import org.polypheny.db.rel.RelCollationTraitDef;
 import org.polypheny.db.rel.RelNode;
 import org.polypheny.db.rel.RelNodes;
+import org.polypheny.db.rel.RelWriter;
 import org.polypheny.db.rel.core.CorrelationId;
 import org.polypheny.db.rel.core.EquiJoin;
 import org.polypheny.db.rel.core.JoinInfo;
@@ -64,13 +67,21 @@
  */
 public class EnumerableJoin extends EquiJoin implements EnumerableRel {
 
+    /**
+     * Whether the join spills to disk. This is decided when the join is created, since the collation of the join
+     * depends on it and plans are cached.
+     */
+    public final boolean spilling;
+
+
     /**
      * Creates an EnumerableJoin.
      *
      * Use {@link #create} unless you know what you're doing.
      */
-    protected EnumerableJoin( RelOptCluster cluster, RelTraitSet traits, RelNode left, RelNode right, RexNode condition, ImmutableIntList leftKeys, ImmutableIntList rightKeys, Set<CorrelationId> variablesSet, JoinRelType joinType ) throws InvalidRelException {
+    protected EnumerableJoin( RelOptCluster cluster, RelTraitSet traits, RelNode left, RelNode right, RexNode condition, ImmutableIntList leftKeys, ImmutableIntList rightKeys, Set<CorrelationId> variablesSet, JoinRelType joinType, boolean spilling ) throws InvalidRelException {
         super( cluster, traits, left, right, condition, leftKeys, rightKeys, variablesSet, joinType );
+        this.spilling = spilling;
     }
 
 
@@ -80,8 +91,9 @@ protected EnumerableJoin( RelOptCluster cluster, RelTraitSet traits, RelNode lef
     public static EnumerableJoin create( RelNode left, RelNode right, RexNode condition, ImmutableIntList leftKeys, ImmutableIntList rightKeys, Set<CorrelationId> variablesSet, JoinRelType joinType ) throws InvalidRelException {
         final RelOptCluster cluster = left.getCluster();
         final RelMetadataQuery mq = cluster.getMetadataQuery();
-        final RelTraitSet traitSet = cluster.traitSetOf( EnumerableConvention.INSTANCE ).replaceIfs( RelCollationTraitDef.INSTANCE, () -> RelMdCollation.enumerableJoin( mq, left, right, joinType ) );
-        return new EnumerableJoin( cluster, traitSet, left, right, condition, leftKeys, rightKeys, variablesSet, joinType );
+        final boolean spilling = RuntimeConfig.SPILLING.getBoolean();
+        final RelTraitSet traitSet = cluster.traitSetOf( EnumerableConvention.INSTANCE ).replaceIfs( RelCollationTraitDef.INSTANCE, () -> RelMdCollation.enumerableJoin( mq, left, right, joinType, spilling ) );
+        return new EnumerableJoin( cluster, traitSet, left, right, condition, leftKeys, rightKeys, variablesSet, joinType, spilling );
     }
 
 
@@ -90,7 +102,7 @@ public EnumerableJoin copy( RelTraitSet traitSet, RexNode condition, RelNode lef
         final JoinInfo joinInfo = JoinInfo.of( left, right, condition );
         assert joinInfo.isEqui();
         try {
-            return new EnumerableJoin( getCluster(), traitSet, left, right, condition, joinInfo.leftKeys, joinInfo.rightKeys, variablesSet, joinType );
+            return new EnumerableJoin( getCluster(), traitSet, left, right, condition, joinInfo.leftKeys, joinInfo.rightKeys, variablesSet, joinType, spilling );
         } catch ( InvalidRelException e ) {
             // Semantic error not possible. Must be a bug. Convert to internal error.
             throw new AssertionError( e );
@@ -98,6 +110,12 @@ public EnumerableJoin copy( RelTraitSet traitSet, RexNode condition, RelNode lef
     }
 
 
+    @Override
+    public RelWriter explainTerms( RelWriter pw ) {
+        return super.explainTerms( pw ).itemIf( "spilling", true, spilling );
+    }
+
+
     @Override
     public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
         double rowCount = mq.getRowCount( this );
@@ -162,6 +180,28 @@ public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
         Expression rightExpression = builder.append( "right" + System.nanoTime(), rightResult.block );
         final PhysType physType = PhysTypeImpl.of( implementor.getTypeFactory(), getRowType(), pref.preferArray() );
         final PhysType keyPhysType = leftResult.physType.project( leftKeys, JavaRowFormat.LIST );
+        final Expression leftKeySelector = leftResult.physType.generateAccessor( leftKeys );
+        final Expression rightKeySelector = rightResult.physType.generateAccessor( rightKeys );
+        final Expression resultSelector = EnumUtils.joinSelector( joinType, physType, ImmutableList.of( leftResult.physType, rightResult.physType ) );
+        final Expression comparer = Util.first( keyPhysType.comparer(), Expressions.constant( null ) );
+        if ( spilling ) {
+            // Grace hash join which spills to disk if the right input does not fit into the memory budget of the query
+            return implementor.result(
+                    physType,
+                    builder.append(
+                            Expressions.call(
+                                    BuiltInMethod.SPILLING_JOIN.method,
+                                    DataContext.ROOT,
+                                    leftExpression,
+                                    rightExpression,
+                                    leftKeySelector,
+                                    rightKeySelector,
+                                    resultSelector,
+                                    comparer,
+                                    Expressions.constant( joinType.generatesNullsOnLeft() ),
+                                    Expressions.constant( joinType.generatesNullsOnRight() ) ) )
+                            .toBlock() );
+        }
         return implementor.result(
                 physType,
                 builder.append(
@@ -170,10 +210,10 @@ public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
                                 BuiltInMethod.JOIN.method,
                                 Expressions.list(
                                         rightExpression,
-                                        leftResult.physType.generateAccessor( leftKeys ),
-                                        rightResult.physType.generateAccessor( rightKeys ),
-                                        EnumUtils.joinSelector( joinType, physType, ImmutableList.of( leftResult.physType, rightResult.physType ) ) )
-                                        .append( Util.first( keyPhysType.comparer(), Expressions.constant( null ) ) )
+                                        leftKeySelector,
+                                        rightKeySelector,
+                                        resultSelector )
+                                        .append( comparer )
                                         .append( Expressions.constant( joinType.generatesNullsOnLeft() ) )
                                         .append( Expressions.constant( joinType.generatesNullsOnRight() ) ) ) )
                         .toBlock() );
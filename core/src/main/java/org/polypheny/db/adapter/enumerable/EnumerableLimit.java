@@ -139,7 +139,7 @@ public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
     }
 
 
-    private static Expression getExpression( RexNode offset ) {
+    static Expression getExpression( RexNode offset ) {
         if ( offset instanceof RexDynamicParam ) {
             final RexDynamicParam param = (RexDynamicParam) offset;
             return Expressions.convert_(
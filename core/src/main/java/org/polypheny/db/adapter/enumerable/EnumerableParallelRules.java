@@ -0,0 +1,183 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.adapter.enumerable;
+
+
+import com.google.common.collect.ImmutableList;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.plan.RelOptRule;
+import org.polypheny.db.plan.RelOptRuleCall;
+import org.polypheny.db.rel.RelCollationTraitDef;
+import org.polypheny.db.rel.RelCollations;
+import org.polypheny.db.rel.RelDistributions;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.Aggregate.Group;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+
+
+/**
+ * Rules that parallelize a physical plan of the enumerable convention by inserting {@link EnumerableExchange exchanges}.
+ * They are applied once after the optimization (see {@link #RULES}), only transform operators whose input is estimated
+ * to have at least {@link RuntimeConfig#PARALLELISM_ROW_THRESHOLD} rows and never operators whose output has to be
+ * ordered, because a gather returns the rows of its partitions in no particular order.
+ */
+public class EnumerableParallelRules {
+
+    private EnumerableParallelRules() {
+    }
+
+
+    public static final RelOptRule PARALLEL_AGGREGATE_RULE = new ParallelAggregateRule();
+
+    public static final RelOptRule PARALLEL_JOIN_RULE = new ParallelJoinRule();
+
+    public static final RelOptRule PARALLEL_SCAN_RULE = new ParallelScanRule();
+
+    /**
+     * All rules that parallelize enumerable operators.
+     */
+    public static final ImmutableList<RelOptRule> RULES =
+            ImmutableList.of(
+                    PARALLEL_AGGREGATE_RULE,
+                    PARALLEL_JOIN_RULE,
+                    PARALLEL_SCAN_RULE );
+
+
+    private static boolean isLarge( RelMetadataQuery mq, RelNode... inputs ) {
+        double rowCount = 0;
+        for ( RelNode input : inputs ) {
+            final Double inputRowCount = mq.getRowCount( input );
+            rowCount += inputRowCount == null ? 0 : inputRowCount;
+        }
+        return rowCount >= RuntimeConfig.PARALLELISM_ROW_THRESHOLD.getInteger();
+    }
+
+
+    private static boolean isUnordered( RelNode rel ) {
+        return rel.getTraitSet().getTrait( RelCollationTraitDef.INSTANCE ) == null
+                || rel.getTraitSet().getTrait( RelCollationTraitDef.INSTANCE ).equals( RelCollations.EMPTY );
+    }
+
+
+    /**
+     * Rule that aggregates the partitions of a hash exchange on the group keys in parallel. As every group is in exactly
+     * one partition, the aggregates of the partitions do not have to be combined.
+     */
+    public static class ParallelAggregateRule extends RelOptRule {
+
+        public ParallelAggregateRule() {
+            super( operand( EnumerableAggregate.class, any() ), "ParallelAggregateRule" );
+        }
+
+
+        @Override
+        public void onMatch( RelOptRuleCall call ) {
+            final EnumerableAggregate aggregate = call.rel( 0 );
+            final RelNode input = aggregate.getInput();
+            if ( aggregate.getGroupType() != Group.SIMPLE
+                    || aggregate.getGroupSet().isEmpty()
+                    || input instanceof EnumerableExchange
+                    || !isUnordered( aggregate )
+                    || !isLarge( call.getMetadataQuery(), input ) ) {
+                return;
+            }
+            final RelNode exchange = EnumerableExchange.create( input, RelDistributions.hash( aggregate.getGroupSet().asList() ) );
+            final RelNode partitioned = aggregate.copy( aggregate.getTraitSet(), ImmutableList.of( exchange ) );
+            call.transformTo( EnumerableExchange.create( partitioned, RelDistributions.SINGLETON ) );
+        }
+    }
+
+
+    /**
+     * Rule that joins the partitions of hash exchanges on the join keys of both inputs in parallel. Matching rows are
+     * in the same partition, and every row is in exactly one partition, so this also holds for outer joins.
+     */
+    public static class ParallelJoinRule extends RelOptRule {
+
+        public ParallelJoinRule() {
+            super( operand( EnumerableJoin.class, any() ), "ParallelJoinRule" );
+        }
+
+
+        @Override
+        public void onMatch( RelOptRuleCall call ) {
+            final EnumerableJoin join = call.rel( 0 );
+            final RelNode left = join.getLeft();
+            final RelNode right = join.getRight();
+            if ( join.leftKeys.isEmpty()
+                    || left instanceof EnumerableExchange
+                    || right instanceof EnumerableExchange
+                    || !isUnordered( join )
+                    || !isLarge( call.getMetadataQuery(), left, right ) ) {
+                return;
+            }
+            final RelNode partitioned = join.copy(
+                    join.getTraitSet(),
+                    join.getCondition(),
+                    EnumerableExchange.create( left, RelDistributions.hash( join.leftKeys ) ),
+                    EnumerableExchange.create( right, RelDistributions.hash( join.rightKeys ) ),
+                    join.getJoinType(),
+                    join.isSemiJoinDone() );
+            call.transformTo( EnumerableExchange.create( partitioned, RelDistributions.SINGLETON ) );
+        }
+    }
+
+
+    /**
+     * Rule that evaluates the filters and projections on a scan in parallel. The scan itself is read by the producer of
+     * a round-robin exchange; the partitions evaluate the expressions on its rows.
+     */
+    public static class ParallelScanRule extends RelOptRule {
+
+        public ParallelScanRule() {
+            super( operand( EnumerableCalc.class, any() ), "ParallelScanRule" );
+        }
+
+
+        @Override
+        public void onMatch( RelOptRuleCall call ) {
+            final EnumerableCalc calc = call.rel( 0 );
+            final RelNode input = calc.getInput();
+            if ( !isScan( input )
+                    || !isUnordered( calc )
+                    || !isLarge( call.getMetadataQuery(), input ) ) {
+                return;
+            }
+            final RelNode exchange = EnumerableExchange.create( input, RelDistributions.ROUND_ROBIN_DISTRIBUTED );
+            final RelNode partitioned = calc.copy( calc.getTraitSet(), ImmutableList.of( exchange ) );
+            call.transformTo( EnumerableExchange.create( partitioned, RelDistributions.SINGLETON ) );
+        }
+
+
+        /**
+         * Whether the relational expression reads a table: either a leaf of the enumerable convention or a converter
+         * from the convention of a store.
+         */
+        private static boolean isScan( RelNode rel ) {
+            if ( !(rel instanceof EnumerableRel) || rel instanceof EnumerableValues ) {
+                return false;
+            }
+            for ( RelNode input : rel.getInputs() ) {
+                if ( input instanceof EnumerableRel ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.adapter.enumerable;
+
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.function.Function0;
+import org.apache.calcite.linq4j.function.Function2;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.linq4j.tree.ParameterExpression;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.interpreter.BindableConvention;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.convert.ConverterImpl;
+import org.polypheny.db.rel.core.JoinRelType;
+import org.polypheny.db.rel.core.ReductionJoin;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.util.BuiltInMethod;
+import org.polypheny.db.util.ImmutableIntList;
+import org.polypheny.db.util.Util;
+
+
+/**
+ * Implementation of {@link ReductionJoin} in {@link EnumerableConvention enumerable calling convention}.
+ */
+public class EnumerableReductionJoin extends ReductionJoin implements EnumerableRel {
+
+    public EnumerableReductionJoin(
+            RelOptCluster cluster,
+            RelTraitSet traitSet,
+            RelNode build,
+            RelNode probe,
+            RelNode unreduced,
+            RexNode condition,
+            JoinRelType joinType,
+            boolean buildLeft,
+            ImmutableIntList buildKeys,
+            ImmutableIntList probeKeys,
+            int firstParameter,
+            int batchSize ) {
+        super( cluster, traitSet, build, probe, unreduced, condition, joinType, buildLeft, buildKeys, probeKeys, firstParameter, batchSize );
+    }
+
+
+    @Override
+    public EnumerableReductionJoin copy( RelTraitSet traitSet, List<RelNode> inputs ) {
+        return new EnumerableReductionJoin( getCluster(), traitSet, inputs.get( 0 ), inputs.get( 1 ), inputs.get( 2 ), condition, joinType, buildLeft, buildKeys, probeKeys, firstParameter, batchSize );
+    }
+
+
+    /**
+     * Whether the reduced probe side is evaluated completely by a store. Otherwise, the filter on the keys would be
+     * evaluated in the enumerable engine on the whole probe side for every batch, and the probe side is not reduced.
+     */
+    public boolean isReducedInStore() {
+        if ( !(getProbe() instanceof ConverterImpl) ) {
+            return false;
+        }
+        final RelNode input = ((ConverterImpl) getProbe()).getInput();
+        return !(input instanceof EnumerableRel) && input.getConvention() != BindableConvention.INSTANCE;
+    }
+
+
+    @Override
+    public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
+        final BlockBuilder builder = new BlockBuilder();
+        final Result buildResult = implementor.visitChild( this, 0, (EnumerableRel) getBuild(), pref );
+        final Expression buildExpression = builder.append( "build" + System.nanoTime(), buildResult.block );
+        final Result unreducedResult = implementor.visitChild( this, 2, (EnumerableRel) getUnreduced(), pref );
+        final PhysType probePhysType = unreducedResult.physType;
+
+        final Expression probeSupplier;
+        if ( isReducedInStore() ) {
+            final Result probeResult = implementor.visitChild( this, 1, (EnumerableRel) getProbe(), pref );
+            final BlockBuilder probeBuilder = new BlockBuilder();
+            final Expression probeExpression = probeBuilder.append( "probe", probeResult.block );
+            probeBuilder.add( Expressions.return_( null, probeResult.physType.convertTo( probeExpression, probePhysType ) ) );
+            probeSupplier = Expressions.lambda( Function0.class, probeBuilder.toBlock() );
+        } else {
+            probeSupplier = Expressions.constant( null, Function0.class );
+        }
+
+        final PhysType leftPhysType = buildLeft ? buildResult.physType : probePhysType;
+        final PhysType rightPhysType = buildLeft ? probePhysType : buildResult.physType;
+        final ImmutableIntList leftKeys = buildLeft ? buildKeys : probeKeys;
+        final ImmutableIntList rightKeys = buildLeft ? probeKeys : buildKeys;
+        final PhysType physType = PhysTypeImpl.of( implementor.getTypeFactory(), getRowType(), pref.preferArray() );
+        final PhysType keyPhysType = leftPhysType.project( leftKeys, JavaRowFormat.LIST );
+        final Expression leftKeySelector = leftPhysType.generateAccessor( leftKeys );
+        final Expression rightKeySelector = rightPhysType.generateAccessor( rightKeys );
+        final Expression resultSelector = EnumUtils.joinSelector( joinType, physType, ImmutableList.of( leftPhysType, rightPhysType ) );
+        final Expression comparer = Util.first( keyPhysType.comparer(), Expressions.constant( null ) );
+
+        // Joins the build side and the (reduced) probe side like an EnumerableJoin
+        final ParameterExpression left_ = Expressions.parameter( Enumerable.class, "left" );
+        final ParameterExpression right_ = Expressions.parameter( Enumerable.class, "right" );
+        final Expression join;
+        if ( RuntimeConfig.SPILLING.getBoolean() ) {
+            join = Expressions.call(
+                    BuiltInMethod.SPILLING_JOIN.method,
+                    DataContext.ROOT,
+                    left_,
+                    right_,
+                    leftKeySelector,
+                    rightKeySelector,
+                    resultSelector,
+                    comparer,
+                    Expressions.constant( joinType.generatesNullsOnLeft() ),
+                    Expressions.constant( joinType.generatesNullsOnRight() ) );
+        } else {
+            join = Expressions.call(
+                    left_,
+                    BuiltInMethod.JOIN.method,
+                    Expressions.list(
+                            right_,
+                            leftKeySelector,
+                            rightKeySelector,
+                            resultSelector )
+                            .append( comparer )
+                            .append( Expressions.constant( joinType.generatesNullsOnLeft() ) )
+                            .append( Expressions.constant( joinType.generatesNullsOnRight() ) ) );
+        }
+
+        return implementor.result(
+                physType,
+                builder.append(
+                        Expressions.call(
+                                BuiltInMethod.REDUCTION_JOIN.method,
+                                DataContext.ROOT,
+                                buildExpression,
+                                buildResult.physType.generateAccessor( buildKeys ),
+                                probeSupplier,
+                                Expressions.lambda( Function0.class, unreducedResult.block ),
+                                Expressions.lambda( Function2.class, join, left_, right_ ),
+                                Expressions.constant( buildLeft ),
+                                Expressions.constant( firstParameter ),
+                                Expressions.constant( buildKeys.size() ),
+                                Expressions.constant( batchSize ) ) )
+                        .toBlock() );
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.adapter.enumerable;
+
+
+import org.polypheny.db.plan.Convention;
+import org.polypheny.db.plan.RelOptRule;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.convert.ConverterRule;
+import org.polypheny.db.rel.core.RelFactories;
+import org.polypheny.db.rel.logical.LogicalReductionJoin;
+
+
+/**
+ * Rule to convert a {@link LogicalReductionJoin} to an {@link EnumerableReductionJoin}.
+ */
+public class EnumerableReductionJoinRule extends ConverterRule {
+
+    public EnumerableReductionJoinRule() {
+        super( LogicalReductionJoin.class,
+                operand -> true,
+                Convention.NONE, EnumerableConvention.INSTANCE,
+                RelFactories.LOGICAL_BUILDER, "EnumerableReductionJoinRule" );
+    }
+
+
+    @Override
+    public RelNode convert( RelNode rel ) {
+        final LogicalReductionJoin join = (LogicalReductionJoin) rel;
+        return new EnumerableReductionJoin(
+                join.getCluster(),
+                join.getTraitSet().replace( EnumerableConvention.INSTANCE ),
+                convert( join.getBuild() ),
+                convert( join.getProbe() ),
+                convert( join.getUnreduced() ),
+                join.getCondition(),
+                join.getJoinType(),
+                join.isBuildLeft(),
+                join.getBuildKeys(),
+                join.getProbeKeys(),
+                join.getFirstParameter(),
+                join.getBatchSize() );
+    }
+
+
+    private static RelNode convert( RelNode input ) {
+        return RelOptRule.convert( input, input.getTraitSet().replace( EnumerableConvention.INSTANCE ) );
+    }
+
+}
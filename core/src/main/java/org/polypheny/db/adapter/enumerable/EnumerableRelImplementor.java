@@ -90,6 +90,7 @@ public class EnumerableRelImplementor extends JavaRelImplementor {
     public final Map<String, Object> map;
     private final Map<String, RexToLixTranslator.InputGetter> corrVars = new HashMap<>();
     private final Map<Object, ParameterExpression> stashedParameters = new IdentityHashMap<>();
+    private final List<ParameterExpression> partitions = new ArrayList<>();
 
     protected final Function1<String, RexToLixTranslator.InputGetter> allCorrelateVariables = this::getCorrelVariableGetter;
 
@@ -108,6 +109,29 @@ public EnumerableRel.Result visitChild( EnumerableRel parent, int ordinal, Enume
     }
 
 
+    /**
+     * Sets the partition of the enclosing gather for the relational expressions implemented until the next call of
+     * {@link #popPartition()}. Null means that they are not evaluated per partition (see {@link EnumerableExchange}).
+     */
+    public void pushPartition( ParameterExpression partition ) {
+        partitions.add( partition );
+    }
+
+
+    public void popPartition() {
+        partitions.remove( partitions.size() - 1 );
+    }
+
+
+    /**
+     * Returns the partition parameter of the innermost enclosing gather, or null if the current relational expression
+     * is not evaluated per partition.
+     */
+    public ParameterExpression getPartition() {
+        return partitions.isEmpty() ? null : partitions.get( partitions.size() - 1 );
+    }
+
+
     public ClassDeclaration implementRoot( EnumerableRel rootRel, EnumerableRel.Prefer prefer ) {
         EnumerableRel.Result result = rootRel.implement( this, prefer );
         switch ( prefer ) {
@@ -67,6 +67,8 @@ private EnumerableRules() {
 
     public static final EnumerableConditionalExecuteFalseRule ENUMERABLE_CONDITIONAL_EXECUTE_FALSE_RULE = new EnumerableConditionalExecuteFalseRule();
 
+    public static final EnumerableReductionJoinRule ENUMERABLE_REDUCTION_JOIN_RULE = new EnumerableReductionJoinRule();
+
     public static final EnumerableProjectRule ENUMERABLE_PROJECT_RULE = new EnumerableProjectRule();
 
     public static final EnumerableFilterRule ENUMERABLE_FILTER_RULE = new EnumerableFilterRule();
@@ -79,6 +81,8 @@ private EnumerableRules() {
 
     public static final EnumerableLimitRule ENUMERABLE_LIMIT_RULE = new EnumerableLimitRule();
 
+    public static final EnumerableTopNRule ENUMERABLE_TOP_N_RULE = new EnumerableTopNRule();
+
     public static final EnumerableUnionRule ENUMERABLE_UNION_RULE = new EnumerableUnionRule();
 
     public static final EnumerableModifyCollectRule ENUMERABLE_MODIFY_COLLECT_RULE = new EnumerableModifyCollectRule();
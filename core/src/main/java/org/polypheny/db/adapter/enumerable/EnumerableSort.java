@@ -37,6 +37,8 @@
 import org.apache.calcite.linq4j.tree.BlockBuilder;
 import org.apache.calcite.linq4j.tree.Expression;
 import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.plan.RelOptCluster;
 import org.polypheny.db.plan.RelTraitSet;
 import org.polypheny.db.rel.RelCollation;
@@ -91,6 +93,20 @@ public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
         PhysType inputPhysType = result.physType;
         final Pair<Expression, Expression> pair = inputPhysType.generateCollationKey( collation.getFieldCollations() );
 
+        if ( RuntimeConfig.SPILLING.getBoolean() ) {
+            // External merge sort which spills to disk if the input does not fit into the memory budget of the query
+            builder.add(
+                    Expressions.return_( null,
+                            Expressions.call(
+                                    BuiltInMethod.SPILLING_ORDER_BY.method,
+                                    DataContext.ROOT,
+                                    childExp,
+                                    builder.append( "keySelector", pair.left ),
+                                    pair.right == null
+                                            ? Expressions.constant( null )
+                                            : builder.append( "comparator", pair.right ) ) ) );
+            return implementor.result( physType, builder.toBlock() );
+        }
         builder.add(
                 Expressions.return_( null,
                         Expressions.call( childExp,
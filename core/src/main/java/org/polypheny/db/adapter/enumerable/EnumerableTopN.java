@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.enumerable;
+
+
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelCollation;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.Sort;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.rex.RexDynamicParam;
+import org.polypheny.db.rex.RexLiteral;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.util.BuiltInMethod;
+import org.polypheny.db.util.Pair;
+
+
+/**
+ * Implementation of a {@link Sort} with a {@code fetch} (i.e. {@code ORDER BY ... LIMIT n}) in
+ * {@link EnumerableConvention enumerable calling convention}. Instead of sorting the whole input, only the
+ * {@code offset + fetch} smallest rows are kept in a bounded heap.
+ */
+public class EnumerableTopN extends Sort implements EnumerableRel {
+
+    /**
+     * Creates an EnumerableTopN.
+     *
+     * Use {@link #create} unless you know what you're doing.
+     */
+    public EnumerableTopN( RelOptCluster cluster, RelTraitSet traitSet, RelNode input, RelCollation collation, RexNode offset, RexNode fetch ) {
+        super( cluster, traitSet, input, collation, offset, fetch );
+        assert getConvention() instanceof EnumerableConvention;
+        assert getConvention() == input.getConvention();
+        assert fetch != null;
+    }
+
+
+    /**
+     * Creates an EnumerableTopN.
+     */
+    public static EnumerableTopN create( RelNode child, RelCollation collation, RexNode offset, RexNode fetch ) {
+        final RelOptCluster cluster = child.getCluster();
+        final RelTraitSet traitSet = cluster.traitSetOf( EnumerableConvention.INSTANCE ).replace( collation );
+        return new EnumerableTopN( cluster, traitSet, child, collation, offset, fetch );
+    }
+
+
+    @Override
+    public EnumerableTopN copy( RelTraitSet traitSet, RelNode newInput, RelCollation newCollation, RexNode offset, RexNode fetch ) {
+        return new EnumerableTopN( getCluster(), traitSet, newInput, newCollation, offset, fetch );
+    }
+
+
+    @Override
+    public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+        // Every input row is compared against the heap of offset + fetch rows
+        final double inputRowCount = mq.getRowCount( getInput() );
+        final double rowCount = mq.getRowCount( this );
+        final double bytesPerRow = getRowType().getFieldCount() * 4;
+        final double heapSize = Math.max( getLimit(), 2 );
+        final double cpu = inputRowCount * (Math.log( heapSize ) / Math.log( 2 )) * bytesPerRow;
+        return planner.getCostFactory().makeCost( rowCount, cpu, 0 );
+    }
+
+
+    /**
+     * Returns the size of the heap (offset + fetch). Dynamic parameters are estimated to be 100.
+     */
+    private double getLimit() {
+        return estimate( offset, 0 ) + estimate( fetch, 100 );
+    }
+
+
+    private static double estimate( RexNode node, double defaultValue ) {
+        if ( node instanceof RexLiteral ) {
+            return RexLiteral.intValue( node );
+        } else if ( node instanceof RexDynamicParam ) {
+            return 100;
+        }
+        return defaultValue;
+    }
+
+
+    @Override
+    public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
+        final BlockBuilder builder = new BlockBuilder();
+        final EnumerableRel child = (EnumerableRel) getInput();
+        final Result result = implementor.visitChild( this, 0, child, pref );
+        final PhysType physType = PhysTypeImpl.of( implementor.getTypeFactory(), getRowType(), result.format );
+        Expression childExp = builder.append( "child", result.block );
+
+        PhysType inputPhysType = result.physType;
+        final Pair<Expression, Expression> pair = inputPhysType.generateCollationKey( collation.getFieldCollations() );
+
+        final Expression comparator = pair.right != null
+                ? builder.append( "comparator", pair.right )
+                : Expressions.constant( null );
+        builder.add(
+                Expressions.return_( null,
+                        Expressions.call(
+                                BuiltInMethod.TOP_N.method,
+                                Expressions.list(
+                                        childExp,
+                                        builder.append( "keySelector", pair.left ),
+                                        comparator,
+                                        offset != null ? EnumerableLimit.getExpression( offset ) : Expressions.constant( 0 ),
+                                        EnumerableLimit.getExpression( fetch ) ) ) ) );
+        return implementor.result( physType, builder.toBlock() );
+    }
+}
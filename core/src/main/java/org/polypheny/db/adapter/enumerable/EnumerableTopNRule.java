@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.enumerable;
+
+
+import org.polypheny.db.plan.Convention;
+import org.polypheny.db.plan.RelOptRule;
+import org.polypheny.db.plan.RelOptRuleCall;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.Sort;
+
+
+/**
+ * Rule to convert a {@link Sort} that has a collation and a {@code fetch} into an {@link EnumerableTopN}. This is an
+ * alternative to the {@link EnumerableLimitRule} which creates an {@link EnumerableLimit} on top of an
+ * {@link EnumerableSort} sorting the whole input.
+ */
+class EnumerableTopNRule extends RelOptRule {
+
+    EnumerableTopNRule() {
+        super( operand( Sort.class, Convention.NONE, any() ), "EnumerableTopNRule" );
+    }
+
+
+    @Override
+    public void onMatch( RelOptRuleCall call ) {
+        final Sort sort = call.rel( 0 );
+        if ( sort.fetch == null || sort.getCollation().getFieldCollations().isEmpty() ) {
+            return;
+        }
+        final RelNode input = sort.getInput();
+        call.transformTo(
+                EnumerableTopN.create(
+                        convert( input, input.getTraitSet().replace( EnumerableConvention.INSTANCE ) ),
+                        sort.getCollation(),
+                        sort.offset,
+                        sort.fetch ) );
+    }
+}
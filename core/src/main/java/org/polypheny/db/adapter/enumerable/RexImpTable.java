@@ -89,6 +89,9 @@
 import org.polypheny.db.rex.RexLiteral;
 import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.runtime.SqlFunctions;
+import org.polypheny.db.runtime.sketch.HyperLogLog;
+import org.polypheny.db.runtime.sketch.QuantileSketch;
+import org.polypheny.db.runtime.sketch.TopKSketch;
 import org.polypheny.db.schema.ImplementableAggFunction;
 import org.polypheny.db.schema.ImplementableFunction;
 import org.polypheny.db.schema.impl.AggregateFunctionImpl;
@@ -339,6 +342,9 @@ public Expression implement( RexToLixTranslator translator, RexCall call, List<E
         aggMap.put( SqlStdOperatorTable.SINGLE_VALUE, constructorSupplier( SingleValueImplementor.class ) );
         aggMap.put( SqlStdOperatorTable.COLLECT, constructorSupplier( CollectImplementor.class ) );
         aggMap.put( SqlStdOperatorTable.FUSION, constructorSupplier( FusionImplementor.class ) );
+        aggMap.put( SqlStdOperatorTable.APPROX_COUNT_DISTINCT, constructorSupplier( ApproxCountDistinctImplementor.class ) );
+        aggMap.put( SqlStdOperatorTable.APPROX_QUANTILE, constructorSupplier( ApproxQuantileImplementor.class ) );
+        aggMap.put( SqlStdOperatorTable.APPROX_TOP_K, constructorSupplier( ApproxTopKImplementor.class ) );
         final Supplier<GroupingImplementor> grouping = constructorSupplier( GroupingImplementor.class );
         aggMap.put( SqlStdOperatorTable.GROUPING, grouping );
         aggMap.put( SqlStdOperatorTable.GROUP_ID, grouping );
@@ -1124,6 +1130,139 @@ public void implementNotNullAdd( AggContext info, AggAddContext add ) {
     }
 
 
+    /**
+     * Implementor for the {@code APPROX_COUNT_DISTINCT} aggregate function. Estimates the number of distinct values with a
+     * {@link HyperLogLog} sketch instead of collecting them.
+     */
+    static class ApproxCountDistinctImplementor extends StrictAggImplementor {
+
+        @Override
+        public List<Type> getNotNullState( AggContext info ) {
+            return Collections.singletonList( HyperLogLog.class );
+        }
+
+
+        @Override
+        protected void implementNotNullReset( AggContext info, AggResetContext reset ) {
+            // acc[0] = new HyperLogLog();
+            reset.currentBlock().add(
+                    Expressions.statement(
+                            Expressions.assign(
+                                    reset.accumulator().get( 0 ),
+                                    Expressions.new_( HyperLogLog.class ) ) ) );
+        }
+
+
+        @Override
+        public void implementNotNullAdd( AggContext info, AggAddContext add ) {
+            // acc[0].add(new Object[] {arg0, arg1, ...});
+            final List<Expression> arguments = new ArrayList<>();
+            for ( Expression argument : add.arguments() ) {
+                arguments.add( Expressions.box( argument ) );
+            }
+            add.currentBlock().add(
+                    Expressions.statement(
+                            Expressions.call(
+                                    add.accumulator().get( 0 ),
+                                    BuiltInMethod.HYPER_LOG_LOG_ADD.method,
+                                    Expressions.newArrayInit( Object.class, arguments ) ) ) );
+        }
+
+
+        @Override
+        protected Expression implementNotNullResult( AggContext info, AggResultContext result ) {
+            return Expressions.call( result.accumulator().get( 0 ), BuiltInMethod.HYPER_LOG_LOG_ESTIMATE.method );
+        }
+
+    }
+
+
+    /**
+     * Implementor for the {@code APPROX_QUANTILE} aggregate function.
+     */
+    static class ApproxQuantileImplementor extends StrictAggImplementor {
+
+        @Override
+        public List<Type> getNotNullState( AggContext info ) {
+            return Collections.singletonList( QuantileSketch.class );
+        }
+
+
+        @Override
+        protected void implementNotNullReset( AggContext info, AggResetContext reset ) {
+            // acc[0] = new QuantileSketch();
+            reset.currentBlock().add(
+                    Expressions.statement(
+                            Expressions.assign(
+                                    reset.accumulator().get( 0 ),
+                                    Expressions.new_( QuantileSketch.class ) ) ) );
+        }
+
+
+        @Override
+        public void implementNotNullAdd( AggContext info, AggAddContext add ) {
+            // acc[0].add(value, fraction);
+            add.currentBlock().add(
+                    Expressions.statement(
+                            Expressions.call(
+                                    add.accumulator().get( 0 ),
+                                    BuiltInMethod.QUANTILE_SKETCH_ADD.method,
+                                    Expressions.box( add.arguments().get( 0 ) ),
+                                    Expressions.box( add.arguments().get( 1 ) ) ) ) );
+        }
+
+
+        @Override
+        protected Expression implementNotNullResult( AggContext info, AggResultContext result ) {
+            return Expressions.call( result.accumulator().get( 0 ), BuiltInMethod.QUANTILE_SKETCH_QUANTILE.method );
+        }
+
+    }
+
+
+    /**
+     * Implementor for the {@code APPROX_TOP_K} aggregate function.
+     */
+    static class ApproxTopKImplementor extends StrictAggImplementor {
+
+        @Override
+        public List<Type> getNotNullState( AggContext info ) {
+            return Collections.singletonList( TopKSketch.class );
+        }
+
+
+        @Override
+        protected void implementNotNullReset( AggContext info, AggResetContext reset ) {
+            // acc[0] = new TopKSketch();
+            reset.currentBlock().add(
+                    Expressions.statement(
+                            Expressions.assign(
+                                    reset.accumulator().get( 0 ),
+                                    Expressions.new_( TopKSketch.class ) ) ) );
+        }
+
+
+        @Override
+        public void implementNotNullAdd( AggContext info, AggAddContext add ) {
+            // acc[0].add(value, k);
+            add.currentBlock().add(
+                    Expressions.statement(
+                            Expressions.call(
+                                    add.accumulator().get( 0 ),
+                                    BuiltInMethod.TOP_K_SKETCH_ADD.method,
+                                    Expressions.box( add.arguments().get( 0 ) ),
+                                    Expressions.box( add.arguments().get( 1 ) ) ) ) );
+        }
+
+
+        @Override
+        protected Expression implementNotNullResult( AggContext info, AggResultContext result ) {
+            return Expressions.call( result.accumulator().get( 0 ), BuiltInMethod.TOP_K_SKETCH_TOP_K.method );
+        }
+
+    }
+
+
     /**
      * Implementor for the {@code BIT_AND} and {@code BIT_OR} aggregate function.
      */
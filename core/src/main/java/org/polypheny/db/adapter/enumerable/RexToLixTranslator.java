@@ -76,6 +76,8 @@
 import org.polypheny.db.rex.RexLocalRef;
 import org.polypheny.db.rex.RexNode;
 import org.polypheny.db.rex.RexProgram;
+import org.polypheny.db.runtime.DoubleArrayList;
+import org.polypheny.db.runtime.FloatArrayList;
 import org.polypheny.db.runtime.SqlFunctions;
 import org.polypheny.db.sql.SqlIntervalQualifier;
 import org.polypheny.db.sql.SqlKind;
@@ -83,6 +85,7 @@
 import org.polypheny.db.sql.fun.OracleSqlOperatorTable;
 import org.polypheny.db.sql.fun.SqlStdOperatorTable;
 import org.polypheny.db.sql.validate.SqlConformance;
+import org.polypheny.db.type.PolyType;
 import org.polypheny.db.type.PolyTypeUtil;
 import org.polypheny.db.util.BuiltInMethod;
 import org.polypheny.db.util.ControlFlowException;
@@ -1062,6 +1065,19 @@ public Expression translateConstructor( List<RexNode> operandList, SqlKind kind
                 }
                 return map;
             case ARRAY_VALUE_CONSTRUCTOR:
+                final Class<?> primitiveListClass = primitiveListClass( operandList );
+                if ( primitiveListClass != null ) {
+                    // Non-null floating point values are stored in a primitive array
+                    final Class<?> componentClass = primitiveListClass == DoubleArrayList.class ? double.class : float.class;
+                    final List<Expression> values = new ArrayList<>( operandList.size() );
+                    for ( RexNode value : operandList ) {
+                        values.add( Expressions.convert_( translate( value ), componentClass ) );
+                    }
+                    return list.append(
+                            "list",
+                            Expressions.new_( primitiveListClass, Expressions.newArrayInit( componentClass, values ) ),
+                            false );
+                }
                 Expression lyst =
                         list.append(
                                 "list",
@@ -1082,6 +1098,36 @@ public Expression translateConstructor( List<RexNode> operandList, SqlKind kind
     }
 
 
+    /**
+     * Returns the primitive list implementation for the values of an array constructor or null if the values have
+     * to be boxed.
+     */
+    private static Class<?> primitiveListClass( List<RexNode> operandList ) {
+        if ( operandList.isEmpty() ) {
+            return null;
+        }
+        PolyType polyType = null;
+        for ( RexNode operand : operandList ) {
+            if ( operand.getType().isNullable() ) {
+                return null;
+            }
+            if ( polyType == null ) {
+                polyType = operand.getType().getPolyType();
+            } else if ( polyType != operand.getType().getPolyType() ) {
+                return null;
+            }
+        }
+        switch ( polyType ) {
+            case DOUBLE:
+                return DoubleArrayList.class;
+            case REAL:
+                return FloatArrayList.class;
+            default:
+                return null;
+        }
+    }
+
+
     /**
      * Returns whether an expression is nullable. Even if its type says it is nullable, if we have previously generated a check to make sure that it is not null, we will say so.
      *
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.adapter.enumerable.batch;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.adapter.enumerable.EnumerableRelImplementor;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.InvalidRelException;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.Aggregate;
+import org.polypheny.db.rel.core.AggregateCall;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.rel.type.RelDataType;
+import org.polypheny.db.runtime.batch.VectorAggregation;
+import org.polypheny.db.runtime.batch.VectorKind;
+import org.polypheny.db.type.PolyTypeUtil;
+import org.polypheny.db.util.BuiltInMethod;
+import org.polypheny.db.util.ImmutableBitSet;
+
+
+/**
+ * Implementation of {@link Aggregate} in {@link BatchConvention batch convention}. Supports COUNT, SUM, $SUM0, MIN and
+ * MAX on numbers and MIN and MAX on character strings, grouped by a simple group set.
+ */
+public class BatchAggregate extends Aggregate implements BatchRel {
+
+    public BatchAggregate( RelOptCluster cluster, RelTraitSet traitSet, RelNode input, boolean indicator, ImmutableBitSet groupSet, List<ImmutableBitSet> groupSets, List<AggregateCall> aggCalls ) throws InvalidRelException {
+        super( cluster, traitSet, input, indicator, groupSet, groupSets, aggCalls );
+        assert getConvention() instanceof BatchConvention;
+
+        if ( !isSupported( this ) ) {
+            throw new InvalidRelException( "aggregation not supported in batch convention" );
+        }
+    }
+
+
+    @Override
+    public BatchAggregate copy( RelTraitSet traitSet, RelNode input, boolean indicator, ImmutableBitSet groupSet, List<ImmutableBitSet> groupSets, List<AggregateCall> aggCalls ) {
+        try {
+            return new BatchAggregate( getCluster(), traitSet, input, indicator, groupSet, groupSets, aggCalls );
+        } catch ( InvalidRelException e ) {
+            // Semantic error not possible. Must be a bug. Convert to internal error.
+            throw new AssertionError( e );
+        }
+    }
+
+
+    @Override
+    public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+        return super.computeSelfCost( planner, mq ).multiplyBy( BatchConvention.COST_MULTIPLIER );
+    }
+
+
+    /**
+     * Returns the batch aggregate function computing the given call, or null if the call is not supported.
+     */
+    private static VectorAggregation function( AggregateCall aggCall, RelDataType inputRowType ) {
+        if ( aggCall.isDistinct() || aggCall.hasFilter() || !aggCall.getCollation().getFieldCollations().isEmpty() ) {
+            return null;
+        }
+        final List<Integer> args = aggCall.getArgList();
+        if ( args.size() > 1 ) {
+            return null;
+        }
+        final VectorKind resultKind = RexToVectorTranslator.kind( aggCall.getType() );
+        final RelDataType argType = args.isEmpty() ? null : inputRowType.getFieldList().get( args.get( 0 ) ).getType();
+        switch ( aggCall.getAggregation().getKind() ) {
+            case COUNT:
+                return args.isEmpty() ? VectorAggregation.COUNT_STAR : VectorAggregation.COUNT;
+            case SUM:
+            case SUM0: {
+                if ( argType == null || !PolyTypeUtil.isNumeric( argType ) || !resultKind.isNumeric() ) {
+                    // Excludes decimals
+                    return null;
+                }
+                final VectorKind argKind = RexToVectorTranslator.kind( argType );
+                if ( !argKind.isNumeric() || argKind.isIntegral() != resultKind.isIntegral() ) {
+                    return null;
+                }
+                return VectorAggregation.valueOf( aggCall.getAggregation().getKind().name() );
+            }
+            case MIN:
+            case MAX: {
+                if ( argType == null ) {
+                    return null;
+                }
+                final VectorKind argKind = RexToVectorTranslator.kind( argType );
+                if ( argKind != resultKind || !(argKind.isNumeric() || PolyTypeUtil.inCharFamily( argType )) ) {
+                    return null;
+                }
+                return VectorAggregation.valueOf( aggCall.getAggregation().getKind().name() );
+            }
+            default:
+                return null;
+        }
+    }
+
+
+    /**
+     * Returns whether all calls of the given aggregate can be computed in batch convention.
+     */
+    static boolean isSupported( Aggregate aggregate ) {
+        if ( aggregate.indicator || aggregate.getGroupType() != Group.SIMPLE ) {
+            return false;
+        }
+        for ( AggregateCall aggCall : aggregate.getAggCallList() ) {
+            if ( function( aggCall, aggregate.getInput().getRowType() ) == null ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    @Override
+    public Expression implement( EnumerableRelImplementor implementor, BlockBuilder builder ) {
+        final Expression input = ((BatchRel) getInput()).implement( implementor, builder );
+        final RelDataType inputRowType = getInput().getRowType();
+
+        final List<Expression> groupKeys = new ArrayList<>();
+        final List<Expression> keyKinds = new ArrayList<>();
+        for ( int key : groupSet ) {
+            groupKeys.add( Expressions.constant( key ) );
+            keyKinds.add( Expressions.constant( RexToVectorTranslator.kind( inputRowType.getFieldList().get( key ).getType() ) ) );
+        }
+        final List<Expression> functions = new ArrayList<>();
+        final List<Expression> arguments = new ArrayList<>();
+        final List<Expression> resultKinds = new ArrayList<>();
+        for ( AggregateCall aggCall : aggCalls ) {
+            functions.add( Expressions.constant( function( aggCall, inputRowType ) ) );
+            arguments.add( Expressions.constant( aggCall.getArgList().isEmpty() ? -1 : aggCall.getArgList().get( 0 ) ) );
+            resultKinds.add( Expressions.constant( RexToVectorTranslator.kind( aggCall.getType() ) ) );
+        }
+        return builder.append(
+                builder.newName( "aggregate" + System.nanoTime() ),
+                Expressions.call(
+                        BuiltInMethod.BATCH_AGGREGATE.method,
+                        input,
+                        Expressions.newArrayInit( int.class, groupKeys ),
+                        Expressions.newArrayInit( VectorKind.class, keyKinds ),
+                        Expressions.newArrayInit( VectorAggregation.class, functions ),
+                        Expressions.newArrayInit( int.class, arguments ),
+                        Expressions.newArrayInit( VectorKind.class, resultKinds ) ) );
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.adapter.enumerable.batch;
+
+
+import org.polypheny.db.plan.Convention;
+import org.polypheny.db.plan.ConventionTraitDef;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelTrait;
+import org.polypheny.db.plan.RelTraitDef;
+import org.polypheny.db.plan.RelTraitSet;
+
+
+/**
+ * Calling convention that returns results as an {@link org.apache.calcite.linq4j.Enumerable} of
+ * {@link org.polypheny.db.runtime.batch.ColumnBatch column batches}.
+ *
+ * The relational expression needs to implement {@link BatchRel}. Relational expressions in this convention process a
+ * whole batch of rows per operator call instead of a single row.
+ */
+public enum BatchConvention implements Convention {
+    INSTANCE;
+
+    /**
+     * Cost of a batch node versus implementing an equivalent node in a "typical" calling convention.
+     */
+    public static final double COST_MULTIPLIER = 0.25d;
+
+    /**
+     * Cost of converting between rows and batches versus a filter on the same number of rows.
+     */
+    public static final double CONVERSION_COST_MULTIPLIER = 0.1d;
+
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+
+    @Override
+    public Class getInterface() {
+        return BatchRel.class;
+    }
+
+
+    @Override
+    public String getName() {
+        return "BATCH";
+    }
+
+
+    @Override
+    public RelTraitDef getTraitDef() {
+        return ConventionTraitDef.INSTANCE;
+    }
+
+
+    @Override
+    public boolean satisfies( RelTrait trait ) {
+        return this == trait;
+    }
+
+
+    @Override
+    public void register( RelOptPlanner planner ) {
+    }
+
+
+    @Override
+    public boolean canConvertConvention( Convention toConvention ) {
+        return false;
+    }
+
+
+    @Override
+    public boolean useAbstractConvertersForConversion( RelTraitSet fromTraits, RelTraitSet toTraits ) {
+        return false;
+    }
+}
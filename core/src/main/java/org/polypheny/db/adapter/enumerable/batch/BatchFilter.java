@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.adapter.enumerable.batch;
+
+
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.adapter.enumerable.EnumerableRelImplementor;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelCollationTraitDef;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.Filter;
+import org.polypheny.db.rel.metadata.RelMdCollation;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.util.BuiltInMethod;
+
+
+/**
+ * Implementation of {@link Filter} in {@link BatchConvention batch convention}.
+ */
+public class BatchFilter extends Filter implements BatchRel {
+
+    public BatchFilter( RelOptCluster cluster, RelTraitSet traitSet, RelNode input, RexNode condition ) {
+        super( cluster, traitSet, input, condition );
+        assert getConvention() instanceof BatchConvention;
+    }
+
+
+    /**
+     * Creates a BatchFilter.
+     */
+    public static BatchFilter create( final RelNode input, RexNode condition ) {
+        final RelOptCluster cluster = input.getCluster();
+        final RelMetadataQuery mq = cluster.getMetadataQuery();
+        final RelTraitSet traitSet = cluster.traitSetOf( BatchConvention.INSTANCE ).replaceIfs( RelCollationTraitDef.INSTANCE, () -> RelMdCollation.filter( mq, input ) );
+        return new BatchFilter( cluster, traitSet, input, condition );
+    }
+
+
+    @Override
+    public BatchFilter copy( RelTraitSet traitSet, RelNode input, RexNode condition ) {
+        return new BatchFilter( getCluster(), traitSet, input, condition );
+    }
+
+
+    @Override
+    public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+        return super.computeSelfCost( planner, mq ).multiplyBy( BatchConvention.COST_MULTIPLIER );
+    }
+
+
+    @Override
+    public Expression implement( EnumerableRelImplementor implementor, BlockBuilder builder ) {
+        final Expression input = ((BatchRel) getInput()).implement( implementor, builder );
+        final Expression condition = new RexToVectorTranslator( getInput().getRowType() ).translate( getCondition() );
+        return builder.append(
+                builder.newName( "filter" + System.nanoTime() ),
+                Expressions.call( BuiltInMethod.BATCH_FILTER.method, DataContext.ROOT, input, condition ) );
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.adapter.enumerable.batch;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.adapter.enumerable.EnumerableRelImplementor;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.Project;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.rel.type.RelDataType;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.runtime.batch.VectorExpression;
+import org.polypheny.db.util.BuiltInMethod;
+
+
+/**
+ * Implementation of {@link Project} in {@link BatchConvention batch convention}.
+ */
+public class BatchProject extends Project implements BatchRel {
+
+    public BatchProject( RelOptCluster cluster, RelTraitSet traitSet, RelNode input, List<? extends RexNode> projects, RelDataType rowType ) {
+        super( cluster, traitSet, input, projects, rowType );
+        assert getConvention() instanceof BatchConvention;
+    }
+
+
+    @Override
+    public BatchProject copy( RelTraitSet traitSet, RelNode input, List<RexNode> projects, RelDataType rowType ) {
+        return new BatchProject( getCluster(), traitSet, input, projects, rowType );
+    }
+
+
+    @Override
+    public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+        return super.computeSelfCost( planner, mq ).multiplyBy( BatchConvention.COST_MULTIPLIER );
+    }
+
+
+    @Override
+    public Expression implement( EnumerableRelImplementor implementor, BlockBuilder builder ) {
+        final Expression input = ((BatchRel) getInput()).implement( implementor, builder );
+        final RexToVectorTranslator translator = new RexToVectorTranslator( getInput().getRowType() );
+        final List<Expression> projects = new ArrayList<>();
+        for ( RexNode project : getProjects() ) {
+            projects.add( translator.translate( project ) );
+        }
+        return builder.append(
+                builder.newName( "project" + System.nanoTime() ),
+                Expressions.call( BuiltInMethod.BATCH_PROJECT.method, DataContext.ROOT, input, Expressions.newArrayInit( VectorExpression.class, projects ) ) );
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.adapter.enumerable.batch;
+
+
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.polypheny.db.adapter.enumerable.EnumerableRelImplementor;
+import org.polypheny.db.rel.RelNode;
+
+
+/**
+ * Relational expression that uses the {@link BatchConvention batch calling convention}.
+ */
+public interface BatchRel extends RelNode {
+
+    /**
+     * Appends the code computing this relational expression to the given block and returns an expression of type
+     * {@code Enumerable<ColumnBatch>}.
+     *
+     * @param implementor Implementor of the enclosing enumerable plan
+     * @param builder Block to add statements to
+     * @return Expression evaluating to the batches produced by this relational expression
+     */
+    Expression implement( EnumerableRelImplementor implementor, BlockBuilder builder );
+
+}
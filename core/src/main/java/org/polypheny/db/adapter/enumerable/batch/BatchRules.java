@@ -0,0 +1,204 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.adapter.enumerable.batch;
+
+
+import com.google.common.collect.ImmutableList;
+import java.util.function.Predicate;
+import org.polypheny.db.adapter.enumerable.EnumerableConvention;
+import org.polypheny.db.adapter.enumerable.EnumerableRel;
+import org.polypheny.db.plan.Convention;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelOptRule;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.InvalidRelException;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.convert.ConverterRule;
+import org.polypheny.db.rel.core.RelFactories;
+import org.polypheny.db.rel.logical.LogicalAggregate;
+import org.polypheny.db.rel.logical.LogicalFilter;
+import org.polypheny.db.rel.logical.LogicalProject;
+import org.polypheny.db.tools.RelBuilderFactory;
+
+
+/**
+ * Rules that move filters, projections and aggregations into the {@link BatchConvention batch convention}.
+ */
+public class BatchRules {
+
+    private BatchRules() {
+    }
+
+
+    public static final RelOptRule BATCH_FILTER_RULE = new BatchFilterRule( RelFactories.LOGICAL_BUILDER );
+
+    public static final RelOptRule BATCH_PROJECT_RULE = new BatchProjectRule( RelFactories.LOGICAL_BUILDER );
+
+    public static final RelOptRule BATCH_AGGREGATE_RULE = new BatchAggregateRule( RelFactories.LOGICAL_BUILDER );
+
+    public static final RelOptRule ENUMERABLE_TO_BATCH_RULE = new EnumerableToBatchConverterRule( RelFactories.LOGICAL_BUILDER );
+
+    public static final RelOptRule BATCH_TO_ENUMERABLE_RULE = new BatchToEnumerableConverterRule( RelFactories.LOGICAL_BUILDER );
+
+    /**
+     * All rules of the batch convention.
+     */
+    public static final ImmutableList<RelOptRule> RULES =
+            ImmutableList.of(
+                    BATCH_FILTER_RULE,
+                    BATCH_PROJECT_RULE,
+                    BATCH_AGGREGATE_RULE,
+                    ENUMERABLE_TO_BATCH_RULE,
+                    BATCH_TO_ENUMERABLE_RULE );
+
+
+    /**
+     * Rule that converts a {@link LogicalFilter} with a vectorizable condition to batch convention.
+     */
+    public static class BatchFilterRule extends ConverterRule {
+
+        /**
+         * Creates a BatchFilterRule.
+         *
+         * @param relBuilderFactory Builder for relational expressions
+         */
+        public BatchFilterRule( RelBuilderFactory relBuilderFactory ) {
+            super(
+                    LogicalFilter.class,
+                    (Predicate<LogicalFilter>) filter -> RexToVectorTranslator.isSupported( filter.getInput().getRowType(), ImmutableList.of( filter.getCondition() ) ),
+                    Convention.NONE,
+                    BatchConvention.INSTANCE,
+                    relBuilderFactory,
+                    "BatchFilterRule" );
+        }
+
+
+        @Override
+        public RelNode convert( RelNode rel ) {
+            final LogicalFilter filter = (LogicalFilter) rel;
+            return BatchFilter.create( convert( filter.getInput(), filter.getInput().getTraitSet().replace( BatchConvention.INSTANCE ) ), filter.getCondition() );
+        }
+    }
+
+
+    /**
+     * Rule that converts a {@link LogicalProject} with vectorizable expressions to batch convention.
+     */
+    public static class BatchProjectRule extends ConverterRule {
+
+        /**
+         * Creates a BatchProjectRule.
+         *
+         * @param relBuilderFactory Builder for relational expressions
+         */
+        public BatchProjectRule( RelBuilderFactory relBuilderFactory ) {
+            super(
+                    LogicalProject.class,
+                    (Predicate<LogicalProject>) project -> RexToVectorTranslator.isSupported( project.getInput().getRowType(), project.getProjects() ),
+                    Convention.NONE,
+                    BatchConvention.INSTANCE,
+                    relBuilderFactory,
+                    "BatchProjectRule" );
+        }
+
+
+        @Override
+        public RelNode convert( RelNode rel ) {
+            final LogicalProject project = (LogicalProject) rel;
+            return new BatchProject(
+                    rel.getCluster(),
+                    rel.getTraitSet().replace( BatchConvention.INSTANCE ),
+                    convert( project.getInput(), project.getInput().getTraitSet().replace( BatchConvention.INSTANCE ) ),
+                    project.getProjects(),
+                    project.getRowType() );
+        }
+    }
+
+
+    /**
+     * Rule that converts a {@link LogicalAggregate} to batch convention.
+     */
+    public static class BatchAggregateRule extends ConverterRule {
+
+        /**
+         * Creates a BatchAggregateRule.
+         *
+         * @param relBuilderFactory Builder for relational expressions
+         */
+        public BatchAggregateRule( RelBuilderFactory relBuilderFactory ) {
+            super( LogicalAggregate.class, (Predicate<LogicalAggregate>) BatchAggregate::isSupported, Convention.NONE, BatchConvention.INSTANCE, relBuilderFactory, "BatchAggregateRule" );
+        }
+
+
+        @Override
+        public RelNode convert( RelNode rel ) {
+            final LogicalAggregate agg = (LogicalAggregate) rel;
+            final RelTraitSet traitSet = agg.getTraitSet().replace( BatchConvention.INSTANCE );
+            try {
+                return new BatchAggregate( rel.getCluster(), traitSet, convert( agg.getInput(), traitSet ), agg.indicator, agg.getGroupSet(), agg.getGroupSets(), agg.getAggCallList() );
+            } catch ( InvalidRelException e ) {
+                RelOptPlanner.LOGGER.debug( e.toString() );
+                return null;
+            }
+        }
+    }
+
+
+    /**
+     * Rule that converts any enumerable relational expression to batch convention.
+     */
+    public static class EnumerableToBatchConverterRule extends ConverterRule {
+
+        /**
+         * Creates an EnumerableToBatchConverterRule.
+         *
+         * @param relBuilderFactory Builder for relational expressions
+         */
+        public EnumerableToBatchConverterRule( RelBuilderFactory relBuilderFactory ) {
+            super( EnumerableRel.class, (Predicate<RelNode>) r -> !(r instanceof BatchToEnumerableConverter), EnumerableConvention.INSTANCE, BatchConvention.INSTANCE, relBuilderFactory, "EnumerableToBatchConverterRule" );
+        }
+
+
+        @Override
+        public RelNode convert( RelNode rel ) {
+            return EnumerableToBatchConverter.create( rel );
+        }
+    }
+
+
+    /**
+     * Rule that converts any batch relational expression to enumerable convention.
+     */
+    public static class BatchToEnumerableConverterRule extends ConverterRule {
+
+        /**
+         * Creates a BatchToEnumerableConverterRule.
+         *
+         * @param relBuilderFactory Builder for relational expressions
+         */
+        public BatchToEnumerableConverterRule( RelBuilderFactory relBuilderFactory ) {
+            super( RelNode.class, (Predicate<RelNode>) r -> !(r instanceof EnumerableToBatchConverter), BatchConvention.INSTANCE, EnumerableConvention.INSTANCE, relBuilderFactory, "BatchToEnumerableConverterRule" );
+        }
+
+
+        @Override
+        public RelNode convert( RelNode rel ) {
+            return BatchToEnumerableConverter.create( rel );
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.adapter.enumerable.batch;
+
+
+import java.util.List;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.adapter.enumerable.EnumerableConvention;
+import org.polypheny.db.adapter.enumerable.EnumerableRel;
+import org.polypheny.db.adapter.enumerable.EnumerableRelImplementor;
+import org.polypheny.db.adapter.enumerable.JavaRowFormat;
+import org.polypheny.db.adapter.enumerable.PhysType;
+import org.polypheny.db.adapter.enumerable.PhysTypeImpl;
+import org.polypheny.db.plan.ConventionTraitDef;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.convert.ConverterImpl;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.util.BuiltInMethod;
+
+
+/**
+ * Relational expression that converts {@link org.polypheny.db.runtime.batch.ColumnBatch column batches} back into rows
+ * of the enumerable convention.
+ *
+ * @see BatchConvention
+ */
+public class BatchToEnumerableConverter extends ConverterImpl implements EnumerableRel {
+
+    protected BatchToEnumerableConverter( RelOptCluster cluster, RelTraitSet traits, RelNode input ) {
+        super( cluster, ConventionTraitDef.INSTANCE, traits, input );
+    }
+
+
+    /**
+     * Creates a BatchToEnumerableConverter.
+     */
+    public static BatchToEnumerableConverter create( RelNode input ) {
+        return new BatchToEnumerableConverter( input.getCluster(), input.getTraitSet().replace( EnumerableConvention.INSTANCE ), input );
+    }
+
+
+    @Override
+    public RelNode copy( RelTraitSet traitSet, List<RelNode> inputs ) {
+        return new BatchToEnumerableConverter( getCluster(), traitSet, sole( inputs ) );
+    }
+
+
+    @Override
+    public String relCompareString() {
+        return "BatchToEnumerableConverter$" + input.relCompareString() + "&";
+    }
+
+
+    @Override
+    public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+        return super.computeSelfCost( planner, mq ).multiplyBy( BatchConvention.CONVERSION_COST_MULTIPLIER );
+    }
+
+
+    @Override
+    public Result implement( EnumerableRelImplementor implementor, Prefer pref ) {
+        final BlockBuilder builder = new BlockBuilder();
+        final PhysType physType = PhysTypeImpl.of( implementor.getTypeFactory(), getRowType(), JavaRowFormat.ARRAY );
+        final Expression batches = ((BatchRel) getInput()).implement( implementor, builder );
+        final Expression rows = Expressions.call( BuiltInMethod.BATCH_TO_ROWS.method, batches );
+        builder.add(
+                getRowType().getFieldCount() == 1
+                        ? Expressions.call( BuiltInMethod.SLICE0.method, rows )
+                        : rows );
+        return implementor.result( physType, builder.toBlock() );
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.adapter.enumerable.batch;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.calcite.linq4j.tree.BlockBuilder;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.adapter.enumerable.EnumerableRel;
+import org.polypheny.db.adapter.enumerable.EnumerableRel.Prefer;
+import org.polypheny.db.adapter.enumerable.EnumerableRel.Result;
+import org.polypheny.db.adapter.enumerable.EnumerableRelImplementor;
+import org.polypheny.db.adapter.enumerable.JavaRowFormat;
+import org.polypheny.db.adapter.enumerable.PhysType;
+import org.polypheny.db.adapter.enumerable.PhysTypeImpl;
+import org.polypheny.db.plan.ConventionTraitDef;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.convert.ConverterImpl;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.rel.type.RelDataTypeField;
+import org.polypheny.db.runtime.batch.VectorKind;
+import org.polypheny.db.util.BuiltInMethod;
+
+
+/**
+ * Relational expression that converts the rows of an enumerable input into {@link org.polypheny.db.runtime.batch.ColumnBatch column batches}.
+ *
+ * @see BatchConvention
+ */
+public class EnumerableToBatchConverter extends ConverterImpl implements BatchRel {
+
+    protected EnumerableToBatchConverter( RelOptCluster cluster, RelTraitSet traits, RelNode input ) {
+        super( cluster, ConventionTraitDef.INSTANCE, traits, input );
+    }
+
+
+    /**
+     * Creates an EnumerableToBatchConverter.
+     */
+    public static EnumerableToBatchConverter create( RelNode input ) {
+        return new EnumerableToBatchConverter( input.getCluster(), input.getTraitSet().replace( BatchConvention.INSTANCE ), input );
+    }
+
+
+    @Override
+    public RelNode copy( RelTraitSet traitSet, List<RelNode> inputs ) {
+        return new EnumerableToBatchConverter( getCluster(), traitSet, sole( inputs ) );
+    }
+
+
+    @Override
+    public String relCompareString() {
+        return "EnumerableToBatchConverter$" + input.relCompareString() + "&";
+    }
+
+
+    @Override
+    public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+        return super.computeSelfCost( planner, mq ).multiplyBy( BatchConvention.CONVERSION_COST_MULTIPLIER );
+    }
+
+
+    @Override
+    public Expression implement( EnumerableRelImplementor implementor, BlockBuilder builder ) {
+        final Result result = implementor.visitChild( null, 0, (EnumerableRel) getInput(), Prefer.ARRAY );
+        final PhysType arrayPhysType = PhysTypeImpl.of( implementor.getTypeFactory(), getRowType(), JavaRowFormat.ARRAY, false );
+        final Expression rows = builder.append( builder.newName( "rows" + System.nanoTime() ), result.block );
+        final List<Expression> kinds = new ArrayList<>();
+        for ( RelDataTypeField field : getRowType().getFieldList() ) {
+            kinds.add( Expressions.constant( RexToVectorTranslator.kind( field.getType() ) ) );
+        }
+        return builder.append(
+                builder.newName( "batches" + System.nanoTime() ),
+                Expressions.call(
+                        BuiltInMethod.BATCH_TO_BATCHES.method,
+                        result.physType.convertTo( rows, arrayPhysType ),
+                        Expressions.newArrayInit( VectorKind.class, kinds ) ) );
+    }
+}
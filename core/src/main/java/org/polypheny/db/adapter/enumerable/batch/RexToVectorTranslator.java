@@ -0,0 +1,376 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.adapter.enumerable.batch;
+
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.polypheny.db.rel.type.RelDataType;
+import org.polypheny.db.rex.RexCall;
+import org.polypheny.db.rex.RexDynamicParam;
+import org.polypheny.db.rex.RexInputRef;
+import org.polypheny.db.rex.RexLiteral;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.runtime.batch.VectorExpression;
+import org.polypheny.db.runtime.batch.VectorKind;
+import org.polypheny.db.runtime.batch.VectorOperator;
+import org.polypheny.db.type.PolyType;
+import org.polypheny.db.util.BuiltInMethod;
+
+
+/**
+ * Translates row expressions into code which creates the equivalent {@link VectorExpression}. Only a subset of the row
+ * expressions is supported: arithmetic on integral and floating point numbers, comparisons, boolean logic, null tests
+ * and numeric casts. Everything else (e.g. decimal arithmetic, string functions, CASE) is evaluated row by row in the
+ * enumerable convention.
+ */
+public class RexToVectorTranslator {
+
+    private final RelDataType inputRowType;
+
+
+    public RexToVectorTranslator( RelDataType inputRowType ) {
+        this.inputRowType = inputRowType;
+    }
+
+
+    /**
+     * Returns whether all expressions can be evaluated in the batch convention.
+     */
+    public static boolean isSupported( RelDataType inputRowType, List<? extends RexNode> nodes ) {
+        final RexToVectorTranslator translator = new RexToVectorTranslator( inputRowType );
+        try {
+            for ( RexNode node : nodes ) {
+                translator.translate0( node );
+            }
+            return true;
+        } catch ( UnsupportedExpressionException e ) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Returns code which creates the vector expression for the given row expression.
+     */
+    public Expression translate( RexNode node ) {
+        return translate0( node ).expression;
+    }
+
+
+    /**
+     * Returns the vector kind used for values of the given type.
+     */
+    public static VectorKind kind( RelDataType type ) {
+        switch ( type.getPolyType() ) {
+            case BOOLEAN:
+                return VectorKind.BOOLEAN;
+            case TINYINT:
+                return VectorKind.BYTE;
+            case SMALLINT:
+                return VectorKind.SHORT;
+            case INTEGER:
+            case DATE:
+            case TIME:
+                return VectorKind.INT;
+            case BIGINT:
+            case TIMESTAMP:
+                return VectorKind.LONG;
+            case REAL:
+                return VectorKind.FLOAT;
+            case FLOAT:
+            case DOUBLE:
+                return VectorKind.DOUBLE;
+            default:
+                return VectorKind.OBJECT;
+        }
+    }
+
+
+    private static boolean isNumeric( RelDataType type ) {
+        switch ( type.getPolyType() ) {
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+            case REAL:
+            case FLOAT:
+            case DOUBLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+
+    private Translation translate0( RexNode node ) {
+        if ( node instanceof RexInputRef ) {
+            final int index = ((RexInputRef) node).getIndex();
+            final RelDataType type = inputRowType.getFieldList().get( index ).getType();
+            final VectorKind kind = kind( type );
+            return new Translation(
+                    Expressions.call( BuiltInMethod.VECTOR_COLUMN.method, Expressions.constant( kind ), Expressions.constant( index ) ),
+                    kind,
+                    type,
+                    false );
+        } else if ( node instanceof RexLiteral ) {
+            return translateLiteral( (RexLiteral) node );
+        } else if ( node instanceof RexDynamicParam ) {
+            final RexDynamicParam parameter = (RexDynamicParam) node;
+            final RelDataType type = parameter.getType();
+            final VectorKind kind = kind( type );
+            if ( !isNumeric( type ) && !isCharacter( type ) && type.getPolyType() != PolyType.BOOLEAN && type.getPolyType() != PolyType.DECIMAL ) {
+                // Parameters of temporal types are passed as calendars
+                throw new UnsupportedExpressionException();
+            }
+            return new Translation(
+                    Expressions.call( BuiltInMethod.VECTOR_PARAMETER.method, Expressions.constant( kind ), Expressions.constant( parameter.getIndex() ) ),
+                    kind,
+                    type,
+                    true );
+        } else if ( node instanceof RexCall ) {
+            return translateCall( (RexCall) node );
+        }
+        throw new UnsupportedExpressionException();
+    }
+
+
+    private Translation translateLiteral( RexLiteral literal ) {
+        final RelDataType type = literal.getType();
+        final VectorKind kind = kind( type );
+        final Object value;
+        if ( literal.isNull() ) {
+            value = null;
+        } else {
+            switch ( type.getPolyType() ) {
+                case BOOLEAN:
+                    value = literal.getValueAs( Boolean.class );
+                    break;
+                case TINYINT:
+                case SMALLINT:
+                case INTEGER:
+                case BIGINT:
+                case TIMESTAMP:
+                    value = literal.getValueAs( Long.class );
+                    break;
+                case DATE:
+                case TIME:
+                    value = literal.getValueAs( Integer.class );
+                    break;
+                case REAL:
+                case FLOAT:
+                case DOUBLE:
+                    value = literal.getValueAs( Double.class );
+                    break;
+                case CHAR:
+                case VARCHAR:
+                    value = literal.getValueAs( String.class );
+                    break;
+                case DECIMAL:
+                    value = literal.getValueAs( BigDecimal.class );
+                    break;
+                default:
+                    throw new UnsupportedExpressionException();
+            }
+        }
+        return new Translation(
+                Expressions.call( BuiltInMethod.VECTOR_CONSTANT.method, Expressions.constant( kind ), Expressions.constant( value, Object.class ) ),
+                kind,
+                type,
+                true );
+    }
+
+
+    private Translation translateCall( RexCall call ) {
+        final List<Translation> operands = new ArrayList<>();
+        for ( RexNode operand : call.getOperands() ) {
+            operands.add( translate0( operand ) );
+        }
+        final RelDataType type = call.getType();
+        switch ( call.getKind() ) {
+            case PLUS:
+            case MINUS:
+            case TIMES:
+            case DIVIDE: {
+                // Excludes decimals as well as date and interval arithmetic
+                if ( !isNumeric( type ) || !isNumeric( operands.get( 0 ).type ) || !isNumeric( operands.get( 1 ).type ) ) {
+                    throw new UnsupportedExpressionException();
+                }
+                final VectorKind kind = kind( type );
+                return call( VectorOperator.valueOf( call.getKind().name() ), type, cast( operands.get( 0 ), kind ), cast( operands.get( 1 ), kind ) );
+            }
+            case MINUS_PREFIX:
+                if ( !isNumeric( type ) ) {
+                    throw new UnsupportedExpressionException();
+                }
+                return call( VectorOperator.NEGATE, type, cast( operands.get( 0 ), kind( type ) ) );
+            case PLUS_PREFIX:
+                return operands.get( 0 );
+            case EQUALS:
+            case NOT_EQUALS:
+            case LESS_THAN:
+            case LESS_THAN_OR_EQUAL:
+            case GREATER_THAN:
+            case GREATER_THAN_OR_EQUAL:
+                return compare( VectorOperator.valueOf( call.getKind().name() ), type, operands.get( 0 ), operands.get( 1 ) );
+            case AND:
+            case OR:
+            case NOT:
+            case IS_TRUE:
+            case IS_NOT_TRUE:
+            case IS_FALSE:
+            case IS_NOT_FALSE:
+                for ( Translation operand : operands ) {
+                    if ( operand.kind != VectorKind.BOOLEAN ) {
+                        throw new UnsupportedExpressionException();
+                    }
+                }
+                return call( VectorOperator.valueOf( call.getKind().name() ), type, operands.toArray( new Translation[0] ) );
+            case IS_NULL:
+            case IS_NOT_NULL:
+                return call( VectorOperator.valueOf( call.getKind().name() ), type, operands.get( 0 ) );
+            case CAST: {
+                final Translation operand = operands.get( 0 );
+                if ( isNumeric( type ) && isNumeric( operand.type ) ) {
+                    final Translation cast = cast( operand, kind( type ) );
+                    return new Translation( cast.expression, cast.kind, type, cast.constant );
+                }
+                if ( type.getPolyType() == operand.type.getPolyType()
+                        && type.getPrecision() == operand.type.getPrecision()
+                        && type.getScale() == operand.type.getScale() ) {
+                    // Only changes the nullability
+                    return new Translation( operand.expression, operand.kind, type, operand.constant );
+                }
+                throw new UnsupportedExpressionException();
+            }
+            default:
+                throw new UnsupportedExpressionException();
+        }
+    }
+
+
+    private Translation compare( VectorOperator operator, RelDataType type, Translation left, Translation right ) {
+        if ( isNumeric( left.type ) && isNumeric( right.type ) ) {
+            if ( left.kind.isFloating() || right.kind.isFloating() ) {
+                return call( operator, type, cast( left, VectorKind.DOUBLE ), cast( right, VectorKind.DOUBLE ) );
+            }
+            return call( operator, type, cast( left, VectorKind.LONG ), cast( right, VectorKind.LONG ) );
+        }
+        final PolyType leftType = left.type.getPolyType();
+        final PolyType rightType = right.type.getPolyType();
+        if ( left.kind.isIntegral() && leftType == rightType ) {
+            // Booleans, dates, times and timestamps
+            return call( operator, type, left, right );
+        }
+        if ( leftType == PolyType.DECIMAL && rightType == PolyType.DECIMAL ) {
+            return call( operator, type, left, right );
+        }
+        // Fixed-length strings are padded, only compare them to constants
+        if ( isCharacter( left.type ) && isCharacter( right.type )
+                && (leftType == PolyType.VARCHAR || left.constant)
+                && (rightType == PolyType.VARCHAR || right.constant) ) {
+            return call( operator, type, left, right );
+        }
+        throw new UnsupportedExpressionException();
+    }
+
+
+    private static boolean isCharacter( RelDataType type ) {
+        return type.getPolyType() == PolyType.CHAR || type.getPolyType() == PolyType.VARCHAR;
+    }
+
+
+    /**
+     * Converts a numeric operand to the given kind.
+     */
+    private Translation cast( Translation operand, VectorKind kind ) {
+        if ( operand.kind == kind ) {
+            return operand;
+        }
+        final boolean possible = kind.isFloating()
+                ? operand.kind.isNumeric()
+                : kind.isIntegral() && operand.kind.isIntegral() && operand.kind != VectorKind.BOOLEAN;
+        if ( !possible ) {
+            // E.g. floating point to integer, which has different rounding rules in SQL
+            throw new UnsupportedExpressionException();
+        }
+        return new Translation(
+                vectorCall( VectorOperator.CAST, kind, operand.expression ),
+                kind,
+                operand.type,
+                operand.constant );
+    }
+
+
+    private Translation call( VectorOperator operator, RelDataType type, Translation... operands ) {
+        final Expression[] expressions = new Expression[operands.length];
+        boolean constant = true;
+        for ( int i = 0; i < operands.length; i++ ) {
+            expressions[i] = operands[i].expression;
+            constant &= operands[i].constant;
+        }
+        final VectorKind kind = kind( type );
+        return new Translation( vectorCall( operator, kind, expressions ), kind, type, constant );
+    }
+
+
+    private static Expression vectorCall( VectorOperator operator, VectorKind kind, Expression... operands ) {
+        return Expressions.call(
+                BuiltInMethod.VECTOR_CALL.method,
+                Expressions.constant( operator ),
+                Expressions.constant( kind ),
+                Expressions.newArrayInit( VectorExpression.class, operands ) );
+    }
+
+
+    /**
+     * Translated expression together with the kind and type of its result.
+     */
+    private static class Translation {
+
+        private final Expression expression;
+        private final VectorKind kind;
+        private final RelDataType type;
+        private final boolean constant;
+
+
+        Translation( Expression expression, VectorKind kind, RelDataType type, boolean constant ) {
+            this.expression = expression;
+            this.kind = kind;
+            this.type = type;
+            this.constant = constant;
+        }
+
+    }
+
+
+    /**
+     * Thrown if an expression cannot be evaluated in the batch convention.
+     */
+    private static class UnsupportedExpressionException extends RuntimeException {
+
+        UnsupportedExpressionException() {
+            super( null, null, false, false );
+        }
+
+    }
+
+}
@@ -42,7 +42,7 @@
 public class CowMultiHashIndex extends Index {
 
     private Map<List<Object>, Set<List<Object>>> index = new HashMap<>();
-    private boolean initialized = false;
+    private volatile boolean initialized = false;
 
     private Map<PolyXid, Map<List<Object>, Set<List<Object>>>> cowIndex = new HashMap<>();
     private Map<PolyXid, List<DeferredIndexUpdate>> cowOpLog = new HashMap<>();
@@ -137,6 +137,15 @@ public int size() {
     }
 
 
+    /**
+     * Whether the specified transaction has modified this index and not yet committed these changes.
+     */
+    protected boolean hasUncommittedChanges( PolyXid xid ) {
+        final List<DeferredIndexUpdate> log = cowOpLog.get( xid );
+        return log != null && !log.isEmpty();
+    }
+
+
     protected void begin( PolyXid xid ) {
         if ( !cowIndex.containsKey( xid ) ) {
             IndexManager.getInstance().begin( xid, this );
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.index;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * Hierarchical navigable small world graph (Malkov and Yashunin) for approximate nearest neighbour search using the
+ * squared euclidean distance. Deleted nodes are only marked as deleted; they are still used for navigating the graph
+ * but are never returned as result.
+ *
+ * @param <T> Type of the items associated with the vectors
+ */
+class HnswGraph<T> {
+
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelFactor;
+    private final Random random;
+
+    private final List<Node<T>> nodes = new ArrayList<>();
+    private Node<T> entryPoint = null;
+    private int deletedCount = 0;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+
+    /**
+     * @param m Maximum number of neighbours per node on the upper layers (twice as many on the lowest layer)
+     * @param efConstruction Size of the candidate list used when inserting
+     * @param seed Seed for drawing the layers of the nodes
+     */
+    HnswGraph( int m, int efConstruction, long seed ) {
+        this.m = Math.max( 2, m );
+        this.maxM0 = 2 * this.m;
+        this.efConstruction = Math.max( this.m, efConstruction );
+        this.levelFactor = 1 / Math.log( this.m );
+        this.random = new Random( seed );
+    }
+
+
+    /**
+     * Number of nodes which have not been deleted.
+     */
+    int size() {
+        lock.readLock().lock();
+        try {
+            return nodes.size() - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Number of nodes which have been marked as deleted.
+     */
+    int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Adds a vector to the graph.
+     *
+     * @return The id of the new node
+     */
+    int insert( double[] vector, T item ) {
+        lock.writeLock().lock();
+        try {
+            final int level = (int) Math.floor( -Math.log( 1 - random.nextDouble() ) * levelFactor );
+            final Node<T> node = new Node<>( nodes.size(), vector, item, level, m, maxM0 );
+            nodes.add( node );
+            if ( entryPoint == null ) {
+                entryPoint = node;
+                return node.id;
+            }
+
+            Node<T> current = entryPoint;
+            for ( int l = entryPoint.level; l > level; l-- ) {
+                current = greedyClosest( vector, current, l );
+            }
+            for ( int l = Math.min( level, entryPoint.level ); l >= 0; l-- ) {
+                final List<Candidate> candidates = searchLayer( vector, current, efConstruction, l );
+                final int maxM = l == 0 ? maxM0 : m;
+                for ( int i = 0; i < Math.min( m, candidates.size() ); i++ ) {
+                    final Node<T> neighbour = nodes.get( candidates.get( i ).id );
+                    node.addLink( l, neighbour.id );
+                    if ( !neighbour.addLink( l, node.id ) ) {
+                        shrinkLinks( neighbour, l, node.id, maxM );
+                    }
+                }
+                current = nodes.get( candidates.get( 0 ).id );
+            }
+            if ( level > entryPoint.level ) {
+                entryPoint = node;
+            }
+            return node.id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Marks the node with the specified id as deleted.
+     */
+    void delete( int id ) {
+        lock.writeLock().lock();
+        try {
+            final Node<T> node = nodes.get( id );
+            if ( !node.deleted ) {
+                node.deleted = true;
+                deletedCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Returns the items of the (approximately) {@code k} nearest neighbours of the specified vector, ordered by
+     * ascending distance.
+     *
+     * @param target The vector to search the neighbours of
+     * @param k The number of neighbours to return
+     * @param ef Size of the candidate list; larger values increase the recall but slow down the search
+     */
+    List<T> search( double[] target, int k, int ef ) {
+        lock.readLock().lock();
+        try {
+            if ( entryPoint == null || k <= 0 ) {
+                return new ArrayList<>();
+            }
+            Node<T> current = entryPoint;
+            for ( int l = entryPoint.level; l > 0; l-- ) {
+                current = greedyClosest( target, current, l );
+            }
+            // If too many of the candidates have been deleted, search again with a larger candidate list until there
+            // are k neighbours which have not been deleted or all nodes reachable from the entry point have been visited
+            int candidateCount = Math.max( ef, k );
+            while ( true ) {
+                final List<Candidate> candidates = searchLayer( target, current, candidateCount, 0 );
+                final List<T> result = new ArrayList<>( k );
+                for ( Candidate candidate : candidates ) {
+                    final Node<T> node = nodes.get( candidate.id );
+                    if ( !node.deleted ) {
+                        result.add( node.item );
+                        if ( result.size() == k ) {
+                            return result;
+                        }
+                    }
+                }
+                if ( candidates.size() < candidateCount || candidateCount >= nodes.size() ) {
+                    return result;
+                }
+                candidateCount = (int) Math.min( nodes.size(), 2L * candidateCount );
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    private Node<T> greedyClosest( double[] target, Node<T> start, int level ) {
+        Node<T> current = start;
+        double currentDistance = distance( target, current.vector );
+        boolean changed = true;
+        while ( changed ) {
+            changed = false;
+            final int[] links = current.links[level];
+            for ( int i = 0; i < current.linkCount[level]; i++ ) {
+                final Node<T> neighbour = nodes.get( links[i] );
+                final double d = distance( target, neighbour.vector );
+                if ( d < currentDistance ) {
+                    currentDistance = d;
+                    current = neighbour;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+
+    /**
+     * Beam search on one layer of the graph.
+     *
+     * @return Up to {@code ef} candidates, ordered by ascending distance
+     */
+    private List<Candidate> searchLayer( double[] target, Node<T> start, int ef, int level ) {
+        final BitSet visited = new BitSet( nodes.size() );
+        final PriorityQueue<Candidate> candidates = new PriorityQueue<>( Comparator.comparingDouble( c -> c.distance ) );
+        final PriorityQueue<Candidate> results = new PriorityQueue<>( Comparator.comparingDouble( ( Candidate c ) -> c.distance ).reversed() );
+
+        final Candidate first = new Candidate( start.id, distance( target, start.vector ) );
+        visited.set( start.id );
+        candidates.add( first );
+        results.add( first );
+
+        while ( !candidates.isEmpty() ) {
+            final Candidate closest = candidates.poll();
+            if ( closest.distance > results.peek().distance && results.size() >= ef ) {
+                break;
+            }
+            final Node<T> node = nodes.get( closest.id );
+            final int[] links = node.links[level];
+            for ( int i = 0; i < node.linkCount[level]; i++ ) {
+                final int id = links[i];
+                if ( visited.get( id ) ) {
+                    continue;
+                }
+                visited.set( id );
+                final double d = distance( target, nodes.get( id ).vector );
+                if ( results.size() < ef || d < results.peek().distance ) {
+                    final Candidate candidate = new Candidate( id, d );
+                    candidates.add( candidate );
+                    results.add( candidate );
+                    if ( results.size() > ef ) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        final Candidate[] ordered = results.toArray( new Candidate[0] );
+        Arrays.sort( ordered, Comparator.comparingDouble( c -> c.distance ) );
+        return Arrays.asList( ordered );
+    }
+
+
+    /**
+     * Replaces the links of a node whose link list is full by its {@code maxM} closest neighbours including the
+     * specified new neighbour.
+     */
+    private void shrinkLinks( Node<T> node, int level, int newNeighbour, int maxM ) {
+        final int count = node.linkCount[level];
+        final Candidate[] candidates = new Candidate[count + 1];
+        for ( int i = 0; i < count; i++ ) {
+            final int id = node.links[level][i];
+            candidates[i] = new Candidate( id, distance( node.vector, nodes.get( id ).vector ) );
+        }
+        candidates[count] = new Candidate( newNeighbour, distance( node.vector, nodes.get( newNeighbour ).vector ) );
+        Arrays.sort( candidates, Comparator.comparingDouble( c -> c.distance ) );
+        for ( int i = 0; i < maxM; i++ ) {
+            node.links[level][i] = candidates[i].id;
+        }
+        node.linkCount[level] = maxM;
+    }
+
+
+    /**
+     * Squared euclidean distance. Vectors of different length are compared on their common prefix, the remaining
+     * dimensions of the longer vector are compared against zero.
+     */
+    static double distance( double[] a, double[] b ) {
+        final int common = Math.min( a.length, b.length );
+        double sum = 0;
+        for ( int i = 0; i < common; i++ ) {
+            final double d = a[i] - b[i];
+            sum += d * d;
+        }
+        final double[] longer = a.length > b.length ? a : b;
+        for ( int i = common; i < longer.length; i++ ) {
+            sum += longer[i] * longer[i];
+        }
+        return sum;
+    }
+
+
+    private static class Node<T> {
+
+        final int id;
+        final double[] vector;
+        final T item;
+        final int level;
+        final int[][] links;
+        final int[] linkCount;
+        boolean deleted = false;
+
+
+        Node( int id, double[] vector, T item, int level, int m, int maxM0 ) {
+            this.id = id;
+            this.vector = vector;
+            this.item = item;
+            this.level = level;
+            this.links = new int[level + 1][];
+            this.linkCount = new int[level + 1];
+            for ( int l = 0; l <= level; l++ ) {
+                links[l] = new int[l == 0 ? maxM0 : m];
+            }
+        }
+
+
+        /**
+         * @return {@code false} if the link list of this level is full
+         */
+        boolean addLink( int level, int id ) {
+            if ( linkCount[level] == links[level].length ) {
+                return false;
+            }
+            links[level][linkCount[level]++] = id;
+            return true;
+        }
+
+    }
+
+
+    private static class Candidate {
+
+        final int id;
+        final double distance;
+
+
+        Candidate( int id, double distance ) {
+            this.id = id;
+            this.distance = distance;
+        }
+
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.index;
+
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.polypheny.db.catalog.entity.CatalogSchema;
+import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.transaction.PolyXid;
+
+
+/**
+ * Non-unique index on a single array column which, in addition to the hash based lookup of {@link CowMultiHashIndex},
+ * supports approximate nearest neighbour queries using the squared euclidean distance. The committed state of the
+ * index is additionally stored in a {@link HnswGraph}. Keys which are not numeric arrays are only stored in the hash
+ * part of the index.
+ */
+public class HnswIndex extends CowMultiHashIndex {
+
+    /**
+     * If more than this fraction of the nodes of the graph are deleted, the graph is rebuilt.
+     */
+    private static final double MAX_DELETED_FRACTION = 0.5;
+
+    private final int m;
+    private final int efConstruction;
+
+    // Replaced when the index is cleared or compacted; searches run concurrently with the modifications
+    private volatile HnswGraph<List<Object>> graph;
+    // Guarded by itself, like all modifications of the graph
+    private final Map<List<Object>, Map<List<Object>, Integer>> nodeIds = new HashMap<>();
+
+
+    public HnswIndex( long id, String name, CatalogSchema schema, CatalogTable table, List<String> columns, List<String> targetColumns ) {
+        this(
+                id,
+                name,
+                schema,
+                table,
+                columns,
+                targetColumns,
+                RuntimeConfig.POLYSTORE_INDEXES_HNSW_M.getInteger(),
+                RuntimeConfig.POLYSTORE_INDEXES_HNSW_EF_CONSTRUCTION.getInteger() );
+    }
+
+
+    public HnswIndex( long id, String name, CatalogSchema schema, CatalogTable table, List<String> columns, List<String> targetColumns, int m, int efConstruction ) {
+        super( id, name, schema, table, columns, targetColumns );
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.graph = new HnswGraph<>( m, efConstruction, id );
+    }
+
+
+    @Override
+    public String getMethod() {
+        return "hnsw";
+    }
+
+
+    /**
+     * Returns the primary keys of the (approximately) {@code k} rows whose indexed vector is closest to the specified
+     * target vector with respect to the euclidean distance. Only the committed state of the index is considered.
+     *
+     * @param target The vector to search the neighbours of
+     * @param k The number of rows to return
+     * @param ef Size of the candidate list; trades recall for speed
+     * @return The primary keys of the rows ordered by ascending distance
+     */
+    public List<List<Object>> searchNearest( double[] target, int k, int ef ) {
+        return graph.search( target, k, ef );
+    }
+
+
+    /**
+     * Whether the index has been built. The index is registered before it is built, in the meantime the graph only
+     * contains some of the rows of the table.
+     */
+    @Override
+    public boolean isInitialized() {
+        return super.isInitialized();
+    }
+
+
+    /**
+     * Whether the specified transaction has pending changes on this index. For such transactions, the nearest
+     * neighbour search does not reflect the state of the table.
+     */
+    public boolean isModifiedBy( PolyXid xid ) {
+        return hasUncommittedChanges( xid );
+    }
+
+
+    @Override
+    protected void clear() {
+        super.clear();
+        synchronized ( nodeIds ) {
+            nodeIds.clear();
+            graph = new HnswGraph<>( m, efConstruction, id );
+        }
+    }
+
+
+    @Override
+    void insert( List<Object> key, List<Object> primary ) {
+        super.insert( key, primary );
+        final double[] vector = toVector( key );
+        if ( vector == null ) {
+            return;
+        }
+        synchronized ( nodeIds ) {
+            final Map<List<Object>, Integer> primaries = nodeIds.computeIfAbsent( key, k -> new HashMap<>() );
+            if ( !primaries.containsKey( primary ) ) {
+                primaries.put( primary, graph.insert( vector, primary ) );
+            }
+        }
+    }
+
+
+    @Override
+    void delete( List<Object> key ) {
+        super.delete( key );
+        synchronized ( nodeIds ) {
+            final Map<List<Object>, Integer> primaries = nodeIds.remove( key );
+            if ( primaries != null ) {
+                primaries.values().forEach( graph::delete );
+                compactIfNecessary();
+            }
+        }
+    }
+
+
+    @Override
+    void deletePrimary( List<Object> key, List<Object> primary ) {
+        super.deletePrimary( key, primary );
+        synchronized ( nodeIds ) {
+            final Map<List<Object>, Integer> primaries = nodeIds.get( key );
+            if ( primaries != null ) {
+                final Integer nodeId = primaries.remove( primary );
+                if ( nodeId != null ) {
+                    graph.delete( nodeId );
+                    compactIfNecessary();
+                }
+                if ( primaries.isEmpty() ) {
+                    nodeIds.remove( key );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Deleted nodes remain in the graph to keep it navigable. Once they make up a large share of the graph, the
+     * graph is rebuilt from the remaining entries. Must be called while holding the lock on {@code nodeIds}.
+     */
+    private void compactIfNecessary() {
+        final int deleted = graph.deletedCount();
+        if ( deleted < m || deleted < MAX_DELETED_FRACTION * (graph.size() + deleted) ) {
+            return;
+        }
+        final HnswGraph<List<Object>> compacted = new HnswGraph<>( m, efConstruction, id );
+        for ( Map.Entry<List<Object>, Map<List<Object>, Integer>> entry : nodeIds.entrySet() ) {
+            final double[] vector = toVector( entry.getKey() );
+            for ( Map.Entry<List<Object>, Integer> primary : entry.getValue().entrySet() ) {
+                primary.setValue( compacted.insert( vector, primary.getKey() ) );
+            }
+        }
+        graph = compacted;
+    }
+
+
+    /**
+     * Converts the key of an index entry to a vector.
+     *
+     * @return The vector or {@code null} if the key is not a single numeric array
+     */
+    static double[] toVector( List<Object> key ) {
+        if ( key == null || key.size() != 1 ) {
+            return null;
+        }
+        final Object value = key.get( 0 );
+        if ( value instanceof double[] ) {
+            return ((double[]) value).clone();
+        } else if ( value instanceof float[] ) {
+            final float[] floats = (float[]) value;
+            final double[] vector = new double[floats.length];
+            for ( int i = 0; i < floats.length; i++ ) {
+                vector[i] = floats[i];
+            }
+            return vector;
+        } else if ( value instanceof List ) {
+            final List<?> list = (List<?>) value;
+            final double[] vector = new double[list.size()];
+            for ( int i = 0; i < vector.length; i++ ) {
+                final Object element = list.get( i );
+                if ( !(element instanceof Number) ) {
+                    return null;
+                }
+                vector[i] = ((Number) element).doubleValue();
+            }
+            return vector;
+        }
+        return null;
+    }
+
+
+    static class Factory implements IndexFactory {
+
+        @Override
+        public boolean canProvide( String method, Boolean unique, Boolean persistent ) {
+            return method != null && method.equals( "hnsw" )
+                    && (unique == null || !unique)
+                    && (persistent == null || !persistent);
+        }
+
+
+        @Override
+        public Index create(
+                long id,
+                String name,
+                String method,
+                Boolean unique,
+                Boolean persistent,
+                CatalogSchema schema,
+                CatalogTable table,
+                List<String> columns,
+                List<String> targetColumns ) {
+            return new HnswIndex( id, name, schema, table, columns, targetColumns );
+        }
+
+    }
+
+}
@@ -69,7 +69,8 @@ public class IndexManager {
 
     private static final List<IndexFactory> INDEX_FACTORIES = Arrays.asList(
             new CoWHashIndex.Factory(),
-            new CowMultiHashIndex.Factory()
+            new CowMultiHashIndex.Factory(),
+            new HnswIndex.Factory()
     );
 
     private final Map<Long, Index> indexById = new HashMap<>();
@@ -90,7 +91,8 @@ private IndexManager() {
 
     public static List<AvailableIndexMethod> getAvailableIndexMethods() {
         return ImmutableList.of(
-                new AvailableIndexMethod( "hash", "HASH" )
+                new AvailableIndexMethod( "hash", "HASH" ),
+                new AvailableIndexMethod( "hnsw", "HNSW (approximate nearest neighbour)" )
         );
     }
 
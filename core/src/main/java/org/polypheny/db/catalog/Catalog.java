@@ -34,7 +34,9 @@
 import org.polypheny.db.catalog.entity.CatalogForeignKey;
 import org.polypheny.db.catalog.entity.CatalogIndex;
 import org.polypheny.db.catalog.entity.CatalogKey;
+import org.polypheny.db.catalog.entity.CatalogMaterializedView;
 import org.polypheny.db.catalog.entity.CatalogPartition;
+import org.polypheny.db.catalog.entity.CatalogPendingPlacement;
 import org.polypheny.db.catalog.entity.CatalogPrimaryKey;
 import org.polypheny.db.catalog.entity.CatalogQueryInterface;
 import org.polypheny.db.catalog.entity.CatalogSchema;
@@ -867,6 +869,64 @@ protected final boolean isValidIdentifier( final String str ) {
      */
     public abstract void deleteIndex( long indexId );
 
+    /**
+     * Returns the definitions of all materialized views
+     *
+     * @return List of materialized views
+     */
+    public abstract List<CatalogMaterializedView> getMaterializedViews();
+
+    /**
+     * Returns the definition of the materialized view whose rows are stored in the specified table
+     *
+     * @param tableId The id of the table of type MATERIALIZED_VIEW
+     * @return The definition of the materialized view
+     */
+    public abstract CatalogMaterializedView getMaterializedView( long tableId );
+
+    /**
+     * Adds the definition of a materialized view. The materialized rows are stored in the specified table.
+     *
+     * @param tableId The id of the table of type MATERIALIZED_VIEW
+     * @param query The query defining the view with fully qualified identifiers
+     * @param underlyingTables The ids of the tables read by the query
+     * @param freshness When the materialized rows are refreshed
+     * @param interval The maximum time in milliseconds between refreshes if the freshness is INTERVAL
+     */
+    public abstract void addMaterializedView( long tableId, String query, List<Long> underlyingTables, Freshness freshness, long interval );
+
+    /**
+     * Deletes the definition of a materialized view. Does not delete the table holding the materialized rows.
+     *
+     * @param tableId The id of the table of type MATERIALIZED_VIEW
+     */
+    public abstract void deleteMaterializedView( long tableId );
+
+    /**
+     * Returns all placements which have been added, but not yet been fully populated
+     *
+     * @return List of pending placements
+     */
+    public abstract List<CatalogPendingPlacement> getPendingPlacements();
+
+    /**
+     * Records that the placements of the specified columns on the adapter are being populated. There can be at most
+     * one pending placement per table.
+     *
+     * @param tableId The id of the table
+     * @param adapterId The id of the adapter
+     * @param columnIds The ids of the columns whose placements are being populated
+     * @param newDataPlacement Whether there have been no placements of this table on the adapter before
+     */
+    public abstract void addPendingPlacement( long tableId, int adapterId, List<Long> columnIds, boolean newDataPlacement );
+
+    /**
+     * Deletes the pending placement of the specified table. If there is none, this operation is a NoOp.
+     *
+     * @param tableId The id of the table
+     */
+    public abstract void deletePendingPlacement( long tableId );
+
     /**
      * Deletes the specified primary key (including the entry in the key table). If there is an index on this key, make sure to delete it first.
      *
@@ -1182,7 +1242,8 @@ protected final boolean isValidIdentifier( final String str ) {
     public enum TableType {
         TABLE( 1 ),
         SOURCE( 2 ),
-        VIEW( 3 );
+        VIEW( 3 ),
+        MATERIALIZED_VIEW( 4 );
         // STREAM, ...
 
         private final int id;
@@ -1482,6 +1543,25 @@ public static PlacementType parse( @NonNull String str ) throws UnknownPlacement
     }
 
 
+    public enum Freshness {
+        IMMEDIATE( 1 ),
+        DEFERRED( 2 ),
+        INTERVAL( 3 );
+
+        private final int id;
+
+
+        Freshness( int id ) {
+            this.id = id;
+        }
+
+
+        public int getId() {
+            return id;
+        }
+    }
+
+
     public enum PartitionType {
         NONE( 0 ),
         RANGE( 1 ),
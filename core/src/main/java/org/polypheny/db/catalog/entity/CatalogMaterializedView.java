@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.catalog.entity;
+
+
+import com.google.common.collect.ImmutableList;
+import java.io.Serializable;
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import org.polypheny.db.catalog.Catalog.Freshness;
+
+
+/**
+ * Definition of a materialized view. The materialized rows are stored in a regular table of type MATERIALIZED_VIEW
+ * with the same id.
+ */
+@EqualsAndHashCode
+public final class CatalogMaterializedView implements Serializable {
+
+    private static final long serialVersionUID = 6417355916254785312L;
+
+    public final long tableId;
+    public final String query;
+    public final ImmutableList<Long> underlyingTables;
+    public final Freshness freshness;
+    public final long interval;
+
+
+    public CatalogMaterializedView(
+            final long tableId,
+            @NonNull final String query,
+            @NonNull final ImmutableList<Long> underlyingTables,
+            @NonNull final Freshness freshness,
+            final long interval ) {
+        this.tableId = tableId;
+        this.query = query;
+        this.underlyingTables = underlyingTables;
+        this.freshness = freshness;
+        this.interval = interval;
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.catalog.entity;
+
+
+import com.google.common.collect.ImmutableList;
+import java.io.Serializable;
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+
+
+/**
+ * Placements of columns of a table on an adapter which have been added, but not yet been fully populated.
+ */
+@EqualsAndHashCode
+public final class CatalogPendingPlacement implements Serializable {
+
+    private static final long serialVersionUID = 3902715843652260195L;
+
+    public final long tableId;
+    public final int adapterId;
+    public final ImmutableList<Long> columnIds;
+    public final boolean newDataPlacement;
+
+
+    public CatalogPendingPlacement(
+            final long tableId,
+            final int adapterId,
+            @NonNull final ImmutableList<Long> columnIds,
+            final boolean newDataPlacement ) {
+        this.tableId = tableId;
+        this.adapterId = adapterId;
+        this.columnIds = columnIds;
+        this.newDataPlacement = newDataPlacement;
+    }
+
+}
@@ -29,7 +29,7 @@ public enum RuntimeConfig {
 
     APPROXIMATE_DISTINCT_COUNT(
             "runtime/approximateDistinctCount",
-            "Whether approximate results from \"COUNT(DISTINCT ...)\" aggregate functions are acceptable.",
+            "Whether approximate results from \"COUNT(DISTINCT ...)\" aggregate functions are acceptable. If enabled, distinct counts which are not computed by a store are estimated with a HyperLogLog sketch.",
             false,
             ConfigType.BOOLEAN
     ), // Druid
@@ -134,6 +134,42 @@ public enum RuntimeConfig {
             ConfigType.BOOLEAN,
             "planningGroup" ),
 
+    STAGED_OPTIMIZATION( "runtime/stagedOptimization",
+            "Optimize queries in stages: A rule-based normalization, a heuristic join ordering for queries with many joins and a cost-based optimization limited by the planning budget.",
+            false,
+            ConfigType.BOOLEAN,
+            "planningGroup" ),
+
+    HEURISTIC_JOIN_ORDER_THRESHOLD( "runtime/heuristicJoinOrderThreshold",
+            "Minimal number of joins from which on the join order is determined heuristically instead of by the cost-based optimization. Only used for staged optimization.",
+            6,
+            ConfigType.INTEGER,
+            "planningGroup" ),
+
+    HEURISTIC_JOIN_ORDER_BUSHY( "runtime/heuristicJoinOrderBushy",
+            "Build bushy join trees instead of left-deep join trees when ordering joins heuristically.",
+            false,
+            ConfigType.BOOLEAN,
+            "planningGroup" ),
+
+    PLANNER_TIME_BUDGET( "runtime/plannerTimeBudget",
+            "Maximum time in milliseconds spent in the cost-based optimization once an executable plan has been found. The best plan found so far is used if the budget is exhausted. 0 for no limit. Only used for staged optimization.",
+            1000,
+            ConfigType.INTEGER,
+            "planningGroup" ),
+
+    PLANNER_ITERATION_BUDGET( "runtime/plannerIterationBudget",
+            "Maximum number of rule applications in the cost-based optimization once an executable plan has been found. 0 for no limit. Only used for staged optimization.",
+            0,
+            ConfigType.INTEGER,
+            "planningGroup" ),
+
+    TABLE_METADATA_CACHING( "runtime/tableMetadataCaching",
+            "Cache the metadata of table scans (row count, unique keys, column sizes) across queries. The cache is invalidated on changes to the catalog or to the statistics.",
+            true,
+            ConfigType.BOOLEAN,
+            "planningGroup" ),
+
     VALIDATE_MM_CONTENT_TYPE( "validation/validateMultimediaContentType",
             "Validate multimedia data by checking its content-type.",
             true,
@@ -245,6 +281,18 @@ public enum RuntimeConfig {
             ConfigType.INTEGER,
             "queryPlanCachingGroup" ),
 
+    REST_PLAN_CACHING( "runtime/restPlanCaching",
+            "Cache the logical plans of REST resource requests. Requests with the same resources, projections, filter operators, groupings and sorting reuse the plan; only the filter values are bound anew.",
+            true,
+            ConfigType.BOOLEAN,
+            "queryPlanCachingGroup" ),
+
+    REST_PLAN_CACHING_SIZE( "runtime/restPlanCachingSize",
+            "Size of the REST plan cache. If the limit is reached, the least recently used entry is removed. Changes take effect after a restart.",
+            100,
+            ConfigType.INTEGER,
+            "queryPlanCachingGroup" ),
+
     IMPLEMENTATION_CACHING( "runtime/implementationCaching",
             "Cache implemented query plans.",
             true,
@@ -263,6 +311,18 @@ public enum RuntimeConfig {
             ConfigType.INTEGER,
             "implementationCachingGroup" ),
 
+    QUERY_RESULT_CACHING( "runtime/queryResultCaching",
+            "Cache the results of read-only queries. Results are discarded once a transaction modifying one of the queried tables commits.",
+            false,
+            ConfigType.BOOLEAN,
+            "queryResultCachingGroup" ),
+
+    QUERY_RESULT_CACHING_SIZE( "runtime/queryResultCachingSize",
+            "Memory budget (in Bytes) of the query result cache. If the budget is exceeded, the least recently used results are removed. Results larger than a tenth of the budget are not cached. Changes take effect after a restart.",
+            64 * 1024 * 1024,
+            ConfigType.INTEGER,
+            "queryResultCachingGroup" ),
+
     JOINED_TABLE_SCAN_CACHE( "runtime/joinedTableScanCache",
             "Whether to use the joined table scan caching.",
             false,
@@ -278,6 +338,16 @@ public enum RuntimeConfig {
             1000,
             ConfigType.INTEGER ),
 
+    ONLINE_PLACEMENT_MIGRATION( "runtime/onlinePlacementMigration",
+            "Populate new placements in the background without blocking other queries. Rows modified during the copy are copied again before a short final switch-over.",
+            false,
+            ConfigType.BOOLEAN ),
+
+    ONLINE_PLACEMENT_MIGRATION_SWITCH_THRESHOLD( "runtime/onlinePlacementMigrationSwitchThreshold",
+            "Maximum number of modified rows which are copied while holding the schema lock at the end of an online placement migration.",
+            1000,
+            ConfigType.INTEGER ),
+
     UNIQUE_CONSTRAINT_ENFORCEMENT( "runtime/uniqueConstraintEnforcement",
             "Enable enforcement of uniqueness constraints.",
             false,
@@ -290,6 +360,18 @@ public enum RuntimeConfig {
             ConfigType.BOOLEAN,
             "constraintEnforcementGroup" ),
 
+    SET_BASED_CONSTRAINT_ENFORCEMENT( "runtime/setBasedConstraintEnforcement",
+            "Check unique and foreign key constraints of inserts whose values are known at planning time by deduplicating the keys in memory and probing them with a single lookup on a polystore index or with IN-list queries.",
+            true,
+            ConfigType.BOOLEAN,
+            "constraintEnforcementGroup" ),
+
+    CONSTRAINT_ENFORCEMENT_BATCH_SIZE( "runtime/constraintEnforcementBatchSize",
+            "Number of keys which are probed in one IN-list query by the set-based enforcement of unique and foreign key constraints.",
+            100,
+            ConfigType.INTEGER,
+            "constraintEnforcementGroup" ),
+
     POLYSTORE_INDEXES_ENABLED( "runtime/polystoreIndexesEnabled",
             "Enable and maintain indexes on the polystore level.",
             true,
@@ -302,6 +384,24 @@ public enum RuntimeConfig {
             ConfigType.BOOLEAN,
             "polystoreIndexGroup" ),
 
+    POLYSTORE_INDEXES_HNSW_M( "runtime/polystoreIndexesHnswM",
+            "Maximum number of neighbours per node and layer of newly created HNSW vector indexes. Larger values increase the recall and the memory footprint.",
+            16,
+            ConfigType.INTEGER,
+            "polystoreIndexGroup" ),
+
+    POLYSTORE_INDEXES_HNSW_EF_CONSTRUCTION( "runtime/polystoreIndexesHnswEfConstruction",
+            "Size of the candidate list used while inserting into HNSW vector indexes.",
+            100,
+            ConfigType.INTEGER,
+            "polystoreIndexGroup" ),
+
+    POLYSTORE_INDEXES_HNSW_EF_SEARCH( "runtime/polystoreIndexesHnswEfSearch",
+            "Size of the candidate list used when answering nearest neighbour queries using HNSW vector indexes. Trades recall for query throughput.",
+            64,
+            ConfigType.INTEGER,
+            "polystoreIndexGroup" ),
+
     DOCKER_INSTANCES( "runtime/dockerInstances",
             "Configure different docker instances, which can be used to place adapters on.",
             Collections.singletonList( new ConfigDocker( 0, "localhost", null, null, "localhost" )
@@ -309,6 +409,102 @@ public enum RuntimeConfig {
             ConfigType.INSTANCE_LIST,
             "dockerGroup" ),
 
+    SOURCE_FILE_CACHING( "runtime/sourceFileCaching",
+            "Cache parsed copies of files read by data sources (e.g. CSV or QFS) in-memory. Entries are invalidated if the size or the modification time of the file changes.",
+            false,
+            ConfigType.BOOLEAN,
+            "runtimExecutionGroup" ),
+
+    SOURCE_FILE_CACHING_SIZE( "runtime/sourceFileCachingSize",
+            "Memory budget (in MB) of the source file cache. If the limit is reached, the least recently used files are removed. Changes take effect after a restart.",
+            256,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    JDBC_PREPARED_STATEMENT_CACHE_SIZE( "runtime/jdbcPreparedStatementCacheSize",
+            "Number of prepared statements cached per connection of JDBC based adapters. If the limit is reached, the least recently used statement is closed. Setting to zero disables the cache. Changes only affect new connections.",
+            50,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    JDBC_CONNECTION_ACQUIRE_TIMEOUT( "runtime/jdbcConnectionAcquireTimeout",
+            "Maximum time (in milliseconds) a transaction waits for a free connection of a JDBC based adapter if all connections are in use.",
+            30000,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    JDBC_CONNECTION_VALIDATION_INTERVAL( "runtime/jdbcConnectionValidationInterval",
+            "Connections of JDBC based adapters which have been idle for longer than this (in seconds) are validated before they are used again.",
+            60,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    JDBC_INTERFACE_PREFETCH( "runtime/jdbcInterfacePrefetch",
+            "Produce the next frames of a result set in the background while the client of the JDBC interface is consuming the current frame.",
+            true,
+            ConfigType.BOOLEAN,
+            "runtimExecutionGroup" ),
+
+    JDBC_INTERFACE_PREFETCH_MAX_ROWS( "runtime/jdbcInterfacePrefetchMaxRows",
+            "Maximum number of rows buffered per result set while prefetching frames for the JDBC interface. At least one frame is always buffered.",
+            10000,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    SPILLING( "runtime/spilling",
+            "Spill joins, sorts and aggregations of the enumerable engine to temporary files if they exceed the memory budget of the query. Changes only affect queries which are not yet in the implementation cache.",
+            true,
+            ConfigType.BOOLEAN,
+            "runtimExecutionGroup" ),
+
+    SPILLING_MEMORY_BUDGET( "runtime/spillingMemoryBudget",
+            "Memory budget (in MB) of a query for the joins, sorts and aggregations of the enumerable engine. The budget is shared by all operators of the query.",
+            256,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    BATCH_EXECUTION( "runtime/batchExecution",
+            "Experimental: Execute vectorizable filters, projections and aggregations of the enumerable engine on column batches instead of single rows. Only affects queries which are not yet in the query plan or implementation cache.",
+            false,
+            ConfigType.BOOLEAN,
+            "runtimExecutionGroup" ),
+
+    PARALLELISM( "runtime/parallelism",
+            "Degree of parallelism of large aggregations, joins and scans in the enumerable engine. 1 executes queries on the calling thread, 0 uses one partition per core. Queries in the query plan cache keep their plan, but are executed with the current degree.",
+            1,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    PARALLELISM_ROW_THRESHOLD( "runtime/parallelismRowThreshold",
+            "Minimal estimated number of input rows of an aggregation, join or scan to execute it in parallel.",
+            100000,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    JOIN_REDUCTION( "runtime/joinReduction",
+            "Reduce joins between tables on different stores by reading the smaller side first and fetching only the matching rows of the other side. Only affects queries which are not yet in the query plan cache.",
+            true,
+            ConfigType.BOOLEAN,
+            "runtimExecutionGroup" ),
+
+    JOIN_REDUCTION_MAX_KEYS( "runtime/joinReductionMaxKeys",
+            "Maximal number of distinct join keys which are sent to the store of the other side of a reduced join. Larger joins read the other side completely.",
+            10000,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    JOIN_REDUCTION_BATCH_SIZE( "runtime/joinReductionBatchSize",
+            "Number of join keys which are sent to the store of the other side of a reduced join in one query.",
+            100,
+            ConfigType.INTEGER,
+            "runtimExecutionGroup" ),
+
+    MATERIALIZED_VIEW_REWRITE( "runtime/materializedViewRewrite",
+            "Answer queries from materialized views whose definition is contained in the query. Stale materialized views and materialized views over tables modified by the current transaction are not used.",
+            true,
+            ConfigType.BOOLEAN,
+            "runtimExecutionGroup" ),
+
     FILE_HANDLE_CACHE_SIZE( "runtime/fileHandleCacheSize",
             "Size (in Bytes) up to which media files are cached in-memory instead of creating a temporary file. Needs to be >= 0 and smaller than Integer.MAX_SIZE. Setting to zero disables caching of media files.",
             0,
@@ -338,6 +534,8 @@ public enum RuntimeConfig {
         queryPlanCachingGroup.withTitle( "Query Plan Caching" );
         final WebUiGroup implementationCachingGroup = new WebUiGroup( "implementationCachingGroup", processingPage.getId() );
         implementationCachingGroup.withTitle( "Implementation Caching" );
+        final WebUiGroup queryResultCachingGroup = new WebUiGroup( "queryResultCachingGroup", processingPage.getId() );
+        queryResultCachingGroup.withTitle( "Query Result Caching" );
         final WebUiGroup constraintEnforcementGroup = new WebUiGroup( "constraintEnforcementGroup", processingPage.getId() );
         constraintEnforcementGroup.withTitle( "Constraint Enforcement" );
         final WebUiGroup polystoreIndexGroup = new WebUiGroup( "polystoreIndexGroup", processingPage.getId() );
@@ -349,6 +547,7 @@ public enum RuntimeConfig {
         configManager.registerWebUiGroup( planningGroup );
         configManager.registerWebUiGroup( queryPlanCachingGroup );
         configManager.registerWebUiGroup( implementationCachingGroup );
+        configManager.registerWebUiGroup( queryResultCachingGroup );
         configManager.registerWebUiGroup( constraintEnforcementGroup );
         configManager.registerWebUiGroup( polystoreIndexGroup );
         configManager.registerWebUiGroup( validationGroup );
@@ -24,6 +24,7 @@
 import org.polypheny.db.catalog.Catalog.Collation;
 import org.polypheny.db.catalog.Catalog.ConstraintType;
 import org.polypheny.db.catalog.Catalog.ForeignKeyOption;
+import org.polypheny.db.catalog.Catalog.Freshness;
 import org.polypheny.db.catalog.Catalog.PlacementType;
 import org.polypheny.db.catalog.Catalog.SchemaType;
 import org.polypheny.db.catalog.entity.CatalogTable;
@@ -55,6 +56,7 @@
 import org.polypheny.db.ddl.exception.UnknownIndexMethodException;
 import org.polypheny.db.rel.RelCollation;
 import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.RelRoot;
 import org.polypheny.db.sql.SqlDataTypeSpec;
 import org.polypheny.db.sql.SqlIdentifier;
 import org.polypheny.db.sql.SqlNode;
@@ -443,6 +445,20 @@ public static DdlManager getInstance() {
      */
     public abstract void createView( String viewName, long schemaId, RelNode relNode, RelCollation relCollation, boolean replace, Statement statement, List<DataStore> stores, PlacementType placementType, List<String> projectedColumns ) throws TableAlreadyExistsException, GenericCatalogException, UnknownColumnException;
 
+    /**
+     * Create a new materialized view and populate it with the current result of its definition
+     *
+     * @param viewName the name of the new materialized view
+     * @param schemaId the id of the schema to which the materialized view belongs
+     * @param relRoot the relRoot which was built form the Select part of the materialized view
+     * @param query the definition of the materialized view as SQL
+     * @param statement the used Statement
+     * @param stores list of data stores on which to place the materialized rows
+     * @param freshness when the materialized view is refreshed after changes to its underlying tables
+     * @param interval the refresh interval in milliseconds if the freshness is INTERVAL
+     */
+    public abstract void createMaterializedView( String viewName, long schemaId, RelRoot relRoot, String query, boolean replace, Statement statement, List<DataStore> stores, PlacementType placementType, List<String> projectedColumns, Freshness freshness, long interval ) throws TableAlreadyExistsException, GenericCatalogException, UnknownColumnException;
+
     /**
      * Add new partitions for the column
      *
@@ -483,6 +499,19 @@ public static DdlManager getInstance() {
      */
     public abstract void dropView( CatalogTable catalogTable, Statement statement ) throws DdlOnSourceException;
 
+    /**
+     * Drop a materialized view and the materialized rows
+     */
+    public abstract void dropMaterializedView( CatalogTable catalogTable, Statement statement ) throws DdlOnSourceException;
+
+    /**
+     * Recompute the rows of a materialized view
+     *
+     * @param catalogTable the materialized view to refresh
+     * @param statement the used statement
+     */
+    public abstract void refreshMaterializedView( CatalogTable catalogTable, Statement statement );
+
     /**
      * Truncate a table
      *
@@ -35,6 +35,7 @@
 
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Lists;
@@ -82,7 +83,14 @@
 import org.polypheny.db.rel.logical.LogicalAggregate;
 import org.polypheny.db.rel.logical.LogicalCalc;
 import org.polypheny.db.rel.logical.LogicalFilter;
+import org.polypheny.db.rel.logical.LogicalIntersect;
+import org.polypheny.db.rel.logical.LogicalJoin;
+import org.polypheny.db.rel.logical.LogicalMinus;
 import org.polypheny.db.rel.logical.LogicalProject;
+import org.polypheny.db.rel.logical.LogicalSort;
+import org.polypheny.db.rel.logical.LogicalTableScan;
+import org.polypheny.db.rel.logical.LogicalUnion;
+import org.polypheny.db.rel.logical.LogicalValues;
 import org.polypheny.db.rel.metadata.RelMetadataQuery;
 import org.polypheny.db.rel.rules.AggregateProjectPullUpConstantsRule;
 import org.polypheny.db.rel.rules.DateRangeRules;
@@ -153,6 +161,20 @@ public abstract class RelOptUtil {
 
     public static final double EPSILON = 1.0e-5;
 
+    // Finds sub-queries and correlation variables, which are bound to the cluster of the plan
+    private static final RexShuttle COPY_CHECKER = new RexShuttle() {
+        @Override
+        public RexNode visitSubQuery( RexSubQuery subQuery ) {
+            throw Util.FoundOne.NULL;
+        }
+
+
+        @Override
+        public RexNode visitCorrelVariable( RexCorrelVariable variable ) {
+            throw Util.FoundOne.NULL;
+        }
+    };
+
 
     /**
      * Whether this node is a limit without sort specification.
@@ -225,6 +247,68 @@ public static List<String> findAllTableQualifiedNames( RelNode rel ) {
     }
 
 
+    /**
+     * Copies a logical plan into another cluster. Row expressions do not depend on the cluster and are shared. If a
+     * schema is specified, the tables are resolved again; otherwise the copy reads the same tables.
+     *
+     * @throws UnsupportedOperationException if the plan contains operators, sub-queries or correlation variables which cannot be copied
+     * @throws IllegalStateException if a table cannot be resolved
+     */
+    public static RelNode copyToCluster( RelNode rel, RelOptCluster cluster, RelOptSchema relOptSchema ) {
+        if ( !rel.getVariablesSet().isEmpty() ) {
+            throw new UnsupportedOperationException( "Correlation variables cannot be copied" );
+        }
+        try {
+            rel.accept( COPY_CHECKER );
+        } catch ( Util.FoundOne e ) {
+            throw new UnsupportedOperationException( "Sub-queries and correlation variables cannot be copied" );
+        }
+        List<RelNode> inputs = new ArrayList<>( rel.getInputs().size() );
+        for ( RelNode input : rel.getInputs() ) {
+            inputs.add( copyToCluster( input, cluster, relOptSchema ) );
+        }
+        if ( rel instanceof LogicalTableScan ) {
+            RelOptTable table = rel.getTable();
+            if ( relOptSchema != null ) {
+                table = relOptSchema.getTableForMember( rel.getTable().getQualifiedName() );
+                if ( table == null ) {
+                    throw new IllegalStateException( "Unknown table: " + rel.getTable().getQualifiedName() );
+                }
+            }
+            return LogicalTableScan.create( cluster, table );
+        } else if ( rel instanceof LogicalValues ) {
+            return LogicalValues.create( cluster, rel.getRowType(), ((LogicalValues) rel).getTuples() );
+        } else if ( rel instanceof LogicalProject ) {
+            return LogicalProject.create( inputs.get( 0 ), ((LogicalProject) rel).getProjects(), rel.getRowType() );
+        } else if ( rel instanceof LogicalFilter ) {
+            return LogicalFilter.create( inputs.get( 0 ), ((LogicalFilter) rel).getCondition() );
+        } else if ( rel instanceof LogicalAggregate ) {
+            LogicalAggregate aggregate = (LogicalAggregate) rel;
+            return LogicalAggregate.create( inputs.get( 0 ), aggregate.indicator, aggregate.getGroupSet(), aggregate.getGroupSets(), aggregate.getAggCallList() );
+        } else if ( rel instanceof LogicalJoin ) {
+            LogicalJoin join = (LogicalJoin) rel;
+            return LogicalJoin.create(
+                    inputs.get( 0 ),
+                    inputs.get( 1 ),
+                    join.getCondition(),
+                    ImmutableSet.of(),
+                    join.getJoinType(),
+                    join.isSemiJoinDone(),
+                    ImmutableList.copyOf( join.getSystemFieldList() ) );
+        } else if ( rel instanceof LogicalSort ) {
+            LogicalSort sort = (LogicalSort) rel;
+            return LogicalSort.create( inputs.get( 0 ), sort.getCollation(), sort.offset, sort.fetch );
+        } else if ( rel instanceof LogicalUnion ) {
+            return LogicalUnion.create( inputs, ((LogicalUnion) rel).all );
+        } else if ( rel instanceof LogicalIntersect ) {
+            return LogicalIntersect.create( inputs, ((LogicalIntersect) rel).all );
+        } else if ( rel instanceof LogicalMinus ) {
+            return LogicalMinus.create( inputs, ((LogicalMinus) rel).all );
+        }
+        throw new UnsupportedOperationException( "Unsupported operator: " + rel.getRelTypeName() );
+    }
+
+
     /**
      * Returns a list of variables set by a relational expression or its descendants.
      */
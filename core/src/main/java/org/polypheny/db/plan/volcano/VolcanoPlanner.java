@@ -128,6 +128,22 @@ public class VolcanoPlanner extends AbstractRelOptPlanner {
      */
     protected boolean impatient = false;
 
+    /**
+     * Maximum number of milliseconds {@link #findBestExp()} may take once an implementable plan has been found, or 0 for
+     * no limit. If the budget is exhausted, the planner stops firing rules and returns the best plan found so far.
+     */
+    protected long timeBudget = 0;
+
+    /**
+     * Maximum number of rule firings in {@link #findBestExp()} once an implementable plan has been found, or 0 for no limit.
+     */
+    protected int tickBudget = 0;
+
+    /**
+     * Whether the last invocation of {@link #findBestExp()} stopped early because its budget was exhausted.
+     */
+    private boolean budgetExhausted = false;
+
     /**
      * Operands that apply to a given class of {@link RelNode}.
      *
@@ -502,6 +518,8 @@ public RelOptPlanner chooseDelegate() {
     @Override
     public RelNode findBestExp() {
         ensureRootConverters();
+        final long startTime = System.nanoTime();
+        budgetExhausted = false;
         int cumulativeTicks = 0;
         for ( VolcanoPlannerPhase phase : VolcanoPlannerPhase.values() ) {
             setInitialImportance();
@@ -515,6 +533,11 @@ public RelNode findBestExp() {
             while ( true ) {
                 ++tick;
                 ++cumulativeTicks;
+                if ( !root.bestCost.isInfinite() && isOverBudget( startTime, cumulativeTicks ) ) {
+                    // The budget is exhausted. Take the current best.
+                    budgetExhausted = true;
+                    break;
+                }
                 if ( root.bestCost.isLe( targetCost ) ) {
                     if ( firstFiniteTick < 0 ) {
                         firstFiniteTick = cumulativeTicks;
@@ -576,6 +599,33 @@ public RelNode findBestExp() {
     }
 
 
+    /**
+     * Limits the effort of {@link #findBestExp()}. The limits only apply once an implementable plan has been found.
+     *
+     * @param timeBudget Maximum number of milliseconds, 0 for no limit
+     * @param tickBudget Maximum number of rule firings, 0 for no limit
+     */
+    public void setBudget( long timeBudget, int tickBudget ) {
+        this.timeBudget = timeBudget;
+        this.tickBudget = tickBudget;
+    }
+
+
+    /**
+     * Returns whether the last invocation of {@link #findBestExp()} returned the best plan found before its budget was
+     * exhausted instead of the best plan it could find.
+     */
+    public boolean isBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+
+    private boolean isOverBudget( long startTime, int cumulativeTicks ) {
+        return (tickBudget > 0 && cumulativeTicks > tickBudget)
+                || (timeBudget > 0 && System.nanoTime() - startTime > timeBudget * 1_000_000L);
+    }
+
+
     /**
      * Informs {@link JaninoRelMetadataProvider} about the different kinds of {@link RelNode} that we will be dealing with.
      * It will reduce the number of times that we need to re-generate the provider.
@@ -25,4 +25,20 @@ public interface DataMigrator {
 
     void copyData( Transaction transaction, CatalogAdapter store, List<CatalogColumn> columns );
 
+    /**
+     * Copies the current version of the rows with the specified primary keys to the placements of the columns on the
+     * store. If the store holds no other placements of this table, existing versions of these rows are removed from
+     * the store first; rows which no longer exist are therefore also removed from the store.
+     *
+     * @param primaryKeys Values of the primary key columns (in the order of the primary key) of the rows to copy
+     */
+    void copyRows( Transaction transaction, CatalogAdapter store, List<CatalogColumn> columns, List<List<Object>> primaryKeys );
+
+    /**
+     * Inserts the rows into the placements of the columns on the store.
+     *
+     * @param rows Values of the rows to insert, in the order of the columns
+     */
+    void insertRows( Transaction transaction, CatalogAdapter store, List<CatalogColumn> columns, List<List<Object>> rows );
+
 }
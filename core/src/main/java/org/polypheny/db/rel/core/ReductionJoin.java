@@ -0,0 +1,195 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.rel.core;
+
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.AbstractRelNode;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.RelWriter;
+import org.polypheny.db.rel.metadata.RelMdUtil;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.rel.type.RelDataType;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.sql.validate.SqlValidatorUtil;
+import org.polypheny.db.util.ImmutableIntList;
+
+
+/**
+ * Equi-join which reduces one of its sides (the probe side) by the keys of the other side (the build side).
+ *
+ * The build side is read first. Its distinct join keys are then bound in batches to the dynamic parameters
+ * {@code firstParameter, ..., firstParameter + batchSize * keyCount - 1} of the probe input, which filters its rows to
+ * the keys of the current batch. The unreduced input is the probe side without this filter; it is read instead if
+ * the build side has too many keys.
+ *
+ * The probe side must not be preserved by the join (e.g. the right side of a left outer join), because its rows
+ * without a matching row on the build side are dropped.
+ */
+public abstract class ReductionJoin extends AbstractRelNode {
+
+    protected List<RelNode> inputs;
+
+    @Getter
+    protected final RexNode condition;
+    @Getter
+    protected final JoinRelType joinType;
+    @Getter
+    protected final boolean buildLeft;
+    @Getter
+    protected final ImmutableIntList buildKeys;
+    @Getter
+    protected final ImmutableIntList probeKeys;
+    @Getter
+    protected final int firstParameter;
+    @Getter
+    protected final int batchSize;
+
+
+    /**
+     * Creates a ReductionJoin.
+     *
+     * @param build Build side
+     * @param probe Probe side, filtered by the dynamic parameters
+     * @param unreduced Probe side without the filter
+     * @param condition Condition of the join, on the fields of the left and the right side
+     * @param joinType Type of the join
+     * @param buildLeft Whether the build side is the left side of the join
+     * @param buildKeys Key fields of the build side
+     * @param probeKeys Key fields of the probe side
+     * @param firstParameter Index of the first dynamic parameter bound to the keys of the build side
+     * @param batchSize Number of keys per batch
+     */
+    protected ReductionJoin(
+            RelOptCluster cluster,
+            RelTraitSet traitSet,
+            RelNode build,
+            RelNode probe,
+            RelNode unreduced,
+            RexNode condition,
+            JoinRelType joinType,
+            boolean buildLeft,
+            ImmutableIntList buildKeys,
+            ImmutableIntList probeKeys,
+            int firstParameter,
+            int batchSize ) {
+        super( cluster, traitSet );
+        assert buildKeys.size() == probeKeys.size();
+        assert !(buildLeft ? joinType.generatesNullsOnLeft() : joinType.generatesNullsOnRight());
+        this.inputs = ImmutableList.of( build, probe, unreduced );
+        this.condition = condition;
+        this.joinType = joinType;
+        this.buildLeft = buildLeft;
+        this.buildKeys = buildKeys;
+        this.probeKeys = probeKeys;
+        this.firstParameter = firstParameter;
+        this.batchSize = batchSize;
+    }
+
+
+    public RelNode getBuild() {
+        return inputs.get( 0 );
+    }
+
+
+    public RelNode getProbe() {
+        return inputs.get( 1 );
+    }
+
+
+    public RelNode getUnreduced() {
+        return inputs.get( 2 );
+    }
+
+
+    /**
+     * Returns the left side of the join; the probe side is represented by its unreduced input.
+     */
+    public RelNode getLeft() {
+        return buildLeft ? getBuild() : getUnreduced();
+    }
+
+
+    /**
+     * Returns the right side of the join; the probe side is represented by its unreduced input.
+     */
+    public RelNode getRight() {
+        return buildLeft ? getUnreduced() : getBuild();
+    }
+
+
+    @Override
+    public List<RelNode> getInputs() {
+        return inputs;
+    }
+
+
+    @Override
+    public void replaceInput( int ordinalInParent, RelNode p ) {
+        final List<RelNode> newInputs = new ArrayList<>( inputs );
+        newInputs.set( ordinalInParent, p );
+        inputs = ImmutableList.copyOf( newInputs );
+        recomputeDigest();
+    }
+
+
+    @Override
+    public double estimateRowCount( RelMetadataQuery mq ) {
+        return mq.getRowCount( getBuild() ) * mq.getRowCount( getUnreduced() ) * RelMdUtil.guessSelectivity( condition );
+    }
+
+
+    @Override
+    public RelWriter explainTerms( RelWriter pw ) {
+        return super.explainTerms( pw )
+                .input( "build", getBuild() )
+                .input( "probe", getProbe() )
+                .input( "unreduced", getUnreduced() )
+                .item( "condition", condition )
+                .item( "joinType", joinType.lowerName )
+                .item( "buildSide", buildLeft ? "left" : "right" )
+                .item( "firstParameter", firstParameter )
+                .item( "batchSize", batchSize );
+    }
+
+
+    @Override
+    protected RelDataType deriveRowType() {
+        return SqlValidatorUtil.deriveJoinRowType( getLeft().getRowType(), getRight().getRowType(), joinType, getCluster().getTypeFactory(), null, ImmutableList.of() );
+    }
+
+
+    @Override
+    public String relCompareString() {
+        return this.getClass().getSimpleName() + "$" +
+                getBuild().relCompareString() + "$" +
+                getProbe().relCompareString() + "$" +
+                getUnreduced().relCompareString() + "$" +
+                condition.hashCode() + "$" +
+                joinType.name() + "$" +
+                buildLeft + "$" +
+                firstParameter + "$" +
+                batchSize + "&";
+    }
+
+}
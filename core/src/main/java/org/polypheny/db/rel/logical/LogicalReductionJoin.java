@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.rel.logical;
+
+
+import java.util.List;
+import org.polypheny.db.plan.Convention;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.JoinRelType;
+import org.polypheny.db.rel.core.ReductionJoin;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.util.ImmutableIntList;
+
+
+/**
+ * Sub-class of {@link ReductionJoin} not targeted at any particular engine or calling convention.
+ */
+public final class LogicalReductionJoin extends ReductionJoin {
+
+    public LogicalReductionJoin(
+            RelOptCluster cluster,
+            RelTraitSet traitSet,
+            RelNode build,
+            RelNode probe,
+            RelNode unreduced,
+            RexNode condition,
+            JoinRelType joinType,
+            boolean buildLeft,
+            ImmutableIntList buildKeys,
+            ImmutableIntList probeKeys,
+            int firstParameter,
+            int batchSize ) {
+        super( cluster, traitSet, build, probe, unreduced, condition, joinType, buildLeft, buildKeys, probeKeys, firstParameter, batchSize );
+    }
+
+
+    /**
+     * Creates a LogicalReductionJoin.
+     */
+    public static LogicalReductionJoin create(
+            RelNode build,
+            RelNode probe,
+            RelNode unreduced,
+            RexNode condition,
+            JoinRelType joinType,
+            boolean buildLeft,
+            ImmutableIntList buildKeys,
+            ImmutableIntList probeKeys,
+            int firstParameter,
+            int batchSize ) {
+        final RelOptCluster cluster = build.getCluster();
+        return new LogicalReductionJoin( cluster, cluster.traitSetOf( Convention.NONE ), build, probe, unreduced, condition, joinType, buildLeft, buildKeys, probeKeys, firstParameter, batchSize );
+    }
+
+
+    @Override
+    public RelNode copy( RelTraitSet traitSet, List<RelNode> inputs ) {
+        assert traitSet.containsIfApplicable( Convention.NONE );
+        return new LogicalReductionJoin( getCluster(), traitSet, inputs.get( 0 ), inputs.get( 1 ), inputs.get( 2 ), condition, joinType, buildLeft, buildKeys, probeKeys, firstParameter, batchSize );
+    }
+
+}
@@ -147,7 +147,7 @@ public ImmutableList<RelCollation> collations( EnumerableMergeJoin join, RelMeta
 
 
     public ImmutableList<RelCollation> collations( EnumerableJoin join, RelMetadataQuery mq ) {
-        return ImmutableList.copyOf( RelMdCollation.enumerableJoin( mq, join.getLeft(), join.getRight(), join.getJoinType() ) );
+        return ImmutableList.copyOf( RelMdCollation.enumerableJoin( mq, join.getLeft(), join.getRight(), join.getJoinType(), join.spilling ) );
     }
 
 
@@ -408,9 +408,13 @@ public static List<RelCollation> mergeJoin( RelMetadataQuery mq, RelNode left, R
 
 
     /**
-     * Returns the collation of {@link EnumerableJoin} based on its inputs and the join type.
+     * Returns the collation of {@link EnumerableJoin} based on its inputs, the join type and whether it spills to disk.
      */
-    public static List<RelCollation> enumerableJoin( RelMetadataQuery mq, RelNode left, RelNode right, JoinRelType joinType ) {
+    public static List<RelCollation> enumerableJoin( RelMetadataQuery mq, RelNode left, RelNode right, JoinRelType joinType, boolean spilling ) {
+        if ( spilling ) {
+            // A join which spills to disk returns the rows partition by partition
+            return ImmutableList.of();
+        }
         return enumerableJoin0( mq, left, right, joinType );
     }
 
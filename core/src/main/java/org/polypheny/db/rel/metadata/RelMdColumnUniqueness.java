@@ -88,7 +88,7 @@ public MetadataDef<BuiltInMetadata.ColumnUniqueness> getDef() {
 
 
     public Boolean areColumnsUnique( TableScan rel, RelMetadataQuery mq, ImmutableBitSet columns, boolean ignoreNulls ) {
-        return rel.getTable().isKey( columns );
+        return TableMetadataCache.getInstance().isKey( rel, columns, () -> rel.getTable().isKey( columns ) );
     }
 
 
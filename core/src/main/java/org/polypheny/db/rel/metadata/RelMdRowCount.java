@@ -242,7 +242,7 @@ public Double getRowCount( Aggregate rel, RelMetadataQuery mq ) {
 
 
     public Double getRowCount( TableScan rel, RelMetadataQuery mq ) {
-        return rel.estimateRowCount( mq );
+        return TableMetadataCache.getInstance().getRowCount( rel, () -> rel.estimateRowCount( mq ) );
     }
 
 
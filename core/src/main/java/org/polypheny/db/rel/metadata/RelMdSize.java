@@ -179,12 +179,14 @@ public List<Double> averageColumnSizes( Values rel, RelMetadataQuery mq ) {
 
 
     public List<Double> averageColumnSizes( TableScan rel, RelMetadataQuery mq ) {
-        final List<RelDataTypeField> fields = rel.getRowType().getFieldList();
-        final ImmutableList.Builder<Double> list = ImmutableList.builder();
-        for ( RelDataTypeField field : fields ) {
-            list.add( averageTypeValueSize( field.getType() ) );
-        }
-        return list.build();
+        return TableMetadataCache.getInstance().getAverageColumnSizes( rel, () -> {
+            final List<RelDataTypeField> fields = rel.getRowType().getFieldList();
+            final ImmutableList.Builder<Double> list = ImmutableList.builder();
+            for ( RelDataTypeField field : fields ) {
+                list.add( averageTypeValueSize( field.getType() ) );
+            }
+            return list.build();
+        } );
     }
 
 
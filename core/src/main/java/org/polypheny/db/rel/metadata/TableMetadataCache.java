@@ -0,0 +1,232 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.rel.metadata;
+
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.EqualsAndHashCode;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.Catalog.Pattern;
+import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.rel.core.TableScan;
+import org.polypheny.db.schema.LogicalTable;
+import org.polypheny.db.schema.Table;
+import org.polypheny.db.util.ImmutableBitSet;
+
+
+/**
+ * Caches the metadata of table scans across queries. {@link RelMetadataQuery} only memoizes metadata for the duration
+ * of a single planning session, which means that the row count, the unique keys and the column sizes of the same table
+ * are derived again for every query which is not served from the plan cache.
+ *
+ * Entries are keyed by the id of the catalog table, the adapter holding the placement (physical tables of different
+ * stores may report different statistics) and the version of the catalog. Logical tables are identified by their
+ * table id, physical tables have to be registered using {@link #registerPhysicalTable(Table, long, int)} when the
+ * schema is built. Scans of all other tables bypass the cache.
+ *
+ * The catalog version is incremented on every change to the catalog, the entries of a table are discarded once its
+ * statistics have been updated.
+ */
+public class TableMetadataCache {
+
+    private static final TableMetadataCache INSTANCE = new TableMetadataCache();
+
+    private static final int LOGICAL = -1;
+
+    // Catalog table id and adapter id of the physical tables
+    private final Map<Table, TablePlacement> physicalTables = Collections.synchronizedMap( new WeakHashMap<>() );
+    private final Map<TableKey, TableMetadata> entries = new ConcurrentHashMap<>();
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private volatile boolean observing = false;
+
+
+    public static TableMetadataCache getInstance() {
+        return INSTANCE;
+    }
+
+
+    private TableMetadataCache() {
+    }
+
+
+    /**
+     * Registers a table of an adapter holding a placement of the specified catalog table.
+     */
+    public void registerPhysicalTable( Table table, long tableId, int adapterId ) {
+        physicalTables.put( table, new TablePlacement( tableId, adapterId ) );
+    }
+
+
+    public Double getRowCount( TableScan scan, Supplier<Double> supplier ) {
+        final TableMetadata metadata = getMetadata( scan );
+        if ( metadata == null ) {
+            return supplier.get();
+        }
+        Double rowCount = metadata.rowCount;
+        if ( rowCount == null ) {
+            rowCount = supplier.get();
+            metadata.rowCount = rowCount;
+        }
+        return rowCount;
+    }
+
+
+    public Boolean isKey( TableScan scan, ImmutableBitSet columns, Supplier<Boolean> supplier ) {
+        final TableMetadata metadata = getMetadata( scan );
+        if ( metadata == null ) {
+            return supplier.get();
+        }
+        Boolean key = metadata.keys.get( columns );
+        if ( key == null ) {
+            key = supplier.get();
+            if ( key != null ) {
+                metadata.keys.put( columns, key );
+            }
+        }
+        return key;
+    }
+
+
+    public List<Double> getAverageColumnSizes( TableScan scan, Supplier<List<Double>> supplier ) {
+        final TableMetadata metadata = getMetadata( scan );
+        // Scans of tables supporting projections may only return a subset of the columns
+        if ( metadata == null || scan.getRowType().getFieldCount() != scan.getTable().getRowType().getFieldCount() ) {
+            return supplier.get();
+        }
+        List<Double> columnSizes = metadata.averageColumnSizes;
+        if ( columnSizes == null ) {
+            columnSizes = supplier.get();
+            metadata.averageColumnSizes = columnSizes;
+        }
+        return columnSizes;
+    }
+
+
+    /**
+     * Discards the metadata of the specified table, e.g. because its statistics have changed.
+     */
+    public void invalidate( long tableId ) {
+        entries.keySet().removeIf( key -> key.tableId == tableId );
+    }
+
+
+    /**
+     * Discards the metadata of all tables matching the specified schema and table name.
+     */
+    public void invalidate( String schemaName, String tableName ) {
+        if ( entries.isEmpty() ) {
+            return;
+        }
+        for ( CatalogTable catalogTable : Catalog.getInstance().getTables( null, new Pattern( schemaName ), new Pattern( tableName ) ) ) {
+            invalidate( catalogTable.id );
+        }
+    }
+
+
+    public void invalidateAll() {
+        catalogVersion.incrementAndGet();
+        entries.clear();
+    }
+
+
+    public int size() {
+        return entries.size();
+    }
+
+
+    private TableMetadata getMetadata( TableScan scan ) {
+        if ( !RuntimeConfig.TABLE_METADATA_CACHING.getBoolean() || scan.getTable() == null ) {
+            return null;
+        }
+        final Table table = scan.getTable().unwrap( Table.class );
+        final TablePlacement placement;
+        if ( table instanceof LogicalTable ) {
+            placement = new TablePlacement( ((LogicalTable) table).getTableId(), LOGICAL );
+        } else if ( table != null ) {
+            placement = physicalTables.get( table );
+        } else {
+            placement = null;
+        }
+        if ( placement == null ) {
+            return null;
+        }
+        observeCatalog();
+        return entries.computeIfAbsent( new TableKey( placement.tableId, placement.adapterId, catalogVersion.get() ), k -> new TableMetadata() );
+    }
+
+
+    private void observeCatalog() {
+        if ( !observing ) {
+            synchronized ( this ) {
+                if ( !observing ) {
+                    Catalog.getInstance().addObserver( evt -> invalidateAll() );
+                    observing = true;
+                }
+            }
+        }
+    }
+
+
+    @EqualsAndHashCode
+    private static class TablePlacement {
+
+        private final long tableId;
+        private final int adapterId;
+
+
+        private TablePlacement( long tableId, int adapterId ) {
+            this.tableId = tableId;
+            this.adapterId = adapterId;
+        }
+
+    }
+
+
+    @EqualsAndHashCode
+    private static class TableKey {
+
+        private final long tableId;
+        private final int adapterId;
+        private final long catalogVersion;
+
+
+        private TableKey( long tableId, int adapterId, long catalogVersion ) {
+            this.tableId = tableId;
+            this.adapterId = adapterId;
+            this.catalogVersion = catalogVersion;
+        }
+
+    }
+
+
+    private static class TableMetadata {
+
+        private volatile Double rowCount;
+        private volatile List<Double> averageColumnSizes;
+        private final Map<ImmutableBitSet, Boolean> keys = new ConcurrentHashMap<>();
+
+    }
+
+}
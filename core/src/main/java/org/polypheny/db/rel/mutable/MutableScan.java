@@ -57,17 +57,22 @@ public static MutableScan of( TableScan scan ) {
     }
 
 
+    /**
+     * Two scans are equal if they are of the same kind and read the same table. The scans of a query and of the
+     * definition of a materialized view are translated separately and are therefore never the same object.
+     */
     @Override
     public boolean equals( Object obj ) {
         return obj == this
                 || obj instanceof MutableScan
-                && rel.equals( ((MutableScan) obj).rel );
+                && rel.getClass() == ((MutableScan) obj).rel.getClass()
+                && rel.getTable().getQualifiedName().equals( ((MutableScan) obj).rel.getTable().getQualifiedName() );
     }
 
 
     @Override
     public int hashCode() {
-        return rel.hashCode();
+        return rel.getTable().getQualifiedName().hashCode();
     }
 
 
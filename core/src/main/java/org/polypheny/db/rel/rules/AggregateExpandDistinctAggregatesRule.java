@@ -49,6 +49,7 @@
 import java.util.SortedSet;
 import java.util.TreeSet;
 import org.apache.calcite.linq4j.Ord;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.plan.RelOptRule;
 import org.polypheny.db.plan.RelOptRuleCall;
 import org.polypheny.db.rel.RelCollations;
@@ -112,6 +113,13 @@ public void onMatch( RelOptRuleCall call ) {
             return;
         }
 
+        // Approximate distinct counts are estimated with a sketch instead of being expanded. If the aggregate contains
+        // other distinct calls, they are expanded when the rule fires on the new aggregate.
+        if ( containsApproximateDistinctCount( aggregate ) ) {
+            call.transformTo( convertApproximateDistinctCounts( aggregate ) );
+            return;
+        }
+
         // Find all of the agg expressions. We use a LinkedHashSet to ensure determinism.
         int nonDistinctAggCallCount = 0;  // find all aggregate calls without distinct
         int filterCount = 0;
@@ -211,6 +219,50 @@ public void onMatch( RelOptRuleCall call ) {
     }
 
 
+    private static boolean isApproximateDistinctCount( AggregateCall aggCall ) {
+        return aggCall.isDistinct()
+                && aggCall.getAggregation().getKind() == SqlKind.COUNT
+                && !aggCall.getArgList().isEmpty()
+                && (aggCall.isApproximate() || RuntimeConfig.APPROXIMATE_DISTINCT_COUNT.getBoolean());
+    }
+
+
+    private static boolean containsApproximateDistinctCount( Aggregate aggregate ) {
+        for ( AggregateCall aggCall : aggregate.getAggCallList() ) {
+            if ( isApproximateDistinctCount( aggCall ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Replaces {@code COUNT(DISTINCT x)} calls which may be approximated by non-distinct {@code APPROX_COUNT_DISTINCT(x)}
+     * calls.
+     */
+    private static Aggregate convertApproximateDistinctCounts( Aggregate aggregate ) {
+        final List<AggregateCall> newAggCalls = new ArrayList<>();
+        for ( AggregateCall aggCall : aggregate.getAggCallList() ) {
+            if ( isApproximateDistinctCount( aggCall ) ) {
+                newAggCalls.add(
+                        AggregateCall.create(
+                                SqlStdOperatorTable.APPROX_COUNT_DISTINCT,
+                                false,
+                                true,
+                                aggCall.getArgList(),
+                                aggCall.filterArg,
+                                aggCall.collation,
+                                aggCall.getType(),
+                                aggCall.getName() ) );
+            } else {
+                newAggCalls.add( aggCall );
+            }
+        }
+        return aggregate.copy( aggregate.getTraitSet(), aggregate.getInput(), aggregate.indicator, aggregate.getGroupSet(), aggregate.getGroupSets(), newAggCalls );
+    }
+
+
     /**
      * Converts an aggregate with one distinct aggregate and one or more non-distinct aggregates to multi-phase aggregates (see reference example below).
      *
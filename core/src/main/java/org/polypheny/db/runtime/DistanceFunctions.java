@@ -121,6 +121,209 @@ private static double norm2( List<Number> list ) {
     }
 
 
+    /**
+     * Returns the values of a list of numbers as primitive array. Lists backed by a primitive array are not copied.
+     */
+    protected static double[] toDoubleArray( List<? extends Number> list ) {
+        if ( list instanceof DoubleArrayList ) {
+            return ((DoubleArrayList) list).getArray();
+        }
+        final double[] array = new double[list.size()];
+        if ( list instanceof FloatArrayList ) {
+            final float[] floats = ((FloatArrayList) list).getArray();
+            for ( int i = 0; i < floats.length; i++ ) {
+                array[i] = floats[i];
+            }
+            return array;
+        }
+        for ( int i = 0; i < array.length; i++ ) {
+            array[i] = list.get( i ).doubleValue();
+        }
+        return array;
+    }
+
+
+    /*
+     * Kernels operating on primitive arrays. The loops are manually unrolled by four to reduce the loop overhead and
+     * to allow the JIT to keep the partial sums in registers.
+     */
+
+
+    protected static double l1Metric( double[] value, double[] target ) {
+        final int n = value.length;
+        final int bound = n & ~3;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for ( ; i < bound; i += 4 ) {
+            s0 += Math.abs( value[i] - target[i] );
+            s1 += Math.abs( value[i + 1] - target[i + 1] );
+            s2 += Math.abs( value[i + 2] - target[i + 2] );
+            s3 += Math.abs( value[i + 3] - target[i + 3] );
+        }
+        for ( ; i < n; i++ ) {
+            s0 += Math.abs( value[i] - target[i] );
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+
+    protected static double l1Metric( float[] value, double[] target ) {
+        final int n = value.length;
+        final int bound = n & ~3;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for ( ; i < bound; i += 4 ) {
+            s0 += Math.abs( value[i] - target[i] );
+            s1 += Math.abs( value[i + 1] - target[i + 1] );
+            s2 += Math.abs( value[i + 2] - target[i + 2] );
+            s3 += Math.abs( value[i + 3] - target[i + 3] );
+        }
+        for ( ; i < n; i++ ) {
+            s0 += Math.abs( value[i] - target[i] );
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+
+    protected static double l1MetricWeighted( double[] value, double[] target, double[] weights ) {
+        double result = 0;
+        for ( int i = 0; i < value.length; i++ ) {
+            result += Math.abs( value[i] - target[i] ) * weights[i];
+        }
+        return result;
+    }
+
+
+    protected static double l2SquaredMetric( double[] value, double[] target ) {
+        final int n = value.length;
+        final int bound = n & ~3;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for ( ; i < bound; i += 4 ) {
+            final double d0 = value[i] - target[i];
+            final double d1 = value[i + 1] - target[i + 1];
+            final double d2 = value[i + 2] - target[i + 2];
+            final double d3 = value[i + 3] - target[i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for ( ; i < n; i++ ) {
+            final double d = value[i] - target[i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+
+    protected static double l2SquaredMetric( float[] value, double[] target ) {
+        final int n = value.length;
+        final int bound = n & ~3;
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for ( ; i < bound; i += 4 ) {
+            final double d0 = value[i] - target[i];
+            final double d1 = value[i + 1] - target[i + 1];
+            final double d2 = value[i + 2] - target[i + 2];
+            final double d3 = value[i + 3] - target[i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for ( ; i < n; i++ ) {
+            final double d = value[i] - target[i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+
+    protected static double l2SquaredMetricWeighted( double[] value, double[] target, double[] weights ) {
+        double result = 0;
+        for ( int i = 0; i < value.length; i++ ) {
+            final double d = value[i] - target[i];
+            result += d * d * weights[i];
+        }
+        return result;
+    }
+
+
+    protected static double l2Metric( double[] value, double[] target ) {
+        return Math.sqrt( l2SquaredMetric( value, target ) );
+    }
+
+
+    protected static double l2Metric( float[] value, double[] target ) {
+        return Math.sqrt( l2SquaredMetric( value, target ) );
+    }
+
+
+    protected static double l2MetricWeighted( double[] value, double[] target, double[] weights ) {
+        return Math.sqrt( l2SquaredMetricWeighted( value, target, weights ) );
+    }
+
+
+    protected static double chiSquaredMetric( double[] value, double[] target ) {
+        double result = 0;
+        for ( int i = 0; i < value.length; i++ ) {
+            final double a = value[i];
+            final double b = target[i];
+            final double d = a - b;
+            result += d * d / (b + a);
+        }
+        return result;
+    }
+
+
+    protected static double chiSquaredMetricWeighted( double[] value, double[] target, double[] weights ) {
+        double result = 0;
+        for ( int i = 0; i < value.length; i++ ) {
+            final double a = value[i];
+            final double b = target[i];
+            final double d = a - b;
+            result += d * d / (b + a) * weights[i];
+        }
+        return result;
+    }
+
+
+    protected static double cosineMetric( double[] value, double[] target ) {
+        final int n = value.length;
+        final int bound = n & ~3;
+        double dot0 = 0, dot1 = 0, a0 = 0, a1 = 0, b0 = 0, b1 = 0;
+        int i = 0;
+        for ( ; i < bound; i += 4 ) {
+            dot0 += value[i] * target[i] + value[i + 2] * target[i + 2];
+            dot1 += value[i + 1] * target[i + 1] + value[i + 3] * target[i + 3];
+            a0 += value[i] * value[i] + value[i + 2] * value[i + 2];
+            a1 += value[i + 1] * value[i + 1] + value[i + 3] * value[i + 3];
+            b0 += target[i] * target[i] + target[i + 2] * target[i + 2];
+            b1 += target[i + 1] * target[i + 1] + target[i + 3] * target[i + 3];
+        }
+        for ( ; i < n; i++ ) {
+            dot0 += value[i] * target[i];
+            a0 += value[i] * value[i];
+            b0 += target[i] * target[i];
+        }
+        return 1 - (dot0 + dot1) / (Math.sqrt( a0 + a1 ) * Math.sqrt( b0 + b1 ));
+    }
+
+
+    protected static double cosineMetricWeighted( double[] value, double[] target, double[] weights ) {
+        double dot = 0, a = 0, b = 0;
+        for ( int i = 0; i < value.length; i++ ) {
+            final double v = value[i] * weights[i];
+            final double t = target[i] * weights[i];
+            dot += v * t;
+            a += v * v;
+            b += t * t;
+        }
+        return 1 - dot / (Math.sqrt( a ) * Math.sqrt( b ));
+    }
+
+
     protected static void verifyInputs( List a, List b, List w ) {
         if ( a.isEmpty() && b.isEmpty() && (w == null || w.isEmpty()) ) {
             return;
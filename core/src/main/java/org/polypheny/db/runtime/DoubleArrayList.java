@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+
+/**
+ * Immutable list of doubles backed by a primitive array. This is the representation of {@code DOUBLE ARRAY} values
+ * in the enumerable runtime whenever the values are known to be non-null. It allows functions like the distance
+ * functions to operate on the primitive array without unboxing every element.
+ */
+public class DoubleArrayList extends AbstractList<Double> implements RandomAccess, Serializable {
+
+    private final double[] array;
+
+
+    public DoubleArrayList( double[] array ) {
+        this.array = array;
+    }
+
+
+    /**
+     * Returns the backing array. The array must not be modified.
+     */
+    public double[] getArray() {
+        return array;
+    }
+
+
+    public double getDouble( int index ) {
+        return array[index];
+    }
+
+
+    @Override
+    public Double get( int index ) {
+        return array[index];
+    }
+
+
+    @Override
+    public int size() {
+        return array.length;
+    }
+
+}
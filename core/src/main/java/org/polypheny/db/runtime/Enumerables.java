@@ -34,8 +34,15 @@
 package org.polypheny.db.runtime;
 
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
 import java.util.function.Supplier;
+import org.apache.calcite.linq4j.AbstractEnumerable;
 import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
 import org.apache.calcite.linq4j.function.Function1;
 import org.polypheny.db.interpreter.Row;
 
@@ -59,6 +66,101 @@ public static <E> Enumerable<E> slice0( Enumerable<E[]> enumerable ) {
     }
 
 
+    /**
+     * Sorts the elements of an {@link Enumerable} and returns the elements from position {@code offset} up to
+     * {@code offset + fetch}. Instead of sorting all elements, a bounded heap holding the {@code offset + fetch}
+     * smallest elements is maintained. This requires O(n log k) time and O(k) memory, with k being offset + fetch.
+     *
+     * Like {@link Enumerable#orderBy}, the sort is stable: elements with equal keys are returned in input order. The
+     * source is only read once the returned enumerable is enumerated, and again for every enumeration.
+     *
+     * @param source The elements to sort
+     * @param keySelector Function extracting the sort key of an element
+     * @param comparator Comparator for the sort keys; if null, the keys are compared using their natural order
+     * @param offset Number of elements to skip
+     * @param fetch Maximum number of elements to return
+     */
+    public static <TSource, TKey> Enumerable<TSource> topN(
+            final Enumerable<TSource> source,
+            final Function1<TSource, TKey> keySelector,
+            final Comparator<TKey> comparator,
+            final int offset,
+            final int fetch ) {
+        final int limit = offset + fetch;
+        if ( fetch <= 0 || limit < 0 ) {
+            // Either nothing to return or offset + fetch overflows
+            return fetch <= 0 ? Linq4j.emptyEnumerable() : source.orderBy( keySelector, comparator ).skip( offset ).take( fetch );
+        }
+        @SuppressWarnings("unchecked") final Comparator<TKey> keyComparator = comparator != null
+                ? comparator
+                : (Comparator<TKey>) Comparator.naturalOrder();
+        final Comparator<TopNEntry<TSource, TKey>> entryComparator = ( e1, e2 ) -> {
+            final int c = keyComparator.compare( e1.key, e2.key );
+            return c != 0 ? c : Long.compare( e1.sequence, e2.sequence );
+        };
+        return new AbstractEnumerable<TSource>() {
+            @Override
+            public Enumerator<TSource> enumerator() {
+                return Linq4j.enumerator( topN( source, keySelector, keyComparator, entryComparator, offset, limit ) );
+            }
+        };
+    }
+
+
+    private static <TSource, TKey> List<TSource> topN(
+            final Enumerable<TSource> source,
+            final Function1<TSource, TKey> keySelector,
+            final Comparator<TKey> keyComparator,
+            final Comparator<TopNEntry<TSource, TKey>> entryComparator,
+            final int offset,
+            final int limit ) {
+        // Max-heap: the head is the largest of the elements seen so far and is evicted first
+        final PriorityQueue<TopNEntry<TSource, TKey>> heap = new PriorityQueue<>( Math.min( limit, 1024 ) + 1, entryComparator.reversed() );
+        long sequence = 0;
+        try ( Enumerator<TSource> enumerator = source.enumerator() ) {
+            while ( enumerator.moveNext() ) {
+                final TSource element = enumerator.current();
+                final TKey key = keySelector.apply( element );
+                if ( heap.size() == limit ) {
+                    // Skip elements which would be evicted immediately; on equal keys the earlier element wins
+                    if ( keyComparator.compare( key, heap.peek().key ) >= 0 ) {
+                        continue;
+                    }
+                    heap.poll();
+                }
+                heap.add( new TopNEntry<>( element, key, sequence++ ) );
+            }
+        }
+
+        final List<TopNEntry<TSource, TKey>> entries = new ArrayList<>( heap );
+        entries.sort( entryComparator );
+        final List<TSource> result = new ArrayList<>( Math.max( entries.size() - offset, 0 ) );
+        for ( int i = offset; i < entries.size(); i++ ) {
+            result.add( entries.get( i ).element );
+        }
+        return result;
+    }
+
+
+    /**
+     * Element held in the heap of {@link #topN}.
+     */
+    private static class TopNEntry<TSource, TKey> {
+
+        private final TSource element;
+        private final TKey key;
+        private final long sequence;
+
+
+        private TopNEntry( TSource element, TKey key, long sequence ) {
+            this.element = element;
+            this.key = key;
+            this.sequence = sequence;
+        }
+
+    }
+
+
     /**
      * Converts an {@link Enumerable} over object arrays into an {@link Enumerable} over {@link Row} objects.
      */
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime;
+
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.calcite.avatica.util.ByteString;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.adapter.DataContext.Variable;
+import org.polypheny.db.config.RuntimeConfig;
+
+
+/**
+ * Memory budget of a query for the hash tables and sort buffers of the enumerable engine. Operators reserve memory
+ * for the rows they hold; if a reservation fails, they spill to temporary files (see {@link SpillingEnumerables}).
+ *
+ * The sizes are estimates of the heap occupied by the rows. They are neither exact nor do they cover memory which is
+ * not held by the operators, but they keep the memory used by a query in the order of the budget.
+ */
+public class MemoryBudget {
+
+    private final long limit;
+    private final AtomicLong reserved = new AtomicLong();
+    private final AtomicLong spills = new AtomicLong();
+
+
+    public MemoryBudget( long limit ) {
+        this.limit = limit;
+    }
+
+
+    /**
+     * Returns the budget of the query executed in the given data context. The budget is shared by all operators of
+     * the query.
+     */
+    public static MemoryBudget of( DataContext dataContext ) {
+        synchronized ( dataContext ) {
+            MemoryBudget budget = Variable.MEMORY_BUDGET.get( dataContext );
+            if ( budget == null ) {
+                budget = new MemoryBudget( RuntimeConfig.SPILLING_MEMORY_BUDGET.getInteger() * 1024L * 1024L );
+                try {
+                    dataContext.addAll( Collections.singletonMap( Variable.MEMORY_BUDGET.camelName, budget ) );
+                } catch ( UnsupportedOperationException e ) {
+                    // The budget is not shared with the other operators of the query
+                }
+            }
+            return budget;
+        }
+    }
+
+
+    /**
+     * Reserves memory if the budget allows it.
+     *
+     * @return true if the memory has been reserved, false if the operator has to spill
+     */
+    public boolean tryReserve( long bytes ) {
+        while ( true ) {
+            final long current = reserved.get();
+            if ( current + bytes > limit ) {
+                return false;
+            }
+            if ( reserved.compareAndSet( current, current + bytes ) ) {
+                return true;
+            }
+        }
+    }
+
+
+    public void release( long bytes ) {
+        reserved.addAndGet( -bytes );
+    }
+
+
+    void registerSpill() {
+        spills.incrementAndGet();
+    }
+
+
+    public long getLimit() {
+        return limit;
+    }
+
+
+    public long getReserved() {
+        return reserved.get();
+    }
+
+
+    /**
+     * Number of times an operator of this query had to spill.
+     */
+    public long getSpills() {
+        return spills.get();
+    }
+
+
+    /**
+     * Estimates the heap size of a row or value in bytes.
+     */
+    public static long estimateSize( Object value ) {
+        if ( value == null ) {
+            return 8;
+        } else if ( value instanceof Object[] ) {
+            final Object[] array = (Object[]) value;
+            long size = 16 + 8L * array.length;
+            for ( Object o : array ) {
+                size += estimateSize( o );
+            }
+            return size;
+        } else if ( value instanceof List ) {
+            final List<?> list = (List<?>) value;
+            long size = 24 + 8L * list.size();
+            for ( Object o : list ) {
+                size += estimateSize( o );
+            }
+            return size;
+        } else if ( value instanceof String ) {
+            return 40 + 2L * ((String) value).length();
+        } else if ( value instanceof byte[] ) {
+            return 16 + ((byte[]) value).length;
+        } else if ( value instanceof ByteString ) {
+            return 32 + ((ByteString) value).length();
+        } else if ( value instanceof BigDecimal ) {
+            return 64;
+        } else if ( value instanceof Long || value instanceof Double ) {
+            return 24;
+        } else {
+            return 16;
+        }
+    }
+
+}
@@ -0,0 +1,792 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ManagedBlocker;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.function.Function1;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.adapter.DataContext.Variable;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.rel.RelDistribution;
+import org.polypheny.db.util.Util;
+
+
+/**
+ * Runtime of the exchange operator of the enumerable engine (see
+ * {@link org.polypheny.db.adapter.enumerable.EnumerableExchange}).
+ *
+ * A <em>gather</em> evaluates its input once per partition on the workers of a fork-join pool and merges the rows of all
+ * partitions into one unordered result. Inside a gather, an <em>exchange</em> reads its input once on a producer task
+ * and distributes the rows over the partitions by hash, round-robin or broadcast.
+ *
+ * Rows are passed between the tasks in chunks through bounded queues, so a producer cannot run ahead of its consumers
+ * by more than a few chunks. Waiting on a queue is done in a managed block: the pool starts an additional worker
+ * instead of dead-locking if all its workers wait for tasks which have not been started yet.
+ *
+ * The inputs of exchanges which read from the same store use the same connection of the transaction and must not be
+ * read at the same time. The producers of such exchanges take turns: a producer holds a lock per store while reading
+ * its input. If another producer waits for one of these locks, the holder stops waiting for its consumers and reads
+ * the remaining rows of its input into memory, so that the store can be released even if the consumers first need the
+ * rows of the waiting producer (e.g. the build side of a hash join). The rows held this way are accounted to the
+ * {@link MemoryBudget} of the query; rows exceeding the budget are written to a {@link SpillFile}.
+ */
+@Slf4j
+public final class ParallelEnumerables {
+
+    /**
+     * Number of rows passed between two tasks at once.
+     */
+    static final int CHUNK_SIZE = 256;
+
+    /**
+     * Number of chunks a queue holds before the producer has to wait.
+     */
+    static final int QUEUE_CAPACITY = 16;
+
+    private static final long POLL_MILLIS = 50;
+
+    /**
+     * Marks the end of the rows in a queue.
+     */
+    private static final Object END = new Object();
+
+    private static final ForkJoinPool POOL = new ForkJoinPool( Runtime.getRuntime().availableProcessors() );
+
+
+    private ParallelEnumerables() {
+        // empty on purpose
+    }
+
+
+    /**
+     * Returns the number of partitions for the query executed in the given data context: the degree requested for the
+     * query or, if none has been requested, the configured degree. A degree of zero means one partition per core.
+     */
+    public static int degree( DataContext dataContext ) {
+        Integer degree = dataContext == null ? null : Variable.PARALLELISM.get( dataContext );
+        if ( degree == null ) {
+            degree = RuntimeConfig.PARALLELISM.getInteger();
+        }
+        return degree > 0 ? degree : Runtime.getRuntime().availableProcessors();
+    }
+
+
+    /**
+     * Evaluates the body once per partition in parallel and returns the rows of all partitions in no particular order.
+     *
+     * @param dataContext Data context of the query
+     * @param body Creates the input of a partition; the exchanges in the input distribute their rows over the partitions
+     */
+    public static <T> Enumerable<T> gather( final DataContext dataContext, final Function1<Partition, Enumerable<T>> body ) {
+        MemoryBudget budget = null;
+        if ( dataContext != null && RuntimeConfig.SPILLING.getBoolean() ) {
+            // Creates the memory budget shared by the partitions before the workers read the data context
+            budget = MemoryBudget.of( dataContext );
+        }
+        return gather( degree( dataContext ), budget, body );
+    }
+
+
+    static <T> Enumerable<T> gather( final int degree, final Function1<Partition, Enumerable<T>> body ) {
+        return gather( degree, null, body );
+    }
+
+
+    /**
+     * @param budget Budget for the rows held by producers releasing a store; null if they are not limited
+     */
+    static <T> Enumerable<T> gather( final int degree, final MemoryBudget budget, final Function1<Partition, Enumerable<T>> body ) {
+        return new AbstractEnumerable<T>() {
+            @Override
+            public Enumerator<T> enumerator() {
+                final ExchangeContext context = new ExchangeContext( degree, budget );
+                final BlockingQueue<Object> output = new ArrayBlockingQueue<>( QUEUE_CAPACITY );
+                for ( int i = 0; i < degree; i++ ) {
+                    final Partition partition = new Partition( context, i );
+                    context.submit( () -> {
+                        try ( Enumerator<T> enumerator = body.apply( partition ).enumerator() ) {
+                            List<Object> chunk = new ArrayList<>( CHUNK_SIZE );
+                            while ( !context.closed && enumerator.moveNext() ) {
+                                chunk.add( enumerator.current() );
+                                if ( chunk.size() == CHUNK_SIZE ) {
+                                    context.put( output, chunk, () -> false );
+                                    chunk = new ArrayList<>( CHUNK_SIZE );
+                                }
+                            }
+                            if ( !chunk.isEmpty() ) {
+                                context.put( output, chunk, () -> false );
+                            }
+                        } finally {
+                            if ( context.finish( partition.index ) ) {
+                                context.put( output, END, () -> false );
+                            }
+                        }
+                    } );
+                }
+                return new QueueEnumerator<>( context, output, context::close );
+            }
+        };
+    }
+
+
+    /**
+     * One of the partitions of a gather. Passed to the body of the gather.
+     */
+    public static final class Partition {
+
+        private final ExchangeContext context;
+        private final int index;
+
+
+        Partition( ExchangeContext context, int index ) {
+            this.context = context;
+            this.index = index;
+        }
+
+
+        public int getIndex() {
+            return index;
+        }
+
+
+        /**
+         * Returns the rows of the input of an exchange which belong to this partition. The input is only read once for
+         * all partitions, by the first partition which asks for its rows.
+         *
+         * @param id Identifies the exchange within the gather
+         * @param input Input of the exchange
+         * @param distribution Hash, round-robin (or random) or broadcast
+         * @param key Computes the hash key of a row; only used for hash distribution
+         * @param stores Sorted names of the stores read by the input; inputs reading from the same store are not read
+         * at the same time
+         */
+        public <T> Enumerable<T> exchange( final int id, final Enumerable<T> input, final RelDistribution.Type distribution, final Function1<T, Object> key, final String[] stores ) {
+            return new AbstractEnumerable<T>() {
+                @Override
+                public Enumerator<T> enumerator() {
+                    return context.buffer( id, input, distribution, key, stores ).open( index );
+                }
+            };
+        }
+
+
+        /**
+         * Returns the rows of the input of an exchange which does not read from a store.
+         *
+         * @see #exchange(int, Enumerable, RelDistribution.Type, Function1, String[])
+         */
+        public <T> Enumerable<T> exchange( final int id, final Enumerable<T> input, final RelDistribution.Type distribution, final Function1<T, Object> key ) {
+            return exchange( id, input, distribution, key, new String[0] );
+        }
+
+    }
+
+
+    /**
+     * State shared by the tasks of one execution of a gather.
+     */
+    private static final class ExchangeContext {
+
+        private final int degree;
+        private final MemoryBudget budget;
+        private final Map<Integer, ExchangeBuffer<?>> buffers = new HashMap<>();
+        private final Map<String, ReentrantLock> storeLocks = new HashMap<>();
+        private final AtomicIntegerArray finished;
+        private int running = 0;
+        private boolean ended = false;
+        private volatile boolean closed = false;
+        private volatile Throwable failure;
+
+
+        ExchangeContext( int degree, MemoryBudget budget ) {
+            this.degree = degree;
+            this.budget = budget;
+            this.finished = new AtomicIntegerArray( degree );
+        }
+
+
+        void submit( Runnable task ) {
+            synchronized ( this ) {
+                if ( closed ) {
+                    return;
+                }
+                running++;
+            }
+            POOL.execute( () -> {
+                try {
+                    task.run();
+                } catch ( Throwable t ) {
+                    fail( t );
+                } finally {
+                    synchronized ( this ) {
+                        running--;
+                        notifyAll();
+                    }
+                }
+            } );
+        }
+
+
+        /**
+         * Marks a partition as finished. Its rows are no longer needed by any exchange.
+         *
+         * @return whether this was the last partition
+         */
+        boolean finish( int partition ) {
+            finished.set( partition, 1 );
+            for ( int i = 0; i < degree; i++ ) {
+                if ( finished.get( i ) == 0 ) {
+                    return false;
+                }
+            }
+            synchronized ( this ) {
+                // Only one of the partitions finishing concurrently may report the end
+                if ( ended ) {
+                    return false;
+                }
+                ended = true;
+                return true;
+            }
+        }
+
+
+        boolean isFinished( int partition ) {
+            return finished.get( partition ) == 1;
+        }
+
+
+        @SuppressWarnings("unchecked")
+        <T> ExchangeBuffer<T> buffer( int id, Enumerable<T> input, RelDistribution.Type distribution, Function1<T, Object> key, String[] stores ) {
+            synchronized ( this ) {
+                ExchangeBuffer<T> buffer = (ExchangeBuffer<T>) buffers.get( id );
+                if ( buffer == null ) {
+                    final List<ReentrantLock> locks = new ArrayList<>( stores.length );
+                    for ( String store : stores ) {
+                        locks.add( storeLocks.computeIfAbsent( store, k -> new ReentrantLock() ) );
+                    }
+                    buffer = new ExchangeBuffer<>( this, locks );
+                    buffers.put( id, buffer );
+                    final ExchangeBuffer<T> started = buffer;
+                    submit( () -> started.produce( input, distribution, key ) );
+                }
+                return buffer;
+            }
+        }
+
+
+        void fail( Throwable t ) {
+            synchronized ( this ) {
+                if ( failure == null ) {
+                    failure = t;
+                }
+            }
+            closed = true;
+        }
+
+
+        void checkFailure() {
+            final Throwable t = failure;
+            if ( t != null ) {
+                Util.throwIfUnchecked( t );
+                throw new RuntimeException( t );
+            }
+        }
+
+
+        /**
+         * Adds an element to a queue, waiting while the queue is full.
+         *
+         * @param cancelled Whether the element is no longer needed
+         * @return whether the element has been added
+         */
+        boolean put( BlockingQueue<Object> queue, Object element, BooleanSupplier cancelled ) {
+            if ( queue.offer( element ) ) {
+                return true;
+            }
+            final Offer offer = new Offer( queue, element, () -> closed || cancelled.getAsBoolean() );
+            block( offer );
+            return offer.done;
+        }
+
+
+        /**
+         * Acquires a lock, waiting while it is held by another producer.
+         *
+         * @return whether the lock has been acquired; false if the context has been closed in the meantime
+         */
+        boolean lock( ReentrantLock lock ) {
+            if ( lock.tryLock() ) {
+                return true;
+            }
+            final boolean[] locked = { false };
+            block( new ManagedBlocker() {
+                @Override
+                public boolean block() throws InterruptedException {
+                    locked[0] = locked[0] || lock.tryLock( POLL_MILLIS, TimeUnit.MILLISECONDS );
+                    return isReleasable();
+                }
+
+
+                @Override
+                public boolean isReleasable() {
+                    return locked[0] || closed || (locked[0] = lock.tryLock());
+                }
+            } );
+            return locked[0];
+        }
+
+
+        /**
+         * Removes the next element from a queue, waiting while the queue is empty.
+         *
+         * @return the element, or null if the context has been closed
+         */
+        Object take( BlockingQueue<Object> queue ) {
+            final Object element = queue.poll();
+            if ( element != null ) {
+                return element;
+            }
+            final Poll poll = new Poll( queue, () -> closed );
+            block( poll );
+            return poll.element;
+        }
+
+
+        /**
+         * Stops all tasks and waits for them to finish, as they may still use resources of the statement.
+         */
+        void close() {
+            closed = true;
+            block( new ManagedBlocker() {
+                @Override
+                public boolean block() throws InterruptedException {
+                    synchronized ( ExchangeContext.this ) {
+                        if ( running > 0 ) {
+                            ExchangeContext.this.wait( POLL_MILLIS );
+                        }
+                        return running == 0;
+                    }
+                }
+
+
+                @Override
+                public boolean isReleasable() {
+                    synchronized ( ExchangeContext.this ) {
+                        return running == 0;
+                    }
+                }
+            } );
+        }
+
+
+        private static void block( ManagedBlocker blocker ) {
+            try {
+                ForkJoinPool.managedBlock( blocker );
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( "Interrupted while waiting for a parallel worker", e );
+            }
+        }
+
+    }
+
+
+    /**
+     * Queues of the partitions of one exchange and the producer filling them.
+     */
+    private static final class ExchangeBuffer<T> {
+
+        private static final int NEW = 0;
+        private static final int OPEN = 1;
+        private static final int CLOSED = 2;
+
+        private final ExchangeContext context;
+        private final List<BlockingQueue<Object>> queues = new ArrayList<>();
+        private final AtomicIntegerArray states;
+        // Locks of the stores read by the input, held by the producer while reading it
+        private final List<ReentrantLock> locks;
+        private final List<ReentrantLock> heldLocks = new ArrayList<>();
+        // Chunks which are delivered once the locks have been released
+        private final List<List<List<Object>>> pending = new ArrayList<>();
+        // Rows which are delivered once the locks have been released and which exceeded the memory budget
+        private final SpillFile[] spilled;
+        private long reserved = 0;
+        private boolean draining = false;
+
+
+        ExchangeBuffer( ExchangeContext context, List<ReentrantLock> locks ) {
+            this.context = context;
+            for ( int i = 0; i < context.degree; i++ ) {
+                queues.add( new ArrayBlockingQueue<>( QUEUE_CAPACITY ) );
+                pending.add( new ArrayList<>() );
+            }
+            this.spilled = new SpillFile[context.degree];
+            this.states = new AtomicIntegerArray( context.degree );
+            this.locks = locks;
+        }
+
+
+        Enumerator<T> open( int partition ) {
+            if ( !states.compareAndSet( partition, NEW, OPEN ) ) {
+                throw new IllegalStateException( "The rows of an exchange can only be read once per partition" );
+            }
+            return new QueueEnumerator<>( context, queues.get( partition ), () -> states.set( partition, CLOSED ) );
+        }
+
+
+        /**
+         * Whether the rows of the partition are no longer needed.
+         */
+        private boolean isAbandoned( int partition ) {
+            return states.get( partition ) == CLOSED || context.isFinished( partition );
+        }
+
+
+        /**
+         * Whether another producer waits for one of the locks held by this producer.
+         */
+        private boolean isContended() {
+            for ( ReentrantLock lock : heldLocks ) {
+                if ( lock.hasQueuedThreads() ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+
+        private void send( int partition, List<Object> chunk ) {
+            if ( isAbandoned( partition ) ) {
+                return;
+            }
+            if ( !draining ) {
+                if ( context.put( queues.get( partition ), chunk, () -> isAbandoned( partition ) || isContended() ) || isAbandoned( partition ) ) {
+                    return;
+                }
+                // Stop waiting for the consumers, they might wait for the producer waiting for the store
+                draining = true;
+            }
+            hold( partition, chunk );
+        }
+
+
+        /**
+         * Holds a chunk until the locks have been released, in memory as long as the budget allows it.
+         */
+        private void hold( int partition, List<Object> chunk ) {
+            final MemoryBudget budget = context.budget;
+            if ( budget != null && spilled[partition] == null ) {
+                final long size = MemoryBudget.estimateSize( chunk );
+                if ( budget.tryReserve( size ) ) {
+                    reserved += size;
+                } else {
+                    if ( Arrays.stream( spilled ).allMatch( Objects::isNull ) ) {
+                        budget.registerSpill();
+                        log.debug( "Rows held by an exchange exceed the memory budget of {} bytes. Spilling.", budget.getLimit() );
+                    }
+                    spilled[partition] = new SpillFile();
+                }
+            }
+            if ( spilled[partition] != null ) {
+                for ( Object row : chunk ) {
+                    spilled[partition].write( row );
+                }
+            } else {
+                pending.get( partition ).add( chunk );
+            }
+        }
+
+
+        /**
+         * Delivers the rows held while the locks were held.
+         */
+        private void sendHeld() {
+            try {
+                for ( int i = 0; i < context.degree; i++ ) {
+                    for ( List<Object> chunk : pending.get( i ) ) {
+                        send( i, chunk );
+                    }
+                    pending.get( i ).clear();
+                    if ( spilled[i] != null ) {
+                        try ( Enumerator<Object> enumerator = spilled[i].asEnumerable().enumerator() ) {
+                            List<Object> chunk = new ArrayList<>( CHUNK_SIZE );
+                            while ( !context.closed && enumerator.moveNext() ) {
+                                chunk.add( enumerator.current() );
+                                if ( chunk.size() == CHUNK_SIZE ) {
+                                    send( i, chunk );
+                                    chunk = new ArrayList<>( CHUNK_SIZE );
+                                }
+                            }
+                            if ( !chunk.isEmpty() ) {
+                                send( i, chunk );
+                            }
+                        }
+                    }
+                }
+            } finally {
+                releaseHeld();
+            }
+        }
+
+
+        private void releaseHeld() {
+            for ( int i = 0; i < context.degree; i++ ) {
+                pending.get( i ).clear();
+                if ( spilled[i] != null ) {
+                    spilled[i].close();
+                    spilled[i] = null;
+                }
+            }
+            if ( reserved > 0 ) {
+                context.budget.release( reserved );
+                reserved = 0;
+            }
+        }
+
+
+        void produce( Enumerable<T> input, RelDistribution.Type distribution, Function1<T, Object> key ) {
+            final int degree = context.degree;
+            final List<List<Object>> chunks = new ArrayList<>();
+            for ( int i = 0; i < degree; i++ ) {
+                chunks.add( new ArrayList<>( CHUNK_SIZE ) );
+            }
+            int next = 0;
+            // Always in the same order, so that producers reading from several stores cannot dead-lock
+            for ( ReentrantLock lock : locks ) {
+                if ( !context.lock( lock ) ) {
+                    // The context has been closed
+                    heldLocks.forEach( ReentrantLock::unlock );
+                    return;
+                }
+                heldLocks.add( lock );
+            }
+            try ( Enumerator<T> enumerator = input.enumerator() ) {
+                while ( !context.closed && enumerator.moveNext() ) {
+                    final T row = enumerator.current();
+                    final int partition;
+                    switch ( distribution ) {
+                        case HASH_DISTRIBUTED:
+                            final int hash = Objects.hashCode( key.apply( row ) );
+                            partition = Math.floorMod( hash ^ (hash >>> 16), degree );
+                            break;
+                        case BROADCAST_DISTRIBUTED:
+                            partition = 0;
+                            break;
+                        default:
+                            // Round-robin by chunk
+                            partition = next;
+                    }
+                    final List<Object> chunk = chunks.get( partition );
+                    chunk.add( row );
+                    if ( chunk.size() == CHUNK_SIZE ) {
+                        flush( distribution, partition, chunk );
+                        chunks.set( partition, new ArrayList<>( CHUNK_SIZE ) );
+                        next = (next + 1) % degree;
+                    }
+                }
+            } catch ( RuntimeException | Error e ) {
+                releaseHeld();
+                throw e;
+            } finally {
+                for ( ReentrantLock lock : heldLocks ) {
+                    lock.unlock();
+                }
+                heldLocks.clear();
+                draining = false;
+            }
+            sendHeld();
+            for ( int i = 0; i < degree; i++ ) {
+                if ( !chunks.get( i ).isEmpty() ) {
+                    flush( distribution, i, chunks.get( i ) );
+                }
+            }
+            for ( int i = 0; i < degree; i++ ) {
+                final int partition = i;
+                if ( !isAbandoned( partition ) ) {
+                    context.put( queues.get( partition ), END, () -> isAbandoned( partition ) );
+                }
+            }
+        }
+
+
+        private void flush( RelDistribution.Type distribution, int partition, List<Object> chunk ) {
+            if ( distribution == RelDistribution.Type.BROADCAST_DISTRIBUTED ) {
+                // All partitions share the same chunk; the rows are not modified by the consumers
+                for ( int i = 0; i < context.degree; i++ ) {
+                    send( i, chunk );
+                }
+            } else {
+                send( partition, chunk );
+            }
+        }
+
+    }
+
+
+    /**
+     * Enumerates the rows of the chunks in a queue.
+     */
+    private static final class QueueEnumerator<T> implements Enumerator<T> {
+
+        private final ExchangeContext context;
+        private final BlockingQueue<Object> queue;
+        private final Runnable onClose;
+        private List<Object> chunk = null;
+        private int index = 0;
+        private boolean done = false;
+
+
+        QueueEnumerator( ExchangeContext context, BlockingQueue<Object> queue, Runnable onClose ) {
+            this.context = context;
+            this.queue = queue;
+            this.onClose = onClose;
+        }
+
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T current() {
+            return (T) chunk.get( index );
+        }
+
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean moveNext() {
+            if ( chunk != null && index + 1 < chunk.size() ) {
+                index++;
+                return true;
+            }
+            while ( !done ) {
+                final Object element = context.take( queue );
+                context.checkFailure();
+                if ( element == null || element == END ) {
+                    done = true;
+                } else {
+                    chunk = (List<Object>) element;
+                    index = 0;
+                    if ( !chunk.isEmpty() ) {
+                        return true;
+                    }
+                }
+            }
+            chunk = null;
+            return false;
+        }
+
+
+        @Override
+        public void reset() {
+            throw new UnsupportedOperationException();
+        }
+
+
+        @Override
+        public void close() {
+            done = true;
+            chunk = null;
+            onClose.run();
+        }
+
+    }
+
+
+    /**
+     * Waits until an element can be added to a queue.
+     */
+    private static final class Offer implements ManagedBlocker {
+
+        private final BlockingQueue<Object> queue;
+        private final Object element;
+        private final BooleanSupplier cancelled;
+        private boolean done = false;
+
+
+        Offer( BlockingQueue<Object> queue, Object element, BooleanSupplier cancelled ) {
+            this.queue = queue;
+            this.element = element;
+            this.cancelled = cancelled;
+        }
+
+
+        @Override
+        public boolean block() throws InterruptedException {
+            done = done || queue.offer( element, POLL_MILLIS, TimeUnit.MILLISECONDS );
+            return isReleasable();
+        }
+
+
+        @Override
+        public boolean isReleasable() {
+            return done || cancelled.getAsBoolean() || (done = queue.offer( element ));
+        }
+
+    }
+
+
+    /**
+     * Waits until an element can be removed from a queue.
+     */
+    private static final class Poll implements ManagedBlocker {
+
+        private final BlockingQueue<Object> queue;
+        private final BooleanSupplier cancelled;
+        private Object element = null;
+
+
+        Poll( BlockingQueue<Object> queue, BooleanSupplier cancelled ) {
+            this.queue = queue;
+            this.cancelled = cancelled;
+        }
+
+
+        @Override
+        public boolean block() throws InterruptedException {
+            if ( element == null ) {
+                element = queue.poll( POLL_MILLIS, TimeUnit.MILLISECONDS );
+            }
+            return isReleasable();
+        }
+
+
+        @Override
+        public boolean isReleasable() {
+            return element != null || (element = queue.poll()) != null || cancelled.getAsBoolean();
+        }
+
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.Function0;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.Function2;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.config.RuntimeConfig;
+
+
+/**
+ * Runtime support for {@link org.polypheny.db.rel.core.ReductionJoin}.
+ */
+public final class ReductionJoins {
+
+    private ReductionJoins() {
+    }
+
+
+    /**
+     * Joins the build side with the rows of the probe side that match its keys.
+     *
+     * The build side is read completely before the probe side. If it has at most
+     * {@link RuntimeConfig#JOIN_REDUCTION_MAX_KEYS} distinct keys, the reduced probe input is evaluated once per batch
+     * of keys, with the keys bound to its dynamic parameters; otherwise the unreduced input is evaluated once.
+     *
+     * @param dataContext Data context which holds the dynamic parameters
+     * @param build Build side
+     * @param buildKey Extracts the key of a row of the build side; a list for composite keys
+     * @param probe Evaluates the reduced probe side with the parameters bound at the time of the call, or null if the
+     * probe side cannot be reduced
+     * @param unreduced Evaluates the unreduced probe side
+     * @param join Joins the left and the right side
+     * @param buildLeft Whether the build side is the left side of the join
+     * @param firstParameter Index of the first dynamic parameter of the reduced probe side
+     * @param keyCount Number of key fields
+     * @param batchSize Number of keys per evaluation of the reduced probe side
+     */
+    @SuppressWarnings("unchecked")
+    public static <B, P, R> Enumerable<R> join(
+            final DataContext dataContext,
+            final Enumerable<B> build,
+            final Function1<B, Object> buildKey,
+            final Function0<Enumerable<P>> probe,
+            final Function0<Enumerable<P>> unreduced,
+            final Function2<Enumerable, Enumerable, Enumerable<R>> join,
+            final boolean buildLeft,
+            final int firstParameter,
+            final int keyCount,
+            final int batchSize ) {
+        return new AbstractEnumerable<R>() {
+            @Override
+            public Enumerator<R> enumerator() {
+                final List<B> buildRows = build.toList();
+                final Enumerable<P> probeRows;
+                if ( probe == null || dataContext.getParameterValues().size() > 1 ) {
+                    probeRows = unreduced.apply();
+                } else {
+                    probeRows = reduce( dataContext, keys( buildRows, buildKey, keyCount ), probe, unreduced, firstParameter, keyCount, batchSize );
+                }
+                final Enumerable<R> result = buildLeft
+                        ? join.apply( Linq4j.asEnumerable( buildRows ), probeRows )
+                        : join.apply( probeRows, Linq4j.asEnumerable( buildRows ) );
+                return result.enumerator();
+            }
+        };
+    }
+
+
+    /**
+     * Returns the distinct keys of the rows, skipping keys with null values, as they do not match any row.
+     */
+    static <B> List<Object[]> keys( List<B> rows, Function1<B, Object> keySelector, int keyCount ) {
+        final Set<Object> keys = new LinkedHashSet<>();
+        for ( B row : rows ) {
+            keys.add( keySelector.apply( row ) );
+        }
+        final List<Object[]> result = new ArrayList<>( keys.size() );
+        keys:
+        for ( Object key : keys ) {
+            final Object[] values = keyCount == 1 ? new Object[]{ key } : ((List<?>) key).toArray();
+            for ( Object value : values ) {
+                if ( value == null ) {
+                    continue keys;
+                }
+            }
+            result.add( values );
+        }
+        return result;
+    }
+
+
+    static <P> Enumerable<P> reduce(
+            final DataContext dataContext,
+            final List<Object[]> keys,
+            final Function0<Enumerable<P>> probe,
+            final Function0<Enumerable<P>> unreduced,
+            final int firstParameter,
+            final int keyCount,
+            final int batchSize ) {
+        if ( keys.size() > RuntimeConfig.JOIN_REDUCTION_MAX_KEYS.getInteger() ) {
+            return unreduced.apply();
+        }
+        final List<Enumerable<P>> batches = new ArrayList<>();
+        for ( int start = 0; start < keys.size(); start += batchSize ) {
+            final int batchStart = start;
+            batches.add( new AbstractEnumerable<P>() {
+                @Override
+                public Enumerator<P> enumerator() {
+                    bind( dataContext, keys, batchStart, firstParameter, keyCount, batchSize );
+                    return probe.apply().enumerator();
+                }
+            } );
+        }
+        return Linq4j.concat( batches );
+    }
+
+
+    /**
+     * Binds a batch of keys to the dynamic parameters. A batch with fewer keys than the batch size repeats its last
+     * key, which does not change the result of the filter.
+     */
+    static void bind( DataContext dataContext, List<Object[]> keys, int start, int firstParameter, int keyCount, int batchSize ) {
+        final List<Map<Long, Object>> parameterValues = dataContext.getParameterValues();
+        if ( parameterValues.isEmpty() ) {
+            parameterValues.add( new HashMap<>() );
+        }
+        final Map<Long, Object> values = parameterValues.get( 0 );
+        for ( int i = 0; i < batchSize; i++ ) {
+            final Object[] key = keys.get( Math.min( start + i, keys.size() - 1 ) );
+            for ( int j = 0; j < keyCount; j++ ) {
+                values.put( (long) (firstParameter + i * keyCount + j), key[j] );
+            }
+        }
+    }
+
+}
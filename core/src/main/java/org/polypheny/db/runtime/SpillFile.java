@@ -0,0 +1,425 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.avatica.util.ByteString;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.polypheny.db.util.FileSystemManager;
+
+
+/**
+ * Temporary file holding rows spilled by an operator of the enumerable engine. Rows are appended and read back
+ * sequentially. The file is deleted when it is closed; files left behind by a previous run are deleted when the
+ * first spill file is created.
+ *
+ * Rows are stored in a compact binary format: every value is prefixed with a one byte type tag; integers and lengths
+ * are stored as variable-length integers. Values of other types than the ones produced by the enumerable engine are
+ * stored using Java serialization.
+ */
+@Slf4j
+public class SpillFile implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte INT = 5;
+    private static final byte LONG = 6;
+    private static final byte FLOAT = 7;
+    private static final byte DOUBLE = 8;
+    private static final byte CHAR = 9;
+    private static final byte STRING = 10;
+    private static final byte DECIMAL = 11;
+    private static final byte BYTES = 12;
+    private static final byte BYTE_STRING = 13;
+    private static final byte ARRAY = 14;
+    private static final byte LIST = 15;
+    private static final byte DATE = 16;
+    private static final byte TIME = 17;
+    private static final byte TIMESTAMP = 18;
+    private static final byte SERIALIZED = 19;
+
+    private static File folder;
+
+    private final File file;
+    private DataOutputStream out;
+    private final List<DataInputStream> readers = new ArrayList<>();
+    private long rowCount = 0;
+
+
+    public SpillFile() {
+        try {
+            file = File.createTempFile( "spill", ".bin", getFolder() );
+            out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file ), BUFFER_SIZE ) );
+        } catch ( IOException e ) {
+            throw new RuntimeException( "Unable to create spill file", e );
+        }
+    }
+
+
+    private static synchronized File getFolder() {
+        if ( folder == null ) {
+            // Remove spill files left behind by a previous run which was not shut down cleanly
+            FileSystemManager.getInstance().recursiveDeleteFolder( "tmp/spill" );
+            folder = FileSystemManager.getInstance().registerNewFolder( "tmp/spill" );
+        }
+        return folder;
+    }
+
+
+    public void write( Object row ) {
+        if ( out == null ) {
+            throw new IllegalStateException( "Spill file has already been read" );
+        }
+        try {
+            writeValue( out, row );
+        } catch ( IOException e ) {
+            throw new RuntimeException( "Unable to write to spill file", e );
+        }
+        rowCount++;
+    }
+
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+
+    /**
+     * Size of the file in bytes. Only available after writing has been finished.
+     */
+    public long getSize() {
+        return file.length();
+    }
+
+
+    /**
+     * Finishes writing and returns the rows of this file. The rows can be enumerated multiple times.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Enumerable<T> asEnumerable() {
+        finishWriting();
+        return new AbstractEnumerable<T>() {
+            @Override
+            public Enumerator<T> enumerator() {
+                return (Enumerator<T>) new SpillFileEnumerator();
+            }
+        };
+    }
+
+
+    private void finishWriting() {
+        if ( out != null ) {
+            try {
+                out.close();
+            } catch ( IOException e ) {
+                throw new RuntimeException( "Unable to write to spill file", e );
+            }
+            out = null;
+        }
+    }
+
+
+    @Override
+    public void close() {
+        try {
+            if ( out != null ) {
+                out.close();
+                out = null;
+            }
+            for ( DataInputStream reader : readers ) {
+                reader.close();
+            }
+            readers.clear();
+        } catch ( IOException e ) {
+            log.warn( "Unable to close spill file", e );
+        }
+        if ( !file.delete() ) {
+            log.warn( "Unable to delete spill file {}", file );
+        }
+    }
+
+
+    private class SpillFileEnumerator implements Enumerator<Object> {
+
+        private final DataInputStream in;
+        private long remaining = rowCount;
+        private Object current;
+
+
+        SpillFileEnumerator() {
+            try {
+                in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ), BUFFER_SIZE ) );
+            } catch ( IOException e ) {
+                throw new RuntimeException( "Unable to read spill file", e );
+            }
+            readers.add( in );
+        }
+
+
+        @Override
+        public Object current() {
+            return current;
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            if ( remaining == 0 ) {
+                return false;
+            }
+            try {
+                current = readValue( in );
+            } catch ( IOException | ClassNotFoundException e ) {
+                throw new RuntimeException( "Unable to read spill file", e );
+            }
+            remaining--;
+            return true;
+        }
+
+
+        @Override
+        public void reset() {
+            throw new UnsupportedOperationException();
+        }
+
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch ( IOException e ) {
+                log.warn( "Unable to close spill file", e );
+            }
+            readers.remove( in );
+        }
+
+    }
+
+
+    static void writeValue( DataOutputStream out, Object value ) throws IOException {
+        if ( value == null ) {
+            out.writeByte( NULL );
+        } else if ( value instanceof Object[] ) {
+            final Object[] array = (Object[]) value;
+            out.writeByte( ARRAY );
+            writeVarLong( out, array.length );
+            for ( Object o : array ) {
+                writeValue( out, o );
+            }
+        } else if ( value instanceof Integer ) {
+            out.writeByte( INT );
+            writeVarLong( out, (Integer) value );
+        } else if ( value instanceof Long ) {
+            out.writeByte( LONG );
+            writeVarLong( out, (Long) value );
+        } else if ( value instanceof String ) {
+            final byte[] bytes = ((String) value).getBytes( StandardCharsets.UTF_8 );
+            out.writeByte( STRING );
+            writeVarLong( out, bytes.length );
+            out.write( bytes );
+        } else if ( value instanceof Double ) {
+            out.writeByte( DOUBLE );
+            out.writeDouble( (Double) value );
+        } else if ( value instanceof Boolean ) {
+            out.writeByte( (Boolean) value ? TRUE : FALSE );
+        } else if ( value instanceof BigDecimal ) {
+            final BigDecimal decimal = (BigDecimal) value;
+            final byte[] unscaled = decimal.unscaledValue().toByteArray();
+            out.writeByte( DECIMAL );
+            writeVarLong( out, decimal.scale() );
+            writeVarLong( out, unscaled.length );
+            out.write( unscaled );
+        } else if ( value instanceof Short ) {
+            out.writeByte( SHORT );
+            writeVarLong( out, (Short) value );
+        } else if ( value instanceof Byte ) {
+            out.writeByte( BYTE );
+            out.writeByte( (Byte) value );
+        } else if ( value instanceof Float ) {
+            out.writeByte( FLOAT );
+            out.writeFloat( (Float) value );
+        } else if ( value instanceof Character ) {
+            out.writeByte( CHAR );
+            out.writeChar( (Character) value );
+        } else if ( value instanceof byte[] ) {
+            final byte[] bytes = (byte[]) value;
+            out.writeByte( BYTES );
+            writeVarLong( out, bytes.length );
+            out.write( bytes );
+        } else if ( value instanceof ByteString ) {
+            final byte[] bytes = ((ByteString) value).getBytes();
+            out.writeByte( BYTE_STRING );
+            writeVarLong( out, bytes.length );
+            out.write( bytes );
+        } else if ( value.getClass() == Date.class ) {
+            out.writeByte( DATE );
+            writeVarLong( out, ((Date) value).getTime() );
+        } else if ( value.getClass() == Time.class ) {
+            out.writeByte( TIME );
+            writeVarLong( out, ((Time) value).getTime() );
+        } else if ( value.getClass() == Timestamp.class ) {
+            out.writeByte( TIMESTAMP );
+            writeVarLong( out, ((Timestamp) value).getTime() );
+            writeVarLong( out, ((Timestamp) value).getNanos() );
+        } else if ( value instanceof List ) {
+            // Read back as array list
+            final List<?> list = (List<?>) value;
+            out.writeByte( LIST );
+            writeVarLong( out, list.size() );
+            for ( Object o : list ) {
+                writeValue( out, o );
+            }
+        } else if ( value instanceof Serializable ) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try ( ObjectOutputStream objectOut = new ObjectOutputStream( bytes ) ) {
+                objectOut.writeObject( value );
+            }
+            out.writeByte( SERIALIZED );
+            writeVarLong( out, bytes.size() );
+            bytes.writeTo( out );
+        } else {
+            throw new IllegalArgumentException( "Unable to spill value of type " + value.getClass().getName() );
+        }
+    }
+
+
+    static Object readValue( DataInputStream in ) throws IOException, ClassNotFoundException {
+        final byte tag = in.readByte();
+        switch ( tag ) {
+            case NULL:
+                return null;
+            case TRUE:
+                return true;
+            case FALSE:
+                return false;
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return (short) readVarLong( in );
+            case INT:
+                return (int) readVarLong( in );
+            case LONG:
+                return readVarLong( in );
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case CHAR:
+                return in.readChar();
+            case STRING:
+                return new String( readBytes( in ), StandardCharsets.UTF_8 );
+            case DECIMAL:
+                final int scale = (int) readVarLong( in );
+                return new BigDecimal( new BigInteger( readBytes( in ) ), scale );
+            case BYTES:
+                return readBytes( in );
+            case BYTE_STRING:
+                return new ByteString( readBytes( in ) );
+            case ARRAY:
+                final Object[] array = new Object[(int) readVarLong( in )];
+                for ( int i = 0; i < array.length; i++ ) {
+                    array[i] = readValue( in );
+                }
+                return array;
+            case LIST:
+                final int size = (int) readVarLong( in );
+                final List<Object> list = new ArrayList<>( size );
+                for ( int i = 0; i < size; i++ ) {
+                    list.add( readValue( in ) );
+                }
+                return list;
+            case DATE:
+                return new Date( readVarLong( in ) );
+            case TIME:
+                return new Time( readVarLong( in ) );
+            case TIMESTAMP:
+                final Timestamp timestamp = new Timestamp( readVarLong( in ) );
+                timestamp.setNanos( (int) readVarLong( in ) );
+                return timestamp;
+            case SERIALIZED:
+                try ( ObjectInputStream objectIn = new ObjectInputStream( new ByteArrayInputStream( readBytes( in ) ) ) ) {
+                    return objectIn.readObject();
+                }
+            default:
+                throw new IOException( "Corrupt spill file: unknown type tag " + tag );
+        }
+    }
+
+
+    private static byte[] readBytes( DataInputStream in ) throws IOException {
+        final byte[] bytes = new byte[(int) readVarLong( in )];
+        in.readFully( bytes );
+        return bytes;
+    }
+
+
+    /**
+     * Writes a zigzag encoded variable-length integer: small absolute values take few bytes.
+     */
+    private static void writeVarLong( DataOutputStream out, long value ) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ( (v & ~0x7FL) != 0 ) {
+            out.writeByte( (int) ((v & 0x7F) | 0x80) );
+            v >>>= 7;
+        }
+        out.writeByte( (int) v );
+    }
+
+
+    private static long readVarLong( DataInputStream in ) throws IOException {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ( (b & 0x80) != 0 );
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+}
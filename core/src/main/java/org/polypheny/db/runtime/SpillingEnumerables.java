@@ -0,0 +1,777 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime;
+
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.EnumerableDefaults;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.EqualityComparer;
+import org.apache.calcite.linq4j.function.Function0;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.Function2;
+import org.polypheny.db.adapter.DataContext;
+
+
+/**
+ * Memory-bounded join, sort and aggregation for the enumerable engine. As long as the rows fit into the
+ * {@link MemoryBudget} of the query, the operators behave like their in-memory counterparts in linq4j. Otherwise they
+ * spill to temporary files (see {@link SpillFile}):
+ *
+ * <ul>
+ * <li>Join: Grace hash join. Both inputs are partitioned by the hash of the join key and the partitions are joined one
+ * after another. Partitions which still do not fit are partitioned again.</li>
+ * <li>Sort: External merge sort. Whenever the buffer is full, it is sorted and written as a run. The runs are merged
+ * at the end.</li>
+ * <li>Aggregation: Hybrid hash aggregation. Groups which fit are aggregated in memory; the rows of all other groups
+ * are partitioned by the hash of the group key and aggregated partition by partition.</li>
+ * </ul>
+ *
+ * Unlike the in-memory join, a join which spills does not preserve the order of its left input.
+ */
+@Slf4j
+public final class SpillingEnumerables {
+
+    static final int PARTITIONS = 32;
+    // Partitions which do not fit at this depth are processed in memory regardless of the budget
+    static final int MAX_DEPTH = 4;
+    static final int MERGE_FAN_IN = 64;
+    // Estimated overhead of a row held in a list or hash table
+    private static final long ROW_OVERHEAD = 32;
+
+
+    private SpillingEnumerables() {
+        // Utility class
+    }
+
+
+    /**
+     * Hash join, building the hash table on the inner input. Same semantics as
+     * {@link EnumerableDefaults#join(Enumerable, Enumerable, Function1, Function1, Function2, EqualityComparer, boolean, boolean)}.
+     */
+    public static <TSource, TInner, TKey, TResult> Enumerable<TResult> join(
+            final DataContext root,
+            final Enumerable<TSource> outer,
+            final Enumerable<TInner> inner,
+            final Function1<TSource, TKey> outerKeySelector,
+            final Function1<TInner, TKey> innerKeySelector,
+            final Function2<TSource, TInner, TResult> resultSelector,
+            final EqualityComparer<TKey> comparer,
+            final boolean generateNullsOnLeft,
+            final boolean generateNullsOnRight ) {
+        return join( MemoryBudget.of( root ), outer, inner, outerKeySelector, innerKeySelector, resultSelector, comparer, generateNullsOnLeft, generateNullsOnRight, 0 );
+    }
+
+
+    static <TSource, TInner, TKey, TResult> Enumerable<TResult> join(
+            final MemoryBudget budget,
+            final Enumerable<TSource> outer,
+            final Enumerable<TInner> inner,
+            final Function1<TSource, TKey> outerKeySelector,
+            final Function1<TInner, TKey> innerKeySelector,
+            final Function2<TSource, TInner, TResult> resultSelector,
+            final EqualityComparer<TKey> comparer,
+            final boolean generateNullsOnLeft,
+            final boolean generateNullsOnRight,
+            final int depth ) {
+        return new AbstractEnumerable<TResult>() {
+            @Override
+            public Enumerator<TResult> enumerator() {
+                return joinEnumerator( budget, outer, inner, outerKeySelector, innerKeySelector, resultSelector, comparer, generateNullsOnLeft, generateNullsOnRight, depth );
+            }
+        };
+    }
+
+
+    private static <TSource, TInner, TKey, TResult> Enumerator<TResult> joinEnumerator(
+            final MemoryBudget budget,
+            final Enumerable<TSource> outer,
+            final Enumerable<TInner> inner,
+            final Function1<TSource, TKey> outerKeySelector,
+            final Function1<TInner, TKey> innerKeySelector,
+            final Function2<TSource, TInner, TResult> resultSelector,
+            final EqualityComparer<TKey> comparer,
+            final boolean generateNullsOnLeft,
+            final boolean generateNullsOnRight,
+            final int depth ) {
+        final List<TInner> buffer = new ArrayList<>();
+        long reserved = 0;
+        final SpillFile[] innerPartitions;
+        final long innerRows;
+        try ( Enumerator<TInner> innerEnumerator = inner.enumerator() ) {
+            boolean fits = true;
+            while ( innerEnumerator.moveNext() ) {
+                final TInner row = innerEnumerator.current();
+                buffer.add( row );
+                if ( depth < MAX_DEPTH ) {
+                    final long size = MemoryBudget.estimateSize( row ) + ROW_OVERHEAD;
+                    if ( !budget.tryReserve( size ) ) {
+                        fits = false;
+                        break;
+                    }
+                    reserved += size;
+                }
+            }
+            if ( fits ) {
+                final long reservedBytes = reserved;
+                final Enumerator<TResult> enumerator = EnumerableDefaults.join(
+                        outer,
+                        Linq4j.asEnumerable( buffer ),
+                        outerKeySelector,
+                        innerKeySelector,
+                        resultSelector,
+                        comparer,
+                        generateNullsOnLeft,
+                        generateNullsOnRight ).enumerator();
+                return new ClosingEnumerator<>( enumerator, () -> budget.release( reservedBytes ) );
+            }
+
+            // Does not fit: partition the inner input, starting with the rows read so far
+            budget.registerSpill();
+            log.debug( "Join exceeds the memory budget of {} bytes. Spilling at depth {}.", budget.getLimit(), depth );
+            innerPartitions = createPartitions();
+            try {
+                long count = 0;
+                for ( TInner row : buffer ) {
+                    innerPartitions[partition( innerKeySelector.apply( row ), comparer, depth )].write( row );
+                    count++;
+                }
+                buffer.clear();
+                budget.release( reserved );
+                while ( innerEnumerator.moveNext() ) {
+                    final TInner row = innerEnumerator.current();
+                    innerPartitions[partition( innerKeySelector.apply( row ), comparer, depth )].write( row );
+                    count++;
+                }
+                innerRows = count;
+            } catch ( RuntimeException e ) {
+                closeAll( innerPartitions );
+                throw e;
+            }
+        }
+
+        // Partition the outer input. Rows without join partner are only kept if they are part of the result.
+        final SpillFile[] outerPartitions = createPartitions();
+        try ( Enumerator<TSource> outerEnumerator = outer.enumerator() ) {
+            while ( outerEnumerator.moveNext() ) {
+                final TSource row = outerEnumerator.current();
+                final int p = partition( outerKeySelector.apply( row ), comparer, depth );
+                if ( generateNullsOnRight || innerPartitions[p].getRowCount() > 0 ) {
+                    outerPartitions[p].write( row );
+                }
+            }
+        } catch ( RuntimeException e ) {
+            closeAll( innerPartitions );
+            closeAll( outerPartitions );
+            throw e;
+        }
+
+        // Join the partitions one after another
+        final List<Part<TResult>> parts = new ArrayList<>();
+        for ( int p = 0; p < PARTITIONS; p++ ) {
+            final SpillFile innerPartition = innerPartitions[p];
+            final SpillFile outerPartition = outerPartitions[p];
+            // If all rows ended up in the same partition, the keys are equal and partitioning again is pointless
+            final int nextDepth = innerPartition.getRowCount() == innerRows ? MAX_DEPTH : depth + 1;
+            parts.add( new Part<>(
+                    () -> SpillingEnumerables.<TSource, TInner, TKey, TResult>join(
+                            budget,
+                            outerPartition.asEnumerable(),
+                            innerPartition.asEnumerable(),
+                            outerKeySelector,
+                            innerKeySelector,
+                            resultSelector,
+                            comparer,
+                            generateNullsOnLeft,
+                            generateNullsOnRight,
+                            nextDepth ).enumerator(),
+                    innerPartition,
+                    outerPartition ) );
+        }
+        return new PartsEnumerator<>( parts );
+    }
+
+
+    /**
+     * Sorts the rows by the given key. The sort is stable. Same semantics as
+     * {@link EnumerableDefaults#orderBy(Enumerable, Function1, Comparator)}.
+     *
+     * @param comparator Comparator of the keys; if null, the keys are compared using their natural order
+     */
+    public static <TSource, TKey> Enumerable<TSource> orderBy(
+            final DataContext root,
+            final Enumerable<TSource> source,
+            final Function1<TSource, TKey> keySelector,
+            final Comparator<TKey> comparator ) {
+        return orderBy( MemoryBudget.of( root ), source, keySelector, comparator );
+    }
+
+
+    @SuppressWarnings("unchecked")
+    static <TSource, TKey> Enumerable<TSource> orderBy(
+            final MemoryBudget budget,
+            final Enumerable<TSource> source,
+            final Function1<TSource, TKey> keySelector,
+            final Comparator<TKey> comparator ) {
+        final Comparator<TKey> keyComparator = comparator != null ? comparator : (Comparator<TKey>) Comparator.naturalOrder();
+        return new AbstractEnumerable<TSource>() {
+            @Override
+            public Enumerator<TSource> enumerator() {
+                return orderByEnumerator( budget, source, keySelector, keyComparator );
+            }
+        };
+    }
+
+
+    private static <TSource, TKey> Enumerator<TSource> orderByEnumerator(
+            final MemoryBudget budget,
+            final Enumerable<TSource> source,
+            final Function1<TSource, TKey> keySelector,
+            final Comparator<TKey> keyComparator ) {
+        final Comparator<SortEntry<TSource, TKey>> entryComparator = ( a, b ) -> keyComparator.compare( a.key, b.key );
+        final List<SortEntry<TSource, TKey>> buffer = new ArrayList<>();
+        final List<SpillFile> runs = new ArrayList<>();
+        long reserved = 0;
+        try ( Enumerator<TSource> enumerator = source.enumerator() ) {
+            while ( enumerator.moveNext() ) {
+                final TSource row = enumerator.current();
+                final TKey key = keySelector.apply( row );
+                final long size = MemoryBudget.estimateSize( row ) + MemoryBudget.estimateSize( key ) + ROW_OVERHEAD;
+                boolean ok = budget.tryReserve( size );
+                if ( !ok && !buffer.isEmpty() ) {
+                    // Write the buffer as sorted run
+                    if ( runs.isEmpty() ) {
+                        budget.registerSpill();
+                        log.debug( "Sort exceeds the memory budget of {} bytes. Spilling.", budget.getLimit() );
+                    }
+                    buffer.sort( entryComparator );
+                    final SpillFile run = new SpillFile();
+                    runs.add( run );
+                    for ( SortEntry<TSource, TKey> entry : buffer ) {
+                        run.write( entry.row );
+                    }
+                    buffer.clear();
+                    budget.release( reserved );
+                    reserved = 0;
+                    ok = budget.tryReserve( size );
+                }
+                if ( ok ) {
+                    reserved += size;
+                }
+                buffer.add( new SortEntry<>( key, row ) );
+            }
+        } catch ( RuntimeException e ) {
+            budget.release( reserved );
+            closeAll( runs );
+            throw e;
+        }
+
+        buffer.sort( entryComparator );
+        final long reservedBytes = reserved;
+        final Enumerator<TSource> memoryRun = Linq4j.transform( Linq4j.enumerator( buffer ), entry -> entry.row );
+        if ( runs.isEmpty() ) {
+            return new ClosingEnumerator<>( memoryRun, () -> budget.release( reservedBytes ) );
+        }
+
+        try {
+            // Merge runs until all of them can be merged at once
+            while ( runs.size() + 1 > MERGE_FAN_IN ) {
+                final List<SpillFile> merged = new ArrayList<>();
+                for ( int i = 0; i < runs.size(); i += MERGE_FAN_IN ) {
+                    final List<SpillFile> group = runs.subList( i, Math.min( i + MERGE_FAN_IN, runs.size() ) );
+                    final List<Enumerator<TSource>> inputs = new ArrayList<>();
+                    for ( SpillFile run : group ) {
+                        inputs.add( run.<TSource>asEnumerable().enumerator() );
+                    }
+                    final SpillFile run = new SpillFile();
+                    merged.add( run );
+                    try ( Enumerator<TSource> merge = new MergeEnumerator<>( inputs, keySelector, keyComparator ) ) {
+                        while ( merge.moveNext() ) {
+                            run.write( merge.current() );
+                        }
+                    }
+                    closeAll( group );
+                }
+                runs.clear();
+                runs.addAll( merged );
+            }
+        } catch ( RuntimeException e ) {
+            budget.release( reservedBytes );
+            closeAll( runs );
+            throw e;
+        }
+
+        // The rows still in memory are the last run
+        final List<Enumerator<TSource>> inputs = new ArrayList<>();
+        for ( SpillFile run : runs ) {
+            inputs.add( run.<TSource>asEnumerable().enumerator() );
+        }
+        inputs.add( memoryRun );
+        return new ClosingEnumerator<>( new MergeEnumerator<>( inputs, keySelector, keyComparator ), () -> {
+            budget.release( reservedBytes );
+            closeAll( runs );
+        } );
+    }
+
+
+    /**
+     * Groups the rows by key and aggregates each group. Same semantics as
+     * {@link EnumerableDefaults#groupBy(Enumerable, Function1, Function0, Function2, Function2, EqualityComparer)}.
+     *
+     * @param comparer Comparer of the keys; if null, the keys are compared using equals and hashCode
+     */
+    public static <TSource, TKey, TAccumulate, TResult> Enumerable<TResult> groupBy(
+            final DataContext root,
+            final Enumerable<TSource> source,
+            final Function1<TSource, TKey> keySelector,
+            final Function0<TAccumulate> accumulatorInitializer,
+            final Function2<TAccumulate, TSource, TAccumulate> accumulatorAdder,
+            final Function2<TKey, TAccumulate, TResult> resultSelector,
+            final EqualityComparer<TKey> comparer ) {
+        return groupBy( MemoryBudget.of( root ), source, keySelector, accumulatorInitializer, accumulatorAdder, resultSelector, comparer, 0 );
+    }
+
+
+    static <TSource, TKey, TAccumulate, TResult> Enumerable<TResult> groupBy(
+            final MemoryBudget budget,
+            final Enumerable<TSource> source,
+            final Function1<TSource, TKey> keySelector,
+            final Function0<TAccumulate> accumulatorInitializer,
+            final Function2<TAccumulate, TSource, TAccumulate> accumulatorAdder,
+            final Function2<TKey, TAccumulate, TResult> resultSelector,
+            final EqualityComparer<TKey> comparer,
+            final int depth ) {
+        return new AbstractEnumerable<TResult>() {
+            @Override
+            public Enumerator<TResult> enumerator() {
+                return groupByEnumerator( budget, source, keySelector, accumulatorInitializer, accumulatorAdder, resultSelector, comparer, depth );
+            }
+        };
+    }
+
+
+    private static <TSource, TKey, TAccumulate, TResult> Enumerator<TResult> groupByEnumerator(
+            final MemoryBudget budget,
+            final Enumerable<TSource> source,
+            final Function1<TSource, TKey> keySelector,
+            final Function0<TAccumulate> accumulatorInitializer,
+            final Function2<TAccumulate, TSource, TAccumulate> accumulatorAdder,
+            final Function2<TKey, TAccumulate, TResult> resultSelector,
+            final EqualityComparer<TKey> comparer,
+            final int depth ) {
+        final Map<Object, Group<TKey, TAccumulate>> groups = new HashMap<>();
+        SpillFile[] partitions = null;
+        long reserved = 0;
+        try ( Enumerator<TSource> enumerator = source.enumerator() ) {
+            while ( enumerator.moveNext() ) {
+                final TSource row = enumerator.current();
+                final TKey key = keySelector.apply( row );
+                final Object mapKey = comparer == null ? key : new Wrapped<>( comparer, key );
+                Group<TKey, TAccumulate> group = groups.get( mapKey );
+                if ( group == null && partitions == null ) {
+                    // The size of the accumulator is not known; the size of the row serves as estimate
+                    final long size = MemoryBudget.estimateSize( key ) + MemoryBudget.estimateSize( row ) + 2 * ROW_OVERHEAD;
+                    if ( depth >= MAX_DEPTH ) {
+                        group = new Group<>( key, accumulatorInitializer.apply() );
+                        groups.put( mapKey, group );
+                    } else if ( budget.tryReserve( size ) ) {
+                        reserved += size;
+                        group = new Group<>( key, accumulatorInitializer.apply() );
+                        groups.put( mapKey, group );
+                    } else {
+                        // From now on, rows of groups which are not in memory are spilled. No new groups are
+                        // created, even if memory is released in the meantime; otherwise a group could be split.
+                        budget.registerSpill();
+                        log.debug( "Aggregation exceeds the memory budget of {} bytes. Spilling at depth {}.", budget.getLimit(), depth );
+                        partitions = createPartitions();
+                    }
+                }
+                if ( group == null ) {
+                    partitions[partition( key, comparer, depth )].write( row );
+                } else {
+                    group.accumulator = accumulatorAdder.apply( group.accumulator, row );
+                }
+            }
+        } catch ( RuntimeException e ) {
+            budget.release( reserved );
+            if ( partitions != null ) {
+                closeAll( partitions );
+            }
+            throw e;
+        }
+
+        final long reservedBytes = reserved;
+        final List<Part<TResult>> parts = new ArrayList<>();
+        parts.add( new Part<>( () -> new ClosingEnumerator<>(
+                Linq4j.transform( Linq4j.iterableEnumerator( groups.values() ), group -> resultSelector.apply( group.key, group.accumulator ) ),
+                () -> {
+                    groups.clear();
+                    budget.release( reservedBytes );
+                } ) ) );
+        if ( partitions != null ) {
+            for ( SpillFile partition : partitions ) {
+                parts.add( new Part<>(
+                        () -> SpillingEnumerables.<TSource, TKey, TAccumulate, TResult>groupBy(
+                                budget,
+                                partition.asEnumerable(),
+                                keySelector,
+                                accumulatorInitializer,
+                                accumulatorAdder,
+                                resultSelector,
+                                comparer,
+                                depth + 1 ).enumerator(),
+                        partition ) );
+            }
+        }
+        return new PartsEnumerator<>( parts );
+    }
+
+
+    /**
+     * Returns the partition of a key. The depth is mixed into the hash, so that a partition is split when it is
+     * partitioned again. Null keys go to the first partition.
+     */
+    static <TKey> int partition( TKey key, EqualityComparer<TKey> comparer, int depth ) {
+        if ( key == null ) {
+            return 0;
+        }
+        int h = comparer == null ? key.hashCode() : comparer.hashCode( key );
+        h ^= depth * 0x9E3779B9;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 16;
+        return Math.floorMod( h, PARTITIONS );
+    }
+
+
+    private static SpillFile[] createPartitions() {
+        final SpillFile[] partitions = new SpillFile[PARTITIONS];
+        for ( int i = 0; i < PARTITIONS; i++ ) {
+            partitions[i] = new SpillFile();
+        }
+        return partitions;
+    }
+
+
+    private static void closeAll( SpillFile[] files ) {
+        for ( SpillFile file : files ) {
+            file.close();
+        }
+    }
+
+
+    private static void closeAll( List<SpillFile> files ) {
+        for ( SpillFile file : files ) {
+            file.close();
+        }
+    }
+
+
+    /**
+     * Part of the result of an operator. The files are deleted once the part has been enumerated.
+     */
+    private static class Part<T> {
+
+        private final Supplier<Enumerator<T>> enumerator;
+        private final SpillFile[] files;
+
+
+        Part( Supplier<Enumerator<T>> enumerator, SpillFile... files ) {
+            this.enumerator = enumerator;
+            this.files = files;
+        }
+
+    }
+
+
+    /**
+     * Enumerates the parts one after another. A part is only opened once the previous one has been closed.
+     */
+    private static class PartsEnumerator<T> implements Enumerator<T> {
+
+        private final Iterator<Part<T>> parts;
+        private final List<Part<T>> remaining;
+        private Part<T> part;
+        private Enumerator<T> current;
+
+
+        PartsEnumerator( List<Part<T>> parts ) {
+            this.remaining = new ArrayList<>( parts );
+            this.parts = this.remaining.iterator();
+        }
+
+
+        @Override
+        public T current() {
+            return current.current();
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            while ( true ) {
+                if ( current != null ) {
+                    if ( current.moveNext() ) {
+                        return true;
+                    }
+                    closePart();
+                }
+                if ( !parts.hasNext() ) {
+                    return false;
+                }
+                part = parts.next();
+                parts.remove();
+                current = part.enumerator.get();
+            }
+        }
+
+
+        private void closePart() {
+            try {
+                if ( current != null ) {
+                    current.close();
+                }
+            } finally {
+                current = null;
+                if ( part != null ) {
+                    closeAll( part.files );
+                    part = null;
+                }
+            }
+        }
+
+
+        @Override
+        public void reset() {
+            throw new UnsupportedOperationException();
+        }
+
+
+        @Override
+        public void close() {
+            closePart();
+            for ( Part<T> p : remaining ) {
+                closeAll( p.files );
+            }
+            remaining.clear();
+        }
+
+    }
+
+
+    /**
+     * Merges sorted inputs. Rows with equal keys are returned in the order of the inputs, which keeps the sort stable.
+     */
+    private static class MergeEnumerator<TSource, TKey> implements Enumerator<TSource> {
+
+        private final List<Enumerator<TSource>> inputs;
+        private final Function1<TSource, TKey> keySelector;
+        private final PriorityQueue<MergeInput<TSource, TKey>> queue;
+        private MergeInput<TSource, TKey> current;
+
+
+        MergeEnumerator( List<Enumerator<TSource>> inputs, Function1<TSource, TKey> keySelector, Comparator<TKey> keyComparator ) {
+            this.inputs = inputs;
+            this.keySelector = keySelector;
+            this.queue = new PriorityQueue<>( Math.max( 1, inputs.size() ), ( a, b ) -> {
+                final int c = keyComparator.compare( a.key, b.key );
+                return c != 0 ? c : Integer.compare( a.index, b.index );
+            } );
+            for ( int i = 0; i < inputs.size(); i++ ) {
+                final MergeInput<TSource, TKey> input = new MergeInput<>( inputs.get( i ), i );
+                if ( input.advance( keySelector ) ) {
+                    queue.add( input );
+                }
+            }
+        }
+
+
+        @Override
+        public TSource current() {
+            return current.row;
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            if ( current != null && current.advance( keySelector ) ) {
+                queue.add( current );
+            }
+            current = queue.poll();
+            return current != null;
+        }
+
+
+        @Override
+        public void reset() {
+            throw new UnsupportedOperationException();
+        }
+
+
+        @Override
+        public void close() {
+            for ( Enumerator<TSource> input : inputs ) {
+                input.close();
+            }
+        }
+
+    }
+
+
+    private static class MergeInput<TSource, TKey> {
+
+        private final Enumerator<TSource> enumerator;
+        private final int index;
+        private TSource row;
+        private TKey key;
+
+
+        MergeInput( Enumerator<TSource> enumerator, int index ) {
+            this.enumerator = enumerator;
+            this.index = index;
+        }
+
+
+        boolean advance( Function1<TSource, TKey> keySelector ) {
+            if ( !enumerator.moveNext() ) {
+                return false;
+            }
+            row = enumerator.current();
+            key = keySelector.apply( row );
+            return true;
+        }
+
+    }
+
+
+    /**
+     * Enumerator which runs an action (e.g. releasing memory) when it is closed.
+     */
+    private static class ClosingEnumerator<T> implements Enumerator<T> {
+
+        private final Enumerator<T> enumerator;
+        private Runnable onClose;
+
+
+        ClosingEnumerator( Enumerator<T> enumerator, Runnable onClose ) {
+            this.enumerator = enumerator;
+            this.onClose = onClose;
+        }
+
+
+        @Override
+        public T current() {
+            return enumerator.current();
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            return enumerator.moveNext();
+        }
+
+
+        @Override
+        public void reset() {
+            throw new UnsupportedOperationException();
+        }
+
+
+        @Override
+        public void close() {
+            try {
+                enumerator.close();
+            } finally {
+                if ( onClose != null ) {
+                    onClose.run();
+                    onClose = null;
+                }
+            }
+        }
+
+    }
+
+
+    private static class SortEntry<TSource, TKey> {
+
+        private final TKey key;
+        private final TSource row;
+
+
+        SortEntry( TKey key, TSource row ) {
+            this.key = key;
+            this.row = row;
+        }
+
+    }
+
+
+    private static class Group<TKey, TAccumulate> {
+
+        private final TKey key;
+        private TAccumulate accumulator;
+
+
+        Group( TKey key, TAccumulate accumulator ) {
+            this.key = key;
+            this.accumulator = accumulator;
+        }
+
+    }
+
+
+    /**
+     * Key of the hash table of an aggregation with a custom comparer.
+     */
+    private static class Wrapped<T> {
+
+        private final EqualityComparer<T> comparer;
+        private final T element;
+
+
+        Wrapped( EqualityComparer<T> comparer, T element ) {
+            this.comparer = comparer;
+            this.element = element;
+        }
+
+
+        @Override
+        public int hashCode() {
+            return element == null ? 0 : comparer.hashCode( element );
+        }
+
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean equals( Object obj ) {
+            return obj instanceof Wrapped && comparer.equal( element, ((Wrapped<T>) obj).element );
+        }
+
+    }
+
+}
@@ -165,16 +165,19 @@ private SqlFunctions() {
     @SuppressWarnings({ "rawtypes", "unchecked" })
     public static double distance( List value, List target, String metric, List weights ) {
         DistanceFunctions.verifyInputs( value, target, weights );
+        final double[] v = DistanceFunctions.toDoubleArray( value );
+        final double[] t = DistanceFunctions.toDoubleArray( target );
+        final double[] w = DistanceFunctions.toDoubleArray( weights );
         if ( "L2".equals( metric ) ) {
-            return DistanceFunctions.l2MetricWeighted( value, target, weights );
+            return DistanceFunctions.l2MetricWeighted( v, t, w );
         } else if ( "L1".equals( metric ) ) {
-            return DistanceFunctions.l1MetricWeighted( value, target, weights );
+            return DistanceFunctions.l1MetricWeighted( v, t, w );
         } else if ( "L2SQUARED".equals( metric ) ) {
-            return DistanceFunctions.l2SquaredMetricWeighted( value, target, weights );
+            return DistanceFunctions.l2SquaredMetricWeighted( v, t, w );
         } else if ( "CHISQUARED".equals( metric ) ) {
-            return DistanceFunctions.chiSquaredMetricWeighted( value, target, weights );
+            return DistanceFunctions.chiSquaredMetricWeighted( v, t, w );
         } else if ( "COSINE".equals( metric ) ) {
-            return DistanceFunctions.cosineMetricWeighted( value, target, weights );
+            return DistanceFunctions.cosineMetricWeighted( v, t, w );
         } else {
             return 0.0;
         }
@@ -184,16 +187,29 @@ public static double distance( List value, List target, String metric, List weig
     @SuppressWarnings({ "rawtypes", "unchecked" })
     public static double distance( List value, List target, String metric ) {
         DistanceFunctions.verifyInputs( value, target, null );
+        final double[] t = DistanceFunctions.toDoubleArray( target );
+        if ( value instanceof FloatArrayList ) {
+            // Avoid widening the whole vector for the most common metrics
+            final float[] v = ((FloatArrayList) value).getArray();
+            if ( "L2".equals( metric ) ) {
+                return DistanceFunctions.l2Metric( v, t );
+            } else if ( "L1".equals( metric ) ) {
+                return DistanceFunctions.l1Metric( v, t );
+            } else if ( "L2SQUARED".equals( metric ) ) {
+                return DistanceFunctions.l2SquaredMetric( v, t );
+            }
+        }
+        final double[] v = DistanceFunctions.toDoubleArray( value );
         if ( "L2".equals( metric ) ) {
-            return DistanceFunctions.l2Metric( value, target );
+            return DistanceFunctions.l2Metric( v, t );
         } else if ( "L1".equals( metric ) ) {
-            return DistanceFunctions.l1Metric( value, target );
+            return DistanceFunctions.l1Metric( v, t );
         } else if ( "L2SQUARED".equals( metric ) ) {
-            return DistanceFunctions.l2SquaredMetric( value, target );
+            return DistanceFunctions.l2SquaredMetric( v, t );
         } else if ( "CHISQUARED".equals( metric ) ) {
-            return DistanceFunctions.chiSquaredMetric( value, target );
+            return DistanceFunctions.chiSquaredMetric( v, t );
         } else if ( "COSINE".equals( metric ) ) {
-            return DistanceFunctions.cosineMetric( value, target );
+            return DistanceFunctions.cosineMetric( v, t );
         } else {
             return 0.0;
         }
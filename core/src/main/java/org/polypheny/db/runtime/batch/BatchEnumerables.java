@@ -0,0 +1,555 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime.batch;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.polypheny.db.adapter.DataContext;
+
+
+/**
+ * Operators of the batch convention. The operators exchange {@link ColumnBatch}es instead of rows; the per-row work is
+ * done by the kernels of the {@link VectorExpression}s.
+ */
+public final class BatchEnumerables {
+
+    private BatchEnumerables() {
+        // Utility class
+    }
+
+
+    /**
+     * Converts rows of the enumerable engine into batches.
+     */
+    public static Enumerable<ColumnBatch> toBatches( final Enumerable<Object[]> rows, final VectorKind[] kinds ) {
+        return new AbstractEnumerable<ColumnBatch>() {
+            @Override
+            public Enumerator<ColumnBatch> enumerator() {
+                return new BatchingEnumerator( rows.enumerator(), kinds );
+            }
+        };
+    }
+
+
+    /**
+     * Converts batches into rows of the enumerable engine.
+     */
+    public static Enumerable<Object[]> toRows( final Enumerable<ColumnBatch> batches ) {
+        return new AbstractEnumerable<Object[]>() {
+            @Override
+            public Enumerator<Object[]> enumerator() {
+                return new RowEnumerator( batches.enumerator() );
+            }
+        };
+    }
+
+
+    /**
+     * Narrows the selection of each batch to the rows for which the condition is true. Batches without selected rows
+     * are skipped.
+     */
+    public static Enumerable<ColumnBatch> filter( final DataContext dataContext, final Enumerable<ColumnBatch> input, final VectorExpression condition ) {
+        return new AbstractEnumerable<ColumnBatch>() {
+            @Override
+            public Enumerator<ColumnBatch> enumerator() {
+                return new BatchTransformer( input.enumerator() ) {
+                    @Override
+                    ColumnBatch transform( ColumnBatch batch ) {
+                        final ColumnVector result = condition.evaluate( batch, dataContext );
+                        final int[] selection = new int[batch.count];
+                        int count = 0;
+                        for ( int j = 0; j < batch.count; j++ ) {
+                            final int i = batch.position( j );
+                            if ( !result.nulls[i] && result.longs[i] != 0 ) {
+                                selection[count++] = i;
+                            }
+                        }
+                        return count == 0 ? null : batch.withSelection( selection, count );
+                    }
+                };
+            }
+        };
+    }
+
+
+    /**
+     * Replaces the columns of each batch by the results of the expressions. The selection is kept.
+     */
+    public static Enumerable<ColumnBatch> project( final DataContext dataContext, final Enumerable<ColumnBatch> input, final VectorExpression[] projects ) {
+        return new AbstractEnumerable<ColumnBatch>() {
+            @Override
+            public Enumerator<ColumnBatch> enumerator() {
+                return new BatchTransformer( input.enumerator() ) {
+                    @Override
+                    ColumnBatch transform( ColumnBatch batch ) {
+                        final ColumnVector[] columns = new ColumnVector[projects.length];
+                        for ( int i = 0; i < projects.length; i++ ) {
+                            columns[i] = projects[i].evaluate( batch, dataContext );
+                        }
+                        return batch.withColumns( columns );
+                    }
+                };
+            }
+        };
+    }
+
+
+    /**
+     * Hash aggregation. Each batch is first mapped to group ids; then every aggregate function processes the batch in a
+     * tight loop over its argument column. The output contains the group keys followed by the aggregates. Without group
+     * keys, there is exactly one output row, even if the input is empty.
+     *
+     * @param groupKeys Indexes of the group key columns
+     * @param keyKinds Kinds of the group key columns
+     * @param functions Aggregate functions
+     * @param arguments Index of the argument column of each function; ignored for {@link VectorAggregation#COUNT_STAR}
+     * @param resultKinds Kind of the result of each function
+     */
+    public static Enumerable<ColumnBatch> aggregate(
+            final Enumerable<ColumnBatch> input,
+            final int[] groupKeys,
+            final VectorKind[] keyKinds,
+            final VectorAggregation[] functions,
+            final int[] arguments,
+            final VectorKind[] resultKinds ) {
+        return new AbstractEnumerable<ColumnBatch>() {
+            @Override
+            public Enumerator<ColumnBatch> enumerator() {
+                final HashAggregation aggregation = new HashAggregation( groupKeys, functions, arguments, resultKinds );
+                try ( Enumerator<ColumnBatch> enumerator = input.enumerator() ) {
+                    while ( enumerator.moveNext() ) {
+                        aggregation.add( enumerator.current() );
+                    }
+                }
+                return aggregation.result( keyKinds );
+            }
+        };
+    }
+
+
+    /**
+     * Collects rows column by column into batches.
+     */
+    private static class BatchingEnumerator implements Enumerator<ColumnBatch> {
+
+        private final Enumerator<Object[]> rows;
+        private final VectorKind[] kinds;
+        private final Object[][] buffer = new Object[ColumnBatch.SIZE][];
+        private ColumnBatch current;
+        private boolean done;
+
+
+        BatchingEnumerator( Enumerator<Object[]> rows, VectorKind[] kinds ) {
+            this.rows = rows;
+            this.kinds = kinds;
+        }
+
+
+        @Override
+        public ColumnBatch current() {
+            return current;
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            if ( done ) {
+                return false;
+            }
+            int n = 0;
+            while ( n < ColumnBatch.SIZE && rows.moveNext() ) {
+                buffer[n++] = rows.current();
+            }
+            if ( n < ColumnBatch.SIZE ) {
+                done = true;
+                if ( n == 0 ) {
+                    return false;
+                }
+            }
+            final ColumnVector[] columns = new ColumnVector[kinds.length];
+            for ( int c = 0; c < kinds.length; c++ ) {
+                final ColumnVector column = new ColumnVector( kinds[c], n );
+                for ( int i = 0; i < n; i++ ) {
+                    column.set( i, buffer[i][c] );
+                }
+                columns[c] = column;
+            }
+            Arrays.fill( buffer, 0, n, null );
+            current = new ColumnBatch( columns, n );
+            return true;
+        }
+
+
+        @Override
+        public void reset() {
+            rows.reset();
+            done = false;
+        }
+
+
+        @Override
+        public void close() {
+            rows.close();
+        }
+
+    }
+
+
+    private static class RowEnumerator implements Enumerator<Object[]> {
+
+        private final Enumerator<ColumnBatch> batches;
+        private Object[][] rows = new Object[0][];
+        private int index;
+
+
+        RowEnumerator( Enumerator<ColumnBatch> batches ) {
+            this.batches = batches;
+        }
+
+
+        @Override
+        public Object[] current() {
+            return rows[index];
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            if ( ++index < rows.length ) {
+                return true;
+            }
+            while ( batches.moveNext() ) {
+                final ColumnBatch batch = batches.current();
+                if ( batch.count > 0 ) {
+                    rows = new Object[batch.count][batch.columns.length];
+                    for ( int c = 0; c < batch.columns.length; c++ ) {
+                        final ColumnVector column = batch.columns[c];
+                        for ( int j = 0; j < batch.count; j++ ) {
+                            rows[j][c] = column.get( batch.position( j ) );
+                        }
+                    }
+                    index = 0;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+
+        @Override
+        public void reset() {
+            batches.reset();
+            rows = new Object[0][];
+            index = 0;
+        }
+
+
+        @Override
+        public void close() {
+            batches.close();
+        }
+
+    }
+
+
+    /**
+     * Applies a transformation to each batch. Batches transformed to null are skipped.
+     */
+    private abstract static class BatchTransformer implements Enumerator<ColumnBatch> {
+
+        private final Enumerator<ColumnBatch> input;
+        private ColumnBatch current;
+
+
+        BatchTransformer( Enumerator<ColumnBatch> input ) {
+            this.input = input;
+        }
+
+
+        abstract ColumnBatch transform( ColumnBatch batch );
+
+
+        @Override
+        public ColumnBatch current() {
+            return current;
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            while ( input.moveNext() ) {
+                current = transform( input.current() );
+                if ( current != null ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+
+        @Override
+        public void reset() {
+            input.reset();
+        }
+
+
+        @Override
+        public void close() {
+            input.close();
+        }
+
+    }
+
+
+    private static class HashAggregation {
+
+        private final int[] groupKeys;
+        private final Accumulator[] accumulators;
+        private final Map<Object, Integer> groups = new HashMap<>();
+        private final List<Object[]> keys = new ArrayList<>();
+
+
+        HashAggregation( int[] groupKeys, VectorAggregation[] functions, int[] arguments, VectorKind[] resultKinds ) {
+            this.groupKeys = groupKeys;
+            this.accumulators = new Accumulator[functions.length];
+            for ( int i = 0; i < functions.length; i++ ) {
+                accumulators[i] = new Accumulator( functions[i], arguments[i], resultKinds[i] );
+            }
+            if ( groupKeys.length == 0 ) {
+                addGroup( new Object[0] );
+            }
+        }
+
+
+        private int addGroup( Object[] key ) {
+            final int id = keys.size();
+            keys.add( key );
+            for ( Accumulator accumulator : accumulators ) {
+                accumulator.ensureCapacity( id + 1 );
+            }
+            return id;
+        }
+
+
+        void add( ColumnBatch batch ) {
+            final int[] groupIds = new int[batch.count];
+            if ( groupKeys.length == 1 ) {
+                final ColumnVector column = batch.columns[groupKeys[0]];
+                for ( int j = 0; j < batch.count; j++ ) {
+                    final Object key = column.get( batch.position( j ) );
+                    Integer id = groups.get( key );
+                    if ( id == null ) {
+                        id = addGroup( new Object[]{ key } );
+                        groups.put( key, id );
+                    }
+                    groupIds[j] = id;
+                }
+            } else if ( groupKeys.length > 1 ) {
+                for ( int j = 0; j < batch.count; j++ ) {
+                    final int i = batch.position( j );
+                    final Object[] values = new Object[groupKeys.length];
+                    for ( int k = 0; k < groupKeys.length; k++ ) {
+                        values[k] = batch.columns[groupKeys[k]].get( i );
+                    }
+                    final List<Object> key = Arrays.asList( values );
+                    Integer id = groups.get( key );
+                    if ( id == null ) {
+                        id = addGroup( values );
+                        groups.put( key, id );
+                    }
+                    groupIds[j] = id;
+                }
+            }
+            for ( Accumulator accumulator : accumulators ) {
+                accumulator.add( batch, groupIds );
+            }
+        }
+
+
+        Enumerator<ColumnBatch> result( VectorKind[] keyKinds ) {
+            final List<ColumnBatch> batches = new ArrayList<>();
+            for ( int start = 0; start < keys.size(); start += ColumnBatch.SIZE ) {
+                final int n = Math.min( ColumnBatch.SIZE, keys.size() - start );
+                final ColumnVector[] columns = new ColumnVector[keyKinds.length + accumulators.length];
+                for ( int k = 0; k < keyKinds.length; k++ ) {
+                    columns[k] = new ColumnVector( keyKinds[k], n );
+                    for ( int i = 0; i < n; i++ ) {
+                        columns[k].set( i, keys.get( start + i )[k] );
+                    }
+                }
+                for ( int a = 0; a < accumulators.length; a++ ) {
+                    columns[keyKinds.length + a] = accumulators[a].result( start, n );
+                }
+                batches.add( new ColumnBatch( columns, n ) );
+            }
+            return Linq4j.enumerator( batches );
+        }
+
+    }
+
+
+    /**
+     * State of one aggregate function for all groups.
+     */
+    private static class Accumulator {
+
+        private final VectorAggregation function;
+        private final int argument;
+        private final VectorKind kind;
+        private long[] longs = new long[16];
+        private double[] doubles = new double[16];
+        private Object[] objects = new Object[16];
+        private boolean[] seen = new boolean[16];
+
+
+        Accumulator( VectorAggregation function, int argument, VectorKind kind ) {
+            this.function = function;
+            this.argument = argument;
+            this.kind = kind;
+        }
+
+
+        void ensureCapacity( int groups ) {
+            if ( groups > seen.length ) {
+                final int capacity = Math.max( groups, seen.length * 2 );
+                longs = Arrays.copyOf( longs, capacity );
+                doubles = Arrays.copyOf( doubles, capacity );
+                objects = Arrays.copyOf( objects, capacity );
+                seen = Arrays.copyOf( seen, capacity );
+            }
+        }
+
+
+        @SuppressWarnings("unchecked")
+        void add( ColumnBatch batch, int[] groupIds ) {
+            final int n = batch.count;
+            if ( function == VectorAggregation.COUNT_STAR ) {
+                for ( int j = 0; j < n; j++ ) {
+                    longs[groupIds[j]]++;
+                }
+                return;
+            }
+            final ColumnVector column = batch.columns[argument];
+            final boolean[] nulls = column.nulls;
+            switch ( function ) {
+                case COUNT:
+                    for ( int j = 0; j < n; j++ ) {
+                        if ( !nulls[batch.position( j )] ) {
+                            longs[groupIds[j]]++;
+                        }
+                    }
+                    break;
+                case SUM:
+                case SUM0:
+                    if ( column.longs != null ) {
+                        final long[] values = column.longs;
+                        for ( int j = 0; j < n; j++ ) {
+                            final int i = batch.position( j );
+                            if ( !nulls[i] ) {
+                                final int g = groupIds[j];
+                                longs[g] += values[i];
+                                seen[g] = true;
+                            }
+                        }
+                    } else if ( kind == VectorKind.FLOAT ) {
+                        // Round after every addition, like the enumerable engine does for REAL
+                        final double[] values = column.doubles;
+                        for ( int j = 0; j < n; j++ ) {
+                            final int i = batch.position( j );
+                            if ( !nulls[i] ) {
+                                final int g = groupIds[j];
+                                doubles[g] = (float) (doubles[g] + values[i]);
+                                seen[g] = true;
+                            }
+                        }
+                    } else {
+                        final double[] values = column.doubles;
+                        for ( int j = 0; j < n; j++ ) {
+                            final int i = batch.position( j );
+                            if ( !nulls[i] ) {
+                                final int g = groupIds[j];
+                                doubles[g] += values[i];
+                                seen[g] = true;
+                            }
+                        }
+                    }
+                    break;
+                case MIN:
+                case MAX:
+                    final boolean min = function == VectorAggregation.MIN;
+                    for ( int j = 0; j < n; j++ ) {
+                        final int i = batch.position( j );
+                        if ( nulls[i] ) {
+                            continue;
+                        }
+                        final int g = groupIds[j];
+                        final int c;
+                        if ( column.longs != null ) {
+                            c = seen[g] ? Long.compare( column.longs[i], longs[g] ) : 0;
+                            if ( !seen[g] || (min ? c < 0 : c > 0) ) {
+                                longs[g] = column.longs[i];
+                            }
+                        } else if ( column.doubles != null ) {
+                            c = seen[g] ? Double.compare( column.doubles[i], doubles[g] ) : 0;
+                            if ( !seen[g] || (min ? c < 0 : c > 0) ) {
+                                doubles[g] = column.doubles[i];
+                            }
+                        } else {
+                            c = seen[g] ? ((Comparable<Object>) column.objects[i]).compareTo( objects[g] ) : 0;
+                            if ( !seen[g] || (min ? c < 0 : c > 0) ) {
+                                objects[g] = column.objects[i];
+                            }
+                        }
+                        seen[g] = true;
+                    }
+                    break;
+                default:
+                    throw new AssertionError( function );
+            }
+        }
+
+
+        ColumnVector result( int start, int n ) {
+            final ColumnVector vector = new ColumnVector( kind, n );
+            for ( int i = 0; i < n; i++ ) {
+                final int g = start + i;
+                final boolean empty = !seen[g] && function != VectorAggregation.COUNT_STAR && function != VectorAggregation.COUNT;
+                if ( empty && function != VectorAggregation.SUM0 ) {
+                    vector.nulls[i] = true;
+                } else if ( kind.isIntegral() ) {
+                    vector.longs[i] = kind.narrow( longs[g] );
+                } else if ( kind.isFloating() ) {
+                    vector.doubles[i] = kind.narrow( doubles[g] );
+                } else {
+                    vector.objects[i] = objects[g];
+                }
+            }
+            return vector;
+        }
+
+    }
+
+}
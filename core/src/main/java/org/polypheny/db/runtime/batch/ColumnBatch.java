@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime.batch;
+
+
+/**
+ * A batch of rows stored column by column. Operators do not remove rows from a batch; instead they narrow the
+ * selection vector, which holds the positions of the rows which are still part of the result.
+ */
+public final class ColumnBatch {
+
+    /**
+     * Number of rows per batch. Small enough for the columns to stay in the CPU cache while a batch is processed.
+     */
+    public static final int SIZE = 1024;
+
+    public final ColumnVector[] columns;
+
+    /**
+     * Number of rows stored in the columns, including rows which are not selected.
+     */
+    public final int size;
+
+    /**
+     * Positions of the selected rows in ascending order, or null if all rows are selected.
+     */
+    public final int[] selection;
+
+    /**
+     * Number of selected rows.
+     */
+    public final int count;
+
+
+    public ColumnBatch( ColumnVector[] columns, int size, int[] selection, int count ) {
+        this.columns = columns;
+        this.size = size;
+        this.selection = selection;
+        this.count = count;
+    }
+
+
+    public ColumnBatch( ColumnVector[] columns, int size ) {
+        this( columns, size, null, size );
+    }
+
+
+    /**
+     * Returns the position of the j-th selected row.
+     */
+    public int position( int j ) {
+        return selection == null ? j : selection[j];
+    }
+
+
+    public ColumnBatch withSelection( int[] selection, int count ) {
+        return new ColumnBatch( columns, size, selection, count );
+    }
+
+
+    public ColumnBatch withColumns( ColumnVector[] columns ) {
+        return new ColumnBatch( columns, size, selection, count );
+    }
+
+}
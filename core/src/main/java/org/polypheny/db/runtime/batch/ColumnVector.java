@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime.batch;
+
+
+/**
+ * A column of a {@link ColumnBatch}. Depending on its {@link VectorKind}, the values are stored in an array of
+ * primitives or in an array of objects. Nulls are tracked separately; the value stored at the position of a null is
+ * undefined.
+ */
+public final class ColumnVector {
+
+    public final VectorKind kind;
+    public final long[] longs;
+    public final double[] doubles;
+    public final Object[] objects;
+    public final boolean[] nulls;
+
+
+    public ColumnVector( VectorKind kind, int capacity ) {
+        this.kind = kind;
+        this.longs = kind.isIntegral() ? new long[capacity] : null;
+        this.doubles = kind.isFloating() ? new double[capacity] : null;
+        this.objects = kind == VectorKind.OBJECT ? new Object[capacity] : null;
+        this.nulls = new boolean[capacity];
+    }
+
+
+    public boolean isNull( int i ) {
+        return nulls[i];
+    }
+
+
+    /**
+     * Returns the value at the given position, boxed to the Java class the enumerable engine uses for this kind.
+     */
+    public Object get( int i ) {
+        if ( nulls[i] ) {
+            return null;
+        }
+        if ( longs != null ) {
+            return kind.box( longs[i] );
+        } else if ( doubles != null ) {
+            return kind.box( doubles[i] );
+        }
+        return objects[i];
+    }
+
+
+    /**
+     * Sets the value at the given position from a value of the enumerable engine.
+     */
+    public void set( int i, Object value ) {
+        if ( value == null ) {
+            nulls[i] = true;
+        } else if ( longs != null ) {
+            longs[i] = kind.toLong( value );
+        } else if ( doubles != null ) {
+            doubles[i] = ((Number) value).doubleValue();
+        } else {
+            objects[i] = value;
+        }
+    }
+
+}
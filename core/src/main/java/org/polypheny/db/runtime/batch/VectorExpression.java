@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime.batch;
+
+
+import org.polypheny.db.adapter.DataContext;
+
+
+/**
+ * Expression which is evaluated for a whole {@link ColumnBatch} at once.
+ *
+ * @see VectorExpressions
+ */
+public abstract class VectorExpression {
+
+    public final VectorKind kind;
+
+
+    protected VectorExpression( VectorKind kind ) {
+        this.kind = kind;
+    }
+
+
+    /**
+     * Evaluates the expression for the selected rows of the batch. The returned vector has the size of the batch; the
+     * values at positions which are not selected are undefined. The result must not be modified, it might be a column
+     * of the batch.
+     */
+    public abstract ColumnVector evaluate( ColumnBatch batch, DataContext dataContext );
+
+}
@@ -0,0 +1,537 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime.batch;
+
+
+import java.util.Arrays;
+import org.polypheny.db.adapter.DataContext;
+
+
+/**
+ * Factory methods for {@link VectorExpression}s. They are called by the code generated for the batch convention.
+ *
+ * The kernels process a whole batch in tight loops over primitive arrays. Where it is safe, they are computed densely
+ * for all rows of a batch, including rows which are not selected; a branch-free loop is cheaper than consulting the
+ * selection vector for every row and can be vectorized by the JIT. Kernels which can fail (e.g. division) or which work
+ * on objects only process the selected rows. The operands of AND and OR are evaluated one after another, each only for
+ * the rows whose result has not been decided by the previous operands.
+ */
+public final class VectorExpressions {
+
+    private VectorExpressions() {
+        // Utility class
+    }
+
+
+    public static VectorExpression column( VectorKind kind, int index ) {
+        return new ColumnRef( kind, index );
+    }
+
+
+    public static VectorExpression constant( VectorKind kind, Object value ) {
+        return new Constant( kind, kind.normalize( value ) );
+    }
+
+
+    public static VectorExpression parameter( VectorKind kind, long index ) {
+        return new Parameter( kind, index );
+    }
+
+
+    public static VectorExpression call( VectorOperator operator, VectorKind kind, VectorExpression... operands ) {
+        return new Call( operator, kind, operands );
+    }
+
+
+    /**
+     * Reference to a column of the input batch.
+     */
+    private static class ColumnRef extends VectorExpression {
+
+        private final int index;
+
+
+        ColumnRef( VectorKind kind, int index ) {
+            super( kind );
+            this.index = index;
+        }
+
+
+        @Override
+        public ColumnVector evaluate( ColumnBatch batch, DataContext dataContext ) {
+            return batch.columns[index];
+        }
+
+    }
+
+
+    private static class Constant extends VectorExpression {
+
+        private final Object value;
+
+
+        Constant( VectorKind kind, Object value ) {
+            super( kind );
+            this.value = value;
+        }
+
+
+        @Override
+        public ColumnVector evaluate( ColumnBatch batch, DataContext dataContext ) {
+            return fill( kind, value, batch.size );
+        }
+
+    }
+
+
+    /**
+     * Dynamic parameter; the value is looked up once per batch.
+     */
+    private static class Parameter extends VectorExpression {
+
+        private final long index;
+
+
+        Parameter( VectorKind kind, long index ) {
+            super( kind );
+            this.index = index;
+        }
+
+
+        @Override
+        public ColumnVector evaluate( ColumnBatch batch, DataContext dataContext ) {
+            return fill( kind, kind.normalize( dataContext.getParameterValue( index ) ), batch.size );
+        }
+
+    }
+
+
+    private static ColumnVector fill( VectorKind kind, Object value, int size ) {
+        final ColumnVector vector = new ColumnVector( kind, size );
+        if ( value == null ) {
+            Arrays.fill( vector.nulls, true );
+        } else if ( kind.isIntegral() ) {
+            Arrays.fill( vector.longs, (Long) value );
+        } else if ( kind.isFloating() ) {
+            Arrays.fill( vector.doubles, (Double) value );
+        } else {
+            Arrays.fill( vector.objects, value );
+        }
+        return vector;
+    }
+
+
+    private static class Call extends VectorExpression {
+
+        private final VectorOperator operator;
+        private final VectorExpression[] operands;
+
+
+        Call( VectorOperator operator, VectorKind kind, VectorExpression[] operands ) {
+            super( kind );
+            this.operator = operator;
+            this.operands = operands;
+        }
+
+
+        @Override
+        public ColumnVector evaluate( ColumnBatch batch, DataContext dataContext ) {
+            if ( operator == VectorOperator.AND || operator == VectorOperator.OR ) {
+                return connective( batch, dataContext );
+            }
+            final ColumnVector[] inputs = new ColumnVector[operands.length];
+            for ( int i = 0; i < operands.length; i++ ) {
+                inputs[i] = operands[i].evaluate( batch, dataContext );
+            }
+            final ColumnVector out = new ColumnVector( kind, batch.size );
+            switch ( operator ) {
+                case PLUS:
+                case MINUS:
+                case TIMES:
+                    arithmetic( operator, batch.size, inputs[0], inputs[1], out );
+                    break;
+                case DIVIDE:
+                    divide( batch, inputs[0], inputs[1], out );
+                    break;
+                case NEGATE:
+                    negate( batch.size, inputs[0], out );
+                    break;
+                case CAST:
+                    cast( batch.size, inputs[0], out );
+                    break;
+                case EQUALS:
+                case NOT_EQUALS:
+                case LESS_THAN:
+                case LESS_THAN_OR_EQUAL:
+                case GREATER_THAN:
+                case GREATER_THAN_OR_EQUAL:
+                    compare( operator, batch, inputs[0], inputs[1], out );
+                    break;
+                default:
+                    test( operator, batch.size, inputs[0], out );
+            }
+            return out;
+        }
+
+
+        /**
+         * Three-valued AND and OR. A row is decided as soon as an operand is false (AND) or true (OR); the following
+         * operands are only evaluated for the rows which are still undecided. This way, e.g. the division in
+         * {@code b <> 0 AND a / b > 1} is not evaluated for the rows in which b is zero. A row which is not decided by
+         * any operand is unknown if any operand is unknown.
+         */
+        private ColumnVector connective( ColumnBatch batch, DataContext dataContext ) {
+            final long decisive = operator == VectorOperator.AND ? 0 : 1;
+            final ColumnVector out = new ColumnVector( kind, batch.size );
+            final long[] r = out.longs;
+            final boolean[] unknown = out.nulls;
+            Arrays.fill( r, 1 - decisive );
+            ColumnBatch undecided = batch;
+            for ( VectorExpression operand : operands ) {
+                final ColumnVector input = operand.evaluate( undecided, dataContext );
+                final int[] selection = new int[undecided.count];
+                int count = 0;
+                for ( int j = 0; j < undecided.count; j++ ) {
+                    final int i = undecided.position( j );
+                    if ( !input.nulls[i] && input.longs[i] == decisive ) {
+                        r[i] = decisive;
+                        unknown[i] = false;
+                    } else {
+                        unknown[i] |= input.nulls[i];
+                        selection[count++] = i;
+                    }
+                }
+                if ( count == 0 ) {
+                    break;
+                }
+                undecided = undecided.withSelection( selection, count );
+            }
+            for ( int i = 0; i < batch.size; i++ ) {
+                if ( unknown[i] ) {
+                    r[i] = 0;
+                }
+            }
+            return out;
+        }
+
+    }
+
+
+    private static void orNulls( int n, ColumnVector a, ColumnVector b, ColumnVector out ) {
+        final boolean[] x = a.nulls;
+        final boolean[] y = b.nulls;
+        final boolean[] r = out.nulls;
+        for ( int i = 0; i < n; i++ ) {
+            r[i] = x[i] | y[i];
+        }
+    }
+
+
+    /**
+     * Narrows the results of a kernel to the precision of the output, e.g. to get the overflow behavior of
+     * {@code int} arithmetic.
+     */
+    private static void narrow( int n, ColumnVector out ) {
+        switch ( out.kind ) {
+            case BYTE: {
+                final long[] r = out.longs;
+                for ( int i = 0; i < n; i++ ) {
+                    r[i] = (byte) r[i];
+                }
+                break;
+            }
+            case SHORT: {
+                final long[] r = out.longs;
+                for ( int i = 0; i < n; i++ ) {
+                    r[i] = (short) r[i];
+                }
+                break;
+            }
+            case INT: {
+                final long[] r = out.longs;
+                for ( int i = 0; i < n; i++ ) {
+                    r[i] = (int) r[i];
+                }
+                break;
+            }
+            case FLOAT: {
+                final double[] r = out.doubles;
+                for ( int i = 0; i < n; i++ ) {
+                    r[i] = (float) r[i];
+                }
+                break;
+            }
+            default:
+                // Nothing to do
+        }
+    }
+
+
+    private static void arithmetic( VectorOperator operator, int n, ColumnVector a, ColumnVector b, ColumnVector out ) {
+        orNulls( n, a, b, out );
+        if ( out.kind.isFloating() ) {
+            final double[] x = a.doubles;
+            final double[] y = b.doubles;
+            final double[] r = out.doubles;
+            switch ( operator ) {
+                case PLUS:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] + y[i];
+                    }
+                    break;
+                case MINUS:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] - y[i];
+                    }
+                    break;
+                default:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] * y[i];
+                    }
+            }
+        } else {
+            final long[] x = a.longs;
+            final long[] y = b.longs;
+            final long[] r = out.longs;
+            switch ( operator ) {
+                case PLUS:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] + y[i];
+                    }
+                    break;
+                case MINUS:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] - y[i];
+                    }
+                    break;
+                default:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] * y[i];
+                    }
+            }
+        }
+        narrow( n, out );
+    }
+
+
+    private static void divide( ColumnBatch batch, ColumnVector a, ColumnVector b, ColumnVector out ) {
+        // Only the selected rows, a division by zero in a row which has been filtered must not fail
+        final boolean[] r = out.nulls;
+        for ( int j = 0; j < batch.count; j++ ) {
+            final int i = batch.position( j );
+            r[i] = a.nulls[i] || b.nulls[i];
+            if ( !r[i] ) {
+                if ( out.kind.isFloating() ) {
+                    out.doubles[i] = a.doubles[i] / b.doubles[i];
+                } else {
+                    out.longs[i] = a.longs[i] / b.longs[i];
+                }
+            }
+        }
+        narrow( batch.size, out );
+    }
+
+
+    private static void negate( int n, ColumnVector a, ColumnVector out ) {
+        System.arraycopy( a.nulls, 0, out.nulls, 0, n );
+        if ( out.kind.isFloating() ) {
+            for ( int i = 0; i < n; i++ ) {
+                out.doubles[i] = -a.doubles[i];
+            }
+        } else {
+            for ( int i = 0; i < n; i++ ) {
+                out.longs[i] = -a.longs[i];
+            }
+        }
+        narrow( n, out );
+    }
+
+
+    private static void cast( int n, ColumnVector a, ColumnVector out ) {
+        System.arraycopy( a.nulls, 0, out.nulls, 0, n );
+        if ( out.kind.isFloating() ) {
+            if ( a.kind.isFloating() ) {
+                System.arraycopy( a.doubles, 0, out.doubles, 0, n );
+            } else {
+                for ( int i = 0; i < n; i++ ) {
+                    out.doubles[i] = a.longs[i];
+                }
+            }
+        } else if ( out.kind.isIntegral() ) {
+            System.arraycopy( a.longs, 0, out.longs, 0, n );
+        } else {
+            System.arraycopy( a.objects, 0, out.objects, 0, n );
+        }
+        narrow( n, out );
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static void compare( VectorOperator operator, ColumnBatch batch, ColumnVector a, ColumnVector b, ColumnVector out ) {
+        final int n = batch.size;
+        orNulls( n, a, b, out );
+        final long[] r = out.longs;
+        if ( a.kind.isIntegral() ) {
+            final long[] x = a.longs;
+            final long[] y = b.longs;
+            switch ( operator ) {
+                case EQUALS:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] == y[i] ? 1 : 0;
+                    }
+                    break;
+                case NOT_EQUALS:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] != y[i] ? 1 : 0;
+                    }
+                    break;
+                case LESS_THAN:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] < y[i] ? 1 : 0;
+                    }
+                    break;
+                case LESS_THAN_OR_EQUAL:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] <= y[i] ? 1 : 0;
+                    }
+                    break;
+                case GREATER_THAN:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] > y[i] ? 1 : 0;
+                    }
+                    break;
+                default:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] >= y[i] ? 1 : 0;
+                    }
+            }
+        } else if ( a.kind.isFloating() ) {
+            final double[] x = a.doubles;
+            final double[] y = b.doubles;
+            switch ( operator ) {
+                case EQUALS:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] == y[i] ? 1 : 0;
+                    }
+                    break;
+                case NOT_EQUALS:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] != y[i] ? 1 : 0;
+                    }
+                    break;
+                case LESS_THAN:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] < y[i] ? 1 : 0;
+                    }
+                    break;
+                case LESS_THAN_OR_EQUAL:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] <= y[i] ? 1 : 0;
+                    }
+                    break;
+                case GREATER_THAN:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] > y[i] ? 1 : 0;
+                    }
+                    break;
+                default:
+                    for ( int i = 0; i < n; i++ ) {
+                        r[i] = x[i] >= y[i] ? 1 : 0;
+                    }
+            }
+        } else {
+            for ( int j = 0; j < batch.count; j++ ) {
+                final int i = batch.position( j );
+                if ( !out.nulls[i] ) {
+                    final int c = ((Comparable<Object>) a.objects[i]).compareTo( b.objects[i] );
+                    r[i] = test( operator, c ) ? 1 : 0;
+                }
+            }
+        }
+    }
+
+
+    private static boolean test( VectorOperator operator, int c ) {
+        switch ( operator ) {
+            case EQUALS:
+                return c == 0;
+            case NOT_EQUALS:
+                return c != 0;
+            case LESS_THAN:
+                return c < 0;
+            case LESS_THAN_OR_EQUAL:
+                return c <= 0;
+            case GREATER_THAN:
+                return c > 0;
+            case GREATER_THAN_OR_EQUAL:
+                return c >= 0;
+            default:
+                throw new AssertionError( operator );
+        }
+    }
+
+
+    /**
+     * NOT and the IS predicates.
+     */
+    private static void test( VectorOperator operator, int n, ColumnVector a, ColumnVector out ) {
+        final long[] r = out.longs;
+        final boolean[] nulls = a.nulls;
+        switch ( operator ) {
+            case NOT:
+                System.arraycopy( nulls, 0, out.nulls, 0, n );
+                for ( int i = 0; i < n; i++ ) {
+                    r[i] = a.longs[i] == 0 ? 1 : 0;
+                }
+                break;
+            case IS_NULL:
+                for ( int i = 0; i < n; i++ ) {
+                    r[i] = nulls[i] ? 1 : 0;
+                }
+                break;
+            case IS_NOT_NULL:
+                for ( int i = 0; i < n; i++ ) {
+                    r[i] = nulls[i] ? 0 : 1;
+                }
+                break;
+            case IS_TRUE:
+                for ( int i = 0; i < n; i++ ) {
+                    r[i] = !nulls[i] && a.longs[i] != 0 ? 1 : 0;
+                }
+                break;
+            case IS_NOT_TRUE:
+                for ( int i = 0; i < n; i++ ) {
+                    r[i] = !nulls[i] && a.longs[i] != 0 ? 0 : 1;
+                }
+                break;
+            case IS_FALSE:
+                for ( int i = 0; i < n; i++ ) {
+                    r[i] = !nulls[i] && a.longs[i] == 0 ? 1 : 0;
+                }
+                break;
+            case IS_NOT_FALSE:
+                for ( int i = 0; i < n; i++ ) {
+                    r[i] = !nulls[i] && a.longs[i] == 0 ? 0 : 1;
+                }
+                break;
+            default:
+                throw new AssertionError( operator );
+        }
+    }
+
+}
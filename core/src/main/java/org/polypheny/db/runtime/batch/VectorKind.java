@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime.batch;
+
+
+/**
+ * Storage kind of a {@link ColumnVector}. Booleans and all integral types (including dates, times and timestamps,
+ * which are represented as numbers in the enumerable engine) are stored in a {@code long[]}, floating point types in a
+ * {@code double[]}. All other types are stored as objects.
+ */
+public enum VectorKind {
+    BOOLEAN,
+    BYTE,
+    SHORT,
+    INT,
+    LONG,
+    FLOAT,
+    DOUBLE,
+    OBJECT;
+
+
+    /**
+     * Whether the values are stored in a {@code long[]}.
+     */
+    public boolean isIntegral() {
+        return ordinal() <= LONG.ordinal();
+    }
+
+
+    /**
+     * Whether the values are stored in a {@code double[]}.
+     */
+    public boolean isFloating() {
+        return this == FLOAT || this == DOUBLE;
+    }
+
+
+    /**
+     * Whether values of this kind are numbers which can be used for arithmetic.
+     */
+    public boolean isNumeric() {
+        return this != BOOLEAN && this != OBJECT;
+    }
+
+
+    /**
+     * Converts a value to the storage type of this kind, e.g. an {@link Integer} to a {@link Long} for {@link #INT}.
+     */
+    public Object normalize( Object value ) {
+        if ( value == null ) {
+            return null;
+        }
+        if ( isIntegral() ) {
+            return toLong( value );
+        } else if ( isFloating() ) {
+            return ((Number) value).doubleValue();
+        }
+        return value;
+    }
+
+
+    long toLong( Object value ) {
+        if ( value instanceof Boolean ) {
+            return (Boolean) value ? 1 : 0;
+        }
+        return ((Number) value).longValue();
+    }
+
+
+    /**
+     * Narrows a value computed with 64 bit precision to the precision of this kind, using Java semantics.
+     */
+    long narrow( long value ) {
+        switch ( this ) {
+            case BYTE:
+                return (byte) value;
+            case SHORT:
+                return (short) value;
+            case INT:
+                return (int) value;
+            default:
+                return value;
+        }
+    }
+
+
+    double narrow( double value ) {
+        return this == FLOAT ? (float) value : value;
+    }
+
+
+    Object box( long value ) {
+        switch ( this ) {
+            case BOOLEAN:
+                return value != 0;
+            case BYTE:
+                return (byte) value;
+            case SHORT:
+                return (short) value;
+            case INT:
+                return (int) value;
+            default:
+                return value;
+        }
+    }
+
+
+    Object box( double value ) {
+        return this == FLOAT ? (Object) (float) value : (Object) value;
+    }
+
+}
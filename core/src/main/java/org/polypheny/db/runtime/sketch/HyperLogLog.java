@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.sketch;
+
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.calcite.avatica.util.ByteString;
+
+
+/**
+ * HyperLogLog sketch for estimating the number of distinct values (Flajolet et al., "HyperLogLog: the analysis of a
+ * near-optimal cardinality estimation algorithm").
+ *
+ * The sketch uses 2^precision registers with a relative standard error of about 1.04 / sqrt(2^precision). As long as
+ * only a few registers are set (e.g. for small groups), they are stored as a sorted array of (index, rank) pairs
+ * instead of an array of all registers. Small cardinalities are estimated with linear counting and are therefore
+ * practically exact. Sketches with the same precision can be merged.
+ */
+public class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 12;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final int precision;
+    private final int registerCount;
+
+    // Sorted entries (index << 6 | rank) as long as the sketch is sparse
+    private int[] sparse = new int[4];
+    private int sparseSize = 0;
+    private byte[] registers = null;
+
+
+    public HyperLogLog() {
+        this( DEFAULT_PRECISION );
+    }
+
+
+    public HyperLogLog( int precision ) {
+        if ( precision < 4 || precision > 18 ) {
+            throw new IllegalArgumentException( "The precision of a HyperLogLog sketch has to be between 4 and 18" );
+        }
+        this.precision = precision;
+        this.registerCount = 1 << precision;
+    }
+
+
+    /**
+     * Adds a (composite) value. Values containing {@code null} are ignored, as in {@code COUNT(DISTINCT ...)}.
+     */
+    public void add( Object... values ) {
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        for ( Object value : values ) {
+            if ( value == null ) {
+                return;
+            }
+            putValue( hasher, value );
+        }
+        addHash( hasher.hash().asLong() );
+    }
+
+
+    void addHash( long hash ) {
+        int index = (int) (hash >>> (64 - precision));
+        // The guard bit limits the rank to 64 - precision + 1
+        long w = (hash << precision) | (1L << (precision - 1));
+        int rank = Long.numberOfLeadingZeros( w ) + 1;
+        setRegister( index, rank );
+    }
+
+
+    private void setRegister( int index, int rank ) {
+        if ( registers != null ) {
+            if ( registers[index] < rank ) {
+                registers[index] = (byte) rank;
+            }
+            return;
+        }
+        int position = findSparse( index );
+        if ( position >= 0 ) {
+            if ( (sparse[position] & 0x3F) < rank ) {
+                sparse[position] = (index << 6) | rank;
+            }
+            return;
+        }
+        if ( sparseSize >= registerCount / 4 ) {
+            // The dense representation needs less memory
+            toDense();
+            registers[index] = (byte) rank;
+            return;
+        }
+        position = -(position + 1);
+        if ( sparseSize == sparse.length ) {
+            sparse = Arrays.copyOf( sparse, sparse.length * 2 );
+        }
+        System.arraycopy( sparse, position, sparse, position + 1, sparseSize - position );
+        sparse[position] = (index << 6) | rank;
+        sparseSize++;
+    }
+
+
+    /**
+     * Returns the position of the entry of the register or, if there is none, (-(insertion point) - 1).
+     */
+    private int findSparse( int index ) {
+        int low = 0;
+        int high = sparseSize - 1;
+        while ( low <= high ) {
+            int middle = (low + high) >>> 1;
+            int middleIndex = sparse[middle] >>> 6;
+            if ( middleIndex < index ) {
+                low = middle + 1;
+            } else if ( middleIndex > index ) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+
+    private void toDense() {
+        registers = new byte[registerCount];
+        for ( int i = 0; i < sparseSize; i++ ) {
+            registers[sparse[i] >>> 6] = (byte) (sparse[i] & 0x3F);
+        }
+        sparse = null;
+        sparseSize = 0;
+    }
+
+
+    /**
+     * Adds all values of another sketch with the same precision to this sketch.
+     */
+    public void merge( HyperLogLog other ) {
+        if ( other.precision != precision ) {
+            throw new IllegalArgumentException( "Unable to merge HyperLogLog sketches with different precisions" );
+        }
+        if ( other.registers != null ) {
+            if ( registers == null ) {
+                toDense();
+            }
+            for ( int i = 0; i < registerCount; i++ ) {
+                if ( registers[i] < other.registers[i] ) {
+                    registers[i] = other.registers[i];
+                }
+            }
+        } else {
+            for ( int i = 0; i < other.sparseSize; i++ ) {
+                setRegister( other.sparse[i] >>> 6, other.sparse[i] & 0x3F );
+            }
+        }
+    }
+
+
+    /**
+     * Returns the estimated number of distinct values.
+     */
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        if ( registers != null ) {
+            for ( byte register : registers ) {
+                sum += 1.0 / (1L << register);
+                if ( register == 0 ) {
+                    zeros++;
+                }
+            }
+        } else {
+            zeros = registerCount - sparseSize;
+            sum = zeros;
+            for ( int i = 0; i < sparseSize; i++ ) {
+                sum += 1.0 / (1L << (sparse[i] & 0x3F));
+            }
+        }
+        double estimate = alpha() * registerCount * registerCount / sum;
+        if ( estimate <= 2.5 * registerCount && zeros > 0 ) {
+            // Linear counting
+            estimate = registerCount * Math.log( (double) registerCount / zeros );
+        }
+        return Math.round( estimate );
+    }
+
+
+    private double alpha() {
+        switch ( registerCount ) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / registerCount);
+        }
+    }
+
+
+    private static void putValue( Hasher hasher, Object value ) {
+        if ( value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte ) {
+            hasher.putLong( ((Number) value).longValue() );
+        } else if ( value instanceof Double || value instanceof Float ) {
+            hasher.putDouble( ((Number) value).doubleValue() );
+        } else if ( value instanceof BigDecimal ) {
+            // Equal values with a different scale have to be counted once
+            hasher.putUnencodedChars( ((BigDecimal) value).stripTrailingZeros().toPlainString() );
+        } else if ( value instanceof String ) {
+            hasher.putUnencodedChars( (String) value );
+        } else if ( value instanceof ByteString ) {
+            hasher.putBytes( ((ByteString) value).getBytes() );
+        } else if ( value instanceof Boolean ) {
+            hasher.putBoolean( (Boolean) value );
+        } else if ( value instanceof List ) {
+            for ( Object element : (List<?>) value ) {
+                if ( element == null ) {
+                    hasher.putByte( (byte) 0 );
+                } else {
+                    putValue( hasher, element );
+                }
+            }
+        } else {
+            hasher.putInt( value.hashCode() );
+        }
+        // Separates the values of composite keys
+        hasher.putByte( (byte) 1 );
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.sketch;
+
+
+import java.util.Arrays;
+
+
+/**
+ * Sketch for estimating quantiles of a stream of numbers in bounded memory. It is a simplified variant of the KLL sketch
+ * (Karnin, Lang and Liberty, "Optimal Quantile Approximation in Streams"): values are added to a buffer of level zero.
+ * If the buffer of a level is full, it is sorted and every other value is moved to the next level, where every value
+ * represents twice as many input values. The offset of the values kept alternates between compactions.
+ *
+ * With buffers of size k, the sketch stores at most k * log2(n / k) values and the rank error is in the order of
+ * log2(n / k) / k. Sketches with the same buffer size can be merged.
+ */
+public class QuantileSketch {
+
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    private final int bufferSize;
+    private double[][] levels = new double[1][];
+    private int[] levelSizes = new int[1];
+    private boolean oddOffset = false;
+    private long count = 0;
+    private double fraction = -1;
+
+
+    public QuantileSketch() {
+        this( DEFAULT_BUFFER_SIZE );
+    }
+
+
+    public QuantileSketch( int bufferSize ) {
+        if ( bufferSize < 2 || bufferSize % 2 != 0 ) {
+            throw new IllegalArgumentException( "The buffer size of a quantile sketch has to be an even number greater than zero" );
+        }
+        this.bufferSize = bufferSize;
+        levels[0] = new double[bufferSize];
+    }
+
+
+    /**
+     * Adds a value and the fraction of the quantile to compute, as in {@code APPROX_QUANTILE(value, fraction)}.
+     */
+    public void add( Number value, Number fraction ) {
+        setFraction( fraction.doubleValue() );
+        add( value.doubleValue() );
+    }
+
+
+    public void add( double value ) {
+        append( 0, value );
+        count++;
+    }
+
+
+    private void append( int level, double value ) {
+        if ( levelSizes[level] == bufferSize ) {
+            compact( level );
+        }
+        levels[level][levelSizes[level]++] = value;
+    }
+
+
+    /**
+     * Moves every other value of the full buffer of a level to the next level.
+     */
+    private void compact( int level ) {
+        if ( level + 1 == levels.length ) {
+            levels = Arrays.copyOf( levels, levels.length + 1 );
+            levels[level + 1] = new double[bufferSize];
+            levelSizes = Arrays.copyOf( levelSizes, levelSizes.length + 1 );
+        }
+        double[] buffer = levels[level];
+        Arrays.sort( buffer, 0, levelSizes[level] );
+        for ( int i = oddOffset ? 1 : 0; i < levelSizes[level]; i += 2 ) {
+            append( level + 1, buffer[i] );
+        }
+        oddOffset = !oddOffset;
+        levelSizes[level] = 0;
+    }
+
+
+    /**
+     * Adds all values of another sketch with the same buffer size to this sketch.
+     */
+    public void merge( QuantileSketch other ) {
+        if ( other.bufferSize != bufferSize ) {
+            throw new IllegalArgumentException( "Unable to merge quantile sketches with different buffer sizes" );
+        }
+        for ( int level = 0; level < other.levels.length; level++ ) {
+            while ( levels.length <= level ) {
+                levels = Arrays.copyOf( levels, levels.length + 1 );
+                levels[levels.length - 1] = new double[bufferSize];
+                levelSizes = Arrays.copyOf( levelSizes, levelSizes.length + 1 );
+            }
+            for ( int i = 0; i < other.levelSizes[level]; i++ ) {
+                append( level, other.levels[level][i] );
+            }
+        }
+        count += other.count;
+        if ( fraction < 0 ) {
+            fraction = other.fraction;
+        }
+    }
+
+
+    private void setFraction( double fraction ) {
+        if ( this.fraction < 0 ) {
+            if ( fraction < 0 || fraction > 1 ) {
+                throw new IllegalArgumentException( "The fraction of a quantile has to be between 0 and 1" );
+            }
+            this.fraction = fraction;
+        }
+    }
+
+
+    /**
+     * Returns the estimated quantile for the fraction passed with the values or {@code null} if no value has been added.
+     */
+    public Double quantile() {
+        return quantile( fraction );
+    }
+
+
+    /**
+     * Returns the estimated quantile (e.g. 0.5 for the median) or {@code null} if no value has been added.
+     */
+    public Double quantile( double fraction ) {
+        if ( count == 0 ) {
+            return null;
+        }
+        int size = 0;
+        for ( int levelSize : levelSizes ) {
+            size += levelSize;
+        }
+        // Sort the retained values together with their weight
+        long[] weights = new long[size];
+        double[] values = new double[size];
+        Integer[] order = new Integer[size];
+        int position = 0;
+        for ( int level = 0; level < levels.length; level++ ) {
+            for ( int i = 0; i < levelSizes[level]; i++ ) {
+                values[position] = levels[level][i];
+                weights[position] = 1L << level;
+                order[position] = position;
+                position++;
+            }
+        }
+        Arrays.sort( order, ( a, b ) -> Double.compare( values[a], values[b] ) );
+        long totalWeight = 0;
+        for ( long weight : weights ) {
+            totalWeight += weight;
+        }
+        double rank = Math.max( 0, Math.min( 1, fraction ) ) * totalWeight;
+        long cumulativeWeight = 0;
+        for ( Integer index : order ) {
+            cumulativeWeight += weights[index];
+            if ( cumulativeWeight >= rank ) {
+                return values[index];
+            }
+        }
+        return values[order[size - 1]];
+    }
+
+
+    public long getCount() {
+        return count;
+    }
+
+}
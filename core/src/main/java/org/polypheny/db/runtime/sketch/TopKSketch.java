@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.sketch;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+
+/**
+ * Sketch for finding the most frequent values (heavy hitters) of a stream using the Space-Saving algorithm (Metwally,
+ * Agrawal and El Abbadi, "Efficient Computation of Frequent and Top-k Elements in Data Streams").
+ *
+ * The sketch monitors a bounded number of values. If a value which is not monitored arrives and all counters are in
+ * use, the value with the lowest count is replaced and the new value inherits its count. Every value occurring more
+ * than n / capacity times is guaranteed to be monitored. Sketches can be merged.
+ */
+public class TopKSketch {
+
+    /**
+     * Number of counters per requested value.
+     */
+    public static final int CAPACITY_FACTOR = 8;
+
+    private static final int MIN_CAPACITY = 64;
+
+    private int k = -1;
+    private int capacity;
+    private final Map<Object, Long> counts = new HashMap<>();
+    // The monitored values by their count, for finding the value with the lowest count
+    private final TreeMap<Long, Set<Object>> buckets = new TreeMap<>();
+
+
+    public TopKSketch() {
+    }
+
+
+    public TopKSketch( int k ) {
+        setK( k );
+    }
+
+
+    /**
+     * Adds a value and the number of values to return, as in {@code APPROX_TOP_K(value, k)}.
+     */
+    public void add( Object value, Number k ) {
+        if ( this.k < 0 ) {
+            setK( k.intValue() );
+        }
+        add( value, 1 );
+    }
+
+
+    private void setK( int k ) {
+        if ( k <= 0 ) {
+            throw new IllegalArgumentException( "The number of most frequent values has to be greater than zero" );
+        }
+        this.k = k;
+        this.capacity = Math.max( CAPACITY_FACTOR * k, MIN_CAPACITY );
+    }
+
+
+    private void add( Object value, long increment ) {
+        Long count = counts.get( value );
+        if ( count == null ) {
+            if ( counts.size() >= capacity ) {
+                // Replace the value with the lowest count
+                Entry<Long, Set<Object>> lowest = buckets.firstEntry();
+                Iterator<Object> iterator = lowest.getValue().iterator();
+                Object replaced = iterator.next();
+                iterator.remove();
+                if ( lowest.getValue().isEmpty() ) {
+                    buckets.remove( lowest.getKey() );
+                }
+                counts.remove( replaced );
+                count = lowest.getKey();
+            } else {
+                count = 0L;
+            }
+        } else {
+            Set<Object> bucket = buckets.get( count );
+            bucket.remove( value );
+            if ( bucket.isEmpty() ) {
+                buckets.remove( count );
+            }
+        }
+        count += increment;
+        counts.put( value, count );
+        buckets.computeIfAbsent( count, c -> new LinkedHashSet<>() ).add( value );
+    }
+
+
+    /**
+     * Adds all values of another sketch to this sketch.
+     */
+    public void merge( TopKSketch other ) {
+        if ( k < 0 && other.k > 0 ) {
+            setK( other.k );
+        }
+        for ( Entry<Object, Long> entry : other.counts.entrySet() ) {
+            add( entry.getKey(), entry.getValue() );
+        }
+    }
+
+
+    /**
+     * Returns the k most frequent values, ordered by their estimated frequency.
+     */
+    public List<Object> topK() {
+        List<Object> result = new ArrayList<>( Math.max( k, 0 ) );
+        for ( Set<Object> bucket : buckets.descendingMap().values() ) {
+            for ( Object value : bucket ) {
+                if ( result.size() == k ) {
+                    return result;
+                }
+                result.add( value );
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns the estimated frequency of a value. It is an upper bound of the actual frequency; 0 if the value is not
+     * monitored.
+     */
+    public long estimateCount( Object value ) {
+        return counts.getOrDefault( value, 0L );
+    }
+
+}
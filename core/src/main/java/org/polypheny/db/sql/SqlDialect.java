@@ -36,12 +36,14 @@
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import java.sql.ResultSet;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Supplier;
@@ -524,6 +526,16 @@ public boolean supportsNestedArrays() {
     }
 
 
+    /**
+     * Returns the JDBC connection properties required for the driver to fetch result sets from a server-side cursor
+     * in chunks of the fetch size set on the statement, instead of loading the whole result set into memory.
+     * Most drivers do this by default, as long as auto-commit is disabled.
+     */
+    public Map<String, String> getCursorFetchConnectionProperties() {
+        return ImmutableMap.of();
+    }
+
+
     /**
      * Returns whether this dialect supports a given function or operator.
      * It only applies to built-in scalar functions and operators, since user-defined functions and procedures should be read by JdbcSchema.
@@ -972,6 +972,21 @@ public enum SqlKind {
      */
     FUSION,
 
+    /**
+     * The {@code APPROX_COUNT_DISTINCT} aggregate function.
+     */
+    APPROX_COUNT_DISTINCT,
+
+    /**
+     * The {@code APPROX_QUANTILE} aggregate function.
+     */
+    APPROX_QUANTILE,
+
+    /**
+     * The {@code APPROX_TOP_K} aggregate function.
+     */
+    APPROX_TOP_K,
+
     /**
      * The {@code SINGLE_VALUE} aggregate function.
      */
@@ -1161,6 +1176,21 @@ public enum SqlKind {
      */
     DROP_VIEW,
 
+    /**
+     * {@code CREATE MATERIALIZED VIEW} DDL statement.
+     */
+    CREATE_MATERIALIZED_VIEW,
+
+    /**
+     * {@code ALTER MATERIALIZED VIEW} DDL statement.
+     */
+    ALTER_MATERIALIZED_VIEW,
+
+    /**
+     * {@code DROP MATERIALIZED VIEW} DDL statement.
+     */
+    DROP_MATERIALIZED_VIEW,
+
     /**
      * {@code CREATE SEQUENCE} DDL statement.
      */
@@ -1232,7 +1262,8 @@ public enum SqlKind {
      */
     public static final EnumSet<SqlKind> AGGREGATE =
             EnumSet.of( COUNT, SUM, SUM0, MIN, MAX, LEAD, LAG, FIRST_VALUE, LAST_VALUE, COVAR_POP, COVAR_SAMP, REGR_COUNT, REGR_SXX, REGR_SYY, AVG, STDDEV_POP, STDDEV_SAMP, VAR_POP, VAR_SAMP, NTILE, COLLECT,
-                    FUSION, SINGLE_VALUE, ROW_NUMBER, RANK, PERCENT_RANK, DENSE_RANK, CUME_DIST, JSON_ARRAYAGG, JSON_OBJECTAGG, BIT_AND, BIT_OR );
+                    FUSION, SINGLE_VALUE, ROW_NUMBER, RANK, PERCENT_RANK, DENSE_RANK, CUME_DIST, JSON_ARRAYAGG, JSON_OBJECTAGG, BIT_AND, BIT_OR,
+                    APPROX_COUNT_DISTINCT, APPROX_QUANTILE, APPROX_TOP_K );
 
     /**
      * Category consisting of all DML operators.
@@ -1253,7 +1284,7 @@ public enum SqlKind {
      * Category consisting of all DDL operators.
      */
     public static final EnumSet<SqlKind> DDL =
-            EnumSet.of( COMMIT, ROLLBACK, ALTER_SESSION, CREATE_SCHEMA, CREATE_FOREIGN_SCHEMA, DROP_SCHEMA, CREATE_TABLE, ALTER_TABLE, DROP_TABLE, CREATE_VIEW, ALTER_VIEW, DROP_VIEW, CREATE_SEQUENCE, ALTER_SEQUENCE, DROP_SEQUENCE, CREATE_INDEX, ALTER_INDEX, DROP_INDEX, CREATE_TYPE, DROP_TYPE, SET_OPTION, TRUNCATE, ALTER_SCHEMA, OTHER_DDL );
+            EnumSet.of( COMMIT, ROLLBACK, ALTER_SESSION, CREATE_SCHEMA, CREATE_FOREIGN_SCHEMA, DROP_SCHEMA, CREATE_TABLE, ALTER_TABLE, DROP_TABLE, CREATE_VIEW, ALTER_VIEW, DROP_VIEW, CREATE_MATERIALIZED_VIEW, ALTER_MATERIALIZED_VIEW, DROP_MATERIALIZED_VIEW, CREATE_SEQUENCE, ALTER_SEQUENCE, DROP_SEQUENCE, CREATE_INDEX, ALTER_INDEX, DROP_INDEX, CREATE_TYPE, DROP_TYPE, SET_OPTION, TRUNCATE, ALTER_SCHEMA, OTHER_DDL );
 
     /**
      * Category consisting of query node types.
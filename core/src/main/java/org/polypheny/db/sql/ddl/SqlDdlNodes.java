@@ -41,6 +41,7 @@
 import org.polypheny.db.sql.SqlDataTypeSpec;
 import org.polypheny.db.sql.SqlDrop;
 import org.polypheny.db.sql.SqlIdentifier;
+import org.polypheny.db.sql.SqlLiteral;
 import org.polypheny.db.sql.SqlNode;
 import org.polypheny.db.sql.SqlNodeList;
 import org.polypheny.db.sql.SqlOperator;
@@ -88,6 +89,14 @@ public static SqlCreateView createView( SqlParserPos pos, boolean replace, SqlId
     }
 
 
+    /**
+     * Creates a CREATE MATERIALIZED VIEW.
+     */
+    public static SqlCreateMaterializedView createMaterializedView( SqlParserPos pos, boolean replace, SqlIdentifier name, SqlNodeList columnList, SqlIdentifier store, SqlLiteral freshness, SqlNode query ) {
+        return new SqlCreateMaterializedView( pos, replace, name, columnList, store, freshness, query );
+    }
+
+
     /**
      * Creates a CREATE FUNCTION.
      */
@@ -128,6 +137,14 @@ public static SqlDrop dropView( SqlParserPos pos, boolean ifExists, SqlIdentifie
     }
 
 
+    /**
+     * Creates a DROP MATERIALIZED VIEW.
+     */
+    public static SqlDrop dropMaterializedView( SqlParserPos pos, boolean ifExists, SqlIdentifier name ) {
+        return new SqlDropMaterializedView( pos, ifExists, name );
+    }
+
+
     /**
      * Creates a DROP FUNCTION.
      */
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.sql.ddl.alterview;
+
+
+import java.util.List;
+import java.util.Objects;
+import org.polypheny.db.catalog.Catalog.TableType;
+import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.ddl.DdlManager;
+import org.polypheny.db.jdbc.Context;
+import org.polypheny.db.sql.SqlAlter;
+import org.polypheny.db.sql.SqlIdentifier;
+import org.polypheny.db.sql.SqlKind;
+import org.polypheny.db.sql.SqlNode;
+import org.polypheny.db.sql.SqlOperator;
+import org.polypheny.db.sql.SqlSpecialOperator;
+import org.polypheny.db.sql.SqlWriter;
+import org.polypheny.db.sql.parser.SqlParserPos;
+import org.polypheny.db.transaction.Statement;
+import org.polypheny.db.util.ImmutableNullableList;
+
+
+/**
+ * Parse tree for {@code ALTER MATERIALIZED VIEW name REFRESH} statement
+ */
+public class SqlAlterMaterializedViewRefresh extends SqlAlter {
+
+    private static final SqlOperator OPERATOR = new SqlSpecialOperator( "ALTER MATERIALIZED VIEW", SqlKind.ALTER_MATERIALIZED_VIEW );
+
+    private final SqlIdentifier view;
+
+
+    public SqlAlterMaterializedViewRefresh( SqlParserPos pos, SqlIdentifier view ) {
+        super( OPERATOR, pos );
+        this.view = Objects.requireNonNull( view );
+    }
+
+
+    @Override
+    public List<SqlNode> getOperandList() {
+        return ImmutableNullableList.of( view );
+    }
+
+
+    @Override
+    public void unparse( SqlWriter writer, int leftPrec, int rightPrec ) {
+        writer.keyword( "ALTER" );
+        writer.keyword( "MATERIALIZED VIEW" );
+        view.unparse( writer, leftPrec, rightPrec );
+        writer.keyword( "REFRESH" );
+    }
+
+
+    @Override
+    public void execute( Context context, Statement statement ) {
+        CatalogTable catalogTable = getCatalogTable( context, view );
+        if ( catalogTable.tableType != TableType.MATERIALIZED_VIEW ) {
+            throw new RuntimeException( "Not possible to use ALTER MATERIALIZED VIEW because " + catalogTable.name + " is not a materialized view." );
+        }
+        DdlManager.getInstance().refreshMaterializedView( catalogTable, statement );
+    }
+
+}
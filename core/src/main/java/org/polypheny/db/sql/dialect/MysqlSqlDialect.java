@@ -34,6 +34,8 @@
 package org.polypheny.db.sql.dialect;
 
 
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.calcite.avatica.util.TimeUnit;
 import org.apache.calcite.avatica.util.TimeUnitRange;
@@ -94,6 +96,16 @@ public boolean supportsCharSet() {
     }
 
 
+    /**
+     * Without this property, the MySQL driver either loads the whole result set into memory or, with a fetch size of
+     * {@code Integer.MIN_VALUE}, streams it in a way that blocks the connection until the result set is closed.
+     */
+    @Override
+    public Map<String, String> getCursorFetchConnectionProperties() {
+        return ImmutableMap.of( "useCursorFetch", "true" );
+    }
+
+
     @Override
     public void unparseOffsetFetch( SqlWriter writer, SqlNode offset, SqlNode fetch ) {
         unparseFetchUsingLimit( writer, offset, fetch );
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.sql.fun;
+
+
+import org.polypheny.db.sql.SqlAggFunction;
+import org.polypheny.db.sql.SqlFunctionCategory;
+import org.polypheny.db.sql.SqlKind;
+import org.polypheny.db.sql.SqlSyntax;
+import org.polypheny.db.sql.validate.SqlValidator;
+import org.polypheny.db.type.checker.OperandTypes;
+import org.polypheny.db.type.inference.ReturnTypes;
+import org.polypheny.db.util.Optionality;
+
+
+/**
+ * Definition of the <code>APPROX_COUNT_DISTINCT</code> aggregate function.
+ *
+ * In SQL, <code>APPROX_COUNT_DISTINCT(x)</code> is translated into <code>COUNT(DISTINCT x)</code> marked as approximate,
+ * which stores can answer natively. If the distinct count has to be computed by Polypheny-DB, the call is replaced by a
+ * non-distinct call of this function, which is implemented with a HyperLogLog sketch.
+ *
+ * Unlike <code>COUNT</code>, the results of partial aggregates can not be added up and this function therefore has no
+ * {@link org.polypheny.db.sql.SqlSplittableAggFunction}.
+ */
+public class SqlApproxCountDistinctAggFunction extends SqlAggFunction {
+
+    public SqlApproxCountDistinctAggFunction() {
+        super(
+                "APPROX_COUNT_DISTINCT",
+                null,
+                SqlKind.APPROX_COUNT_DISTINCT,
+                ReturnTypes.BIGINT,
+                null,
+                SqlValidator.STRICT ? OperandTypes.ANY : OperandTypes.ONE_OR_MORE,
+                SqlFunctionCategory.NUMERIC,
+                false,
+                false,
+                Optionality.FORBIDDEN );
+    }
+
+
+    @Override
+    public SqlSyntax getSyntax() {
+        return SqlSyntax.FUNCTION_STAR;
+    }
+
+}
@@ -76,6 +76,7 @@
 import org.polypheny.db.type.OperandCountRange;
 import org.polypheny.db.type.PolyOperandCountRanges;
 import org.polypheny.db.type.PolyType;
+import org.polypheny.db.type.PolyTypeFamily;
 import org.polypheny.db.type.checker.OperandTypes;
 import org.polypheny.db.type.inference.InferTypes;
 import org.polypheny.db.type.inference.ReturnTypes;
@@ -893,7 +894,43 @@ public boolean validRexOperands( int count, Litmus litmus ) {
     /**
      * <code>APPROX_COUNT_DISTINCT</code> aggregate function.
      */
-    public static final SqlAggFunction APPROX_COUNT_DISTINCT = new SqlCountAggFunction( "APPROX_COUNT_DISTINCT" );
+    public static final SqlAggFunction APPROX_COUNT_DISTINCT = new SqlApproxCountDistinctAggFunction();
+
+    /**
+     * <code>APPROX_QUANTILE</code> aggregate function. Estimates a quantile (e.g. 0.5 for the median) with a
+     * {@link org.polypheny.db.runtime.sketch.QuantileSketch}.
+     */
+    public static final SqlAggFunction APPROX_QUANTILE =
+            new SqlAggFunction(
+                    "APPROX_QUANTILE",
+                    null,
+                    SqlKind.APPROX_QUANTILE,
+                    ReturnTypes.DOUBLE_NULLABLE,
+                    null,
+                    OperandTypes.NUMERIC_NUMERIC,
+                    SqlFunctionCategory.NUMERIC,
+                    false,
+                    false,
+                    Optionality.FORBIDDEN ) {
+            };
+
+    /**
+     * <code>APPROX_TOP_K</code> aggregate function. Returns an array of the k most frequent values, estimated with a
+     * {@link org.polypheny.db.runtime.sketch.TopKSketch}.
+     */
+    public static final SqlAggFunction APPROX_TOP_K =
+            new SqlAggFunction(
+                    "APPROX_TOP_K",
+                    null,
+                    SqlKind.APPROX_TOP_K,
+                    ReturnTypes.TO_ARRAY_NULLABLE,
+                    null,
+                    OperandTypes.family( PolyTypeFamily.ANY, PolyTypeFamily.INTEGER ),
+                    SqlFunctionCategory.SYSTEM,
+                    false,
+                    false,
+                    Optionality.FORBIDDEN ) {
+            };
 
     /**
      * <code>MIN</code> aggregate function.
@@ -65,6 +65,7 @@
 import org.polypheny.db.rel.rules.FilterAggregateTransposeRule;
 import org.polypheny.db.rel.rules.FilterCalcMergeRule;
 import org.polypheny.db.rel.rules.FilterJoinRule;
+import org.polypheny.db.rel.rules.FilterMergeRule;
 import org.polypheny.db.rel.rules.FilterProjectTransposeRule;
 import org.polypheny.db.rel.rules.FilterTableScanRule;
 import org.polypheny.db.rel.rules.FilterToCalcRule;
@@ -77,6 +78,7 @@
 import org.polypheny.db.rel.rules.MultiJoinOptimizeBushyRule;
 import org.polypheny.db.rel.rules.ProjectCalcMergeRule;
 import org.polypheny.db.rel.rules.ProjectMergeRule;
+import org.polypheny.db.rel.rules.ProjectRemoveRule;
 import org.polypheny.db.rel.rules.ProjectToCalcRule;
 import org.polypheny.db.rel.rules.SemiJoinRule;
 import org.polypheny.db.rel.rules.SortProjectTransposeRule;
@@ -128,11 +130,13 @@ public class Programs {
                     EnumerableRules.ENUMERABLE_CONDITIONAL_EXECUTE_RULE,
                     EnumerableRules.ENUMERABLE_CONDITIONAL_EXECUTE_TRUE_RULE,
                     EnumerableRules.ENUMERABLE_CONDITIONAL_EXECUTE_FALSE_RULE,
+                    EnumerableRules.ENUMERABLE_REDUCTION_JOIN_RULE,
                     EnumerableRules.ENUMERABLE_PROJECT_RULE,
                     EnumerableRules.ENUMERABLE_FILTER_RULE,
                     EnumerableRules.ENUMERABLE_AGGREGATE_RULE,
                     EnumerableRules.ENUMERABLE_SORT_RULE,
                     EnumerableRules.ENUMERABLE_LIMIT_RULE,
+                    EnumerableRules.ENUMERABLE_TOP_N_RULE,
                     EnumerableRules.ENUMERABLE_UNION_RULE,
                     EnumerableRules.ENUMERABLE_MODIFY_COLLECT_RULE,
                     EnumerableRules.ENUMERABLE_INTERSECT_RULE,
@@ -157,6 +161,28 @@ public class Programs {
                     JoinPushThroughJoinRule.LEFT,
                     SortProjectTransposeRule.INSTANCE );
 
+    /**
+     * Rules which enumerate join orders exhaustively. They are not used once the joins have been ordered heuristically.
+     */
+    public static final ImmutableList<RelOptRule> EXHAUSTIVE_JOIN_RULES =
+            ImmutableList.of(
+                    JoinCommuteRule.INSTANCE,
+                    JoinAssociateRule.INSTANCE,
+                    JoinPushThroughJoinRule.LEFT,
+                    JoinPushThroughJoinRule.RIGHT );
+
+    /**
+     * Rules which normalize a logical plan by pushing filters down, and merging and removing projects and filters.
+     */
+    public static final ImmutableList<RelOptRule> NORMALIZATION_RULES =
+            ImmutableList.of(
+                    FilterProjectTransposeRule.INSTANCE,
+                    FilterJoinRule.FILTER_ON_JOIN,
+                    FilterJoinRule.JOIN,
+                    FilterMergeRule.INSTANCE,
+                    ProjectMergeRule.INSTANCE,
+                    ProjectRemoveRule.INSTANCE );
+
 
     // private constructor for utility class
     private Programs() {
@@ -271,12 +297,7 @@ public static Program heuristicJoinOrder( final Iterable<? extends RelOptRule> r
                 // Create a program that contains a rule to expand a MultiJoin into heuristically ordered joins.
                 // We use the rule set passed in, but remove JoinCommuteRule and JoinPushThroughJoinRule, because they cause exhaustive search.
                 final List<RelOptRule> list = Lists.newArrayList( rules );
-                list.removeAll(
-                        ImmutableList.of(
-                                JoinCommuteRule.INSTANCE,
-                                JoinAssociateRule.INSTANCE,
-                                JoinPushThroughJoinRule.LEFT,
-                                JoinPushThroughJoinRule.RIGHT ) );
+                list.removeAll( EXHAUSTIVE_JOIN_RULES );
                 list.add( bushy
                         ? MultiJoinOptimizeBushyRule.INSTANCE
                         : LoptOptimizeJoinRule.INSTANCE );
@@ -289,6 +310,34 @@ public static Program heuristicJoinOrder( final Iterable<? extends RelOptRule> r
     }
 
 
+    /**
+     * Creates a program that orders the joins of a plan heuristically in a HEP planner. The joins are gathered together
+     * as a {@link MultiJoin} which is then expanded into a left-deep tree by {@link LoptOptimizeJoinRule} or into a bushy
+     * tree by {@link MultiJoinOptimizeBushyRule}. Unlike {@link #heuristicJoinOrder}, the resulting plan is still logical.
+     */
+    public static Program joinOrder( final boolean bushy, final RelMetadataProvider metadataProvider ) {
+        final HepProgram multiJoin = new HepProgramBuilder()
+                .addRuleInstance( FilterJoinRule.FILTER_ON_JOIN )
+                .addMatchOrder( HepMatchOrder.BOTTOM_UP )
+                .addRuleInstance( JoinToMultiJoinRule.INSTANCE )
+                .build();
+        return sequence(
+                of( multiJoin, false, metadataProvider ),
+                hep( ImmutableList.of( bushy ? MultiJoinOptimizeBushyRule.INSTANCE : LoptOptimizeJoinRule.INSTANCE ), false, metadataProvider ) );
+    }
+
+
+    /**
+     * Creates a program that applies the {@link #NORMALIZATION_RULES} in a HEP planner until none of them matches anymore.
+     */
+    public static Program normalize( RelMetadataProvider metadataProvider ) {
+        final HepProgram hepProgram = new HepProgramBuilder()
+                .addRuleCollection( NORMALIZATION_RULES )
+                .build();
+        return of( hepProgram, true, metadataProvider );
+    }
+
+
     public static Program calc( RelMetadataProvider metadataProvider ) {
         return hep( CALC_RULES, true, metadataProvider );
     }
@@ -322,30 +371,45 @@ public static Program standard() {
      * Returns the standard program with user metadata provider.
      */
     public static Program standard( RelMetadataProvider metadataProvider ) {
-        final Program program1 =
-                ( planner, rel, requiredOutputTraits ) -> {
-                    planner.setRoot( rel );
-
-                    final RelNode rootRel2 =
-                            rel.getTraitSet().equals( requiredOutputTraits )
-                                    ? rel
-                                    : planner.changeTraits( rel, requiredOutputTraits );
-                    assert rootRel2 != null;
-
-                    planner.setRoot( rootRel2 );
-                    final RelOptPlanner planner2 = planner.chooseDelegate();
-                    final RelNode rootRel3 = planner2.findBestExp();
-                    assert rootRel3 != null : "could not implement exp";
-                    return rootRel3;
-                };
+        return sequence( preparation( metadataProvider ),
+                volcano(),
+
+                // Second planner pass to do physical "tweaks". This the first time that EnumerableCalcRel is introduced.
+                calc( metadataProvider ) );
+    }
+
 
+    /**
+     * Returns the program which prepares a logical plan for the optimization by removing sub-queries, de-correlating
+     * and trimming unused fields.
+     */
+    public static Program preparation( RelMetadataProvider metadataProvider ) {
         return sequence( subQuery( metadataProvider ),
                 new DecorrelateProgram(),
-                new TrimFieldsProgram(),
-                program1,
+                new TrimFieldsProgram() );
+    }
 
-                // Second planner pass to do physical "tweaks". This the first time that EnumerableCalcRel is introduced.
-                calc( metadataProvider ) );
+
+    /**
+     * Returns the program which optimizes a plan with the rules registered in the planner and converts it to the
+     * required traits.
+     */
+    public static Program volcano() {
+        return ( planner, rel, requiredOutputTraits ) -> {
+            planner.setRoot( rel );
+
+            final RelNode rootRel2 =
+                    rel.getTraitSet().equals( requiredOutputTraits )
+                            ? rel
+                            : planner.changeTraits( rel, requiredOutputTraits );
+            assert rootRel2 != null;
+
+            planner.setRoot( rootRel2 );
+            final RelOptPlanner planner2 = planner.chooseDelegate();
+            final RelNode rootRel3 = planner2.findBestExp();
+            assert rootRel3 != null : "could not implement exp";
+            return rootRel3;
+        };
     }
 
 
@@ -163,6 +163,13 @@ private PolyType toVar( RelDataType type ) {
      */
     public static final PolyTypeTransform TO_MULTISET = ( opBinding, typeToTransform ) -> opBinding.getTypeFactory().createMultisetType( typeToTransform, -1 );
 
+    /**
+     * Parameter type-inference transform strategy that wraps a given type in an array.
+     *
+     * @see RelDataTypeFactory#createArrayType(RelDataType, long)
+     */
+    public static final PolyTypeTransform TO_ARRAY = ( opBinding, typeToTransform ) -> opBinding.getTypeFactory().createArrayType( typeToTransform, -1 );
+
     /**
      * Parameter type-inference transform strategy where a derived type must be a struct type with precisely one field and
      * the returned type is the type of that field.
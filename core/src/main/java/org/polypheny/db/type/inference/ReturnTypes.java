@@ -296,6 +296,13 @@ public int size() {
      */
     public static final PolyReturnTypeInference TO_MULTISET = cascade( ARG0, PolyTypeTransforms.TO_MULTISET );
 
+    /**
+     * Returns a nullable array type.
+     * <p>
+     * For example, given <code>INTEGER</code>, returns <code>INTEGER ARRAY</code>.
+     */
+    public static final PolyReturnTypeInference TO_ARRAY_NULLABLE = cascade( ARG0, PolyTypeTransforms.TO_ARRAY, PolyTypeTransforms.FORCE_NULLABLE );
+
     /**
      * Returns the element type of a multiset
      */
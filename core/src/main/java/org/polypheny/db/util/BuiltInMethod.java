@@ -80,6 +80,7 @@
 import org.polypheny.db.interpreter.Context;
 import org.polypheny.db.interpreter.Row;
 import org.polypheny.db.interpreter.Scalar;
+import org.polypheny.db.rel.RelDistribution;
 import org.polypheny.db.rel.metadata.BuiltInMetadata.AllPredicates;
 import org.polypheny.db.rel.metadata.BuiltInMetadata.Collation;
 import org.polypheny.db.rel.metadata.BuiltInMetadata.ColumnOrigin;
@@ -110,11 +111,23 @@
 import org.polypheny.db.runtime.Bindable;
 import org.polypheny.db.runtime.Enumerables;
 import org.polypheny.db.runtime.FlatLists;
+import org.polypheny.db.runtime.ParallelEnumerables;
 import org.polypheny.db.runtime.RandomFunction;
+import org.polypheny.db.runtime.ReductionJoins;
 import org.polypheny.db.runtime.SortedMultiMap;
+import org.polypheny.db.runtime.SpillingEnumerables;
 import org.polypheny.db.runtime.SqlFunctions;
 import org.polypheny.db.runtime.SqlFunctions.FlatProductInputType;
 import org.polypheny.db.runtime.Utilities;
+import org.polypheny.db.runtime.batch.BatchEnumerables;
+import org.polypheny.db.runtime.batch.VectorAggregation;
+import org.polypheny.db.runtime.batch.VectorExpression;
+import org.polypheny.db.runtime.batch.VectorExpressions;
+import org.polypheny.db.runtime.batch.VectorKind;
+import org.polypheny.db.runtime.batch.VectorOperator;
+import org.polypheny.db.runtime.sketch.HyperLogLog;
+import org.polypheny.db.runtime.sketch.QuantileSketch;
+import org.polypheny.db.runtime.sketch.TopKSketch;
 import org.polypheny.db.schema.FilterableTable;
 import org.polypheny.db.schema.ModifiableTable;
 import org.polypheny.db.schema.ProjectableFilterableTable;
@@ -176,6 +189,22 @@ public enum BuiltInMethod {
     GROUP_BY_MULTIPLE( EnumerableDefaults.class, "groupByMultiple", Enumerable.class, List.class, Function0.class, Function2.class, Function2.class ),
     AGGREGATE( ExtendedEnumerable.class, "aggregate", Object.class, Function2.class, Function1.class ),
     ORDER_BY( ExtendedEnumerable.class, "orderBy", Function1.class, Comparator.class ),
+    SPILLING_JOIN( SpillingEnumerables.class, "join", DataContext.class, Enumerable.class, Enumerable.class, Function1.class, Function1.class, Function2.class, EqualityComparer.class, boolean.class, boolean.class ),
+    SPILLING_ORDER_BY( SpillingEnumerables.class, "orderBy", DataContext.class, Enumerable.class, Function1.class, Comparator.class ),
+    SPILLING_GROUP_BY( SpillingEnumerables.class, "groupBy", DataContext.class, Enumerable.class, Function1.class, Function0.class, Function2.class, Function2.class, EqualityComparer.class ),
+    REDUCTION_JOIN( ReductionJoins.class, "join", DataContext.class, Enumerable.class, Function1.class, Function0.class, Function0.class, Function2.class, boolean.class, int.class, int.class, int.class ),
+    BATCH_TO_BATCHES( BatchEnumerables.class, "toBatches", Enumerable.class, VectorKind[].class ),
+    BATCH_TO_ROWS( BatchEnumerables.class, "toRows", Enumerable.class ),
+    BATCH_FILTER( BatchEnumerables.class, "filter", DataContext.class, Enumerable.class, VectorExpression.class ),
+    BATCH_PROJECT( BatchEnumerables.class, "project", DataContext.class, Enumerable.class, VectorExpression[].class ),
+    BATCH_AGGREGATE( BatchEnumerables.class, "aggregate", Enumerable.class, int[].class, VectorKind[].class, VectorAggregation[].class, int[].class, VectorKind[].class ),
+    VECTOR_COLUMN( VectorExpressions.class, "column", VectorKind.class, int.class ),
+    VECTOR_CONSTANT( VectorExpressions.class, "constant", VectorKind.class, Object.class ),
+    VECTOR_PARAMETER( VectorExpressions.class, "parameter", VectorKind.class, long.class ),
+    VECTOR_CALL( VectorExpressions.class, "call", VectorOperator.class, VectorKind.class, VectorExpression[].class ),
+    PARALLEL_GATHER( ParallelEnumerables.class, "gather", DataContext.class, Function1.class ),
+    PARALLEL_EXCHANGE( ParallelEnumerables.Partition.class, "exchange", int.class, Enumerable.class, RelDistribution.Type.class, Function1.class, String[].class ),
+    TOP_N( Enumerables.class, "topN", Enumerable.class, Function1.class, Comparator.class, int.class, int.class ),
     UNION( ExtendedEnumerable.class, "union", Enumerable.class ),
     CONCAT( ExtendedEnumerable.class, "concat", Enumerable.class ),
     INTERSECT( ExtendedEnumerable.class, "intersect", Enumerable.class ),
@@ -227,6 +256,12 @@ public enum BuiltInMethod {
     MAP_PUT( Map.class, "put", Object.class, Object.class ),
     COLLECTION_ADD( Collection.class, "add", Object.class ),
     COLLECTION_ADDALL( Collection.class, "addAll", Collection.class ),
+    HYPER_LOG_LOG_ADD( HyperLogLog.class, "add", Object[].class ),
+    HYPER_LOG_LOG_ESTIMATE( HyperLogLog.class, "estimate" ),
+    QUANTILE_SKETCH_ADD( QuantileSketch.class, "add", Number.class, Number.class ),
+    QUANTILE_SKETCH_QUANTILE( QuantileSketch.class, "quantile" ),
+    TOP_K_SKETCH_ADD( TopKSketch.class, "add", Object.class, Number.class ),
+    TOP_K_SKETCH_TOP_K( TopKSketch.class, "topK" ),
     LIST_GET( List.class, "get", int.class ),
     ITERATOR_HAS_NEXT( Iterator.class, "hasNext" ),
     ITERATOR_NEXT( Iterator.class, "next" ),
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.index;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Assert;
+import org.junit.Test;
+import org.polypheny.db.transaction.PUID;
+import org.polypheny.db.transaction.PUID.Type;
+import org.polypheny.db.transaction.PolyXid;
+import org.polypheny.db.util.Pair;
+
+
+public class HnswIndexTest {
+
+    private static final int DIMENSIONS = 16;
+
+
+    @Test
+    public void testRecall() {
+        final Random random = new Random( 1234 );
+        final List<double[]> vectors = new ArrayList<>();
+        for ( int i = 0; i < 2000; i++ ) {
+            vectors.add( randomVector( random ) );
+        }
+        final HnswIndex idx = new HnswIndex( 42L, "idx_test", null, null, Collections.singletonList( "v" ), Collections.singletonList( "id" ), 16, 100 );
+        final PolyXid xid = PolyXid.generateLocalTransactionIdentifier( PUID.randomPUID( Type.NODE ), PUID.randomPUID( Type.TRANSACTION ) );
+        final List<Pair<List<Object>, List<Object>>> entries = new ArrayList<>();
+        for ( int i = 0; i < vectors.size(); i++ ) {
+            entries.add( Pair.of( Collections.singletonList( toList( vectors.get( i ) ) ), Collections.singletonList( i ) ) );
+        }
+        idx.insertAll( xid, entries );
+        Assert.assertTrue( idx.isModifiedBy( xid ) );
+        idx.barrier( xid );
+        idx.commit( xid );
+        Assert.assertFalse( idx.isModifiedBy( xid ) );
+
+        final int k = 10;
+        int found = 0;
+        for ( int q = 0; q < 50; q++ ) {
+            final double[] target = randomVector( random );
+            final Set<Object> expected = bruteForce( vectors, target, k );
+            found += idx.searchNearest( target, k, 64 ).stream().filter( primary -> expected.contains( primary.get( 0 ) ) ).count();
+        }
+        final double recall = (double) found / (50 * k);
+        Assert.assertTrue( "Recall too low: " + recall, recall >= 0.9 );
+    }
+
+
+    @Test
+    public void testInitialized() {
+        final HnswIndex idx = new HnswIndex( 42L, "idx_test", null, null, Collections.singletonList( "v" ), Collections.singletonList( "id" ), 4, 16 );
+        // The index is registered before it is built and must not be used for nearest neighbour queries in the meantime
+        Assert.assertFalse( idx.isInitialized() );
+        final List<Pair<List<Object>, List<Object>>> entries = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ ) {
+            entries.add( Pair.of( Collections.singletonList( Arrays.asList( (double) i, (double) i ) ), Collections.singletonList( i ) ) );
+        }
+        idx.insertAll( entries );
+        Assert.assertFalse( idx.isInitialized() );
+        idx.initialize();
+        Assert.assertTrue( idx.isInitialized() );
+        Assert.assertEquals( Collections.singletonList( Collections.singletonList( 3 ) ), idx.searchNearest( new double[]{ 3.1, 3.1 }, 1, 16 ) );
+    }
+
+
+    @Test
+    public void testExactMatchAndDelete() {
+        final HnswIndex idx = new HnswIndex( 42L, "idx_test", null, null, Collections.singletonList( "v" ), Collections.singletonList( "id" ), 4, 16 );
+        final PolyXid xid = PolyXid.generateLocalTransactionIdentifier( PUID.randomPUID( Type.NODE ), PUID.randomPUID( Type.TRANSACTION ) );
+        for ( int i = 0; i < 100; i++ ) {
+            idx.insert( xid, Collections.singletonList( Arrays.asList( (double) i, (double) i ) ), Collections.singletonList( i ) );
+        }
+        // Changes are not visible before the commit
+        Assert.assertTrue( idx.searchNearest( new double[]{ 10, 10 }, 1, 16 ).isEmpty() );
+        idx.barrier( xid );
+        idx.commit( xid );
+        Assert.assertEquals( Collections.singletonList( Collections.singletonList( 10 ) ), idx.searchNearest( new double[]{ 10.1, 10.1 }, 1, 16 ) );
+        Assert.assertEquals(
+                Arrays.asList( Collections.singletonList( 10 ), Collections.singletonList( 11 ), Collections.singletonList( 9 ) ),
+                idx.searchNearest( new double[]{ 10.2, 10.2 }, 3, 16 ) );
+
+        // Deleted entries are no longer returned
+        idx.delete( xid, Collections.singletonList( Arrays.asList( 10.0, 10.0 ) ) );
+        idx.barrier( xid );
+        idx.commit( xid );
+        Assert.assertEquals( Collections.singletonList( Collections.singletonList( 11 ) ), idx.searchNearest( new double[]{ 10.2, 10.2 }, 1, 16 ) );
+
+        // Deleting most of the entries triggers a rebuild of the graph
+        final List<List<Object>> keys = IntStream.range( 0, 90 )
+                .mapToObj( i -> Collections.<Object>singletonList( Arrays.asList( (double) i, (double) i ) ) )
+                .collect( Collectors.toList() );
+        idx.deleteAll( xid, keys );
+        idx.barrier( xid );
+        idx.commit( xid );
+        Assert.assertEquals( Collections.singletonList( Collections.singletonList( 90 ) ), idx.searchNearest( new double[]{ 0, 0 }, 1, 16 ) );
+        Assert.assertEquals( 10, idx.searchNearest( new double[]{ 0, 0 }, 20, 16 ).size() );
+    }
+
+
+    @Test
+    public void testSearchSkipsDeletedNeighbours() {
+        final HnswIndex idx = new HnswIndex( 42L, "idx_test", null, null, Collections.singletonList( "v" ), Collections.singletonList( "id" ), 4, 16 );
+        final PolyXid xid = PolyXid.generateLocalTransactionIdentifier( PUID.randomPUID( Type.NODE ), PUID.randomPUID( Type.TRANSACTION ) );
+        for ( int i = 0; i < 100; i++ ) {
+            idx.insert( xid, Collections.singletonList( Arrays.asList( (double) i, (double) i ) ), Collections.singletonList( i ) );
+        }
+        idx.barrier( xid );
+        idx.commit( xid );
+
+        // Delete the 40 nearest neighbours of the target; not enough to trigger a rebuild of the graph
+        final List<List<Object>> keys = IntStream.range( 0, 40 )
+                .mapToObj( i -> Collections.<Object>singletonList( Arrays.asList( (double) i, (double) i ) ) )
+                .collect( Collectors.toList() );
+        idx.deleteAll( xid, keys );
+        idx.barrier( xid );
+        idx.commit( xid );
+        Assert.assertEquals(
+                IntStream.range( 40, 45 ).mapToObj( Collections::singletonList ).collect( Collectors.toList() ),
+                idx.searchNearest( new double[]{ 0, 0 }, 5, 5 ) );
+    }
+
+
+    private static double[] randomVector( Random random ) {
+        final double[] vector = new double[DIMENSIONS];
+        for ( int i = 0; i < DIMENSIONS; i++ ) {
+            vector[i] = random.nextDouble();
+        }
+        return vector;
+    }
+
+
+    private static List<Double> toList( double[] vector ) {
+        return Arrays.stream( vector ).boxed().collect( Collectors.toList() );
+    }
+
+
+    private static Set<Object> bruteForce( List<double[]> vectors, double[] target, int k ) {
+        return IntStream.range( 0, vectors.size() )
+                .boxed()
+                .sorted( Comparator.comparingDouble( i -> HnswGraph.distance( vectors.get( i ), target ) ) )
+                .limit( k )
+                .collect( Collectors.toCollection( HashSet::new ) );
+    }
+
+}
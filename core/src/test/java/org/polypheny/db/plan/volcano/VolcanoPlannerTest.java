@@ -128,6 +128,29 @@ public void testTransformSingleGood() {
     }
 
 
+    /**
+     * Tests that the planner returns the best implementable plan found so far once its budget is exhausted.
+     */
+    @Test
+    public void testTransformSingleGoodWithBudget() {
+        VolcanoPlanner planner = new VolcanoPlanner();
+        planner.addRelTraitDef( ConventionTraitDef.INSTANCE );
+        planner.setBudget( 0, 1 );
+
+        planner.addRule( new PhysLeafRule() );
+        planner.addRule( new GoodSingleRule() );
+
+        RelOptCluster cluster = newCluster( planner );
+        NoneLeafRel leafRel = new NoneLeafRel( cluster, "a" );
+        NoneSingleRel singleRel = new NoneSingleRel( cluster, leafRel );
+        RelNode convertedRel = planner.changeTraits( singleRel, cluster.traitSetOf( PHYS_CALLING_CONVENTION ) );
+        planner.setRoot( convertedRel );
+        RelNode result = planner.chooseDelegate().findBestExp();
+        assertTrue( result instanceof PhysSingleRel );
+        assertTrue( planner.isBudgetExhausted() );
+    }
+
+
     /**
      * Tests a rule that is fired once per subset (whereas most rules are fired once per rel in a set or rel in a subset)
      */
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+
+/**
+ * Checks that the kernels operating on primitive arrays compute the same results as the ones operating on boxed lists.
+ */
+public class DistanceFunctionsTest {
+
+    private static final double DELTA = 1e-9;
+    private static final String[] METRICS = { "L1", "L2", "L2SQUARED", "CHISQUARED", "COSINE" };
+
+
+    @Test
+    public void testPrimitiveKernels() {
+        final Random random = new Random( 42 );
+        // Include lengths which are not a multiple of the unrolling factor
+        for ( int dimension : new int[]{ 1, 3, 4, 7, 64, 513 } ) {
+            final List<Number> value = randomVector( random, dimension );
+            final List<Number> target = randomVector( random, dimension );
+            final double[] v = DistanceFunctions.toDoubleArray( value );
+            final double[] t = DistanceFunctions.toDoubleArray( target );
+            assertEquals( DistanceFunctions.l1Metric( value, target ), DistanceFunctions.l1Metric( v, t ), DELTA );
+            assertEquals( DistanceFunctions.l2Metric( value, target ), DistanceFunctions.l2Metric( v, t ), DELTA );
+            assertEquals( DistanceFunctions.l2SquaredMetric( value, target ), DistanceFunctions.l2SquaredMetric( v, t ), DELTA );
+            assertEquals( DistanceFunctions.chiSquaredMetric( value, target ), DistanceFunctions.chiSquaredMetric( v, t ), DELTA );
+            assertEquals( DistanceFunctions.cosineMetric( value, target ), DistanceFunctions.cosineMetric( v, t ), DELTA );
+
+            final List<Number> weights = randomVector( random, dimension );
+            final double[] w = DistanceFunctions.toDoubleArray( weights );
+            assertEquals( DistanceFunctions.l1MetricWeighted( value, target, weights ), DistanceFunctions.l1MetricWeighted( v, t, w ), DELTA );
+            assertEquals( DistanceFunctions.l2MetricWeighted( value, target, weights ), DistanceFunctions.l2MetricWeighted( v, t, w ), DELTA );
+            assertEquals( DistanceFunctions.l2SquaredMetricWeighted( value, target, weights ), DistanceFunctions.l2SquaredMetricWeighted( v, t, w ), DELTA );
+            assertEquals( DistanceFunctions.chiSquaredMetricWeighted( value, target, weights ), DistanceFunctions.chiSquaredMetricWeighted( v, t, w ), DELTA );
+            assertEquals( DistanceFunctions.cosineMetricWeighted( value, target, weights ), DistanceFunctions.cosineMetricWeighted( v, t, w ), DELTA );
+        }
+    }
+
+
+    @Test
+    public void testPrimitiveLists() {
+        final Random random = new Random( 7 );
+        final List<Number> target = randomVector( random, 129 );
+        final double[] doubles = new double[129];
+        final float[] floats = new float[129];
+        final List<Number> boxedDoubles = new ArrayList<>();
+        final List<Number> boxedFloats = new ArrayList<>();
+        for ( int i = 0; i < doubles.length; i++ ) {
+            doubles[i] = random.nextDouble();
+            floats[i] = random.nextFloat();
+            boxedDoubles.add( doubles[i] );
+            boxedFloats.add( floats[i] );
+        }
+        for ( String metric : METRICS ) {
+            assertEquals( SqlFunctions.distance( boxedDoubles, target, metric ), SqlFunctions.distance( new DoubleArrayList( doubles ), target, metric ), DELTA );
+            assertEquals( SqlFunctions.distance( boxedFloats, target, metric ), SqlFunctions.distance( new FloatArrayList( floats ), target, metric ), DELTA );
+        }
+    }
+
+
+    private static List<Number> randomVector( Random random, int dimension ) {
+        final List<Number> vector = new ArrayList<>( dimension );
+        for ( int i = 0; i < dimension; i++ ) {
+            // Strictly positive, as required by the chi-squared distance
+            vector.add( random.nextDouble() + 0.1 );
+        }
+        return vector;
+    }
+
+}
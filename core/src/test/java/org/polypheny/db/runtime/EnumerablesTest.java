@@ -41,6 +41,7 @@
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.EnumerableDefaults;
@@ -86,6 +87,52 @@ public void testSemiJoin() {
     }
 
 
+    @Test
+    public void testTopN() {
+        // Stable on equal keys, like orderBy
+        assertThat(
+                Enumerables.topN( EMPS, e -> e.deptno, null, 0, 3 ).toList().toString(),
+                equalTo( "[Emp(10, Fred), Emp(20, Theodore), Emp(20, Sebastian)]" ) );
+        assertThat(
+                Enumerables.topN( EMPS, e -> e.deptno, Comparator.<Integer>reverseOrder(), 1, 2 ).toList().toString(),
+                equalTo( "[Emp(20, Theodore), Emp(20, Sebastian)]" ) );
+        assertThat(
+                Enumerables.topN( EMPS, e -> e.name, null, 2, 10 ).toList().toString(),
+                equalTo( "[Emp(20, Sebastian), Emp(20, Theodore)]" ) );
+        assertThat(
+                Enumerables.topN( EMPS, e -> e.deptno, null, 5, 10 ).toList().toString(),
+                equalTo( "[]" ) );
+        assertThat(
+                Enumerables.topN( EMPS, e -> e.deptno, null, 0, 0 ).toList().toString(),
+                equalTo( "[]" ) );
+    }
+
+
+    @Test
+    public void testTopNMatchesOrderBy() {
+        final List<Integer> values = new ArrayList<>();
+        for ( int i = 0; i < 1000; i++ ) {
+            values.add( (i * 7919) % 1009 );
+        }
+        final Enumerable<Integer> enumerable = Linq4j.asEnumerable( values );
+        assertThat(
+                Enumerables.topN( enumerable, v -> v, null, 10, 25 ).toList(),
+                equalTo( enumerable.orderBy( v -> v ).skip( 10 ).take( 25 ).toList() ) );
+    }
+
+
+    @Test
+    public void testTopNIsLazy() {
+        final List<Integer> values = new ArrayList<>( Arrays.asList( 3, 1, 2 ) );
+        final Enumerable<Integer> topN = Enumerables.topN( Linq4j.asEnumerable( values ), v -> v, null, 0, 2 );
+        // The source is read when enumerating, not when the enumerable is created
+        values.add( 0 );
+        assertThat( topN.toList(), equalTo( Arrays.asList( 0, 1 ) ) );
+        values.clear();
+        assertThat( topN.toList(), equalTo( new ArrayList<Integer>() ) );
+    }
+
+
     @Test
     public void testMergeJoin() {
         assertThat(
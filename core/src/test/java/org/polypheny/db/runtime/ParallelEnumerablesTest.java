@@ -0,0 +1,264 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.junit.Test;
+import org.polypheny.db.rel.RelDistribution.Type;
+
+
+/**
+ * Unit tests for {@link ParallelEnumerables}.
+ */
+public class ParallelEnumerablesTest {
+
+    private static final int ROW_COUNT = 10_000;
+
+
+    private static Enumerable<Integer> rows() {
+        final List<Integer> rows = new ArrayList<>();
+        for ( int i = 0; i < ROW_COUNT; i++ ) {
+            rows.add( i );
+        }
+        return Linq4j.asEnumerable( rows );
+    }
+
+
+    private static void assertAllRows( List<Integer> result ) {
+        Collections.sort( result );
+        assertEquals( ROW_COUNT, result.size() );
+        for ( int i = 0; i < ROW_COUNT; i++ ) {
+            assertEquals( i, (int) result.get( i ) );
+        }
+    }
+
+
+    @Test(timeout = 30_000)
+    public void testRoundRobin() {
+        final Enumerable<Integer> input = rows();
+        final List<Integer> result = ParallelEnumerables.gather(
+                4,
+                partition -> partition.exchange( 0, input, Type.ROUND_ROBIN_DISTRIBUTED, null ) ).toList();
+        assertAllRows( result );
+    }
+
+
+    @Test(timeout = 30_000)
+    public void testHash() {
+        final Enumerable<Integer> input = rows();
+        final List<int[]> result = ParallelEnumerables.gather(
+                4,
+                partition -> partition.exchange( 0, input, Type.HASH_DISTRIBUTED, row -> (Object) (row % 100) )
+                        .select( row -> new int[]{ row, partition.getIndex() } ) ).toList();
+
+        // Every key is in exactly one partition
+        final Map<Integer, Integer> partitions = new HashMap<>();
+        final List<Integer> rows = new ArrayList<>();
+        for ( int[] row : result ) {
+            final Integer previous = partitions.put( row[0] % 100, row[1] );
+            assertTrue( previous == null || previous == row[1] );
+            rows.add( row[0] );
+        }
+        assertAllRows( rows );
+    }
+
+
+    @Test(timeout = 30_000)
+    public void testBroadcast() {
+        final Enumerable<Integer> input = rows();
+        final List<Integer> result = ParallelEnumerables.gather(
+                3,
+                partition -> partition.exchange( 0, input, Type.BROADCAST_DISTRIBUTED, null ) ).toList();
+        assertEquals( 3 * ROW_COUNT, result.size() );
+    }
+
+
+    @Test(timeout = 30_000)
+    public void testHashJoin() {
+        final Enumerable<Integer> left = rows();
+        final Enumerable<Integer> right = rows().where( row -> row % 2 == 0 );
+        final List<Integer> result = ParallelEnumerables.gather(
+                4,
+                partition -> partition.exchange( 0, left, Type.HASH_DISTRIBUTED, row -> (Object) row ).join(
+                        partition.exchange( 1, right, Type.HASH_DISTRIBUTED, row -> (Object) row ),
+                        row -> row,
+                        row -> row,
+                        ( l, r ) -> l ) ).toList();
+        assertEquals( ROW_COUNT / 2, result.size() );
+        for ( Integer row : result ) {
+            assertEquals( 0, row % 2 );
+        }
+    }
+
+
+    @Test(timeout = 30_000)
+    public void testHashJoinOnSharedStore() {
+        // Both inputs read from the same store, which must not be accessed concurrently
+        final AtomicInteger readers = new AtomicInteger();
+        final Enumerable<Integer> left = exclusive( rows(), readers );
+        final Enumerable<Integer> right = exclusive( rows().where( row -> row % 2 == 0 ), readers );
+        final String[] stores = { "store" };
+        final List<Integer> result = ParallelEnumerables.gather(
+                4,
+                partition -> partition.exchange( 0, left, Type.HASH_DISTRIBUTED, row -> (Object) row, stores ).join(
+                        partition.exchange( 1, right, Type.HASH_DISTRIBUTED, row -> (Object) row, stores ),
+                        row -> row,
+                        row -> row,
+                        ( l, r ) -> l ) ).toList();
+        assertEquals( ROW_COUNT / 2, result.size() );
+    }
+
+
+    @Test(timeout = 30_000)
+    public void testSpillWhileReleasingStore() {
+        final AtomicInteger readers = new AtomicInteger();
+        final Enumerable<Integer> first = exclusive( rows(), readers );
+        final Enumerable<Integer> second = exclusive( rows(), readers );
+        final String[] stores = { "store" };
+        // Holds about two chunks in memory
+        final MemoryBudget budget = new MemoryBudget( 16 * 1024 );
+        final List<Integer> result = ParallelEnumerables.gather(
+                2,
+                budget,
+                partition -> {
+                    final List<Integer> rows = new ArrayList<>();
+                    try ( Enumerator<Integer> enumerator = partition.exchange( 0, first, Type.ROUND_ROBIN_DISTRIBUTED, null, stores ).enumerator() ) {
+                        // Once the first rows have arrived, the producer of the first exchange holds the store. It has
+                        // to release it for the second exchange, which is read before the remaining rows of the first.
+                        if ( enumerator.moveNext() ) {
+                            rows.add( enumerator.current() );
+                        }
+                        rows.addAll( partition.exchange( 1, second, Type.ROUND_ROBIN_DISTRIBUTED, null, stores ).toList() );
+                        while ( enumerator.moveNext() ) {
+                            rows.add( enumerator.current() );
+                        }
+                    }
+                    return Linq4j.asEnumerable( rows );
+                } ).toList();
+        assertEquals( 2 * ROW_COUNT, result.size() );
+        final Map<Integer, Integer> counts = new HashMap<>();
+        for ( Integer row : result ) {
+            counts.merge( row, 1, Integer::sum );
+        }
+        assertEquals( ROW_COUNT, counts.size() );
+        assertTrue( counts.values().stream().allMatch( count -> count == 2 ) );
+        assertTrue( budget.getSpills() > 0 );
+        assertEquals( 0, budget.getReserved() );
+    }
+
+
+    /**
+     * Fails if the enumerator of the input is used while another input sharing the counter is being read.
+     */
+    private static Enumerable<Integer> exclusive( Enumerable<Integer> input, AtomicInteger readers ) {
+        return new AbstractEnumerable<Integer>() {
+            @Override
+            public Enumerator<Integer> enumerator() {
+                if ( readers.incrementAndGet() != 1 ) {
+                    throw new IllegalStateException( "concurrent access to the store" );
+                }
+                final Enumerator<Integer> enumerator = input.enumerator();
+                return new Enumerator<Integer>() {
+                    @Override
+                    public Integer current() {
+                        return enumerator.current();
+                    }
+
+
+                    @Override
+                    public boolean moveNext() {
+                        return enumerator.moveNext();
+                    }
+
+
+                    @Override
+                    public void reset() {
+                        enumerator.reset();
+                    }
+
+
+                    @Override
+                    public void close() {
+                        enumerator.close();
+                        readers.decrementAndGet();
+                    }
+                };
+            }
+        };
+    }
+
+
+    @Test(timeout = 30_000)
+    public void testEarlyClose() {
+        final Enumerable<Integer> input = rows();
+        final Enumerable<Integer> gather = ParallelEnumerables.gather(
+                4,
+                partition -> partition.exchange( 0, input, Type.ROUND_ROBIN_DISTRIBUTED, null ) );
+        try ( Enumerator<Integer> enumerator = gather.enumerator() ) {
+            assertTrue( enumerator.moveNext() );
+        }
+    }
+
+
+    @Test(timeout = 30_000)
+    public void testUnreadPartition() {
+        final Enumerable<Integer> input = rows();
+        final List<Integer> result = ParallelEnumerables.gather(
+                4,
+                partition -> partition.getIndex() == 0
+                        ? Linq4j.<Integer>emptyEnumerable()
+                        : partition.exchange( 0, input, Type.ROUND_ROBIN_DISTRIBUTED, null ) ).toList();
+        assertTrue( result.size() <= ROW_COUNT );
+    }
+
+
+    @Test(timeout = 30_000)
+    public void testFailure() {
+        final Enumerable<Integer> input = new AbstractEnumerable<Integer>() {
+            @Override
+            public Enumerator<Integer> enumerator() {
+                return rows().select( row -> {
+                    if ( row == ROW_COUNT / 2 ) {
+                        throw new IllegalStateException( "broken input" );
+                    }
+                    return row;
+                } ).enumerator();
+            }
+        };
+        try {
+            ParallelEnumerables.gather( 4, partition -> partition.exchange( 0, input, Type.ROUND_ROBIN_DISTRIBUTED, null ) ).toList();
+            fail( "expected the failure of the input" );
+        } catch ( IllegalStateException e ) {
+            assertEquals( "broken input", e.getMessage() );
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.Function0;
+import org.apache.calcite.linq4j.function.Function2;
+import org.junit.Test;
+import org.polypheny.db.adapter.DataContext.SlimDataContext;
+import org.polypheny.db.config.RuntimeConfig;
+
+
+/**
+ * Unit tests for {@link ReductionJoins}.
+ */
+public class ReductionJoinsTest {
+
+    private static final int FIRST_PARAMETER = 3;
+
+    private static final int BATCH_SIZE = 4;
+
+
+    /**
+     * Data context with a single set of parameter values.
+     */
+    private static class TestDataContext extends SlimDataContext {
+
+        private final List<Map<Long, Object>> parameterValues = new ArrayList<>();
+
+
+        @Override
+        public List<Map<Long, Object>> getParameterValues() {
+            return parameterValues;
+        }
+
+    }
+
+
+    /**
+     * Rows (id, name) of the large side.
+     */
+    private static List<Object[]> probeRows() {
+        final List<Object[]> rows = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ ) {
+            rows.add( new Object[]{ i, "name" + i } );
+        }
+        return rows;
+    }
+
+
+    /**
+     * Simulates a store which evaluates the filter of a reduced probe side on the bound parameters.
+     */
+    private static Function0<Enumerable<Object[]>> probe( TestDataContext dataContext, AtomicInteger evaluations ) {
+        return () -> {
+            evaluations.incrementAndGet();
+            final Map<Long, Object> values = dataContext.getParameterValues().get( 0 );
+            final List<Object> keys = new ArrayList<>();
+            for ( int i = 0; i < BATCH_SIZE; i++ ) {
+                keys.add( values.get( (long) (FIRST_PARAMETER + i) ) );
+            }
+            return Linq4j.asEnumerable( probeRows() ).where( row -> keys.contains( row[0] ) );
+        };
+    }
+
+
+    private static Function2<Enumerable, Enumerable, Enumerable<String>> join() {
+        //noinspection unchecked
+        return ( left, right ) -> ((Enumerable<Object[]>) left).join(
+                (Enumerable<Object[]>) right,
+                row -> row[0],
+                row -> row[0],
+                ( l, r ) -> l[1] + ":" + r[1] );
+    }
+
+
+    private static List<String> sorted( Enumerable<String> enumerable ) {
+        final List<String> result = new ArrayList<>( enumerable.toList() );
+        Collections.sort( result );
+        return result;
+    }
+
+
+    @Test
+    public void testReduced() {
+        final TestDataContext dataContext = new TestDataContext();
+        final AtomicInteger evaluations = new AtomicInteger();
+        final AtomicInteger unreducedEvaluations = new AtomicInteger();
+        final List<Object[]> build = Arrays.asList(
+                new Object[]{ 7, "a" },
+                new Object[]{ 42, "b" },
+                new Object[]{ 7, "c" },
+                new Object[]{ null, "d" },
+                new Object[]{ 99, "e" },
+                new Object[]{ 500, "f" },
+                new Object[]{ 3, "g" } );
+        final Enumerable<String> result = ReductionJoins.join(
+                dataContext,
+                Linq4j.asEnumerable( build ),
+                row -> row[0],
+                probe( dataContext, evaluations ),
+                () -> {
+                    unreducedEvaluations.incrementAndGet();
+                    return Linq4j.asEnumerable( probeRows() );
+                },
+                join(),
+                true,
+                FIRST_PARAMETER,
+                1,
+                BATCH_SIZE );
+        assertEquals( Arrays.asList( "a:name7", "b:name42", "c:name7", "e:name99", "g:name3" ), sorted( result ) );
+        // Five distinct keys which are not null in two batches
+        assertEquals( 2, evaluations.get() );
+        assertEquals( 0, unreducedEvaluations.get() );
+    }
+
+
+    @Test
+    public void testBuildRight() {
+        final TestDataContext dataContext = new TestDataContext();
+        final AtomicInteger evaluations = new AtomicInteger();
+        final Enumerable<String> result = ReductionJoins.join(
+                dataContext,
+                Linq4j.asEnumerable( Collections.singletonList( new Object[]{ 5, "x" } ) ),
+                row -> row[0],
+                probe( dataContext, evaluations ),
+                () -> Linq4j.asEnumerable( probeRows() ),
+                join(),
+                false,
+                FIRST_PARAMETER,
+                1,
+                BATCH_SIZE );
+        assertEquals( Collections.singletonList( "name5:x" ), sorted( result ) );
+        assertEquals( 1, evaluations.get() );
+    }
+
+
+    @Test
+    public void testEmptyBuildSide() {
+        final TestDataContext dataContext = new TestDataContext();
+        final AtomicInteger evaluations = new AtomicInteger();
+        final Enumerable<String> result = ReductionJoins.join(
+                dataContext,
+                Linq4j.asEnumerable( Collections.<Object[]>emptyList() ),
+                row -> row[0],
+                probe( dataContext, evaluations ),
+                () -> Linq4j.asEnumerable( probeRows() ),
+                join(),
+                true,
+                FIRST_PARAMETER,
+                1,
+                BATCH_SIZE );
+        assertEquals( 0, result.count() );
+        assertEquals( 0, evaluations.get() );
+    }
+
+
+    @Test
+    public void testTooManyKeys() {
+        final int maxKeys = RuntimeConfig.JOIN_REDUCTION_MAX_KEYS.getInteger();
+        RuntimeConfig.JOIN_REDUCTION_MAX_KEYS.setInteger( 2 );
+        try {
+            final TestDataContext dataContext = new TestDataContext();
+            final AtomicInteger evaluations = new AtomicInteger();
+            final List<Object[]> build = Arrays.asList( new Object[]{ 1, "a" }, new Object[]{ 2, "b" }, new Object[]{ 3, "c" } );
+            final Enumerable<String> result = ReductionJoins.join(
+                    dataContext,
+                    Linq4j.asEnumerable( build ),
+                    row -> row[0],
+                    probe( dataContext, evaluations ),
+                    () -> Linq4j.asEnumerable( probeRows() ),
+                    join(),
+                    true,
+                    FIRST_PARAMETER,
+                    1,
+                    BATCH_SIZE );
+            assertEquals( Arrays.asList( "a:name1", "b:name2", "c:name3" ), sorted( result ) );
+            assertEquals( 0, evaluations.get() );
+        } finally {
+            RuntimeConfig.JOIN_REDUCTION_MAX_KEYS.setInteger( maxKeys );
+        }
+    }
+
+
+    @Test
+    public void testCompositeKeys() {
+        final List<Object[]> keys = ReductionJoins.keys(
+                Arrays.asList( new Object[]{ 1, "a" }, new Object[]{ 1, null }, new Object[]{ 1, "a" }, new Object[]{ 2, "b" } ),
+                row -> Arrays.asList( row[0], row[1] ),
+                2 );
+        assertEquals( 2, keys.size() );
+
+        final TestDataContext dataContext = new TestDataContext();
+        ReductionJoins.bind( dataContext, keys, 0, FIRST_PARAMETER, 2, 3 );
+        final Map<Long, Object> values = dataContext.getParameterValues().get( 0 );
+        assertEquals( 6, values.size() );
+        assertEquals( 1, values.get( (long) FIRST_PARAMETER ) );
+        assertEquals( "a", values.get( (long) FIRST_PARAMETER + 1 ) );
+        assertEquals( 2, values.get( (long) FIRST_PARAMETER + 2 ) );
+        assertEquals( "b", values.get( (long) FIRST_PARAMETER + 3 ) );
+        // The last key is repeated to fill the batch
+        assertEquals( 2, values.get( (long) FIRST_PARAMETER + 4 ) );
+        assertEquals( "b", values.get( (long) FIRST_PARAMETER + 5 ) );
+    }
+
+}
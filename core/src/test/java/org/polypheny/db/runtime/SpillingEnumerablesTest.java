@@ -0,0 +1,221 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.apache.calcite.avatica.util.ByteString;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.EnumerableDefaults;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.linq4j.function.Function1;
+import org.apache.calcite.linq4j.function.Functions;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for {@link SpillingEnumerables} and {@link SpillFile}.
+ */
+public class SpillingEnumerablesTest {
+
+    private static final int ROW_SIZE = 1024 * 1024;
+
+    private static final Function1<Object[], Integer> KEY = row -> (Integer) row[0];
+
+
+    /**
+     * Joins an input which is larger than the heap. Only possible if the join spills.
+     */
+    @Test
+    public void testJoinLargerThanHeap() {
+        final int rowCount = (int) (Runtime.getRuntime().maxMemory() / ROW_SIZE) + 64;
+        final MemoryBudget budget = new MemoryBudget( 128 * 1024 * 1024 );
+        // The rows are generated on demand
+        final Enumerable<Object[]> inner = Linq4j.asEnumerable( Functions.generate( rowCount, i -> new Object[]{ i, new byte[ROW_SIZE] } ) );
+        final Enumerable<Object[]> outer = Linq4j.asEnumerable( Functions.generate( rowCount, i -> new Object[]{ i } ) );
+
+        long count = 0;
+        long bytes = 0;
+        try ( Enumerator<Integer> enumerator = SpillingEnumerables.join(
+                budget,
+                outer,
+                inner,
+                KEY,
+                KEY,
+                ( o, i ) -> ((byte[]) i[1]).length,
+                null,
+                false,
+                false,
+                0 ).enumerator() ) {
+            while ( enumerator.moveNext() ) {
+                count++;
+                bytes += enumerator.current();
+            }
+        }
+        assertEquals( rowCount, count );
+        assertEquals( (long) rowCount * ROW_SIZE, bytes );
+        assertTrue( budget.getSpills() > 0 );
+        assertEquals( 0, budget.getReserved() );
+    }
+
+
+    @Test
+    public void testOuterJoin() {
+        final List<Object[]> left = new ArrayList<>();
+        final List<Object[]> right = new ArrayList<>();
+        for ( int i = 0; i < 1000; i++ ) {
+            left.add( new Object[]{ i % 3 == 0 ? null : i, "l" + i } );
+            right.add( new Object[]{ i + 500, "r" + i } );
+        }
+        for ( boolean nullsOnLeft : new boolean[]{ false, true } ) {
+            for ( boolean nullsOnRight : new boolean[]{ false, true } ) {
+                final List<String> expected = EnumerableDefaults.join(
+                        Linq4j.asEnumerable( left ),
+                        Linq4j.asEnumerable( right ),
+                        KEY,
+                        KEY,
+                        SpillingEnumerablesTest::joinRow,
+                        null,
+                        nullsOnLeft,
+                        nullsOnRight ).orderBy( s -> s ).toList();
+                final MemoryBudget budget = new MemoryBudget( 1024 );
+                final List<String> actual = SpillingEnumerables.join(
+                        budget,
+                        Linq4j.asEnumerable( left ),
+                        Linq4j.asEnumerable( right ),
+                        KEY,
+                        KEY,
+                        SpillingEnumerablesTest::joinRow,
+                        null,
+                        nullsOnLeft,
+                        nullsOnRight,
+                        0 ).orderBy( s -> s ).toList();
+                assertEquals( expected, actual );
+                assertTrue( budget.getSpills() > 0 );
+            }
+        }
+    }
+
+
+    @Test
+    public void testOrderBy() {
+        final Random random = new Random( 42 );
+        final List<Object[]> rows = new ArrayList<>();
+        for ( int i = 0; i < 20000; i++ ) {
+            rows.add( new Object[]{ random.nextInt( 100 ), i } );
+        }
+        final Comparator<Integer> descending = Comparator.reverseOrder();
+        final MemoryBudget budget = new MemoryBudget( 4096 );
+        final List<Object[]> actual = SpillingEnumerables.orderBy( budget, Linq4j.asEnumerable( rows ), KEY, descending ).toList();
+        // The in-memory sort is stable as well
+        final List<Object[]> expected = EnumerableDefaults.orderBy( Linq4j.asEnumerable( rows ), KEY, descending ).toList();
+        assertEquals( expected.size(), actual.size() );
+        for ( int i = 0; i < expected.size(); i++ ) {
+            assertArrayEquals( expected.get( i ), actual.get( i ) );
+        }
+        assertTrue( budget.getSpills() > 0 );
+        assertEquals( 0, budget.getReserved() );
+    }
+
+
+    @Test
+    public void testGroupBy() {
+        final List<Object[]> rows = new ArrayList<>();
+        for ( int i = 0; i < 20000; i++ ) {
+            rows.add( new Object[]{ i % 997, (long) i } );
+        }
+        final MemoryBudget budget = new MemoryBudget( 4096 );
+        final List<String> actual = SpillingEnumerables.<Object[], Integer, long[], String>groupBy(
+                budget,
+                Linq4j.asEnumerable( rows ),
+                KEY,
+                () -> new long[1],
+                ( acc, row ) -> {
+                    acc[0] += (Long) row[1];
+                    return acc;
+                },
+                ( key, acc ) -> key + ":" + acc[0],
+                null,
+                0 ).orderBy( s -> s ).toList();
+        final List<String> expected = EnumerableDefaults.<Object[], Integer, long[], String>groupBy(
+                Linq4j.asEnumerable( rows ),
+                KEY,
+                () -> new long[1],
+                ( acc, row ) -> {
+                    acc[0] += (Long) row[1];
+                    return acc;
+                },
+                ( key, acc ) -> key + ":" + acc[0] ).orderBy( s -> s ).toList();
+        assertEquals( 997, actual.size() );
+        assertEquals( expected, actual );
+        assertTrue( budget.getSpills() > 0 );
+        assertEquals( 0, budget.getReserved() );
+    }
+
+
+    @Test
+    public void testSpillFileRoundTrip() {
+        final Object[] row = new Object[]{
+                null,
+                true,
+                (byte) 1,
+                (short) -2,
+                3,
+                -4L,
+                Long.MAX_VALUE,
+                5.5f,
+                -6.25,
+                'c',
+                "Polypheny",
+                new BigDecimal( "12345678901234567890.123" ),
+                new byte[]{ 1, 2, 3 },
+                new ByteString( new byte[]{ 4, 5 } ),
+                Arrays.asList( 1, "a", null ),
+                new Object[]{ 1, new Object[]{ "nested" } },
+                new java.sql.Date( 0 ),
+                new java.sql.Time( 1000 ),
+                new java.sql.Timestamp( 123456789L ) };
+        try ( SpillFile file = new SpillFile() ) {
+            file.write( row );
+            file.write( 42 );
+            final List<Object> read = file.asEnumerable().toList();
+            assertEquals( 2, read.size() );
+            assertEquals( 2, file.getRowCount() );
+            assertTrue( Arrays.deepEquals( row, (Object[]) read.get( 0 ) ) );
+            assertEquals( 42, read.get( 1 ) );
+            // Can be read more than once
+            assertEquals( read.size(), file.asEnumerable().count() );
+        }
+    }
+
+
+    private static String joinRow( Object[] left, Object[] right ) {
+        return (left == null ? "null" : Arrays.toString( left )) + (right == null ? "null" : Arrays.toString( right ));
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.runtime.batch;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for {@link BatchEnumerables} and the kernels of {@link VectorExpressions}.
+ */
+public class BatchEnumerablesTest {
+
+    private static final int ROW_COUNT = 5 * ColumnBatch.SIZE + 17;
+
+    private static final VectorKind[] KINDS = { VectorKind.INT, VectorKind.DOUBLE, VectorKind.OBJECT };
+
+
+    /**
+     * Rows (i, i / 2.0, 'si % 3'); every seventh row has null values.
+     */
+    private static List<Object[]> rows() {
+        final List<Object[]> rows = new ArrayList<>();
+        for ( int i = 0; i < ROW_COUNT; i++ ) {
+            if ( i % 7 == 0 ) {
+                rows.add( new Object[]{ i, null, null } );
+            } else {
+                rows.add( new Object[]{ i, i / 2.0, "s" + (i % 3) } );
+            }
+        }
+        return rows;
+    }
+
+
+    private static Enumerable<ColumnBatch> batches() {
+        return BatchEnumerables.toBatches( Linq4j.asEnumerable( rows() ), KINDS );
+    }
+
+
+    @Test
+    public void testRoundTrip() {
+        final List<Object[]> expected = rows();
+        final List<Object[]> actual = BatchEnumerables.toRows( batches() ).toList();
+        assertEquals( expected.size(), actual.size() );
+        for ( int i = 0; i < expected.size(); i++ ) {
+            assertArrayEquals( expected.get( i ), actual.get( i ) );
+        }
+    }
+
+
+    @Test
+    public void testFilterAndProject() {
+        // WHERE c0 > 100 AND c2 = 's1'
+        final VectorExpression condition = VectorExpressions.call(
+                VectorOperator.AND,
+                VectorKind.BOOLEAN,
+                VectorExpressions.call( VectorOperator.GREATER_THAN, VectorKind.BOOLEAN, VectorExpressions.call( VectorOperator.CAST, VectorKind.LONG, VectorExpressions.column( VectorKind.INT, 0 ) ), VectorExpressions.constant( VectorKind.LONG, 100 ) ),
+                VectorExpressions.call( VectorOperator.EQUALS, VectorKind.BOOLEAN, VectorExpressions.column( VectorKind.OBJECT, 2 ), VectorExpressions.constant( VectorKind.OBJECT, "s1" ) ) );
+        // SELECT c0 * 2, c1 + 1
+        final VectorExpression[] projects = {
+                VectorExpressions.call( VectorOperator.TIMES, VectorKind.INT, VectorExpressions.column( VectorKind.INT, 0 ), VectorExpressions.constant( VectorKind.INT, 2 ) ),
+                VectorExpressions.call( VectorOperator.PLUS, VectorKind.DOUBLE, VectorExpressions.column( VectorKind.DOUBLE, 1 ), VectorExpressions.constant( VectorKind.DOUBLE, 1.0 ) ) };
+
+        final List<Object[]> expected = new ArrayList<>();
+        for ( Object[] row : rows() ) {
+            if ( (Integer) row[0] > 100 && "s1".equals( row[2] ) ) {
+                expected.add( new Object[]{ (Integer) row[0] * 2, (Double) row[1] + 1 } );
+            }
+        }
+        final List<Object[]> actual = BatchEnumerables.toRows( BatchEnumerables.project( null, BatchEnumerables.filter( null, batches(), condition ), projects ) ).toList();
+        assertEquals( expected.size(), actual.size() );
+        for ( int i = 0; i < expected.size(); i++ ) {
+            assertArrayEquals( expected.get( i ), actual.get( i ) );
+        }
+    }
+
+
+    @Test
+    public void testThreeValuedLogic() {
+        final Boolean[][] rows = {
+                { true, null }, { false, null }, { null, null }, { true, false }, { null, true } };
+        final List<Object[]> input = new ArrayList<>();
+        for ( Boolean[] row : rows ) {
+            input.add( row );
+        }
+        final VectorExpression[] projects = {
+                VectorExpressions.call( VectorOperator.AND, VectorKind.BOOLEAN, VectorExpressions.column( VectorKind.BOOLEAN, 0 ), VectorExpressions.column( VectorKind.BOOLEAN, 1 ) ),
+                VectorExpressions.call( VectorOperator.OR, VectorKind.BOOLEAN, VectorExpressions.column( VectorKind.BOOLEAN, 0 ), VectorExpressions.column( VectorKind.BOOLEAN, 1 ) ) };
+        final List<Object[]> actual = BatchEnumerables.toRows(
+                BatchEnumerables.project(
+                        null,
+                        BatchEnumerables.toBatches( Linq4j.asEnumerable( input ), new VectorKind[]{ VectorKind.BOOLEAN, VectorKind.BOOLEAN } ),
+                        projects ) ).toList();
+        assertArrayEquals( new Object[]{ null, true }, actual.get( 0 ) );
+        assertArrayEquals( new Object[]{ false, null }, actual.get( 1 ) );
+        assertArrayEquals( new Object[]{ null, null }, actual.get( 2 ) );
+        assertArrayEquals( new Object[]{ false, true }, actual.get( 3 ) );
+        assertArrayEquals( new Object[]{ null, true }, actual.get( 4 ) );
+    }
+
+
+    @Test
+    public void testAggregate() {
+        // SELECT c2, COUNT(*), COUNT(c1), SUM(c1), MIN(c0), MAX(c1) GROUP BY c2
+        final List<Object[]> actual = BatchEnumerables.toRows( BatchEnumerables.aggregate(
+                batches(),
+                new int[]{ 2 },
+                new VectorKind[]{ VectorKind.OBJECT },
+                new VectorAggregation[]{ VectorAggregation.COUNT_STAR, VectorAggregation.COUNT, VectorAggregation.SUM, VectorAggregation.MIN, VectorAggregation.MAX },
+                new int[]{ -1, 1, 1, 0, 1 },
+                new VectorKind[]{ VectorKind.LONG, VectorKind.LONG, VectorKind.DOUBLE, VectorKind.INT, VectorKind.DOUBLE } ) ).toList();
+
+        final Map<Object, Object[]> expected = new HashMap<>();
+        for ( Object[] row : rows() ) {
+            final Object[] group = expected.computeIfAbsent( row[2], k -> new Object[]{ k, 0L, 0L, null, null, null } );
+            group[1] = (Long) group[1] + 1;
+            group[4] = group[4] == null ? row[0] : Math.min( (Integer) group[4], (Integer) row[0] );
+            if ( row[1] != null ) {
+                group[2] = (Long) group[2] + 1;
+                group[3] = group[3] == null ? row[1] : (Double) group[3] + (Double) row[1];
+                group[5] = group[5] == null ? row[1] : Math.max( (Double) group[5], (Double) row[1] );
+            }
+        }
+        assertEquals( expected.size(), actual.size() );
+        for ( Object[] row : actual ) {
+            assertArrayEquals( expected.get( row[0] ), row );
+        }
+    }
+
+
+    @Test
+    public void testAggregateWithoutGroupsOnEmptyInput() {
+        final List<Object[]> actual = BatchEnumerables.toRows( BatchEnumerables.aggregate(
+                BatchEnumerables.toBatches( Linq4j.emptyEnumerable(), KINDS ),
+                new int[0],
+                new VectorKind[0],
+                new VectorAggregation[]{ VectorAggregation.COUNT_STAR, VectorAggregation.SUM, VectorAggregation.SUM0 },
+                new int[]{ -1, 0, 0 },
+                new VectorKind[]{ VectorKind.LONG, VectorKind.INT, VectorKind.INT } ) ).toList();
+        assertEquals( 1, actual.size() );
+        assertArrayEquals( new Object[]{ 0L, null, 0 }, actual.get( 0 ) );
+    }
+
+}
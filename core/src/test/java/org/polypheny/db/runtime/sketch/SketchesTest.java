@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.runtime.sketch;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+
+/**
+ * Unit tests for {@link HyperLogLog}, {@link QuantileSketch} and {@link TopKSketch}.
+ */
+public class SketchesTest {
+
+    @Test
+    public void testHyperLogLogSmallCardinalityIsExact() {
+        HyperLogLog hll = new HyperLogLog();
+        for ( int i = 0; i < 3; i++ ) {
+            for ( int value = 0; value < 100; value++ ) {
+                hll.add( value );
+            }
+        }
+        assertEquals( 100, hll.estimate() );
+    }
+
+
+    @Test
+    public void testHyperLogLogIgnoresNulls() {
+        HyperLogLog hll = new HyperLogLog();
+        hll.add( "a" );
+        hll.add( (Object) null );
+        hll.add( "a", null );
+        hll.add( "a", "b" );
+        assertEquals( 2, hll.estimate() );
+    }
+
+
+    @Test
+    public void testHyperLogLogLargeCardinality() {
+        HyperLogLog hll = new HyperLogLog();
+        final int n = 1_000_000;
+        for ( long value = 0; value < n; value++ ) {
+            hll.add( value );
+        }
+        // The standard error for the default precision is about 1.6%
+        assertEquals( n, hll.estimate(), n * 0.05 );
+    }
+
+
+    @Test
+    public void testHyperLogLogMerge() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for ( int value = 0; value < 60_000; value++ ) {
+            first.add( value );
+            second.add( value + 30_000 );
+        }
+        HyperLogLog sparse = new HyperLogLog();
+        sparse.add( -1 );
+        first.merge( second );
+        first.merge( sparse );
+        assertEquals( 90_001, first.estimate(), 90_001 * 0.05 );
+    }
+
+
+    @Test
+    public void testQuantileSketch() {
+        QuantileSketch sketch = new QuantileSketch();
+        final int n = 100_000;
+        List<Integer> values = shuffledRange( n );
+        for ( int value : values ) {
+            sketch.add( value, 0.5 );
+        }
+        assertEquals( n / 2.0, sketch.quantile(), n * 0.02 );
+        assertEquals( n * 0.9, sketch.quantile( 0.9 ), n * 0.02 );
+        assertEquals( 0.0, sketch.quantile( 0 ), n * 0.02 );
+        assertEquals( n, sketch.getCount() );
+    }
+
+
+    @Test
+    public void testQuantileSketchMerge() {
+        QuantileSketch first = new QuantileSketch();
+        QuantileSketch second = new QuantileSketch();
+        for ( int value : shuffledRange( 50_000 ) ) {
+            first.add( value );
+            second.add( value + 50_000 );
+        }
+        first.merge( second );
+        assertEquals( 100_000, first.getCount() );
+        assertEquals( 25_000, first.quantile( 0.25 ), 2_000 );
+    }
+
+
+    @Test
+    public void testQuantileSketchEmpty() {
+        assertNull( new QuantileSketch().quantile( 0.5 ) );
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testQuantileSketchInvalidFraction() {
+        new QuantileSketch().add( 1, 1.5 );
+    }
+
+
+    @Test
+    public void testTopKSketch() {
+        TopKSketch sketch = new TopKSketch();
+        Random random = new Random( 42 );
+        for ( int i = 0; i < 100_000; i++ ) {
+            // Three heavy hitters in a long tail of rare values
+            int choice = random.nextInt( 10 );
+            if ( choice < 3 ) {
+                sketch.add( "hot" + choice, 3 );
+            } else {
+                sketch.add( "cold" + random.nextInt( 50_000 ), 3 );
+            }
+        }
+        List<Object> topK = sketch.topK();
+        assertEquals( 3, topK.size() );
+        assertTrue( topK.containsAll( Arrays.asList( "hot0", "hot1", "hot2" ) ) );
+    }
+
+
+    @Test
+    public void testTopKSketchMerge() {
+        TopKSketch first = new TopKSketch( 2 );
+        TopKSketch second = new TopKSketch( 2 );
+        for ( int i = 0; i < 10; i++ ) {
+            first.add( "a", 2 );
+            second.add( "b", 2 );
+        }
+        second.add( "a", 2 );
+        first.add( "c", 2 );
+        first.merge( second );
+        assertEquals( Arrays.asList( "a", "b" ), first.topK() );
+        assertEquals( 11, first.estimateCount( "a" ) );
+    }
+
+
+    private static List<Integer> shuffledRange( int n ) {
+        Integer[] values = new Integer[n];
+        for ( int i = 0; i < n; i++ ) {
+            values[i] = i;
+        }
+        List<Integer> list = Arrays.asList( values );
+        Collections.shuffle( list, new Random( 42 ) );
+        return list;
+    }
+
+}
@@ -168,6 +168,34 @@ public void testCreateView() {
     }
 
 
+    @Test
+    public void testCreateMaterializedView() {
+        final String sql = "create materialized view mv (a, b) on store hsqldb freshness interval '10' minute as\n"
+                + "select x, sum(y) from t group by x";
+        final String expected = "CREATE MATERIALIZED VIEW `MV` (`A`, `B`) ON STORE `HSQLDB` FRESHNESS INTERVAL '10' MINUTE AS\n"
+                + "SELECT `X`, SUM(`Y`)\n"
+                + "FROM `T`\n"
+                + "GROUP BY `X`";
+        sql( sql ).ok( expected );
+    }
+
+
+    @Test
+    public void testCreateMaterializedViewDeferred() {
+        final String sql = "create materialized view mv freshness deferred as select * from t";
+        final String expected = "CREATE MATERIALIZED VIEW `MV` FRESHNESS DEFERRED AS\n"
+                + "SELECT *\n"
+                + "FROM `T`";
+        sql( sql ).ok( expected );
+    }
+
+
+    @Test
+    public void testAlterMaterializedViewRefresh() {
+        sql( "alter materialized view x.mv refresh" ).ok( "ALTER MATERIALIZED VIEW `X`.`MV` REFRESH" );
+    }
+
+
     @Test
     public void testCreateOrReplaceFunction() {
         final String sql = "create or replace function if not exists x.udf\n"
@@ -249,6 +277,12 @@ public void testDropView() {
     }
 
 
+    @Test
+    public void testDropMaterializedView() {
+        sql( "drop materialized view if exists x" ).ok( "DROP MATERIALIZED VIEW IF EXISTS `X`" );
+    }
+
+
     @Test
     public void testDropFunction() {
         final String sql = "drop function x.udf";
@@ -7004,7 +7004,7 @@ public void testApproxCountDistinctFunc() {
         tester.checkType( "approx_count_distinct(1, 2)", "BIGINT NOT NULL" );
         tester.checkType( "approx_count_distinct(1, 2, 'x', 'y')", "BIGINT NOT NULL" );
         final String[] values = { "0", "CAST(null AS INTEGER)", "1", "0" };
-        // currently APPROX_COUNT_DISTINCT(x) returns the same as COUNT(DISTINCT x)
+        // for a small number of distinct values, APPROX_COUNT_DISTINCT(x) returns the same as COUNT(DISTINCT x)
         tester.checkAgg( "APPROX_COUNT_DISTINCT(x)", values, 2, (double) 0 );
         tester.checkAgg( "APPROX_COUNT_DISTINCT(CASE x WHEN 0 THEN NULL ELSE -1 END)", values, 1, (double) 0 );
         // DISTINCT keyword is allowed but has no effect
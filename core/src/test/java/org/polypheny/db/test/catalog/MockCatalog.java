@@ -29,7 +29,9 @@
 import org.polypheny.db.catalog.entity.CatalogForeignKey;
 import org.polypheny.db.catalog.entity.CatalogIndex;
 import org.polypheny.db.catalog.entity.CatalogKey;
+import org.polypheny.db.catalog.entity.CatalogMaterializedView;
 import org.polypheny.db.catalog.entity.CatalogPartition;
+import org.polypheny.db.catalog.entity.CatalogPendingPlacement;
 import org.polypheny.db.catalog.entity.CatalogPrimaryKey;
 import org.polypheny.db.catalog.entity.CatalogQueryInterface;
 import org.polypheny.db.catalog.entity.CatalogSchema;
@@ -597,6 +599,48 @@ public void deleteIndex( long indexId ) {
     }
 
 
+    @Override
+    public List<CatalogMaterializedView> getMaterializedViews() {
+        throw new NotImplementedException();
+    }
+
+
+    @Override
+    public CatalogMaterializedView getMaterializedView( long tableId ) {
+        throw new NotImplementedException();
+    }
+
+
+    @Override
+    public void addMaterializedView( long tableId, String query, List<Long> underlyingTables, Freshness freshness, long interval ) {
+        throw new NotImplementedException();
+    }
+
+
+    @Override
+    public void deleteMaterializedView( long tableId ) {
+        throw new NotImplementedException();
+    }
+
+
+    @Override
+    public List<CatalogPendingPlacement> getPendingPlacements() {
+        throw new NotImplementedException();
+    }
+
+
+    @Override
+    public void addPendingPlacement( long tableId, int adapterId, List<Long> columnIds, boolean newDataPlacement ) {
+        throw new NotImplementedException();
+    }
+
+
+    @Override
+    public void deletePendingPlacement( long tableId ) {
+        throw new NotImplementedException();
+    }
+
+
     @Override
     public void deletePrimaryKey( long tableId ) throws GenericCatalogException {
         throw new NotImplementedException();
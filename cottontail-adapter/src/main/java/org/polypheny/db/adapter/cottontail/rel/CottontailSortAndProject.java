@@ -129,7 +129,7 @@ public void implement( CottontailImplementContext context ) {
 
             context.preparedValuesMapBuilder = Expressions.lambda( inner.toBlock(), dynamicParameterMap_ );*/
             context.preparedValuesMapBuilder = CottontailProject.makeProjectValueBuilder( context.blockBuilder, getNamedProjects(), physicalColumnNames, columnTypes );
-            Pair<ParameterExpression, Expression> projectsAndKnn = makeProjectionAndKnnBuilder( context.blockBuilder, getNamedProjects(), physicalColumnNames, this.fetch );
+            Pair<ParameterExpression, Expression> projectsAndKnn = makeProjectionAndKnnBuilder( context.blockBuilder, getNamedProjects(), physicalColumnNames, this.fetch, this.offset );
             context.projectionMap = projectsAndKnn.left;
             if ( projectsAndKnn.right != null ) {
                 context.knnBuilder = projectsAndKnn.right;
@@ -171,7 +171,7 @@ public void implement( CottontailImplementContext context ) {
             }*/
 
             context.blockBuilder = builder;
-            Pair<ParameterExpression, Expression> projectsAndKnn = makeProjectionAndKnnBuilder( context.blockBuilder, getNamedProjects(), physicalColumnNames, this.fetch );
+            Pair<ParameterExpression, Expression> projectsAndKnn = makeProjectionAndKnnBuilder( context.blockBuilder, getNamedProjects(), physicalColumnNames, this.fetch, this.offset );
             context.projectionMap = projectsAndKnn.left;
             if ( projectsAndKnn.right != null ) {
                 context.knnBuilder = projectsAndKnn.right;
@@ -187,7 +187,7 @@ public SortAndProject copy( RelTraitSet traitSet, RelNode input, List<RexNode> p
     }
 
 
-    public static Pair<ParameterExpression, Expression> makeProjectionAndKnnBuilder( BlockBuilder builder, List<Pair<RexNode, String>> namedProjects, List<String> physicalColumnNames, RexNode limitNode ) {
+    public static Pair<ParameterExpression, Expression> makeProjectionAndKnnBuilder( BlockBuilder builder, List<Pair<RexNode, String>> namedProjects, List<String> physicalColumnNames, RexNode limitNode, RexNode offsetNode ) {
         final ParameterExpression projectionMap_ = Expressions.variable( Map.class, builder.newName( "projectionMap" ) );
         final NewExpression projectionMapCreator = Expressions.new_( HashMap.class );
         builder.add( Expressions.declare( Modifier.FINAL, projectionMap_, projectionMapCreator ) );
@@ -206,7 +206,7 @@ public static Pair<ParameterExpression, Expression> makeProjectionAndKnnBuilder(
                                 Expressions.constant( name.toLowerCase() ) ) ) );
             } else if ( pair.left instanceof RexCall && (((RexCall) pair.left).getOperator() instanceof SqlDistanceFunction) ) {
                 // KNN Function pushdown
-                knnBuilder = CottontailTypeUtil.knnCallToFunctionExpression( (RexCall) pair.left, physicalColumnNames, limitNode );
+                knnBuilder = CottontailTypeUtil.knnCallToFunctionExpression( (RexCall) pair.left, physicalColumnNames, limitNode, offsetNode );
 //                context.knnBuilder = knnBuilder;
 
                 final String name = pair.right;
@@ -17,7 +17,9 @@
 package org.polypheny.db.adapter.cottontail.rules;
 
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.polypheny.db.adapter.cottontail.CottontailConvention;
 import org.polypheny.db.adapter.cottontail.CottontailToEnumerableConverter;
 import org.polypheny.db.adapter.cottontail.rel.CottontailSortAndProject;
@@ -30,6 +32,7 @@
 import org.polypheny.db.rel.RelFieldCollation;
 import org.polypheny.db.rel.RelFieldCollation.Direction;
 import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.Filter;
 import org.polypheny.db.rel.core.Project;
 import org.polypheny.db.rel.core.Sort;
 import org.polypheny.db.rex.RexCall;
@@ -63,7 +66,8 @@ public boolean matches( RelOptRuleCall call ) {
 
         Project project = call.rel( 1 );
 
-        if ( !project.getInput().getConvention().equals( this.out ) ) {
+        // The input has to be a scan of this store, possibly below filters which are pushed down as well
+        if ( !isCottontailInput( project.getInput(), new HashSet<>() ) ) {
             return false;
         }
 
@@ -74,7 +78,6 @@ public boolean matches( RelOptRuleCall call ) {
             return false;
         }
 
-        boolean containsInputRefs = false;
         boolean containsValueProjects = false;
         boolean foundKnnFunction = false;
         int knnColumn = -1;
@@ -83,15 +86,13 @@ public boolean matches( RelOptRuleCall call ) {
         for ( int i = 0, projectsSize = projects.size(); i < projectsSize; i++ ) {
             RexNode e = projects.get( i );
 
-            if ( e instanceof RexInputRef ) {
-                containsInputRefs = true;
-            } else if ( (e instanceof RexLiteral) || (e instanceof RexDynamicParam) || ((e instanceof RexCall) && (((RexCall) e).getOperator() instanceof SqlArrayValueConstructor)) ) {
+            if ( (e instanceof RexLiteral) || (e instanceof RexDynamicParam) || ((e instanceof RexCall) && (((RexCall) e).getOperator() instanceof SqlArrayValueConstructor)) ) {
                 containsValueProjects = true;
             } else if ( (e instanceof RexCall) && (((RexCall) e).getOperator() instanceof SqlDistanceFunction) ) {
                 RexCall rexCall = (RexCall) e;
                 if ( !foundKnnFunction ) {
 
-                    if ( (CottontailToEnumerableConverter.SUPPORTED_ARRAY_COMPONENT_TYPES.contains( rexCall.getOperands().get( 0 ).getType().getComponentType().getPolyType() )) ) {
+                    if ( isPushableKnnCall( rexCall ) ) {
                         foundKnnFunction = true;
                         knnColumn = i;
                     } else {
@@ -100,12 +101,13 @@ public boolean matches( RelOptRuleCall call ) {
                 } else {
                     return false;
                 }
-            } else {
+            } else if ( !(e instanceof RexInputRef) ) {
                 return false;
             }
         }
 
-        if ( !(containsInputRefs && foundKnnFunction && !containsValueProjects) ) {
+        // Additional input refs are optional, the query may only ask for the distances
+        if ( !foundKnnFunction || containsValueProjects ) {
             return false;
         }
 
@@ -120,7 +122,7 @@ public boolean matches( RelOptRuleCall call ) {
             return false;
         }
 
-        if ( sort.fetch == null ) {
+        if ( !isLiteralOrDynamicParam( sort.fetch ) || (sort.offset != null && !isLiteralOrDynamicParam( sort.offset )) ) {
             return false;
         }
 
@@ -160,4 +162,57 @@ public void onMatch( RelOptRuleCall call ) {
         call.transformTo( sortAndProject );
     }
 
+
+    /**
+     * Checks whether the input can be executed by this store, i.e., whether it is a scan of a table of this store,
+     * possibly below one or more filters.
+     */
+    private boolean isCottontailInput( RelNode input, Set<RelNode> visited ) {
+        if ( input.getConvention().equals( this.out ) ) {
+            return true;
+        }
+        if ( !(input instanceof RelSubset) ) {
+            return false;
+        }
+        for ( RelNode rel : ((RelSubset) input).getRelList() ) {
+            if ( rel instanceof Filter && visited.add( rel ) && isCottontailInput( ((Filter) rel).getInput(), visited ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Checks whether the distance function can be translated into a kNN query of Cottontail DB.
+     */
+    static boolean isPushableKnnCall( RexCall knnCall ) {
+        final List<RexNode> operands = knnCall.getOperands();
+        if ( operands.size() < 3 || operands.size() > 4 ) {
+            return false;
+        }
+        final RexNode column = operands.get( 0 );
+        if ( !(column instanceof RexInputRef) && !(column instanceof RexDynamicParam) ) {
+            return false;
+        }
+        if ( column.getType().getComponentType() == null
+                || !CottontailToEnumerableConverter.SUPPORTED_ARRAY_COMPONENT_TYPES.contains( column.getType().getComponentType().getPolyType() ) ) {
+            return false;
+        }
+        if ( !isVector( operands.get( 1 ) ) || !isLiteralOrDynamicParam( operands.get( 2 ) ) ) {
+            return false;
+        }
+        return operands.size() == 3 || isVector( operands.get( 3 ) );
+    }
+
+
+    private static boolean isVector( RexNode node ) {
+        return ((node instanceof RexCall) && (((RexCall) node).getOperator() instanceof SqlArrayValueConstructor)) || (node instanceof RexDynamicParam);
+    }
+
+
+    private static boolean isLiteralOrDynamicParam( RexNode node ) {
+        return (node instanceof RexLiteral) || (node instanceof RexDynamicParam);
+    }
+
 }
@@ -549,7 +549,7 @@ public static From fromFromTableAndSchema( String table, String schema ) {
     }
 
 
-    public static Expression knnCallToFunctionExpression( RexCall knnCall, List<String> physicalColumnNames, RexNode limitNode ) {
+    public static Expression knnCallToFunctionExpression( RexCall knnCall, List<String> physicalColumnNames, RexNode limitNode, RexNode offsetNode ) {
 
         BlockBuilder inner = new BlockBuilder();
         ParameterExpression dynamicParameterMap_ = Expressions.parameter( Modifier.FINAL, Map.class, inner.newName( "dynamicParameters" ) );
@@ -570,6 +570,14 @@ public static Expression knnCallToFunctionExpression( RexCall knnCall, List<Stri
         }
 
         optimisationFactor = knnCallOptimisationFactor( limitNode, dynamicParameterMap_ );
+        if ( offsetNode != null ) {
+            // The skipped rows are taken from the k nearest neighbours, hence they have to be part of them
+            optimisationFactor = Expressions.call(
+                    CottontailTypeUtil.class,
+                    "knnAddOffset",
+                    optimisationFactor,
+                    knnCallOptimisationFactor( offsetNode, dynamicParameterMap_ ) );
+        }
 
         return Expressions.lambda(
                 Expressions.block(
@@ -644,6 +652,14 @@ private static Expression knnCallOptimisationFactor( RexNode node, ParameterExpr
     }
 
 
+    public static Integer knnAddOffset( Object k, Object offset ) {
+        if ( k == null ) {
+            return null;
+        }
+        return ((Number) k).intValue() + (offset == null ? 0 : ((Number) offset).intValue());
+    }
+
+
     public static Object defaultValueParser( CatalogDefaultValue catalogDefaultValue, PolyType actualType ) {
         if ( actualType == PolyType.ARRAY ) {
             throw new RuntimeException( "Default values are not supported for array types" );
@@ -22,6 +22,8 @@
 import java.util.List;
 import java.util.stream.Collectors;
 import org.apache.calcite.avatica.util.ByteString;
+import org.polypheny.db.runtime.DoubleArrayList;
+import org.polypheny.db.runtime.FloatArrayList;
 import org.vitrivr.cottontail.grpc.CottontailGrpc;
 import org.vitrivr.cottontail.grpc.CottontailGrpc.AtomicBooleanOperand;
 import org.vitrivr.cottontail.grpc.CottontailGrpc.AtomicBooleanPredicate;
@@ -29,6 +31,8 @@
 import org.vitrivr.cottontail.grpc.CottontailGrpc.ComparisonOperator;
 import org.vitrivr.cottontail.grpc.CottontailGrpc.CompoundBooleanPredicate;
 import org.vitrivr.cottontail.grpc.CottontailGrpc.ConnectionOperator;
+import org.vitrivr.cottontail.grpc.CottontailGrpc.DoubleVector;
+import org.vitrivr.cottontail.grpc.CottontailGrpc.FloatVector;
 import org.vitrivr.cottontail.grpc.CottontailGrpc.Knn;
 import org.vitrivr.cottontail.grpc.CottontailGrpc.Knn.Distance;
 import org.vitrivr.cottontail.grpc.CottontailGrpc.KnnHint;
@@ -187,7 +191,12 @@ public static Object getFloatVector( Object data ) {
         if ( ((CottontailGrpc.Literal) data).hasNullData() ) {
             return null;
         }
-        return ((CottontailGrpc.Literal) data).getVectorData().getFloatVector().getVectorList();
+        final FloatVector vector = ((CottontailGrpc.Literal) data).getVectorData().getFloatVector();
+        final float[] array = new float[vector.getVectorCount()];
+        for ( int i = 0; i < array.length; i++ ) {
+            array[i] = vector.getVector( i );
+        }
+        return new FloatArrayList( array );
     }
 
 
@@ -195,7 +204,12 @@ public static Object getDoubleVector( Object data ) {
         if ( ((CottontailGrpc.Literal) data).hasNullData() ) {
             return null;
         }
-        return ((CottontailGrpc.Literal) data).getVectorData().getDoubleVector().getVectorList();
+        final DoubleVector vector = ((CottontailGrpc.Literal) data).getVectorData().getDoubleVector();
+        final double[] array = new double[vector.getVectorCount()];
+        for ( int i = 0; i < array.length; i++ ) {
+            array[i] = vector.getVector( i );
+        }
+        return new DoubleArrayList( array );
     }
 
 
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.cottontail.rules;
+
+
+import com.google.common.collect.ImmutableList;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.polypheny.db.adapter.cottontail.CottontailConvention;
+import org.polypheny.db.adapter.cottontail.rel.CottontailFilter;
+import org.polypheny.db.adapter.cottontail.rel.CottontailRel;
+import org.polypheny.db.adapter.cottontail.rel.CottontailSortAndProject;
+import org.polypheny.db.adapter.cottontail.util.CottontailTypeUtil;
+import org.polypheny.db.jdbc.JavaTypeFactoryImpl;
+import org.polypheny.db.plan.ConventionTraitDef;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptCost;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelOptPlanner.CannotPlanException;
+import org.polypheny.db.plan.RelTraitSet;
+import org.polypheny.db.plan.volcano.VolcanoPlanner;
+import org.polypheny.db.rel.AbstractRelNode;
+import org.polypheny.db.rel.RelCollations;
+import org.polypheny.db.rel.RelFieldCollation;
+import org.polypheny.db.rel.RelFieldCollation.Direction;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.RelFactories;
+import org.polypheny.db.rel.logical.LogicalFilter;
+import org.polypheny.db.rel.logical.LogicalProject;
+import org.polypheny.db.rel.logical.LogicalSort;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.rel.type.RelDataType;
+import org.polypheny.db.rel.type.RelDataTypeFactory;
+import org.polypheny.db.rex.RexBuilder;
+import org.polypheny.db.rex.RexCall;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.sql.fun.SqlStdOperatorTable;
+import org.polypheny.db.type.PolyType;
+
+
+public class CottontailSortAndProjectRuleTest {
+
+    private final RelDataTypeFactory typeFactory = new JavaTypeFactoryImpl();
+    private final RexBuilder rexBuilder = new RexBuilder( typeFactory );
+    private final RelDataType doubleType = typeFactory.createPolyType( PolyType.DOUBLE );
+    private final RelDataType vectorType = typeFactory.createArrayType( doubleType, -1 );
+    private final CottontailConvention convention = CottontailConvention.of( "test", null );
+
+
+    @Test
+    public void testPushableKnnCall() {
+        Assert.assertTrue( CottontailSortAndProjectRule.isPushableKnnCall( distance( rexBuilder.makeInputRef( vectorType, 1 ), vector(), rexBuilder.makeLiteral( "L2" ) ) ) );
+        Assert.assertTrue( CottontailSortAndProjectRule.isPushableKnnCall( distance( rexBuilder.makeInputRef( vectorType, 1 ), rexBuilder.makeDynamicParam( vectorType, 0 ), rexBuilder.makeDynamicParam( typeFactory.createPolyType( PolyType.VARCHAR, 10 ), 1 ) ) ) );
+        Assert.assertTrue( CottontailSortAndProjectRule.isPushableKnnCall( distance( rexBuilder.makeInputRef( vectorType, 1 ), vector(), rexBuilder.makeLiteral( "L2" ), vector() ) ) );
+    }
+
+
+    @Test
+    public void testNonPushableKnnCall() {
+        // Distance between a constant and a column
+        Assert.assertFalse( CottontailSortAndProjectRule.isPushableKnnCall( distance( vector(), rexBuilder.makeInputRef( vectorType, 1 ), rexBuilder.makeLiteral( "L2" ) ) ) );
+        // Metric computed from a column
+        Assert.assertFalse( CottontailSortAndProjectRule.isPushableKnnCall( distance( rexBuilder.makeInputRef( vectorType, 1 ), vector(), rexBuilder.makeInputRef( typeFactory.createPolyType( PolyType.VARCHAR, 10 ), 2 ) ) ) );
+        // Unsupported component type
+        final RelDataType stringVectorType = typeFactory.createArrayType( typeFactory.createPolyType( PolyType.VARCHAR, 10 ), -1 );
+        Assert.assertFalse( CottontailSortAndProjectRule.isPushableKnnCall( distance( rexBuilder.makeInputRef( stringVectorType, 1 ), vector(), rexBuilder.makeLiteral( "L2" ) ) ) );
+    }
+
+
+    @Test
+    public void testKnnAddOffset() {
+        Assert.assertEquals( Integer.valueOf( 10 ), CottontailTypeUtil.knnAddOffset( 10, null ) );
+        Assert.assertEquals( Integer.valueOf( 15 ), CottontailTypeUtil.knnAddOffset( 10, 5 ) );
+        Assert.assertEquals( Integer.valueOf( 15 ), CottontailTypeUtil.knnAddOffset( 10L, new BigDecimal( 5 ) ) );
+        Assert.assertNull( CottontailTypeUtil.knnAddOffset( null, 5 ) );
+    }
+
+
+    @Test
+    public void testKnnOverFilteredScan() {
+        final RelNode best = plan( ( scan, rexBuilder ) -> knn(
+                LogicalFilter.create( scan, rexBuilder.makeCall( SqlStdOperatorTable.GREATER_THAN, rexBuilder.makeInputRef( scan, 0 ), rexBuilder.makeExactLiteral( BigDecimal.ONE ) ) ),
+                ImmutableList.of( rexBuilder.makeInputRef( scan, 0 ), distance( rexBuilder.makeInputRef( scan, 1 ), vector(), rexBuilder.makeLiteral( "L2" ) ) ),
+                1,
+                Direction.ASCENDING,
+                rexBuilder.makeExactLiteral( BigDecimal.TEN ) ) );
+
+        // The filter is executed by Cottontail below the kNN
+        Assert.assertTrue( best instanceof CottontailSortAndProject );
+        Assert.assertTrue( best.getInput( 0 ) instanceof CottontailFilter );
+        Assert.assertTrue( best.getInput( 0 ).getInput( 0 ) instanceof TestScan );
+    }
+
+
+    @Test
+    public void testKnnOverScan() {
+        // Only the distances are projected, with an offset
+        final RelNode best = plan( ( scan, rexBuilder ) -> LogicalSort.create(
+                LogicalProject.create(
+                        scan,
+                        ImmutableList.of( distance( rexBuilder.makeInputRef( scan, 1 ), vector(), rexBuilder.makeLiteral( "L2" ) ) ),
+                        ImmutableList.of( "dist" ) ),
+                RelCollations.of( new RelFieldCollation( 0, Direction.ASCENDING ) ),
+                rexBuilder.makeExactLiteral( BigDecimal.ONE ),
+                rexBuilder.makeExactLiteral( BigDecimal.TEN ) ) );
+
+        Assert.assertTrue( best instanceof CottontailSortAndProject );
+        Assert.assertTrue( best.getInput( 0 ) instanceof TestScan );
+    }
+
+
+    @Test
+    public void testKnnNotPushed() {
+        // Sorts are only executed by Cottontail as part of a kNN, so the plans below can not be implemented at all
+
+        // Filter which is not executed by Cottontail
+        Assert.assertNull( plan( ( scan, rexBuilder ) -> knn(
+                LogicalFilter.create( scan, rexBuilder.makeCall( SqlStdOperatorTable.EQUALS, rexBuilder.makeInputRef( scan, 0 ), rexBuilder.makeInputRef( scan, 0 ) ) ),
+                ImmutableList.of( rexBuilder.makeInputRef( scan, 0 ), distance( rexBuilder.makeInputRef( scan, 1 ), vector(), rexBuilder.makeLiteral( "L2" ) ) ),
+                1,
+                Direction.ASCENDING,
+                rexBuilder.makeExactLiteral( BigDecimal.TEN ) ) ) );
+
+        // Descending order
+        Assert.assertNull( plan( ( scan, rexBuilder ) -> knn(
+                scan,
+                ImmutableList.of( rexBuilder.makeInputRef( scan, 0 ), distance( rexBuilder.makeInputRef( scan, 1 ), vector(), rexBuilder.makeLiteral( "L2" ) ) ),
+                1,
+                Direction.DESCENDING,
+                rexBuilder.makeExactLiteral( BigDecimal.TEN ) ) ) );
+
+        // Ordered by another column than the distance
+        Assert.assertNull( plan( ( scan, rexBuilder ) -> knn(
+                scan,
+                ImmutableList.of( rexBuilder.makeInputRef( scan, 0 ), distance( rexBuilder.makeInputRef( scan, 1 ), vector(), rexBuilder.makeLiteral( "L2" ) ) ),
+                0,
+                Direction.ASCENDING,
+                rexBuilder.makeExactLiteral( BigDecimal.TEN ) ) ) );
+
+        // Without a limit
+        Assert.assertNull( plan( ( scan, rexBuilder ) -> knn(
+                scan,
+                ImmutableList.of( rexBuilder.makeInputRef( scan, 0 ), distance( rexBuilder.makeInputRef( scan, 1 ), vector(), rexBuilder.makeLiteral( "L2" ) ) ),
+                1,
+                Direction.ASCENDING,
+                null ) ) );
+
+        // Two distances
+        Assert.assertNull( plan( ( scan, rexBuilder ) -> knn(
+                scan,
+                ImmutableList.of( distance( rexBuilder.makeInputRef( scan, 1 ), vector(), rexBuilder.makeLiteral( "L2" ) ), distance( rexBuilder.makeInputRef( scan, 1 ), vector(), rexBuilder.makeLiteral( "L1" ) ) ),
+                0,
+                Direction.ASCENDING,
+                rexBuilder.makeExactLiteral( BigDecimal.TEN ) ) ) );
+
+        // Distance which can not be translated into a kNN
+        Assert.assertNull( plan( ( scan, rexBuilder ) -> knn(
+                scan,
+                ImmutableList.of( rexBuilder.makeInputRef( scan, 0 ), distance( vector(), rexBuilder.makeInputRef( scan, 1 ), rexBuilder.makeLiteral( "L2" ) ) ),
+                1,
+                Direction.ASCENDING,
+                rexBuilder.makeExactLiteral( BigDecimal.TEN ) ) ) );
+
+        // Projection of a constant
+        Assert.assertNull( plan( ( scan, rexBuilder ) -> knn(
+                scan,
+                ImmutableList.of( rexBuilder.makeExactLiteral( BigDecimal.ONE ), distance( rexBuilder.makeInputRef( scan, 1 ), vector(), rexBuilder.makeLiteral( "L2" ) ) ),
+                1,
+                Direction.ASCENDING,
+                rexBuilder.makeExactLiteral( BigDecimal.TEN ) ) ) );
+    }
+
+
+    /**
+     * Plans the logical plan built on top of a scan of a Cottontail table with the Cottontail rules and returns the best
+     * plan in the Cottontail convention, or null if there is none.
+     */
+    private RelNode plan( PlanBuilder builder ) {
+        final VolcanoPlanner planner = new VolcanoPlanner();
+        planner.addRelTraitDef( ConventionTraitDef.INSTANCE );
+        planner.addRule( new CottontailFilterRule( convention, RelFactories.LOGICAL_BUILDER ) );
+        planner.addRule( new CottontailProjectRule( convention, RelFactories.LOGICAL_BUILDER ) );
+        planner.addRule( new CottontailSortAndProjectRule( convention, RelFactories.LOGICAL_BUILDER ) );
+
+        final RelOptCluster cluster = RelOptCluster.create( planner, rexBuilder );
+        final RelNode logical = builder.build( new TestScan( cluster, cluster.traitSetOf( convention ) ), rexBuilder );
+        planner.setRoot( planner.changeTraits( logical, logical.getTraitSet().replace( convention ) ) );
+        try {
+            return planner.findBestExp();
+        } catch ( CannotPlanException e ) {
+            return null;
+        }
+    }
+
+
+    private RelNode knn( RelNode input, List<RexNode> projects, int sortColumn, Direction direction, RexNode fetch ) {
+        final List<String> fieldNames = new ArrayList<>();
+        for ( int i = 0; i < projects.size(); i++ ) {
+            fieldNames.add( "f" + i );
+        }
+        return LogicalSort.create(
+                LogicalProject.create( input, projects, fieldNames ),
+                RelCollations.of( new RelFieldCollation( sortColumn, direction ) ),
+                null,
+                fetch );
+    }
+
+
+    private RexNode vector() {
+        return rexBuilder.makeCall(
+                vectorType,
+                SqlStdOperatorTable.ARRAY_VALUE_CONSTRUCTOR,
+                ImmutableList.of( rexBuilder.makeApproxLiteral( BigDecimal.ONE ), rexBuilder.makeApproxLiteral( BigDecimal.TEN ) ) );
+    }
+
+
+    private RexCall distance( RexNode... operands ) {
+        return (RexCall) rexBuilder.makeCall( doubleType, SqlStdOperatorTable.DISTANCE, ImmutableList.copyOf( operands ) );
+    }
+
+
+    private interface PlanBuilder {
+
+        RelNode build( RelNode scan, RexBuilder rexBuilder );
+
+    }
+
+
+    /**
+     * Scan of a Cottontail table with an integer column and a vector column.
+     */
+    private static class TestScan extends AbstractRelNode implements CottontailRel {
+
+        TestScan( RelOptCluster cluster, RelTraitSet traitSet ) {
+            super( cluster, traitSet );
+        }
+
+
+        @Override
+        protected RelDataType deriveRowType() {
+            final RelDataTypeFactory typeFactory = getCluster().getTypeFactory();
+            return typeFactory.builder()
+                    .add( "id", null, typeFactory.createPolyType( PolyType.INTEGER ) )
+                    .add( "vec", null, typeFactory.createArrayType( typeFactory.createPolyType( PolyType.DOUBLE ), -1 ) )
+                    .build();
+        }
+
+
+        @Override
+        public RelOptCost computeSelfCost( RelOptPlanner planner, RelMetadataQuery mq ) {
+            return planner.getCostFactory().makeTinyCost();
+        }
+
+
+        @Override
+        public RelNode copy( RelTraitSet traitSet, List<RelNode> inputs ) {
+            return this;
+        }
+
+
+        @Override
+        public String relCompareString() {
+            return getClass().getSimpleName() + "&";
+        }
+
+
+        @Override
+        public void implement( CottontailImplementContext context ) {
+        }
+
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.csv;
+
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.calcite.linq4j.Enumerator;
+
+
+/**
+ * Enumerator that reads from the columnar copy of a CSV file held by the source file cache.
+ *
+ * @param <E> Row type
+ */
+class CsvColumnarEnumerator<E> implements Enumerator<E> {
+
+    private final CsvColumnarFile file;
+    private final AtomicBoolean cancelFlag;
+    private final int[] columns;
+    private final boolean singleColumn;
+    private final Object[] filterValues;
+    private final boolean[] filtered;
+    private final boolean empty;
+    private int row = -1;
+    private E current;
+
+
+    /**
+     * @param file The cached CSV file
+     * @param cancelFlag Cancel flag of the statement
+     * @param columns The (zero-based) indexes of the columns to return
+     * @param singleColumn Whether to return the value instead of an array if there is only one column
+     * @param filterValues Values the columns have to be equal to, in the same order as {@code columns}; {@code null}
+     * entries are ignored
+     */
+    CsvColumnarEnumerator( CsvColumnarFile file, AtomicBoolean cancelFlag, int[] columns, boolean singleColumn, String[] filterValues ) {
+        this.file = file;
+        this.cancelFlag = cancelFlag;
+        this.columns = columns;
+        this.singleColumn = singleColumn && columns.length == 1;
+
+        boolean empty = false;
+        if ( filterValues != null ) {
+            this.filterValues = new Object[Math.min( filterValues.length, columns.length )];
+            this.filtered = new boolean[this.filterValues.length];
+            for ( int i = 0; i < this.filterValues.length; i++ ) {
+                if ( filterValues[i] != null ) {
+                    filtered[i] = true;
+                    try {
+                        this.filterValues[i] = file.parse( columns[i], filterValues[i] );
+                    } catch ( RuntimeException e ) {
+                        // The filter value cannot be parsed, hence no value of this column can match it
+                        empty = true;
+                    }
+                }
+            }
+        } else {
+            this.filterValues = null;
+            this.filtered = null;
+        }
+        this.empty = empty;
+    }
+
+
+    @Override
+    public E current() {
+        return current;
+    }
+
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean moveNext() {
+        if ( empty ) {
+            return false;
+        }
+        outer:
+        while ( ++row < file.getRowCount() ) {
+            if ( cancelFlag.get() ) {
+                return false;
+            }
+            if ( filterValues != null ) {
+                for ( int i = 0; i < filterValues.length; i++ ) {
+                    if ( filtered[i] && !Objects.equals( filterValues[i], file.get( columns[i], row ) ) ) {
+                        continue outer;
+                    }
+                }
+            }
+            if ( singleColumn ) {
+                current = (E) file.get( columns[0], row );
+            } else {
+                final Object[] objects = new Object[columns.length];
+                for ( int i = 0; i < columns.length; i++ ) {
+                    objects[i] = file.get( columns[i], row );
+                }
+                current = (E) objects;
+            }
+            return true;
+        }
+        current = null;
+        return false;
+    }
+
+
+    @Override
+    public void reset() {
+        row = -1;
+        current = null;
+    }
+
+
+    @Override
+    public void close() {
+        // Nothing to do, the data is owned by the cache
+    }
+
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.csv;
+
+
+import au.com.bytecode.opencsv.CSVReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import org.polypheny.db.adapter.SourceFileCache;
+import org.polypheny.db.adapter.SourceFileCache.CachedFile;
+import org.polypheny.db.util.Source;
+
+
+/**
+ * Parsed, columnar copy of a CSV file as stored in the {@link SourceFileCache}. Every column is stored as an array of
+ * its primitive type together with a bitmap of the rows containing null. Only the columns of the table the file has
+ * been loaded for are parsed; the other columns of the file are skipped.
+ */
+class CsvColumnarFile extends CachedFile {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final CsvFieldType[] columnTypes;
+    private final Object[] columns;
+    private final BitSet[] nulls;
+    private final int rowCount;
+    private final CsvEnumerator.ArrayRowConverter converter;
+
+
+    private CsvColumnarFile( CsvFieldType[] columnTypes, Object[] columns, BitSet[] nulls, int rowCount, CsvEnumerator.ArrayRowConverter converter ) {
+        this.columnTypes = columnTypes;
+        this.columns = columns;
+        this.nulls = nulls;
+        this.rowCount = rowCount;
+        this.converter = converter;
+    }
+
+
+    /**
+     * Reads the whole CSV file and parses the specified columns. The same types are used as for parsing the file
+     * row-wise, i.e. the types of the columns in the catalog.
+     *
+     * @param fieldTypes The types of the columns to parse
+     * @param fields The (one-based) positions of the columns to parse
+     */
+    static CsvColumnarFile load( Source source, List<CsvFieldType> fieldTypes, int[] fields ) {
+        try ( CSVReader reader = CsvEnumerator.openCsv( source ) ) {
+            String[] header = reader.readNext();
+            if ( header == null ) {
+                header = new String[0];
+            }
+            int columnCount = header.length;
+            for ( int field : fields ) {
+                columnCount = Math.max( columnCount, field );
+            }
+            final CsvFieldType[] columnTypes = new CsvFieldType[columnCount];
+            for ( int i = 0; i < fields.length; i++ ) {
+                columnTypes[fields[i] - 1] = fieldTypes.get( i );
+            }
+            final CsvEnumerator.ArrayRowConverter converter = new CsvEnumerator.ArrayRowConverter( fieldTypes, fields );
+
+            int capacity = INITIAL_CAPACITY;
+            final Object[] columns = new Object[columnCount];
+            final BitSet[] nulls = new BitSet[columnCount];
+            for ( int field : fields ) {
+                columns[field - 1] = allocate( columnTypes[field - 1], capacity );
+                nulls[field - 1] = new BitSet();
+            }
+
+            int rowCount = 0;
+            String[] strings;
+            while ( (strings = reader.readNext()) != null ) {
+                if ( strings.length < columnCount ) {
+                    strings = Arrays.copyOf( strings, columnCount );
+                    for ( int i = 0; i < columnCount; i++ ) {
+                        if ( strings[i] == null ) {
+                            strings[i] = "";
+                        }
+                    }
+                }
+                if ( rowCount == capacity ) {
+                    capacity = capacity * 2;
+                    for ( int field : fields ) {
+                        columns[field - 1] = grow( columnTypes[field - 1], columns[field - 1], capacity );
+                    }
+                }
+                final Object[] row = converter.convertNormalRow( strings );
+                for ( int i = 0; i < fields.length; i++ ) {
+                    final int column = fields[i] - 1;
+                    if ( row[i] == null ) {
+                        nulls[column].set( rowCount );
+                    } else {
+                        set( columnTypes[column], columns[column], rowCount, row[i] );
+                    }
+                }
+                rowCount++;
+            }
+
+            // Trim the arrays to the actual number of rows
+            for ( int field : fields ) {
+                columns[field - 1] = grow( columnTypes[field - 1], columns[field - 1], rowCount );
+            }
+            return new CsvColumnarFile( columnTypes, columns, nulls, rowCount, converter );
+        } catch ( IOException e ) {
+            throw new RuntimeException( "Unable to read CSV file: " + source.path(), e );
+        }
+    }
+
+
+    /**
+     * Returns whether the specified columns have been parsed using the specified types.
+     */
+    boolean covers( List<CsvFieldType> fieldTypes, int[] fields ) {
+        for ( int i = 0; i < fields.length; i++ ) {
+            if ( fields[i] > columnTypes.length || columnTypes[fields[i] - 1] != fieldTypes.get( i ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+
+    int getColumnCount() {
+        return columns.length;
+    }
+
+
+    /**
+     * Returns the value of the specified cell, boxed the same way as it is done when parsing the CSV file row-wise.
+     */
+    Object get( int column, int row ) {
+        if ( nulls[column].get( row ) ) {
+            return null;
+        }
+        switch ( columnTypes[column] ) {
+            case BOOLEAN:
+                return ((boolean[]) columns[column])[row];
+            case BYTE:
+                return ((byte[]) columns[column])[row];
+            case SHORT:
+                return ((short[]) columns[column])[row];
+            case INT:
+            case DATE:
+            case TIME:
+                return ((int[]) columns[column])[row];
+            case LONG:
+            case TIMESTAMP:
+                return ((long[]) columns[column])[row];
+            case FLOAT:
+                return ((float[]) columns[column])[row];
+            case DOUBLE:
+                return ((double[]) columns[column])[row];
+            default:
+                return ((Object[]) columns[column])[row];
+        }
+    }
+
+
+    /**
+     * Parses a value the same way as the values of the specified column have been parsed.
+     */
+    Object parse( int column, String value ) {
+        return converter.convert( columnTypes[column], value );
+    }
+
+
+    @Override
+    public long getSizeInBytes() {
+        long size = 0;
+        for ( int i = 0; i < columns.length; i++ ) {
+            if ( columns[i] == null ) {
+                // Not parsed
+                continue;
+            }
+            size += nulls[i].size() / 8;
+            switch ( columnTypes[i] ) {
+                case BOOLEAN:
+                case BYTE:
+                    size += rowCount;
+                    break;
+                case SHORT:
+                    size += 2L * rowCount;
+                    break;
+                case INT:
+                case DATE:
+                case TIME:
+                case FLOAT:
+                    size += 4L * rowCount;
+                    break;
+                case LONG:
+                case TIMESTAMP:
+                case DOUBLE:
+                    size += 8L * rowCount;
+                    break;
+                default:
+                    for ( Object o : (Object[]) columns[i] ) {
+                        // Reference, object header and content
+                        size += 8 + (o == null ? 0 : 40 + 2L * o.toString().length());
+                    }
+            }
+        }
+        return size;
+    }
+
+
+    private static Object allocate( CsvFieldType type, int capacity ) {
+        switch ( type ) {
+            case BOOLEAN:
+                return new boolean[capacity];
+            case BYTE:
+                return new byte[capacity];
+            case SHORT:
+                return new short[capacity];
+            case INT:
+            case DATE:
+            case TIME:
+                return new int[capacity];
+            case LONG:
+            case TIMESTAMP:
+                return new long[capacity];
+            case FLOAT:
+                return new float[capacity];
+            case DOUBLE:
+                return new double[capacity];
+            default:
+                return new Object[capacity];
+        }
+    }
+
+
+    private static Object grow( CsvFieldType type, Object array, int capacity ) {
+        switch ( type ) {
+            case BOOLEAN:
+                return Arrays.copyOf( (boolean[]) array, capacity );
+            case BYTE:
+                return Arrays.copyOf( (byte[]) array, capacity );
+            case SHORT:
+                return Arrays.copyOf( (short[]) array, capacity );
+            case INT:
+            case DATE:
+            case TIME:
+                return Arrays.copyOf( (int[]) array, capacity );
+            case LONG:
+            case TIMESTAMP:
+                return Arrays.copyOf( (long[]) array, capacity );
+            case FLOAT:
+                return Arrays.copyOf( (float[]) array, capacity );
+            case DOUBLE:
+                return Arrays.copyOf( (double[]) array, capacity );
+            default:
+                return Arrays.copyOf( (Object[]) array, capacity );
+        }
+    }
+
+
+    private static void set( CsvFieldType type, Object array, int row, Object value ) {
+        switch ( type ) {
+            case BOOLEAN:
+                ((boolean[]) array)[row] = (Boolean) value;
+                break;
+            case BYTE:
+                ((byte[]) array)[row] = (Byte) value;
+                break;
+            case SHORT:
+                ((short[]) array)[row] = (Short) value;
+                break;
+            case INT:
+            case DATE:
+            case TIME:
+                ((int[]) array)[row] = (Integer) value;
+                break;
+            case LONG:
+            case TIMESTAMP:
+                ((long[]) array)[row] = (Long) value;
+                break;
+            case FLOAT:
+                ((float[]) array)[row] = (Float) value;
+                break;
+            case DOUBLE:
+                ((double[]) array)[row] = (Double) value;
+                break;
+            default:
+                ((Object[]) array)[row] = value;
+        }
+    }
+
+}
@@ -79,6 +79,10 @@ public Enumerable<Object[]> scan( DataContext dataContext, List<RexNode> filters
         return new AbstractEnumerable<Object[]>() {
             @Override
             public Enumerator<Object[]> enumerator() {
+                final CsvColumnarFile cachedFile = getCachedFile();
+                if ( cachedFile != null ) {
+                    return new CsvColumnarEnumerator<>( cachedFile, cancelFlag, toColumnIndexes( fields ), false, filterValues );
+                }
                 return new CsvEnumerator<>( source, cancelFlag, false, filterValues, new CsvEnumerator.ArrayRowConverter( fieldTypes, fields ) );
             }
         };
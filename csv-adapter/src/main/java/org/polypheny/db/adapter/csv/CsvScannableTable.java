@@ -72,6 +72,10 @@ public Enumerable<Object[]> scan( DataContext dataContext ) {
         return new AbstractEnumerable<Object[]>() {
             @Override
             public Enumerator<Object[]> enumerator() {
+                final CsvColumnarFile cachedFile = getCachedFile();
+                if ( cachedFile != null ) {
+                    return new CsvColumnarEnumerator<>( cachedFile, cancelFlag, toColumnIndexes( fields ), false, null );
+                }
                 return new CsvEnumerator<>( source, cancelFlag, false, null, new CsvEnumerator.ArrayRowConverter( fieldTypes, fields ) );
             }
         };
@@ -36,6 +36,7 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import org.polypheny.db.adapter.SourceFileCache;
 import org.polypheny.db.adapter.java.JavaTypeFactory;
 import org.polypheny.db.rel.type.RelDataType;
 import org.polypheny.db.rel.type.RelDataTypeFactory;
@@ -82,6 +83,32 @@ public RelDataType getRowType( RelDataTypeFactory typeFactory ) {
     }
 
 
+    /**
+     * Returns the columnar copy of the CSV file held by the {@link SourceFileCache} or {@code null} if the cache is
+     * disabled, the CSV file is not located on the local file system or the cached copy has been loaded for other
+     * columns or types than the ones of this table.
+     */
+    protected CsvColumnarFile getCachedFile() {
+        if ( !SourceFileCache.isEnabled() || !source.protocol().equals( "file" ) || fieldTypes == null ) {
+            return null;
+        }
+        final CsvColumnarFile cachedFile = SourceFileCache.INSTANCE.get( source.file(), CsvColumnarFile.class, file -> CsvColumnarFile.load( source, fieldTypes, fields ) );
+        return cachedFile.covers( fieldTypes, fields ) ? cachedFile : null;
+    }
+
+
+    /**
+     * Converts the (one-based) physical positions of the fields into (zero-based) column indexes.
+     */
+    protected static int[] toColumnIndexes( int[] fields ) {
+        final int[] columns = new int[fields.length];
+        for ( int i = 0; i < fields.length; i++ ) {
+            columns[i] = fields[i] - 1;
+        }
+        return columns;
+    }
+
+
     /**
      * Various degrees of table "intelligence".
      */
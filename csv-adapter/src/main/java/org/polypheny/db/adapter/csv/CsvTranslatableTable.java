@@ -82,6 +82,12 @@ public Enumerable<Object> project( final DataContext dataContext, final int[] fi
         return new AbstractEnumerable<Object>() {
             @Override
             public Enumerator<Object> enumerator() {
+                final CsvColumnarFile cachedFile = getCachedFile();
+                if ( cachedFile != null ) {
+                    // Single columns are addressed by their index, see CsvEnumerator.SingleColumnRowConverter
+                    final int[] columns = fields.length == 1 ? fields : toColumnIndexes( fields );
+                    return new CsvColumnarEnumerator<>( cachedFile, cancelFlag, columns, true, null );
+                }
                 return new CsvEnumerator<>( source, cancelFlag, fieldTypes, fields );
             }
         };
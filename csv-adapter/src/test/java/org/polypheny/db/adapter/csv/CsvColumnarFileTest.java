@@ -0,0 +1,162 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.csv;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.calcite.linq4j.Enumerator;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.polypheny.db.adapter.SourceFileCache;
+import org.polypheny.db.util.Source;
+import org.polypheny.db.util.Sources;
+
+
+/**
+ * Tests the columnar copies of CSV files held by the {@link SourceFileCache}.
+ */
+public class CsvColumnarFileTest {
+
+    private static final String CONTENT = "id:int,name:string,score:double,active:boolean\n"
+            + "1,foo,1.5,true\n"
+            + "2,bar,,false\n"
+            + "3,foobar,3.25,true\n";
+
+    // A table which does not map the columns "name" and "active" of the file
+    private static final List<CsvFieldType> PARTIAL_TYPES = ImmutableList.of( CsvFieldType.INT, CsvFieldType.DOUBLE );
+    private static final int[] PARTIAL_FIELDS = new int[]{ 1, 3 };
+
+    private static final List<CsvFieldType> ALL_TYPES = ImmutableList.of( CsvFieldType.INT, CsvFieldType.STRING, CsvFieldType.DOUBLE, CsvFieldType.BOOLEAN );
+    private static final int[] ALL_FIELDS = new int[]{ 1, 2, 3, 4 };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+
+    @Before
+    public void createFile() throws IOException {
+        file = folder.newFile( "test.csv" );
+        Files.write( file.toPath(), CONTENT.getBytes( StandardCharsets.UTF_8 ) );
+        SourceFileCache.INSTANCE.reset();
+    }
+
+
+    @Test
+    public void scanMatchesRowWiseParsing() {
+        CsvColumnarFile cached = CsvColumnarFile.load( Sources.of( file ), ALL_TYPES, ALL_FIELDS );
+        assertEquals( 3, cached.getRowCount() );
+        List<Object[]> rowWise = collect( new CsvEnumerator<>( Sources.of( file ), new AtomicBoolean(), false, null, new CsvEnumerator.ArrayRowConverter( ALL_TYPES, ALL_FIELDS ) ) );
+        List<Object[]> columnar = collect( new CsvColumnarEnumerator<>( cached, new AtomicBoolean(), CsvTable.toColumnIndexes( ALL_FIELDS ), false, null ) );
+        assertEquals( rowWise.size(), columnar.size() );
+        for ( int i = 0; i < rowWise.size(); i++ ) {
+            assertArrayEquals( rowWise.get( i ), columnar.get( i ) );
+        }
+    }
+
+
+    @Test
+    public void projection() {
+        CsvColumnarFile cached = CsvColumnarFile.load( Sources.of( file ), PARTIAL_TYPES, PARTIAL_FIELDS );
+        List<Object[]> rows = collect( new CsvColumnarEnumerator<>( cached, new AtomicBoolean(), CsvTable.toColumnIndexes( PARTIAL_FIELDS ), false, null ) );
+        assertEquals( 3, rows.size() );
+        assertArrayEquals( new Object[]{ 1, 1.5 }, rows.get( 0 ) );
+        assertArrayEquals( new Object[]{ 2, null }, rows.get( 1 ) );
+        assertArrayEquals( new Object[]{ 3, 3.25 }, rows.get( 2 ) );
+
+        // Single columns are returned as values
+        List<Object> scores = collect( new CsvColumnarEnumerator<>( cached, new AtomicBoolean(), new int[]{ 2 }, true, null ) );
+        assertEquals( ImmutableList.of( 1.5, 3.25 ), ImmutableList.of( scores.get( 0 ), scores.get( 2 ) ) );
+    }
+
+
+    @Test
+    public void filterOnPartiallyMappedFile() {
+        CsvColumnarFile cached = CsvColumnarFile.load( Sources.of( file ), PARTIAL_TYPES, PARTIAL_FIELDS );
+        // The filter values are given for the fields of the table, the second one is the third column of the file
+        List<Object[]> rows = collect( new CsvColumnarEnumerator<>( cached, new AtomicBoolean(), CsvTable.toColumnIndexes( PARTIAL_FIELDS ), false, new String[]{ null, "3.25" } ) );
+        assertEquals( 1, rows.size() );
+        assertArrayEquals( new Object[]{ 3, 3.25 }, rows.get( 0 ) );
+
+        rows = collect( new CsvColumnarEnumerator<>( cached, new AtomicBoolean(), CsvTable.toColumnIndexes( PARTIAL_FIELDS ), false, new String[]{ "2", null } ) );
+        assertEquals( 1, rows.size() );
+        assertArrayEquals( new Object[]{ 2, null }, rows.get( 0 ) );
+
+        // A value which cannot be parsed does not match any row
+        rows = collect( new CsvColumnarEnumerator<>( cached, new AtomicBoolean(), CsvTable.toColumnIndexes( PARTIAL_FIELDS ), false, new String[]{ "foo", null } ) );
+        assertEquals( 0, rows.size() );
+    }
+
+
+    @Test
+    public void coversOnlyLoadedColumns() {
+        CsvColumnarFile cached = CsvColumnarFile.load( Sources.of( file ), PARTIAL_TYPES, PARTIAL_FIELDS );
+        assertTrue( cached.covers( PARTIAL_TYPES, PARTIAL_FIELDS ) );
+        assertFalse( cached.covers( ALL_TYPES, ALL_FIELDS ) );
+        assertFalse( cached.covers( ImmutableList.of( CsvFieldType.LONG ), new int[]{ 1 } ) );
+    }
+
+
+    @Test
+    public void invalidation() throws IOException {
+        final Source source = Sources.of( file );
+        CsvColumnarFile first = SourceFileCache.INSTANCE.get( file, CsvColumnarFile.class, f -> CsvColumnarFile.load( source, PARTIAL_TYPES, PARTIAL_FIELDS ) );
+        assertSame( first, SourceFileCache.INSTANCE.get( file, CsvColumnarFile.class, f -> CsvColumnarFile.load( source, PARTIAL_TYPES, PARTIAL_FIELDS ) ) );
+
+        // Modifying the file replaces the cached copy
+        Files.write( file.toPath(), (CONTENT + "4,barfoo,4.5,false\n").getBytes( StandardCharsets.UTF_8 ) );
+        file.setLastModified( file.lastModified() + 2000 );
+        CsvColumnarFile second = SourceFileCache.INSTANCE.get( file, CsvColumnarFile.class, f -> CsvColumnarFile.load( source, PARTIAL_TYPES, PARTIAL_FIELDS ) );
+        assertNotSame( first, second );
+        assertEquals( 4, second.getRowCount() );
+        List<Object[]> rows = collect( new CsvColumnarEnumerator<>( second, new AtomicBoolean(), CsvTable.toColumnIndexes( PARTIAL_FIELDS ), false, new String[]{ "4", null } ) );
+        assertEquals( 1, rows.size() );
+        assertArrayEquals( new Object[]{ 4, 4.5 }, rows.get( 0 ) );
+
+        // Resetting the cache removes all copies
+        SourceFileCache.INSTANCE.reset();
+        assertNotSame( second, SourceFileCache.INSTANCE.get( file, CsvColumnarFile.class, f -> CsvColumnarFile.load( source, PARTIAL_TYPES, PARTIAL_FIELDS ) ) );
+    }
+
+
+    private static <E> List<E> collect( Enumerator<E> enumerator ) {
+        List<E> list = new ArrayList<>();
+        while ( enumerator.moveNext() ) {
+            list.add( enumerator.current() );
+        }
+        enumerator.close();
+        return list;
+    }
+
+}
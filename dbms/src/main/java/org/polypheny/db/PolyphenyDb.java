@@ -44,6 +44,8 @@
 import org.polypheny.db.information.HostInformation;
 import org.polypheny.db.information.JavaInformation;
 import org.polypheny.db.processing.AuthenticatorImpl;
+import org.polypheny.db.processing.MaterializedViewManager;
+import org.polypheny.db.processing.PlacementMigrationManager;
 import org.polypheny.db.statistic.StatisticQueryProcessor;
 import org.polypheny.db.statistic.StatisticsManager;
 import org.polypheny.db.transaction.PUID;
@@ -252,6 +254,12 @@ public void join( final long millis ) throws InterruptedException {
             throw new RuntimeException( "Something went wrong while initializing index manager.", e );
         }
 
+        // Initialize placement migration manager
+        PlacementMigrationManager.getInstance().initialize( transactionManager );
+
+        // Initialize materialized view manager
+        MaterializedViewManager.getInstance().initialize( transactionManager );
+
         // Call DockerManager once to remove old containers
         DockerManager.getInstance();
 
@@ -39,6 +39,7 @@
 import org.polypheny.db.catalog.Catalog.Collation;
 import org.polypheny.db.catalog.Catalog.ConstraintType;
 import org.polypheny.db.catalog.Catalog.ForeignKeyOption;
+import org.polypheny.db.catalog.Catalog.Freshness;
 import org.polypheny.db.catalog.Catalog.IndexType;
 import org.polypheny.db.catalog.Catalog.PlacementType;
 import org.polypheny.db.catalog.Catalog.SchemaType;
@@ -74,6 +75,7 @@
 import org.polypheny.db.catalog.exceptions.UnknownSchemaException;
 import org.polypheny.db.catalog.exceptions.UnknownTableException;
 import org.polypheny.db.catalog.exceptions.UnknownUserException;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.ddl.exception.AlterSourceException;
 import org.polypheny.db.ddl.exception.ColumnNotExistsException;
 import org.polypheny.db.ddl.exception.DdlOnSourceException;
@@ -92,10 +94,14 @@
 import org.polypheny.db.partition.PartitionManagerFactory;
 import org.polypheny.db.prepare.RelOptTableImpl;
 import org.polypheny.db.processing.DataMigrator;
+import org.polypheny.db.processing.MaterializedViewManager;
+import org.polypheny.db.processing.PlacementMigrationManager;
+import org.polypheny.db.processing.QueryResultCache;
 import org.polypheny.db.rel.AbstractRelNode;
 import org.polypheny.db.rel.BiRel;
 import org.polypheny.db.rel.RelCollation;
 import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.RelRoot;
 import org.polypheny.db.rel.SingleRel;
 import org.polypheny.db.rel.logical.LogicalTableScan;
 import org.polypheny.db.rel.logical.LogicalViewTableScan;
@@ -146,6 +152,17 @@ private void checkViewDependencies( CatalogTable catalogTable ) {
     }
 
 
+    /**
+     * Placements of a table must not be modified while one of its placements is being populated in the background,
+     * since the migration relies on the other placements of the table and adds its placements to the catalog.
+     */
+    private void checkNoRunningMigration( CatalogTable catalogTable ) {
+        if ( PlacementMigrationManager.getInstance().isMigrating( catalogTable.id ) ) {
+            throw new PolyphenyDbException( "Cannot alter table '" + catalogTable.name + "' because a placement of it is currently being populated" );
+        }
+    }
+
+
     private void addDefaultValue( String defaultValue, long addedColumnId ) {
         if ( defaultValue != null ) {
             // TODO: String is only a temporal solution for default values
@@ -452,6 +469,7 @@ private int updateAdjacentPositions( CatalogTable catalogTable, CatalogColumn be
 
     @Override
     public void addColumn( String columnName, CatalogTable catalogTable, String beforeColumnName, String afterColumnName, ColumnTypeInformation type, boolean nullable, String defaultValue, Statement statement ) throws NotNullAndDefaultValueException, ColumnAlreadyExistsException, ColumnNotExistsException {
+        checkNoRunningMigration( catalogTable );
         // Check if the column either allows null values or has a default value defined.
         if ( defaultValue == null && !nullable ) {
             throw new NotNullAndDefaultValueException();
@@ -617,6 +635,7 @@ public void addIndex( CatalogTable catalogTable, String indexMethodName, List<St
 
     @Override
     public void addPlacement( CatalogTable catalogTable, List<Long> columnIds, List<Integer> partitionIds, List<String> partitionNames, DataStore dataStore, Statement statement ) throws PlacementAlreadyExistsException {
+        checkNoRunningMigration( catalogTable );
         List<CatalogColumn> addedColumns = new LinkedList<>();
 
         List<Long> tempPartitionList = new ArrayList<>();
@@ -730,8 +749,12 @@ else if ( partitionIds.isEmpty() && partitionNames.isEmpty() ) {
         // Create table on store
         dataStore.createTable( statement.getPrepareContext(), catalogTable );
         // Copy data to the newly added placements
-        DataMigrator dataMigrator = statement.getTransaction().getDataMigrator();
-        dataMigrator.copyData( statement.getTransaction(), catalog.getAdapter( dataStore.getAdapterId() ), addedColumns );
+        if ( isOnlineMigration( catalogTable ) ) {
+            PlacementMigrationManager.getInstance().startMigration( catalogTable, dataStore, addedColumns, true );
+        } else {
+            DataMigrator dataMigrator = statement.getTransaction().getDataMigrator();
+            dataMigrator.copyData( statement.getTransaction(), catalog.getAdapter( dataStore.getAdapterId() ), addedColumns );
+        }
     }
 
 
@@ -797,6 +820,7 @@ public void addUniqueConstraint( CatalogTable catalogTable, List<String> columnN
 
     @Override
     public void dropColumn( CatalogTable catalogTable, String columnName, Statement statement ) throws ColumnNotExistsException {
+        checkNoRunningMigration( catalogTable );
         if ( catalogTable.columnIds.size() < 2 ) {
             throw new RuntimeException( "Cannot drop sole column of table " + catalogTable.name );
         }
@@ -897,6 +921,7 @@ public void dropIndex( CatalogTable catalogTable, String indexName, Statement st
 
     @Override
     public void dropPlacement( CatalogTable catalogTable, DataStore storeInstance, Statement statement ) throws PlacementNotExistsException, LastPlacementException {
+        checkNoRunningMigration( catalogTable );
         // Check whether this placement exists
         if ( !catalogTable.placementsByAdapter.containsKey( storeInstance.getAdapterId() ) ) {
             throw new PlacementNotExistsException();
@@ -952,6 +977,7 @@ public void dropPrimaryKey( CatalogTable catalogTable ) throws DdlOnSourceExcept
 
     @Override
     public void setColumnType( CatalogTable catalogTable, String columnName, ColumnTypeInformation type, Statement statement ) throws DdlOnSourceException, ColumnNotExistsException, GenericCatalogException {
+        checkNoRunningMigration( catalogTable );
         // Make sure that this is a table of type TABLE (and not SOURCE)
         checkIfTableType( catalogTable.tableType );
 
@@ -1078,6 +1104,7 @@ public void dropDefaultValue( CatalogTable catalogTable, String columnName, Stat
 
     @Override
     public void modifyColumnPlacement( CatalogTable catalogTable, List<Long> columnIds, List<Integer> partitionIds, List<String> partitionNames, DataStore storeInstance, Statement statement ) throws PlacementNotExistsException, IndexPreventsRemovalException, LastPlacementException {
+        checkNoRunningMigration( catalogTable );
         // Check whether this placement already exists
         if ( !catalogTable.placementsByAdapter.containsKey( storeInstance.getAdapterId() ) ) {
             throw new PlacementNotExistsException();
@@ -1195,6 +1222,7 @@ else if ( !partitionNames.isEmpty() && partitionIds.isEmpty() ) {
 
     @Override
     public void addColumnPlacement( CatalogTable catalogTable, String columnName, DataStore storeInstance, Statement statement ) throws UnknownAdapterException, PlacementNotExistsException, PlacementAlreadyExistsException, ColumnNotExistsException {
+        checkNoRunningMigration( catalogTable );
         if ( storeInstance == null ) {
             throw new UnknownAdapterException( "" );
         }
@@ -1230,14 +1258,25 @@ public void addColumnPlacement( CatalogTable catalogTable, String columnName, Da
             // Add column on store
             storeInstance.addColumn( statement.getPrepareContext(), catalogTable, catalogColumn );
             // Copy the data to the newly added column placements
-            DataMigrator dataMigrator = statement.getTransaction().getDataMigrator();
-            dataMigrator.copyData( statement.getTransaction(), catalog.getAdapter( storeInstance.getAdapterId() ), ImmutableList.of( catalogColumn ) );
+            if ( isOnlineMigration( catalogTable ) ) {
+                PlacementMigrationManager.getInstance().startMigration( catalogTable, storeInstance, ImmutableList.of( catalogColumn ), false );
+            } else {
+                DataMigrator dataMigrator = statement.getTransaction().getDataMigrator();
+                dataMigrator.copyData( statement.getTransaction(), catalog.getAdapter( storeInstance.getAdapterId() ), ImmutableList.of( catalogColumn ) );
+            }
         }
     }
 
 
+    // Placements of partitioned tables are always populated while holding the schema lock
+    private boolean isOnlineMigration( CatalogTable catalogTable ) {
+        return RuntimeConfig.ONLINE_PLACEMENT_MIGRATION.getBoolean() && !catalogTable.isPartitioned;
+    }
+
+
     @Override
     public void dropColumnPlacement( CatalogTable catalogTable, String columnName, DataStore storeInstance, Statement statement ) throws UnknownAdapterException, PlacementNotExistsException, IndexPreventsRemovalException, LastPlacementException, PlacementIsPrimaryException, ColumnNotExistsException {
+        checkNoRunningMigration( catalogTable );
         if ( storeInstance == null ) {
             throw new UnknownAdapterException( "" );
         }
@@ -1336,6 +1375,107 @@ public void createView( String viewName, long schemaId, RelNode relNode, RelColl
         prepareView( relNode );
         RelDataType fieldList = relNode.getRowType();
 
+        List<ColumnInformation> columns = getColumnInformation( projectedColumns, fieldList );
+
+        Map<Long, List<Long>> underlyingTables = new HashMap<>();
+        long tableId = catalog.addView(
+                viewName,
+                schemaId,
+                statement.getPrepareContext().getCurrentUserId(),
+                TableType.VIEW,
+                false,
+                relNode,
+                relCollation,
+                findUnderlyingTablesOfView( relNode, underlyingTables, fieldList ),
+                fieldList
+        );
+
+        for ( ColumnInformation column : columns ) {
+            //addColumn( column.name, column.typeInformation, column.collation, column.defaultValue, tableId, column.position, stores, placementType );
+            long columnId = catalog.addColumn(
+                    column.name,
+                    tableId,
+                    column.position,
+                    column.typeInformation.type,
+                    column.typeInformation.collectionType,
+                    column.typeInformation.precision,
+                    column.typeInformation.scale,
+                    column.typeInformation.dimension,
+                    column.typeInformation.cardinality,
+                    column.typeInformation.nullable,
+                    column.collation );
+        }
+    }
+
+
+    @Override
+    public void createMaterializedView( String viewName, long schemaId, RelRoot relRoot, String query, boolean replace, Statement statement, List<DataStore> stores, PlacementType placementType, List<String> projectedColumns, Freshness freshness, long interval ) throws TableAlreadyExistsException, GenericCatalogException, UnknownColumnException {
+        if ( catalog.checkIfExistsTable( schemaId, viewName ) ) {
+            if ( replace ) {
+                try {
+                    dropMaterializedView( catalog.getTable( schemaId, viewName ), statement );
+                } catch ( UnknownTableException | DdlOnSourceException e ) {
+                    throw new RuntimeException( "Unable to drop the existing materialized view with this name." );
+                }
+            } else {
+                throw new TableAlreadyExistsException();
+            }
+        }
+
+        RelNode relNode = relRoot.rel.hasView() ? relRoot.tryExpandView().rel : relRoot.rel;
+        List<Long> underlyingTables = MaterializedViewManager.getUnderlyingTables( relNode );
+        for ( long underlyingTableId : underlyingTables ) {
+            if ( catalog.getTable( underlyingTableId ).tableType == TableType.MATERIALIZED_VIEW ) {
+                throw new RuntimeException( "Materialized views over other materialized views are not supported." );
+            }
+        }
+
+        if ( stores == null ) {
+            // Ask router on which store(s) the table should be placed
+            stores = statement.getRouter().createTable( schemaId, statement );
+        }
+
+        List<ColumnInformation> columns = new ArrayList<>();
+        for ( ColumnInformation column : getColumnInformation( projectedColumns, relRoot.rel.getRowType() ) ) {
+            columns.add( new ColumnInformation( column.name, toTableColumnType( column.typeInformation ), column.collation, column.defaultValue, column.position ) );
+        }
+        // The router and the data migrator require a primary key, the rows of a materialized view are therefore numbered
+        columns.add( new ColumnInformation(
+                MaterializedViewManager.MATERIALIZED_VIEW_KEY,
+                new ColumnTypeInformation( PolyType.BIGINT, null, null, null, null, null, false ),
+                Collation.getDefaultCollation(),
+                null,
+                columns.size() + 1 ) );
+
+        try {
+            long tableId = catalog.addTable(
+                    viewName,
+                    schemaId,
+                    statement.getPrepareContext().getCurrentUserId(),
+                    TableType.MATERIALIZED_VIEW,
+                    false );
+
+            for ( ColumnInformation column : columns ) {
+                addColumn( column.name, column.typeInformation, column.collation, column.defaultValue, tableId, column.position, stores, placementType );
+            }
+            addConstraint( null, ConstraintType.PRIMARY, ImmutableList.of( MaterializedViewManager.MATERIALIZED_VIEW_KEY ), tableId );
+
+            CatalogTable catalogTable = catalog.getTable( tableId );
+            for ( DataStore store : stores ) {
+                store.createTable( statement.getPrepareContext(), catalogTable );
+            }
+
+            catalog.addMaterializedView( tableId, query, underlyingTables, freshness, interval );
+
+            // Populate the materialized view
+            MaterializedViewManager.getInstance().refresh( statement, catalog.getTable( tableId ) );
+        } catch ( UnknownCollationException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+
+    private List<ColumnInformation> getColumnInformation( List<String> projectedColumns, RelDataType fieldList ) {
         List<ColumnInformation> columns = new ArrayList<>();
 
         int position = 1;
@@ -1366,34 +1506,21 @@ public void createView( String viewName, long schemaId, RelNode relNode, RelColl
             position++;
         }
 
-        Map<Long, List<Long>> underlyingTables = new HashMap<>();
-        long tableId = catalog.addView(
-                viewName,
-                schemaId,
-                statement.getPrepareContext().getCurrentUserId(),
-                TableType.VIEW,
-                false,
-                relNode,
-                relCollation,
-                findUnderlyingTablesOfView( relNode, underlyingTables, fieldList ),
-                fieldList
-        );
+        return columns;
+    }
 
-        for ( ColumnInformation column : columns ) {
-            //addColumn( column.name, column.typeInformation, column.collation, column.defaultValue, tableId, column.position, stores, placementType );
-            long columnId = catalog.addColumn(
-                    column.name,
-                    tableId,
-                    column.position,
-                    column.typeInformation.type,
-                    column.typeInformation.collectionType,
-                    column.typeInformation.precision,
-                    column.typeInformation.scale,
-                    column.typeInformation.dimension,
-                    column.typeInformation.cardinality,
-                    column.typeInformation.nullable,
-                    column.collation );
-        }
+
+    // The types derived for the columns of a view contain placeholders for unspecified precisions and scales
+    private ColumnTypeInformation toTableColumnType( ColumnTypeInformation type ) {
+        boolean isArray = type.collectionType == PolyType.ARRAY;
+        return new ColumnTypeInformation(
+                type.type,
+                isArray ? PolyType.ARRAY : null,
+                type.precision == null || type.precision < 0 ? null : type.precision,
+                type.scale == null || type.scale < 0 ? null : type.scale,
+                type.dimension,
+                type.cardinality,
+                type.nullable );
     }
 
 
@@ -1655,10 +1782,17 @@ public void dropSchema( long databaseId, String schemaName, boolean ifExists, St
             if ( catalog.checkIfExistsSchema( databaseId, schemaName ) ) {
                 CatalogSchema catalogSchema = catalog.getSchema( databaseId, schemaName );
 
-                // Drop all tables in this schema
+                // Drop all tables in this schema. Materialized views are dropped first because they depend on tables.
                 List<CatalogTable> catalogTables = catalog.getTables( catalogSchema.id, null );
                 for ( CatalogTable catalogTable : catalogTables ) {
-                    dropTable( catalogTable, statement );
+                    if ( catalogTable.tableType == TableType.MATERIALIZED_VIEW ) {
+                        dropMaterializedView( catalogTable, statement );
+                    }
+                }
+                for ( CatalogTable catalogTable : catalogTables ) {
+                    if ( catalogTable.tableType != TableType.MATERIALIZED_VIEW ) {
+                        dropTable( catalog.getTable( catalogTable.id ), statement );
+                    }
                 }
 
                 // Drop schema
@@ -1700,14 +1834,46 @@ public void dropView( CatalogTable catalogView, Statement statement ) throws Ddl
     }
 
 
+    @Override
+    public void dropMaterializedView( CatalogTable materializedView, Statement statement ) throws DdlOnSourceException {
+        // Make sure that this is a table of type MATERIALIZED_VIEW
+        if ( materializedView.tableType != TableType.MATERIALIZED_VIEW ) {
+            throw new DdlOnSourceException();
+        }
+
+        // Check if views are dependent from this materialized view
+        checkViewDependencies( materializedView );
+
+        catalog.deleteMaterializedView( materializedView.id );
+        MaterializedViewManager.getInstance().remove( materializedView.id );
+
+        // Delete the table holding the materialized rows
+        dropTableData( catalog.getTable( materializedView.id ), statement );
+    }
+
+
+    @Override
+    public void refreshMaterializedView( CatalogTable materializedView, Statement statement ) {
+        MaterializedViewManager.getInstance().refresh( statement, materializedView );
+    }
+
+
     @Override
     public void dropTable( CatalogTable catalogTable, Statement statement ) throws DdlOnSourceException {
+        checkNoRunningMigration( catalogTable );
         // Make sure that this is a table of type TABLE (and not SOURCE)
         checkIfTableType( catalogTable.tableType );
 
         // Check if tables are dependent from this table
         checkViewDependencies( catalogTable );
 
+        dropTableData( catalogTable, statement );
+    }
+
+
+    // Drops the table with its placements, indexes, keys and columns
+    private void dropTableData( CatalogTable catalogTable, Statement statement ) {
+
         // Check if there are foreign keys referencing this table
         List<CatalogForeignKey> selfRefsToDelete = new LinkedList<>();
         List<CatalogForeignKey> exportedKeys = catalog.getExportedKeys( catalogTable.id );
@@ -1805,11 +1971,16 @@ public void dropTable( CatalogTable catalogTable, Statement statement ) throws D
 
     @Override
     public void truncate( CatalogTable catalogTable, Statement statement ) {
+        checkNoRunningMigration( catalogTable );
         // Make sure that the table can be modified
         if ( !catalogTable.modifiable ) {
             throw new RuntimeException( "Unable to modify a read-only table!" );
         }
 
+        // The materialized views over this table become stale and the cached results based on it are discarded
+        MaterializedViewManager.getInstance().addModifiedTable( statement.getTransaction().getXid(), catalogTable.id );
+        QueryResultCache.INSTANCE.addModifiedTable( statement.getTransaction().getXid(), catalogTable.id );
+
         //  Execute truncate on all placements
         catalogTable.placementsByAdapter.forEach( ( adapterId, placements ) -> {
             AdapterManager.getInstance().getAdapter( adapterId ).truncate( statement.getPrepareContext(), catalogTable );
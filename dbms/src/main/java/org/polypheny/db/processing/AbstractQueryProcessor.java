@@ -47,8 +47,10 @@
 import org.polypheny.db.adapter.enumerable.EnumerableCalc;
 import org.polypheny.db.adapter.enumerable.EnumerableConvention;
 import org.polypheny.db.adapter.enumerable.EnumerableInterpretable;
+import org.polypheny.db.adapter.enumerable.EnumerableParallelRules;
 import org.polypheny.db.adapter.enumerable.EnumerableRel;
 import org.polypheny.db.adapter.enumerable.EnumerableRel.Prefer;
+import org.polypheny.db.adapter.index.HnswIndex;
 import org.polypheny.db.adapter.index.Index;
 import org.polypheny.db.adapter.index.IndexManager;
 import org.polypheny.db.adapter.java.JavaTypeFactory;
@@ -67,14 +69,18 @@
 import org.polypheny.db.interpreter.Interpreters;
 import org.polypheny.db.jdbc.PolyphenyDbSignature;
 import org.polypheny.db.plan.Convention;
+import org.polypheny.db.plan.RelOptRule;
 import org.polypheny.db.plan.RelOptUtil;
 import org.polypheny.db.plan.RelTraitSet;
 import org.polypheny.db.plan.ViewExpanders;
+import org.polypheny.db.plan.volcano.VolcanoPlanner;
 import org.polypheny.db.prepare.Prepare.CatalogReader;
 import org.polypheny.db.prepare.Prepare.PreparedResult;
 import org.polypheny.db.prepare.Prepare.PreparedResultImpl;
+import org.polypheny.db.prepare.RelOptTableImpl;
 import org.polypheny.db.rel.RelCollation;
 import org.polypheny.db.rel.RelCollations;
+import org.polypheny.db.rel.RelFieldCollation;
 import org.polypheny.db.rel.RelNode;
 import org.polypheny.db.rel.RelRoot;
 import org.polypheny.db.rel.RelShuttle;
@@ -100,10 +106,13 @@
 import org.polypheny.db.rel.logical.LogicalTableScan;
 import org.polypheny.db.rel.logical.LogicalUnion;
 import org.polypheny.db.rel.logical.LogicalValues;
+import org.polypheny.db.rel.metadata.DefaultRelMetadataProvider;
+import org.polypheny.db.rel.metadata.RelMetadataProvider;
 import org.polypheny.db.rel.type.RelDataType;
 import org.polypheny.db.rel.type.RelDataTypeFactory;
 import org.polypheny.db.rel.type.RelDataTypeField;
 import org.polypheny.db.rex.RexBuilder;
+import org.polypheny.db.rex.RexCall;
 import org.polypheny.db.rex.RexDynamicParam;
 import org.polypheny.db.rex.RexInputRef;
 import org.polypheny.db.rex.RexLiteral;
@@ -112,6 +121,7 @@
 import org.polypheny.db.routing.ExecutionTimeMonitor;
 import org.polypheny.db.runtime.Bindable;
 import org.polypheny.db.runtime.Typed;
+import org.polypheny.db.schema.LogicalTable;
 import org.polypheny.db.sql.SqlExplainFormat;
 import org.polypheny.db.sql.SqlExplainLevel;
 import org.polypheny.db.sql.SqlKind;
@@ -191,7 +201,20 @@ protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType pa
                         : EnumerableConvention.INSTANCE;
 
         RelRoot routedRoot;
+        // The tables read by the query if its result can be cached
+        Set<Long> resultCacheTables = null;
         if ( !isRouted ) {
+            // Materialized View Rewrite
+            if ( lock && RuntimeConfig.MATERIALIZED_VIEW_REWRITE.getBoolean() && logicalRoot.kind.belongsTo( SqlKind.QUERY ) ) {
+                if ( isAnalyze ) {
+                    statement.getDuration().start( "Materialized View Rewrite" );
+                }
+                logicalRoot = MaterializedViewManager.getInstance().rewrite( statement, logicalRoot );
+                if ( isAnalyze ) {
+                    statement.getDuration().stop( "Materialized View Rewrite" );
+                }
+            }
+
             if ( lock ) {
                 // Locking
                 if ( isAnalyze ) {
@@ -210,11 +233,21 @@ protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType pa
                             LockManager.INSTANCE.lock( tableIdentifier, (TransactionImpl) statement.getTransaction(), LockMode.EXCLUSIVE );
                         }
                     }
+                    if ( RuntimeConfig.QUERY_RESULT_CACHING.getBoolean() && logicalRoot.kind.belongsTo( SqlKind.QUERY ) ) {
+                        resultCacheTables = QueryResultCache.INSTANCE.getCacheableTables( accessMap, logicalRoot.rel );
+                    }
                 } catch ( DeadlockException e ) {
                     throw new RuntimeException( e );
                 }
             }
 
+            // Capture the rows modified while placements of this table are being populated online
+            // and the tables modified by this transaction for the maintenance of materialized views and cached results
+            if ( logicalRoot.rel instanceof LogicalTableModify ) {
+                captureModifiedKeys( (LogicalTableModify) logicalRoot.rel, parameterRowType );
+                captureModifiedTable( (LogicalTableModify) logicalRoot.rel, parameterRowType );
+            }
+
             // Index Update
             if ( isAnalyze ) {
                 statement.getDuration().stop( "Locking" );
@@ -287,7 +320,7 @@ protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType pa
             }
             PreparedResult preparedResult = ImplementationCache.INSTANCE.getIfPresent( parameterizedRoot.rel );
             if ( preparedResult != null ) {
-                PolyphenyDbSignature signature = createSignature( preparedResult, routedRoot, resultConvention, executionTimeMonitor );
+                PolyphenyDbSignature signature = createSignature( preparedResult, routedRoot, resultConvention, executionTimeMonitor, parameterizedRoot.rel, resultCacheTables );
                 if ( isAnalyze ) {
                     statement.getDuration().stop( "Implementation Caching" );
                 }
@@ -327,7 +360,7 @@ protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType pa
         }
 
         if ( optimalNode == null ) {
-            optimalNode = optimize( parameterizedRoot, resultConvention );
+            optimalNode = optimize( parameterizedRoot, resultConvention, isAnalyze );
 
             // For transformation from DML -> DML, use result of rewrite (e.g. UPDATE -> MERGE). For anything else (e.g. CALL -> SELECT), use original kind.
             //if ( !optimalRoot.kind.belongsTo( SqlKind.DML ) ) {
@@ -361,7 +394,7 @@ protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType pa
             }
         }
 
-        PolyphenyDbSignature signature = createSignature( preparedResult, optimalRoot, resultConvention, executionTimeMonitor );
+        PolyphenyDbSignature signature = createSignature( preparedResult, optimalRoot, resultConvention, executionTimeMonitor, parameterizedRoot.rel, resultCacheTables );
 
         if ( isAnalyze ) {
             statement.getDuration().stop( "Implementation" );
@@ -376,6 +409,127 @@ protected PolyphenyDbSignature prepareQuery( RelRoot logicalRoot, RelDataType pa
     }
 
 
+    private void captureModifiedTable( LogicalTableModify ltm, RelDataType parameterRowType ) {
+        if ( ltm.getTable() instanceof RelOptTableImpl && ((RelOptTableImpl) ltm.getTable()).getTable() instanceof LogicalTable ) {
+            final long tableId = ((LogicalTable) ((RelOptTableImpl) ltm.getTable()).getTable()).getTableId();
+            final MaterializedViewManager materializedViewManager = MaterializedViewManager.getInstance();
+            if ( ltm.isInsert() && materializedViewManager.needsInsertedKeys( tableId ) ) {
+                // The materialized views over this table are maintained using the keys of the inserted rows
+                try {
+                    final List<List<Object>> keys = getModifiedKeys( ltm, Catalog.getInstance().getTable( tableId ), parameterRowType );
+                    materializedViewManager.addInsertedKeys( statement.getTransaction().getXid(), tableId, keys );
+                } catch ( Exception e ) {
+                    log.debug( "Unable to determine the rows inserted by this statement, the materialized views will be recomputed", e );
+                    materializedViewManager.addModifiedTable( statement.getTransaction().getXid(), tableId );
+                }
+            } else {
+                materializedViewManager.addModifiedTable( statement.getTransaction().getXid(), tableId );
+            }
+            QueryResultCache.INSTANCE.addModifiedTable( statement.getTransaction().getXid(), tableId );
+        }
+    }
+
+
+    /**
+     * If placements of the modified table are currently being populated online, registers the primary keys of the
+     * rows modified by this statement with the {@link PlacementMigrationManager}. For updates of primary key columns,
+     * both the old and the new keys are registered.
+     */
+    private void captureModifiedKeys( LogicalTableModify ltm, RelDataType parameterRowType ) {
+        if ( !(ltm.getTable() instanceof RelOptTableImpl) || !(((RelOptTableImpl) ltm.getTable()).getTable() instanceof LogicalTable) ) {
+            return;
+        }
+        final long tableId = ((LogicalTable) ((RelOptTableImpl) ltm.getTable()).getTable()).getTableId();
+        final PlacementMigrationManager migrationManager = PlacementMigrationManager.getInstance();
+        if ( !migrationManager.isMigrating( tableId ) ) {
+            return;
+        }
+        try {
+            migrationManager.addModifiedKeys( statement.getTransaction().getXid(), tableId, getModifiedKeys( ltm, Catalog.getInstance().getTable( tableId ), parameterRowType ) );
+        } catch ( Exception e ) {
+            log.warn( "Unable to determine the rows modified by this statement. All rows of the table will be copied again when switching over to the new placement.", e );
+            migrationManager.requireFullCopy( tableId );
+        }
+    }
+
+
+    /**
+     * Returns the primary keys of the rows modified by the table modify. For updates of primary key columns, both the
+     * old and the new keys are returned.
+     */
+    private List<List<Object>> getModifiedKeys( LogicalTableModify ltm, CatalogTable catalogTable, RelDataType parameterRowType ) throws Exception {
+        final Catalog catalog = Catalog.getInstance();
+        final List<Long> primaryKeyColumnIds = catalog.getPrimaryKey( catalogTable.primaryKey ).columnIds;
+        final List<Map<Long, Object>> parameterValues = statement.getDataContext().getParameterValues();
+        // Positions of the old and the new primary key values in the input of the table modify
+        final List<Integer> keyFields = new ArrayList<>( primaryKeyColumnIds.size() );
+        List<Integer> newKeyFields = null;
+        for ( long columnId : primaryKeyColumnIds ) {
+            keyFields.add( catalogTable.columnIds.indexOf( columnId ) );
+        }
+        if ( ltm.isUpdate() ) {
+            for ( int i = 0; i < primaryKeyColumnIds.size(); i++ ) {
+                int j = ltm.getUpdateColumnList().indexOf( catalog.getColumn( primaryKeyColumnIds.get( i ) ).name );
+                if ( j >= 0 ) {
+                    if ( newKeyFields == null ) {
+                        newKeyFields = new ArrayList<>( keyFields );
+                    }
+                    newKeyFields.set( i, catalogTable.columnIds.size() + j );
+                }
+            }
+        }
+        final List<Integer> fields = new ArrayList<>( keyFields );
+        if ( newKeyFields != null ) {
+            fields.addAll( newKeyFields );
+        }
+
+        final RelNode input = ltm.getInput().accept( new RelDeepCopyShuttle() );
+        final List<List<Object>> rows = new ArrayList<>();
+        if ( ltm.isInsert() && input instanceof LogicalProject && ((LogicalProject) input).getInput() instanceof Values && parameterValues.size() > 1 ) {
+            // Batch of prepared inserts, the keys are taken from the parameter values
+            final List<RexNode> projects = ((LogicalProject) input).getProjects();
+            for ( Map<Long, Object> values : parameterValues ) {
+                final List<Object> row = new ArrayList<>( fields.size() );
+                for ( int field : fields ) {
+                    final RexNode project = projects.get( field );
+                    if ( project instanceof RexDynamicParam ) {
+                        row.add( values.get( (long) ((RexDynamicParam) project).getIndex() ) );
+                    } else if ( project instanceof RexLiteral ) {
+                        row.add( ((RexLiteral) project).getValue2() );
+                    } else {
+                        throw new RuntimeException( "Unexpected rex type: " + project.getClass() );
+                    }
+                }
+                rows.add( row );
+            }
+        } else if ( parameterValues.size() > 1 ) {
+            throw new RuntimeException( "Batches of parameter values are only supported for inserts" );
+        } else {
+            // Select the keys using the input of the table modify
+            final RelBuilder builder = RelBuilder.create( statement, input.getCluster() );
+            builder.push( input );
+            final List<RexNode> keyProjects = new ArrayList<>( fields.size() );
+            for ( int field : fields ) {
+                keyProjects.add( builder.field( field ) );
+            }
+            builder.project( keyProjects );
+            final RelRoot keyRoot = RelRoot.of( builder.build(), SqlKind.SELECT );
+            final PolyphenyDbSignature keySig = prepareQuery( keyRoot, parameterRowType, false, true );
+            final Iterator<Object> iterator = keySig.enumerable( statement.getDataContext() ).iterator();
+            rows.addAll( MetaImpl.collect( keySig.cursorFactory, iterator, new ArrayList<>() ) );
+        }
+
+        final List<List<Object>> keys = new ArrayList<>( newKeyFields == null ? rows.size() : rows.size() * 2 );
+        for ( List<Object> row : rows ) {
+            keys.add( new ArrayList<>( row.subList( 0, keyFields.size() ) ) );
+            if ( newKeyFields != null ) {
+                keys.add( new ArrayList<>( row.subList( keyFields.size(), row.size() ) ) );
+            }
+        }
+        return keys;
+    }
+
+
     private RelRoot indexUpdate( RelRoot root, Statement statement, RelDataType parameterRowType ) {
         if ( root.kind.belongsTo( SqlKind.DML ) ) {
             final RelShuttle shuttle = new RelShuttleImpl() {
@@ -681,6 +835,17 @@ public RelNode visit( RelNode node ) {
         }
         final RelShuttle shuttle2 = new RelShuttleImpl() {
 
+            @Override
+            public RelNode visit( LogicalSort sort ) {
+                final RelNode rewritten = nearestNeighbourLookup( sort, statement, builder );
+                if ( rewritten != null ) {
+                    IndexManager.getInstance().incrementHit();
+                    return rewritten;
+                }
+                return super.visit( sort );
+            }
+
+
             @Override
             public RelNode visit( LogicalProject project ) {
                 if ( project.getInput() instanceof LogicalTableScan ) {
@@ -750,6 +915,124 @@ public RelNode visit( RelNode node ) {
     }
 
 
+    /**
+     * Answers queries of the form {@code ORDER BY DISTANCE(col, ARRAY[...], 'L2') LIMIT k} on a column with an HNSW
+     * index by restricting the table scan to the rows returned by an approximate nearest neighbour search on the index.
+     * The distances are still computed and sorted by the query; only the selection of the rows is approximate.
+     *
+     * @return The rewritten sort or {@code null} if the sort does not match the pattern or if there is no suitable index
+     */
+    private RelNode nearestNeighbourLookup( LogicalSort sort, Statement statement, RelBuilder builder ) {
+        if ( !(sort.fetch instanceof RexLiteral) || (sort.offset != null && !(sort.offset instanceof RexLiteral)) ) {
+            return null;
+        }
+        if ( sort.getCollation().getFieldCollations().size() != 1 ) {
+            return null;
+        }
+        final RelFieldCollation collation = sort.getCollation().getFieldCollations().get( 0 );
+        if ( collation.getDirection() != RelFieldCollation.Direction.ASCENDING ) {
+            return null;
+        }
+        if ( !(sort.getInput() instanceof LogicalProject) || !(((LogicalProject) sort.getInput()).getInput() instanceof LogicalTableScan) ) {
+            return null;
+        }
+        final LogicalProject project = (LogicalProject) sort.getInput();
+        final LogicalTableScan scan = (LogicalTableScan) project.getInput();
+
+        // The sort key has to be the euclidean distance between a column and a constant vector
+        final RexNode sortKey = project.getProjects().get( collation.getFieldIndex() );
+        if ( !sortKey.isA( SqlKind.DISTANCE ) ) {
+            return null;
+        }
+        final List<RexNode> operands = ((RexCall) sortKey).getOperands();
+        if ( operands.size() != 3 || !(operands.get( 0 ) instanceof RexInputRef) || !(operands.get( 2 ) instanceof RexLiteral) ) {
+            return null;
+        }
+        final String metric = RexLiteral.stringValue( operands.get( 2 ) );
+        if ( metric == null || !(metric.equalsIgnoreCase( "L2" ) || metric.equalsIgnoreCase( "L2SQUARED" )) ) {
+            return null;
+        }
+        final double[] target = toVector( operands.get( 1 ), statement );
+        if ( target == null ) {
+            return null;
+        }
+
+        // Retrieve the index
+        final String table = scan.getTable().getQualifiedName().get( scan.getTable().getQualifiedName().size() - 1 );
+        final String column = scan.getRowType().getFieldList().get( ((RexInputRef) operands.get( 0 )).getIndex() ).getName();
+        final CatalogSchema schema = statement.getTransaction().getDefaultSchema();
+        final CatalogTable ctable;
+        try {
+            ctable = Catalog.getInstance().getTable( schema.id, table );
+        } catch ( UnknownTableException e ) {
+            return null;
+        }
+        final Index idx = IndexManager.getInstance().getIndex( schema, ctable, ImmutableList.of( column ), "hnsw", null, null );
+        if ( !(idx instanceof HnswIndex) || !((HnswIndex) idx).isInitialized() ) {
+            // The index is still being built
+            return null;
+        }
+        if ( ((HnswIndex) idx).isModifiedBy( statement.getTransaction().getXid() ) ) {
+            // The index does not reflect uncommitted changes of this transaction
+            return null;
+        }
+
+        // Restrict the scan to the approximate nearest neighbours
+        final int k = RexLiteral.intValue( sort.fetch ) + (sort.offset == null ? 0 : RexLiteral.intValue( sort.offset ));
+        final List<List<Object>> primaries = ((HnswIndex) idx).searchNearest( target, k, RuntimeConfig.POLYSTORE_INDEXES_HNSW_EF_SEARCH.getInteger() );
+        final RexBuilder rexBuilder = builder.getRexBuilder();
+        builder.push( scan );
+        final List<RexNode> disjunction = new ArrayList<>( primaries.size() );
+        for ( List<Object> primary : primaries ) {
+            final List<RexNode> conjunction = new ArrayList<>( primary.size() );
+            for ( int i = 0; i < primary.size(); i++ ) {
+                final RexInputRef field = builder.field( idx.getTargetColumns().get( i ) );
+                conjunction.add( builder.equals( field, rexBuilder.makeLiteral( primary.get( i ), field.getType(), false ) ) );
+            }
+            disjunction.add( builder.and( conjunction ) );
+        }
+        final RelNode filtered = builder.filter( builder.or( disjunction ) ).build();
+        final RelNode newProject = project.copy( project.getTraitSet(), filtered, project.getProjects(), project.getRowType() );
+        return sort.copy( sort.getTraitSet(), newProject, sort.getCollation(), sort.offset, sort.fetch );
+    }
+
+
+    /**
+     * Extracts a constant vector from an array constructor with literal elements or from a dynamic parameter.
+     *
+     * @return The vector or {@code null} if the expression is not a constant numeric array
+     */
+    private static double[] toVector( RexNode node, Statement statement ) {
+        final List<?> elements;
+        if ( node.isA( SqlKind.ARRAY_VALUE_CONSTRUCTOR ) ) {
+            final List<Object> values = new ArrayList<>();
+            for ( RexNode operand : ((RexCall) node).getOperands() ) {
+                if ( !(operand instanceof RexLiteral) ) {
+                    return null;
+                }
+                values.add( ((RexLiteral) operand).getValue() );
+            }
+            elements = values;
+        } else if ( node instanceof RexDynamicParam && statement.getDataContext().getParameterValues().size() == 1 ) {
+            final Object value = statement.getDataContext().getParameterValue( ((RexDynamicParam) node).getIndex() );
+            if ( !(value instanceof List) ) {
+                return null;
+            }
+            elements = (List<?>) value;
+        } else {
+            return null;
+        }
+        final double[] vector = new double[elements.size()];
+        for ( int i = 0; i < vector.length; i++ ) {
+            if ( !(elements.get( i ) instanceof Number) ) {
+                return null;
+            }
+            vector[i] = ((Number) elements.get( i )).doubleValue();
+        }
+        return vector;
+    }
+
+
     private RelRoot route( RelRoot logicalRoot, Statement statement, ExecutionTimeMonitor executionTimeMonitor ) {
         RelRoot routedRoot = statement.getRouter().route( logicalRoot, statement, executionTimeMonitor );
         if ( log.isTraceEnabled() ) {
@@ -809,7 +1092,7 @@ public int size() {
     }
 
 
-    private PolyphenyDbSignature createSignature( PreparedResult preparedResult, RelRoot optimalRoot, Convention resultConvention, ExecutionTimeMonitor executionTimeMonitor ) {
+    private PolyphenyDbSignature createSignature( PreparedResult preparedResult, RelRoot optimalRoot, Convention resultConvention, ExecutionTimeMonitor executionTimeMonitor, RelNode parameterizedNode, Set<Long> resultCacheTables ) {
         final RelDataType jdbcType = makeStruct( optimalRoot.rel.getCluster().getTypeFactory(), optimalRoot.validatedRowType );
         final List<AvaticaParameter> parameters = new ArrayList<>();
         for ( RelDataTypeField field : preparedResult.getParameterRowType().getFieldList() ) {
@@ -850,7 +1133,11 @@ private PolyphenyDbSignature createSignature( PreparedResult preparedResult, Rel
                 resultConvention == BindableConvention.INSTANCE
                         ? CursorFactory.ARRAY
                         : CursorFactory.deduce( columns, resultClazz );
-        final Bindable bindable = preparedResult.getBindable( cursorFactory );
+        Bindable bindable = preparedResult.getBindable( cursorFactory );
+        if ( resultCacheTables != null ) {
+            //noinspection unchecked
+            bindable = QueryResultCache.INSTANCE.wrap( bindable, parameterizedNode, resultCacheTables );
+        }
 
         return new PolyphenyDbSignature<Object[]>(
                 "",
@@ -868,16 +1155,31 @@ private PolyphenyDbSignature createSignature( PreparedResult preparedResult, Rel
     }
 
 
-    private RelNode optimize( RelRoot logicalRoot, Convention resultConvention ) {
+    private RelNode optimize( RelRoot logicalRoot, Convention resultConvention, boolean isAnalyze ) {
         RelNode logicalPlan = logicalRoot.rel;
 
+        if ( RuntimeConfig.JOIN_REDUCTION.getBoolean() && resultConvention == EnumerableConvention.INSTANCE && logicalRoot.kind.belongsTo( SqlKind.QUERY ) ) {
+            logicalPlan = CrossStoreJoinReducer.reduce( getPlanner(), logicalPlan );
+        }
+
         final RelTraitSet desiredTraits = logicalPlan.getTraitSet()
                 .replace( resultConvention )
                 .replace( relCollation( logicalPlan ) )
                 .simplify();
 
-        final Program program = Programs.standard();
-        final RelNode rootRel4 = program.run( getPlanner(), logicalPlan, desiredTraits );
+        RelNode rootRel4;
+        if ( RuntimeConfig.STAGED_OPTIMIZATION.getBoolean() ) {
+            rootRel4 = optimizeStaged( logicalPlan, desiredTraits, isAnalyze );
+        } else {
+            final Program program = Programs.standard();
+            rootRel4 = program.run( getPlanner(), logicalPlan, desiredTraits );
+        }
+
+        // The degree of parallelism is only known at execution time; plans are parallelized if it may be larger than one.
+        if ( RuntimeConfig.PARALLELISM.getInteger() != 1 && resultConvention == EnumerableConvention.INSTANCE ) {
+            final Program parallel = Programs.hep( EnumerableParallelRules.RULES, true, DefaultRelMetadataProvider.INSTANCE );
+            rootRel4 = parallel.run( getPlanner(), rootRel4, rootRel4.getTraitSet() );
+        }
 
         //final RelNode relNode = getPlanner().changeTraits( root.rel, desiredTraits );
         //getPlanner().setRoot(relNode);
@@ -887,6 +1189,60 @@ private RelNode optimize( RelRoot logicalRoot, Convention resultConvention ) {
     }
 
 
+    /**
+     * Optimizes a plan in stages instead of leaving all the work to the cost-based optimizer: The logical plan is first
+     * normalized by a rule-based planner. If it contains many joins, they are then ordered heuristically and the rules
+     * enumerating join orders are left out of the cost-based optimization, which finally runs within the planning budget.
+     * The time spent in every stage is reported in the query analyzer.
+     */
+    private RelNode optimizeStaged( RelNode logicalPlan, RelTraitSet desiredTraits, boolean isAnalyze ) {
+        final RelMetadataProvider metadataProvider = DefaultRelMetadataProvider.INSTANCE;
+        RelNode rel = runStage( "Normalization", Programs.sequence( Programs.preparation( metadataProvider ), Programs.normalize( metadataProvider ) ), logicalPlan, desiredTraits, isAnalyze );
+
+        final List<RelOptRule> removedRules = new ArrayList<>();
+        if ( RelOptUtil.countJoins( rel ) >= RuntimeConfig.HEURISTIC_JOIN_ORDER_THRESHOLD.getInteger() ) {
+            rel = runStage( "Join Ordering", Programs.joinOrder( RuntimeConfig.HEURISTIC_JOIN_ORDER_BUSHY.getBoolean(), metadataProvider ), rel, desiredTraits, isAnalyze );
+            for ( RelOptRule rule : Programs.EXHAUSTIVE_JOIN_RULES ) {
+                if ( getPlanner().removeRule( rule ) ) {
+                    removedRules.add( rule );
+                }
+            }
+        }
+
+        if ( getPlanner() instanceof VolcanoPlanner ) {
+            ((VolcanoPlanner) getPlanner()).setBudget( RuntimeConfig.PLANNER_TIME_BUDGET.getInteger(), RuntimeConfig.PLANNER_ITERATION_BUDGET.getInteger() );
+        }
+        try {
+            rel = runStage( "Cost-based Optimization", Programs.sequence( Programs.volcano(), Programs.calc( metadataProvider ) ), rel, desiredTraits, isAnalyze );
+        } finally {
+            if ( getPlanner() instanceof VolcanoPlanner ) {
+                ((VolcanoPlanner) getPlanner()).setBudget( 0, 0 );
+            }
+            removedRules.forEach( getPlanner()::addRule );
+        }
+        if ( getPlanner() instanceof VolcanoPlanner && ((VolcanoPlanner) getPlanner()).isBudgetExhausted() ) {
+            log.debug( "Planning budget exhausted, using the best plan found so far" );
+        }
+        return rel;
+    }
+
+
+    /**
+     * Runs a stage of the optimization and reports its duration in the query analyzer if {@code isAnalyze} is set.
+     * This is not the case for the nested preparation of sub-queries, which do not have a planning duration.
+     */
+    private RelNode runStage( String name, Program program, RelNode rel, RelTraitSet desiredTraits, boolean isAnalyze ) {
+        if ( isAnalyze ) {
+            statement.getDuration().get( "Planning & Optimization" ).start( name );
+        }
+        final RelNode result = program.run( getPlanner(), rel, desiredTraits );
+        if ( isAnalyze ) {
+            statement.getDuration().get( "Planning & Optimization" ).stop( name );
+        }
+        return result;
+    }
+
+
     private RelCollation relCollation( RelNode node ) {
         return node instanceof Sort
                 ? ((Sort) node).collation
@@ -1258,6 +1614,7 @@ public RelNode visit( RelNode other ) {
     public void resetCaches() {
         ImplementationCache.INSTANCE.reset();
         QueryPlanCache.INSTANCE.reset();
+        QueryResultCache.INSTANCE.reset();
         statement.getRouter().resetCaches();
     }
 
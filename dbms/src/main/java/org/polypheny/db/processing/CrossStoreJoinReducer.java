@@ -0,0 +1,273 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.processing;
+
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.entity.CatalogAdapter;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelOptRule;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.RelShuttleImpl;
+import org.polypheny.db.rel.RelVisitor;
+import org.polypheny.db.rel.core.JoinInfo;
+import org.polypheny.db.rel.core.JoinRelType;
+import org.polypheny.db.rel.core.TableScan;
+import org.polypheny.db.rel.logical.LogicalFilter;
+import org.polypheny.db.rel.logical.LogicalJoin;
+import org.polypheny.db.rel.logical.LogicalReductionJoin;
+import org.polypheny.db.rel.metadata.DefaultRelMetadataProvider;
+import org.polypheny.db.rel.metadata.RelMetadataQuery;
+import org.polypheny.db.rel.rules.FilterJoinRule;
+import org.polypheny.db.rel.rules.FilterMergeRule;
+import org.polypheny.db.rel.rules.FilterProjectTransposeRule;
+import org.polypheny.db.rel.type.RelDataType;
+import org.polypheny.db.rex.RexBuilder;
+import org.polypheny.db.rex.RexDynamicParam;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.rex.RexShuttle;
+import org.polypheny.db.rex.RexUtil;
+import org.polypheny.db.sql.fun.SqlStdOperatorTable;
+import org.polypheny.db.tools.Programs;
+import org.polypheny.db.util.ImmutableIntList;
+
+
+/**
+ * Rewrites equi-joins between tables on different stores into {@link LogicalReductionJoin}s.
+ *
+ * Without the rewrite, both sides of such a join are read completely from their stores and joined in the enumerable
+ * engine. A reduction join reads the side with fewer estimated rows first and sends its join keys to the store of the
+ * other side, as a filter on the join keys with one dynamic parameter per key. This filter is pushed into the store
+ * by its filter rule, so only the matching rows of the other side are transferred.
+ *
+ * Only sides which are not preserved by the join are reduced.
+ */
+public class CrossStoreJoinReducer extends RelShuttleImpl {
+
+    /**
+     * Rules which push filters into the sides of joins, applied before the rewrite to get the estimated sizes of the
+     * sides after their filters.
+     */
+    private static final List<RelOptRule> FILTER_RULES = ImmutableList.of(
+            FilterJoinRule.FILTER_ON_JOIN,
+            FilterJoinRule.JOIN,
+            FilterProjectTransposeRule.INSTANCE,
+            FilterMergeRule.INSTANCE );
+
+    private final List<CatalogAdapter> adapters;
+    private final int batchSize;
+    private final int maxKeys;
+    private int nextParameter;
+
+
+    private CrossStoreJoinReducer( int firstParameter ) {
+        this.adapters = Catalog.getInstance().getAdapters();
+        this.batchSize = Math.max( 1, RuntimeConfig.JOIN_REDUCTION_BATCH_SIZE.getInteger() );
+        this.maxKeys = RuntimeConfig.JOIN_REDUCTION_MAX_KEYS.getInteger();
+        this.nextParameter = firstParameter;
+    }
+
+
+    /**
+     * Rewrites the joins between tables on different stores of a logical plan.
+     */
+    public static RelNode reduce( RelOptPlanner planner, RelNode rel ) {
+        final CrossStoreJoinReducer reducer = new CrossStoreJoinReducer( maxParameterIndex( rel ) + 1 );
+        if ( !reducer.hasCrossStoreJoin( rel ) ) {
+            return rel;
+        }
+        final RelNode pushed = Programs.hep( FILTER_RULES, true, DefaultRelMetadataProvider.INSTANCE ).run( planner, rel, rel.getTraitSet() );
+        return pushed.accept( reducer );
+    }
+
+
+    @Override
+    public RelNode visit( LogicalJoin join ) {
+        final LogicalJoin visited = (LogicalJoin) super.visit( join );
+        final RelNode reduced = reduceJoin( visited );
+        return reduced == null ? visited : reduced;
+    }
+
+
+    /**
+     * Returns a reduction join for the join, or null if it is not reduced.
+     */
+    private RelNode reduceJoin( LogicalJoin join ) {
+        final JoinInfo joinInfo = join.analyzeCondition();
+        if ( !joinInfo.isEqui() || joinInfo.leftKeys.isEmpty() || !isCrossStore( join ) ) {
+            return null;
+        }
+        final RelMetadataQuery mq = join.getCluster().getMetadataQuery();
+        final Double leftRows = mq.getRowCount( join.getLeft() );
+        final Double rightRows = mq.getRowCount( join.getRight() );
+        if ( leftRows == null || rightRows == null ) {
+            return null;
+        }
+
+        // The probe side must be on a single store, which evaluates the filter on the keys, and must not be preserved by the join
+        final boolean reduceRight = !join.getJoinType().generatesNullsOnLeft()
+                && stores( join.getRight() ).size() == 1
+                && rightRows > leftRows
+                && leftRows <= maxKeys;
+        final boolean reduceLeft = !join.getJoinType().generatesNullsOnRight()
+                && stores( join.getLeft() ).size() == 1
+                && leftRows > rightRows
+                && rightRows <= maxKeys;
+        if ( !reduceRight && !reduceLeft ) {
+            return null;
+        }
+        final RelNode build = reduceRight ? join.getLeft() : join.getRight();
+        final RelNode probe = reduceRight ? join.getRight() : join.getLeft();
+        final ImmutableIntList buildKeys = reduceRight ? joinInfo.leftKeys : joinInfo.rightKeys;
+        final ImmutableIntList probeKeys = reduceRight ? joinInfo.rightKeys : joinInfo.leftKeys;
+        for ( int key : probeKeys ) {
+            if ( !isSupportedKey( probe.getRowType().getFieldList().get( key ).getType() ) ) {
+                return null;
+            }
+        }
+
+        // Filter of the probe side: (k1 = ?1 AND k2 = ?2) OR (k1 = ?3 AND k2 = ?4) OR ...
+        final RexBuilder rexBuilder = join.getCluster().getRexBuilder();
+        final int firstParameter = nextParameter;
+        final List<RexNode> disjunctions = new ArrayList<>( batchSize );
+        for ( int i = 0; i < batchSize; i++ ) {
+            final List<RexNode> conjunctions = new ArrayList<>( probeKeys.size() );
+            for ( int key : probeKeys ) {
+                final RelDataType type = probe.getRowType().getFieldList().get( key ).getType();
+                conjunctions.add( rexBuilder.makeCall(
+                        SqlStdOperatorTable.EQUALS,
+                        rexBuilder.makeInputRef( probe, key ),
+                        new RexDynamicParam( rexBuilder.getTypeFactory().createTypeWithNullability( type, false ), nextParameter++ ) ) );
+            }
+            disjunctions.add( RexUtil.composeConjunction( rexBuilder, conjunctions, false ) );
+        }
+        final RelNode filteredProbe = LogicalFilter.create( probe, RexUtil.composeDisjunction( rexBuilder, disjunctions ) );
+
+        return LogicalReductionJoin.create(
+                build,
+                filteredProbe,
+                probe,
+                join.getCondition(),
+                join.getJoinType(),
+                reduceRight,
+                buildKeys,
+                probeKeys,
+                firstParameter,
+                batchSize );
+    }
+
+
+    /**
+     * Whether the keys of the type can be bound to dynamic parameters of every store.
+     */
+    private static boolean isSupportedKey( RelDataType type ) {
+        switch ( type.getPolyType() ) {
+            case INTEGER:
+            case BIGINT:
+            case DECIMAL:
+            case CHAR:
+            case VARCHAR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+
+    private boolean isCrossStore( LogicalJoin join ) {
+        final Set<Integer> leftStores = stores( join.getLeft() );
+        final Set<Integer> rightStores = stores( join.getRight() );
+        return !leftStores.isEmpty() && !rightStores.isEmpty() && !leftStores.contains( null ) && !rightStores.contains( null ) && Collections.disjoint( leftStores, rightStores );
+    }
+
+
+    private boolean hasCrossStoreJoin( RelNode rel ) {
+        final boolean[] found = { false };
+        new RelVisitor() {
+            @Override
+            public void visit( RelNode node, int ordinal, RelNode parent ) {
+                if ( node instanceof LogicalJoin && !((LogicalJoin) node).getJoinType().equals( JoinRelType.FULL ) && isCrossStore( (LogicalJoin) node ) ) {
+                    found[0] = true;
+                }
+                super.visit( node, ordinal, parent );
+            }
+        }.go( rel );
+        return found[0];
+    }
+
+
+    /**
+     * Returns the ids of the adapters of the tables read by a relational expression; null stands for a table which
+     * does not belong to an adapter.
+     */
+    private Set<Integer> stores( RelNode rel ) {
+        final Set<Integer> stores = new HashSet<>();
+        new RelVisitor() {
+            @Override
+            public void visit( RelNode node, int ordinal, RelNode parent ) {
+                if ( node instanceof TableScan ) {
+                    stores.add( adapterId( node.getTable().getQualifiedName().get( 0 ) ) );
+                }
+                super.visit( node, ordinal, parent );
+            }
+        }.go( rel );
+        return stores;
+    }
+
+
+    /**
+     * Returns the id of the adapter of a physical schema (see {@code PolySchemaBuilder#buildAdapterSchemaName}).
+     */
+    private Integer adapterId( String schemaName ) {
+        CatalogAdapter match = null;
+        for ( CatalogAdapter adapter : adapters ) {
+            if ( schemaName.startsWith( adapter.uniqueName + "_" ) && (match == null || adapter.uniqueName.length() > match.uniqueName.length()) ) {
+                match = adapter;
+            }
+        }
+        return match == null ? null : match.id;
+    }
+
+
+    private static int maxParameterIndex( RelNode rel ) {
+        final int[] max = { -1 };
+        final RexShuttle shuttle = new RexShuttle() {
+            @Override
+            public RexNode visitDynamicParam( RexDynamicParam dynamicParam ) {
+                max[0] = Math.max( max[0], (int) dynamicParam.getIndex() );
+                return dynamicParam;
+            }
+        };
+        new RelVisitor() {
+            @Override
+            public void visit( RelNode node, int ordinal, RelNode parent ) {
+                node.accept( shuttle );
+                super.visit( node, ordinal, parent );
+            }
+        }.go( rel );
+        return max[0];
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing;
+
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import org.polypheny.db.information.InformationGroup;
+import org.polypheny.db.information.InformationManager;
+import org.polypheny.db.information.InformationPage;
+import org.polypheny.db.information.InformationTable;
+
+
+/**
+ * Keeps track of running and recently finished data migrations (e.g. when adding a placement) and displays their
+ * progress and throughput on an information page.
+ */
+public class DataMigrationMonitor {
+
+    public static final DataMigrationMonitor INSTANCE = new DataMigrationMonitor();
+
+    private static final int MAX_ENTRIES = 20;
+
+    private final Deque<Migration> migrations = new ConcurrentLinkedDeque<>();
+
+    private final InformationPage page = new InformationPage( "Data Migration" );
+
+
+    private DataMigrationMonitor() {
+        registerMonitoringPage();
+    }
+
+
+    /**
+     * Registers a new migration.
+     *
+     * @param tableName Name of the table whose data is copied
+     * @param targetStore Unique name of the store the data is copied to
+     * @param estimatedRows Number of rows to copy or -1 if unknown
+     */
+    public Migration start( String tableName, String targetStore, long estimatedRows ) {
+        Migration migration = new Migration( tableName, targetStore, estimatedRows );
+        migrations.addFirst( migration );
+        // Only keep the most recent migrations
+        Iterator<Migration> iterator = migrations.descendingIterator();
+        while ( migrations.size() > MAX_ENTRIES && iterator.hasNext() ) {
+            if ( iterator.next().status != Status.RUNNING ) {
+                iterator.remove();
+            }
+        }
+        return migration;
+    }
+
+
+    InformationPage getPage() {
+        return page;
+    }
+
+
+    private void registerMonitoringPage() {
+        InformationManager im = InformationManager.getInstance();
+
+        im.addPage( page );
+
+        InformationGroup migrationGroup = new InformationGroup( page, "Migrations" ).setOrder( 1 );
+        im.addGroup( migrationGroup );
+
+        InformationTable migrationTable = new InformationTable(
+                migrationGroup,
+                Arrays.asList( "Table", "Target Store", "Rows", "Progress", "Rows/s", "Duration", "Status" )
+        );
+        im.registerInformation( migrationTable );
+
+        migrationGroup.setRefreshFunction( () -> {
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+            symbols.setDecimalSeparator( '.' );
+            DecimalFormat df = new DecimalFormat( "0.0", symbols );
+            migrationTable.reset();
+            for ( Migration migration : migrations ) {
+                long rows = migration.rows.get();
+                long duration = migration.getDurationMillis();
+                migrationTable.addRow(
+                        migration.tableName,
+                        migration.targetStore,
+                        rows,
+                        migration.estimatedRows > 0 ? df.format( Math.min( 100.0, rows * 100.0 / migration.estimatedRows ) ) + " %" : "-",
+                        duration > 0 ? df.format( rows * 1000.0 / duration ) : "-",
+                        duration + " ms",
+                        migration.status.name() );
+            }
+        } );
+    }
+
+
+    public enum Status {
+        RUNNING, FINISHED, FAILED
+    }
+
+
+    public static class Migration {
+
+        private final String tableName;
+        private final String targetStore;
+        private final long estimatedRows;
+        private final long startTime = System.currentTimeMillis();
+        private final AtomicLong rows = new AtomicLong();
+        private volatile long endTime;
+        private volatile Status status = Status.RUNNING;
+
+
+        private Migration( String tableName, String targetStore, long estimatedRows ) {
+            this.tableName = tableName;
+            this.targetStore = targetStore;
+            this.estimatedRows = estimatedRows;
+        }
+
+
+        public void addRows( long count ) {
+            rows.addAndGet( count );
+        }
+
+
+        public void finished() {
+            endTime = System.currentTimeMillis();
+            status = Status.FINISHED;
+        }
+
+
+        public void failed() {
+            endTime = System.currentTimeMillis();
+            status = Status.FAILED;
+        }
+
+
+        public long getDurationMillis() {
+            return (status == Status.RUNNING ? System.currentTimeMillis() : endTime) - startTime;
+        }
+
+    }
+
+}
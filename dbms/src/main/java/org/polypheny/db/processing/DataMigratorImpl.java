@@ -17,7 +17,9 @@
 package org.polypheny.db.processing;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -26,6 +28,7 @@
 import java.util.Map.Entry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.calcite.avatica.ColumnMetaData;
+import org.apache.calcite.avatica.Meta.CursorFactory;
 import org.apache.calcite.avatica.MetaImpl;
 import org.apache.calcite.linq4j.Enumerable;
 import org.polypheny.db.catalog.Catalog;
@@ -43,6 +46,7 @@
 import org.polypheny.db.rel.RelRoot;
 import org.polypheny.db.rel.core.TableModify.Operation;
 import org.polypheny.db.rel.logical.LogicalValues;
+import org.polypheny.db.rel.type.RelDataType;
 import org.polypheny.db.rel.type.RelDataTypeFactory;
 import org.polypheny.db.rel.type.RelDataTypeSystem;
 import org.polypheny.db.rex.RexBuilder;
@@ -52,6 +56,7 @@
 import org.polypheny.db.schema.PolySchemaBuilder;
 import org.polypheny.db.sql.SqlKind;
 import org.polypheny.db.sql2rel.RelStructuredTypeFlattener;
+import org.polypheny.db.statistic.StatisticsManager;
 import org.polypheny.db.tools.RelBuilder;
 import org.polypheny.db.transaction.Statement;
 import org.polypheny.db.transaction.Transaction;
@@ -61,9 +66,62 @@
 @Slf4j
 public class DataMigratorImpl implements DataMigrator {
 
+    // Upper bound for the number of rows selected by primary key in one query
+    private static final int MAX_KEYS_PER_QUERY = 100;
+
 
     @Override
     public void copyData( Transaction transaction, CatalogAdapter store, List<CatalogColumn> columns ) {
+        copyData( transaction, store, columns, null );
+    }
+
+
+    @Override
+    public void copyRows( Transaction transaction, CatalogAdapter store, List<CatalogColumn> columns, List<List<Object>> primaryKeys ) {
+        for ( List<List<Object>> keys : Lists.partition( primaryKeys, MAX_KEYS_PER_QUERY ) ) {
+            copyData( transaction, store, columns, keys );
+        }
+    }
+
+
+    @Override
+    public void insertRows( Transaction transaction, CatalogAdapter store, List<CatalogColumn> columns, List<List<Object>> rows ) {
+        if ( rows.isEmpty() ) {
+            return;
+        }
+        Statement statement = transaction.createStatement();
+
+        List<CatalogColumnPlacement> columnPlacements = new LinkedList<>();
+        RelDataTypeFactory.Builder parameterRowType = statement.getTransaction().getTypeFactory().builder();
+        for ( CatalogColumn catalogColumn : columns ) {
+            columnPlacements.add( Catalog.getInstance().getColumnPlacement( store.id, catalogColumn.id ) );
+            parameterRowType.add( catalogColumn.name, null, catalogColumn.getRelDataType( statement.getTransaction().getTypeFactory() ) );
+        }
+        RelRoot targetRel = buildInsertStatement( statement, columnPlacements );
+
+        for ( int i = 0; i < columns.size(); i++ ) {
+            List<Object> values = new ArrayList<>( rows.size() );
+            for ( List<Object> row : rows ) {
+                values.add( row.get( i ) );
+            }
+            statement.getDataContext().addParameterValues( columns.get( i ).id, null, values );
+        }
+        PolyphenyDbSignature signature = statement.getQueryProcessor().prepareQuery( targetRel, parameterRowType.build(), true );
+        Iterator iterator = signature.enumerable( statement.getDataContext() ).iterator();
+        //noinspection WhileLoopReplaceableByForEach
+        while ( iterator.hasNext() ) {
+            iterator.next();
+        }
+        statement.getDataContext().resetParameterValues();
+    }
+
+
+    /**
+     * Copies the data of the specified columns to their placements on the store.
+     *
+     * @param primaryKeys If not null, only the rows with these primary keys are copied
+     */
+    private void copyData( Transaction transaction, CatalogAdapter store, List<CatalogColumn> columns, List<List<Object>> primaryKeys ) {
 
         Statement sourceStatement = transaction.createStatement();
         Statement targetStatement = transaction.createStatement();
@@ -87,15 +145,27 @@ public void copyData( Transaction transaction, CatalogAdapter store, List<Catalo
         }
 
         RelRoot sourceRel = getSourceIterator( sourceStatement, selectSourcePlacements( table, selectColumnList, columnPlacements.get( 0 ).adapterId ) );
+        if ( primaryKeys != null ) {
+            sourceRel = filterByPrimaryKeys( sourceStatement, sourceRel, primaryKey, primaryKeys );
+        }
         RelRoot targetRel;
         if ( Catalog.getInstance().getColumnPlacementsOnAdapter( store.id, table.id ).size() == columns.size() ) {
             // There have been no placements for this table on this store before. Build insert statement
+            if ( primaryKeys != null ) {
+                // Remove the versions of these rows which have already been copied
+                deleteRows( transaction.createStatement(), columnPlacements, primaryKey, primaryKeys );
+            }
             targetRel = buildInsertStatement( targetStatement, columnPlacements );
         } else {
             // Build update statement
             targetRel = buildUpdateStatement( targetStatement, columnPlacements );
         }
 
+        DataMigrationMonitor.Migration migration = DataMigrationMonitor.INSTANCE.start(
+                table.name,
+                store.uniqueName,
+                primaryKeys != null ? primaryKeys.size() : estimateRowCount( table, primaryKey ) );
+
         // Execute Query
         try {
             PolyphenyDbSignature signature = sourceStatement.getQueryProcessor().prepareQuery( sourceRel, sourceRel.rel.getCluster().getTypeFactory().builder().build(), true );
@@ -115,36 +185,51 @@ public void copyData( Transaction transaction, CatalogAdapter store, List<Catalo
             }
 
             int batchSize = RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger();
-            while ( sourceIterator.hasNext() ) {
-                List<List<Object>> rows = MetaImpl.collect( signature.cursorFactory, LimitIterator.of( sourceIterator, batchSize ), new ArrayList<>() );
-                Map<Long, List<Object>> values = new HashMap<>();
-                for ( List<Object> list : rows ) {
+            try ( BatchReader reader = new BatchReader( sourceIterator, signature.cursorFactory, batchSize ) ) {
+                PolyphenyDbSignature targetSignature = null;
+                List<List<Object>> rows;
+                while ( (rows = reader.next()) != null ) {
                     for ( Map.Entry<Long, Integer> entry : resultColMapping.entrySet() ) {
-                        if ( !values.containsKey( entry.getKey() ) ) {
-                            values.put( entry.getKey(), new LinkedList<>() );
+                        List<Object> values = new ArrayList<>( rows.size() );
+                        for ( List<Object> row : rows ) {
+                            values.add( row.get( entry.getValue() ) );
                         }
-                        values.get( entry.getKey() ).add( list.get( entry.getValue() ) );
+                        targetStatement.getDataContext().addParameterValues( entry.getKey(), null, values );
                     }
+                    if ( targetSignature == null ) {
+                        // The target plan only depends on the parameter types, it is therefore prepared once and executed for every batch
+                        targetSignature = targetStatement.getQueryProcessor().prepareQuery( targetRel, sourceRel.validatedRowType, true );
+                    }
+                    Iterator iterator = targetSignature.enumerable( targetStatement.getDataContext() ).iterator();
+                    //noinspection WhileLoopReplaceableByForEach
+                    while ( iterator.hasNext() ) {
+                        iterator.next();
+                    }
+                    targetStatement.getDataContext().resetParameterValues();
+                    migration.addRows( rows.size() );
                 }
-                for ( Map.Entry<Long, List<Object>> v : values.entrySet() ) {
-                    targetStatement.getDataContext().addParameterValues( v.getKey(), null, v.getValue() );
-                }
-                Iterator iterator = targetStatement.getQueryProcessor()
-                        .prepareQuery( targetRel, sourceRel.validatedRowType, true )
-                        .enumerable( targetStatement.getDataContext() )
-                        .iterator();
-                //noinspection WhileLoopReplaceableByForEach
-                while ( iterator.hasNext() ) {
-                    iterator.next();
-                }
-                targetStatement.getDataContext().resetParameterValues();
             }
+            migration.finished();
         } catch ( Throwable t ) {
+            migration.failed();
             throw new RuntimeException( t );
         }
     }
 
 
+    /**
+     * Estimates the number of rows of the table using the statistics of its primary key. This avoids an additional
+     * scan of the table just for reporting the progress of the migration.
+     *
+     * @return The estimated number of rows or -1 if no statistics are available
+     */
+    private long estimateRowCount( CatalogTable table, CatalogPrimaryKey primaryKey ) {
+        String columnName = Catalog.getInstance().getColumn( primaryKey.columnIds.get( 0 ) ).name;
+        Integer count = StatisticsManager.getInstance().getColumnCount( table.getSchemaName(), table.name, columnName );
+        return count == null ? -1 : count;
+    }
+
+
     private RelRoot buildInsertStatement( Statement statement, List<CatalogColumnPlacement> to ) {
         List<String> qualifiedTableName = ImmutableList.of(
                 PolySchemaBuilder.buildAdapterSchemaName(
@@ -203,24 +288,7 @@ private RelRoot buildUpdateStatement( Statement statement, List<CatalogColumnPla
         RelBuilder builder = RelBuilder.create( statement, cluster );
         builder.scan( qualifiedTableName );
 
-        // build condition
-        RexNode condition = null;
-        CatalogTable catalogTable = Catalog.getInstance().getTable( to.get( 0 ).tableId );
-        CatalogPrimaryKey primaryKey = Catalog.getInstance().getPrimaryKey( catalogTable.primaryKey );
-        for ( long cid : primaryKey.columnIds ) {
-            CatalogColumnPlacement ccp = Catalog.getInstance().getColumnPlacement( to.get( 0 ).adapterId, cid );
-            CatalogColumn catalogColumn = Catalog.getInstance().getColumn( cid );
-            RexNode c = builder.equals(
-                    builder.field( ccp.getLogicalColumnName() ),
-                    new RexDynamicParam( catalogColumn.getRelDataType( typeFactory ), (int) catalogColumn.id )
-            );
-            if ( condition == null ) {
-                condition = c;
-            } else {
-                condition = builder.and( condition, c );
-            }
-        }
-        builder = builder.filter( condition );
+        builder = builder.filter( buildPrimaryKeyCondition( builder, to, typeFactory ) );
 
         List<String> columnNames = new LinkedList<>();
         List<RexNode> values = new LinkedList<>();
@@ -252,6 +320,119 @@ private RelRoot buildUpdateStatement( Statement statement, List<CatalogColumnPla
     }
 
 
+    private RelRoot buildDeleteStatement( Statement statement, List<CatalogColumnPlacement> to ) {
+        List<String> qualifiedTableName = ImmutableList.of(
+                PolySchemaBuilder.buildAdapterSchemaName(
+                        to.get( 0 ).adapterUniqueName,
+                        to.get( 0 ).getLogicalSchemaName(),
+                        to.get( 0 ).physicalSchemaName ),
+                to.get( 0 ).getLogicalTableName() );
+        RelOptTable physical = statement.getTransaction().getCatalogReader().getTableForMember( qualifiedTableName );
+        ModifiableTable modifiableTable = physical.unwrap( ModifiableTable.class );
+
+        RelOptCluster cluster = RelOptCluster.create(
+                statement.getQueryProcessor().getPlanner(),
+                new RexBuilder( statement.getTransaction().getTypeFactory() ) );
+        RelDataTypeFactory typeFactory = new PolyTypeFactoryImpl( RelDataTypeSystem.DEFAULT );
+
+        RelBuilder builder = RelBuilder.create( statement, cluster );
+        builder.scan( qualifiedTableName );
+        builder.filter( buildPrimaryKeyCondition( builder, to, typeFactory ) );
+
+        RelNode node = modifiableTable.toModificationRel(
+                cluster,
+                physical,
+                statement.getTransaction().getCatalogReader(),
+                builder.build(),
+                Operation.DELETE,
+                null,
+                null,
+                false
+        );
+        return RelRoot.of( node, SqlKind.DELETE );
+    }
+
+
+    // Conjunction of "primary key column = dynamic parameter" for all primary key columns. The index of the parameter is the id of the column.
+    private RexNode buildPrimaryKeyCondition( RelBuilder builder, List<CatalogColumnPlacement> to, RelDataTypeFactory typeFactory ) {
+        RexNode condition = null;
+        CatalogTable catalogTable = Catalog.getInstance().getTable( to.get( 0 ).tableId );
+        CatalogPrimaryKey primaryKey = Catalog.getInstance().getPrimaryKey( catalogTable.primaryKey );
+        for ( long cid : primaryKey.columnIds ) {
+            CatalogColumnPlacement ccp = Catalog.getInstance().getColumnPlacement( to.get( 0 ).adapterId, cid );
+            CatalogColumn catalogColumn = Catalog.getInstance().getColumn( cid );
+            RexNode c = builder.equals(
+                    builder.field( ccp.getLogicalColumnName() ),
+                    new RexDynamicParam( catalogColumn.getRelDataType( typeFactory ), (int) catalogColumn.id )
+            );
+            if ( condition == null ) {
+                condition = c;
+            } else {
+                condition = builder.and( condition, c );
+            }
+        }
+        return condition;
+    }
+
+
+    private void deleteRows( Statement statement, List<CatalogColumnPlacement> to, CatalogPrimaryKey primaryKey, List<List<Object>> primaryKeys ) {
+        RelRoot deleteRel = buildDeleteStatement( statement, to );
+        for ( int i = 0; i < primaryKey.columnIds.size(); i++ ) {
+            List<Object> values = new ArrayList<>( primaryKeys.size() );
+            for ( List<Object> key : primaryKeys ) {
+                values.add( key.get( i ) );
+            }
+            statement.getDataContext().addParameterValues( primaryKey.columnIds.get( i ), null, values );
+        }
+        Iterator iterator = statement.getQueryProcessor()
+                .prepareQuery( deleteRel, deleteRel.rel.getCluster().getTypeFactory().builder().build(), true )
+                .enumerable( statement.getDataContext() )
+                .iterator();
+        //noinspection WhileLoopReplaceableByForEach
+        while ( iterator.hasNext() ) {
+            iterator.next();
+        }
+        statement.getDataContext().resetParameterValues();
+    }
+
+
+    // Restricts the source to the rows with the specified primary keys
+    private RelRoot filterByPrimaryKeys( Statement statement, RelRoot sourceRel, CatalogPrimaryKey primaryKey, List<List<Object>> primaryKeys ) {
+        RelDataTypeFactory typeFactory = new PolyTypeFactoryImpl( RelDataTypeSystem.DEFAULT );
+        RelBuilder builder = RelBuilder.create( statement, sourceRel.rel.getCluster() );
+        builder.push( sourceRel.rel );
+
+        List<CatalogColumn> primaryKeyColumns = new ArrayList<>( primaryKey.columnIds.size() );
+        List<Integer> primaryKeyFields = new ArrayList<>( primaryKey.columnIds.size() );
+        for ( long cid : primaryKey.columnIds ) {
+            CatalogColumn catalogColumn = Catalog.getInstance().getColumn( cid );
+            primaryKeyColumns.add( catalogColumn );
+            List<String> fieldNames = sourceRel.rel.getRowType().getFieldNames();
+            for ( int i = 0; i < fieldNames.size(); i++ ) {
+                if ( fieldNames.get( i ).equalsIgnoreCase( catalogColumn.name ) ) {
+                    primaryKeyFields.add( i );
+                    break;
+                }
+            }
+        }
+
+        List<RexNode> conditions = new ArrayList<>( primaryKeys.size() );
+        int index = 0;
+        for ( List<Object> key : primaryKeys ) {
+            List<RexNode> equals = new ArrayList<>( primaryKeyColumns.size() );
+            for ( int i = 0; i < primaryKeyColumns.size(); i++ ) {
+                RelDataType type = primaryKeyColumns.get( i ).getRelDataType( typeFactory );
+                equals.add( builder.equals( builder.field( primaryKeyFields.get( i ) ), new RexDynamicParam( type, index ) ) );
+                statement.getDataContext().addParameterValues( index, type, Collections.singletonList( key.get( i ) ) );
+                index++;
+            }
+            conditions.add( builder.and( equals ) );
+        }
+        builder.filter( builder.or( conditions ) );
+        return sourceRel.withRel( builder.build() );
+    }
+
+
     private RelRoot getSourceIterator( Statement statement, List<CatalogColumnPlacement> placements ) {
         // Get map of placements by adapter
         Map<String, List<CatalogColumnPlacement>> placementsByAdapter = new HashMap<>();
@@ -306,4 +487,64 @@ private List<CatalogColumnPlacement> selectSourcePlacements( CatalogTable table,
         return placementList;
     }
 
+
+    /**
+     * Reads the rows of the source in batches. The reads and writes of a migration belong to the same transaction,
+     * which is not thread-safe; the batches are therefore read on the thread which writes them to the target store.
+     */
+    static class BatchReader implements AutoCloseable {
+
+        private final Iterator<Object> iterator;
+        private final CursorFactory cursorFactory;
+        private final int batchSize;
+        private boolean closed = false;
+
+
+        BatchReader( Iterator<Object> iterator, CursorFactory cursorFactory, int batchSize ) {
+            this.iterator = iterator;
+            this.cursorFactory = cursorFactory;
+            this.batchSize = Math.max( 1, batchSize );
+        }
+
+
+        /**
+         * Returns the next batch of rows. The source iterator is closed once all rows have been read or reading
+         * has failed.
+         *
+         * @return The rows or {@code null} if all rows have been read
+         */
+        List<List<Object>> next() {
+            if ( closed ) {
+                return null;
+            }
+            try {
+                if ( !iterator.hasNext() ) {
+                    close();
+                    return null;
+                }
+                return MetaImpl.collect( cursorFactory, LimitIterator.of( iterator, batchSize ), new ArrayList<>( batchSize ) );
+            } catch ( RuntimeException e ) {
+                close();
+                throw new RuntimeException( "Exception while reading from the source store", e );
+            }
+        }
+
+
+        @Override
+        public void close() {
+            if ( closed ) {
+                return;
+            }
+            closed = true;
+            if ( iterator instanceof AutoCloseable ) {
+                try {
+                    ((AutoCloseable) iterator).close();
+                } catch ( Exception e ) {
+                    log.debug( "Exception while closing source iterator", e );
+                }
+            }
+        }
+
+    }
+
 }
@@ -17,10 +17,20 @@
 package org.polypheny.db.processing;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +39,8 @@
 import java.util.stream.IntStream;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.NotImplementedException;
+import org.polypheny.db.adapter.index.Index;
+import org.polypheny.db.adapter.index.IndexManager;
 import org.polypheny.db.catalog.Catalog;
 import org.polypheny.db.catalog.Catalog.ConstraintType;
 import org.polypheny.db.catalog.entity.CatalogColumn;
@@ -44,6 +56,7 @@
 import org.polypheny.db.information.InformationManager;
 import org.polypheny.db.information.InformationPage;
 import org.polypheny.db.information.InformationQueryPlan;
+import org.polypheny.db.jdbc.PolyphenyDbSignature;
 import org.polypheny.db.plan.RelOptSchema;
 import org.polypheny.db.plan.RelOptTable;
 import org.polypheny.db.plan.RelOptUtil;
@@ -61,6 +74,9 @@
 import org.polypheny.db.rel.logical.LogicalProject;
 import org.polypheny.db.rel.logical.LogicalTableScan;
 import org.polypheny.db.rel.logical.LogicalValues;
+import org.polypheny.db.rel.type.RelDataType;
+import org.polypheny.db.rel.type.RelDataTypeFactory;
+import org.polypheny.db.rel.type.RelDataTypeField;
 import org.polypheny.db.rex.RexBuilder;
 import org.polypheny.db.rex.RexDynamicParam;
 import org.polypheny.db.rex.RexFieldAccess;
@@ -76,6 +92,9 @@
 import org.polypheny.db.sql.fun.SqlStdOperatorTable;
 import org.polypheny.db.tools.RelBuilder;
 import org.polypheny.db.transaction.Statement;
+import org.polypheny.db.util.DateString;
+import org.polypheny.db.util.TimeString;
+import org.polypheny.db.util.TimestampString;
 
 
 @Slf4j
@@ -138,6 +157,30 @@ public RelRoot enforce( RelRoot logicalRoot, Statement statement ) {
                     log.warn( "Unknown constraint type: {}", constraint.type );
                     continue;
                 }
+                final String violationMessage = String.format( "Insert violates unique constraint `%s`.`%s`", table.name, constraint.name );
+                final List<List<RexLiteral>> keys = extractKeys( input, constraint.key.getColumnNames(), statement );
+                if ( keys != null ) {
+                    // Enforce uniqueness within the values to insert
+                    final Map<List<Object>, List<RexLiteral>> distinctKeys = distinctKeys( keys );
+                    if ( distinctKeys.size() != keys.stream().filter( k -> !containsNull( k ) ).count() ) {
+                        throw new ConstraintViolationException( violationMessage );
+                    }
+                    if ( distinctKeys.isEmpty() ) {
+                        continue;
+                    }
+                    // Enforce uniqueness between the already existing values and the new values
+                    final Index index = getIndex( table, constraint.key.getColumnNames() );
+                    if ( index != null ) {
+                        if ( index.containsAny( statement.getTransaction().getXid(), distinctKeys.keySet() ) ) {
+                            throw new ConstraintViolationException( violationMessage );
+                        }
+                        continue;
+                    }
+                    if ( countMatchingKeys( statement, root.getTable(), constraint.key.getColumnNames(), distinctKeys.values() ) > 0 ) {
+                        throw new ConstraintViolationException( violationMessage );
+                    }
+                    continue;
+                }
                 // Enforce uniqueness between the already existing values and the new values
                 final RelNode scan = LogicalTableScan.create( root.getCluster(), root.getTable() );
                 RexNode joinCondition = rexBuilder.makeLiteral( true );
@@ -243,6 +286,27 @@ public RelRoot enforce( RelRoot logicalRoot, Statement statement ) {
             for ( final CatalogForeignKey foreignKey : foreignKeys ) {
                 final RelOptSchema relOptSchema = root.getCatalogReader();
                 final RelOptTable relOptTable = relOptSchema.getTableForMember( Collections.singletonList( foreignKey.getReferencedKeyTableName() ) );
+                final String violationMessage = String.format( "Insert violates foreign key constraint `%s`.`%s`", table.name, foreignKey.name );
+                final List<List<RexLiteral>> keys = extractKeys( input, foreignKey.getColumnNames(), statement );
+                if ( keys != null ) {
+                    // Rows with a null value in the foreign key do not reference anything
+                    final Map<List<Object>, List<RexLiteral>> distinctKeys = distinctKeys( keys );
+                    if ( distinctKeys.isEmpty() ) {
+                        continue;
+                    }
+                    final Index index = getIndex( catalog.getTable( foreignKey.referencedKeyTableId ), foreignKey.getReferencedKeyColumnNames() );
+                    if ( index != null ) {
+                        if ( !index.containsAll( statement.getTransaction().getXid(), distinctKeys.keySet() ) ) {
+                            throw new ConstraintViolationException( violationMessage );
+                        }
+                        continue;
+                    }
+                    // Every distinct key has to be found among the referenced rows
+                    if ( countMatchingKeys( statement, relOptTable, foreignKey.getReferencedKeyColumnNames(), distinctKeys.values() ) < distinctKeys.size() ) {
+                        throw new ConstraintViolationException( violationMessage );
+                    }
+                    continue;
+                }
                 final LogicalTableScan scan = LogicalTableScan.create( root.getCluster(), relOptTable );
                 RexNode joinCondition = rexBuilder.makeLiteral( true );
                 builder.push( input );
@@ -523,4 +587,183 @@ public RexNode visitFieldAccess( RexFieldAccess fieldAccess ) {
         return enforcementRoot;
     }
 
+
+    /**
+     * Returns the values of the given columns for every row to insert if they are already known at planning time. This
+     * is the case for {@code VALUES} clauses and for (batched) executions of prepared statements whose projections only
+     * consist of literals and dynamic parameters. The keys are only used for checks performed before the execution of
+     * the statement and never become part of its plan, which therefore does not depend on the values to insert.
+     *
+     * @return The keys of the rows to insert or {@code null} if they are only known at execution time or if set-based
+     * constraint enforcement is disabled
+     */
+    private static List<List<RexLiteral>> extractKeys( RelNode input, List<String> columns, Statement statement ) {
+        if ( !RuntimeConfig.SET_BASED_CONSTRAINT_ENFORCEMENT.getBoolean() ) {
+            return null;
+        }
+        final List<Integer> fieldIndexes = new ArrayList<>( columns.size() );
+        for ( final String column : columns ) {
+            final RelDataTypeField field = input.getRowType().getField( column, true, false );
+            if ( field == null ) {
+                return null;
+            }
+            fieldIndexes.add( field.getIndex() );
+        }
+        if ( input instanceof Values ) {
+            final List<? extends List<RexLiteral>> tuples = ((Values) input).getTuples();
+            final List<List<RexLiteral>> keys = new ArrayList<>( tuples.size() );
+            for ( final List<RexLiteral> tuple : tuples ) {
+                keys.add( fieldIndexes.stream().map( tuple::get ).collect( Collectors.toList() ) );
+            }
+            return keys;
+        } else if ( input instanceof LogicalProject && input.getInput( 0 ) instanceof LogicalValues && (input.getInput( 0 )).getRowType().toString().equals( "RecordType(INTEGER ZERO)" ) ) {
+            final LogicalProject project = (LogicalProject) input;
+            final RexBuilder rexBuilder = project.getCluster().getRexBuilder();
+            final List<Map<Long, Object>> parameterValues = statement.getDataContext().getParameterValues();
+            final int rowCount = Math.max( parameterValues.size(), 1 );
+            final List<List<RexLiteral>> keys = new ArrayList<>( rowCount );
+            for ( int row = 0; row < rowCount; row++ ) {
+                final List<RexLiteral> key = new ArrayList<>( fieldIndexes.size() );
+                for ( final int i : fieldIndexes ) {
+                    final RexNode node = project.getProjects().get( i );
+                    if ( node instanceof RexLiteral ) {
+                        key.add( (RexLiteral) node );
+                    } else if ( node instanceof RexDynamicParam && row < parameterValues.size() ) {
+                        final Object value = parameterValues.get( row ).get( ((RexDynamicParam) node).getIndex() );
+                        if ( value == null ) {
+                            key.add( rexBuilder.constantNull() );
+                            continue;
+                        }
+                        final RelDataType type = rexBuilder.getTypeFactory().createTypeWithNullability( node.getType(), false );
+                        final RexNode literal = rexBuilder.makeLiteral( toLiteralValue( value ), type, false );
+                        if ( !(literal instanceof RexLiteral) ) {
+                            return null;
+                        }
+                        key.add( (RexLiteral) literal );
+                    } else {
+                        return null;
+                    }
+                }
+                keys.add( key );
+            }
+            return keys;
+        }
+        return null;
+    }
+
+
+    /**
+     * Converts a value bound to a dynamic parameter into a representation accepted by
+     * {@link RexBuilder#makeLiteral(Object, RelDataType, boolean)}. The JDBC interface binds temporal values as
+     * {@code java.sql} objects, which are converted into their local date and time.
+     */
+    private static Object toLiteralValue( Object value ) {
+        if ( value instanceof Timestamp ) {
+            final LocalDateTime dateTime = ((Timestamp) value).toLocalDateTime();
+            return new TimestampString( dateTime.getYear(), dateTime.getMonthValue(), dateTime.getDayOfMonth(), dateTime.getHour(), dateTime.getMinute(), dateTime.getSecond() )
+                    .withNanos( dateTime.getNano() );
+        } else if ( value instanceof Time ) {
+            final LocalTime time = ((Time) value).toLocalTime();
+            return new TimeString( time.getHour(), time.getMinute(), time.getSecond() )
+                    .withMillis( (int) Math.floorMod( ((Time) value).getTime(), 1000L ) );
+        } else if ( value instanceof Date ) {
+            final LocalDate date = ((Date) value).toLocalDate();
+            return new DateString( date.getYear(), date.getMonthValue(), date.getDayOfMonth() );
+        }
+        return value;
+    }
+
+
+    /**
+     * Deduplicates the given keys by their values. Keys containing a null value are skipped, as they neither violate
+     * a unique constraint nor reference any row.
+     */
+    private static Map<List<Object>, List<RexLiteral>> distinctKeys( List<List<RexLiteral>> keys ) {
+        final Map<List<Object>, List<RexLiteral>> distinctKeys = new LinkedHashMap<>( keys.size() );
+        for ( final List<RexLiteral> key : keys ) {
+            if ( !containsNull( key ) ) {
+                distinctKeys.putIfAbsent( key.stream().map( RexLiteral::getValue2 ).collect( Collectors.toList() ), key );
+            }
+        }
+        return distinctKeys;
+    }
+
+
+    private static boolean containsNull( List<RexLiteral> key ) {
+        return key.stream().anyMatch( RexLiteral::isNullLiteral );
+    }
+
+
+    /**
+     * Returns a polystore index on exactly the given columns of the table or {@code null} if there is none.
+     */
+    private static Index getIndex( CatalogTable table, List<String> columns ) {
+        if ( !RuntimeConfig.POLYSTORE_INDEXES_ENABLED.getBoolean() ) {
+            return null;
+        }
+        final CatalogSchema schema = Catalog.getInstance().getSchema( table.schemaId );
+        return IndexManager.getInstance().getIndex( schema, table, columns );
+    }
+
+
+    /**
+     * Looks up which of the keys are contained in the given columns of the table. The keys are probed in chunks of
+     * {@link RuntimeConfig#CONSTRAINT_ENFORCEMENT_BATCH_SIZE}, which bounds the size of the IN-list queries sent to the
+     * stores.
+     *
+     * @return The number of distinct keys contained in the table
+     */
+    private static int countMatchingKeys( Statement statement, RelOptTable table, List<String> columns, Collection<List<RexLiteral>> keys ) {
+        final int batchSize = Math.max( 1, RuntimeConfig.CONSTRAINT_ENFORCEMENT_BATCH_SIZE.getInteger() );
+        int count = 0;
+        for ( final List<List<RexLiteral>> chunk : Lists.partition( new ArrayList<>( keys ), batchSize ) ) {
+            count += countMatchingKeysOfChunk( statement, table, columns, chunk );
+        }
+        return count;
+    }
+
+
+    /**
+     * Looks up which of the keys are contained in the given columns of the table. The lookup is executed right away by
+     * a separate statement of the same transaction; the filter is pushed down by the router, resulting in a single
+     * IN-list query per store. The keys are bound to dynamic parameters, which means that the plan of the lookup only
+     * depends on the number of keys and can be taken from the plan cache.
+     */
+    private static int countMatchingKeysOfChunk( Statement statement, RelOptTable table, List<String> columns, List<List<RexLiteral>> keys ) {
+        final Statement lookupStatement = statement.getTransaction().createStatement();
+        final RelBuilder builder = RelBuilder.create( lookupStatement );
+        final RexBuilder rexBuilder = builder.getRexBuilder();
+        final RelDataTypeFactory.Builder parameterRowType = builder.getTypeFactory().builder();
+        builder.scan( table.getQualifiedName() );
+        long index = 0;
+        final List<RexNode> disjunction = new ArrayList<>( keys.size() );
+        for ( final List<RexLiteral> key : keys ) {
+            final List<RexNode> conjunction = new ArrayList<>( columns.size() );
+            for ( int i = 0; i < columns.size(); ++i ) {
+                final RexLiteral literal = key.get( i );
+                conjunction.add( rexBuilder.makeCall( SqlStdOperatorTable.EQUALS, builder.field( columns.get( i ) ), new RexDynamicParam( literal.getType(), index ) ) );
+                lookupStatement.getDataContext().addParameterValues( index, literal.getType(), Collections.singletonList( literal.getValueForQueryParameterizer() ) );
+                parameterRowType.add( "?" + index, literal.getType() );
+                index++;
+            }
+            disjunction.add( RexUtil.composeConjunction( rexBuilder, conjunction, false ) );
+        }
+        // Bypass the simplification of RelBuilder.filter(), which does not scale to large IN-lists
+        final RelNode scan = builder.build();
+        builder.push( LogicalFilter.create( scan, RexUtil.composeDisjunction( rexBuilder, disjunction ) ) );
+        builder.aggregate( builder.groupKey( columns.stream().map( builder::field ).collect( Collectors.toList() ) ) );
+        final RelRoot lookupRoot = RelRoot.of( builder.build(), SqlKind.SELECT );
+
+        final PolyphenyDbSignature signature = lookupStatement.getQueryProcessor().prepareQuery( lookupRoot, parameterRowType.build(), false );
+        int count = 0;
+        //noinspection unchecked
+        final Iterator<Object> iterator = signature.enumerable( lookupStatement.getDataContext() ).iterator();
+        while ( iterator.hasNext() ) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+
 }
+
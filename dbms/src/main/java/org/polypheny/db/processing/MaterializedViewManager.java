@@ -0,0 +1,746 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.processing;
+
+
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.avatica.MetaImpl;
+import org.polypheny.db.adapter.AdapterManager;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.Catalog.Freshness;
+import org.polypheny.db.catalog.entity.CatalogColumn;
+import org.polypheny.db.catalog.entity.CatalogMaterializedView;
+import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.jdbc.PolyphenyDbSignature;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptUtil;
+import org.polypheny.db.plan.SubstitutionVisitor;
+import org.polypheny.db.prepare.RelOptTableImpl;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.RelRoot;
+import org.polypheny.db.rel.RelShuttleImpl;
+import org.polypheny.db.rel.core.JoinRelType;
+import org.polypheny.db.rel.core.TableScan;
+import org.polypheny.db.rel.logical.LogicalFilter;
+import org.polypheny.db.rel.logical.LogicalJoin;
+import org.polypheny.db.rel.logical.LogicalProject;
+import org.polypheny.db.rel.logical.LogicalTableScan;
+import org.polypheny.db.rel.type.RelDataType;
+import org.polypheny.db.rel.type.RelDataTypeFactory;
+import org.polypheny.db.rel.type.RelDataTypeField;
+import org.polypheny.db.rex.RexCorrelVariable;
+import org.polypheny.db.rex.RexDynamicParam;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.rex.RexShuttle;
+import org.polypheny.db.rex.RexSubQuery;
+import org.polypheny.db.schema.LogicalTable;
+import org.polypheny.db.sql.SqlNode;
+import org.polypheny.db.tools.RelBuilder;
+import org.polypheny.db.transaction.DeadlockException;
+import org.polypheny.db.transaction.Lock.LockMode;
+import org.polypheny.db.transaction.LockManager;
+import org.polypheny.db.transaction.PolyXid;
+import org.polypheny.db.transaction.Statement;
+import org.polypheny.db.transaction.TableAccessMap.TableIdentifier;
+import org.polypheny.db.transaction.Transaction;
+import org.polypheny.db.transaction.TransactionImpl;
+import org.polypheny.db.transaction.TransactionManager;
+import org.polypheny.db.util.LimitIterator;
+import org.polypheny.db.util.Util;
+import org.polypheny.db.util.background.BackgroundTask.TaskPriority;
+import org.polypheny.db.util.background.BackgroundTask.TaskSchedulingType;
+import org.polypheny.db.util.background.BackgroundTaskManager;
+
+
+/**
+ * Maintains materialized views and answers queries from them.
+ *
+ * The stores provide no change capture, therefore changes are tracked per table: the query processor registers the
+ * tables modified by a transaction and once it has committed, all materialized views over these tables are marked as
+ * stale. A stale materialized view is recomputed from its definition (immediately after the commit, periodically or on
+ * request, depending on its freshness) and is never used to answer queries until then. Queries of a transaction are
+ * also not answered from materialized views over tables it has modified itself.
+ *
+ * Materialized views with immediate freshness are maintained incrementally if the committed transaction has only
+ * inserted rows into one of their underlying tables: the query processor captures the primary keys of the inserted
+ * rows, and the definition, restricted to these rows, is evaluated and added to the materialized view. This requires a
+ * definition consisting of projections, filters, inner joins and scans, which reads the modified table once. All other
+ * changes cause the materialized view to be recomputed.
+ */
+@Slf4j
+public class MaterializedViewManager {
+
+    public static final String MATERIALIZED_VIEW_KEY = "_matid_";
+
+    // Upper bound for the number of inserted rows applied incrementally; materialized views are recomputed for larger changes
+    private static final int MAX_DELTA_KEYS = 10000;
+    // Upper bound for the number of rows selected by primary key in one query
+    private static final int MAX_KEYS_PER_QUERY = 100;
+
+    private static final MaterializedViewManager INSTANCE = new MaterializedViewManager();
+
+    // Finds sub-queries and correlation variables, which refer to relational expressions of a specific cluster
+    private static final RexShuttle CORRELATION_FINDER = new RexShuttle() {
+        @Override
+        public RexNode visitSubQuery( RexSubQuery subQuery ) {
+            throw Util.FoundOne.NULL;
+        }
+
+
+        @Override
+        public RexNode visitCorrelVariable( RexCorrelVariable variable ) {
+            throw Util.FoundOne.NULL;
+        }
+    };
+
+    // Changes of transactions which have not yet been committed
+    private final Map<PolyXid, Changes> openTransactions = new ConcurrentHashMap<>();
+    // Materialized views refreshed by transactions which have not yet been committed and the version they are based on
+    private final Map<PolyXid, Map<Long, Long>> pendingRefreshes = new ConcurrentHashMap<>();
+    // Incremented whenever a transaction modifying an underlying table of the materialized view commits
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    // Version the rows of the materialized view correspond to, known once it has been refreshed
+    private final Map<Long, Long> appliedVersions = new ConcurrentHashMap<>();
+    // Generates the values of the primary key of the materialized views
+    private final Map<Long, AtomicLong> keyGenerators = new ConcurrentHashMap<>();
+    private final Map<Long, Long> lastRefresh = new ConcurrentHashMap<>();
+    private final Set<Long> staleViews = ConcurrentHashMap.newKeySet();
+    private final Set<Long> scheduledRefreshes = ConcurrentHashMap.newKeySet();
+    // Translated definitions of the materialized views; cleared whenever the catalog changes
+    private final Map<Long, RelNode> definitions = new ConcurrentHashMap<>();
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor( r -> {
+        Thread thread = new Thread( r, "MaterializedViewRefresh" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+    private TransactionManager transactionManager = null;
+
+    private final AtomicLong rewritesCounter = new AtomicLong(); // Number of queries answered from a materialized view
+
+
+    public static MaterializedViewManager getInstance() {
+        return INSTANCE;
+    }
+
+
+    private MaterializedViewManager() {
+    }
+
+
+    public void initialize( final TransactionManager transactionManager ) {
+        this.transactionManager = transactionManager;
+        // Changes committed shortly before a shutdown might not have been applied to the materialized views
+        for ( CatalogMaterializedView materializedView : Catalog.getInstance().getMaterializedViews() ) {
+            staleViews.add( materializedView.tableId );
+        }
+        // The translation of a definition depends on the schema
+        Catalog.getInstance().addObserver( evt -> definitions.clear() );
+        BackgroundTaskManager.INSTANCE.registerTask(
+                this::refreshStaleViews,
+                "Refresh stale materialized views",
+                TaskPriority.LOW,
+                TaskSchedulingType.EVERY_FIVE_SECONDS );
+    }
+
+
+    public boolean isStale( long tableId ) {
+        return staleViews.contains( tableId );
+    }
+
+
+    /**
+     * Returns whether the primary keys of the rows inserted into the table are needed for maintaining the
+     * materialized views over it incrementally.
+     */
+    public boolean needsInsertedKeys( long tableId ) {
+        for ( CatalogMaterializedView materializedView : Catalog.getInstance().getMaterializedViews() ) {
+            if ( materializedView.freshness == Freshness.IMMEDIATE && materializedView.underlyingTables.contains( tableId ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Registers a table modified by a transaction. The materialized views over this table become stale once the
+     * transaction has committed.
+     */
+    public void addModifiedTable( PolyXid xid, long tableId ) {
+        openTransactions.computeIfAbsent( xid, k -> new Changes() ).addModifiedTable( tableId );
+    }
+
+
+    /**
+     * Registers rows inserted into a table by a transaction. If the transaction does not modify the table otherwise,
+     * the materialized views over this table with immediate freshness are maintained incrementally after the commit.
+     *
+     * @param keys The primary keys of the inserted rows
+     */
+    public void addInsertedKeys( PolyXid xid, long tableId, List<List<Object>> keys ) {
+        openTransactions.computeIfAbsent( xid, k -> new Changes() ).addInsertedKeys( tableId, keys );
+    }
+
+
+    public void commit( PolyXid xid ) {
+        Changes changes = openTransactions.remove( xid );
+        Map<Long, Long> refreshed = pendingRefreshes.remove( xid );
+        if ( changes == null && refreshed == null ) {
+            return;
+        }
+        List<Long> toRefresh = new ArrayList<>();
+        List<Delta> deltas = new ArrayList<>();
+        synchronized ( this ) {
+            if ( changes != null ) {
+                Set<Long> modifiedTables = changes.getModifiedTables();
+                for ( CatalogMaterializedView materializedView : Catalog.getInstance().getMaterializedViews() ) {
+                    Set<Long> modified = new HashSet<>( materializedView.underlyingTables );
+                    modified.retainAll( modifiedTables );
+                    if ( modified.isEmpty() ) {
+                        continue;
+                    }
+                    long version = versions.merge( materializedView.tableId, 1L, Long::sum );
+                    staleViews.add( materializedView.tableId );
+                    if ( materializedView.freshness == Freshness.IMMEDIATE ) {
+                        long modifiedTableId = modified.iterator().next();
+                        List<List<Object>> keys = modified.size() == 1 ? changes.getInsertedKeys( modifiedTableId ) : null;
+                        if ( keys != null ) {
+                            deltas.add( new Delta( materializedView.tableId, modifiedTableId, keys, version ) );
+                        } else {
+                            toRefresh.add( materializedView.tableId );
+                        }
+                    }
+                }
+            }
+            if ( refreshed != null ) {
+                refreshed.forEach( ( tableId, version ) -> {
+                    // Only up to date if no transaction modifying an underlying table has committed in the meantime
+                    if ( version.equals( versions.getOrDefault( tableId, 0L ) ) ) {
+                        staleViews.remove( tableId );
+                        appliedVersions.put( tableId, version );
+                    }
+                    lastRefresh.put( tableId, System.currentTimeMillis() );
+                } );
+            }
+        }
+        toRefresh.forEach( this::scheduleRefresh );
+        deltas.forEach( this::scheduleDelta );
+    }
+
+
+    public void rollback( PolyXid xid ) {
+        openTransactions.remove( xid );
+        pendingRefreshes.remove( xid );
+    }
+
+
+    /**
+     * Called when a materialized view has been dropped.
+     */
+    public void remove( long tableId ) {
+        staleViews.remove( tableId );
+        versions.remove( tableId );
+        appliedVersions.remove( tableId );
+        keyGenerators.remove( tableId );
+        lastRefresh.remove( tableId );
+        definitions.remove( tableId );
+    }
+
+
+    /**
+     * Replaces the parts of the query which are equal to the definition of a materialized view by a scan of the
+     * materialized view. The definitions are matched against the logical plan of the query using the
+     * {@link SubstitutionVisitor}, which can also answer a query from a materialized view with additional filters or
+     * projections. The definitions are only translated once and then copied into the cluster of each query.
+     */
+    public RelRoot rewrite( Statement statement, RelRoot root ) {
+        List<CatalogMaterializedView> materializedViews = Catalog.getInstance().getMaterializedViews();
+        if ( materializedViews.isEmpty() ) {
+            return root;
+        }
+        PolyXid xid = statement.getTransaction().getXid();
+        if ( pendingRefreshes.containsKey( xid ) ) {
+            // The definitions of materialized views are never answered from materialized views
+            return root;
+        }
+        Changes changes = openTransactions.get( xid );
+        Set<Long> modifiedTables = changes == null ? Collections.emptySet() : changes.getModifiedTables();
+
+        RelNode rel = root.rel;
+        Set<Long> scannedTables = new HashSet<>();
+        collectTables( rel, scannedTables );
+        for ( CatalogMaterializedView materializedView : materializedViews ) {
+            if ( staleViews.contains( materializedView.tableId )
+                    || !scannedTables.containsAll( materializedView.underlyingTables )
+                    || !Collections.disjoint( materializedView.underlyingTables, modifiedTables ) ) {
+                continue;
+            }
+            try {
+                RelNode target = getDefinition( statement, materializedView, rel.getCluster() );
+                RelNode replacement = buildReplacement( statement, Catalog.getInstance().getTable( materializedView.tableId ), target );
+                List<RelNode> substitutions = new SubstitutionVisitor( target, rel ).go( replacement );
+                if ( !substitutions.isEmpty() ) {
+                    // The first substitution is the one with all matches replaced
+                    rel = substitutions.get( 0 );
+                    rewritesCounter.incrementAndGet();
+                    scannedTables.clear();
+                    collectTables( rel, scannedTables );
+                    if ( log.isDebugEnabled() ) {
+                        log.debug( "Answering query from materialized view with id {}", materializedView.tableId );
+                    }
+                }
+            } catch ( Exception e ) {
+                log.warn( "Unable to match the materialized view with id {}", materializedView.tableId, e );
+            }
+        }
+        return root.withRel( rel );
+    }
+
+
+    /**
+     * Recomputes the rows of a materialized view as part of the transaction of the statement. The materialized view
+     * is used for answering queries again once the transaction has committed.
+     */
+    public void refresh( Statement statement, CatalogTable catalogTable ) {
+        Transaction transaction = statement.getTransaction();
+        Catalog catalog = Catalog.getInstance();
+        CatalogMaterializedView materializedView = catalog.getMaterializedView( catalogTable.id );
+        try {
+            LockManager.INSTANCE.lock( LockManager.GLOBAL_LOCK, (TransactionImpl) transaction, LockMode.SHARED );
+            LockManager.INSTANCE.lock( new TableIdentifier( catalogTable.id ), (TransactionImpl) transaction, LockMode.EXCLUSIVE );
+        } catch ( DeadlockException e ) {
+            throw new RuntimeException( e );
+        }
+        // Has to be registered before executing the definition, so that it is not answered from materialized views
+        pendingRefreshes.computeIfAbsent( transaction.getXid(), k -> new ConcurrentHashMap<>() )
+                .put( catalogTable.id, versions.getOrDefault( catalogTable.id, 0L ) );
+        QueryResultCache.INSTANCE.addModifiedTable( transaction.getXid(), catalogTable.id );
+
+        // Remove the current rows
+        for ( int adapterId : catalogTable.placementsByAdapter.keySet() ) {
+            AdapterManager.getInstance().getStore( adapterId ).truncate( statement.getPrepareContext(), catalogTable );
+        }
+
+        RelRoot definition = translate( statement, materializedView.query );
+        insertResult( statement, catalogTable, definition, definition.rel.getCluster().getTypeFactory().builder().build() );
+    }
+
+
+    /**
+     * Adds the rows derived from the rows inserted by a committed transaction to the materialized view. The
+     * materialized view is recomputed instead if it does not reflect all earlier changes, if the underlying tables
+     * have been modified again in the meantime or if its definition cannot be maintained incrementally.
+     */
+    private void applyDelta( Statement statement, CatalogTable catalogTable, Delta delta ) {
+        Transaction transaction = statement.getTransaction();
+        Catalog catalog = Catalog.getInstance();
+        CatalogMaterializedView materializedView = catalog.getMaterializedView( catalogTable.id );
+        try {
+            LockManager.INSTANCE.lock( new TableIdentifier( catalogTable.id ), (TransactionImpl) transaction, LockMode.EXCLUSIVE );
+            // No further changes to the underlying tables can be committed while the delta is computed
+            for ( long tableId : materializedView.underlyingTables ) {
+                LockManager.INSTANCE.lock( new TableIdentifier( tableId ), (TransactionImpl) transaction, LockMode.SHARED );
+            }
+        } catch ( DeadlockException e ) {
+            throw new RuntimeException( e );
+        }
+        long applied = appliedVersions.getOrDefault( catalogTable.id, -1L );
+        if ( applied >= delta.version ) {
+            // Already contained in a recomputation of the materialized view
+            return;
+        }
+        if ( applied != delta.version - 1
+                || versions.getOrDefault( catalogTable.id, 0L ) != delta.version
+                || !isIncrementallyMaintainable( translate( statement, materializedView.query ).rel, delta.modifiedTableId ) ) {
+            refresh( statement, catalogTable );
+            return;
+        }
+        pendingRefreshes.computeIfAbsent( transaction.getXid(), k -> new ConcurrentHashMap<>() ).put( catalogTable.id, delta.version );
+        QueryResultCache.INSTANCE.addModifiedTable( transaction.getXid(), catalogTable.id );
+
+        CatalogTable modifiedTable = catalog.getTable( delta.modifiedTableId );
+        for ( List<List<Object>> keys : Lists.partition( delta.keys, MAX_KEYS_PER_QUERY ) ) {
+            // Every statement has its own parameter values
+            Statement deltaStatement = transaction.createStatement();
+            RelRoot definition = translate( deltaStatement, materializedView.query );
+            RelDataTypeFactory.Builder parameterRowType = definition.rel.getCluster().getTypeFactory().builder();
+            RelNode restricted = restrictToKeys( deltaStatement, definition.rel, modifiedTable, keys, parameterRowType );
+            insertResult( deltaStatement, catalogTable, definition.withRel( restricted ), parameterRowType.build() );
+        }
+    }
+
+
+    /**
+     * Executes the query and inserts its result into the materialized view, generating the values of its primary key.
+     */
+    private void insertResult( Statement statement, CatalogTable catalogTable, RelRoot query, RelDataType parameterRowType ) {
+        Transaction transaction = statement.getTransaction();
+        Catalog catalog = Catalog.getInstance();
+        PolyphenyDbSignature signature = statement.getQueryProcessor().prepareQuery( query, parameterRowType, false );
+        //noinspection unchecked
+        Iterator<Object> iterator = signature.enumerable( statement.getDataContext() ).iterator();
+        List<CatalogColumn> columns = catalog.getColumns( catalogTable.id );
+        int batchSize = RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger();
+        AtomicLong keyGenerator = keyGenerators.computeIfAbsent( catalogTable.id, k -> new AtomicLong() );
+        try {
+            while ( iterator.hasNext() ) {
+                List<List<Object>> batch = MetaImpl.collect( signature.cursorFactory, LimitIterator.of( iterator, batchSize ), new ArrayList<>( batchSize ) );
+                List<List<Object>> rows = new ArrayList<>( batch.size() );
+                for ( List<Object> values : batch ) {
+                    List<Object> row = new ArrayList<>( values.size() + 1 );
+                    row.addAll( values );
+                    // The generated primary key is the last column of the materialized view
+                    row.add( keyGenerator.getAndIncrement() );
+                    rows.add( row );
+                }
+                for ( int adapterId : catalogTable.placementsByAdapter.keySet() ) {
+                    transaction.getDataMigrator().insertRows( transaction, catalog.getAdapter( adapterId ), columns, rows );
+                }
+            }
+        } finally {
+            if ( iterator instanceof AutoCloseable ) {
+                try {
+                    ((AutoCloseable) iterator).close();
+                } catch ( Exception e ) {
+                    log.debug( "Exception while closing the result of the definition of a materialized view", e );
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Restricts the scan of the modified table to the rows with the specified primary keys. The keys are bound to
+     * dynamic parameters, whose types are added to the parameter row type.
+     */
+    private static RelNode restrictToKeys( Statement statement, RelNode rel, CatalogTable modifiedTable, List<List<Object>> keys, RelDataTypeFactory.Builder parameterRowType ) {
+        List<Long> primaryKeyColumnIds = Catalog.getInstance().getPrimaryKey( modifiedTable.primaryKey ).columnIds;
+        return rel.accept( new RelShuttleImpl() {
+            @Override
+            public RelNode visit( TableScan scan ) {
+                if ( !Long.valueOf( modifiedTable.id ).equals( getTableId( scan ) ) ) {
+                    return scan;
+                }
+                RelBuilder builder = RelBuilder.create( statement, scan.getCluster() );
+                builder.push( scan );
+                List<RexNode> conditions = new ArrayList<>( keys.size() );
+                int index = 0;
+                for ( List<Object> key : keys ) {
+                    List<RexNode> equals = new ArrayList<>( primaryKeyColumnIds.size() );
+                    for ( int i = 0; i < primaryKeyColumnIds.size(); i++ ) {
+                        RelDataTypeField field = scan.getRowType().getFieldList().get( modifiedTable.columnIds.indexOf( primaryKeyColumnIds.get( i ) ) );
+                        equals.add( builder.equals( builder.field( field.getIndex() ), new RexDynamicParam( field.getType(), index ) ) );
+                        statement.getDataContext().addParameterValues( index, field.getType(), Collections.singletonList( key.get( i ) ) );
+                        parameterRowType.add( "key" + index, null, field.getType() );
+                        index++;
+                    }
+                    conditions.add( builder.and( equals ) );
+                }
+                builder.filter( builder.or( conditions ) );
+                return builder.build();
+            }
+        } );
+    }
+
+
+    /**
+     * Returns whether evaluating the plan with the scan of the table restricted to the inserted rows yields exactly
+     * the rows added to its result by the insertion. This is the case if the plan only consists of projections,
+     * filters, inner joins and scans and reads the table once.
+     */
+    private static boolean isIncrementallyMaintainable( RelNode rel, long tableId ) {
+        int[] scans = { 0 };
+        return isSelectProjectJoin( rel, tableId, scans ) && scans[0] == 1;
+    }
+
+
+    private static boolean isSelectProjectJoin( RelNode node, long tableId, int[] scans ) {
+        if ( node instanceof LogicalTableScan ) {
+            if ( Long.valueOf( tableId ).equals( getTableId( node ) ) ) {
+                scans[0]++;
+            }
+            return true;
+        }
+        if ( !(node instanceof LogicalProject)
+                && !(node instanceof LogicalFilter)
+                && !(node instanceof LogicalJoin && ((LogicalJoin) node).getJoinType() == JoinRelType.INNER) ) {
+            return false;
+        }
+        try {
+            node.accept( CORRELATION_FINDER );
+        } catch ( Util.FoundOne e ) {
+            return false;
+        }
+        for ( RelNode input : node.getInputs() ) {
+            if ( !isSelectProjectJoin( input, tableId, scans ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private void refreshStaleViews() {
+        if ( staleViews.isEmpty() ) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for ( CatalogMaterializedView materializedView : Catalog.getInstance().getMaterializedViews() ) {
+            if ( !staleViews.contains( materializedView.tableId ) ) {
+                continue;
+            }
+            if ( materializedView.freshness == Freshness.IMMEDIATE
+                    || (materializedView.freshness == Freshness.INTERVAL && now - lastRefresh.getOrDefault( materializedView.tableId, 0L ) >= materializedView.interval) ) {
+                scheduleRefresh( materializedView.tableId );
+            }
+        }
+    }
+
+
+    private void scheduleRefresh( long tableId ) {
+        if ( transactionManager == null || !scheduledRefreshes.add( tableId ) ) {
+            return;
+        }
+        refreshExecutor.submit( () -> {
+            try {
+                maintainInNewTransaction( tableId, null );
+            } finally {
+                scheduledRefreshes.remove( tableId );
+            }
+        } );
+    }
+
+
+    private void scheduleDelta( Delta delta ) {
+        if ( transactionManager == null ) {
+            return;
+        }
+        // The executor applies the deltas in the order of the commits
+        refreshExecutor.submit( () -> maintainInNewTransaction( delta.tableId, delta ) );
+    }
+
+
+    /**
+     * Refreshes the materialized view or applies a delta to it in a new transaction.
+     *
+     * @param delta The delta to apply or null for recomputing the materialized view
+     */
+    private void maintainInNewTransaction( long tableId, Delta delta ) {
+        Transaction transaction = transactionManager.startTransaction( "pa", "APP", false, "Materialized View Maintenance" );
+        try {
+            Statement statement = transaction.createStatement();
+            LockManager.INSTANCE.lock( LockManager.GLOBAL_LOCK, (TransactionImpl) transaction, LockMode.SHARED );
+            // The materialized view might have been dropped in the meantime
+            boolean exists = Catalog.getInstance().getMaterializedViews().stream().anyMatch( m -> m.tableId == tableId );
+            if ( exists && delta == null ) {
+                refresh( statement, Catalog.getInstance().getTable( tableId ) );
+            } else if ( exists ) {
+                applyDelta( statement, Catalog.getInstance().getTable( tableId ), delta );
+            }
+            transaction.commit();
+        } catch ( Throwable t ) {
+            log.error( "Exception while maintaining the materialized view with id {}", tableId, t );
+            try {
+                transaction.rollback();
+            } catch ( Throwable e ) {
+                log.error( "Unable to rollback the maintenance of the materialized view with id {}", tableId, e );
+            }
+        }
+    }
+
+
+    /**
+     * Waits until the maintenance of the materialized views scheduled so far has been completed.
+     *
+     * @return false if the waiting time elapsed before
+     */
+    boolean awaitMaintenance( long timeout, TimeUnit unit ) throws InterruptedException, ExecutionException {
+        try {
+            // The executor runs the tasks in the order of their submission
+            refreshExecutor.submit( () -> {
+            } ).get( timeout, unit );
+            return true;
+        } catch ( TimeoutException e ) {
+            return false;
+        }
+    }
+
+
+    long getRewrites() {
+        return rewritesCounter.get();
+    }
+
+
+    /**
+     * Returns the translated definition of the materialized view in the given cluster. The translation is cached until
+     * the catalog changes; definitions which cannot be copied into another cluster are translated for every query.
+     */
+    private RelNode getDefinition( Statement statement, CatalogMaterializedView materializedView, RelOptCluster cluster ) {
+        RelNode cached = definitions.get( materializedView.tableId );
+        if ( cached != null ) {
+            try {
+                return RelOptUtil.copyToCluster( cached, cluster, statement.getTransaction().getCatalogReader() );
+            } catch ( RuntimeException e ) {
+                log.debug( "Unable to copy the definition of the materialized view with id {}", materializedView.tableId, e );
+            }
+        }
+        RelNode translated = translate( statement, materializedView.query ).rel;
+        definitions.put( materializedView.tableId, translated );
+        return translated;
+    }
+
+
+    private RelRoot translate( Statement statement, String query ) {
+        SqlProcessor sqlProcessor = statement.getTransaction().getSqlProcessor();
+        SqlNode parsed = sqlProcessor.parse( query );
+        RelRoot root = sqlProcessor.translate( statement, sqlProcessor.validate( statement.getTransaction(), parsed, false ).left );
+        if ( root.rel.hasView() ) {
+            root = root.tryExpandView();
+        }
+        return root;
+    }
+
+
+    // Scan of the materialized view with the row type of its definition
+    private RelNode buildReplacement( Statement statement, CatalogTable catalogTable, RelNode target ) {
+        RelBuilder builder = RelBuilder.create( statement, target.getCluster() );
+        builder.scan( catalogTable.getSchemaName(), catalogTable.name );
+        List<RexNode> fields = new ArrayList<>( builder.fields() );
+        // Remove the generated primary key
+        fields.remove( fields.size() - 1 );
+        builder.project( fields );
+        return RelOptUtil.createCastRel( builder.build(), target.getRowType(), true );
+    }
+
+
+    // Returns the id of the table read by the node or null if it is not a scan of a table
+    private static Long getTableId( RelNode node ) {
+        if ( node instanceof TableScan
+                && node.getTable() instanceof RelOptTableImpl
+                && ((RelOptTableImpl) node.getTable()).getTable() instanceof LogicalTable ) {
+            return ((LogicalTable) ((RelOptTableImpl) node.getTable()).getTable()).getTableId();
+        }
+        return null;
+    }
+
+
+    private static void collectTables( RelNode node, Set<Long> tableIds ) {
+        Long tableId = getTableId( node );
+        if ( tableId != null ) {
+            tableIds.add( tableId );
+        }
+        for ( RelNode input : node.getInputs() ) {
+            collectTables( input, tableIds );
+        }
+    }
+
+
+    /**
+     * Returns the ids of the tables read by the plan.
+     */
+    public static List<Long> getUnderlyingTables( RelNode node ) {
+        Set<Long> tableIds = new HashSet<>();
+        collectTables( node, tableIds );
+        return new ArrayList<>( tableIds );
+    }
+
+
+
+    /**
+     * Tables modified by a transaction and, for tables which have only been inserted into, the primary keys of the
+     * inserted rows.
+     */
+    private static class Changes {
+
+        private final Set<Long> modifiedTables = new HashSet<>();
+        private final Map<Long, List<List<Object>>> insertedKeys = new HashMap<>();
+
+
+        synchronized void addModifiedTable( long tableId ) {
+            modifiedTables.add( tableId );
+            // The modified rows are unknown
+            insertedKeys.remove( tableId );
+        }
+
+
+        synchronized void addInsertedKeys( long tableId, List<List<Object>> keys ) {
+            List<List<Object>> inserted = modifiedTables.add( tableId ) ? new ArrayList<>() : insertedKeys.get( tableId );
+            if ( inserted == null ) {
+                return;
+            }
+            if ( inserted.size() + keys.size() > MAX_DELTA_KEYS ) {
+                // Recomputing the materialized views is cheaper
+                insertedKeys.remove( tableId );
+                return;
+            }
+            inserted.addAll( keys );
+            insertedKeys.put( tableId, inserted );
+        }
+
+
+        synchronized Set<Long> getModifiedTables() {
+            return new HashSet<>( modifiedTables );
+        }
+
+
+        synchronized List<List<Object>> getInsertedKeys( long tableId ) {
+            return insertedKeys.get( tableId );
+        }
+
+    }
+
+
+    /**
+     * Rows inserted into an underlying table of a materialized view by a committed transaction.
+     */
+    private static class Delta {
+
+        private final long tableId;
+        private final long modifiedTableId;
+        private final List<List<Object>> keys;
+        // Version of the materialized view after applying the delta
+        private final long version;
+
+
+        Delta( long tableId, long modifiedTableId, List<List<Object>> keys, long version ) {
+            this.tableId = tableId;
+            this.modifiedTableId = modifiedTableId;
+            this.keys = keys;
+            this.version = version;
+        }
+
+    }
+
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing;
+
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.adapter.AdapterManager;
+import org.polypheny.db.adapter.DataStore;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.entity.CatalogAdapter;
+import org.polypheny.db.catalog.entity.CatalogColumn;
+import org.polypheny.db.catalog.entity.CatalogColumnPlacement;
+import org.polypheny.db.catalog.entity.CatalogPendingPlacement;
+import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.ddl.DdlManager;
+import org.polypheny.db.transaction.Lock.LockMode;
+import org.polypheny.db.transaction.LockManager;
+import org.polypheny.db.transaction.PolyXid;
+import org.polypheny.db.transaction.Statement;
+import org.polypheny.db.transaction.Transaction;
+import org.polypheny.db.transaction.TransactionImpl;
+import org.polypheny.db.transaction.TransactionManager;
+
+
+/**
+ * Populates new placements in the background, without holding the global schema lock for the duration of the copy.
+ *
+ * While a placement is being populated, it is hidden from the router: queries read from the other placements and,
+ * if the placement is a new data placement, DML is not executed on it. The primary keys of all rows modified in the
+ * meantime are captured by the query processor and collected in a change buffer once the modifying transaction has
+ * committed. After the initial copy, the rows in the change buffer are copied again until only a few are left. These
+ * are copied while holding the global schema lock, which is also when the placement becomes visible to the router.
+ *
+ * The placements being populated are recorded in the catalog. If Polypheny-DB is stopped before the switch-over,
+ * these placements are populated again from scratch on startup.
+ */
+@Slf4j
+public class PlacementMigrationManager {
+
+    private static final PlacementMigrationManager INSTANCE = new PlacementMigrationManager();
+
+    // Maximum number of catch-up rounds before switching over, even if the change buffer has not become small enough
+    private static final int MAX_CATCH_UP_ROUNDS = 10;
+
+    private final Map<Long, Migration> migrations = new ConcurrentHashMap<>();
+    // Keys of rows modified by transactions which have not yet been committed
+    private final Map<PolyXid, Map<Long, List<List<Object>>>> openTransactions = new ConcurrentHashMap<>();
+    private TransactionManager transactionManager = null;
+    // Executed by the migration threads after the catch-up rounds, before acquiring the schema lock for the switch-over
+    private volatile Runnable beforeSwitchOver = null;
+
+
+    public static PlacementMigrationManager getInstance() {
+        return INSTANCE;
+    }
+
+
+    private PlacementMigrationManager() {
+    }
+
+
+    public void initialize( final TransactionManager transactionManager ) {
+        this.transactionManager = transactionManager;
+        // Populate the placements again whose migration has been interrupted
+        for ( CatalogPendingPlacement pendingPlacement : Catalog.getInstance().getPendingPlacements() ) {
+            log.info( "Populating placements on adapter with id {} for table with id {} again, since the migration has been interrupted", pendingPlacement.adapterId, pendingPlacement.tableId );
+            Migration migration = new Migration( pendingPlacement.tableId, pendingPlacement.adapterId, pendingPlacement.columnIds, pendingPlacement.newDataPlacement );
+            migration.interrupted = true;
+            migrations.put( pendingPlacement.tableId, migration );
+            startThread( migration, "PlacementMigration-" + pendingPlacement.tableId );
+        }
+    }
+
+
+    public boolean isMigrating( long tableId ) {
+        return migrations.containsKey( tableId );
+    }
+
+
+    /**
+     * Waits until the placements of the table which are currently being populated are visible or have been removed.
+     *
+     * @return false if the waiting time elapsed before
+     */
+    public boolean awaitMigration( long tableId, long timeout, TimeUnit unit ) throws InterruptedException {
+        Migration migration = migrations.get( tableId );
+        return migration == null || migration.finished.await( timeout, unit );
+    }
+
+
+    /**
+     * Sets an action which is executed by every migration before its switch-over, or {@code null} to remove it. This
+     * allows to deterministically run statements while a placement is being populated.
+     */
+    @VisibleForTesting
+    public void setBeforeSwitchOver( Runnable beforeSwitchOver ) {
+        this.beforeSwitchOver = beforeSwitchOver;
+    }
+
+
+    /**
+     * Whether DML must not be executed on the placements of this table on the specified adapter, because they are
+     * currently being populated.
+     */
+    public boolean isPendingDataPlacement( long tableId, int adapterId ) {
+        Migration migration = migrations.get( tableId );
+        return migration != null && migration.newDataPlacement && migration.adapterId == adapterId;
+    }
+
+
+    /**
+     * Replaces the column placements which are currently being populated with placements of the same columns on
+     * other adapters.
+     */
+    public List<CatalogColumnPlacement> withoutPendingPlacements( List<CatalogColumnPlacement> placements ) {
+        if ( migrations.isEmpty() ) {
+            return placements;
+        }
+        List<CatalogColumnPlacement> result = new ArrayList<>( placements.size() );
+        for ( CatalogColumnPlacement placement : placements ) {
+            Migration migration = migrations.get( placement.tableId );
+            if ( migration == null || migration.adapterId != placement.adapterId || !migration.columnIds.contains( placement.columnId ) ) {
+                result.add( placement );
+                continue;
+            }
+            CatalogColumnPlacement replacement = null;
+            for ( CatalogColumnPlacement other : Catalog.getInstance().getColumnPlacements( placement.columnId ) ) {
+                if ( other.adapterId != migration.adapterId ) {
+                    replacement = other;
+                    break;
+                }
+            }
+            if ( replacement == null ) {
+                throw new RuntimeException( "There is no available placement for column with id " + placement.columnId );
+            }
+            result.add( replacement );
+        }
+        return result;
+    }
+
+
+    /**
+     * Registers the keys of rows modified by a transaction. They are added to the change buffer of the migration once
+     * the transaction has committed.
+     */
+    public void addModifiedKeys( PolyXid xid, long tableId, List<List<Object>> keys ) {
+        openTransactions.computeIfAbsent( xid, k -> new ConcurrentHashMap<>() )
+                .computeIfAbsent( tableId, k -> new ArrayList<>() )
+                .addAll( keys );
+    }
+
+
+    /**
+     * To be called if the rows modified by a statement cannot be determined. In this case, all rows are copied again
+     * during the switch-over.
+     */
+    public void requireFullCopy( long tableId ) {
+        Migration migration = migrations.get( tableId );
+        if ( migration != null ) {
+            migration.fullCopyRequired = true;
+        }
+    }
+
+
+    public void commit( PolyXid xid ) {
+        Map<Long, List<List<Object>>> modifiedKeys = openTransactions.remove( xid );
+        if ( modifiedKeys == null ) {
+            return;
+        }
+        modifiedKeys.forEach( ( tableId, keys ) -> {
+            Migration migration = migrations.get( tableId );
+            if ( migration != null ) {
+                migration.changeBuffer.addAll( keys );
+            }
+        } );
+    }
+
+
+    public void rollback( PolyXid xid ) {
+        openTransactions.remove( xid );
+    }
+
+
+    /**
+     * Starts populating the placements of the specified columns on the store. Needs to be called while holding the
+     * global schema lock, after the placements have been added to the catalog and to the store. The copy starts as
+     * soon as the schema lock has been released.
+     *
+     * @param newDataPlacement Whether there have been no placements of this table on the store before
+     */
+    public void startMigration( CatalogTable catalogTable, DataStore store, List<CatalogColumn> columns, boolean newDataPlacement ) {
+        if ( transactionManager == null ) {
+            throw new RuntimeException( "The placement migration manager has not been initialized" );
+        }
+        List<Long> columnIds = new ArrayList<>( columns.size() );
+        for ( CatalogColumn column : columns ) {
+            columnIds.add( column.id );
+        }
+        Migration migration = new Migration( catalogTable.id, store.getAdapterId(), columnIds, newDataPlacement );
+        if ( migrations.putIfAbsent( catalogTable.id, migration ) != null ) {
+            throw new RuntimeException( "There is already a placement of the table '" + catalogTable.name + "' being populated" );
+        }
+        // Committed together with the DDL
+        Catalog.getInstance().addPendingPlacement( catalogTable.id, store.getAdapterId(), columnIds, newDataPlacement );
+        startThread( migration, "PlacementMigration-" + catalogTable.name );
+    }
+
+
+    private void startThread( Migration migration, String name ) {
+        Thread thread = new Thread( () -> migrate( migration ), name );
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+
+    private void migrate( Migration migration ) {
+        try {
+            // Wait until the DDL has been committed and make sure that it has not been rolled back
+            boolean placementsExist = runInTransaction( LockMode.SHARED, transaction -> {
+                for ( long columnId : migration.columnIds ) {
+                    if ( !Catalog.getInstance().checkIfExistsColumnPlacement( migration.adapterId, columnId ) ) {
+                        return false;
+                    }
+                }
+                return true;
+            } );
+            if ( !placementsExist ) {
+                if ( migration.interrupted ) {
+                    runInTransaction( LockMode.EXCLUSIVE, transaction -> {
+                        Catalog.getInstance().deletePendingPlacement( migration.tableId );
+                        return true;
+                    } );
+                }
+                migrations.remove( migration.tableId );
+                return;
+            }
+
+            // Initial copy
+            runInTransaction( null, transaction -> {
+                if ( migration.interrupted && migration.newDataPlacement ) {
+                    // Remove the rows which have been copied before the interruption
+                    Statement statement = transaction.createStatement();
+                    AdapterManager.getInstance().getStore( migration.adapterId ).truncate( statement.getPrepareContext(), Catalog.getInstance().getTable( migration.tableId ) );
+                }
+                transaction.getDataMigrator().copyData( transaction, getAdapter( migration ), getColumns( migration ) );
+                return true;
+            } );
+
+            // Catch up with the rows modified in the meantime
+            int rounds = 0;
+            while ( migration.changeBuffer.size() > RuntimeConfig.ONLINE_PLACEMENT_MIGRATION_SWITCH_THRESHOLD.getInteger() && rounds++ < MAX_CATCH_UP_ROUNDS ) {
+                List<List<Object>> keys = migration.drainChangeBuffer();
+                runInTransaction( null, transaction -> {
+                    transaction.getDataMigrator().copyRows( transaction, getAdapter( migration ), getColumns( migration ), keys );
+                    return true;
+                } );
+            }
+
+            Runnable hook = beforeSwitchOver;
+            if ( hook != null ) {
+                hook.run();
+            }
+
+            // Switch-over
+            runInTransaction( LockMode.EXCLUSIVE, transaction -> {
+                CatalogAdapter adapter = getAdapter( migration );
+                if ( migration.fullCopyRequired ) {
+                    log.info( "Copying all rows of table with id {} again, since the modified rows could not be determined", migration.tableId );
+                    if ( migration.newDataPlacement ) {
+                        Statement statement = transaction.createStatement();
+                        AdapterManager.getInstance().getStore( migration.adapterId ).truncate( statement.getPrepareContext(), Catalog.getInstance().getTable( migration.tableId ) );
+                    }
+                    transaction.getDataMigrator().copyData( transaction, adapter, getColumns( migration ) );
+                } else {
+                    List<List<Object>> keys = migration.drainChangeBuffer();
+                    if ( !keys.isEmpty() ) {
+                        transaction.getDataMigrator().copyRows( transaction, adapter, getColumns( migration ), keys );
+                    }
+                }
+                // The placements become visible as soon as the schema lock is released
+                Catalog.getInstance().deletePendingPlacement( migration.tableId );
+                migrations.remove( migration.tableId );
+                return true;
+            } );
+            log.info( "Finished populating placements on adapter with id {} for table with id {}", migration.adapterId, migration.tableId );
+        } catch ( Throwable t ) {
+            log.error( "Exception while populating placements on adapter with id {} for table with id {}. Removing the placements.", migration.adapterId, migration.tableId, t );
+            migrations.remove( migration.tableId );
+            dropPlacements( migration );
+        } finally {
+            migration.finished.countDown();
+        }
+    }
+
+
+    // Removes the placements of a failed migration
+    private void dropPlacements( Migration migration ) {
+        try {
+            runInTransaction( LockMode.EXCLUSIVE, transaction -> {
+                Statement statement = transaction.createStatement();
+                CatalogTable catalogTable = Catalog.getInstance().getTable( migration.tableId );
+                DataStore store = AdapterManager.getInstance().getStore( migration.adapterId );
+                Catalog.getInstance().deletePendingPlacement( migration.tableId );
+                if ( migration.newDataPlacement ) {
+                    DdlManager.getInstance().dropPlacement( catalogTable, store, statement );
+                } else {
+                    for ( long columnId : migration.columnIds ) {
+                        DdlManager.getInstance().dropColumnPlacement( catalogTable, Catalog.getInstance().getColumn( columnId ).name, store, statement );
+                    }
+                }
+                return true;
+            } );
+        } catch ( Throwable t ) {
+            log.error( "Unable to remove the placements on adapter with id {} for table with id {}", migration.adapterId, migration.tableId, t );
+        }
+    }
+
+
+    private CatalogAdapter getAdapter( Migration migration ) {
+        return Catalog.getInstance().getAdapter( migration.adapterId );
+    }
+
+
+    private List<CatalogColumn> getColumns( Migration migration ) {
+        List<CatalogColumn> columns = new ArrayList<>( migration.columnIds.size() );
+        for ( long columnId : migration.columnIds ) {
+            columns.add( Catalog.getInstance().getColumn( columnId ) );
+        }
+        return columns;
+    }
+
+
+    /**
+     * Executes the action in a new transaction. If the global schema lock is acquired exclusively, the changes to the
+     * catalog are committed as well.
+     *
+     * @param schemaLockMode Mode of the global schema lock to acquire or {@code null} to acquire no lock
+     */
+    private boolean runInTransaction( LockMode schemaLockMode, TransactionAction action ) throws Exception {
+        Transaction transaction = transactionManager.startTransaction( "pa", "APP", false, "Placement Migration" );
+        try {
+            if ( schemaLockMode != null ) {
+                LockManager.INSTANCE.lock( LockManager.GLOBAL_LOCK, (TransactionImpl) transaction, schemaLockMode );
+            }
+            boolean result = action.execute( transaction );
+            if ( schemaLockMode == LockMode.EXCLUSIVE ) {
+                Catalog.getInstance().commit();
+            }
+            transaction.commit();
+            return result;
+        } catch ( Throwable t ) {
+            transaction.rollback();
+            throw t;
+        }
+    }
+
+
+    @FunctionalInterface
+    private interface TransactionAction {
+
+        boolean execute( Transaction transaction ) throws Exception;
+
+    }
+
+
+    private static class Migration {
+
+        private final long tableId;
+        private final int adapterId;
+        private final List<Long> columnIds;
+        private final boolean newDataPlacement;
+        private final Set<List<Object>> changeBuffer = ConcurrentHashMap.newKeySet();
+        private final CountDownLatch finished = new CountDownLatch( 1 );
+        private volatile boolean fullCopyRequired = false;
+        // Whether the migration has been restarted after Polypheny-DB has been stopped before the switch-over
+        private boolean interrupted = false;
+
+
+        Migration( long tableId, int adapterId, List<Long> columnIds, boolean newDataPlacement ) {
+            this.tableId = tableId;
+            this.adapterId = adapterId;
+            this.columnIds = ImmutableList.copyOf( columnIds );
+            this.newDataPlacement = newDataPlacement;
+        }
+
+
+        List<List<Object>> drainChangeBuffer() {
+            List<List<Object>> keys = new ArrayList<>( changeBuffer.size() );
+            Iterator<List<Object>> iterator = changeBuffer.iterator();
+            while ( iterator.hasNext() ) {
+                keys.add( iterator.next() );
+                iterator.remove();
+            }
+            return keys;
+        }
+
+    }
+
+}
@@ -0,0 +1,545 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing;
+
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.calcite.avatica.util.ByteString;
+import org.apache.calcite.linq4j.AbstractEnumerable;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.linq4j.Linq4j;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.Catalog.TableType;
+import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.information.InformationAction;
+import org.polypheny.db.information.InformationGraph;
+import org.polypheny.db.information.InformationGraph.GraphData;
+import org.polypheny.db.information.InformationGraph.GraphType;
+import org.polypheny.db.information.InformationGroup;
+import org.polypheny.db.information.InformationKeyValue;
+import org.polypheny.db.information.InformationManager;
+import org.polypheny.db.information.InformationPage;
+import org.polypheny.db.information.InformationTable;
+import org.polypheny.db.information.InformationText;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.RelVisitor;
+import org.polypheny.db.rex.RexCall;
+import org.polypheny.db.rex.RexDynamicParam;
+import org.polypheny.db.rex.RexNode;
+import org.polypheny.db.rex.RexShuttle;
+import org.polypheny.db.runtime.Bindable;
+import org.polypheny.db.transaction.PolyXid;
+import org.polypheny.db.transaction.TableAccessMap;
+import org.polypheny.db.transaction.TableAccessMap.TableIdentifier;
+import org.polypheny.db.util.Util;
+
+
+/**
+ * Caches the results of read-only queries. Results are keyed by the parameterized plan and the values bound to its
+ * parameters.
+ *
+ * Every cached result records the version of the tables it has been computed from. The version of a table is
+ * incremented once a transaction which has modified the table commits; results based on an older version are
+ * discarded when they are looked up. Queries of transactions with uncommitted changes to one of the tables involved
+ * bypass the cache. Changes to the catalog invalidate the whole cache.
+ */
+public class QueryResultCache {
+
+    public static final QueryResultCache INSTANCE = new QueryResultCache();
+
+    private final Cache<CacheKey, CachedResult> resultCache;
+    private final long maximumEntrySize;
+
+    // Tables modified by transactions which have not yet been committed
+    private final Map<PolyXid, Set<Long>> openTransactions = new ConcurrentHashMap<>();
+    // Incremented whenever a transaction modifying the table commits
+    private final Map<Long, Long> tableVersions = new ConcurrentHashMap<>();
+    private final AtomicLong memoryUsage = new AtomicLong();
+
+    private final AtomicLong hitsCounter = new AtomicLong(); // Number of requests for which the cache contained the value
+    private final AtomicLong missesCounter = new AtomicLong(); // Number of requests for which the cache hasn't contained the value
+    private final AtomicLong bypassCounter = new AtomicLong(); // Number of requests bypassing the cache because of uncommitted changes
+
+
+    public QueryResultCache() {
+        this( RuntimeConfig.QUERY_RESULT_CACHING_SIZE.getInteger() );
+        Catalog.getInstance().addObserver( evt -> resultCache.invalidateAll() );
+        registerMonitoringPage();
+    }
+
+
+    /**
+     * Creates a cache which is neither invalidated by catalog changes nor shown on an information page.
+     *
+     * @param budget Memory budget in bytes
+     */
+    QueryResultCache( long budget ) {
+        // A single result may use at most a tenth of the budget
+        maximumEntrySize = budget / 10;
+        resultCache = CacheBuilder.newBuilder()
+                .maximumWeight( budget )
+                .weigher( ( CacheKey key, CachedResult result ) -> (int) Math.min( Integer.MAX_VALUE, result.size ) )
+                .removalListener( notification -> memoryUsage.addAndGet( -notification.getValue().size ) )
+                .build();
+    }
+
+
+    /**
+     * Returns the ids of the tables read by the query or {@code null} if the result of the query can not be cached.
+     * This is the case if the query reads data sources, which can be modified by other applications, or contains
+     * non-deterministic functions like {@code RAND()} or {@code CURRENT_TIMESTAMP}.
+     */
+    public Set<Long> getCacheableTables( TableAccessMap accessMap, RelNode logicalNode ) {
+        Set<Long> tableIds = new HashSet<>();
+        for ( TableIdentifier tableIdentifier : accessMap.getTablesAccessed() ) {
+            CatalogTable catalogTable = Catalog.getInstance().getTable( tableIdentifier.getTableId() );
+            if ( catalogTable.tableType != TableType.TABLE && catalogTable.tableType != TableType.MATERIALIZED_VIEW ) {
+                return null;
+            }
+            tableIds.add( catalogTable.id );
+        }
+        if ( tableIds.isEmpty() || !isDeterministic( logicalNode ) ) {
+            return null;
+        }
+        return tableIds;
+    }
+
+
+    private static boolean isDeterministic( RelNode node ) {
+        try {
+            node.accept( new RexShuttle() {
+                @Override
+                public RexNode visitCall( RexCall call ) {
+                    if ( !call.getOperator().isDeterministic() || call.getOperator().isDynamicFunction() ) {
+                        throw Util.FoundOne.NULL;
+                    }
+                    return super.visitCall( call );
+                }
+            } );
+        } catch ( Util.FoundOne e ) {
+            return false;
+        }
+        for ( RelNode input : node.getInputs() ) {
+            if ( !isDeterministic( input ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns a bindable which answers the query from the cache if possible and otherwise caches the result of the
+     * given bindable.
+     *
+     * @param bindable The implementation of the query
+     * @param parameterizedNode The parameterized plan of the query
+     * @param tableIds The tables read by the query, as returned by {@link #getCacheableTables(TableAccessMap, RelNode)}
+     */
+    public Bindable<Object> wrap( Bindable<Object> bindable, RelNode parameterizedNode, Set<Long> tableIds ) {
+        return wrap( bindable, parameterizedNode.relCompareString(), getParameterIndexes( parameterizedNode ), tableIds );
+    }
+
+
+    Bindable<Object> wrap( Bindable<Object> bindable, String digest, Set<Long> parameterIndexes, Set<Long> tableIds ) {
+        return dataContext -> bind( bindable, dataContext, digest, parameterIndexes, tableIds );
+    }
+
+
+    /**
+     * Returns the indexes of the dynamic parameters of the query. The data context also holds values which are bound
+     * during the execution (e.g. the keys of a reduced join); these are not part of the cache key.
+     */
+    private static Set<Long> getParameterIndexes( RelNode rel ) {
+        final Set<Long> indexes = new HashSet<>();
+        final RexShuttle shuttle = new RexShuttle() {
+            @Override
+            public RexNode visitDynamicParam( RexDynamicParam dynamicParam ) {
+                indexes.add( dynamicParam.getIndex() );
+                return dynamicParam;
+            }
+        };
+        new RelVisitor() {
+            @Override
+            public void visit( RelNode node, int ordinal, RelNode parent ) {
+                node.accept( shuttle );
+                super.visit( node, ordinal, parent );
+            }
+        }.go( rel );
+        return indexes;
+    }
+
+
+    private Enumerable<Object> bind( Bindable<Object> bindable, DataContext dataContext, String digest, Set<Long> parameterIndexes, Set<Long> tableIds ) {
+        if ( !RuntimeConfig.QUERY_RESULT_CACHING.getBoolean() || dataContext.getStatement() == null ) {
+            return bindable.bind( dataContext );
+        }
+        Set<Long> modifiedTables = openTransactions.get( dataContext.getStatement().getTransaction().getXid() );
+        if ( modifiedTables != null && !Collections.disjoint( modifiedTables, tableIds ) ) {
+            // The transaction has to see its own changes
+            bypassCounter.incrementAndGet();
+            return bindable.bind( dataContext );
+        }
+
+        final CacheKey key = new CacheKey( digest, dataContext.getParameterValues(), parameterIndexes );
+        final Map<Long, Long> versions = getVersions( tableIds );
+        CachedResult cached = resultCache.getIfPresent( key );
+        if ( cached != null ) {
+            if ( cached.versions.equals( versions ) ) {
+                hitsCounter.incrementAndGet();
+                return Linq4j.asEnumerable( cached.rows );
+            }
+            resultCache.invalidate( key );
+        }
+        missesCounter.incrementAndGet();
+        final Enumerable<Object> enumerable = bindable.bind( dataContext );
+        return new AbstractEnumerable<Object>() {
+            @Override
+            public Enumerator<Object> enumerator() {
+                return new RecordingEnumerator( enumerable.enumerator(), key, versions );
+            }
+        };
+    }
+
+
+    private Map<Long, Long> getVersions( Set<Long> tableIds ) {
+        Map<Long, Long> versions = new HashMap<>();
+        for ( long tableId : tableIds ) {
+            versions.put( tableId, tableVersions.getOrDefault( tableId, 0L ) );
+        }
+        return versions;
+    }
+
+
+    private void put( CacheKey key, Map<Long, Long> versions, List<Object> rows, long size ) {
+        // Do not cache the result if a transaction modifying one of the tables has committed in the meantime
+        if ( getVersions( versions.keySet() ).equals( versions ) ) {
+            memoryUsage.addAndGet( size );
+            resultCache.put( key, new CachedResult( rows, versions, size ) );
+        }
+    }
+
+
+    /**
+     * Registers a table modified by a transaction. Cached results based on this table are discarded once the
+     * transaction has committed.
+     */
+    public void addModifiedTable( PolyXid xid, long tableId ) {
+        openTransactions.computeIfAbsent( xid, k -> ConcurrentHashMap.newKeySet() ).add( tableId );
+    }
+
+
+    public void commit( PolyXid xid ) {
+        Set<Long> modifiedTables = openTransactions.remove( xid );
+        if ( modifiedTables != null ) {
+            for ( long tableId : modifiedTables ) {
+                tableVersions.merge( tableId, 1L, Long::sum );
+            }
+        }
+    }
+
+
+    public void rollback( PolyXid xid ) {
+        openTransactions.remove( xid );
+    }
+
+
+    public void reset() {
+        resultCache.invalidateAll();
+        hitsCounter.set( 0 );
+        missesCounter.set( 0 );
+        bypassCounter.set( 0 );
+    }
+
+
+    long getHits() {
+        return hitsCounter.get();
+    }
+
+
+    long getMisses() {
+        return missesCounter.get();
+    }
+
+
+    long getBypassed() {
+        return bypassCounter.get();
+    }
+
+
+    long getMemoryUsage() {
+        return memoryUsage.get();
+    }
+
+
+    long size() {
+        return resultCache.size();
+    }
+
+
+    /**
+     * Estimates the memory used by a value of a result. Returns -1 if the value can not be cached (e.g. streams of
+     * multimedia objects).
+     */
+    private static long estimateSize( Object value ) {
+        if ( value == null ) {
+            return 8;
+        } else if ( value instanceof String ) {
+            return 40 + 2L * ((String) value).length();
+        } else if ( value instanceof BigDecimal ) {
+            return 64;
+        } else if ( value instanceof Number || value instanceof Boolean || value instanceof Character ) {
+            return 24;
+        } else if ( value instanceof ByteString ) {
+            return 40 + ((ByteString) value).length();
+        } else if ( value instanceof byte[] ) {
+            return 16 + ((byte[]) value).length;
+        } else if ( value instanceof Object[] ) {
+            return estimateSize( Arrays.asList( (Object[]) value ) );
+        } else if ( value instanceof List ) {
+            long size = 24;
+            for ( Object element : (List<?>) value ) {
+                long elementSize = estimateSize( element );
+                if ( elementSize < 0 ) {
+                    return -1;
+                }
+                size += 8 + elementSize;
+            }
+            return size;
+        }
+        return -1;
+    }
+
+
+    /**
+     * Passes the rows of a result through and caches them if the result has been read completely and is small enough.
+     */
+    private class RecordingEnumerator implements Enumerator<Object> {
+
+        private final Enumerator<Object> enumerator;
+        private final CacheKey key;
+        private final Map<Long, Long> versions;
+        private List<Object> rows = new ArrayList<>();
+        private long size = 0;
+
+
+        RecordingEnumerator( Enumerator<Object> enumerator, CacheKey key, Map<Long, Long> versions ) {
+            this.enumerator = enumerator;
+            this.key = key;
+            this.versions = versions;
+        }
+
+
+        @Override
+        public Object current() {
+            return enumerator.current();
+        }
+
+
+        @Override
+        public boolean moveNext() {
+            boolean hasNext = enumerator.moveNext();
+            if ( rows != null ) {
+                if ( hasNext ) {
+                    Object row = enumerator.current();
+                    long rowSize = estimateSize( row );
+                    size += rowSize;
+                    if ( rowSize < 0 || size > maximumEntrySize ) {
+                        rows = null;
+                    } else {
+                        rows.add( row );
+                    }
+                } else {
+                    put( key, versions, rows, size );
+                    rows = null;
+                }
+            }
+            return hasNext;
+        }
+
+
+        @Override
+        public void reset() {
+            enumerator.reset();
+            rows = new ArrayList<>();
+            size = 0;
+        }
+
+
+        @Override
+        public void close() {
+            enumerator.close();
+        }
+
+    }
+
+
+    private static class CacheKey {
+
+        private final String digest;
+        private final List<Map<Long, Object>> parameterValues;
+
+
+        CacheKey( String digest, List<Map<Long, Object>> parameterValues, Set<Long> parameterIndexes ) {
+            this.digest = digest;
+            // The data context reuses its parameter values
+            this.parameterValues = new ArrayList<>( parameterValues.size() );
+            for ( Map<Long, Object> values : parameterValues ) {
+                Map<Long, Object> copy = new HashMap<>();
+                for ( Map.Entry<Long, Object> entry : values.entrySet() ) {
+                    if ( parameterIndexes.contains( entry.getKey() ) ) {
+                        copy.put( entry.getKey(), entry.getValue() );
+                    }
+                }
+                this.parameterValues.add( copy );
+            }
+        }
+
+
+        @Override
+        public boolean equals( Object o ) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( o == null || getClass() != o.getClass() ) {
+                return false;
+            }
+            CacheKey cacheKey = (CacheKey) o;
+            return digest.equals( cacheKey.digest ) && parameterValues.equals( cacheKey.parameterValues );
+        }
+
+
+        @Override
+        public int hashCode() {
+            return Objects.hash( digest, parameterValues );
+        }
+
+    }
+
+
+    private static class CachedResult {
+
+        private final List<Object> rows;
+        private final Map<Long, Long> versions;
+        private final long size;
+
+
+        CachedResult( List<Object> rows, Map<Long, Long> versions, long size ) {
+            this.rows = rows;
+            this.versions = versions;
+            this.size = size;
+        }
+
+    }
+
+
+    private void registerMonitoringPage() {
+        InformationManager im = InformationManager.getInstance();
+
+        InformationPage page = new InformationPage( "Query Result Cache" );
+        im.addPage( page );
+
+        // General
+        InformationGroup generalGroup = new InformationGroup( page, "General" ).setOrder( 1 );
+        im.addGroup( generalGroup );
+
+        InformationKeyValue generalKv = new InformationKeyValue( generalGroup );
+        im.registerInformation( generalKv );
+        generalGroup.setRefreshFunction( () -> {
+            generalKv.putPair( "Status", RuntimeConfig.QUERY_RESULT_CACHING.getBoolean() ? "Active" : "Disabled" );
+            generalKv.putPair( "Cached Results", resultCache.size() + "" );
+            generalKv.putPair( "Memory Usage (Bytes)", memoryUsage.get() + "" );
+            generalKv.putPair( "Memory Budget (Bytes)", RuntimeConfig.QUERY_RESULT_CACHING_SIZE.getInteger() + "" );
+            generalKv.putPair( "Bypassed (Uncommitted Changes)", bypassCounter.get() + "" );
+        } );
+
+        // Hit ratio
+        InformationGroup hitRatioGroup = new InformationGroup( page, "Hit Ratio" ).setOrder( 2 );
+        im.addGroup( hitRatioGroup );
+
+        InformationGraph hitInfoGraph = new InformationGraph(
+                hitRatioGroup,
+                GraphType.DOUGHNUT,
+                new String[]{ "Hits", "Misses" }
+        );
+        hitInfoGraph.setOrder( 1 );
+        im.registerInformation( hitInfoGraph );
+
+        InformationTable hitInfoTable = new InformationTable(
+                hitRatioGroup,
+                Arrays.asList( "Attribute", "Percent", "Absolute" )
+        );
+        hitInfoTable.setOrder( 2 );
+        im.registerInformation( hitInfoTable );
+
+        hitRatioGroup.setRefreshFunction( () -> {
+            long hits = hitsCounter.longValue();
+            long misses = missesCounter.longValue();
+            long total = hits + misses;
+            double hitPercent = (double) hits / total;
+            double missesPercent = 1.0 - hitPercent;
+
+            hitInfoGraph.updateGraph(
+                    new String[]{ "Misses", "Hits" },
+                    new GraphData<>( "heap-data", new Long[]{ misses, hits } )
+            );
+
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+            symbols.setDecimalSeparator( '.' );
+            DecimalFormat df = new DecimalFormat( "0.0", symbols );
+            hitInfoTable.reset();
+            hitInfoTable.addRow( "Hits", df.format( total == 0 ? 0 : (hitPercent * 100) ) + " %", hits );
+            hitInfoTable.addRow( "Misses", df.format( total == 0 ? 0 : (missesPercent * 100) ) + " %", misses );
+        } );
+
+        // Invalidate cache
+        InformationGroup invalidateGroup = new InformationGroup( page, "Invalidate" ).setOrder( 3 );
+        im.addGroup( invalidateGroup );
+
+        InformationText invalidateText = new InformationText( invalidateGroup, "Invalidate the query result cache including the hit and miss counters." );
+        invalidateText.setOrder( 1 );
+        im.registerInformation( invalidateText );
+
+        InformationAction invalidateAction = new InformationAction( invalidateGroup, "Invalidate", parameters -> {
+            reset();
+            generalGroup.refresh();
+            hitRatioGroup.refresh();
+            return "Successfully invalidated the query result cache!";
+        } );
+        invalidateAction.setOrder( 2 );
+        im.registerInformation( invalidateAction );
+    }
+
+}
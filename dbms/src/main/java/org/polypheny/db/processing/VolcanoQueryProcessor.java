@@ -24,6 +24,7 @@
 import org.polypheny.db.adapter.enumerable.EnumerableBindable.EnumerableToBindableConverterRule;
 import org.polypheny.db.adapter.enumerable.EnumerableInterpreterRule;
 import org.polypheny.db.adapter.enumerable.EnumerableRules;
+import org.polypheny.db.adapter.enumerable.batch.BatchRules;
 import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.interpreter.Bindables;
 import org.polypheny.db.jdbc.PolyphenyDbPrepare.SparkHandler;
@@ -77,11 +78,13 @@ public class VolcanoQueryProcessor extends AbstractQueryProcessor {
                     EnumerableRules.ENUMERABLE_CONDITIONAL_EXECUTE_RULE,
                     EnumerableRules.ENUMERABLE_CONDITIONAL_EXECUTE_TRUE_RULE,
                     EnumerableRules.ENUMERABLE_CONDITIONAL_EXECUTE_FALSE_RULE,
+                    EnumerableRules.ENUMERABLE_REDUCTION_JOIN_RULE,
                     EnumerableRules.ENUMERABLE_PROJECT_RULE,
                     EnumerableRules.ENUMERABLE_FILTER_RULE,
                     EnumerableRules.ENUMERABLE_AGGREGATE_RULE,
                     EnumerableRules.ENUMERABLE_SORT_RULE,
                     EnumerableRules.ENUMERABLE_LIMIT_RULE,
+                    EnumerableRules.ENUMERABLE_TOP_N_RULE,
                     EnumerableRules.ENUMERABLE_COLLECT_RULE,
                     EnumerableRules.ENUMERABLE_UNCOLLECT_RULE,
                     EnumerableRules.ENUMERABLE_UNION_RULE,
@@ -155,6 +158,11 @@ public VolcanoQueryProcessor( Statement statement ) {
                 planner.addRule( rule );
             }
             planner.addRule( EnumerableInterpreterRule.INSTANCE );
+            if ( RuntimeConfig.BATCH_EXECUTION.getBoolean() ) {
+                for ( RelOptRule rule : BatchRules.RULES ) {
+                    planner.addRule( rule );
+                }
+            }
         }
 
         if ( ENABLE_BINDABLE && ENABLE_ENUMERABLE ) {
@@ -49,6 +49,7 @@
 import org.polypheny.db.plan.RelOptTable;
 import org.polypheny.db.prepare.Prepare.CatalogReader;
 import org.polypheny.db.prepare.RelOptTableImpl;
+import org.polypheny.db.processing.PlacementMigrationManager;
 import org.polypheny.db.rel.RelNode;
 import org.polypheny.db.rel.RelRoot;
 import org.polypheny.db.rel.RelShuttleImpl;
@@ -270,7 +271,7 @@ public RelNode visit( LogicalFilter filter ) {
 
                 } else {
                     log.debug( "{} is NOT partitioned - Routing will be easy", catalogTable.name );
-                    placements = selectPlacement( node, catalogTable );
+                    placements = PlacementMigrationManager.getInstance().withoutPendingPlacements( selectPlacement( node, catalogTable ) );
                 }
 
                 return builder.push( buildJoinedTableScan( statement, cluster, placements ) );
@@ -343,6 +344,8 @@ protected RelNode routeDml( RelNode node, Statement statement ) {
                         throw new RuntimeException( "The table '" + catalogTable.name + "' is provided by a data source which does not support data modification." );
                     } else if ( catalogTable.tableType == TableType.VIEW ) {
                         throw new RuntimeException( "Polypheny-DB does not support modifying views." );
+                    } else if ( catalogTable.tableType == TableType.MATERIALIZED_VIEW ) {
+                        throw new RuntimeException( "The materialized view '" + catalogTable.name + "' can only be modified by refreshing it." );
                     }
                     throw new RuntimeException( "Unknown table type: " + catalogTable.tableType.name() );
                 }
@@ -365,6 +368,10 @@ protected RelNode routeDml( RelNode node, Statement statement ) {
                 // Execute on all primary key placements
                 List<TableModify> modifies = new ArrayList<>( pkPlacements.size() );
                 for ( CatalogColumnPlacement pkPlacement : pkPlacements ) {
+                    // Placements which are being populated online receive the modified rows from the placement migration
+                    if ( PlacementMigrationManager.getInstance().isPendingDataPlacement( catalogTable.id, pkPlacement.adapterId ) ) {
+                        continue;
+                    }
                     CatalogReader catalogReader = statement.getTransaction().getCatalogReader();
 
                     List<String> qualifiedTableName = ImmutableList.of(
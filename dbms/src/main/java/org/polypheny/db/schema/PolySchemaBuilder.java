@@ -19,6 +19,8 @@
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -38,7 +40,9 @@
 import org.polypheny.db.catalog.entity.CatalogDatabase;
 import org.polypheny.db.catalog.entity.CatalogSchema;
 import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.catalog.exceptions.UnknownTableIdRuntimeException;
 import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.rel.metadata.TableMetadataCache;
 import org.polypheny.db.rel.type.RelDataTypeFactory;
 import org.polypheny.db.rel.type.RelDataTypeImpl;
 import org.polypheny.db.rel.type.RelDataTypeSystem;
@@ -47,11 +51,22 @@
 import org.polypheny.db.util.BuiltInMethod;
 
 
+/**
+ * Builds the root schema from the catalog. The logical tables of every schema and the physical tables of every
+ * adapter are kept between rebuilds; a change of the catalog only rebuilds the parts named in the change event.
+ * Every rebuild creates a new root schema which is published atomically, hence a root schema obtained from
+ * {@link #getCurrent()} is never modified.
+ */
 public class PolySchemaBuilder implements PropertyChangeListener {
 
     private final static PolySchemaBuilder INSTANCE = new PolySchemaBuilder();
 
-    private AbstractPolyphenyDbSchema current;
+    private volatile AbstractPolyphenyDbSchema current;
+
+    // Logical tables per schema id
+    private final Map<Long, Map<String, LogicalTable>> logicalTables = new HashMap<>();
+    // Physical schemas per schema id and adapter id
+    private final Map<Long, Map<Integer, List<PhysicalSchema>>> physicalSchemas = new HashMap<>();
 
 
     private PolySchemaBuilder() {
@@ -66,12 +81,24 @@ public static PolySchemaBuilder getInstance() {
 
     public AbstractPolyphenyDbSchema getCurrent() {
         if ( !RuntimeConfig.SCHEMA_CACHING.getBoolean() ) {
-            return buildSchema();
+            return rebuild();
         }
-        if ( current == null ) {
-            current = buildSchema();
+        AbstractPolyphenyDbSchema schema = current;
+        if ( schema == null ) {
+            synchronized ( this ) {
+                if ( current == null ) {
+                    current = buildSchema();
+                }
+                schema = current;
+            }
         }
-        return current;
+        return schema;
+    }
+
+
+    private synchronized AbstractPolyphenyDbSchema rebuild() {
+        invalidateAll();
+        return buildSchema();
     }
 
 
@@ -84,46 +111,11 @@ private synchronized AbstractPolyphenyDbSchema buildSchema() {
         //
         // Build logical schema
         CatalogDatabase catalogDatabase = catalog.getDatabase( 1 );
-        for ( CatalogSchema catalogSchema : catalog.getSchemas( catalogDatabase.id, null ) ) {
-            Map<String, LogicalTable> tableMap = new HashMap<>();
+        List<CatalogSchema> catalogSchemas = catalog.getSchemas( catalogDatabase.id, null );
+        for ( CatalogSchema catalogSchema : catalogSchemas ) {
+            Map<String, LogicalTable> tableMap = logicalTables.computeIfAbsent( catalogSchema.id, id -> buildLogicalTables( catalog, catalogSchema ) );
             SchemaPlus s = new SimplePolyphenyDbSchema( polyphenyDbSchema, new AbstractSchema(), catalogSchema.name ).plus();
-            for ( CatalogTable catalogTable : catalog.getTables( catalogSchema.id, null ) ) {
-                List<String> columnNames = new LinkedList<>();
-
-                final RelDataTypeFactory typeFactory = new PolyTypeFactoryImpl( RelDataTypeSystem.DEFAULT );
-                final RelDataTypeFactory.Builder fieldInfo = typeFactory.builder();
-
-                for ( CatalogColumn catalogColumn : catalog.getColumns( catalogTable.id ) ) {
-                    columnNames.add( catalogColumn.name );
-                    fieldInfo.add( catalogColumn.name, null, catalogColumn.getRelDataType( typeFactory ) );
-                    fieldInfo.nullable( catalogColumn.nullable );
-                }
-                List<Long> columnIds = new LinkedList<>();
-                catalog.getColumns( catalogTable.id ).forEach( c -> columnIds.add( c.id ) );
-                if ( catalogTable.tableType == TableType.VIEW ) {
-                    LogicalView view = new LogicalView(
-                            catalogTable.id,
-                            catalogTable.getSchemaName(),
-                            catalogTable.name,
-                            columnIds,
-                            columnNames,
-                            RelDataTypeImpl.proto( fieldInfo.build() ) );
-                    s.add( catalogTable.name, view );
-                    tableMap.put( catalogTable.name, view );
-                } else if ( catalogTable.tableType == TableType.TABLE || catalogTable.tableType == TableType.SOURCE ) {
-                    LogicalTable table = new LogicalTable(
-                            catalogTable.id,
-                            catalogTable.getSchemaName(),
-                            catalogTable.name,
-                            columnIds,
-                            columnNames,
-                            RelDataTypeImpl.proto( fieldInfo.build() ) );
-                    s.add( catalogTable.name, table );
-                    tableMap.put( catalogTable.name, table );
-                } else {
-                    throw new RuntimeException( "Unhandled table type: " + catalogTable.tableType.name() );
-                }
-            }
+            tableMap.forEach( s::add );
 
             rootSchema.add( catalogSchema.name, s );
             tableMap.forEach( rootSchema.getSubSchema( catalogSchema.name )::add );
@@ -136,33 +128,16 @@ private synchronized AbstractPolyphenyDbSchema buildSchema() {
         //
         // Build adapter schema (physical schema)
         List<CatalogAdapter> adapters = Catalog.getInstance().getAdapters();
-        for ( CatalogSchema catalogSchema : catalog.getSchemas( catalogDatabase.id, null ) ) {
+        for ( CatalogSchema catalogSchema : catalogSchemas ) {
+            Map<Integer, List<PhysicalSchema>> schemasPerAdapter = physicalSchemas.computeIfAbsent( catalogSchema.id, id -> new HashMap<>() );
             for ( CatalogAdapter catalogAdapter : adapters ) {
-                // Get list of tables on this adapter
-                Map<String, Set<Long>> tableIdsPerSchema = new HashMap<>();
-                for ( CatalogColumnPlacement placement : Catalog.getInstance().getColumnPlacementsOnAdapterAndSchema( catalogAdapter.id, catalogSchema.id ) ) {
-                    tableIdsPerSchema.putIfAbsent( placement.physicalSchemaName, new HashSet<>() );
-                    tableIdsPerSchema.get( placement.physicalSchemaName ).add( placement.tableId );
-                }
-
-                for ( String physicalSchemaName : tableIdsPerSchema.keySet() ) {
-                    Set<Long> tableIds = tableIdsPerSchema.get( physicalSchemaName );
-                    Map<String, Table> physicalTables = new HashMap<>();
-                    Adapter adapter = AdapterManager.getInstance().getAdapter( catalogAdapter.id );
-                    final String schemaName = buildAdapterSchemaName( catalogAdapter.uniqueName, catalogSchema.name, physicalSchemaName );
-                    adapter.createNewSchema( rootSchema, schemaName );
-                    SchemaPlus s = new SimplePolyphenyDbSchema( polyphenyDbSchema, adapter.getCurrentSchema(), schemaName ).plus();
-                    for ( long tableId : tableIds ) {
-                        CatalogTable catalogTable = catalog.getTable( tableId );
-                        Table table = adapter.createTableSchema(
-                                catalogTable,
-                                Catalog.getInstance().getColumnPlacementsOnAdapterSortedByPhysicalPosition( adapter.getAdapterId(), catalogTable.id ) );
-                        physicalTables.put( catalog.getTable( tableId ).name, table );
-                        s.add( catalog.getTable( tableId ).name, table );
-                    }
-                    rootSchema.add( schemaName, s );
-                    physicalTables.forEach( rootSchema.getSubSchema( schemaName )::add );
-                    rootSchema.getSubSchema( schemaName ).polyphenyDbSchema().setSchema( adapter.getCurrentSchema() );
+                List<PhysicalSchema> adapterSchemas = schemasPerAdapter.computeIfAbsent( catalogAdapter.id, id -> buildPhysicalSchemas( rootSchema, catalog, catalogSchema, catalogAdapter ) );
+                for ( PhysicalSchema physicalSchema : adapterSchemas ) {
+                    SchemaPlus s = new SimplePolyphenyDbSchema( polyphenyDbSchema, physicalSchema.schema, physicalSchema.name ).plus();
+                    physicalSchema.tables.forEach( s::add );
+                    rootSchema.add( physicalSchema.name, s );
+                    physicalSchema.tables.forEach( rootSchema.getSubSchema( physicalSchema.name )::add );
+                    rootSchema.getSubSchema( physicalSchema.name ).polyphenyDbSchema().setSchema( physicalSchema.schema );
                 }
             }
         }
@@ -171,6 +146,76 @@ private synchronized AbstractPolyphenyDbSchema buildSchema() {
     }
 
 
+    private Map<String, LogicalTable> buildLogicalTables( Catalog catalog, CatalogSchema catalogSchema ) {
+        Map<String, LogicalTable> tableMap = new HashMap<>();
+        for ( CatalogTable catalogTable : catalog.getTables( catalogSchema.id, null ) ) {
+            List<String> columnNames = new LinkedList<>();
+
+            final RelDataTypeFactory typeFactory = new PolyTypeFactoryImpl( RelDataTypeSystem.DEFAULT );
+            final RelDataTypeFactory.Builder fieldInfo = typeFactory.builder();
+
+            for ( CatalogColumn catalogColumn : catalog.getColumns( catalogTable.id ) ) {
+                columnNames.add( catalogColumn.name );
+                fieldInfo.add( catalogColumn.name, null, catalogColumn.getRelDataType( typeFactory ) );
+                fieldInfo.nullable( catalogColumn.nullable );
+            }
+            List<Long> columnIds = new LinkedList<>();
+            catalog.getColumns( catalogTable.id ).forEach( c -> columnIds.add( c.id ) );
+            if ( catalogTable.tableType == TableType.VIEW ) {
+                LogicalView view = new LogicalView(
+                        catalogTable.id,
+                        catalogTable.getSchemaName(),
+                        catalogTable.name,
+                        columnIds,
+                        columnNames,
+                        RelDataTypeImpl.proto( fieldInfo.build() ) );
+                tableMap.put( catalogTable.name, view );
+            } else if ( catalogTable.tableType == TableType.TABLE || catalogTable.tableType == TableType.SOURCE || catalogTable.tableType == TableType.MATERIALIZED_VIEW ) {
+                LogicalTable table = new LogicalTable(
+                        catalogTable.id,
+                        catalogTable.getSchemaName(),
+                        catalogTable.name,
+                        columnIds,
+                        columnNames,
+                        RelDataTypeImpl.proto( fieldInfo.build() ) );
+                tableMap.put( catalogTable.name, table );
+            } else {
+                throw new RuntimeException( "Unhandled table type: " + catalogTable.tableType.name() );
+            }
+        }
+        return Collections.unmodifiableMap( tableMap );
+    }
+
+
+    private List<PhysicalSchema> buildPhysicalSchemas( SchemaPlus rootSchema, Catalog catalog, CatalogSchema catalogSchema, CatalogAdapter catalogAdapter ) {
+        // Get list of tables on this adapter
+        Map<String, Set<Long>> tableIdsPerSchema = new HashMap<>();
+        for ( CatalogColumnPlacement placement : Catalog.getInstance().getColumnPlacementsOnAdapterAndSchema( catalogAdapter.id, catalogSchema.id ) ) {
+            tableIdsPerSchema.putIfAbsent( placement.physicalSchemaName, new HashSet<>() );
+            tableIdsPerSchema.get( placement.physicalSchemaName ).add( placement.tableId );
+        }
+
+        List<PhysicalSchema> result = new ArrayList<>( tableIdsPerSchema.size() );
+        for ( String physicalSchemaName : tableIdsPerSchema.keySet() ) {
+            Set<Long> tableIds = tableIdsPerSchema.get( physicalSchemaName );
+            Map<String, Table> physicalTables = new HashMap<>();
+            Adapter adapter = AdapterManager.getInstance().getAdapter( catalogAdapter.id );
+            final String schemaName = buildAdapterSchemaName( catalogAdapter.uniqueName, catalogSchema.name, physicalSchemaName );
+            adapter.createNewSchema( rootSchema, schemaName );
+            for ( long tableId : tableIds ) {
+                CatalogTable catalogTable = catalog.getTable( tableId );
+                Table table = adapter.createTableSchema(
+                        catalogTable,
+                        Catalog.getInstance().getColumnPlacementsOnAdapterSortedByPhysicalPosition( adapter.getAdapterId(), catalogTable.id ) );
+                physicalTables.put( catalogTable.name, table );
+                TableMetadataCache.getInstance().registerPhysicalTable( table, catalogTable.id, catalogAdapter.id );
+            }
+            result.add( new PhysicalSchema( schemaName, adapter.getCurrentSchema(), Collections.unmodifiableMap( physicalTables ) ) );
+        }
+        return result;
+    }
+
+
     public static String buildAdapterSchemaName( String storeName, String logicalSchema, String physicalSchema ) {
         return storeName + "_" + logicalSchema + "_" + physicalSchema;
     }
@@ -178,12 +223,100 @@ public static String buildAdapterSchemaName( String storeName, String logicalSch
 
     // Listens on changes to the catalog
     @Override
-    public void propertyChange( PropertyChangeEvent evt ) {
-        // Catalog changed, rebuild schema
+    public synchronized void propertyChange( PropertyChangeEvent evt ) {
+        switch ( evt.getPropertyName() ) {
+            case "user":
+            case "queryInterface":
+            case "key":
+            case "foreignKey":
+            case "constraint":
+            case "index":
+            case "materializedView":
+                // Not part of the schema
+                return;
+            case "pendingPlacement":
+                // The placements being populated are already part of the schema, they are only hidden from the router
+                // until the migration has switched over
+                return;
+            case "table":
+            case "column":
+            case "columnPlacement":
+                if ( !invalidate( evt.getOldValue() ) || !invalidate( evt.getNewValue() ) ) {
+                    invalidateAll();
+                }
+                break;
+            default:
+                // Schemas, adapters, databases and partitions: rebuild everything
+                invalidateAll();
+        }
         current = buildSchema();
     }
 
 
+    /**
+     * Invalidates the parts of the schema affected by a change of the specified catalog entity.
+     *
+     * @return {@code false} if the affected parts could not be determined
+     */
+    private boolean invalidate( Object entity ) {
+        if ( entity == null ) {
+            return true;
+        } else if ( entity instanceof CatalogTable ) {
+            invalidateSchema( ((CatalogTable) entity).schemaId );
+            return true;
+        } else if ( entity instanceof CatalogColumn ) {
+            invalidateSchema( ((CatalogColumn) entity).schemaId );
+            return true;
+        } else if ( entity instanceof CatalogColumnPlacement ) {
+            // The logical tables are not affected by changes of the placements
+            final CatalogColumnPlacement placement = (CatalogColumnPlacement) entity;
+            final long schemaId;
+            try {
+                schemaId = Catalog.getInstance().getTable( placement.tableId ).schemaId;
+            } catch ( UnknownTableIdRuntimeException e ) {
+                return false;
+            }
+            final Map<Integer, List<PhysicalSchema>> schemasPerAdapter = physicalSchemas.get( schemaId );
+            if ( schemasPerAdapter != null ) {
+                schemasPerAdapter.remove( placement.adapterId );
+            }
+            return true;
+        }
+        return false;
+    }
+
+
+    private void invalidateAll() {
+        logicalTables.clear();
+        physicalSchemas.clear();
+    }
+
+
+    private void invalidateSchema( long schemaId ) {
+        logicalTables.remove( schemaId );
+        physicalSchemas.remove( schemaId );
+    }
+
+
+    /**
+     * Schema of an adapter together with the tables of one logical schema placed on it.
+     */
+    private static class PhysicalSchema {
+
+        private final String name;
+        private final Schema schema;
+        private final Map<String, Table> tables;
+
+
+        private PhysicalSchema( String name, Schema schema, Map<String, Table> tables ) {
+            this.name = name;
+            this.schema = schema;
+            this.tables = tables;
+        }
+
+    }
+
+
     /**
      * Schema that has no parents.
      */
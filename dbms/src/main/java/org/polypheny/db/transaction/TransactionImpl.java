@@ -41,6 +41,9 @@
 import org.polypheny.db.prepare.PolyphenyDbCatalogReader;
 import org.polypheny.db.processing.DataMigrator;
 import org.polypheny.db.processing.DataMigratorImpl;
+import org.polypheny.db.processing.MaterializedViewManager;
+import org.polypheny.db.processing.PlacementMigrationManager;
+import org.polypheny.db.processing.QueryResultCache;
 import org.polypheny.db.processing.SqlProcessor;
 import org.polypheny.db.processing.SqlProcessorImpl;
 import org.polypheny.db.schema.PolySchemaBuilder;
@@ -156,6 +159,9 @@ public void commit() throws TransactionException {
             }
 
             IndexManager.getInstance().commit( this.xid );
+            PlacementMigrationManager.getInstance().commit( this.xid );
+            MaterializedViewManager.getInstance().commit( this.xid );
+            QueryResultCache.INSTANCE.commit( this.xid );
         } else {
             log.error( "Unable to prepare all involved entities for commit. Rollback changes!" );
             rollback();
@@ -183,6 +189,9 @@ public void rollback() throws TransactionException {
                 adapter.rollback( xid );
             }
             IndexManager.getInstance().rollback( this.xid );
+            PlacementMigrationManager.getInstance().rollback( this.xid );
+            MaterializedViewManager.getInstance().rollback( this.xid );
+            QueryResultCache.INSTANCE.rollback( this.xid );
             Catalog.getInstance().rollback();
             // Free resources hold by statements
             statements.forEach( Statement::close );
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.constraints;
+
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.util.Benchmark;
+
+
+/**
+ * Measures batched inserts into a table with a primary key and a foreign key with constraint enforcement disabled,
+ * with the join-based enforcement and with the set-based enforcement. Only runs if debug logging is enabled.
+ */
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Slf4j
+public class InsertConstraintBenchmarkTest {
+
+    private static final int PARENT_ROWS = 10000;
+    private static final int BATCH_SIZE = 1000;
+    private static final int BATCHES = 10;
+    private static final int REPEAT = 5;
+
+
+    @Test
+    public void ingestBenchmark() throws SQLException {
+        if ( !Benchmark.enabled() ) {
+            return;
+        }
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE bench_parent (pid INTEGER NOT NULL, PRIMARY KEY (pid))" );
+                statement.executeUpdate( "CREATE TABLE bench_child (cid INTEGER NOT NULL, pid INTEGER NOT NULL, PRIMARY KEY (cid))" );
+                statement.executeUpdate( "ALTER TABLE bench_child ADD CONSTRAINT fk_bench FOREIGN KEY (pid) REFERENCES bench_parent(pid) ON UPDATE RESTRICT ON DELETE RESTRICT" );
+                try {
+                    try ( PreparedStatement preparedStatement = connection.prepareStatement( "INSERT INTO bench_parent VALUES (?)" ) ) {
+                        for ( int i = 0; i < PARENT_ROWS; i++ ) {
+                            preparedStatement.setInt( 1, i );
+                            preparedStatement.addBatch();
+                        }
+                        preparedStatement.executeBatch();
+                    }
+
+                    runIngest( connection, statement, "Constraint enforcement disabled", false, false );
+                    runIngest( connection, statement, "Join-based constraint enforcement", true, false );
+                    runIngest( connection, statement, "Set-based constraint enforcement", true, true );
+                } finally {
+                    setEnforcement( statement, false, true );
+                    statement.executeUpdate( "DROP TABLE bench_child" );
+                    statement.executeUpdate( "DROP TABLE bench_parent" );
+                }
+            }
+        }
+    }
+
+
+    private void runIngest( Connection connection, Statement statement, String description, boolean enforce, boolean setBased ) throws SQLException {
+        setEnforcement( statement, enforce, setBased );
+        new Benchmark( description + ", " + BATCHES + " batches of " + BATCH_SIZE + " rows", statistician -> {
+            try ( PreparedStatement preparedStatement = connection.prepareStatement( "INSERT INTO bench_child VALUES (?, ?)" ) ) {
+                final long start = System.nanoTime();
+                for ( int batch = 0; batch < BATCHES; batch++ ) {
+                    for ( int i = 0; i < BATCH_SIZE; i++ ) {
+                        final int cid = batch * BATCH_SIZE + i;
+                        preparedStatement.setInt( 1, cid );
+                        preparedStatement.setInt( 2, cid % PARENT_ROWS );
+                        preparedStatement.addBatch();
+                    }
+                    preparedStatement.executeBatch();
+                }
+                statistician.record( start );
+                statement.executeUpdate( "DELETE FROM bench_child" );
+            } catch ( SQLException e ) {
+                throw new RuntimeException( e );
+            }
+            return null;
+        }, REPEAT ).run();
+    }
+
+
+    private void setEnforcement( Statement statement, boolean enforce, boolean setBased ) throws SQLException {
+        statement.executeUpdate( "ALTER CONFIG 'runtime/uniqueConstraintEnforcement' SET " + enforce );
+        statement.executeUpdate( "ALTER CONFIG 'runtime/foreignKeyEnforcement' SET " + enforce );
+        statement.executeUpdate( "ALTER CONFIG 'runtime/setBasedConstraintEnforcement' SET " + setBased );
+    }
+
+}
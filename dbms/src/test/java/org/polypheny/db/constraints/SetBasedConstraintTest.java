@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.constraints;
+
+
+import com.google.common.collect.ImmutableList;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.avatica.AvaticaSqlException;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.config.RuntimeConfig;
+
+
+/**
+ * Tests the set-based enforcement of unique and foreign key constraints for batches of prepared inserts with
+ * temporal keys.
+ */
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Slf4j
+public class SetBasedConstraintTest {
+
+    private static final String CREATE_TABLE_PARENT =
+            "CREATE TABLE IF NOT EXISTS constraint_date (" +
+                    "d DATE NOT NULL, " +
+                    "v INTEGER NOT NULL, " +
+                    "PRIMARY KEY (d)" +
+                    ")";
+
+    private static final String CREATE_TABLE_CHILD =
+            "CREATE TABLE IF NOT EXISTS constraint_date2 (" +
+                    "id INTEGER NOT NULL, " +
+                    "d DATE NOT NULL, " +
+                    "PRIMARY KEY (id)" +
+                    ")";
+
+    private static final String ALTER_TABLE_ADD_FK =
+            "ALTER TABLE constraint_date2 "
+                    + "ADD CONSTRAINT fk_date FOREIGN KEY (d) "
+                    + "REFERENCES constraint_date(d) ON UPDATE RESTRICT ON DELETE RESTRICT";
+
+
+    @BeforeClass
+    public static void start() throws SQLException {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "ALTER CONFIG 'runtime/uniqueConstraintEnforcement' SET true" );
+                statement.executeUpdate( "ALTER CONFIG 'runtime/foreignKeyEnforcement' SET true" );
+                statement.executeUpdate( "ALTER CONFIG 'runtime/setBasedConstraintEnforcement' SET true" );
+            }
+        }
+    }
+
+
+    @AfterClass
+    public static void shutdown() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "ALTER CONFIG 'runtime/uniqueConstraintEnforcement' SET false" );
+                statement.executeUpdate( "ALTER CONFIG 'runtime/foreignKeyEnforcement' SET false" );
+            }
+        }
+    }
+
+
+    @Test
+    public void batchInsertDateKeyTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( CREATE_TABLE_PARENT );
+                statement.executeUpdate( CREATE_TABLE_CHILD );
+                statement.executeUpdate( ALTER_TABLE_ADD_FK );
+                try {
+                    PreparedStatement parent = connection.prepareStatement( "INSERT INTO constraint_date VALUES (?,?)" );
+                    PreparedStatement child = connection.prepareStatement( "INSERT INTO constraint_date2 VALUES (?,?)" );
+
+                    // This should work, the same prepared statement is executed with different keys
+                    for ( int i = 1; i <= 3; i++ ) {
+                        parent.setDate( 1, Date.valueOf( "2021-01-0" + i ) );
+                        parent.setInt( 2, i );
+                        parent.addBatch();
+                    }
+                    parent.executeBatch();
+                    parent.setDate( 1, Date.valueOf( "2021-01-04" ) );
+                    parent.setInt( 2, 4 );
+                    parent.addBatch();
+                    parent.setDate( 1, Date.valueOf( "2021-01-05" ) );
+                    parent.setInt( 2, 5 );
+                    parent.addBatch();
+                    parent.executeBatch();
+
+                    // This should not work, the key already exists
+                    parent.setDate( 1, Date.valueOf( "2021-01-06" ) );
+                    parent.setInt( 2, 6 );
+                    parent.addBatch();
+                    parent.setDate( 1, Date.valueOf( "2021-01-02" ) );
+                    parent.setInt( 2, 7 );
+                    parent.addBatch();
+                    try {
+                        parent.executeBatch();
+                        Assert.fail( "Expected ConstraintViolationException was not thrown" );
+                    } catch ( AvaticaSqlException e ) {
+                        if ( !e.getErrorMessage().contains( "Remote driver error: Insert violates unique constraint" ) ) {
+                            throw new RuntimeException( "Unexpected exception", e );
+                        }
+                    }
+
+                    // This should work, all referenced keys exist
+                    for ( int i = 1; i <= 5; i++ ) {
+                        child.setInt( 1, i );
+                        child.setDate( 2, Date.valueOf( "2021-01-0" + (i % 3 + 1) ) );
+                        child.addBatch();
+                    }
+                    child.executeBatch();
+
+                    // This should not work, the referenced key does not exist
+                    child.setInt( 1, 6 );
+                    child.setDate( 2, Date.valueOf( "2021-01-05" ) );
+                    child.addBatch();
+                    child.setInt( 1, 7 );
+                    child.setDate( 2, Date.valueOf( "2021-01-09" ) );
+                    child.addBatch();
+                    try {
+                        child.executeBatch();
+                        Assert.fail( "Expected ConstraintViolationException was not thrown" );
+                    } catch ( AvaticaSqlException e ) {
+                        if ( !e.getErrorMessage().contains( "Remote driver error: Insert violates foreign key constraint" ) ) {
+                            throw new RuntimeException( "Unexpected exception", e );
+                        }
+                    }
+
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT COUNT(*) FROM constraint_date" ),
+                            ImmutableList.of( new Object[]{ 5L } )
+                    );
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT COUNT(*) FROM constraint_date2" ),
+                            ImmutableList.of( new Object[]{ 5L } )
+                    );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE constraint_date2" );
+                    statement.executeUpdate( "DROP TABLE constraint_date" );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void chunkedLookupTest() throws SQLException {
+        int batchSize = RuntimeConfig.CONSTRAINT_ENFORCEMENT_BATCH_SIZE.getInteger();
+        // The keys of the following inserts are probed in several chunks
+        RuntimeConfig.CONSTRAINT_ENFORCEMENT_BATCH_SIZE.setInteger( 2 );
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE constraint_chunk (id INTEGER NOT NULL, PRIMARY KEY (id))" );
+                statement.executeUpdate( "CREATE TABLE constraint_chunk2 (id INTEGER NOT NULL, ref INTEGER NOT NULL, PRIMARY KEY (id))" );
+                statement.executeUpdate( "ALTER TABLE constraint_chunk2 ADD CONSTRAINT fk_chunk FOREIGN KEY (ref) "
+                        + "REFERENCES constraint_chunk(id) ON UPDATE RESTRICT ON DELETE RESTRICT" );
+                try {
+                    statement.executeUpdate( "INSERT INTO constraint_chunk VALUES (1), (2), (3), (4), (5)" );
+
+                    // This should not work, the existing key is only contained in the last chunk
+                    try {
+                        statement.executeUpdate( "INSERT INTO constraint_chunk VALUES (6), (7), (8), (9), (3)" );
+                        Assert.fail( "Expected ConstraintViolationException was not thrown" );
+                    } catch ( AvaticaSqlException e ) {
+                        if ( !e.getErrorMessage().contains( "Remote driver error: Insert violates unique constraint" ) ) {
+                            throw new RuntimeException( "Unexpected exception", e );
+                        }
+                    }
+
+                    // This should work, all referenced keys exist
+                    statement.executeUpdate( "INSERT INTO constraint_chunk2 VALUES (1, 1), (2, 2), (3, 3), (4, 4), (5, 5)" );
+
+                    // This should not work, the missing key is only contained in the last chunk
+                    try {
+                        statement.executeUpdate( "INSERT INTO constraint_chunk2 VALUES (6, 1), (7, 2), (8, 3), (9, 4), (10, 10)" );
+                        Assert.fail( "Expected ConstraintViolationException was not thrown" );
+                    } catch ( AvaticaSqlException e ) {
+                        if ( !e.getErrorMessage().contains( "Remote driver error: Insert violates foreign key constraint" ) ) {
+                            throw new RuntimeException( "Unexpected exception", e );
+                        }
+                    }
+
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT COUNT(*) FROM constraint_chunk" ),
+                            ImmutableList.of( new Object[]{ 5L } )
+                    );
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT COUNT(*) FROM constraint_chunk2" ),
+                            ImmutableList.of( new Object[]{ 5L } )
+                    );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE constraint_chunk2" );
+                    statement.executeUpdate( "DROP TABLE constraint_chunk" );
+                }
+            }
+        } finally {
+            RuntimeConfig.CONSTRAINT_ENFORCEMENT_BATCH_SIZE.setInteger( batchSize );
+        }
+    }
+
+}
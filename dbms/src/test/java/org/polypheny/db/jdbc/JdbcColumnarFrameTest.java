@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.jdbc;
+
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import org.apache.calcite.avatica.util.ByteString;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.jdbc.ColumnarFrame.Columns;
+
+
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+public class JdbcColumnarFrameTest {
+
+
+    @BeforeClass
+    public static void start() {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+    }
+
+
+    @Test
+    public void singleColumnTest() throws SQLException {
+        try ( Connection connection = openColumnarConnection() ) {
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE columnarframetest( "
+                        + "tprimary INTEGER NOT NULL, "
+                        + "tvarchar VARCHAR(20) NULL, "
+                        + "PRIMARY KEY (tprimary) )" );
+                try {
+                    statement.executeUpdate( "INSERT INTO columnarframetest VALUES (1,'foo'), (2,'bar'), (3,NULL)" );
+
+                    // Results with a single column are produced with the OBJECT cursor style
+                    Columns count = fetchFrame( statement, "SELECT count(*) FROM columnarframetest" );
+                    Assert.assertEquals( 1, count.getRowCount() );
+                    Assert.assertEquals( 1, count.getColumnCount() );
+                    Assert.assertEquals( 3L, ((Number) count.get( 0, 0 )).longValue() );
+
+                    Columns names = fetchFrame( statement, "SELECT tvarchar FROM columnarframetest ORDER BY tprimary" );
+                    Assert.assertEquals( 3, names.getRowCount() );
+                    Assert.assertEquals( "foo", names.get( 0, 0 ) );
+                    Assert.assertEquals( "bar", names.get( 0, 1 ) );
+                    Assert.assertTrue( names.isNull( 0, 2 ) );
+
+                    Columns rows = fetchFrame( statement, "SELECT tprimary, tvarchar FROM columnarframetest ORDER BY tprimary" );
+                    Assert.assertEquals( 3, rows.getRowCount() );
+                    Assert.assertEquals( 2, rows.getColumnCount() );
+                    Assert.assertEquals( 2, rows.get( 0, 1 ) );
+                    Assert.assertEquals( "bar", rows.get( 1, 1 ) );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE columnarframetest" );
+                }
+            }
+        }
+    }
+
+
+    // An encoded frame is received as a single row holding a single binary value
+    private static Columns fetchFrame( Statement statement, String query ) throws SQLException {
+        try ( ResultSet resultSet = statement.executeQuery( query ) ) {
+            Assert.assertTrue( resultSet.next() );
+            Object value = resultSet.getObject( 1 );
+            Assert.assertFalse( resultSet.next() );
+            byte[] encoded = value instanceof ByteString ? ((ByteString) value).getBytes() : (byte[]) value;
+            return ColumnarFrame.decode( encoded );
+        }
+    }
+
+
+    private static Connection openColumnarConnection() throws SQLException {
+        try {
+            Class.forName( "org.polypheny.jdbc.Driver" );
+        } catch ( ClassNotFoundException e ) {
+            throw new RuntimeException( "Polypheny JDBC Driver not found", e );
+        }
+        Properties props = new Properties();
+        props.setProperty( "user", "pa" );
+        props.setProperty( "serialization", "PROTOBUF" );
+        props.setProperty( ColumnarFrame.CONNECTION_PROPERTY, ColumnarFrame.CONNECTION_PROPERTY_VALUE );
+        return DriverManager.getConnection( "jdbc:polypheny:http://localhost:20591", props );
+    }
+
+}
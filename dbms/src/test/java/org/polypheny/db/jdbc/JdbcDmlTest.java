@@ -19,9 +19,11 @@
 
 import com.google.common.collect.ImmutableList;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.polypheny.db.TestHelper;
@@ -127,4 +129,48 @@ public void simpleTransactionTest() throws SQLException {
     }
 
 
+    @Test
+    public void prefetchTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE prefetchtest( "
+                        + "tprimary INTEGER NOT NULL, "
+                        + "tvarchar VARCHAR(20) NULL, "
+                        + "PRIMARY KEY (tprimary) )" );
+
+                try {
+                    final int numRows = 1000;
+                    StringBuilder insert = new StringBuilder( "INSERT INTO prefetchtest VALUES " );
+                    for ( int i = 0; i < numRows; i++ ) {
+                        insert.append( i == 0 ? "" : ", " ).append( "(" ).append( i ).append( ",'row" ).append( i ).append( "')" );
+                    }
+                    statement.executeUpdate( insert.toString() );
+
+                    // Fetch in small frames and execute other queries on the same connection while frames are prefetched
+                    try ( Statement fetchStatement = connection.createStatement() ) {
+                        fetchStatement.setFetchSize( 10 );
+                        ResultSet resultSet = fetchStatement.executeQuery( "SELECT tprimary, tvarchar FROM prefetchtest ORDER BY tprimary" );
+                        int i = 0;
+                        while ( resultSet.next() ) {
+                            Assert.assertEquals( i, resultSet.getInt( 1 ) );
+                            Assert.assertEquals( "row" + i, resultSet.getString( 2 ) );
+                            if ( i % 250 == 0 ) {
+                                TestHelper.checkResultSet(
+                                        statement.executeQuery( "SELECT count(*) FROM prefetchtest" ),
+                                        ImmutableList.of( new Object[]{ (long) numRows } ) );
+                            }
+                            i++;
+                        }
+                        Assert.assertEquals( numRows, i );
+                    }
+                } finally {
+                    // Drop table
+                    statement.executeUpdate( "DROP TABLE prefetchtest" );
+                }
+            }
+        }
+    }
+
+
 }
@@ -411,6 +411,56 @@ public void updateTest() throws SQLException {
     }
 
 
+    @Test
+    public void ddlBetweenExecutionsTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( false ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( SCHEMA_SQL );
+
+                try {
+                    PreparedStatement preparedInsert = connection.prepareStatement( "INSERT INTO pstest(tinteger,tsmallint,tvarchar) VALUES (?,?,?)" );
+                    preparedInsert.setInt( 1, 1 );
+                    preparedInsert.setShort( 2, (short) 5 );
+                    preparedInsert.setString( 3, "Foo" );
+                    preparedInsert.execute();
+                    connection.commit();
+
+                    PreparedStatement preparedSelect = connection.prepareStatement( "SELECT tinteger,tsmallint,tvarchar FROM pstest WHERE tinteger = ?" );
+                    preparedSelect.setInt( 1, 1 );
+                    TestHelper.checkResultSet(
+                            preparedSelect.executeQuery(),
+                            ImmutableList.of( new Object[]{ 1, (short) 5, "Foo" } ) );
+                    connection.commit();
+
+                    // The statement cached by the store must not be reused against the altered table
+                    statement.executeUpdate( "ALTER TABLE pstest MODIFY COLUMN tsmallint SET TYPE INTEGER" );
+                    connection.commit();
+
+                    preparedSelect = connection.prepareStatement( "SELECT tinteger,tsmallint,tvarchar FROM pstest WHERE tinteger = ?" );
+                    preparedSelect.setInt( 1, 1 );
+                    TestHelper.checkResultSet(
+                            preparedSelect.executeQuery(),
+                            ImmutableList.of( new Object[]{ 1, 5, "Foo" } ) );
+
+                    preparedInsert.setInt( 1, 2 );
+                    preparedInsert.setShort( 2, (short) 7 );
+                    preparedInsert.setString( 3, "Bar" );
+                    preparedInsert.execute();
+                    preparedSelect.setInt( 1, 2 );
+                    TestHelper.checkResultSet(
+                            preparedSelect.executeQuery(),
+                            ImmutableList.of( new Object[]{ 2, 7, "Bar" } ) );
+
+                    connection.commit();
+                } finally {
+                    statement.executeUpdate( "DROP TABLE pstest" );
+                }
+            }
+        }
+    }
+
+
     @Test
     public void batchUpdateTest() throws SQLException {
         try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( false ) ) {
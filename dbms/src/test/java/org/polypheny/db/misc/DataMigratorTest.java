@@ -20,10 +20,16 @@
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.polypheny.db.TestHelper;
 import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.processing.PlacementMigrationManager;
 
 @SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
 public class DataMigratorTest {
@@ -75,6 +81,194 @@ public void basicTest() throws SQLException {
     }
 
 
+    @Test
+    public void batchedCopyTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE datamigratortest( "
+                        + "tprimary INTEGER NOT NULL, "
+                        + "tinteger INTEGER NULL, "
+                        + "tvarchar VARCHAR(20) NULL, "
+                        + "PRIMARY KEY (tprimary) )" );
+
+                int batchSize = RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.getInteger();
+                // Copy the rows in several batches, the last one being incomplete
+                RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.setInteger( 3 );
+                try {
+                    ImmutableList.Builder<Object[]> expected = ImmutableList.builder();
+                    for ( int i = 1; i <= 10; i++ ) {
+                        statement.executeUpdate( "INSERT INTO datamigratortest VALUES (" + i + "," + (i * 10) + ",'row" + i + "')" );
+                        expected.add( new Object[]{ i, i * 10, "row" + i } );
+                    }
+
+                    // Add data store
+                    statement.executeUpdate( "ALTER ADAPTERS ADD \"store1\" USING 'org.polypheny.db.adapter.jdbc.stores.HsqldbStore'"
+                            + " WITH '{maxConnections:\"25\",trxControlMode:locks,trxIsolationLevel:read_committed,type:Memory,tableType:Memory,mode:embedded}'" );
+                    // Add placement
+                    statement.executeUpdate( "ALTER TABLE \"datamigratortest\" ADD PLACEMENT ON STORE \"store1\"" );
+
+                    // Remove placement on initial store
+                    statement.executeUpdate( "ALTER TABLE \"datamigratortest\" DROP PLACEMENT ON STORE \"hsqldb\"" );
+
+                    // Checks
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT * FROM datamigratortest ORDER BY tprimary" ),
+                            expected.build() );
+                } finally {
+                    RuntimeConfig.DATA_MIGRATOR_BATCH_SIZE.setInteger( batchSize );
+                    // Drop table and store
+                    statement.executeUpdate( "DROP TABLE datamigratortest" );
+                    statement.executeUpdate( "ALTER ADAPTERS DROP \"store1\"" );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void onlinePlacementTest() throws Exception {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE datamigratortest( "
+                        + "tprimary INTEGER NOT NULL, "
+                        + "tinteger INTEGER NULL, "
+                        + "tvarchar VARCHAR(20) NULL, "
+                        + "PRIMARY KEY (tprimary) )" );
+
+                long tableId = Catalog.getInstance().getTable( "APP", "public", "datamigratortest" ).id;
+                RuntimeConfig.ONLINE_PLACEMENT_MIGRATION.setBoolean( true );
+                // Keep the migration from switching over until the table has been modified
+                CountDownLatch modified = new CountDownLatch( 1 );
+                PlacementMigrationManager.getInstance().setBeforeSwitchOver( () -> awaitUninterruptibly( modified ) );
+                try {
+                    statement.executeUpdate( "INSERT INTO datamigratortest VALUES (1,5,'foo'),(2,6,'bar'),(3,7,'foobar')" );
+
+                    // Add data store
+                    statement.executeUpdate( "ALTER ADAPTERS ADD \"store1\" USING 'org.polypheny.db.adapter.jdbc.stores.HsqldbStore'"
+                            + " WITH '{maxConnections:\"25\",trxControlMode:locks,trxIsolationLevel:read_committed,type:Memory,tableType:Memory,mode:embedded}'" );
+                    // Add placement, the data is copied in the background
+                    statement.executeUpdate( "ALTER TABLE \"datamigratortest\" ADD PLACEMENT ON STORE \"store1\"" );
+
+                    // Modify the table while the placement is populated
+                    statement.executeUpdate( "INSERT INTO datamigratortest VALUES (4,8,'barfoo')" );
+                    statement.executeUpdate( "UPDATE datamigratortest SET tinteger = 10 WHERE tprimary = 1" );
+                    statement.executeUpdate( "DELETE FROM datamigratortest WHERE tprimary = 2" );
+
+                    Assert.assertTrue( PlacementMigrationManager.getInstance().isMigrating( tableId ) );
+
+                    // Wait for the switch-over
+                    modified.countDown();
+                    Assert.assertTrue( PlacementMigrationManager.getInstance().awaitMigration( tableId, 1, TimeUnit.MINUTES ) );
+                    Assert.assertFalse( PlacementMigrationManager.getInstance().isMigrating( tableId ) );
+
+                    // Remove placement on initial store
+                    statement.executeUpdate( "ALTER TABLE \"datamigratortest\" DROP PLACEMENT ON STORE \"hsqldb\"" );
+
+                    // Checks
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT * FROM datamigratortest ORDER BY tprimary" ),
+                            ImmutableList.of(
+                                    new Object[]{ 1, 10, "foo" },
+                                    new Object[]{ 3, 7, "foobar" },
+                                    new Object[]{ 4, 8, "barfoo" } ) );
+                } finally {
+                    modified.countDown();
+                    PlacementMigrationManager.getInstance().setBeforeSwitchOver( null );
+                    PlacementMigrationManager.getInstance().awaitMigration( tableId, 1, TimeUnit.MINUTES );
+                    RuntimeConfig.ONLINE_PLACEMENT_MIGRATION.setBoolean( false );
+                    // Drop table and store
+                    statement.executeUpdate( "DROP TABLE datamigratortest" );
+                    statement.executeUpdate( "ALTER ADAPTERS DROP \"store1\"" );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void ddlDuringOnlinePlacementTest() throws Exception {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE datamigratortest( "
+                        + "tprimary INTEGER NOT NULL, "
+                        + "tinteger INTEGER NULL, "
+                        + "tvarchar VARCHAR(20) NULL, "
+                        + "PRIMARY KEY (tprimary) )" );
+
+                long tableId = Catalog.getInstance().getTable( "APP", "public", "datamigratortest" ).id;
+                RuntimeConfig.ONLINE_PLACEMENT_MIGRATION.setBoolean( true );
+                CountDownLatch checked = new CountDownLatch( 1 );
+                PlacementMigrationManager.getInstance().setBeforeSwitchOver( () -> awaitUninterruptibly( checked ) );
+                try {
+                    statement.executeUpdate( "INSERT INTO datamigratortest VALUES (1,5,'foo'),(2,6,'bar')" );
+
+                    // Add data store
+                    statement.executeUpdate( "ALTER ADAPTERS ADD \"store1\" USING 'org.polypheny.db.adapter.jdbc.stores.HsqldbStore'"
+                            + " WITH '{maxConnections:\"25\",trxControlMode:locks,trxIsolationLevel:read_committed,type:Memory,tableType:Memory,mode:embedded}'" );
+                    // Add placement, the data is copied in the background
+                    statement.executeUpdate( "ALTER TABLE \"datamigratortest\" ADD PLACEMENT ON STORE \"store1\"" );
+                    Assert.assertTrue( PlacementMigrationManager.getInstance().isMigrating( tableId ) );
+
+                    // Placements and the table must not be modified while the placement is populated
+                    assertRejected( statement, "ALTER TABLE \"datamigratortest\" DROP PLACEMENT ON STORE \"hsqldb\"" );
+                    assertRejected( statement, "ALTER TABLE \"datamigratortest\" MODIFY PLACEMENT (tinteger) ON STORE \"hsqldb\"" );
+                    assertRejected( statement, "ALTER TABLE \"datamigratortest\" MODIFY PLACEMENT DROP COLUMN tvarchar ON STORE \"hsqldb\"" );
+                    assertRejected( statement, "ALTER TABLE \"datamigratortest\" DROP COLUMN tvarchar" );
+                    assertRejected( statement, "DROP TABLE datamigratortest" );
+
+                    // Reads are still answered from the initial store
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT * FROM datamigratortest ORDER BY tprimary" ),
+                            ImmutableList.of(
+                                    new Object[]{ 1, 5, "foo" },
+                                    new Object[]{ 2, 6, "bar" } ) );
+
+                    checked.countDown();
+                    Assert.assertTrue( PlacementMigrationManager.getInstance().awaitMigration( tableId, 1, TimeUnit.MINUTES ) );
+
+                    // After the switch-over, the placement on the initial store can be dropped
+                    statement.executeUpdate( "ALTER TABLE \"datamigratortest\" DROP PLACEMENT ON STORE \"hsqldb\"" );
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT * FROM datamigratortest ORDER BY tprimary" ),
+                            ImmutableList.of(
+                                    new Object[]{ 1, 5, "foo" },
+                                    new Object[]{ 2, 6, "bar" } ) );
+                } finally {
+                    checked.countDown();
+                    PlacementMigrationManager.getInstance().setBeforeSwitchOver( null );
+                    PlacementMigrationManager.getInstance().awaitMigration( tableId, 1, TimeUnit.MINUTES );
+                    RuntimeConfig.ONLINE_PLACEMENT_MIGRATION.setBoolean( false );
+                    // Drop table and store
+                    statement.executeUpdate( "DROP TABLE datamigratortest" );
+                    statement.executeUpdate( "ALTER ADAPTERS DROP \"store1\"" );
+                }
+            }
+        }
+    }
+
+
+    private static void assertRejected( Statement statement, String ddl ) {
+        try {
+            statement.executeUpdate( ddl );
+            Assert.fail( "Expected the statement to be rejected: " + ddl );
+        } catch ( SQLException e ) {
+            // Expected
+        }
+    }
+
+
+    private static void awaitUninterruptibly( CountDownLatch latch ) {
+        try {
+            latch.await();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
     @Test
     public void partialPlacementsTest() throws SQLException {
         try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
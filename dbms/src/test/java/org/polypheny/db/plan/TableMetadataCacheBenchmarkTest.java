@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.plan;
+
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.util.Benchmark;
+
+
+/**
+ * Measures the time needed for a suite of ad-hoc queries over a wide schema with and without caching the metadata of
+ * table scans across queries. Plan and implementation caching are disabled and the tables are empty, which
+ * means that the measured time is dominated by planning. Only runs if debug logging is enabled.
+ */
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Slf4j
+public class TableMetadataCacheBenchmarkTest {
+
+    private static final int TABLES = 6;
+    private static final int COLUMNS = 40;
+    private static final int QUERIES = 50;
+    private static final int REPEAT = 5;
+
+
+    @Test
+    public void planningBenchmark() throws SQLException {
+        if ( !Benchmark.enabled() ) {
+            return;
+        }
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                for ( int t = 0; t < TABLES; t++ ) {
+                    StringBuilder sb = new StringBuilder( "CREATE TABLE wide" ).append( t ).append( " (id INTEGER NOT NULL" );
+                    for ( int c = 0; c < COLUMNS; c++ ) {
+                        sb.append( ", c" ).append( c ).append( " INTEGER" );
+                    }
+                    statement.executeUpdate( sb.append( ", PRIMARY KEY (id))" ).toString() );
+                }
+                try {
+                    setCaching( statement, false );
+                    runQueries( statement, "Without table metadata cache" );
+                    statement.executeUpdate( "ALTER CONFIG 'runtime/tableMetadataCaching' SET true" );
+                    runQueries( statement, "With table metadata cache" );
+                } finally {
+                    setCaching( statement, true );
+                    for ( int t = 0; t < TABLES; t++ ) {
+                        statement.executeUpdate( "DROP TABLE wide" + t );
+                    }
+                }
+            }
+        }
+    }
+
+
+    private void runQueries( Statement statement, String description ) {
+        new Benchmark( description + ", " + QUERIES + " queries over " + TABLES + " tables with " + COLUMNS + " columns", statistician -> {
+            try {
+                final long start = System.nanoTime();
+                for ( int q = 0; q < QUERIES; q++ ) {
+                    try ( ResultSet rs = statement.executeQuery( buildQuery( q ) ) ) {
+                        //noinspection StatementWithEmptyBody
+                        while ( rs.next() ) {
+                            // Only the planning is of interest
+                        }
+                    }
+                }
+                statistician.record( start );
+            } catch ( SQLException e ) {
+                throw new RuntimeException( e );
+            }
+            return null;
+        }, REPEAT ).run();
+    }
+
+
+    /**
+     * Joins a varying number of tables on varying columns, filters and groups by varying columns.
+     */
+    private static String buildQuery( int q ) {
+        final int joins = 1 + q % (TABLES - 1);
+        final StringBuilder select = new StringBuilder( "SELECT t0.c" ).append( q % COLUMNS ).append( ", COUNT(*)" );
+        final StringBuilder from = new StringBuilder( " FROM wide0 t0" );
+        for ( int j = 1; j <= joins; j++ ) {
+            from.append( " JOIN wide" ).append( j ).append( " t" ).append( j )
+                    .append( " ON t" ).append( j - 1 ).append( ".c" ).append( (q + j) % COLUMNS )
+                    .append( " = t" ).append( j ).append( ".id" );
+        }
+        final String where = " WHERE t" + joins + ".c" + ((q * 7) % COLUMNS) + " > " + q;
+        final String groupBy = " GROUP BY t0.c" + (q % COLUMNS);
+        return select.append( from ).append( where ).append( groupBy ).toString();
+    }
+
+
+    private void setCaching( Statement statement, boolean enabled ) throws SQLException {
+        statement.executeUpdate( "ALTER CONFIG 'runtime/queryPlanCaching' SET " + enabled );
+        statement.executeUpdate( "ALTER CONFIG 'runtime/implementationCaching' SET " + enabled );
+        statement.executeUpdate( "ALTER CONFIG 'runtime/tableMetadataCaching' SET " + enabled );
+    }
+
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing;
+
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.adapter.DataContext.SlimDataContext;
+import org.polypheny.db.adapter.java.JavaTypeFactory;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.jdbc.ContextImpl;
+import org.polypheny.db.jdbc.JavaTypeFactoryImpl;
+import org.polypheny.db.plan.RelTraitDef;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.core.JoinRelType;
+import org.polypheny.db.rel.core.ReductionJoin;
+import org.polypheny.db.rel.logical.LogicalJoin;
+import org.polypheny.db.schema.PolyphenyDbSchema;
+import org.polypheny.db.schema.SchemaPlus;
+import org.polypheny.db.sql.parser.SqlParser.SqlParserConfig;
+import org.polypheny.db.tools.FrameworkConfig;
+import org.polypheny.db.tools.Frameworks;
+import org.polypheny.db.tools.Programs;
+import org.polypheny.db.tools.RelBuilder;
+import org.polypheny.db.transaction.Transaction;
+import org.polypheny.db.transaction.TransactionException;
+
+
+/**
+ * Tests the rewrite of joins between tables on different stores into reduction joins.
+ *
+ * The table {@code reductiontest_small} is placed on the default store and is filtered in the plans, the table
+ * {@code reductiontest_big} is placed on a second store. Whether the row counts are estimated from the statistics or
+ * from the defaults, the filtered small table is the side with fewer rows.
+ */
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+public class CrossStoreJoinReducerTest {
+
+    private static final String STORE = "reductionstore";
+
+    private static Transaction transaction;
+    private static String smallSchema;
+    private static String bigSchema;
+
+
+    @BeforeClass
+    public static void start() throws SQLException {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "ALTER ADAPTERS ADD \"" + STORE + "\" USING 'org.polypheny.db.adapter.jdbc.stores.HsqldbStore'"
+                        + " WITH '{maxConnections:\"25\",trxControlMode:locks,trxIsolationLevel:read_committed,type:Memory,tableType:Memory,mode:embedded}'" );
+                statement.executeUpdate( "CREATE TABLE reductiontest_small( id INTEGER NOT NULL, val VARCHAR(20), day DATE, PRIMARY KEY (id) ) ON STORE \"hsqldb\"" );
+                statement.executeUpdate( "CREATE TABLE reductiontest_big( id INTEGER NOT NULL, sid INTEGER, name VARCHAR(20), day DATE, PRIMARY KEY (id) ) ON STORE \"" + STORE + "\"" );
+                statement.executeUpdate( "INSERT INTO reductiontest_small VALUES (1, 'a', DATE '2021-01-01'), (2, 'a', DATE '2021-01-02'), (3, 'b', DATE '2021-01-03')" );
+                for ( int i = 0; i < 20; i++ ) {
+                    statement.executeUpdate( "INSERT INTO reductiontest_big VALUES (" + i + ", " + (i % 5) + ", 'name" + i + "', DATE '2021-01-0" + (i % 5 + 1) + "')" );
+                }
+            }
+        }
+        transaction = TestHelper.getInstance().getTransaction();
+        smallSchema = getPhysicalSchemaName( "hsqldb", "reductiontest_small" );
+        bigSchema = getPhysicalSchemaName( STORE, "reductiontest_big" );
+    }
+
+
+    @AfterClass
+    public static void stop() throws SQLException, TransactionException {
+        transaction.commit();
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "DROP TABLE reductiontest_small" );
+                statement.executeUpdate( "DROP TABLE reductiontest_big" );
+                statement.executeUpdate( "ALTER ADAPTERS DROP \"" + STORE + "\"" );
+            }
+        }
+    }
+
+
+    @Test
+    public void reduceRightTest() {
+        RelBuilder builder = createRelBuilder();
+        small( builder );
+        builder.scan( bigSchema, "reductiontest_big" );
+        RelNode reduced = reduce( builder.join( JoinRelType.INNER, builder.equals( builder.field( 2, 0, 0 ), builder.field( 2, 1, 1 ) ) ).build() );
+
+        Assert.assertTrue( reduced instanceof ReductionJoin );
+        ReductionJoin join = (ReductionJoin) reduced;
+        Assert.assertSame( join.getLeft(), join.getBuild() );
+        assertScans( "reductiontest_big", join.getUnreduced() );
+    }
+
+
+    @Test
+    public void reduceLeftTest() {
+        RelBuilder builder = createRelBuilder();
+        builder.scan( bigSchema, "reductiontest_big" );
+        small( builder );
+        RelNode reduced = reduce( builder.join( JoinRelType.INNER, builder.equals( builder.field( 2, 0, 1 ), builder.field( 2, 1, 0 ) ) ).build() );
+
+        Assert.assertTrue( reduced instanceof ReductionJoin );
+        ReductionJoin join = (ReductionJoin) reduced;
+        Assert.assertSame( join.getRight(), join.getBuild() );
+        assertScans( "reductiontest_big", join.getUnreduced() );
+    }
+
+
+    @Test
+    public void outerJoinTest() {
+        // The big side is not preserved by the join, it is reduced
+        RelBuilder builder = createRelBuilder();
+        small( builder );
+        builder.scan( bigSchema, "reductiontest_big" );
+        Assert.assertTrue( reduce( builder.join( JoinRelType.LEFT, builder.equals( builder.field( 2, 0, 0 ), builder.field( 2, 1, 1 ) ) ).build() ) instanceof ReductionJoin );
+
+        // The big side is preserved by the join, all of its rows are needed
+        builder = createRelBuilder();
+        builder.scan( bigSchema, "reductiontest_big" );
+        small( builder );
+        Assert.assertTrue( reduce( builder.join( JoinRelType.LEFT, builder.equals( builder.field( 2, 0, 1 ), builder.field( 2, 1, 0 ) ) ).build() ) instanceof LogicalJoin );
+
+        builder = createRelBuilder();
+        small( builder );
+        builder.scan( bigSchema, "reductiontest_big" );
+        Assert.assertTrue( reduce( builder.join( JoinRelType.RIGHT, builder.equals( builder.field( 2, 0, 0 ), builder.field( 2, 1, 1 ) ) ).build() ) instanceof LogicalJoin );
+    }
+
+
+    @Test
+    public void maxKeysTest() {
+        int maxKeys = RuntimeConfig.JOIN_REDUCTION_MAX_KEYS.getInteger();
+        RuntimeConfig.JOIN_REDUCTION_MAX_KEYS.setInteger( 0 );
+        try {
+            // The smaller side has more rows than keys may be sent to the other store
+            RelBuilder builder = createRelBuilder();
+            small( builder );
+            builder.scan( bigSchema, "reductiontest_big" );
+            Assert.assertTrue( reduce( builder.join( JoinRelType.INNER, builder.equals( builder.field( 2, 0, 0 ), builder.field( 2, 1, 1 ) ) ).build() ) instanceof LogicalJoin );
+        } finally {
+            RuntimeConfig.JOIN_REDUCTION_MAX_KEYS.setInteger( maxKeys );
+        }
+    }
+
+
+    @Test
+    public void unsupportedKeyTest() {
+        // Dates can not be bound to the dynamic parameters of every store
+        RelBuilder builder = createRelBuilder();
+        small( builder );
+        builder.scan( bigSchema, "reductiontest_big" );
+        Assert.assertTrue( reduce( builder.join( JoinRelType.INNER, builder.equals( builder.field( 2, 0, 2 ), builder.field( 2, 1, 3 ) ) ).build() ) instanceof LogicalJoin );
+    }
+
+
+    @Test
+    public void sameResultTest() throws SQLException {
+        final List<String> queries = Arrays.asList(
+                "SELECT s.id, s.val, b.id, b.name FROM reductiontest_small s JOIN reductiontest_big b ON s.id = b.sid WHERE s.val = 'a' ORDER BY b.id",
+                "SELECT s.id, s.val, b.id, b.name FROM reductiontest_big b JOIN reductiontest_small s ON b.sid = s.id WHERE s.val = 'a' ORDER BY b.id",
+                "SELECT s.id, s.val, b.id, b.name FROM reductiontest_small s LEFT JOIN reductiontest_big b ON s.id = b.sid ORDER BY s.id, b.id",
+                "SELECT s.id, s.val, b.id, b.name FROM reductiontest_big b LEFT JOIN reductiontest_small s ON b.sid = s.id AND s.val = 'a' ORDER BY b.id" );
+        final boolean reduction = RuntimeConfig.JOIN_REDUCTION.getBoolean();
+        final int batchSize = RuntimeConfig.JOIN_REDUCTION_BATCH_SIZE.getInteger();
+        final boolean planCaching = RuntimeConfig.QUERY_PLAN_CACHING.getBoolean();
+        final boolean implementationCaching = RuntimeConfig.IMPLEMENTATION_CACHING.getBoolean();
+        final boolean resultCaching = RuntimeConfig.QUERY_RESULT_CACHING.getBoolean();
+        RuntimeConfig.QUERY_PLAN_CACHING.setBoolean( false );
+        RuntimeConfig.IMPLEMENTATION_CACHING.setBoolean( false );
+        RuntimeConfig.QUERY_RESULT_CACHING.setBoolean( false );
+        // Several queries per reduction join
+        RuntimeConfig.JOIN_REDUCTION_BATCH_SIZE.setInteger( 1 );
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                for ( String query : queries ) {
+                    RuntimeConfig.JOIN_REDUCTION.setBoolean( false );
+                    List<List<Object>> expected = getRows( statement, query );
+                    RuntimeConfig.JOIN_REDUCTION.setBoolean( true );
+                    List<List<Object>> actual = getRows( statement, query );
+                    Assert.assertFalse( expected.isEmpty() );
+                    Assert.assertEquals( query, expected, actual );
+                }
+            }
+        } finally {
+            RuntimeConfig.JOIN_REDUCTION.setBoolean( reduction );
+            RuntimeConfig.JOIN_REDUCTION_BATCH_SIZE.setInteger( batchSize );
+            RuntimeConfig.QUERY_PLAN_CACHING.setBoolean( planCaching );
+            RuntimeConfig.IMPLEMENTATION_CACHING.setBoolean( implementationCaching );
+            RuntimeConfig.QUERY_RESULT_CACHING.setBoolean( resultCaching );
+        }
+    }
+
+
+    private static RelNode reduce( RelNode rel ) {
+        return CrossStoreJoinReducer.reduce( rel.getCluster().getPlanner(), rel );
+    }
+
+
+    // Pushes the small table with a filter on its value column
+    private static void small( RelBuilder builder ) {
+        builder.scan( smallSchema, "reductiontest_small" );
+        builder.filter( builder.equals( builder.field( 1 ), builder.literal( "a" ) ) );
+    }
+
+
+    private static void assertScans( String tableName, RelNode rel ) {
+        List<String> qualifiedName = rel.getTable().getQualifiedName();
+        Assert.assertEquals( tableName, qualifiedName.get( qualifiedName.size() - 1 ) );
+    }
+
+
+    private static List<List<Object>> getRows( Statement statement, String query ) throws SQLException {
+        final List<List<Object>> rows = new ArrayList<>();
+        try ( ResultSet resultSet = statement.executeQuery( query ) ) {
+            final int columnCount = resultSet.getMetaData().getColumnCount();
+            while ( resultSet.next() ) {
+                final List<Object> row = new ArrayList<>( columnCount );
+                for ( int i = 1; i <= columnCount; i++ ) {
+                    row.add( resultSet.getObject( i ) );
+                }
+                rows.add( row );
+            }
+        }
+        return rows;
+    }
+
+
+    // Returns the name of the physical schema which contains the table on the adapter
+    private static String getPhysicalSchemaName( String adapterName, String tableName ) {
+        for ( PolyphenyDbSchema schema : transaction.getSchema().getSubSchemaMap().values() ) {
+            if ( schema.getName().startsWith( adapterName + "_public_" ) && schema.getTable( tableName, false ) != null ) {
+                return schema.getName();
+            }
+        }
+        throw new AssertionError( "No physical table " + tableName + " on " + adapterName );
+    }
+
+
+    private static RelBuilder createRelBuilder() {
+        final SchemaPlus rootSchema = transaction.getSchema().plus();
+        FrameworkConfig config = Frameworks.newConfigBuilder()
+                .parserConfig( SqlParserConfig.DEFAULT )
+                .defaultSchema( rootSchema.getSubSchema( transaction.getDefaultSchema().name ) )
+                .traitDefs( (List<RelTraitDef>) null )
+                .programs( Programs.heuristicJoinOrder( Programs.RULE_SET, true, 2 ) )
+                .prepareContext( new ContextImpl(
+                        PolyphenyDbSchema.from( rootSchema ),
+                        new SlimDataContext() {
+                            @Override
+                            public JavaTypeFactory getTypeFactory() {
+                                return new JavaTypeFactoryImpl();
+                            }
+                        },
+                        "",
+                        0,
+                        0,
+                        null ) ).build();
+        return RelBuilder.create( config );
+    }
+
+}
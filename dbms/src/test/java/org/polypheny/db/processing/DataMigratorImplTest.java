@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.apache.calcite.avatica.Meta.CursorFactory;
+import org.junit.Assert;
+import org.junit.Test;
+import org.polypheny.db.information.InformationManager;
+import org.polypheny.db.processing.DataMigratorImpl.BatchReader;
+
+
+public class DataMigratorImplTest {
+
+
+    @Test
+    public void testBatches() {
+        SourceIterator source = new SourceIterator( 7, -1 );
+        try ( BatchReader reader = new BatchReader( source, CursorFactory.ARRAY, 3 ) ) {
+            List<Integer> sizes = new ArrayList<>();
+            List<Object> keys = new ArrayList<>();
+            List<List<Object>> rows;
+            while ( (rows = reader.next()) != null ) {
+                sizes.add( rows.size() );
+                rows.forEach( row -> keys.add( row.get( 0 ) ) );
+            }
+            Assert.assertEquals( Arrays.asList( 3, 3, 1 ), sizes );
+            Assert.assertEquals( Arrays.asList( 0, 1, 2, 3, 4, 5, 6 ), keys );
+
+            // The source is closed once all rows have been read
+            Assert.assertTrue( source.closed );
+            Assert.assertNull( reader.next() );
+        }
+        Assert.assertEquals( 1, source.closeCount );
+    }
+
+
+    @Test
+    public void testEmptySource() {
+        SourceIterator source = new SourceIterator( 0, -1 );
+        try ( BatchReader reader = new BatchReader( source, CursorFactory.ARRAY, 3 ) ) {
+            Assert.assertNull( reader.next() );
+        }
+        Assert.assertEquals( 1, source.closeCount );
+    }
+
+
+    @Test
+    public void testError() {
+        SourceIterator source = new SourceIterator( 10, 4 );
+        try ( BatchReader reader = new BatchReader( source, CursorFactory.ARRAY, 3 ) ) {
+            Assert.assertEquals( 3, reader.next().size() );
+            try {
+                reader.next();
+                Assert.fail( "Expected an exception while reading from the source" );
+            } catch ( RuntimeException e ) {
+                Assert.assertSame( SourceIterator.FAILURE, e.getCause() );
+            }
+            Assert.assertTrue( source.closed );
+            Assert.assertNull( reader.next() );
+        }
+        Assert.assertEquals( 1, source.closeCount );
+    }
+
+
+    @Test
+    public void testClose() {
+        SourceIterator source = new SourceIterator( 10, -1 );
+        try ( BatchReader reader = new BatchReader( source, CursorFactory.ARRAY, 3 ) ) {
+            Assert.assertEquals( 3, reader.next().size() );
+        }
+        Assert.assertTrue( source.closed );
+        Assert.assertEquals( 3, source.next );
+    }
+
+
+    @Test
+    public void testMonitor() {
+        DataMigrationMonitor.Migration finished = DataMigrationMonitor.INSTANCE.start( "monitortest1", "store1", 200 );
+        finished.addRows( 100 );
+        finished.addRows( 50 );
+        finished.finished();
+        DataMigrationMonitor.Migration failed = DataMigrationMonitor.INSTANCE.start( "monitortest2", "store2", -1 );
+        failed.addRows( 10 );
+        failed.failed();
+
+        String json = InformationManager.getInstance().getPage( DataMigrationMonitor.INSTANCE.getPage().getId() ).asJson();
+        Assert.assertTrue( json.contains( "monitortest1" ) );
+        Assert.assertTrue( json.contains( "75.0 %" ) );
+        Assert.assertTrue( json.contains( "FINISHED" ) );
+        Assert.assertTrue( json.contains( "monitortest2" ) );
+        Assert.assertTrue( json.contains( "FAILED" ) );
+        Assert.assertTrue( finished.getDurationMillis() >= 0 );
+    }
+
+
+    private static class SourceIterator implements Iterator<Object>, AutoCloseable {
+
+        static final RuntimeException FAILURE = new IllegalStateException( "Source store failed" );
+
+        private final int rows;
+        private final int failAt;
+        private int next = 0;
+        private boolean closed = false;
+        private int closeCount = 0;
+
+
+        SourceIterator( int rows, int failAt ) {
+            this.rows = rows;
+            this.failAt = failAt;
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            return next < rows;
+        }
+
+
+        @Override
+        public Object next() {
+            if ( next == failAt ) {
+                throw FAILURE;
+            }
+            if ( !hasNext() ) {
+                throw new NoSuchElementException();
+            }
+            return new Object[]{ next++, "row" };
+        }
+
+
+        @Override
+        public void close() {
+            closed = true;
+            closeCount++;
+        }
+
+    }
+
+}
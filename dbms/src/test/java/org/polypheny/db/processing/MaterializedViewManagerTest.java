@@ -0,0 +1,207 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing;
+
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.catalog.Catalog;
+
+
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+public class MaterializedViewManagerTest {
+
+    private static final String DEFINITION = "SELECT id, tinteger FROM mvtest WHERE tinteger > 5";
+
+
+    @BeforeClass
+    public static void start() {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+    }
+
+
+    @Test
+    public void rewriteTest() throws Exception {
+        try (
+                JdbcConnection readerConnection = new JdbcConnection( true );
+                JdbcConnection writerConnection = new JdbcConnection( false )
+        ) {
+            Connection writer = writerConnection.getConnection();
+            try (
+                    Statement reader = readerConnection.getConnection().createStatement();
+                    Statement statement = writer.createStatement()
+            ) {
+                createTable( reader );
+                try {
+                    reader.executeUpdate( "CREATE MATERIALIZED VIEW mvtest_view FRESHNESS DEFERRED AS " + DEFINITION );
+
+                    long rewrites = MaterializedViewManager.getInstance().getRewrites();
+                    Assert.assertEquals( Arrays.asList( 2, 3 ), getIds( reader.executeQuery( DEFINITION + " ORDER BY id" ) ) );
+                    Assert.assertEquals( rewrites + 1, MaterializedViewManager.getInstance().getRewrites() );
+
+                    // Queries not contained in the definition are answered from the table
+                    Assert.assertEquals( Collections.singletonList( 1 ), getIds( reader.executeQuery( "SELECT id, tinteger FROM mvtest WHERE tinteger < 5 ORDER BY id" ) ) );
+                    Assert.assertEquals( rewrites + 1, MaterializedViewManager.getInstance().getRewrites() );
+
+                    // Transactions which have modified an underlying table see their own changes
+                    statement.executeUpdate( "INSERT INTO mvtest VALUES (4, 20)" );
+                    Assert.assertEquals( Arrays.asList( 2, 3, 4 ), getIds( statement.executeQuery( DEFINITION + " ORDER BY id" ) ) );
+                    Assert.assertEquals( rewrites + 1, MaterializedViewManager.getInstance().getRewrites() );
+                } finally {
+                    writer.rollback();
+                    reader.executeUpdate( "DROP MATERIALIZED VIEW IF EXISTS mvtest_view" );
+                    reader.executeUpdate( "DROP TABLE mvtest" );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void staleAfterCommitTest() throws Exception {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                createTable( statement );
+                try {
+                    statement.executeUpdate( "CREATE MATERIALIZED VIEW mvtest_view FRESHNESS DEFERRED AS " + DEFINITION );
+                    long tableId = Catalog.getInstance().getTable( "APP", "public", "mvtest_view" ).id;
+                    Assert.assertFalse( MaterializedViewManager.getInstance().isStale( tableId ) );
+
+                    statement.executeUpdate( "INSERT INTO mvtest VALUES (4, 20)" );
+                    Assert.assertTrue( MaterializedViewManager.getInstance().isStale( tableId ) );
+
+                    // Stale materialized views are not used for answering queries
+                    long rewrites = MaterializedViewManager.getInstance().getRewrites();
+                    Assert.assertEquals( Arrays.asList( 2, 3, 4 ), getIds( statement.executeQuery( DEFINITION + " ORDER BY id" ) ) );
+                    Assert.assertEquals( rewrites, MaterializedViewManager.getInstance().getRewrites() );
+                    Assert.assertEquals( Arrays.asList( 2, 3 ), getIds( statement.executeQuery( "SELECT * FROM mvtest_view ORDER BY id" ) ) );
+
+                    statement.executeUpdate( "ALTER MATERIALIZED VIEW mvtest_view REFRESH" );
+                    Assert.assertFalse( MaterializedViewManager.getInstance().isStale( tableId ) );
+                    Assert.assertEquals( Arrays.asList( 2, 3, 4 ), getIds( statement.executeQuery( "SELECT * FROM mvtest_view ORDER BY id" ) ) );
+                    Assert.assertEquals( Arrays.asList( 2, 3, 4 ), getIds( statement.executeQuery( DEFINITION + " ORDER BY id" ) ) );
+                    Assert.assertEquals( rewrites + 1, MaterializedViewManager.getInstance().getRewrites() );
+                } finally {
+                    statement.executeUpdate( "DROP MATERIALIZED VIEW IF EXISTS mvtest_view" );
+                    statement.executeUpdate( "DROP TABLE mvtest" );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void dropTest() throws Exception {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                createTable( statement );
+                try {
+                    statement.executeUpdate( "CREATE MATERIALIZED VIEW mvtest_view FRESHNESS DEFERRED AS " + DEFINITION );
+                    long tableId = Catalog.getInstance().getTable( "APP", "public", "mvtest_view" ).id;
+                    statement.executeUpdate( "DROP MATERIALIZED VIEW mvtest_view" );
+                    Assert.assertTrue( Catalog.getInstance().getMaterializedViews().stream().noneMatch( m -> m.tableId == tableId ) );
+
+                    // Queries are answered from the table again, also after modifications
+                    long rewrites = MaterializedViewManager.getInstance().getRewrites();
+                    statement.executeUpdate( "INSERT INTO mvtest VALUES (4, 20)" );
+                    Assert.assertEquals( Arrays.asList( 2, 3, 4 ), getIds( statement.executeQuery( DEFINITION + " ORDER BY id" ) ) );
+                    Assert.assertEquals( rewrites, MaterializedViewManager.getInstance().getRewrites() );
+                } finally {
+                    statement.executeUpdate( "DROP MATERIALIZED VIEW IF EXISTS mvtest_view" );
+                    statement.executeUpdate( "DROP TABLE mvtest" );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void incrementalMaintenanceTest() throws Exception {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                createTable( statement );
+                try {
+                    statement.executeUpdate( "CREATE MATERIALIZED VIEW mvtest_view FRESHNESS IMMEDIATE AS " + DEFINITION );
+                    long tableId = Catalog.getInstance().getTable( "APP", "public", "mvtest_view" ).id;
+                    List<Long> keys = getKeys( statement.executeQuery( "SELECT * FROM mvtest_view ORDER BY id" ) );
+                    Assert.assertEquals( 2, keys.size() );
+
+                    // Only the derived rows of the inserted rows are added, the existing rows are kept
+                    statement.executeUpdate( "INSERT INTO mvtest VALUES (4, 20), (5, 2)" );
+                    Assert.assertTrue( MaterializedViewManager.getInstance().awaitMaintenance( 1, TimeUnit.MINUTES ) );
+                    Assert.assertFalse( MaterializedViewManager.getInstance().isStale( tableId ) );
+                    Assert.assertEquals( Arrays.asList( 2, 3, 4 ), getIds( statement.executeQuery( "SELECT * FROM mvtest_view ORDER BY id" ) ) );
+                    List<Long> maintainedKeys = getKeys( statement.executeQuery( "SELECT * FROM mvtest_view ORDER BY id" ) );
+                    Assert.assertEquals( keys, maintainedKeys.subList( 0, 2 ) );
+
+                    // Other modifications cause a recomputation
+                    statement.executeUpdate( "DELETE FROM mvtest WHERE id = 2" );
+                    Assert.assertTrue( MaterializedViewManager.getInstance().awaitMaintenance( 1, TimeUnit.MINUTES ) );
+                    Assert.assertFalse( MaterializedViewManager.getInstance().isStale( tableId ) );
+                    Assert.assertEquals( Arrays.asList( 3, 4 ), getIds( statement.executeQuery( "SELECT * FROM mvtest_view ORDER BY id" ) ) );
+                    Assert.assertFalse( getKeys( statement.executeQuery( "SELECT * FROM mvtest_view ORDER BY id" ) ).contains( maintainedKeys.get( 1 ) ) );
+                } finally {
+                    statement.executeUpdate( "DROP MATERIALIZED VIEW IF EXISTS mvtest_view" );
+                    statement.executeUpdate( "DROP TABLE mvtest" );
+                }
+            }
+        }
+    }
+
+
+    private void createTable( Statement statement ) throws SQLException {
+        statement.executeUpdate( "CREATE TABLE mvtest( id INTEGER NOT NULL, tinteger INTEGER NULL, PRIMARY KEY (id) )" );
+        statement.executeUpdate( "INSERT INTO mvtest VALUES (1, 1), (2, 10), (3, 15)" );
+    }
+
+
+    private static List<Integer> getIds( ResultSet resultSet ) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        while ( resultSet.next() ) {
+            ids.add( resultSet.getInt( 1 ) );
+        }
+        return ids;
+    }
+
+
+    // The generated primary key is the last column of a materialized view
+    private static List<Long> getKeys( ResultSet resultSet ) throws SQLException {
+        List<Long> keys = new ArrayList<>();
+        while ( resultSet.next() ) {
+            keys.add( resultSet.getLong( resultSet.getMetaData().getColumnCount() ) );
+        }
+        return keys;
+    }
+
+}
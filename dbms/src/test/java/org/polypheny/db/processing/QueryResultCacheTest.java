@@ -0,0 +1,262 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.processing;
+
+
+import com.google.common.collect.ImmutableList;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.calcite.linq4j.Linq4j;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.runtime.Bindable;
+import org.polypheny.db.transaction.Transaction;
+import org.polypheny.db.transaction.TransactionException;
+
+
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+public class QueryResultCacheTest {
+
+    private static final String QUERY = "SELECT id, tinteger FROM resultcachetest WHERE tinteger > 5 ORDER BY id";
+
+    private static boolean caching;
+
+
+    @BeforeClass
+    public static void start() {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+        caching = RuntimeConfig.QUERY_RESULT_CACHING.getBoolean();
+        RuntimeConfig.QUERY_RESULT_CACHING.setBoolean( true );
+    }
+
+
+    @AfterClass
+    public static void stop() {
+        RuntimeConfig.QUERY_RESULT_CACHING.setBoolean( caching );
+    }
+
+
+    @Test
+    public void repeatedQueryTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                createTable( statement );
+                try {
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( QUERY ),
+                            ImmutableList.of( new Object[]{ 2, 10 }, new Object[]{ 3, 15 } ) );
+
+                    long hits = QueryResultCache.INSTANCE.getHits();
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( QUERY ),
+                            ImmutableList.of( new Object[]{ 2, 10 }, new Object[]{ 3, 15 } ) );
+                    Assert.assertTrue( QueryResultCache.INSTANCE.getHits() > hits );
+
+                    // Other values for the parameters of the query are not answered from the cache
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( "SELECT id, tinteger FROM resultcachetest WHERE tinteger > 12 ORDER BY id" ),
+                            ImmutableList.of( new Object[]{ 3, 15 } ) );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE resultcachetest" );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void commitInvalidatesTest() throws SQLException {
+        try (
+                JdbcConnection readerConnection = new JdbcConnection( true );
+                JdbcConnection writerConnection = new JdbcConnection( false )
+        ) {
+            Connection writer = writerConnection.getConnection();
+            try (
+                    Statement reader = readerConnection.getConnection().createStatement();
+                    Statement statement = writer.createStatement()
+            ) {
+                createTable( reader );
+                try {
+                    TestHelper.checkResultSet(
+                            reader.executeQuery( QUERY ),
+                            ImmutableList.of( new Object[]{ 2, 10 }, new Object[]{ 3, 15 } ) );
+
+                    // Uncommitted changes of another transaction do not invalidate the cached result
+                    statement.executeUpdate( "INSERT INTO resultcachetest VALUES (4, 20)" );
+                    TestHelper.checkResultSet(
+                            reader.executeQuery( QUERY ),
+                            ImmutableList.of( new Object[]{ 2, 10 }, new Object[]{ 3, 15 } ) );
+
+                    writer.commit();
+                    TestHelper.checkResultSet(
+                            reader.executeQuery( QUERY ),
+                            ImmutableList.of( new Object[]{ 2, 10 }, new Object[]{ 3, 15 }, new Object[]{ 4, 20 } ) );
+
+                    statement.executeUpdate( "UPDATE resultcachetest SET tinteger = 1 WHERE id = 2" );
+                    writer.commit();
+                    TestHelper.checkResultSet(
+                            reader.executeQuery( QUERY ),
+                            ImmutableList.of( new Object[]{ 3, 15 }, new Object[]{ 4, 20 } ) );
+
+                    statement.executeUpdate( "TRUNCATE TABLE resultcachetest" );
+                    writer.commit();
+                    TestHelper.checkResultSet(
+                            reader.executeQuery( QUERY ),
+                            ImmutableList.of() );
+                } finally {
+                    writer.rollback();
+                    reader.executeUpdate( "DROP TABLE resultcachetest" );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void pendingWritesBypassTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( false ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                createTable( statement );
+                connection.commit();
+                try {
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( QUERY ),
+                            ImmutableList.of( new Object[]{ 2, 10 }, new Object[]{ 3, 15 } ) );
+                    connection.commit();
+
+                    // The transaction has to see its own changes
+                    long bypassed = QueryResultCache.INSTANCE.getBypassed();
+                    statement.executeUpdate( "INSERT INTO resultcachetest VALUES (4, 20)" );
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( QUERY ),
+                            ImmutableList.of( new Object[]{ 2, 10 }, new Object[]{ 3, 15 }, new Object[]{ 4, 20 } ) );
+                    Assert.assertTrue( QueryResultCache.INSTANCE.getBypassed() > bypassed );
+
+                    // The result read inside the transaction has not been cached
+                    connection.rollback();
+                    TestHelper.checkResultSet(
+                            statement.executeQuery( QUERY ),
+                            ImmutableList.of( new Object[]{ 2, 10 }, new Object[]{ 3, 15 } ) );
+                    connection.commit();
+                } finally {
+                    connection.rollback();
+                    statement.executeUpdate( "DROP TABLE resultcachetest" );
+                    connection.commit();
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void nonDeterministicTest() throws SQLException, InterruptedException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                createTable( statement );
+                try {
+                    Object first = queryFirstValue( statement, "SELECT RAND() FROM resultcachetest WHERE id = 1" );
+                    Object second = queryFirstValue( statement, "SELECT RAND() FROM resultcachetest WHERE id = 1" );
+                    Assert.assertNotEquals( first, second );
+
+                    first = queryFirstValue( statement, "SELECT CURRENT_TIMESTAMP FROM resultcachetest WHERE id = 1" );
+                    Thread.sleep( 50 );
+                    second = queryFirstValue( statement, "SELECT CURRENT_TIMESTAMP FROM resultcachetest WHERE id = 1" );
+                    Assert.assertNotEquals( first, second );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE resultcachetest" );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void evictionTest() throws TransactionException {
+        final long budget = 10_000;
+        final QueryResultCache cache = new QueryResultCache( budget );
+        final Transaction transaction = TestHelper.getInstance().getTransaction();
+        try {
+            final DataContext dataContext = transaction.createStatement().getDataContext();
+
+            // Three rows use about 900 bytes, the budget is exceeded after a few results
+            final int results = 30;
+            for ( int i = 0; i < results; i++ ) {
+                final Bindable<Object> bindable = cache.wrap( rows( 3 ), "digest" + i, Collections.emptySet(), Collections.singleton( 1L ) );
+                Assert.assertEquals( 3, bindable.bind( dataContext ).count() );
+                Assert.assertTrue( cache.getMemoryUsage() <= budget );
+            }
+            Assert.assertTrue( cache.size() > 0 );
+            Assert.assertTrue( cache.size() < results );
+
+            // The most recent result is still cached
+            long hits = cache.getHits();
+            cache.wrap( rows( 3 ), "digest" + (results - 1), Collections.emptySet(), Collections.singleton( 1L ) ).bind( dataContext ).count();
+            Assert.assertEquals( hits + 1, cache.getHits() );
+
+            // Results larger than a tenth of the budget are not cached
+            final Bindable<Object> large = cache.wrap( rows( 5 ), "large", Collections.emptySet(), Collections.singleton( 1L ) );
+            Assert.assertEquals( 5, large.bind( dataContext ).count() );
+            Assert.assertEquals( 5, large.bind( dataContext ).count() );
+            Assert.assertEquals( hits + 1, cache.getHits() );
+        } finally {
+            transaction.rollback();
+        }
+    }
+
+
+    private static Bindable<Object> rows( int count ) {
+        final List<Object> rows = new ArrayList<>();
+        for ( int i = 0; i < count; i++ ) {
+            rows.add( new Object[]{ i, String.join( "", Collections.nCopies( 100, "x" ) ) } );
+        }
+        return dataContext -> Linq4j.asEnumerable( rows );
+    }
+
+
+    private static Object queryFirstValue( Statement statement, String query ) throws SQLException {
+        try ( ResultSet resultSet = statement.executeQuery( query ) ) {
+            Assert.assertTrue( resultSet.next() );
+            return resultSet.getObject( 1 );
+        }
+    }
+
+
+    private static void createTable( Statement statement ) throws SQLException {
+        statement.executeUpdate( "CREATE TABLE resultcachetest( "
+                + "id INTEGER NOT NULL, "
+                + "tinteger INTEGER NULL, "
+                + "PRIMARY KEY (id) )" );
+        statement.executeUpdate( "INSERT INTO resultcachetest VALUES (1, 5), (2, 10), (3, 15)" );
+    }
+
+}
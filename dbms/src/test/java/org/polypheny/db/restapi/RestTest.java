@@ -31,6 +31,7 @@
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import kong.unirest.GetRequest;
 import kong.unirest.HttpRequest;
 import kong.unirest.HttpResponse;
 import kong.unirest.RequestBodyEntity;
@@ -43,6 +44,9 @@
 import org.junit.Test;
 import org.polypheny.db.TestHelper;
 import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.iface.QueryInterface;
+import org.polypheny.db.iface.QueryInterfaceManager;
 
 @SuppressWarnings("SqlDialectInspection")
 @Slf4j
@@ -218,6 +222,98 @@ public void testOperations() {
     }
 
 
+    @Test
+    public void testPlanCache() {
+        final RestPlanCache planCache = getPlanCache();
+        final boolean caching = RuntimeConfig.REST_PLAN_CACHING.getBoolean();
+        RuntimeConfig.REST_PLAN_CACHING.setBoolean( true );
+        executeRest( buildRestInsert( "test.resttest", ImmutableList.of( getTestRow( 1, "first" ), getTestRow( 2, "second" ) ) ) );
+        try {
+            planCache.reset();
+
+            // The plan is cached and reused with the new filter value
+            String body = executeRest( buildRestGet().queryString( "test.resttest.tinteger", "=" + 1 ) ).getBody();
+            Assert.assertTrue( body.contains( "\"first\"" ) );
+            Assert.assertFalse( body.contains( "\"second\"" ) );
+            Assert.assertEquals( 0, planCache.getHits() );
+            Assert.assertEquals( 1, planCache.size() );
+
+            body = executeRest( buildRestGet().queryString( "test.resttest.tinteger", "=" + 2 ) ).getBody();
+            Assert.assertFalse( body.contains( "\"first\"" ) );
+            Assert.assertTrue( body.contains( "\"second\"" ) );
+            Assert.assertEquals( 1, planCache.getHits() );
+            Assert.assertEquals( 1, planCache.size() );
+
+            // Another filter operator results in another plan
+            body = executeRest( buildRestGet().queryString( "test.resttest.tinteger", "<" + 2 ) ).getBody();
+            Assert.assertTrue( body.contains( "\"first\"" ) );
+            Assert.assertFalse( body.contains( "\"second\"" ) );
+            Assert.assertEquals( 1, planCache.getHits() );
+            Assert.assertEquals( 2, planCache.size() );
+
+            // Other sort orders result in other plans
+            body = executeRest( buildRestGet().queryString( "test.resttest.tinteger", "<" + 3 ).queryString( "_sort", "test.resttest.tinteger@DESC" ) ).getBody();
+            Assert.assertTrue( body.indexOf( "\"second\"" ) < body.indexOf( "\"first\"" ) );
+            Assert.assertEquals( 3, planCache.size() );
+
+            body = executeRest( buildRestGet().queryString( "test.resttest.tinteger", "<" + 3 ).queryString( "_sort", "test.resttest.tinteger@ASC" ) ).getBody();
+            Assert.assertTrue( body.indexOf( "\"first\"" ) < body.indexOf( "\"second\"" ) );
+            Assert.assertEquals( 4, planCache.size() );
+
+            // Other limits result in other plans
+            body = executeRest( buildRestGet().queryString( "test.resttest.tinteger", "<" + 3 ).queryString( "_sort", "test.resttest.tinteger@ASC" ).queryString( "_limit", "1" ) ).getBody();
+            Assert.assertTrue( body.contains( "\"first\"" ) );
+            Assert.assertFalse( body.contains( "\"second\"" ) );
+            Assert.assertEquals( 5, planCache.size() );
+
+            body = executeRest( buildRestGet().queryString( "test.resttest.tinteger", "<" + 3 ).queryString( "_sort", "test.resttest.tinteger@ASC" ).queryString( "_limit", "2" ) ).getBody();
+            Assert.assertTrue( body.contains( "\"first\"" ) );
+            Assert.assertTrue( body.contains( "\"second\"" ) );
+            Assert.assertEquals( 6, planCache.size() );
+            Assert.assertEquals( 1, planCache.getHits() );
+
+            // The same request reuses its plan
+            body = executeRest( buildRestGet().queryString( "test.resttest.tinteger", "<" + 3 ).queryString( "_sort", "test.resttest.tinteger@ASC" ).queryString( "_limit", "1" ) ).getBody();
+            Assert.assertTrue( body.contains( "\"first\"" ) );
+            Assert.assertFalse( body.contains( "\"second\"" ) );
+            Assert.assertEquals( 2, planCache.getHits() );
+            Assert.assertEquals( 6, planCache.size() );
+        } finally {
+            RuntimeConfig.REST_PLAN_CACHING.setBoolean( caching );
+            Map<String, String> where = new LinkedHashMap<>();
+            where.put( "test.resttest.tinteger", "<" + 3 );
+            executeRest( buildRestDelete( "test.resttest", where ) );
+        }
+    }
+
+
+    private static GetRequest buildRestGet() {
+        return Unirest.get( "{protocol}://{host}:{port}/restapi/v1/res/test.resttest" );
+    }
+
+
+    private static RestPlanCache getPlanCache() {
+        for ( QueryInterface queryInterface : QueryInterfaceManager.getInstance().getQueryInterfaces().values() ) {
+            if ( queryInterface instanceof HttpRestServer ) {
+                return ((HttpRestServer) queryInterface).getPlanCache();
+            }
+        }
+        throw new AssertionError( "The REST interface is not running" );
+    }
+
+
+    private JsonObject getTestRow( int tinteger, String tvarchar ) {
+        JsonObject row = getTestRow();
+        row.add(
+                "test.resttest.tinteger",
+                new JsonPrimitive( tinteger ) );
+        row.add(
+                "test.resttest.tvarchar",
+                new JsonPrimitive( tvarchar ) );
+        return row;
+    }
+
+
     private JsonObject getTestRow() {
         JsonObject row = new JsonObject();
         row.add(
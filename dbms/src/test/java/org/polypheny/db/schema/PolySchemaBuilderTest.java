@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.schema;
+
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.entity.CatalogTable;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.schema.PolyphenyDbSchema.TableEntry;
+
+
+/**
+ * Tests that catalog changes only rebuild the affected parts of the schema.
+ */
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+public class PolySchemaBuilderTest {
+
+    private static boolean caching;
+
+
+    @BeforeClass
+    public static void start() {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+        caching = RuntimeConfig.SCHEMA_CACHING.getBoolean();
+        RuntimeConfig.SCHEMA_CACHING.setBoolean( true );
+    }
+
+
+    @AfterClass
+    public static void stop() {
+        RuntimeConfig.SCHEMA_CACHING.setBoolean( caching );
+    }
+
+
+    @Test
+    public void tableChangeTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE SCHEMA schemabuildertest" );
+                statement.executeUpdate( "CREATE TABLE schemabuildertest.table1( id INTEGER NOT NULL, PRIMARY KEY (id) )" );
+                statement.executeUpdate( "CREATE TABLE schemabuildertest_table2( id INTEGER NOT NULL, PRIMARY KEY (id) )" );
+                try {
+                    Table table1 = getTable( "schemabuildertest", "table1" );
+                    Table table2 = getTable( "public", "schemabuildertest_table2" );
+
+                    // Only the schema of the new table is rebuilt
+                    statement.executeUpdate( "CREATE TABLE schemabuildertest.table3( id INTEGER NOT NULL, PRIMARY KEY (id) )" );
+                    Assert.assertNotNull( getTable( "schemabuildertest", "table3" ) );
+                    Assert.assertNotSame( table1, getTable( "schemabuildertest", "table1" ) );
+                    Assert.assertSame( table2, getTable( "public", "schemabuildertest_table2" ) );
+
+                    // Only the schema of the new column is rebuilt
+                    table1 = getTable( "schemabuildertest", "table1" );
+                    statement.executeUpdate( "ALTER TABLE schemabuildertest_table2 ADD COLUMN foo INTEGER NULL" );
+                    Assert.assertSame( table1, getTable( "schemabuildertest", "table1" ) );
+                    Assert.assertEquals( 2, ((LogicalTable) getTable( "public", "schemabuildertest_table2" )).getLogicalColumnNames().size() );
+
+                    // Dropped tables are removed
+                    statement.executeUpdate( "DROP TABLE schemabuildertest.table3" );
+                    Assert.assertNull( getTable( "schemabuildertest", "table3" ) );
+                    Assert.assertNotNull( getTable( "schemabuildertest", "table1" ) );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE IF EXISTS schemabuildertest.table3" );
+                    statement.executeUpdate( "DROP TABLE schemabuildertest.table1" );
+                    statement.executeUpdate( "DROP TABLE schemabuildertest_table2" );
+                    statement.executeUpdate( "DROP SCHEMA schemabuildertest" );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void placementChangeTest() throws SQLException {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE schemabuildertest_placement( id INTEGER NOT NULL, PRIMARY KEY (id) )" );
+                statement.executeUpdate( "ALTER ADAPTERS ADD \"schemabuilderstore\" USING 'org.polypheny.db.adapter.jdbc.stores.HsqldbStore'"
+                        + " WITH '{maxConnections:\"25\",trxControlMode:locks,trxIsolationLevel:read_committed,type:Memory,tableType:Memory,mode:embedded}'" );
+                try {
+                    Table logicalTable = getTable( "public", "schemabuildertest_placement" );
+
+                    // The logical tables are not affected by a new placement, the physical table is added
+                    statement.executeUpdate( "ALTER TABLE schemabuildertest_placement ADD PLACEMENT ON STORE \"schemabuilderstore\"" );
+                    Assert.assertSame( logicalTable, getTable( "public", "schemabuildertest_placement" ) );
+                    Assert.assertNotNull( getPhysicalTable( "schemabuilderstore", "schemabuildertest_placement" ) );
+
+                    statement.executeUpdate( "ALTER TABLE schemabuildertest_placement DROP PLACEMENT ON STORE \"schemabuilderstore\"" );
+                    Assert.assertSame( logicalTable, getTable( "public", "schemabuildertest_placement" ) );
+                    Assert.assertNull( getPhysicalTable( "schemabuilderstore", "schemabuildertest_placement" ) );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE schemabuildertest_placement" );
+                    statement.executeUpdate( "ALTER ADAPTERS DROP \"schemabuilderstore\"" );
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void pendingPlacementTest() throws Exception {
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE schemabuildertest_pending( id INTEGER NOT NULL, PRIMARY KEY (id) )" );
+                try {
+                    Catalog catalog = Catalog.getInstance();
+                    CatalogTable catalogTable = catalog.getTable( "APP", "public", "schemabuildertest_pending" );
+                    int adapterId = catalogTable.placementsByAdapter.keySet().iterator().next();
+                    AbstractPolyphenyDbSchema schema = PolySchemaBuilder.getInstance().getCurrent();
+
+                    // Pending placements do not change the schema, it is not rebuilt
+                    catalog.addPendingPlacement( catalogTable.id, adapterId, Collections.singletonList( catalogTable.columnIds.get( 0 ) ), false );
+                    try {
+                        Assert.assertSame( schema, PolySchemaBuilder.getInstance().getCurrent() );
+                    } finally {
+                        catalog.deletePendingPlacement( catalogTable.id );
+                    }
+                    Assert.assertSame( schema, PolySchemaBuilder.getInstance().getCurrent() );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE schemabuildertest_pending" );
+                }
+            }
+        }
+    }
+
+
+    private static Table getTable( String schemaName, String tableName ) {
+        PolyphenyDbSchema schema = PolySchemaBuilder.getInstance().getCurrent().getSubSchema( schemaName, false );
+        Assert.assertNotNull( schema );
+        TableEntry entry = schema.getTable( tableName, false );
+        return entry == null ? null : entry.getTable();
+    }
+
+
+    // Returns the physical table with the specified name on the adapter
+    private static Table getPhysicalTable( String adapterName, String tableName ) {
+        for ( PolyphenyDbSchema schema : PolySchemaBuilder.getInstance().getCurrent().getSubSchemaMap().values() ) {
+            if ( schema.getName().startsWith( adapterName + "_public_" ) ) {
+                TableEntry entry = schema.getTable( tableName, false );
+                if ( entry != null ) {
+                    return entry.getTable();
+                }
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.sql;
+
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.processing.ImplementationCache;
+import org.polypheny.db.processing.QueryPlanCache;
+import org.polypheny.db.util.Benchmark;
+
+
+/**
+ * Measures queries modelled after TPC-H Q1 and Q6 with the row-based and with the batch execution of the enumerable
+ * engine. Only runs if debug logging is enabled.
+ */
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Slf4j
+public class BatchExecutionBenchmarkTest {
+
+    private static final int ROW_COUNT = 200000;
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final int REPEAT = 10;
+
+    private static final String PRICING_SUMMARY = "SELECT l_returnflag, l_linestatus, "
+            + "SUM(l_quantity) AS sum_qty, "
+            + "SUM(l_extendedprice) AS sum_base_price, "
+            + "SUM(l_extendedprice * (1 - l_discount)) AS sum_disc_price, "
+            + "SUM(l_extendedprice * (1 - l_discount) * (1 + l_tax)) AS sum_charge, "
+            + "COUNT(*) AS count_order "
+            + "FROM benchlineitem "
+            + "WHERE l_shipday <= 2400 "
+            + "GROUP BY l_returnflag, l_linestatus";
+
+    private static final String FORECASTING_REVENUE_CHANGE = "SELECT SUM(l_extendedprice * l_discount) AS revenue "
+            + "FROM benchlineitem "
+            + "WHERE l_shipday >= 365 AND l_shipday < 730 "
+            + "AND l_discount BETWEEN 0.05 AND 0.07 "
+            + "AND l_quantity < 24";
+
+
+    @Test
+    public void tpchBenchmark() throws SQLException {
+        if ( !Benchmark.enabled() ) {
+            return;
+        }
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+        final boolean batchExecution = RuntimeConfig.BATCH_EXECUTION.getBoolean();
+        final boolean resultCaching = RuntimeConfig.QUERY_RESULT_CACHING.getBoolean();
+        // Every repetition has to execute the query
+        RuntimeConfig.QUERY_RESULT_CACHING.setBoolean( false );
+        try ( JdbcConnection polyphenyDbConnection = new JdbcConnection( true ) ) {
+            Connection connection = polyphenyDbConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE benchlineitem( "
+                        + "l_orderkey INTEGER NOT NULL, "
+                        + "l_quantity DOUBLE NOT NULL, "
+                        + "l_extendedprice DOUBLE NOT NULL, "
+                        + "l_discount DOUBLE NOT NULL, "
+                        + "l_tax DOUBLE NOT NULL, "
+                        + "l_returnflag VARCHAR(1) NOT NULL, "
+                        + "l_linestatus VARCHAR(1) NOT NULL, "
+                        + "l_shipday INTEGER NOT NULL, "
+                        + "PRIMARY KEY (l_orderkey) )" );
+                try {
+                    try ( PreparedStatement preparedStatement = connection.prepareStatement( "INSERT INTO benchlineitem VALUES (?, ?, ?, ?, ?, ?, ?, ?)" ) ) {
+                        for ( int i = 0; i < ROW_COUNT; i++ ) {
+                            preparedStatement.setInt( 1, i );
+                            preparedStatement.setDouble( 2, 1 + i % 50 );
+                            preparedStatement.setDouble( 3, 900.5 + (i * 37) % 10000 );
+                            preparedStatement.setDouble( 4, (i % 11) / 100.0 );
+                            preparedStatement.setDouble( 5, (i % 9) / 100.0 );
+                            preparedStatement.setString( 6, String.valueOf( "ARN".charAt( i % 3 ) ) );
+                            preparedStatement.setString( 7, String.valueOf( "OF".charAt( i % 2 ) ) );
+                            preparedStatement.setInt( 8, i % 2500 );
+                            preparedStatement.addBatch();
+                            if ( (i + 1) % INSERT_BATCH_SIZE == 0 ) {
+                                preparedStatement.executeBatch();
+                            }
+                        }
+                        preparedStatement.executeBatch();
+                    }
+
+                    runQuery( statement, "Q1, row execution", PRICING_SUMMARY, false );
+                    runQuery( statement, "Q1, batch execution", PRICING_SUMMARY, true );
+                    runQuery( statement, "Q6, row execution", FORECASTING_REVENUE_CHANGE, false );
+                    runQuery( statement, "Q6, batch execution", FORECASTING_REVENUE_CHANGE, true );
+                } finally {
+                    statement.executeUpdate( "DROP TABLE benchlineitem" );
+                }
+            }
+        } finally {
+            RuntimeConfig.BATCH_EXECUTION.setBoolean( batchExecution );
+            RuntimeConfig.QUERY_RESULT_CACHING.setBoolean( resultCaching );
+        }
+    }
+
+
+    private void runQuery( Statement statement, String description, String query, boolean batch ) {
+        RuntimeConfig.BATCH_EXECUTION.setBoolean( batch );
+        // The cached plans of the other execution mode must not be reused
+        QueryPlanCache.INSTANCE.reset();
+        ImplementationCache.INSTANCE.reset();
+        new Benchmark( description + ", " + ROW_COUNT + " rows", statistician -> {
+            final long start = System.nanoTime();
+            try ( ResultSet resultSet = statement.executeQuery( query ) ) {
+                while ( resultSet.next() ) {
+                    resultSet.getObject( 1 );
+                }
+            } catch ( SQLException e ) {
+                throw new RuntimeException( e );
+            }
+            statistician.record( start );
+            return null;
+        }, REPEAT ).run();
+    }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.sql;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.processing.ImplementationCache;
+import org.polypheny.db.processing.QueryPlanCache;
+
+
+/**
+ * Checks that the batch execution mode of the enumerable engine returns the same results as the row-based execution,
+ * using queries modelled after TPC-H Q1 and Q6.
+ */
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+@Slf4j
+public class BatchExecutionTest {
+
+    private static final int ROW_COUNT = 5000;
+
+    private static final double EPSILON = 1E-6;
+
+
+    @BeforeClass
+    public static void start() throws SQLException {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+        addTestData();
+    }
+
+
+    private static void addTestData() throws SQLException {
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( false ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE batchlineitem( "
+                        + "l_orderkey INTEGER NOT NULL, "
+                        + "l_quantity DOUBLE NOT NULL, "
+                        + "l_extendedprice DOUBLE NOT NULL, "
+                        + "l_discount DOUBLE NOT NULL, "
+                        + "l_tax DOUBLE, "
+                        + "l_returnflag VARCHAR(1) NOT NULL, "
+                        + "l_linestatus VARCHAR(1) NOT NULL, "
+                        + "l_shipday INTEGER NOT NULL, "
+                        + "PRIMARY KEY (l_orderkey) )" );
+                for ( int start = 0; start < ROW_COUNT; start += 100 ) {
+                    final StringJoiner values = new StringJoiner( ", " );
+                    for ( int i = start; i < start + 100; i++ ) {
+                        values.add( "(" + i + ", "
+                                + (1 + i % 50) + ", "
+                                + (900 + (i * 37) % 10000) + ".5, "
+                                + (i % 11) / 100.0 + ", "
+                                + (i % 13 == 0 ? "NULL" : String.valueOf( (i % 9) / 100.0 )) + ", "
+                                + "'" + "ARN".charAt( i % 3 ) + "', "
+                                + "'" + "OF".charAt( i % 2 ) + "', "
+                                + (i % 2500) + ")" );
+                    }
+                    statement.executeUpdate( "INSERT INTO batchlineitem VALUES " + values );
+                }
+                connection.commit();
+            }
+        }
+    }
+
+
+    @AfterClass
+    public static void stop() throws SQLException {
+        RuntimeConfig.BATCH_EXECUTION.setBoolean( false );
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "DROP TABLE batchlineitem" );
+            }
+        }
+    }
+
+    // --------------- Tests ---------------
+
+
+    @Test
+    public void pricingSummaryTest() throws SQLException {
+        compare( "SELECT l_returnflag, l_linestatus, "
+                + "SUM(l_quantity) AS sum_qty, "
+                + "SUM(l_extendedprice) AS sum_base_price, "
+                + "SUM(l_extendedprice * (1 - l_discount)) AS sum_disc_price, "
+                + "SUM(l_extendedprice * (1 - l_discount) * (1 + l_tax)) AS sum_charge, "
+                + "MIN(l_quantity) AS min_qty, "
+                + "MAX(l_extendedprice) AS max_price, "
+                + "COUNT(l_tax) AS count_tax, "
+                + "COUNT(*) AS count_order "
+                + "FROM batchlineitem "
+                + "WHERE l_shipday <= 2400 "
+                + "GROUP BY l_returnflag, l_linestatus "
+                + "ORDER BY l_returnflag, l_linestatus" );
+    }
+
+
+    @Test
+    public void forecastingRevenueChangeTest() throws SQLException {
+        compare( "SELECT SUM(l_extendedprice * l_discount) AS revenue "
+                + "FROM batchlineitem "
+                + "WHERE l_shipday >= 365 AND l_shipday < 730 "
+                + "AND l_discount BETWEEN 0.05 AND 0.07 "
+                + "AND l_quantity < 24" );
+    }
+
+
+    @Test
+    public void filterAndProjectTest() throws SQLException {
+        compare( "SELECT l_orderkey, l_orderkey * 2 + 1, l_tax IS NULL, -l_quantity "
+                + "FROM batchlineitem "
+                + "WHERE (l_returnflag = 'R' OR l_tax > 0.04) AND NOT l_linestatus = 'O' "
+                + "ORDER BY l_orderkey" );
+    }
+
+
+    @Test
+    public void shortCircuitTest() throws SQLException {
+        // l_shipday is zero for some rows; the division must only be evaluated for the other rows
+        compare( "SELECT l_orderkey FROM batchlineitem "
+                + "WHERE l_shipday <> 0 AND l_orderkey / l_shipday > 1 "
+                + "ORDER BY l_orderkey" );
+        compare( "SELECT l_orderkey FROM batchlineitem "
+                + "WHERE l_shipday = 0 OR l_orderkey / l_shipday > 1 "
+                + "ORDER BY l_orderkey" );
+    }
+
+
+    @Test
+    public void emptyResultTest() throws SQLException {
+        compare( "SELECT COUNT(*), SUM(l_quantity), MAX(l_returnflag) FROM batchlineitem WHERE l_orderkey < 0" );
+    }
+
+
+    /**
+     * Executes the query with and without batch execution and compares the results.
+     */
+    private static void compare( String query ) throws SQLException {
+        final long rowStart = System.nanoTime();
+        final List<Object[]> expected = execute( query, false );
+        final long batchStart = System.nanoTime();
+        final List<Object[]> actual = execute( query, true );
+        final long end = System.nanoTime();
+        log.debug( "Row execution: {} ms, batch execution: {} ms", (batchStart - rowStart) / 1000000, (end - batchStart) / 1000000 );
+
+        assertEquals( expected.size(), actual.size() );
+        for ( int i = 0; i < expected.size(); i++ ) {
+            assertEquals( expected.get( i ).length, actual.get( i ).length );
+            for ( int j = 0; j < expected.get( i ).length; j++ ) {
+                final Object e = expected.get( i )[j];
+                final Object a = actual.get( i )[j];
+                if ( e instanceof Double && a instanceof Double ) {
+                    assertEquals( (Double) e, (Double) a, Math.abs( (Double) e ) * EPSILON );
+                } else {
+                    assertEquals( e, a );
+                }
+            }
+        }
+    }
+
+
+    private static List<Object[]> execute( String query, boolean batch ) throws SQLException {
+        RuntimeConfig.BATCH_EXECUTION.setBoolean( batch );
+        QueryPlanCache.INSTANCE.reset();
+        ImplementationCache.INSTANCE.reset();
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery( query ) ) {
+                final int columnCount = resultSet.getMetaData().getColumnCount();
+                final List<Object[]> rows = new ArrayList<>();
+                while ( resultSet.next() ) {
+                    final Object[] row = new Object[columnCount];
+                    for ( int i = 0; i < columnCount; i++ ) {
+                        row[i] = resultSet.getObject( i + 1 );
+                    }
+                    rows.add( row );
+                }
+                return rows;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.sql;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.polypheny.db.TestHelper;
+import org.polypheny.db.TestHelper.JdbcConnection;
+import org.polypheny.db.config.RuntimeConfig;
+import org.polypheny.db.processing.ImplementationCache;
+import org.polypheny.db.processing.QueryPlanCache;
+
+
+/**
+ * Checks that queries parallelized with exchanges return the same results as the serial execution.
+ */
+@SuppressWarnings({ "SqlDialectInspection", "SqlNoDataSourceInspection" })
+public class ParallelExecutionTest {
+
+    private static final int ROW_COUNT = 3000;
+
+    private static final double EPSILON = 1E-6;
+
+
+    @BeforeClass
+    public static void start() throws SQLException {
+        // Ensures that Polypheny-DB is running
+        //noinspection ResultOfMethodCallIgnored
+        TestHelper.getInstance();
+        addTestData();
+    }
+
+
+    private static void addTestData() throws SQLException {
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( false ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "CREATE TABLE parallelorders( o_id INTEGER NOT NULL, o_customer INTEGER NOT NULL, o_total DOUBLE NOT NULL, PRIMARY KEY (o_id) )" );
+                statement.executeUpdate( "CREATE TABLE parallelcustomers( c_id INTEGER NOT NULL, c_region VARCHAR(10) NOT NULL, PRIMARY KEY (c_id) )" );
+                for ( int start = 0; start < ROW_COUNT; start += 100 ) {
+                    final StringJoiner orders = new StringJoiner( ", " );
+                    final StringJoiner customers = new StringJoiner( ", " );
+                    for ( int i = start; i < start + 100; i++ ) {
+                        orders.add( "(" + i + ", " + (i * 7) % 500 + ", " + (i % 97) + ".25)" );
+                        customers.add( "(" + i + ", 'region" + (i % 5) + "')" );
+                    }
+                    statement.executeUpdate( "INSERT INTO parallelorders VALUES " + orders );
+                    statement.executeUpdate( "INSERT INTO parallelcustomers VALUES " + customers );
+                }
+                connection.commit();
+            }
+        }
+    }
+
+
+    @AfterClass
+    public static void stop() throws SQLException {
+        RuntimeConfig.PARALLELISM.setInteger( 1 );
+        RuntimeConfig.PARALLELISM_ROW_THRESHOLD.setInteger( 100000 );
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement() ) {
+                statement.executeUpdate( "DROP TABLE parallelorders" );
+                statement.executeUpdate( "DROP TABLE parallelcustomers" );
+            }
+        }
+    }
+
+    // --------------- Tests ---------------
+
+
+    @Test
+    public void scanTest() throws SQLException {
+        compare( "SELECT o_id, o_total * 2 FROM parallelorders WHERE o_customer < 250 ORDER BY o_id" );
+    }
+
+
+    @Test
+    public void aggregateTest() throws SQLException {
+        compare( "SELECT o_customer, COUNT(*), SUM(o_total), MAX(o_id) FROM parallelorders GROUP BY o_customer ORDER BY o_customer" );
+    }
+
+
+    @Test
+    public void joinTest() throws SQLException {
+        compare( "SELECT c_region, COUNT(*), SUM(o_total) "
+                + "FROM parallelorders JOIN parallelcustomers ON o_customer = c_id "
+                + "GROUP BY c_region ORDER BY c_region" );
+    }
+
+
+    @Test
+    public void outerJoinTest() throws SQLException {
+        compare( "SELECT c_id, o_id FROM parallelcustomers LEFT JOIN parallelorders ON c_id = o_customer ORDER BY c_id, o_id" );
+    }
+
+
+    /**
+     * Executes the query serially and in four partitions and compares the results.
+     */
+    private static void compare( String query ) throws SQLException {
+        final List<Object[]> expected = execute( query, 1 );
+        final List<Object[]> actual = execute( query, 4 );
+
+        assertEquals( expected.size(), actual.size() );
+        for ( int i = 0; i < expected.size(); i++ ) {
+            assertEquals( expected.get( i ).length, actual.get( i ).length );
+            for ( int j = 0; j < expected.get( i ).length; j++ ) {
+                final Object e = expected.get( i )[j];
+                final Object a = actual.get( i )[j];
+                if ( e instanceof Double && a instanceof Double ) {
+                    assertEquals( (Double) e, (Double) a, Math.abs( (Double) e ) * EPSILON );
+                } else {
+                    assertEquals( e, a );
+                }
+            }
+        }
+    }
+
+
+    private static List<Object[]> execute( String query, int parallelism ) throws SQLException {
+        RuntimeConfig.PARALLELISM.setInteger( parallelism );
+        RuntimeConfig.PARALLELISM_ROW_THRESHOLD.setInteger( 0 );
+        QueryPlanCache.INSTANCE.reset();
+        ImplementationCache.INSTANCE.reset();
+        try ( JdbcConnection jdbcConnection = new JdbcConnection( true ) ) {
+            Connection connection = jdbcConnection.getConnection();
+            try ( Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery( query ) ) {
+                final int columnCount = resultSet.getMetaData().getColumnCount();
+                final List<Object[]> rows = new ArrayList<>();
+                while ( resultSet.next() ) {
+                    final Object[] row = new Object[columnCount];
+                    for ( int i = 0; i < columnCount; i++ ) {
+                        row[i] = resultSet.getObject( i + 1 );
+                    }
+                    rows.add( row );
+                }
+                return rows;
+            }
+        }
+    }
+
+}
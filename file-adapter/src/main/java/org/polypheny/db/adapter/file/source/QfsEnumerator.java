@@ -26,6 +26,8 @@
 import java.util.List;
 import org.apache.calcite.linq4j.Enumerator;
 import org.polypheny.db.adapter.DataContext;
+import org.polypheny.db.adapter.SourceFileCache;
+import org.polypheny.db.adapter.SourceFileCache.CachedFile;
 import org.polypheny.db.adapter.file.Condition;
 import org.polypheny.db.catalog.Catalog;
 import org.polypheny.db.catalog.entity.CatalogColumn;
@@ -126,11 +128,7 @@ private Object[] getRow( final File file ) {
                 case "file":
                     if ( dataContext.getStatement().getTransaction().getFlavor() == MultimediaFlavor.DEFAULT ) {
                         if ( file.isFile() ) {
-                            try {
-                                row.add( Files.readAllBytes( file.toPath() ) );
-                            } catch ( IOException e ) {
-                                throw new RuntimeException( "Could not return QFS file as a byte array", e );
-                            }
+                            row.add( readFile( file ) );
                         } else {
                             row.add( null );
                         }
@@ -146,6 +144,18 @@ private Object[] getRow( final File file ) {
     }
 
 
+    private static byte[] readFile( final File file ) {
+        if ( SourceFileCache.isEnabled() ) {
+            return SourceFileCache.INSTANCE.get( file, QfsCachedFile.class, QfsCachedFile::load ).getContent();
+        }
+        try {
+            return Files.readAllBytes( file.toPath() );
+        } catch ( IOException e ) {
+            throw new RuntimeException( "Could not return QFS file as a byte array", e );
+        }
+    }
+
+
     private Object[] project( final Object[] row ) {
         // If there is no condition, the projection has already been performed
         if ( this.projectionMapping == null || condition == null ) {
@@ -170,4 +180,39 @@ public void close() {
 
     }
 
+
+    /**
+     * Content of a file as stored in the {@link SourceFileCache}.
+     */
+    static class QfsCachedFile extends CachedFile {
+
+        private final byte[] content;
+
+
+        private QfsCachedFile( byte[] content ) {
+            this.content = content;
+        }
+
+
+        static QfsCachedFile load( File file ) {
+            try {
+                return new QfsCachedFile( Files.readAllBytes( file.toPath() ) );
+            } catch ( IOException e ) {
+                throw new RuntimeException( "Could not return QFS file as a byte array", e );
+            }
+        }
+
+
+        byte[] getContent() {
+            return content;
+        }
+
+
+        @Override
+        public long getSizeInBytes() {
+            return content.length;
+        }
+
+    }
+
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.file.source;
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.polypheny.db.adapter.SourceFileCache;
+import org.polypheny.db.adapter.file.source.QfsEnumerator.QfsCachedFile;
+
+
+/**
+ * Tests the contents of QFS files held by the {@link SourceFileCache}.
+ */
+public class QfsCachedFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    @Before
+    public void resetCache() {
+        SourceFileCache.INSTANCE.reset();
+    }
+
+
+    @Test
+    public void contentIsCachedUntilModified() throws IOException {
+        File file = folder.newFile( "test.txt" );
+        byte[] content = "foo".getBytes( StandardCharsets.UTF_8 );
+        Files.write( file.toPath(), content );
+
+        QfsCachedFile first = SourceFileCache.INSTANCE.get( file, QfsCachedFile.class, QfsCachedFile::load );
+        assertArrayEquals( content, first.getContent() );
+        assertSame( first, SourceFileCache.INSTANCE.get( file, QfsCachedFile.class, QfsCachedFile::load ) );
+
+        // Modifying the file replaces the cached content
+        byte[] modified = "foobar".getBytes( StandardCharsets.UTF_8 );
+        Files.write( file.toPath(), modified );
+        file.setLastModified( file.lastModified() + 2000 );
+        QfsCachedFile second = SourceFileCache.INSTANCE.get( file, QfsCachedFile.class, QfsCachedFile::load );
+        assertNotSame( first, second );
+        assertArrayEquals( modified, second.getContent() );
+    }
+
+
+    @Test
+    public void filesAreCachedSeparately() throws IOException {
+        File a = folder.newFile( "a.txt" );
+        File b = folder.newFile( "b.txt" );
+        Files.write( a.toPath(), "a".getBytes( StandardCharsets.UTF_8 ) );
+        Files.write( b.toPath(), "b".getBytes( StandardCharsets.UTF_8 ) );
+
+        assertArrayEquals( "a".getBytes( StandardCharsets.UTF_8 ), SourceFileCache.INSTANCE.get( a, QfsCachedFile.class, QfsCachedFile::load ).getContent() );
+        assertArrayEquals( "b".getBytes( StandardCharsets.UTF_8 ), SourceFileCache.INSTANCE.get( b, QfsCachedFile.class, QfsCachedFile::load ).getContent() );
+    }
+
+}
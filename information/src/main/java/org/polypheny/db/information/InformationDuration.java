@@ -95,7 +95,7 @@ static JsonSerializer<InformationDuration> getSerializer() {
     /**
      * Helper class for Durations
      */
-    static class Duration implements Comparable<Duration> {
+    public static class Duration implements Comparable<Duration> {
 
         private final String type = InformationDuration.class.getSimpleName();//for the UI
         private final String name;
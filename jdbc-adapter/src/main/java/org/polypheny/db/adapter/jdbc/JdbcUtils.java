@@ -61,6 +61,8 @@
 import org.apache.calcite.linq4j.function.Function1;
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.polypheny.db.adapter.jdbc.connection.ConnectionFactory;
+import org.polypheny.db.adapter.jdbc.connection.ConnectionHandlerPool;
+import org.polypheny.db.adapter.jdbc.connection.PreparedStatementCache;
 import org.polypheny.db.information.Information;
 import org.polypheny.db.information.InformationGraph;
 import org.polypheny.db.information.InformationGraph.GraphData;
@@ -79,11 +81,39 @@
  */
 public final class JdbcUtils {
 
+    /**
+     * Default number of rows fetched at once from the underlying database when reading a result set.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+
     private JdbcUtils() {
         throw new AssertionError( "no instances!" );
     }
 
 
+    /**
+     * Returns the fetch size configured for an adapter. Adapters deployed before the setting has been introduced use
+     * the default fetch size.
+     */
+    public static int getFetchSize( Map<String, String> settings ) {
+        final String fetchSize = settings.get( "fetchSize" );
+        if ( fetchSize == null ) {
+            return DEFAULT_FETCH_SIZE;
+        }
+        return Math.max( 0, Integer.parseInt( fetchSize ) );
+    }
+
+
+    /**
+     * Configures a data source such that result sets are read from a server-side cursor in chunks of the fetch size
+     * instead of being loaded into memory at once. Requires auto-commit to be disabled.
+     */
+    public static void enableCursorFetch( BasicDataSource dataSource, SqlDialect dialect ) {
+        dialect.getCursorFetchConnectionProperties().forEach( dataSource::addConnectionProperty );
+    }
+
+
     /**
      * Pool of dialects.
      */
@@ -307,15 +337,52 @@ public static void addInformationPoolSize( InformationPage informationPage, List
                     new GraphData<>( uniqueName + "-connection-pool-data", new Integer[]{ active, available, idle } )
             );
 
+            ConnectionHandlerPool<?> pool = connectionFactory.getPool();
+
             connectionPoolSizeTable.reset();
             connectionPoolSizeTable.addRow( "Active", active );
             connectionPoolSizeTable.addRow( "Idle", idle );
             connectionPoolSizeTable.addRow( "Max", max );
+            connectionPoolSizeTable.addRow( "Waiting", pool.getNumWaiting() );
+            connectionPoolSizeTable.addRow( "Acquisitions", pool.getAcquisitions() );
+            connectionPoolSizeTable.addRow( "Timeouts", pool.getTimeouts() );
+            connectionPoolSizeTable.addRow( "Avg. Wait Time", String.format( "%.2f ms", pool.getAverageWaitMillis() ) );
+            connectionPoolSizeTable.addRow( "Max. Wait Time", String.format( "%.2f ms", pool.getMaxWaitMillis() ) );
         } );
 
         groups.add( group );
 
     }
 
-}
 
+    /**
+     * Builds and adds an new information group, showing the hit rate of the prepared statement caches of the connections,
+     * to the provided information objects
+     *
+     * @param informationPage The information page used to show information on this jdbc adapter
+     * @param groups The collection of information groups associated with this adapter
+     * @param informationElements The collection of information elements associated with this adapter
+     */
+    public static void addInformationPreparedStatementCache( InformationPage informationPage, List<InformationGroup> groups, List<Information> informationElements, ConnectionFactory connectionFactory ) {
+        InformationGroup group = new InformationGroup( informationPage, "Prepared Statement Cache" );
+
+        InformationTable statementCacheTable = new InformationTable(
+                group,
+                Arrays.asList( "Attribute", "Value" ) );
+        informationElements.add( statementCacheTable );
+
+        group.setRefreshFunction( () -> {
+            PreparedStatementCache.Statistics statistics = connectionFactory.getPreparedStatementCacheStatistics();
+            long hits = statistics.getHits();
+            long misses = statistics.getMisses();
+
+            statementCacheTable.reset();
+            statementCacheTable.addRow( "Hits", hits );
+            statementCacheTable.addRow( "Misses", misses );
+            statementCacheTable.addRow( "Hit Rate", hits + misses == 0 ? "-" : String.format( "%.2f %%", 100.0 * hits / (hits + misses) ) );
+        } );
+
+        groups.add( group );
+    }
+
+}
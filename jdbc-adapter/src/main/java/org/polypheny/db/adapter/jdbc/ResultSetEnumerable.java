@@ -391,10 +391,11 @@ private Enumerator<T> enumeratorBasedOnStatement() {
         try {
             statement = connectionHandler.getStatement();
             setTimeoutIfPossible( statement );
+            setFetchSize( statement );
             if ( statement.execute( sql ) ) {
                 final ResultSet resultSet = statement.getResultSet();
                 statement = null;
-                return new ResultSetEnumerator<>( resultSet, rowBuilderFactory );
+                return new ResultSetEnumerator<>( resultSet, rowBuilderFactory, connectionHandler );
             } else {
                 Integer updateCount = statement.getUpdateCount();
                 return Linq4j.singletonEnumerator( (T) updateCount );
@@ -412,6 +413,7 @@ private Enumerator<T> enumeratorBasedOnPreparedStatement() {
         try {
             preparedStatement = connectionHandler.prepareStatement( sql );
             setTimeoutIfPossible( preparedStatement );
+            setFetchSize( preparedStatement );
             if ( preparedStatementEnricher.enrich( preparedStatement, connectionHandler ) ) {
                 // batch
                 preparedStatement.executeBatch();
@@ -421,16 +423,19 @@ private Enumerator<T> enumeratorBasedOnPreparedStatement() {
                 if ( preparedStatement.execute() ) {
                     final ResultSet resultSet = preparedStatement.getResultSet();
                     preparedStatement = null;
-                    return new ResultSetEnumerator<>( resultSet, rowBuilderFactory );
+                    return new ResultSetEnumerator<>( resultSet, rowBuilderFactory, connectionHandler );
                 } else {
                     Integer updateCount = preparedStatement.getUpdateCount();
                     return Linq4j.singletonEnumerator( (T) updateCount );
                 }
             }
         } catch ( SQLException e ) {
+            // The statement might have been invalidated, e.g. by a schema change. Make sure it is not reused.
+            connectionHandler.discardStatement( preparedStatement );
+            preparedStatement = null;
             throw Static.RESOURCE.exceptionWhilePerformingQueryOnJdbcSubSchema( sql ).ex( e );
         } finally {
-            closeIfPossible( preparedStatement );
+            connectionHandler.releaseStatement( preparedStatement );
         }
     }
 
@@ -460,6 +465,18 @@ private void setTimeoutIfPossible( Statement statement ) throws SQLException {
     }
 
 
+    /**
+     * Sets the fetch size configured for the adapter, so that the driver streams large result sets from the
+     * database instead of loading them into memory at once.
+     */
+    private void setFetchSize( Statement statement ) throws SQLException {
+        final int fetchSize = connectionHandler.getFetchSize();
+        if ( fetchSize > 0 && statement.getFetchSize() != fetchSize ) {
+            statement.setFetchSize( fetchSize );
+        }
+    }
+
+
     private void closeIfPossible( Statement statement ) {
         if ( statement != null ) {
             try {
@@ -479,12 +496,14 @@ private void closeIfPossible( Statement statement ) {
     private static class ResultSetEnumerator<T> implements Enumerator<T> {
 
         private final Function0<T> rowBuilder;
+        private final ConnectionHandler connectionHandler;
         private ResultSet resultSet;
 
 
-        ResultSetEnumerator( ResultSet resultSet, Function1<ResultSet, Function0<T>> rowBuilderFactory ) {
+        ResultSetEnumerator( ResultSet resultSet, Function1<ResultSet, Function0<T>> rowBuilderFactory, ConnectionHandler connectionHandler ) {
             this.resultSet = resultSet;
             this.rowBuilder = rowBuilderFactory.apply( resultSet );
+            this.connectionHandler = connectionHandler;
         }
 
 
@@ -522,13 +541,8 @@ public void close() {
                     resultSet = null;
                     final Statement statement = savedResultSet.getStatement();
                     savedResultSet.close();
-                    if ( statement != null ) {
-                        //final Connection connection = statement.getConnection();
-                        statement.close();
-                        /*if ( connection != null ) {
-                            connection.close();
-                        }*/
-                    }
+                    // Cached prepared statements are returned to the cache instead of being closed
+                    connectionHandler.releaseStatement( statement );
                 } catch ( SQLException e ) {
                     // ignore
                 }
@@ -37,4 +37,13 @@ public interface ConnectionFactory {
     int getNumActive();
 
     int getNumIdle();
+
+    ConnectionHandlerPool<?> getPool();
+
+    PreparedStatementCache.Statistics getPreparedStatementCacheStatistics();
+
+    /**
+     * Invalidates the cached prepared statements of all connections, e.g. because the schema of the store has changed.
+     */
+    void invalidatePreparedStatements();
 }
@@ -24,6 +24,7 @@
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.sql.SqlDialect;
 
@@ -34,6 +35,8 @@
 @Slf4j
 public abstract class ConnectionHandler {
 
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
     protected Connection connection;
     protected Statement statement;
 
@@ -43,6 +46,17 @@ public abstract class ConnectionHandler {
      */
     protected ConcurrentLinkedQueue<Statement> openStatements;
 
+    /**
+     * Prepared statements which are kept open across transactions
+     */
+    protected PreparedStatementCache statementCache;
+
+    /**
+     * Number of rows fetched at once when reading a result set; zero for the default of the driver
+     */
+    @Getter
+    protected int fetchSize;
+
 
     public int executeUpdate( final String sql ) throws SQLException {
         log.trace( "Executing query on database: {}", sql );
@@ -72,16 +86,88 @@ public Statement getStatement() throws SQLException {
     }
 
 
+    /**
+     * Returns a prepared statement for the specified SQL string. If possible, a cached statement is reused. The
+     * statement has to be handed back using {@link #releaseStatement(Statement)} instead of closing it.
+     */
     public PreparedStatement prepareStatement( String sql ) throws SQLException {
+        if ( statementCache != null ) {
+            PreparedStatement cached = statementCache.acquire( sql );
+            if ( cached != null ) {
+                log.trace( "Reusing cached prepared statement: {}", sql );
+                return cached;
+            }
+        }
         if ( openStatements == null ) {
             openStatements = new ConcurrentLinkedQueue<>();
         }
         PreparedStatement preparedStatement = connection.prepareStatement( sql );
-        openStatements.add( preparedStatement );
+        if ( statementCache == null || !statementCache.add( sql, preparedStatement ) ) {
+            openStatements.add( preparedStatement );
+        }
         return preparedStatement;
     }
 
 
+    /**
+     * Releases a statement which is no longer needed. Cached prepared statements are returned to the cache, all
+     * other statements are closed.
+     */
+    public void releaseStatement( Statement statement ) {
+        if ( statement == null || (statementCache != null && statementCache.release( statement )) ) {
+            return;
+        }
+        try {
+            statement.close();
+        } catch ( SQLException e ) {
+            // ignore
+        }
+    }
+
+
+    /**
+     * Closes a statement whose execution has failed. Cached prepared statements are removed from the cache.
+     */
+    public void discardStatement( Statement statement ) {
+        if ( statement == null || (statementCache != null && statementCache.discard( statement )) ) {
+            return;
+        }
+        try {
+            statement.close();
+        } catch ( SQLException e ) {
+            // ignore
+        }
+    }
+
+
+    /**
+     * Checks whether the connection of this handler is still usable.
+     */
+    public boolean isValid() {
+        try {
+            return connection.isValid( VALIDATION_TIMEOUT_SECONDS );
+        } catch ( SQLException e ) {
+            log.debug( "Exception while validating connection", e );
+            return false;
+        }
+    }
+
+
+    /**
+     * Closes the connection of this handler including all cached statements. The handler can no longer be used afterwards.
+     */
+    public void closeConnection() {
+        if ( statementCache != null ) {
+            statementCache.clear();
+        }
+        try {
+            connection.close();
+        } catch ( SQLException e ) {
+            log.debug( "Exception while closing connection", e );
+        }
+    }
+
+
     public abstract boolean prepare() throws ConnectionHandlerException;
 
     public abstract void commit() throws ConnectionHandlerException;
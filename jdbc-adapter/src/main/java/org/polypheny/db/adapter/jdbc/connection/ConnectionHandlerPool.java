@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.jdbc.connection;
+
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Bounded pool of connection handlers. If all handlers are in use, callers block until a handler is released or the
+ * acquisition timeout is reached. Waiting callers are served in FIFO order. Handlers which have been idle for longer
+ * than the validation interval are validated before they are handed out; broken handlers are replaced.
+ *
+ * @param <T> Type of the pooled connection handlers
+ */
+@Slf4j
+public class ConnectionHandlerPool<T extends ConnectionHandler> {
+
+    private final int maxConnections;
+    private final HandlerFactory<T> handlerFactory;
+
+    private final Semaphore permits;
+    // Most recently used handlers are at the head; they are the least likely to have timed out
+    private final Deque<IdleHandler<T>> idleHandlers = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger numIdle = new AtomicInteger();
+
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+
+    public ConnectionHandlerPool( int maxConnections, HandlerFactory<T> handlerFactory ) {
+        this.maxConnections = maxConnections;
+        this.handlerFactory = handlerFactory;
+        this.permits = new Semaphore( maxConnections, true );
+    }
+
+
+    /**
+     * Returns an idle handler or creates a new one, blocking if the maximum number of handlers is in use.
+     *
+     * @param timeoutMillis Maximum time to wait for a free handler
+     * @param validationIntervalMillis Handlers which have been idle for longer than this are validated before use
+     */
+    public T acquire( long timeoutMillis, long validationIntervalMillis ) throws ConnectionHandlerException {
+        final long start = System.nanoTime();
+        try {
+            if ( !permits.tryAcquire( timeoutMillis, TimeUnit.MILLISECONDS ) ) {
+                timeouts.incrementAndGet();
+                throw new ConnectionHandlerException( "Timeout while waiting for a free connection handler. All " + maxConnections + " connections are in use." );
+            }
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionHandlerException( "Interrupted while waiting for a free connection handler", e );
+        }
+        final long waitNanos = System.nanoTime() - start;
+        acquisitions.incrementAndGet();
+        totalWaitNanos.addAndGet( waitNanos );
+        maxWaitNanos.accumulateAndGet( waitNanos, Math::max );
+
+        try {
+            IdleHandler<T> idle;
+            while ( (idle = idleHandlers.pollFirst()) != null ) {
+                numIdle.decrementAndGet();
+                if ( System.currentTimeMillis() - idle.since < validationIntervalMillis || idle.handler.isValid() ) {
+                    return idle.handler;
+                }
+                log.debug( "Discarding broken connection handler" );
+                idle.handler.closeConnection();
+            }
+            log.debug( "Creating a new connection handler. Current number of idle handlers: {}", numIdle.get() );
+            return handlerFactory.create();
+        } catch ( ConnectionHandlerException | RuntimeException e ) {
+            permits.release();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Returns a handler to the pool and wakes up the longest waiting caller.
+     */
+    public void release( T handler ) {
+        idleHandlers.addFirst( new IdleHandler<>( handler, System.currentTimeMillis() ) );
+        numIdle.incrementAndGet();
+        permits.release();
+    }
+
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+
+    public int getNumIdle() {
+        return numIdle.get();
+    }
+
+
+    /**
+     * Number of callers currently waiting for a free handler.
+     */
+    public int getNumWaiting() {
+        return permits.getQueueLength();
+    }
+
+
+    public long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+
+    /**
+     * Average time (in milliseconds) callers had to wait for a handler.
+     */
+    public double getAverageWaitMillis() {
+        final long count = acquisitions.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / (count * 1e6);
+    }
+
+
+    /**
+     * Maximum time (in milliseconds) a caller had to wait for a handler.
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+
+    @FunctionalInterface
+    public interface HandlerFactory<T extends ConnectionHandler> {
+
+        T create() throws ConnectionHandlerException;
+
+    }
+
+
+    private static class IdleHandler<T> {
+
+        private final T handler;
+        private final long since;
+
+
+        IdleHandler( T handler, long since ) {
+            this.handler = handler;
+            this.since = since;
+        }
+
+    }
+
+}
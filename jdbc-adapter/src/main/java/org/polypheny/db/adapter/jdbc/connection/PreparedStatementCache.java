@@ -0,0 +1,244 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.jdbc.connection;
+
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Bounded cache of the prepared statements of one connection, keyed by their SQL text. If the limit is reached,
+ * the least recently used statement is closed. A cached statement is handed out to only one caller at a time; if
+ * the statement for a SQL string is currently in use, the caller has to prepare an uncached statement.
+ *
+ * The caches of a connection factory share a schema version which is incremented whenever the store executes DDL.
+ * If it has changed since the statements have been prepared, the cache is invalidated before it is used again.
+ */
+@Slf4j
+public class PreparedStatementCache {
+
+    private final int maxSize;
+    private final Statistics statistics;
+    private final AtomicLong schemaVersion;
+    private long cachedVersion;
+
+    private final LinkedHashMap<String, PreparedStatement> statements;
+    private final Map<PreparedStatement, String> inUse = new IdentityHashMap<>();
+
+
+    public PreparedStatementCache( int maxSize, Statistics statistics ) {
+        this( maxSize, statistics, new AtomicLong() );
+    }
+
+
+    public PreparedStatementCache( int maxSize, Statistics statistics, AtomicLong schemaVersion ) {
+        this.maxSize = Math.max( 0, maxSize );
+        this.statistics = statistics;
+        this.schemaVersion = schemaVersion;
+        this.cachedVersion = schemaVersion.get();
+        this.statements = new LinkedHashMap<String, PreparedStatement>( 16, 0.75f, true ) {
+            @Override
+            protected boolean removeEldestEntry( Entry<String, PreparedStatement> eldest ) {
+                if ( size() <= PreparedStatementCache.this.maxSize ) {
+                    return false;
+                }
+                // Statements which are in use are closed once they are released
+                if ( !inUse.containsKey( eldest.getValue() ) ) {
+                    closeQuietly( eldest.getValue() );
+                }
+                return true;
+            }
+        };
+    }
+
+
+    /**
+     * Returns the cached statement for the specified SQL string and marks it as in use.
+     *
+     * @return The statement or {@code null} if there is no idle statement for this SQL string
+     */
+    public synchronized PreparedStatement acquire( String sql ) {
+        if ( maxSize == 0 ) {
+            return null;
+        }
+        checkSchemaVersion();
+        final PreparedStatement statement = statements.get( sql );
+        if ( statement == null || inUse.containsKey( statement ) ) {
+            statistics.misses.incrementAndGet();
+            return null;
+        }
+        statistics.hits.incrementAndGet();
+        inUse.put( statement, sql );
+        return statement;
+    }
+
+
+    /**
+     * Adds a newly prepared statement to the cache and marks it as in use.
+     *
+     * @return {@code false} if the statement has not been added and needs to be closed by the caller
+     */
+    public synchronized boolean add( String sql, PreparedStatement statement ) {
+        if ( maxSize == 0 ) {
+            return false;
+        }
+        checkSchemaVersion();
+        if ( statements.containsKey( sql ) ) {
+            return false;
+        }
+        inUse.put( statement, sql );
+        statements.put( sql, statement );
+        return true;
+    }
+
+
+    /**
+     * Returns a statement to the cache. Parameters and batches are cleared so that the statement can be reused.
+     *
+     * @return {@code false} if the statement has not been handed out by this cache
+     */
+    public synchronized boolean release( Statement statement ) {
+        final String sql = inUse.remove( statement );
+        if ( sql == null ) {
+            return false;
+        }
+        if ( statements.get( sql ) != statement ) {
+            // Has been evicted in the meantime
+            closeQuietly( statement );
+            return true;
+        }
+        try {
+            final PreparedStatement preparedStatement = (PreparedStatement) statement;
+            preparedStatement.clearParameters();
+            preparedStatement.clearBatch();
+            if ( preparedStatement.getQueryTimeout() != 0 ) {
+                preparedStatement.setQueryTimeout( 0 );
+            }
+        } catch ( SQLException e ) {
+            log.debug( "Unable to reset prepared statement, removing it from the cache", e );
+            statements.remove( sql );
+            closeQuietly( statement );
+        }
+        return true;
+    }
+
+
+    /**
+     * Removes a statement from the cache and closes it. Used for statements whose execution has failed, since
+     * they might no longer be valid (e.g. because the underlying table has been altered).
+     *
+     * @return {@code false} if the statement has not been handed out by this cache
+     */
+    public synchronized boolean discard( Statement statement ) {
+        final String sql = inUse.remove( statement );
+        if ( sql == null ) {
+            return false;
+        }
+        statements.remove( sql, statement );
+        closeQuietly( statement );
+        return true;
+    }
+
+
+    /**
+     * Closes and removes all statements which are still in use, e.g. because the result set has not been closed
+     * before the end of the transaction.
+     */
+    public synchronized void discardInUse() {
+        final List<PreparedStatement> statementsInUse = new ArrayList<>( inUse.keySet() );
+        statementsInUse.forEach( this::discard );
+    }
+
+
+    /**
+     * Removes all statements from the cache. Idle statements are closed immediately, statements which are in use
+     * are closed once they are released or discarded.
+     */
+    public synchronized void invalidate() {
+        for ( PreparedStatement statement : statements.values() ) {
+            if ( !inUse.containsKey( statement ) ) {
+                closeQuietly( statement );
+            }
+        }
+        statements.clear();
+    }
+
+
+    /**
+     * Closes and removes all statements.
+     */
+    public synchronized void clear() {
+        statements.values().forEach( PreparedStatementCache::closeQuietly );
+        statements.clear();
+        inUse.clear();
+    }
+
+
+    public synchronized int size() {
+        return statements.size();
+    }
+
+
+    private void checkSchemaVersion() {
+        final long version = schemaVersion.get();
+        if ( version != cachedVersion ) {
+            invalidate();
+            cachedVersion = version;
+        }
+    }
+
+
+    private static void closeQuietly( Statement statement ) {
+        try {
+            statement.close();
+        } catch ( SQLException e ) {
+            log.debug( "Exception while closing prepared statement", e );
+        }
+    }
+
+
+    /**
+     * Hit and miss counters, shared by the caches of all connections of a connection factory.
+     */
+    public static class Statistics {
+
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+
+        public long getHits() {
+            return hits.get();
+        }
+
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+    }
+
+}
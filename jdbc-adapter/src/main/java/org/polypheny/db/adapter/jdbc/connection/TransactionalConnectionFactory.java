@@ -21,13 +21,13 @@
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.transaction.xa.Xid;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.dbcp2.BasicDataSource;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.sql.SqlDialect;
 
 
@@ -38,21 +38,33 @@
 public class TransactionalConnectionFactory implements ConnectionFactory {
 
     protected final Map<Xid, TransactionalConnectionHandler> activeInstances;
-    protected final Queue<TransactionalConnectionHandler> freeInstances;
+    protected final ConnectionHandlerPool<TransactionalConnectionHandler> pool;
 
     private final int maxConnections;
+    private final int fetchSize;
+
+    @Getter
+    private final PreparedStatementCache.Statistics preparedStatementCacheStatistics = new PreparedStatementCache.Statistics();
+    private final AtomicLong preparedStatementCacheVersion = new AtomicLong();
     private final BasicDataSource dataSource;
 
     private final SqlDialect dialect;
 
 
-    public TransactionalConnectionFactory( BasicDataSource dataSource, int maxConnections, SqlDialect dialect ) {
+    public TransactionalConnectionFactory( BasicDataSource dataSource, int maxConnections, int fetchSize, SqlDialect dialect ) {
         super();
         this.maxConnections = maxConnections;
+        this.fetchSize = fetchSize;
         this.dataSource = dataSource;
         this.activeInstances = new ConcurrentHashMap<>();
-        this.freeInstances = new ConcurrentLinkedQueue<>();
         this.dialect = dialect;
+        this.pool = new ConnectionHandlerPool<>( maxConnections, () -> {
+            try {
+                return new TransactionalConnectionHandler( dataSource.getConnection(), dialect );
+            } catch ( SQLException e ) {
+                throw new ConnectionHandlerException( "Caught exception while creating connection handler", e );
+            }
+        } );
     }
 
 
@@ -87,29 +99,9 @@ public void close() throws SQLException {
 
 
     private TransactionalConnectionHandler getFreeTransactionHandler() throws ConnectionHandlerException {
-        TransactionalConnectionHandler handler = freeInstances.poll();
-        if ( handler == null ) {
-            if ( getNumActive() + getNumIdle() < maxConnections ) {
-                log.debug( "Creating a new transaction handler. Current freeInstances-Size: {}", freeInstances.size() );
-                try {
-                    handler = new TransactionalConnectionHandler( dataSource.getConnection(), dialect );
-                } catch ( SQLException e ) {
-                    throw new ConnectionHandlerException( "Caught exception while creating connection handler", e );
-                }
-            } else {
-                log.warn( "No free connection handler and max number of handlers reach. Wait for a free instances." );
-                // Wait for a free instance
-                while ( handler == null ) {
-                    try {
-                        Thread.sleep( 10 );
-                    } catch ( InterruptedException e ) {
-                        // Ignore
-                    }
-                    handler = freeInstances.poll();
-                }
-            }
-        }
-        return handler;
+        return pool.acquire(
+                RuntimeConfig.JDBC_CONNECTION_ACQUIRE_TIMEOUT.getInteger(),
+                RuntimeConfig.JDBC_CONNECTION_VALIDATION_INTERVAL.getInteger() * 1000L );
     }
 
 
@@ -127,7 +119,19 @@ public int getNumActive() {
 
     @Override
     public int getNumIdle() {
-        return freeInstances.size();
+        return pool.getNumIdle();
+    }
+
+
+    @Override
+    public ConnectionHandlerPool<?> getPool() {
+        return pool;
+    }
+
+
+    @Override
+    public void invalidatePreparedStatements() {
+        preparedStatementCacheVersion.incrementAndGet();
     }
 
 
@@ -145,6 +149,8 @@ public class TransactionalConnectionHandler extends ConnectionHandler {
                 this.connection = connection;
                 this.statement = connection.createStatement();
                 this.dialect = dialect;
+                this.fetchSize = TransactionalConnectionFactory.this.fetchSize;
+                this.statementCache = new PreparedStatementCache( RuntimeConfig.JDBC_PREPARED_STATEMENT_CACHE_SIZE.getInteger(), preparedStatementCacheStatistics, preparedStatementCacheVersion );
             } catch ( SQLException e ) {
                 throw new ConnectionHandlerException( "Error while connecting to database!", e );
             }
@@ -183,7 +189,7 @@ public void rollback() throws ConnectionHandlerException {
 
 
         private void close() {
-            log.debug( "Closing a transaction handler. Size of freeInstances before closing: {}", freeInstances.size() );
+            log.debug( "Closing a transaction handler. Number of idle handlers before closing: {}", pool.getNumIdle() );
             try {
                 if ( openStatements != null ) {
                     for ( Statement openStatement : openStatements ) {
@@ -194,10 +200,10 @@ private void close() {
                 log.debug( "Exception while closing connections in connection handler", e );
             } finally {
                 openStatements = null;
+                statementCache.discardInUse();
                 activeInstances.remove( xid );
                 xid = null;
-                freeInstances.add( this );
-                log.debug( "Size of freeInstances after closing: {}", freeInstances.size() );
+                pool.release( this );
             }
         }
 
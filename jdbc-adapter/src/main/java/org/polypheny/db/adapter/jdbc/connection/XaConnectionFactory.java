@@ -20,9 +20,8 @@
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Map;
-import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.sql.XAConnection;
 import javax.sql.XADataSource;
 import javax.transaction.xa.XAException;
@@ -30,6 +29,7 @@
 import javax.transaction.xa.Xid;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.sql.SqlDialect;
 
 
@@ -40,22 +40,34 @@
 public class XaConnectionFactory implements ConnectionFactory {
 
     protected final Map<Xid, XaConnectionHandler> activeInstances;
-    protected final Queue<XaConnectionHandler> freeInstances;
+    protected final ConnectionHandlerPool<XaConnectionHandler> pool;
 
     private final int maxConnections;
+    private final int fetchSize;
+
+    @Getter
+    private final PreparedStatementCache.Statistics preparedStatementCacheStatistics = new PreparedStatementCache.Statistics();
+    private final AtomicLong preparedStatementCacheVersion = new AtomicLong();
     private final XADataSource dataSource;
 
     @Getter
     private final SqlDialect dialect;
 
 
-    public XaConnectionFactory( XADataSource dataSource, int maxConnections, SqlDialect dialect ) {
+    public XaConnectionFactory( XADataSource dataSource, int maxConnections, int fetchSize, SqlDialect dialect ) {
         super();
         this.maxConnections = maxConnections;
+        this.fetchSize = fetchSize;
         this.dataSource = dataSource;
         this.activeInstances = new ConcurrentHashMap<>();
-        this.freeInstances = new ConcurrentLinkedQueue<>();
         this.dialect = dialect;
+        this.pool = new ConnectionHandlerPool<>( maxConnections, () -> {
+            try {
+                return new XaConnectionHandler( dataSource.getXAConnection(), dialect );
+            } catch ( SQLException e ) {
+                throw new ConnectionHandlerException( "Caught exception while creating connection handler", e );
+            }
+        } );
     }
 
 
@@ -63,7 +75,12 @@ public XaConnectionFactory( XADataSource dataSource, int maxConnections, SqlDial
     public XaConnectionHandler getOrCreateConnectionHandler( Xid xid ) throws ConnectionHandlerException {
         if ( !activeInstances.containsKey( xid ) ) {
             XaConnectionHandler xaConnectionHandler = getFreeTransactionHandler();
-            xaConnectionHandler.init( xid );
+            try {
+                xaConnectionHandler.init( xid );
+            } catch ( ConnectionHandlerException e ) {
+                pool.release( xaConnectionHandler );
+                throw e;
+            }
             activeInstances.put( xid, xaConnectionHandler );
             return xaConnectionHandler;
         }
@@ -90,29 +107,9 @@ public void close() throws SQLException {
 
 
     private XaConnectionHandler getFreeTransactionHandler() throws ConnectionHandlerException {
-        XaConnectionHandler handler = freeInstances.poll();
-        if ( handler == null ) {
-            if ( getNumActive() + getNumIdle() < maxConnections ) {
-                log.debug( "Creating a new transaction handler. Current freeInstances-Size: {}", freeInstances.size() );
-                try {
-                    handler = new XaConnectionHandler( dataSource.getXAConnection(), dialect );
-                } catch ( SQLException e ) {
-                    throw new ConnectionHandlerException( "Caught exception while creating connection handler", e );
-                }
-            } else {
-                log.warn( "No free connection handler and max number of handlers reach. Wait for a free instances." );
-                // Wait for a free instance
-                while ( handler == null ) {
-                    try {
-                        Thread.sleep( 10 );
-                    } catch ( InterruptedException e ) {
-                        // Ignore
-                    }
-                    handler = freeInstances.poll();
-                }
-            }
-        }
-        return handler;
+        return pool.acquire(
+                RuntimeConfig.JDBC_CONNECTION_ACQUIRE_TIMEOUT.getInteger(),
+                RuntimeConfig.JDBC_CONNECTION_VALIDATION_INTERVAL.getInteger() * 1000L );
     }
 
 
@@ -130,12 +127,25 @@ public int getNumActive() {
 
     @Override
     public int getNumIdle() {
-        return freeInstances.size();
+        return pool.getNumIdle();
+    }
+
+
+    @Override
+    public ConnectionHandlerPool<?> getPool() {
+        return pool;
+    }
+
+
+    @Override
+    public void invalidatePreparedStatements() {
+        preparedStatementCacheVersion.incrementAndGet();
     }
 
 
     public class XaConnectionHandler extends ConnectionHandler {
 
+        private final XAConnection xaConnection;
         private final XAResource xaResource;
         private Xid xid;
 
@@ -146,16 +156,30 @@ public class XaConnectionHandler extends ConnectionHandler {
         XaConnectionHandler( XAConnection xaConnection, SqlDialect dialect ) throws ConnectionHandlerException {
             super();
             try {
+                this.xaConnection = xaConnection;
                 xaResource = xaConnection.getXAResource();
                 connection = xaConnection.getConnection();
                 statement = connection.createStatement();
                 this.dialect = dialect;
+                this.fetchSize = XaConnectionFactory.this.fetchSize;
+                this.statementCache = new PreparedStatementCache( RuntimeConfig.JDBC_PREPARED_STATEMENT_CACHE_SIZE.getInteger(), preparedStatementCacheStatistics, preparedStatementCacheVersion );
             } catch ( SQLException e ) {
                 throw new ConnectionHandlerException( "Error while connecting to database!", e );
             }
         }
 
 
+        @Override
+        public void closeConnection() {
+            super.closeConnection();
+            try {
+                xaConnection.close();
+            } catch ( SQLException e ) {
+                log.debug( "Exception while closing XA connection", e );
+            }
+        }
+
+
         void init( final Xid xid ) throws ConnectionHandlerException {
             if ( activeInstances.containsKey( xid ) ) {
                 throw new ConnectionHandlerException( "There is already a connection handler for this xid!" );
@@ -206,7 +230,7 @@ public void rollback() throws ConnectionHandlerException {
 
 
         private void close() {
-            log.debug( "Closing a transaction handler. Size of freeInstances before closing: {}", freeInstances.size() );
+            log.debug( "Closing a transaction handler. Number of idle handlers before closing: {}", pool.getNumIdle() );
             try {
                 if ( openStatements != null ) {
                     for ( Statement openStatement : openStatements ) {
@@ -217,10 +241,10 @@ private void close() {
                 log.debug( "Exception while closing connections in connection handler", e );
             } finally {
                 openStatements = null;
+                statementCache.discardInUse();
                 activeInstances.remove( xid );
                 xid = null;
-                freeInstances.add( this );
-                log.debug( "Size of freeInstances after closing: {}", freeInstances.size() );
+                pool.release( this );
             }
         }
 
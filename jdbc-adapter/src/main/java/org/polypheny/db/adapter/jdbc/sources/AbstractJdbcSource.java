@@ -40,7 +40,6 @@
 import org.polypheny.db.jdbc.Context;
 import org.polypheny.db.schema.SchemaPlus;
 import org.polypheny.db.sql.SqlDialect;
-import org.polypheny.db.sql.dialect.MysqlSqlDialect;
 import org.polypheny.db.transaction.PUID;
 import org.polypheny.db.transaction.PolyXid;
 import org.polypheny.db.type.PolyType;
@@ -63,7 +62,7 @@ public AbstractJdbcSource(
             SqlDialect dialect,
             boolean readOnly ) {
         super( storeId, uniqueName, settings, readOnly );
-        this.connectionFactory = createConnectionFactory( settings, MysqlSqlDialect.DEFAULT, diverClass );
+        this.connectionFactory = createConnectionFactory( settings, dialect, diverClass );
         this.dialect = dialect;
         // Register the JDBC Pool Size as information in the information manager and enable it
         registerInformationPage();
@@ -72,6 +71,7 @@ public AbstractJdbcSource(
 
     protected void registerInformationPage() {
         JdbcUtils.addInformationPoolSize( informationPage, informationGroups, informationElements, connectionFactory, getUniqueName() );
+        JdbcUtils.addInformationPreparedStatementCache( informationPage, informationGroups, informationElements, connectionFactory );
         addInformationPhysicalNames();
         enableInformationPage();
     }
@@ -89,6 +89,7 @@ protected ConnectionFactory createConnectionFactory( final Map<String, String> s
         dataSource.setUsername( settings.get( "username" ) );
         dataSource.setPassword( settings.get( "password" ) );
         dataSource.setDefaultAutoCommit( false );
+        JdbcUtils.enableCursorFetch( dataSource, dialect );
         switch ( settings.get( "transactionIsolation" ) ) {
             case "SERIALIZABLE":
                 dataSource.setDefaultTransactionIsolation( Connection.TRANSACTION_SERIALIZABLE );
@@ -103,7 +104,7 @@ protected ConnectionFactory createConnectionFactory( final Map<String, String> s
                 dataSource.setDefaultTransactionIsolation( Connection.TRANSACTION_REPEATABLE_READ );
                 break;
         }
-        return new TransactionalConnectionFactory( dataSource, Integer.parseInt( settings.get( "maxConnections" ) ), dialect );
+        return new TransactionalConnectionFactory( dataSource, Integer.parseInt( settings.get( "maxConnections" ) ), JdbcUtils.getFetchSize( settings ), dialect );
     }
 
 
@@ -136,6 +137,8 @@ protected void executeUpdate( StringBuilder builder, Context context ) {
         try {
             context.getStatement().getTransaction().registerInvolvedAdapter( this );
             connectionFactory.getOrCreateConnectionHandler( context.getStatement().getTransaction().getXid() ).executeUpdate( builder.toString() );
+            // Statements prepared against the previous schema might be invalid or return stale column types
+            connectionFactory.invalidatePreparedStatements();
         } catch ( SQLException | ConnectionHandlerException e ) {
             throw new RuntimeException( e );
         }
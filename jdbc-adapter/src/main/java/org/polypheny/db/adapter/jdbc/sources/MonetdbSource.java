@@ -26,6 +26,7 @@
 import org.polypheny.db.adapter.Adapter.AdapterSettingInteger;
 import org.polypheny.db.adapter.Adapter.AdapterSettingString;
 import org.polypheny.db.adapter.DeployMode;
+import org.polypheny.db.adapter.jdbc.JdbcUtils;
 import org.polypheny.db.adapter.jdbc.connection.ConnectionFactory;
 import org.polypheny.db.adapter.jdbc.connection.TransactionalConnectionFactory;
 import org.polypheny.db.catalog.entity.CatalogColumnPlacement;
@@ -47,6 +48,7 @@
 @AdapterSettingString(name = "username", defaultValue = "polypheny", description = "Name of the database to connect to.", position = 4)
 @AdapterSettingString(name = "password", defaultValue = "polypheny", description = "Username to be used for authenticating at the remote instance.", position = 5)
 @AdapterSettingInteger(name = "maxConnections", defaultValue = 25, description = "Password to be used for authenticating at the remote instance.")
+@AdapterSettingInteger(name = "fetchSize", defaultValue = JdbcUtils.DEFAULT_FETCH_SIZE, required = false, description = "Number of rows fetched at once when reading query results. Large results are streamed in chunks of this size. Zero uses the default of the JDBC driver.")
 @AdapterSettingString(name = "table", defaultValue = "public.foo,public.bar", description = "Maximum number of concurrent JDBC connections.")
 public class MonetdbSource extends AbstractJdbcSource {
 
@@ -72,7 +74,8 @@ protected ConnectionFactory createConnectionFactory( final Map<String, String> s
             log.debug( "JDBC Connection URL: {}", connectionUrl );
         }
         dataSource.setDefaultAutoCommit( false );
-        return new TransactionalConnectionFactory( dataSource, Integer.parseInt( settings.get( "maxConnections" ) ), dialect );
+        JdbcUtils.enableCursorFetch( dataSource, dialect );
+        return new TransactionalConnectionFactory( dataSource, Integer.parseInt( settings.get( "maxConnections" ) ), JdbcUtils.getFetchSize( settings ), dialect );
     }
 
 
@@ -97,6 +97,7 @@ protected ConnectionFactory deployRemote() {
 
     protected void registerJdbcInformation() {
         JdbcUtils.addInformationPoolSize( informationPage, informationGroups, informationElements, connectionFactory, getUniqueName() );
+        JdbcUtils.addInformationPreparedStatementCache( informationPage, informationGroups, informationElements, connectionFactory );
         addInformationPhysicalNames();
         enableInformationPage();
     }
@@ -353,6 +354,8 @@ protected void executeUpdate( StringBuilder builder, Context context ) {
         try {
             context.getStatement().getTransaction().registerInvolvedAdapter( this );
             connectionFactory.getOrCreateConnectionHandler( context.getStatement().getTransaction().getXid() ).executeUpdate( builder.toString() );
+            // Statements prepared against the previous schema might be invalid or return stale column types
+            connectionFactory.invalidatePreparedStatements();
         } catch ( SQLException | ConnectionHandlerException e ) {
             throw new RuntimeException( e );
         }
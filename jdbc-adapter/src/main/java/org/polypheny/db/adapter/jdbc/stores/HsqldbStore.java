@@ -73,7 +73,7 @@ protected ConnectionFactory deployEmbedded() {
             dataSource.setPassword( "" );
             dataSource.setMaxTotal( -1 ); // No limit for number of connections (limited by connection handler; see settings maxConnections)
             dataSource.setDefaultAutoCommit( false );
-            return new TransactionalConnectionFactory( dataSource, Integer.parseInt( settings.get( "maxConnections" ) ), dialect );
+            return new TransactionalConnectionFactory( dataSource, Integer.parseInt( settings.get( "maxConnections" ) ), 0, dialect ); // Embedded, no need to stream results
         }
     }
 
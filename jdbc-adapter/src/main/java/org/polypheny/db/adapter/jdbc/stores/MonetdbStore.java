@@ -30,6 +30,7 @@
 import org.polypheny.db.adapter.Adapter.AdapterSettingString;
 import org.polypheny.db.adapter.DeployMode;
 import org.polypheny.db.adapter.DeployMode.DeploySetting;
+import org.polypheny.db.adapter.jdbc.JdbcUtils;
 import org.polypheny.db.adapter.jdbc.connection.ConnectionFactory;
 import org.polypheny.db.adapter.jdbc.connection.ConnectionHandler;
 import org.polypheny.db.adapter.jdbc.connection.ConnectionHandlerException;
@@ -63,6 +64,7 @@
 @AdapterSettingString(name = "username", defaultValue = "polypheny", description = "Name of the database to connect to.", position = 4, appliesTo = DeploySetting.REMOTE)
 @AdapterSettingString(name = "password", defaultValue = "polypheny", description = "Username to be used for authenticating at the remote instance.")
 @AdapterSettingInteger(name = "maxConnections", defaultValue = 25, description = "Password to be used for authenticating at the remote instance.")
+@AdapterSettingInteger(name = "fetchSize", defaultValue = JdbcUtils.DEFAULT_FETCH_SIZE, required = false, description = "Number of rows fetched at once when reading query results. Large results are streamed in chunks of this size. Zero uses the default of the JDBC driver.")
 public class MonetdbStore extends AbstractJdbcStore {
 
     private String host;
@@ -129,7 +131,8 @@ private ConnectionFactory createConnectionFactory() {
         dataSource.setUsername( username );
         dataSource.setPassword( settings.get( "password" ) );
         dataSource.setDefaultAutoCommit( false );
-        return new TransactionalConnectionFactory( dataSource, Integer.parseInt( settings.get( "maxConnections" ) ), dialect );
+        JdbcUtils.enableCursorFetch( dataSource, dialect );
+        return new TransactionalConnectionFactory( dataSource, Integer.parseInt( settings.get( "maxConnections" ) ), JdbcUtils.getFetchSize( settings ), dialect );
     }
 
 
@@ -30,6 +30,7 @@
 import org.polypheny.db.adapter.Adapter.AdapterSettingString;
 import org.polypheny.db.adapter.DeployMode;
 import org.polypheny.db.adapter.DeployMode.DeploySetting;
+import org.polypheny.db.adapter.jdbc.JdbcUtils;
 import org.polypheny.db.adapter.jdbc.connection.ConnectionFactory;
 import org.polypheny.db.adapter.jdbc.connection.ConnectionHandler;
 import org.polypheny.db.adapter.jdbc.connection.ConnectionHandlerException;
@@ -69,6 +70,8 @@
         description = "Password to be used for authenticating at the remote instance.")
 @AdapterSettingInteger(name = "maxConnections", defaultValue = 25,
         description = "Maximum number of concurrent JDBC connections.")
+@AdapterSettingInteger(name = "fetchSize", defaultValue = JdbcUtils.DEFAULT_FETCH_SIZE, required = false,
+        description = "Number of rows fetched at once when reading query results. Large results are streamed in chunks of this size. Zero uses the default of the JDBC driver.")
 public class PostgresqlStore extends AbstractJdbcStore {
 
     private String host;
@@ -117,8 +120,9 @@ private ConnectionFactory createConnectionFactory() {
         dataSource.setUsername( username );
         dataSource.setPassword( settings.get( "password" ) );
         dataSource.setDefaultAutoCommit( false );
+        JdbcUtils.enableCursorFetch( dataSource, dialect );
         dataSource.setDefaultTransactionIsolation( Connection.TRANSACTION_READ_UNCOMMITTED );
-        return new TransactionalConnectionFactory( dataSource, Integer.parseInt( settings.get( "maxConnections" ) ), dialect );
+        return new TransactionalConnectionFactory( dataSource, Integer.parseInt( settings.get( "maxConnections" ) ), JdbcUtils.getFetchSize( settings ), dialect );
     }
 
 
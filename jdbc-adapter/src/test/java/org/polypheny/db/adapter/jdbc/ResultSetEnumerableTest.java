@@ -0,0 +1,209 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.jdbc;
+
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.apache.calcite.linq4j.Enumerator;
+import org.junit.Assert;
+import org.junit.Test;
+import org.polypheny.db.adapter.jdbc.connection.ConnectionHandler;
+import org.polypheny.db.sql.SqlDialect;
+import org.polypheny.db.sql.dialect.AnsiSqlDialect;
+
+
+/**
+ * Checks that result sets are streamed from the database instead of being loaded into memory at once. The driver is
+ * simulated by a result set which only holds the rows of the current fetch and fetches the next rows on demand. The
+ * test counts the fetches, so a result which is materialized before it is consumed is detected.
+ */
+public class ResultSetEnumerableTest {
+
+    private static final int ROW_SIZE = 1024;
+    private static final int ROW_COUNT = 1000;
+    private static final int FETCH_SIZE = 16;
+
+
+    @Test
+    public void testStreamResult() {
+        final CursorConnectionHandler handler = new CursorConnectionHandler( ROW_COUNT );
+
+        assertStreamed( ResultSetEnumerable.of( handler, "SELECT payload FROM big" ).enumerator(), handler );
+    }
+
+
+    @Test
+    public void testStreamPreparedResult() {
+        final CursorConnectionHandler handler = new CursorConnectionHandler( ROW_COUNT );
+
+        final Enumerator<Object> enumerator = ResultSetEnumerable.<Object>of(
+                handler,
+                "SELECT payload FROM big WHERE id > ?",
+                resultSet -> () -> {
+                    try {
+                        return resultSet.getObject( 1 );
+                    } catch ( SQLException e ) {
+                        throw new RuntimeException( e );
+                    }
+                },
+                ( statement, connectionHandler ) -> false ).enumerator();
+        assertStreamed( enumerator, handler );
+    }
+
+
+    private static void assertStreamed( Enumerator<Object> enumerator, CursorConnectionHandler handler ) {
+        long count = 0;
+        while ( enumerator.moveNext() ) {
+            Assert.assertEquals( ROW_SIZE, ((byte[]) enumerator.current()).length );
+            count++;
+            // Only the fetches needed for the rows consumed so far have happened
+            Assert.assertEquals( (count + FETCH_SIZE - 1) / FETCH_SIZE, handler.fetches );
+        }
+        enumerator.close();
+        Assert.assertEquals( ROW_COUNT, count );
+        Assert.assertEquals( FETCH_SIZE, handler.usedFetchSize );
+    }
+
+
+    /**
+     * Connection handler whose statements behave like a driver fetching rows from a server-side cursor.
+     */
+    private static class CursorConnectionHandler extends ConnectionHandler {
+
+        private final long rowCount;
+        private int usedFetchSize = -1;
+        private int fetches = 0;
+
+
+        CursorConnectionHandler( long rowCount ) {
+            this.rowCount = rowCount;
+            this.fetchSize = FETCH_SIZE;
+            this.connection = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class[]{ Connection.class },
+                    ( proxy, method, args ) -> {
+                        switch ( method.getName() ) {
+                            case "createStatement":
+                            case "prepareStatement":
+                                return statement( method.getReturnType() );
+                            default:
+                                return null;
+                        }
+                    } );
+        }
+
+
+        private Object statement( Class<?> type ) {
+            final int[] statementFetchSize = { 0 };
+            final ResultSet[] resultSet = { null };
+            return Proxy.newProxyInstance(
+                    Statement.class.getClassLoader(),
+                    new Class[]{ type },
+                    ( proxy, method, args ) -> {
+                        switch ( method.getName() ) {
+                            case "setFetchSize":
+                                statementFetchSize[0] = (int) args[0];
+                                return null;
+                            case "getFetchSize":
+                                return statementFetchSize[0];
+                            case "execute":
+                                if ( statementFetchSize[0] <= 0 ) {
+                                    throw new SQLException( "Without a fetch size, the driver would load all rows into memory" );
+                                }
+                                usedFetchSize = statementFetchSize[0];
+                                resultSet[0] = resultSet( (Statement) proxy, statementFetchSize[0] );
+                                return true;
+                            case "getResultSet":
+                                return resultSet[0];
+                            case "getParameterMetaData":
+                            case "getQueryTimeout":
+                                return method.getReturnType() == int.class ? 0 : null;
+                            default:
+                                return method.getReturnType() == boolean.class ? false : null;
+                        }
+                    } );
+        }
+
+
+        private ResultSet resultSet( Statement statement, int fetchSize ) {
+            final Deque<byte[]> fetched = new ArrayDeque<>( fetchSize );
+            final long[] remaining = { rowCount };
+            final byte[][] current = { null };
+            final ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+                    ResultSetMetaData.class.getClassLoader(),
+                    new Class[]{ ResultSetMetaData.class },
+                    ( proxy, method, args ) -> method.getName().equals( "getColumnCount" ) ? 1 : null );
+            return (ResultSet) Proxy.newProxyInstance(
+                    ResultSet.class.getClassLoader(),
+                    new Class[]{ ResultSet.class },
+                    ( proxy, method, args ) -> {
+                        switch ( method.getName() ) {
+                            case "next":
+                                if ( fetched.isEmpty() && remaining[0] > 0 ) {
+                                    // Fetch the next chunk from the cursor
+                                    fetches++;
+                                    while ( fetched.size() < fetchSize && remaining[0] > 0 ) {
+                                        fetched.add( new byte[ROW_SIZE] );
+                                        remaining[0]--;
+                                    }
+                                }
+                                current[0] = fetched.poll();
+                                return current[0] != null;
+                            case "getObject":
+                                return current[0];
+                            case "getMetaData":
+                                return metaData;
+                            case "getStatement":
+                                return statement;
+                            default:
+                                return null;
+                        }
+                    } );
+        }
+
+
+        @Override
+        public boolean prepare() {
+            return true;
+        }
+
+
+        @Override
+        public void commit() {
+        }
+
+
+        @Override
+        public void rollback() {
+        }
+
+
+        @Override
+        public SqlDialect getDialect() {
+            return AnsiSqlDialect.DEFAULT;
+        }
+
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.jdbc.connection;
+
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.Assert;
+import org.junit.Test;
+import org.polypheny.db.sql.SqlDialect;
+import org.polypheny.db.sql.dialect.AnsiSqlDialect;
+
+
+public class ConnectionHandlerPoolTest {
+
+    @Test
+    public void testReuse() throws ConnectionHandlerException {
+        final ConnectionHandlerPool<FakeConnectionHandler> pool = new ConnectionHandlerPool<>( 2, FakeConnectionHandler::new );
+        final FakeConnectionHandler first = pool.acquire( 1000, 60000 );
+        final FakeConnectionHandler second = pool.acquire( 1000, 60000 );
+        Assert.assertNotSame( first, second );
+        Assert.assertEquals( 0, pool.getNumIdle() );
+
+        pool.release( first );
+        Assert.assertEquals( 1, pool.getNumIdle() );
+        Assert.assertSame( first, pool.acquire( 1000, 60000 ) );
+        Assert.assertEquals( 3, pool.getAcquisitions() );
+    }
+
+
+    @Test
+    public void testTimeout() throws ConnectionHandlerException {
+        final ConnectionHandlerPool<FakeConnectionHandler> pool = new ConnectionHandlerPool<>( 1, FakeConnectionHandler::new );
+        pool.acquire( 1000, 60000 );
+        try {
+            pool.acquire( 50, 60000 );
+            Assert.fail( "Expected a timeout" );
+        } catch ( ConnectionHandlerException e ) {
+            // Expected
+        }
+        Assert.assertEquals( 1, pool.getTimeouts() );
+        Assert.assertEquals( 1, pool.getAcquisitions() );
+    }
+
+
+    @Test
+    public void testFifo() throws Exception {
+        final ConnectionHandlerPool<FakeConnectionHandler> pool = new ConnectionHandlerPool<>( 1, FakeConnectionHandler::new );
+        final FakeConnectionHandler handler = pool.acquire( 1000, 60000 );
+        final List<Integer> order = new CopyOnWriteArrayList<>();
+        final Thread[] waiters = new Thread[5];
+        for ( int i = 0; i < waiters.length; i++ ) {
+            final int id = i;
+            waiters[i] = new Thread( () -> {
+                try {
+                    FakeConnectionHandler h = pool.acquire( 10000, 60000 );
+                    order.add( id );
+                    pool.release( h );
+                } catch ( ConnectionHandlerException e ) {
+                    throw new RuntimeException( e );
+                }
+            } );
+            waiters[i].start();
+            // Make sure the waiters enqueue in the order they have been started
+            while ( pool.getNumWaiting() < i + 1 ) {
+                Thread.sleep( 1 );
+            }
+        }
+        pool.release( handler );
+        for ( Thread waiter : waiters ) {
+            waiter.join();
+        }
+        Assert.assertEquals( Arrays.asList( 0, 1, 2, 3, 4 ), order );
+        Assert.assertTrue( pool.getMaxWaitMillis() > 0 );
+    }
+
+
+    @Test
+    public void testValidation() throws ConnectionHandlerException {
+        final ConnectionHandlerPool<FakeConnectionHandler> pool = new ConnectionHandlerPool<>( 1, FakeConnectionHandler::new );
+        final FakeConnectionHandler broken = pool.acquire( 1000, 60000 );
+        broken.valid = false;
+        pool.release( broken );
+
+        // Recently used handlers are not validated
+        Assert.assertSame( broken, pool.acquire( 1000, 60000 ) );
+        pool.release( broken );
+
+        // Handlers idle for longer than the validation interval are replaced if broken
+        final FakeConnectionHandler replacement = pool.acquire( 1000, -1 );
+        Assert.assertNotSame( broken, replacement );
+        Assert.assertTrue( broken.closed );
+    }
+
+
+    private static class FakeConnectionHandler extends ConnectionHandler {
+
+        private boolean valid = true;
+        private boolean closed = false;
+
+
+        FakeConnectionHandler() {
+            this.connection = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class[]{ Connection.class },
+                    ( proxy, method, args ) -> {
+                        switch ( method.getName() ) {
+                            case "isValid":
+                                return valid;
+                            case "close":
+                                closed = true;
+                                return null;
+                            default:
+                                return null;
+                        }
+                    } );
+        }
+
+
+        @Override
+        public boolean prepare() {
+            return true;
+        }
+
+
+        @Override
+        public void commit() {
+        }
+
+
+        @Override
+        public void rollback() {
+        }
+
+
+        @Override
+        public SqlDialect getDialect() {
+            return AnsiSqlDialect.DEFAULT;
+        }
+
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.polypheny.db.adapter.jdbc.connection;
+
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class PreparedStatementCacheTest {
+
+    private final Set<PreparedStatement> closed = new HashSet<>();
+
+
+    @Test
+    public void testReuse() {
+        final PreparedStatementCache.Statistics statistics = new PreparedStatementCache.Statistics();
+        final PreparedStatementCache cache = new PreparedStatementCache( 10, statistics );
+
+        Assert.assertNull( cache.acquire( "SELECT 1" ) );
+        final PreparedStatement statement = statement();
+        Assert.assertTrue( cache.add( "SELECT 1", statement ) );
+
+        // In use, a second caller has to prepare its own statement
+        Assert.assertNull( cache.acquire( "SELECT 1" ) );
+        Assert.assertFalse( cache.add( "SELECT 1", statement() ) );
+
+        Assert.assertTrue( cache.release( statement ) );
+        Assert.assertSame( statement, cache.acquire( "SELECT 1" ) );
+        Assert.assertTrue( cache.release( statement ) );
+        Assert.assertFalse( closed.contains( statement ) );
+
+        // Statements not handed out by the cache are not released
+        Assert.assertFalse( cache.release( statement() ) );
+
+        Assert.assertEquals( 1, statistics.getHits() );
+        Assert.assertEquals( 2, statistics.getMisses() );
+    }
+
+
+    @Test
+    public void testEviction() {
+        final PreparedStatementCache cache = new PreparedStatementCache( 2, new PreparedStatementCache.Statistics() );
+        final PreparedStatement first = statement();
+        final PreparedStatement second = statement();
+        final PreparedStatement third = statement();
+        cache.add( "SELECT 1", first );
+        cache.release( first );
+        cache.add( "SELECT 2", second );
+        cache.release( second );
+
+        // Touch the first statement, so the second one is the least recently used
+        Assert.assertSame( first, cache.acquire( "SELECT 1" ) );
+        cache.release( first );
+
+        cache.add( "SELECT 3", third );
+        Assert.assertEquals( 2, cache.size() );
+        Assert.assertTrue( closed.contains( second ) );
+        Assert.assertFalse( closed.contains( first ) );
+
+        // A statement evicted while in use is closed once it is released
+        Assert.assertSame( first, cache.acquire( "SELECT 1" ) );
+        cache.release( first );
+        cache.add( "SELECT 4", statement() );
+        Assert.assertFalse( closed.contains( third ) );
+        cache.release( third );
+        Assert.assertTrue( closed.contains( third ) );
+    }
+
+
+    @Test
+    public void testDiscard() {
+        final PreparedStatementCache cache = new PreparedStatementCache( 10, new PreparedStatementCache.Statistics() );
+        final PreparedStatement statement = statement();
+        cache.add( "SELECT 1", statement );
+        Assert.assertTrue( cache.discard( statement ) );
+        Assert.assertTrue( closed.contains( statement ) );
+        Assert.assertEquals( 0, cache.size() );
+
+        final PreparedStatement leaked = statement();
+        cache.add( "SELECT 2", leaked );
+        cache.discardInUse();
+        Assert.assertTrue( closed.contains( leaked ) );
+        Assert.assertNull( cache.acquire( "SELECT 2" ) );
+    }
+
+
+    @Test
+    public void testSchemaChange() {
+        final AtomicLong schemaVersion = new AtomicLong();
+        final PreparedStatementCache cache = new PreparedStatementCache( 10, new PreparedStatementCache.Statistics(), schemaVersion );
+        final PreparedStatement idle = statement();
+        cache.add( "SELECT a FROM t", idle );
+        cache.release( idle );
+        final PreparedStatement running = statement();
+        cache.add( "SELECT b FROM t", running );
+
+        // DDL between two executions
+        schemaVersion.incrementAndGet();
+
+        Assert.assertNull( cache.acquire( "SELECT a FROM t" ) );
+        Assert.assertTrue( closed.contains( idle ) );
+        Assert.assertFalse( closed.contains( running ) );
+        Assert.assertEquals( 0, cache.size() );
+
+        // A statement prepared against the old schema is closed once it is released
+        Assert.assertTrue( cache.release( running ) );
+        Assert.assertTrue( closed.contains( running ) );
+
+        // Statements prepared against the new schema are cached again
+        final PreparedStatement prepared = statement();
+        Assert.assertTrue( cache.add( "SELECT a FROM t", prepared ) );
+        cache.release( prepared );
+        Assert.assertSame( prepared, cache.acquire( "SELECT a FROM t" ) );
+    }
+
+
+    @Test
+    public void testDisabled() {
+        final PreparedStatementCache cache = new PreparedStatementCache( 0, new PreparedStatementCache.Statistics() );
+        Assert.assertFalse( cache.add( "SELECT 1", statement() ) );
+        Assert.assertNull( cache.acquire( "SELECT 1" ) );
+        Assert.assertEquals( 0, cache.size() );
+    }
+
+
+    private PreparedStatement statement() {
+        final PreparedStatement[] self = new PreparedStatement[1];
+        self[0] = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class[]{ PreparedStatement.class },
+                ( proxy, method, args ) -> {
+                    switch ( method.getName() ) {
+                        case "close":
+                            closed.add( self[0] );
+                            return null;
+                        case "getQueryTimeout":
+                            return 0;
+                        case "hashCode":
+                            return System.identityHashCode( proxy );
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                } );
+        return self[0];
+    }
+
+}
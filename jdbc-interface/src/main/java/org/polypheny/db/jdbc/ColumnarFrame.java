@@ -0,0 +1,476 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.jdbc;
+
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.calcite.avatica.ColumnMetaData;
+import org.apache.calcite.avatica.ColumnMetaData.Rep;
+
+
+/**
+ * Columnar binary encoding of the rows of a frame. Instead of serializing every cell as a typed value, the values of
+ * a column are written as one primitive array together with a bitmap of the null values. This avoids the boxing and
+ * the per-cell overhead of the protobuf serialization for wide numeric results.
+ *
+ * The encoding is only used if the client has requested it by setting the connection property
+ * {@value #CONNECTION_PROPERTY} to {@value #CONNECTION_PROPERTY_VALUE}, and only for results whose columns are all
+ * of a supported type (see {@link ColumnType}). An encoded frame is sent as a frame containing a single row with a
+ * single binary value. Since results with binary columns are never encoded, the client can distinguish encoded
+ * frames from regular ones. The decoder ({@link #decode(byte[])}) only depends on Avatica and can be used by clients.
+ *
+ * Layout (big endian): magic, row count and column count as int; then for every column the type tag (byte), a
+ * flag whether the column contains null values (byte), the null bitmap if so, and the values. Fixed-width values are
+ * written for every row (zero for null values), booleans as bitmap and strings as lengths followed by UTF-8 bytes.
+ */
+public final class ColumnarFrame {
+
+    public static final String CONNECTION_PROPERTY = "frameEncoding";
+    public static final String CONNECTION_PROPERTY_VALUE = "columnar";
+
+    public static final int MAGIC = 0x50434631; // "PCF1"
+
+    private static final int HEADER_SIZE = 12;
+
+
+    private ColumnarFrame() {
+        // Only static methods
+    }
+
+
+    /**
+     * Types of columns supported by the columnar encoding.
+     */
+    public enum ColumnType {
+        BOOLEAN( 1, 0 ),
+        BYTE( 2, 1 ),
+        SHORT( 3, 2 ),
+        INT( 4, 4 ),
+        LONG( 5, 8 ),
+        FLOAT( 6, 4 ),
+        DOUBLE( 7, 8 ),
+        STRING( 8, 0 );
+
+        private final byte tag;
+        private final int width;
+
+
+        ColumnType( int tag, int width ) {
+            this.tag = (byte) tag;
+            this.width = width;
+        }
+
+
+        /**
+         * @return The column type or {@code null} if values of this representation can not be encoded
+         */
+        public static ColumnType of( Rep rep ) {
+            switch ( rep ) {
+                case BOOLEAN:
+                case PRIMITIVE_BOOLEAN:
+                    return BOOLEAN;
+                case BYTE:
+                case PRIMITIVE_BYTE:
+                    return BYTE;
+                case SHORT:
+                case PRIMITIVE_SHORT:
+                    return SHORT;
+                case INTEGER:
+                case PRIMITIVE_INT:
+                    return INT;
+                case LONG:
+                case PRIMITIVE_LONG:
+                    return LONG;
+                case FLOAT:
+                case PRIMITIVE_FLOAT:
+                    return FLOAT;
+                case DOUBLE:
+                case PRIMITIVE_DOUBLE:
+                    return DOUBLE;
+                case STRING:
+                    return STRING;
+                default:
+                    return null;
+            }
+        }
+
+
+        static ColumnType ofTag( byte tag ) {
+            for ( ColumnType type : values() ) {
+                if ( type.tag == tag ) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException( "Unknown column type: " + tag );
+        }
+    }
+
+
+    /**
+     * Determines the column types of a result.
+     *
+     * @return The column types or {@code null} if the result can not be encoded
+     */
+    public static ColumnType[] columnTypes( List<ColumnMetaData> columns ) {
+        if ( columns == null || columns.isEmpty() ) {
+            return null;
+        }
+        final ColumnType[] types = new ColumnType[columns.size()];
+        for ( int i = 0; i < types.length; i++ ) {
+            final ColumnMetaData column = columns.get( i );
+            if ( column.type == null || column.type.rep == null || column.type.id == java.sql.Types.ARRAY ) {
+                return null;
+            }
+            types[i] = ColumnType.of( column.type.rep );
+            if ( types[i] == null ) {
+                return null;
+            }
+        }
+        return types;
+    }
+
+
+    /**
+     * Encodes the rows of a frame.
+     *
+     * @param types Types of the columns as returned by {@link #columnTypes(List)}
+     * @param rows Rows of the frame
+     * @return The encoded frame or {@code null} if a value does not match the type of its column
+     */
+    public static byte[] encode( ColumnType[] types, List<? extends List<Object>> rows ) {
+        final int rowCount = rows.size();
+        final int bitmapSize = (rowCount + 7) / 8;
+
+        // Determine the size and convert strings up front
+        final byte[][][] strings = new byte[types.length][][];
+        final boolean[] hasNulls = new boolean[types.length];
+        long size = HEADER_SIZE;
+        for ( int c = 0; c < types.length; c++ ) {
+            size += 2;
+            if ( types[c] == ColumnType.STRING ) {
+                strings[c] = new byte[rowCount][];
+                size += 4L * rowCount;
+            }
+            for ( int r = 0; r < rowCount; r++ ) {
+                final List<Object> row = rows.get( r );
+                if ( row.size() != types.length ) {
+                    return null;
+                }
+                final Object value = row.get( c );
+                if ( value == null ) {
+                    hasNulls[c] = true;
+                } else if ( !fits( types[c], value ) ) {
+                    return null;
+                } else if ( types[c] == ColumnType.STRING ) {
+                    strings[c][r] = value.toString().getBytes( StandardCharsets.UTF_8 );
+                    size += strings[c][r].length;
+                }
+            }
+            if ( hasNulls[c] ) {
+                size += bitmapSize;
+            }
+            size += types[c] == ColumnType.BOOLEAN ? bitmapSize : (long) types[c].width * rowCount;
+        }
+        if ( size > Integer.MAX_VALUE ) {
+            return null;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate( (int) size );
+        buffer.putInt( MAGIC );
+        buffer.putInt( rowCount );
+        buffer.putInt( types.length );
+        for ( int c = 0; c < types.length; c++ ) {
+            final ColumnType type = types[c];
+            buffer.put( type.tag );
+            buffer.put( (byte) (hasNulls[c] ? 1 : 0) );
+            if ( hasNulls[c] ) {
+                final byte[] nulls = new byte[bitmapSize];
+                for ( int r = 0; r < rowCount; r++ ) {
+                    if ( rows.get( r ).get( c ) == null ) {
+                        nulls[r >> 3] |= 1 << (r & 7);
+                    }
+                }
+                buffer.put( nulls );
+            }
+            switch ( type ) {
+                case BOOLEAN:
+                    final byte[] bits = new byte[bitmapSize];
+                    for ( int r = 0; r < rowCount; r++ ) {
+                        if ( Boolean.TRUE.equals( rows.get( r ).get( c ) ) ) {
+                            bits[r >> 3] |= 1 << (r & 7);
+                        }
+                    }
+                    buffer.put( bits );
+                    break;
+                case STRING:
+                    for ( int r = 0; r < rowCount; r++ ) {
+                        buffer.putInt( strings[c][r] == null ? 0 : strings[c][r].length );
+                    }
+                    for ( int r = 0; r < rowCount; r++ ) {
+                        if ( strings[c][r] != null ) {
+                            buffer.put( strings[c][r] );
+                        }
+                    }
+                    break;
+                default:
+                    for ( int r = 0; r < rowCount; r++ ) {
+                        putNumber( buffer, type, (Number) rows.get( r ).get( c ) );
+                    }
+            }
+        }
+        return buffer.array();
+    }
+
+
+    /**
+     * Decodes a frame encoded by {@link #encode(ColumnType[], List)}.
+     */
+    public static Columns decode( byte[] data ) {
+        final ByteBuffer buffer = ByteBuffer.wrap( data );
+        if ( buffer.getInt() != MAGIC ) {
+            throw new IllegalArgumentException( "Not a columnar frame" );
+        }
+        final int rowCount = buffer.getInt();
+        final int columnCount = buffer.getInt();
+        final int bitmapSize = (rowCount + 7) / 8;
+        final ColumnType[] types = new ColumnType[columnCount];
+        final byte[][] nulls = new byte[columnCount][];
+        final Object[] values = new Object[columnCount];
+        for ( int c = 0; c < columnCount; c++ ) {
+            types[c] = ColumnType.ofTag( buffer.get() );
+            if ( buffer.get() != 0 ) {
+                nulls[c] = new byte[bitmapSize];
+                buffer.get( nulls[c] );
+            }
+            switch ( types[c] ) {
+                case BOOLEAN:
+                    final byte[] bits = new byte[bitmapSize];
+                    buffer.get( bits );
+                    final boolean[] booleans = new boolean[rowCount];
+                    for ( int r = 0; r < rowCount; r++ ) {
+                        booleans[r] = (bits[r >> 3] & (1 << (r & 7))) != 0;
+                    }
+                    values[c] = booleans;
+                    break;
+                case BYTE:
+                    final byte[] bytes = new byte[rowCount];
+                    buffer.get( bytes );
+                    values[c] = bytes;
+                    break;
+                case SHORT:
+                    final short[] shorts = new short[rowCount];
+                    buffer.asShortBuffer().get( shorts );
+                    buffer.position( buffer.position() + 2 * rowCount );
+                    values[c] = shorts;
+                    break;
+                case INT:
+                    final int[] ints = new int[rowCount];
+                    buffer.asIntBuffer().get( ints );
+                    buffer.position( buffer.position() + 4 * rowCount );
+                    values[c] = ints;
+                    break;
+                case LONG:
+                    final long[] longs = new long[rowCount];
+                    buffer.asLongBuffer().get( longs );
+                    buffer.position( buffer.position() + 8 * rowCount );
+                    values[c] = longs;
+                    break;
+                case FLOAT:
+                    final float[] floats = new float[rowCount];
+                    buffer.asFloatBuffer().get( floats );
+                    buffer.position( buffer.position() + 4 * rowCount );
+                    values[c] = floats;
+                    break;
+                case DOUBLE:
+                    final double[] doubles = new double[rowCount];
+                    buffer.asDoubleBuffer().get( doubles );
+                    buffer.position( buffer.position() + 8 * rowCount );
+                    values[c] = doubles;
+                    break;
+                case STRING:
+                    final int[] lengths = new int[rowCount];
+                    buffer.asIntBuffer().get( lengths );
+                    buffer.position( buffer.position() + 4 * rowCount );
+                    final String[] strings = new String[rowCount];
+                    for ( int r = 0; r < rowCount; r++ ) {
+                        if ( nulls[c] == null || (nulls[c][r >> 3] & (1 << (r & 7))) == 0 ) {
+                            strings[r] = new String( data, buffer.position(), lengths[r], StandardCharsets.UTF_8 );
+                        }
+                        buffer.position( buffer.position() + lengths[r] );
+                    }
+                    values[c] = strings;
+                    break;
+                default:
+                    throw new IllegalStateException( "Unhandled column type: " + types[c] );
+            }
+        }
+        return new Columns( rowCount, types, nulls, values );
+    }
+
+
+    private static boolean fits( ColumnType type, Object value ) {
+        switch ( type ) {
+            case BOOLEAN:
+                return value instanceof Boolean;
+            case STRING:
+                return value instanceof String;
+            case BYTE:
+                return value instanceof Byte;
+            case SHORT:
+                return value instanceof Byte || value instanceof Short;
+            case INT:
+                return value instanceof Byte || value instanceof Short || value instanceof Integer;
+            case LONG:
+                return value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long;
+            case FLOAT:
+                return value instanceof Float;
+            case DOUBLE:
+                return value instanceof Float || value instanceof Double;
+            default:
+                return false;
+        }
+    }
+
+
+    private static void putNumber( ByteBuffer buffer, ColumnType type, Number value ) {
+        switch ( type ) {
+            case BYTE:
+                buffer.put( value == null ? 0 : value.byteValue() );
+                break;
+            case SHORT:
+                buffer.putShort( value == null ? 0 : value.shortValue() );
+                break;
+            case INT:
+                buffer.putInt( value == null ? 0 : value.intValue() );
+                break;
+            case LONG:
+                buffer.putLong( value == null ? 0 : value.longValue() );
+                break;
+            case FLOAT:
+                buffer.putFloat( value == null ? 0 : value.floatValue() );
+                break;
+            case DOUBLE:
+                buffer.putDouble( value == null ? 0 : value.doubleValue() );
+                break;
+            default:
+                throw new IllegalStateException( "Not a numeric column type: " + type );
+        }
+    }
+
+
+    /**
+     * Decoded columnar frame. The values of a column are available as primitive array; values of null entries are
+     * undefined and need to be checked using {@link #isNull(int, int)}.
+     */
+    public static class Columns {
+
+        private final int rowCount;
+        private final ColumnType[] types;
+        private final byte[][] nulls;
+        private final Object[] values;
+
+
+        Columns( int rowCount, ColumnType[] types, byte[][] nulls, Object[] values ) {
+            this.rowCount = rowCount;
+            this.types = types;
+            this.nulls = nulls;
+            this.values = values;
+        }
+
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+
+        public int getColumnCount() {
+            return types.length;
+        }
+
+
+        public ColumnType getType( int column ) {
+            return types[column];
+        }
+
+
+        public boolean isNull( int column, int row ) {
+            return nulls[column] != null && (nulls[column][row >> 3] & (1 << (row & 7))) != 0;
+        }
+
+
+        /**
+         * @return The values of the column as primitive array (e.g. {@code long[]} for {@link ColumnType#LONG}) or
+         * as {@code String[]} for {@link ColumnType#STRING}
+         */
+        public Object getValues( int column ) {
+            return values[column];
+        }
+
+
+        /**
+         * Returns the value of a cell boxed in the same type as in a row based frame.
+         */
+        public Object get( int column, int row ) {
+            if ( isNull( column, row ) ) {
+                return null;
+            }
+            switch ( types[column] ) {
+                case BOOLEAN:
+                    return ((boolean[]) values[column])[row];
+                case BYTE:
+                    return ((byte[]) values[column])[row];
+                case SHORT:
+                    return ((short[]) values[column])[row];
+                case INT:
+                    return ((int[]) values[column])[row];
+                case LONG:
+                    return ((long[]) values[column])[row];
+                case FLOAT:
+                    return ((float[]) values[column])[row];
+                case DOUBLE:
+                    return ((double[]) values[column])[row];
+                case STRING:
+                    return ((String[]) values[column])[row];
+                default:
+                    throw new IllegalStateException( "Unhandled column type: " + types[column] );
+            }
+        }
+
+
+        /**
+         * Converts the columns back to rows, e.g. for clients which do not process columns directly.
+         */
+        public List<List<Object>> toRows() {
+            final List<List<Object>> rows = new ArrayList<>( rowCount );
+            for ( int r = 0; r < rowCount; r++ ) {
+                final Object[] row = new Object[types.length];
+                for ( int c = 0; c < types.length; c++ ) {
+                    row[c] = get( c, r );
+                }
+                rows.add( Arrays.asList( row ) );
+            }
+            return rows;
+        }
+
+    }
+
+}
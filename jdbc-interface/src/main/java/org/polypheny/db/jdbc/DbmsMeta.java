@@ -92,6 +92,7 @@
 import org.polypheny.db.information.InformationManager;
 import org.polypheny.db.information.InformationPage;
 import org.polypheny.db.information.InformationTable;
+import org.polypheny.db.jdbc.ColumnarFrame.ColumnType;
 import org.polypheny.db.processing.SqlProcessor;
 import org.polypheny.db.rel.RelRoot;
 import org.polypheny.db.rel.type.RelDataType;
@@ -120,6 +121,11 @@ public class DbmsMeta implements ProtobufMeta {
 
     public static final boolean SEND_FIRST_FRAME_WITH_RESPONSE = false;
 
+    /**
+     * Connection property with the degree of parallelism for the statements of the connection (see {@link RuntimeConfig#PARALLELISM}).
+     */
+    public static final String PARALLELISM_PROPERTY = "parallelism";
+
     private final ConcurrentMap<String, PolyphenyDbConnectionHandle> openConnections = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, PolyphenyDbStatementHandle> openStatements = new ConcurrentHashMap<>();
 
@@ -895,7 +901,7 @@ public ExecuteBatchResult executeBatchProtobuf( final StatementHandle h, final L
                     // Nothing to execute
                     return new ExecuteBatchResult( new long[0] );
                 }
-                statementHandle.setStatement( connection.getCurrentOrCreateNewTransaction().createStatement() );
+                statementHandle.setStatement( createTransactionStatement( connection ) );
                 for ( Entry<Long, List<Object>> valuesList : values.entrySet() ) {
                     statementHandle.getStatement().getDataContext().addParameterValues( valuesList.getKey(), null, valuesList.getValue() );
                 }
@@ -1029,7 +1035,7 @@ public ExecuteResult prepareAndExecute( final StatementHandle h, final String sq
 
             PolyphenyDbStatementHandle statementHandle = getPolyphenyDbStatementHandle( h );
             statementHandle.setPreparedQuery( sql );
-            statementHandle.setStatement( connection.getCurrentOrCreateNewTransaction().createStatement() );
+            statementHandle.setStatement( createTransactionStatement( connection ) );
             return execute( h, new LinkedList<>(), maxRowsInFirstFrame, connection );
         }
     }
@@ -1098,24 +1104,51 @@ public Frame fetch( final StatementHandle h, final long offset, final int fetchM
             final PolyphenyDbStatementHandle statementHandle = getPolyphenyDbStatementHandle( h );
 
             final PolyphenyDbSignature signature = statementHandle.getSignature();
+            final FramePrefetcher prefetcher = statementHandle.getPrefetcher();
             final Iterator<Object> iterator;
-            if ( statementHandle.getOpenResultSet() == null ) {
-                final Iterable<Object> iterable = createIterable( statementHandle.getStatement().getDataContext(), signature );
-                iterator = iterable.iterator();
-                statementHandle.setOpenResultSet( iterator );
-                statementHandle.getExecutionStopWatch().start();
-            } else {
+            final List<Object> rows1;
+            if ( prefetcher != null ) {
+                // The next frames are produced in the background
                 iterator = statementHandle.getOpenResultSet();
-                statementHandle.getExecutionStopWatch().resume();
+                connection.setActivePrefetcher( prefetcher );
+                rows1 = prefetcher.fetch( fetchMaxRowCount );
+            } else {
+                connection.pausePrefetching();
+                if ( statementHandle.getOpenResultSet() == null ) {
+                    final Iterable<Object> iterable = createIterable( statementHandle.getStatement().getDataContext(), signature );
+                    iterator = iterable.iterator();
+                    statementHandle.setOpenResultSet( iterator );
+                    statementHandle.getExecutionStopWatch().start();
+                } else {
+                    iterator = statementHandle.getOpenResultSet();
+                    statementHandle.getExecutionStopWatch().resume();
+                }
+                final List rows = MetaImpl.collect( signature.cursorFactory, LimitIterator.of( iterator, fetchMaxRowCount ), new ArrayList<>() );
+                statementHandle.getExecutionStopWatch().suspend();
+                //noinspection unchecked
+                rows1 = (List<Object>) rows;
+            }
+            boolean done = fetchMaxRowCount == 0 || rows1.size() < fetchMaxRowCount;
+            if ( !done && prefetcher == null && fetchMaxRowCount > 0 && RuntimeConfig.JDBC_INTERFACE_PREFETCH.getBoolean() ) {
+                // Produce the next frame while the client is consuming this one
+                final FramePrefetcher newPrefetcher = new FramePrefetcher(
+                        iterator,
+                        signature.cursorFactory,
+                        fetchMaxRowCount,
+                        RuntimeConfig.JDBC_INTERFACE_PREFETCH_MAX_ROWS.getInteger(),
+                        "JDBC-Prefetch-" + h.connectionId + "-" + h.id );
+                statementHandle.setPrefetcher( newPrefetcher );
+                connection.setActivePrefetcher( newPrefetcher );
+                newPrefetcher.start();
             }
-            final List rows = MetaImpl.collect( signature.cursorFactory, LimitIterator.of( iterator, fetchMaxRowCount ), new ArrayList<>() );
-            statementHandle.getExecutionStopWatch().suspend();
-            boolean done = fetchMaxRowCount == 0 || rows.size() < fetchMaxRowCount;
-            @SuppressWarnings("unchecked")
-            List<Object> rows1 = (List<Object>) rows;
             if ( done ) {
                 statementHandle.getExecutionStopWatch().stop();
-                signature.getExecutionTimeMonitor().setExecutionTime( statementHandle.getExecutionStopWatch().getNanoTime() );
+                long executionTime = statementHandle.getExecutionStopWatch().getNanoTime();
+                if ( prefetcher != null ) {
+                    executionTime += prefetcher.getExecutionNanos();
+                }
+                statementHandle.closePrefetcher();
+                signature.getExecutionTimeMonitor().setExecutionTime( executionTime );
                 try {
                     if ( iterator instanceof AutoCloseable ) {
                         ((AutoCloseable) iterator).close();
@@ -1124,11 +1157,39 @@ public Frame fetch( final StatementHandle h, final long offset, final int fetchM
                     log.error( "Exception while closing result iterator", e );
                 }
             }
+            if ( connection.isColumnarFrames() && !rows1.isEmpty() ) {
+                // Send the rows as one binary value if the client has requested columnar frames
+                final ColumnType[] columnTypes = ColumnarFrame.columnTypes( signature.columns );
+                if ( columnTypes != null ) {
+                    final byte[] encoded = ColumnarFrame.encode( columnTypes, toRows( signature.cursorFactory, rows1 ) );
+                    if ( encoded != null ) {
+                        return new Meta.Frame( offset, done, Collections.singletonList( Collections.singletonList( encoded ) ) );
+                    }
+                }
+            }
             return new Meta.Frame( offset, done, rows1 );
         }
     }
 
 
+    /**
+     * Returns the rows of a frame as lists of values. Results with a single column use the OBJECT cursor style, whose
+     * rows can be the values themselves.
+     */
+    private static List<List<Object>> toRows( CursorFactory cursorFactory, List<Object> rows ) {
+        final List<List<Object>> result = new ArrayList<>( rows.size() );
+        for ( Object row : rows ) {
+            if ( cursorFactory.style == Style.OBJECT && !(row instanceof List) ) {
+                result.add( Collections.singletonList( row ) );
+            } else {
+                //noinspection unchecked
+                result.add( (List<Object>) row );
+            }
+        }
+        return result;
+    }
+
+
     private Iterable<Object> createIterable( DataContext dataContext, PolyphenyDbSignature signature ) {
         //noinspection unchecked
         final PolyphenyDbSignature<Object> polyphenyDbSignature = (PolyphenyDbSignature<Object>) signature;
@@ -1172,7 +1233,7 @@ public ExecuteResult execute( final StatementHandle h, final List<TypedValue> pa
                 log.trace( "execute( StatementHandle {}, List<TypedValue> {}, int {} )", h, parameterValues, maxRowsInFirstFrame );
             }
             final PolyphenyDbStatementHandle statementHandle = getPolyphenyDbStatementHandle( h );
-            statementHandle.setStatement( connection.getCurrentOrCreateNewTransaction().createStatement() );
+            statementHandle.setStatement( createTransactionStatement( connection ) );
             return execute( h, parameterValues, maxRowsInFirstFrame, connection );
         }
     }
@@ -1346,6 +1407,8 @@ public void closeStatement( final StatementHandle statementHandle ) {
 
             final PolyphenyDbStatementHandle toClose = openStatements.remove( statementHandle.connectionId + "::" + Integer.toString( statementHandle.id ) );
             if ( toClose != null ) {
+                // Stop the producer before the result set is closed
+                toClose.closePrefetcher();
                 if ( toClose.getOpenResultSet() != null && toClose.getOpenResultSet() instanceof AutoCloseable ) {
                     try {
                         ((AutoCloseable) toClose.getOpenResultSet()).close();
@@ -1435,7 +1498,16 @@ public void openConnection( final ConnectionHandle ch, final Map<String, String>
             throw new AvaticaRuntimeException( e.getLocalizedMessage(), -1, "", AvaticaSeverity.ERROR );
         }
 
-        openConnections.put( ch.id, new PolyphenyDbConnectionHandle( ch, user, ch.id, database, schema, transactionManager ) );
+        final PolyphenyDbConnectionHandle connection = new PolyphenyDbConnectionHandle( ch, user, ch.id, database, schema, transactionManager );
+        connection.setColumnarFrames( ColumnarFrame.CONNECTION_PROPERTY_VALUE.equalsIgnoreCase( connectionParameters.get( ColumnarFrame.CONNECTION_PROPERTY ) ) );
+        if ( connectionParameters.get( PARALLELISM_PROPERTY ) != null ) {
+            try {
+                connection.setParallelism( Integer.parseInt( connectionParameters.get( PARALLELISM_PROPERTY ).trim() ) );
+            } catch ( NumberFormatException e ) {
+                throw new AvaticaRuntimeException( "Invalid value for connection property " + PARALLELISM_PROPERTY + ": " + connectionParameters.get( PARALLELISM_PROPERTY ), -1, "", AvaticaSeverity.ERROR );
+            }
+        }
+        openConnections.put( ch.id, connection );
     }
 
 
@@ -1482,6 +1554,18 @@ public void closeConnection( ConnectionHandle ch ) {
     }
 
 
+    /**
+     * Creates a statement in the current transaction of the connection and passes the settings of the connection to it.
+     */
+    private org.polypheny.db.transaction.Statement createTransactionStatement( PolyphenyDbConnectionHandle connection ) {
+        final org.polypheny.db.transaction.Statement statement = connection.getCurrentOrCreateNewTransaction().createStatement();
+        if ( connection.getParallelism() != null ) {
+            statement.getDataContext().addAll( Collections.singletonMap( DataContext.Variable.PARALLELISM.camelName, connection.getParallelism() ) );
+        }
+        return statement;
+    }
+
+
     private PolyphenyDbConnectionHandle getPolyphenyDbConnectionHandle( String connectionId ) {
         if ( openConnections.containsKey( connectionId ) ) {
             return openConnections.get( connectionId );
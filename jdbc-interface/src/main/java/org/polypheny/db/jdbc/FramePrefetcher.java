@@ -0,0 +1,250 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.jdbc;
+
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.calcite.avatica.Meta.CursorFactory;
+import org.apache.calcite.avatica.MetaImpl;
+import org.polypheny.db.util.LimitIterator;
+
+
+/**
+ * Produces the frames of a result set on a background thread while the client is consuming the previous frame. This
+ * overlaps the execution of the query with the transfer of the result to the client. The number of buffered frames is
+ * bounded; the producer waits until the client has fetched a frame before it continues.
+ *
+ * Since the statements of a transaction must not be executed concurrently, the producer can be paused. A paused
+ * prefetcher keeps the already produced frames and continues producing the next frames once it is started again.
+ * The prefetcher does not own the iterator; closing the iterator is left to the caller.
+ */
+@Slf4j
+public class FramePrefetcher implements AutoCloseable {
+
+    private final Iterator<Object> iterator;
+    private final CursorFactory cursorFactory;
+    private final int frameSize;
+    private final int maxBufferedFrames;
+    private final String name;
+
+    // Guarded by this
+    private final Deque<List<Object>> frames = new ArrayDeque<>();
+    private Thread worker;
+    private boolean stopRequested = false;
+    private boolean exhausted = false;
+    private boolean closed = false;
+    private Throwable error;
+
+    private final AtomicLong executionNanos = new AtomicLong();
+
+
+    /**
+     * @param iterator Iterator over the remaining rows of the result set
+     * @param cursorFactory Cursor factory of the signature, used to convert the rows
+     * @param frameSize Number of rows produced at once
+     * @param maxBufferedRows Maximum number of rows buffered in advance; at least one frame is buffered
+     * @param name Name of the producer thread
+     */
+    public FramePrefetcher( Iterator<Object> iterator, CursorFactory cursorFactory, int frameSize, int maxBufferedRows, String name ) {
+        if ( frameSize <= 0 ) {
+            throw new IllegalArgumentException( "The frame size needs to be positive" );
+        }
+        this.iterator = iterator;
+        this.cursorFactory = cursorFactory;
+        this.frameSize = frameSize;
+        this.maxBufferedFrames = Math.max( 1, maxBufferedRows / frameSize );
+        this.name = name;
+    }
+
+
+    /**
+     * Starts or resumes the production of frames in the background.
+     */
+    public synchronized void start() {
+        if ( closed || exhausted || error != null || worker != null ) {
+            return;
+        }
+        stopRequested = false;
+        worker = new Thread( this::produce, name );
+        worker.setDaemon( true );
+        worker.start();
+    }
+
+
+    /**
+     * Stops the production of frames and waits until the producer has finished the frame it is currently working on.
+     * Frames which have already been produced are kept.
+     */
+    public void pause() {
+        final Thread toJoin;
+        synchronized ( this ) {
+            if ( worker == null ) {
+                return;
+            }
+            stopRequested = true;
+            notifyAll();
+            toJoin = worker;
+        }
+        join( toJoin );
+    }
+
+
+    /**
+     * Returns the next rows of the result set. Blocks until enough rows have been produced or the end of the
+     * result set has been reached.
+     *
+     * @param maxRows Maximum number of rows to return; negative means no limit
+     * @return The rows; fewer than {@code maxRows} only if the end of the result set has been reached
+     */
+    public List<Object> fetch( int maxRows ) {
+        final int limit = maxRows < 0 ? Integer.MAX_VALUE : maxRows;
+        final List<Object> rows = new ArrayList<>( Math.min( limit, frameSize ) );
+        synchronized ( this ) {
+            start();
+            while ( rows.size() < limit ) {
+                while ( frames.isEmpty() ) {
+                    if ( error != null ) {
+                        if ( error instanceof RuntimeException ) {
+                            throw (RuntimeException) error;
+                        }
+                        throw new RuntimeException( error );
+                    }
+                    if ( exhausted || closed ) {
+                        return rows;
+                    }
+                    // The worker stops if it has been paused concurrently
+                    start();
+                    try {
+                        wait();
+                    } catch ( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException( "Interrupted while waiting for the next frame", e );
+                    }
+                }
+                final List<Object> frame = frames.peekFirst();
+                final int n = Math.min( frame.size(), limit - rows.size() );
+                rows.addAll( frame.subList( 0, n ) );
+                frames.removeFirst();
+                if ( n < frame.size() ) {
+                    // Keep the rest of the frame for the next call
+                    frames.addFirst( new ArrayList<>( frame.subList( n, frame.size() ) ) );
+                }
+                // Wake up the producer waiting for free space
+                notifyAll();
+            }
+        }
+        return rows;
+    }
+
+
+    /**
+     * Time (in nanoseconds) spent by the producer on executing the query.
+     */
+    public long getExecutionNanos() {
+        return executionNanos.get();
+    }
+
+
+    /**
+     * Number of frames currently buffered.
+     */
+    public synchronized int getNumBufferedFrames() {
+        return frames.size();
+    }
+
+
+    /**
+     * Stops the producer and discards all buffered frames.
+     */
+    @Override
+    public void close() {
+        synchronized ( this ) {
+            closed = true;
+            frames.clear();
+        }
+        pause();
+    }
+
+
+    private void produce() {
+        try {
+            while ( true ) {
+                synchronized ( this ) {
+                    while ( frames.size() >= maxBufferedFrames && !stopRequested ) {
+                        wait();
+                    }
+                    if ( stopRequested ) {
+                        return;
+                    }
+                }
+
+                final long start = System.nanoTime();
+                @SuppressWarnings("unchecked") final List<Object> frame = (List<Object>) (List) MetaImpl.collect( cursorFactory, LimitIterator.of( iterator, frameSize ), new ArrayList<>( frameSize ) );
+                executionNanos.addAndGet( System.nanoTime() - start );
+
+                synchronized ( this ) {
+                    if ( !closed && !frame.isEmpty() ) {
+                        frames.addLast( frame );
+                    }
+                    if ( frame.size() < frameSize ) {
+                        exhausted = true;
+                        return;
+                    }
+                    notifyAll();
+                }
+            }
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            synchronized ( this ) {
+                error = e;
+            }
+        } catch ( Throwable t ) {
+            log.debug( "Exception while prefetching frame", t );
+            synchronized ( this ) {
+                error = t;
+            }
+        } finally {
+            synchronized ( this ) {
+                worker = null;
+                notifyAll();
+            }
+        }
+    }
+
+
+    private static void join( Thread thread ) {
+        boolean interrupted = false;
+        while ( thread.isAlive() ) {
+            try {
+                thread.join();
+            } catch ( InterruptedException e ) {
+                interrupted = true;
+            }
+        }
+        if ( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -47,6 +47,9 @@ public class PolyphenyDbConnectionHandle {
     private final ConnectionId connectionId;
     private Transaction currentTransaction;
     private PolyphenyDbResultSet currentOpenResultSet;
+    private FramePrefetcher activePrefetcher;
+    private volatile boolean columnarFrames = false;
+    private volatile Integer parallelism = null;
 
     private final TransactionManager transactionManager;
 
@@ -84,6 +87,7 @@ public ConnectionId getConnectionId() {
 
     public Transaction getCurrentTransaction() {
         synchronized ( this ) {
+            pausePrefetching();
             return currentTransaction;
         }
     }
@@ -91,6 +95,7 @@ public Transaction getCurrentTransaction() {
 
     public Transaction endCurrentTransaction() {
         synchronized ( this ) {
+            pausePrefetching();
             Transaction endedTransaction = currentTransaction;
             currentTransaction = null;
             return endedTransaction;
@@ -100,6 +105,7 @@ public Transaction endCurrentTransaction() {
 
     public Transaction getCurrentOrCreateNewTransaction() {
         synchronized ( this ) {
+            pausePrefetching();
             if ( currentTransaction == null || !currentTransaction.isActive() ) {
                 currentTransaction = transactionManager.startTransaction( user, schema, database, false, "JDBC Interface" );
             }
@@ -108,6 +114,59 @@ public Transaction getCurrentOrCreateNewTransaction() {
     }
 
 
+    /**
+     * Makes the specified prefetcher the only one producing frames in the background. The statements of a transaction
+     * must not be executed concurrently, so the previously active prefetcher of this connection is paused.
+     */
+    public void setActivePrefetcher( FramePrefetcher prefetcher ) {
+        synchronized ( this ) {
+            if ( activePrefetcher != prefetcher ) {
+                pausePrefetching();
+                activePrefetcher = prefetcher;
+            }
+        }
+    }
+
+
+    /**
+     * Pauses the prefetcher producing frames in the background, so that the current transaction can be used by the
+     * calling thread. Buffered frames are kept.
+     */
+    public void pausePrefetching() {
+        synchronized ( this ) {
+            if ( activePrefetcher != null ) {
+                activePrefetcher.pause();
+                activePrefetcher = null;
+            }
+        }
+    }
+
+
+    /**
+     * Whether the client has requested frames in the columnar encoding (see {@link ColumnarFrame}).
+     */
+    public boolean isColumnarFrames() {
+        return columnarFrames;
+    }
+
+
+    public void setColumnarFrames( boolean columnarFrames ) {
+        this.columnarFrames = columnarFrames;
+    }
+
+
+    /**
+     * The degree of parallelism the client has requested for its statements, or {@code null} to use the configured degree.
+     */
+    public Integer getParallelism() {
+        return parallelism;
+    }
+
+
+    public void setParallelism( Integer parallelism ) {
+        this.parallelism = parallelism;
+    }
+
 
     public void setCurrentOpenResultSet( PolyphenyDbResultSet resultSet ) {
         this.currentOpenResultSet = resultSet;
@@ -32,6 +32,7 @@ public class PolyphenyDbStatementHandle {
     private final int statementId;
     private volatile transient Iterator<Object> openResultSet;
     private volatile transient PolyphenyDbSignature signature;
+    private volatile transient FramePrefetcher prefetcher;
     @Getter
     @Setter
     private volatile transient String preparedQuery;
@@ -76,7 +77,30 @@ public synchronized Iterator<Object> getOpenResultSet() {
     }
 
 
+    public synchronized FramePrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+
+    public synchronized void setPrefetcher( FramePrefetcher prefetcher ) {
+        closePrefetcher();
+        this.prefetcher = prefetcher;
+    }
+
+
+    /**
+     * Stops prefetching frames of the open result set. Needs to be called before the result set is closed.
+     */
+    public synchronized void closePrefetcher() {
+        if ( prefetcher != null ) {
+            prefetcher.close();
+            prefetcher = null;
+        }
+    }
+
+
     public synchronized void setSignature( PolyphenyDbSignature signature ) {
+        closePrefetcher();
         this.signature = signature;
         this.openResultSet = null;
         executionStopWatch.reset();
@@ -89,6 +113,7 @@ public synchronized PolyphenyDbSignature getSignature() {
 
 
     public void unset() {
+        closePrefetcher();
         this.openResultSet = null;
         this.signature = null;
         if ( statement != null ) {
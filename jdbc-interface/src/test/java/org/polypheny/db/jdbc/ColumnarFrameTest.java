@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.jdbc;
+
+
+import java.sql.DatabaseMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.calcite.avatica.ColumnMetaData;
+import org.apache.calcite.avatica.ColumnMetaData.Rep;
+import org.junit.Assert;
+import org.junit.Test;
+import org.polypheny.db.jdbc.ColumnarFrame.ColumnType;
+import org.polypheny.db.jdbc.ColumnarFrame.Columns;
+
+
+public class ColumnarFrameTest {
+
+    @Test
+    public void testRoundTrip() {
+        final List<ColumnMetaData> columns = Arrays.asList(
+                column( 0, Types.BOOLEAN, Rep.BOOLEAN ),
+                column( 1, Types.TINYINT, Rep.BYTE ),
+                column( 2, Types.SMALLINT, Rep.SHORT ),
+                column( 3, Types.INTEGER, Rep.INTEGER ),
+                column( 4, Types.BIGINT, Rep.PRIMITIVE_LONG ),
+                column( 5, Types.REAL, Rep.FLOAT ),
+                column( 6, Types.DOUBLE, Rep.DOUBLE ),
+                column( 7, Types.VARCHAR, Rep.STRING ) );
+        final ColumnType[] types = ColumnarFrame.columnTypes( columns );
+        Assert.assertNotNull( types );
+
+        final List<List<Object>> rows = new ArrayList<>();
+        for ( int i = 0; i < 21; i++ ) {
+            if ( i % 5 == 0 ) {
+                rows.add( Arrays.asList( null, null, null, null, null, null, null, null ) );
+            } else {
+                rows.add( Arrays.asList( i % 2 == 0, (byte) i, (short) -i, i * 1000, (long) i << 40, i / 4f, i / 3d, "row " + i + " ä" ) );
+            }
+        }
+
+        final byte[] encoded = ColumnarFrame.encode( types, rows );
+        Assert.assertNotNull( encoded );
+        final Columns decoded = ColumnarFrame.decode( encoded );
+        Assert.assertEquals( rows.size(), decoded.getRowCount() );
+        Assert.assertEquals( 8, decoded.getColumnCount() );
+        Assert.assertEquals( rows, decoded.toRows() );
+        Assert.assertTrue( decoded.isNull( 3, 10 ) );
+        Assert.assertEquals( 7000, ((int[]) decoded.getValues( 3 ))[7] );
+    }
+
+
+    @Test
+    public void testUnsupported() {
+        // Decimals are not encoded
+        Assert.assertNull( ColumnarFrame.columnTypes( Collections.singletonList( column( 0, Types.DECIMAL, Rep.NUMBER ) ) ) );
+
+        // Values which do not match the type of the column
+        final ColumnType[] types = ColumnarFrame.columnTypes( Collections.singletonList( column( 0, Types.INTEGER, Rep.INTEGER ) ) );
+        Assert.assertNull( ColumnarFrame.encode( types, Collections.singletonList( Collections.singletonList( (Object) Long.MAX_VALUE ) ) ) );
+    }
+
+
+    private static ColumnMetaData column( int ordinal, int type, Rep rep ) {
+        return new ColumnMetaData(
+                ordinal,
+                false,
+                true,
+                false,
+                false,
+                DatabaseMetaData.columnNullable,
+                true,
+                10,
+                "c" + ordinal,
+                "c" + ordinal,
+                null,
+                10,
+                0,
+                null,
+                null,
+                ColumnMetaData.scalar( type, "T", rep ),
+                true,
+                false,
+                false,
+                null );
+    }
+
+}
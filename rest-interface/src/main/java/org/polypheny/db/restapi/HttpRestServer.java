@@ -17,6 +17,7 @@
 package org.polypheny.db.restapi;
 
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.gson.Gson;
 import java.io.BufferedReader;
@@ -38,12 +39,14 @@
 import javax.servlet.http.Part;
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.catalog.entity.CatalogUser;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.iface.Authenticator;
 import org.polypheny.db.iface.QueryInterface;
 import org.polypheny.db.information.InformationGraph;
 import org.polypheny.db.information.InformationGraph.GraphData;
 import org.polypheny.db.information.InformationGraph.GraphType;
 import org.polypheny.db.information.InformationGroup;
+import org.polypheny.db.information.InformationKeyValue;
 import org.polypheny.db.information.InformationManager;
 import org.polypheny.db.information.InformationPage;
 import org.polypheny.db.information.InformationTable;
@@ -81,11 +84,13 @@ public class HttpRestServer extends QueryInterface {
     private final String uniqueName;
 
     // Counter
+    private final AtomicLong batchCounter = new AtomicLong();
     private final AtomicLong deleteCounter = new AtomicLong();
     private final AtomicLong getCounter = new AtomicLong();
     private final AtomicLong patchCounter = new AtomicLong();
     private final AtomicLong postCounter = new AtomicLong();
 
+    private final RestPlanCache planCache;
     private final MonitoringPage monitoringPage;
 
     private Service restServer;
@@ -100,6 +105,7 @@ public HttpRestServer( TransactionManager transactionManager, Authenticator auth
             // Port is already in use
             throw new RuntimeException( "Unable to start " + INTERFACE_NAME + " on port " + port + "! The port is already in use." );
         }
+        this.planCache = new RestPlanCache( RuntimeConfig.REST_PLAN_CACHING_SIZE.getInteger() );
         // Add information page
         monitoringPage = new MonitoringPage();
     }
@@ -110,7 +116,7 @@ public void run() {
         restServer = Service.ignite();
         restServer.port( port );
 
-        Rest rest = new Rest( transactionManager, "pa", "APP" );
+        Rest rest = new Rest( transactionManager, "pa", "APP", planCache );
         restRoutes( restServer, rest );
 
         log.info( "{} started and is listening on port {}.", INTERFACE_NAME, port );
@@ -131,6 +137,7 @@ private void restRoutes( Service restServer, Rest rest ) {
             restServer.post( "/res/:resName", ( q, a ) -> this.processResourceRequest( rest, RequestType.POST, q, a, q.params( ":resName" ) ) );
             restServer.delete( "/res/:resName", ( q, a ) -> this.processResourceRequest( rest, RequestType.DELETE, q, a, q.params( ":resName" ) ) );
             restServer.patch( "/res/:resName", ( q, a ) -> this.processResourceRequest( rest, RequestType.PATCH, q, a, q.params( ":resName" ) ) );
+            restServer.post( "/batch/:resName", ( q, a ) -> this.processResourceRequest( rest, RequestType.BATCH, q, a, q.params( ":resName" ) ) );
             restServer.post( "/multipart", "multipart/form-data", ( q, a ) -> this.processMultipart( rest, RequestType.POST, q, a ), gson::toJson );
         } );
     }
@@ -139,6 +146,10 @@ private void restRoutes( Service restServer, Rest rest ) {
     String processResourceRequest( Rest rest, RequestType type, Request request, Response response, String resourceName ) {
         try {
             switch ( type ) {
+                case BATCH:
+                    batchCounter.incrementAndGet();
+                    ResourcePostRequest resourceBatchRequest = requestParser.parseBatchResourceRequest( request, resourceName, gson );
+                    return rest.processBatchResource( resourceBatchRequest, request, response );
                 case DELETE:
                     deleteCounter.incrementAndGet();
                     ResourceDeleteRequest resourceDeleteRequest = requestParser.parseDeleteResourceRequest( request, resourceName );
@@ -316,12 +327,20 @@ public String getInterfaceType() {
     }
 
 
+    @VisibleForTesting
+    RestPlanCache getPlanCache() {
+        return planCache;
+    }
+
+
     private class MonitoringPage {
 
         private final InformationPage informationPage;
         private final InformationGroup informationGroupRequests;
         private final InformationGraph counterGraph;
         private final InformationTable counterTable;
+        private final InformationGroup informationGroupPlanCache;
+        private final InformationKeyValue planCacheKv;
 
 
         public MonitoringPage() {
@@ -336,7 +355,7 @@ public MonitoringPage() {
             counterGraph = new InformationGraph(
                     informationGroupRequests,
                     GraphType.DOUGHNUT,
-                    new String[]{ "DELETE", "GET", "PATCH", "POST" }
+                    new String[]{ "BATCH", "DELETE", "GET", "PATCH", "POST" }
             );
             counterGraph.setOrder( 1 );
             im.registerInformation( counterGraph );
@@ -349,25 +368,40 @@ public MonitoringPage() {
             im.registerInformation( counterTable );
 
             informationGroupRequests.setRefreshFunction( this::update );
+
+            informationGroupPlanCache = new InformationGroup( informationPage, "Plan Cache" );
+            im.addGroup( informationGroupPlanCache );
+
+            planCacheKv = new InformationKeyValue( informationGroupPlanCache );
+            im.registerInformation( planCacheKv );
+            informationGroupPlanCache.setRefreshFunction( () -> {
+                planCacheKv.putPair( "Status", RuntimeConfig.REST_PLAN_CACHING.getBoolean() ? "Active" : "Disabled" );
+                planCacheKv.putPair( "Current Cache Size", planCache.size() + "" );
+                planCacheKv.putPair( "Maximum Cache Size", RuntimeConfig.REST_PLAN_CACHING_SIZE.getInteger() + "" );
+                planCacheKv.putPair( "Hits", planCache.getHits() + "" );
+                planCacheKv.putPair( "Misses", planCache.getMisses() + "" );
+            } );
         }
 
 
         public void update() {
+            long batchCount = batchCounter.get();
             long deleteCount = deleteCounter.get();
             long getCount = getCounter.get();
             long patchCount = patchCounter.get();
             long postCount = postCounter.get();
-            double total = deleteCount + getCount + patchCount + postCount;
+            double total = batchCount + deleteCount + getCount + patchCount + postCount;
 
             counterGraph.updateGraph(
-                    new String[]{ "DELETE", "GET", "PATCH", "POST" },
-                    new GraphData<>( "requests", new Long[]{ deleteCount, getCount, patchCount, postCount } )
+                    new String[]{ "BATCH", "DELETE", "GET", "PATCH", "POST" },
+                    new GraphData<>( "requests", new Long[]{ batchCount, deleteCount, getCount, patchCount, postCount } )
             );
 
             DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
             symbols.setDecimalSeparator( '.' );
             DecimalFormat df = new DecimalFormat( "0.0", symbols );
             counterTable.reset();
+            counterTable.addRow( "BATCH", df.format( total == 0 ? 0 : (batchCount / total) * 100 ) + " %", batchCount );
             counterTable.addRow( "DELETE", df.format( total == 0 ? 0 : (deleteCount / total) * 100 ) + " %", deleteCount );
             counterTable.addRow( "GET", df.format( total == 0 ? 0 : (getCount / total) * 100 ) + " %", getCount );
             counterTable.addRow( "PATCH", df.format( total == 0 ? 0 : (patchCount / total) * 100 ) + " %", patchCount );
@@ -377,8 +411,8 @@ public void update() {
 
         public void remove() {
             InformationManager im = InformationManager.getInstance();
-            im.removeInformation( counterGraph, counterTable );
-            im.removeGroup( informationGroupRequests );
+            im.removeInformation( counterGraph, counterTable, planCacheKv );
+            im.removeGroup( informationGroupRequests, informationGroupPlanCache );
             im.removePage( informationPage );
         }
 
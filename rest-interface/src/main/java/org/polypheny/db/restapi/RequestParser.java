@@ -19,6 +19,7 @@
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -177,6 +178,29 @@ public ResourcePostRequest parsePostMultipartRequest( String resourceName, Strin
     }
 
 
+    /**
+     * Parses a batch of rows to insert. The body either is newline delimited JSON (content type
+     * <code>application/x-ndjson</code>) with one row per line, or a JSON object with the rows in <code>data</code>
+     * like the body of a post request.
+     */
+    public ResourcePostRequest parseBatchResourceRequest( Request request, String resourceName, Gson gson ) throws ParserException {
+        List<CatalogTable> tables = this.parseTables( resourceName );
+        List<RequestColumn> requestColumns = this.newParseProjectionsAndAggregations( getProjectionsValues( request ), tables );
+        Map<String, RequestColumn> nameMapping = this.newGenerateNameMapping( requestColumns );
+        List<List<Pair<RequestColumn, Object>>> values;
+        if ( request.contentType() != null && request.contentType().contains( "ndjson" ) ) {
+            values = this.parseInsertStatementBody( this.parseNdjsonRows( request.body(), gson ), nameMapping );
+        } else {
+            values = this.parseValues( request, gson, nameMapping );
+        }
+        if ( values.isEmpty() ) {
+            throw new ParserException( ParserErrorCode.VALUE_MISSING, "" );
+        }
+
+        return new ResourcePostRequest( tables, requestColumns, nameMapping, values, false );
+    }
+
+
     public ResourcePatchRequest parsePatchResourceRequest( Request request, String resourceName, Gson gson ) throws ParserException {
         // TODO js: make sure it's only a single resource
         List<CatalogTable> tables = this.parseTables( resourceName );
@@ -704,6 +728,29 @@ List<List<Pair<RequestColumn, Object>>> parseValues( Request request, Gson gson,
     }
 
 
+    @VisibleForTesting
+    List<Object> parseNdjsonRows( String body, Gson gson ) throws ParserException {
+        List<Object> rows = new ArrayList<>();
+        for ( String line : body.split( "\r?\n" ) ) {
+            if ( line.trim().isEmpty() ) {
+                continue;
+            }
+            Object row;
+            try {
+                row = gson.fromJson( line, Object.class );
+            } catch ( JsonSyntaxException e ) {
+                throw new ParserException( ParserErrorCode.VALUE_GENERIC, line );
+            }
+            if ( !(row instanceof Map) ) {
+                log.warn( "Row of batch is not a JSON object: {}", line );
+                throw new ParserException( ParserErrorCode.VALUE_GENERIC, line );
+            }
+            rows.add( row );
+        }
+        return rows;
+    }
+
+
     @VisibleForTesting
     List<List<Pair<RequestColumn, Object>>> parseInsertStatementBody( List<Object> bodyInsertValues, Map<String, RequestColumn> nameMapping ) throws ParserException {
         List<List<Pair<RequestColumn, Object>>> returnValue = new ArrayList<>();
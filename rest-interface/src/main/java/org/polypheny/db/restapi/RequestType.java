@@ -18,6 +18,7 @@
 
 
 public enum RequestType {
+    BATCH,
     DELETE,
     GET,
     PATCH,
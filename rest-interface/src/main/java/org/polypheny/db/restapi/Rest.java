@@ -20,18 +20,24 @@
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import java.io.InputStream;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import lombok.extern.slf4j.Slf4j;
 import org.polypheny.db.adapter.java.JavaTypeFactory;
+import org.polypheny.db.catalog.Catalog;
+import org.polypheny.db.catalog.entity.CatalogColumn;
 import org.polypheny.db.catalog.entity.CatalogTable;
 import org.polypheny.db.catalog.exceptions.UnknownDatabaseException;
 import org.polypheny.db.catalog.exceptions.UnknownSchemaException;
 import org.polypheny.db.catalog.exceptions.UnknownUserException;
+import org.polypheny.db.config.RuntimeConfig;
 import org.polypheny.db.jdbc.PolyphenyDbSignature;
 import org.polypheny.db.plan.RelOptCluster;
 import org.polypheny.db.plan.RelOptPlanner;
@@ -50,6 +56,7 @@
 import org.polypheny.db.rel.type.RelDataType;
 import org.polypheny.db.rel.type.RelDataTypeField;
 import org.polypheny.db.restapi.RequestParser.Filters;
+import org.polypheny.db.restapi.RestPlanCache.CachedPlan;
 import org.polypheny.db.restapi.exception.RestException;
 import org.polypheny.db.restapi.models.requests.ResourceDeleteRequest;
 import org.polypheny.db.restapi.models.requests.ResourceGetRequest;
@@ -69,6 +76,7 @@
 import org.polypheny.db.transaction.Transaction.MultimediaFlavor;
 import org.polypheny.db.transaction.TransactionException;
 import org.polypheny.db.transaction.TransactionManager;
+import org.polypheny.db.type.PolyType;
 import org.polypheny.db.type.PolyTypeFamily;
 import org.polypheny.db.util.DateString;
 import org.polypheny.db.util.FileInputHandle;
@@ -87,12 +95,14 @@ public class Rest {
     private final TransactionManager transactionManager;
     private final String databaseName;
     private final String userName;
+    private final RestPlanCache planCache;
 
 
-    Rest( final TransactionManager transactionManager, final String userName, final String databaseName ) {
+    Rest( final TransactionManager transactionManager, final String userName, final String databaseName, final RestPlanCache planCache ) {
         this.transactionManager = transactionManager;
         this.databaseName = databaseName;
         this.userName = userName;
+        this.planCache = planCache;
     }
 
 
@@ -100,6 +110,19 @@ String processGetResource( final ResourceGetRequest resourceGetRequest, final Re
         log.debug( "Starting to process get resource request. Session ID: {}.", req.session().id() );
         Transaction transaction = getTransaction();
         Statement statement = transaction.createStatement();
+
+        // Requests of the same shape only differ in the filter values, which are bound as dynamic parameters
+        String planKey = null;
+        if ( RuntimeConfig.REST_PLAN_CACHING.getBoolean() ) {
+            planKey = planKey( resourceGetRequest );
+            CachedPlan cachedPlan = planCache.get( planKey, statement );
+            if ( cachedPlan != null ) {
+                bindFilterValues( statement, resourceGetRequest.filters, cachedPlan.parameterTypes );
+                log.debug( "Reusing cached plan. Session ID: {}.", req.session().id() );
+                return executeAndTransformRelAlg( cachedPlan.root, statement, res );
+            }
+        }
+
         RelBuilder relBuilder = RelBuilder.create( statement );
         JavaTypeFactory typeFactory = transaction.getTypeFactory();
         RexBuilder rexBuilder = new RexBuilder( typeFactory );
@@ -138,6 +161,15 @@ String processGetResource( final ResourceGetRequest resourceGetRequest, final Re
         RelRoot root = new RelRoot( relNode, relNode.getRowType(), SqlKind.SELECT, fields, collation );
         log.debug( "RelRoot was built." );
 
+        if ( planKey != null ) {
+            final List<Map<Long, Object>> parameterValues = statement.getDataContext().getParameterValues();
+            final List<RelDataType> parameterTypes = new ArrayList<>();
+            for ( long i = 0; i < (parameterValues.isEmpty() ? 0 : parameterValues.get( 0 ).size()); i++ ) {
+                parameterTypes.add( statement.getDataContext().getParameterType( i ) );
+            }
+            planCache.put( planKey, root, parameterTypes, statement );
+        }
+
         return executeAndTransformRelAlg( root, statement, res );
     }
 
@@ -306,6 +338,102 @@ String processPostResource( final ResourcePostRequest insertValueRequest, final
     }
 
 
+    /**
+     * Inserts all rows of a batch request within one transaction. Rows specifying the same columns are inserted by
+     * a single statement: the plan is built and prepared once and the rows are bound as batch of parameter values.
+     */
+    String processBatchResource( final ResourcePostRequest batchRequest, final Request req, final Response res ) throws RestException {
+        log.debug( "Starting to process batch request with {} rows. Session ID: {}.", batchRequest.values.size(), req.session().id() );
+        Transaction transaction = getTransaction();
+
+        // Group the rows by the columns they specify
+        Map<List<Long>, List<List<Pair<RequestColumn, Object>>>> groups = new LinkedHashMap<>();
+        for ( List<Pair<RequestColumn, Object>> row : batchRequest.values ) {
+            List<Long> columnIds = new ArrayList<>( row.size() );
+            for ( Pair<RequestColumn, Object> value : row ) {
+                columnIds.add( value.left.getColumn().id );
+            }
+            groups.computeIfAbsent( columnIds, k -> new ArrayList<>() ).add( row );
+        }
+
+        long rowsChanged = 0;
+        String columnName = null;
+        try {
+            for ( List<List<Pair<RequestColumn, Object>>> rows : groups.values() ) {
+                Statement statement = transaction.createStatement();
+                RelRoot root = batchInsertPlan( statement, batchRequest.tables.get( 0 ), rows );
+
+                PolyphenyDbSignature signature = statement.getQueryProcessor().prepareQuery( root );
+                @SuppressWarnings("unchecked") final Iterable<Object> iterable = signature.enumerable( statement.getDataContext() );
+                RestResult restResult = new RestResult( root.kind, iterable.iterator(), signature.rowType, signature.columns ).transform();
+                rowsChanged += Math.max( restResult.getRowsChanged(), 0 );
+                columnName = signature.columns.get( 0 ).columnName;
+            }
+            transaction.commit();
+        } catch ( Throwable e ) {
+            log.error( "Error during execution of REST batch", e );
+            try {
+                transaction.rollback();
+            } catch ( TransactionException transactionException ) {
+                log.error( "Could not rollback", e );
+            }
+            return null;
+        }
+        return RestResult.getBatchResult( columnName, rowsChanged );
+    }
+
+
+    private RelRoot batchInsertPlan( Statement statement, CatalogTable catalogTable, List<List<Pair<RequestColumn, Object>>> rows ) {
+        RelBuilder relBuilder = RelBuilder.create( statement );
+        JavaTypeFactory typeFactory = statement.getTransaction().getTypeFactory();
+        RexBuilder rexBuilder = new RexBuilder( typeFactory );
+
+        PolyphenyDbCatalogReader catalogReader = statement.getTransaction().getCatalogReader();
+        PreparingTable table = catalogReader.getTable( Arrays.asList( catalogTable.getSchemaName(), catalogTable.name ) );
+        List<RelDataTypeField> tableRows = table.getRowType().getFieldList();
+
+        RelOptPlanner planner = statement.getQueryProcessor().getPlanner();
+        RelOptCluster cluster = RelOptCluster.create( planner, rexBuilder );
+
+        // Values are bound as dynamic parameters, one list of values per column
+        List<Pair<RequestColumn, Object>> firstRow = rows.get( 0 );
+        List<RexNode> rexValues = new ArrayList<>( firstRow.size() );
+        List<String> valueColumnNames = new ArrayList<>( firstRow.size() );
+        for ( int i = 0; i < firstRow.size(); i++ ) {
+            RequestColumn column = firstRow.get( i ).left;
+            RelDataType type = tableRows.get( column.getLogicalIndex() ).getType();
+            List<Object> columnValues = new ArrayList<>( rows.size() );
+            for ( List<Pair<RequestColumn, Object>> row : rows ) {
+                columnValues.add( toParameterValue( row.get( i ).right, type.getPolyType() ) );
+            }
+            statement.getDataContext().addParameterValues( i, type, columnValues );
+            rexValues.add( rexBuilder.makeDynamicParam( type, i ) );
+            valueColumnNames.add( column.getColumn().name );
+        }
+        relBuilder.push( LogicalValues.createOneRow( cluster ) );
+        relBuilder.project( rexValues, valueColumnNames );
+
+        // Table Modify
+        RelNode relNode = relBuilder.build();
+        TableModify tableModify = new LogicalTableModify(
+                cluster,
+                relNode.getTraitSet(),
+                table,
+                catalogReader,
+                relNode,
+                LogicalTableModify.Operation.INSERT,
+                null,
+                null,
+                false
+        );
+
+        // Wrap RelNode into a RelRoot
+        final RelDataType rowType = tableModify.getRowType();
+        final List<Pair<Integer, String>> fields = Pair.zip( ImmutableIntList.identity( rowType.getFieldCount() ), rowType.getFieldNames() );
+        return new RelRoot( tableModify, rowType, SqlKind.INSERT, fields, RelCollations.EMPTY );
+    }
+
+
     @VisibleForTesting
     RelBuilder tableScans( RelBuilder relBuilder, RexBuilder rexBuilder, List<CatalogTable> tables ) {
         boolean firstTable = true;
@@ -340,14 +468,7 @@ List<RexNode> filters( Statement statement, RelBuilder relBuilder, RexBuilder re
                 for ( Pair<SqlOperator, Object> filterOperationPair : filters.literalFilters.get( column ) ) {
                     RelDataTypeField typeField = filterMap.get( column.getFullyQualifiedName() );
                     RexNode inputRef = rexBuilder.makeInputRef( baseNodeForFilters, typeField.getIndex() );
-                    Object param = filterOperationPair.right;
-                    if ( param instanceof TimestampString ) {
-                        param = ((TimestampString) param).toCalendar();
-                    } else if ( param instanceof TimeString ) {
-                        param = ((TimeString) param).toCalendar();
-                    } else if ( param instanceof DateString ) {
-                        param = ((DateString) param).toCalendar();
-                    }
+                    Object param = toParameterValue( filterOperationPair.right );
                     statement.getDataContext().addParameterValues( index, typeField.getType(), ImmutableList.of( param ) );
                     RexNode rightHandSide = rexBuilder.makeDynamicParam( typeField.getType(), index );
                     index++;
@@ -373,6 +494,114 @@ List<RexNode> filters( Statement statement, RelBuilder relBuilder, RexBuilder re
     }
 
 
+    /**
+     * Binds the filter values of a request to the dynamic parameters of a cached plan. The parameters are numbered in
+     * the same order as in {@link #filters(Statement, RelBuilder, RexBuilder, Filters, Request)}.
+     */
+    private void bindFilterValues( Statement statement, Filters filters, List<RelDataType> parameterTypes ) {
+        if ( filters.literalFilters == null ) {
+            return;
+        }
+        int index = 0;
+        for ( RequestColumn column : filters.literalFilters.keySet() ) {
+            for ( Pair<SqlOperator, Object> filterOperationPair : filters.literalFilters.get( column ) ) {
+                Object param = toParameterValue( filterOperationPair.right );
+                statement.getDataContext().addParameterValues( index, parameterTypes.get( index ), ImmutableList.of( param ) );
+                index++;
+            }
+        }
+    }
+
+
+    /**
+     * Describes the shape of a get request. Requests with the same key result in the same plan. The key contains the
+     * columns of the accessed tables, so that plans are not reused after a table has been altered.
+     */
+    private String planKey( ResourceGetRequest request ) {
+        StringBuilder sb = new StringBuilder();
+        for ( CatalogTable table : request.tables ) {
+            sb.append( table.id ).append( '(' );
+            for ( CatalogColumn column : Catalog.getInstance().getColumns( table.id ) ) {
+                sb.append( column.id ).append( ' ' ).append( column.position ).append( ' ' ).append( column.type ).append( ' ' )
+                        .append( column.length ).append( ' ' ).append( column.scale ).append( ' ' ).append( column.nullable ).append( ',' );
+            }
+            sb.append( ')' );
+        }
+        sb.append( "|columns:" );
+        for ( RequestColumn column : request.requestColumns ) {
+            sb.append( column.getFullyQualifiedName() ).append( ' ' ).append( column.getTableScanIndex() ).append( ' ' ).append( column.getLogicalIndex() ).append( ' ' )
+                    .append( column.getAlias() ).append( ' ' ).append( column.getAggregate() == null ? "-" : column.getAggregate().getName() ).append( ' ' )
+                    .append( column.isExplicit() ).append( ',' );
+        }
+        sb.append( "|filters:" );
+        if ( request.filters.literalFilters != null ) {
+            for ( Entry<RequestColumn, List<Pair<SqlOperator, Object>>> entry : request.filters.literalFilters.entrySet() ) {
+                sb.append( entry.getKey().getFullyQualifiedName() );
+                for ( Pair<SqlOperator, Object> filterOperationPair : entry.getValue() ) {
+                    sb.append( ' ' ).append( filterOperationPair.left.getKind() ).append( ' ' ).append( filterOperationPair.left.getName() );
+                }
+                sb.append( ',' );
+            }
+        }
+        sb.append( "|groupings:" );
+        for ( RequestColumn column : request.groupings ) {
+            sb.append( column.getFullyQualifiedName() ).append( ',' );
+        }
+        sb.append( "|sorting:" );
+        if ( request.sorting != null ) {
+            for ( Pair<RequestColumn, Boolean> sort : request.sorting ) {
+                sb.append( sort.left.getFullyQualifiedName() ).append( ' ' ).append( sort.right ).append( ',' );
+            }
+        }
+        sb.append( "|limit:" ).append( request.limit ).append( "|offset:" ).append( request.offset );
+        return sb.toString();
+    }
+
+
+    private static Object toParameterValue( Object value ) {
+        if ( value instanceof TimestampString ) {
+            return ((TimestampString) value).toCalendar();
+        } else if ( value instanceof TimeString ) {
+            return ((TimeString) value).toCalendar();
+        } else if ( value instanceof DateString ) {
+            return ((DateString) value).toCalendar();
+        }
+        return value;
+    }
+
+
+    /**
+     * Converts a parsed value into the Java representation of the given type. Numbers arrive as Long, Double or
+     * BigDecimal from the parser, but parameter values have to match the type of the column.
+     */
+    @VisibleForTesting
+    static Object toParameterValue( Object value, PolyType type ) {
+        if ( !(value instanceof Number) ) {
+            return toParameterValue( value );
+        }
+        Number number = (Number) value;
+        switch ( type ) {
+            case TINYINT:
+                return number.byteValue();
+            case SMALLINT:
+                return number.shortValue();
+            case INTEGER:
+                return number.intValue();
+            case BIGINT:
+                return number.longValue();
+            case REAL:
+                return number.floatValue();
+            case FLOAT:
+            case DOUBLE:
+                return number.doubleValue();
+            case DECIMAL:
+                return number instanceof BigDecimal ? number : new BigDecimal( number.toString() );
+            default:
+                return value;
+        }
+    }
+
+
     List<String> valuesColumnNames( List<List<Pair<RequestColumn, Object>>> values ) {
         List<String> valueColumnNames = new ArrayList<>();
         List<Pair<RequestColumn, Object>> rowsToInsert = values.get( 0 );
@@ -546,10 +775,16 @@ String executeAndTransformRelAlg( RelRoot relRoot, final Statement statement, fi
             @SuppressWarnings("unchecked") final Iterable<Object> iterable = signature.enumerable( statement.getDataContext() );
             Iterator<Object> iterator = iterable.iterator();
             restResult = new RestResult( relRoot.kind, iterator, signature.rowType, signature.columns );
-            restResult.transform();
-            if ( !relRoot.kind.belongsTo( SqlKind.DML ) ) {
-                signature.getExecutionTimeMonitor().setExecutionTime( restResult.getExecutionTime() );
+            if ( relRoot.kind.belongsTo( SqlKind.DML ) ) {
+                restResult.transform();
+                statement.getTransaction().commit();
+                return restResult.getResult( res );
             }
+
+            // Errors occurring before the first row has been produced can still be reported to the client
+            iterator.hasNext();
+            restResult.stream( res );
+            signature.getExecutionTimeMonitor().setExecutionTime( restResult.getExecutionTime() );
             statement.getTransaction().commit();
         } catch ( Throwable e ) {
             log.error( "Error during execution of REST query", e );
@@ -560,7 +795,8 @@ String executeAndTransformRelAlg( RelRoot relRoot, final Statement statement, fi
             }
             return null;
         }
-        return restResult.getResult( res );
+        // The result has already been written to the response
+        return "";
     }
 
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.restapi;
+
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.polypheny.db.plan.RelOptCluster;
+import org.polypheny.db.plan.RelOptPlanner;
+import org.polypheny.db.plan.RelOptUtil;
+import org.polypheny.db.plan.hep.HepPlanner;
+import org.polypheny.db.plan.hep.HepProgram;
+import org.polypheny.db.prepare.PolyphenyDbCatalogReader;
+import org.polypheny.db.rel.RelNode;
+import org.polypheny.db.rel.RelRoot;
+import org.polypheny.db.rel.type.RelDataType;
+import org.polypheny.db.rex.RexBuilder;
+import org.polypheny.db.transaction.Statement;
+
+
+/**
+ * Cache for the logical plans of REST resource requests. Requests of the same shape (resources, projections,
+ * aggregations, filter operators, groupings, sorting, limit and offset) result in the same plan; the filter values
+ * are bound as dynamic parameters.
+ *
+ * A plan is bound to the cluster (and thereby to the planner) of the statement it has been built for. The plans are
+ * therefore stored in a detached cluster and copied into the cluster of the statement reusing them. Only plans
+ * consisting of the logical operators created by the REST interface are cached.
+ */
+@Slf4j
+class RestPlanCache {
+
+    private final Cache<String, CachedPlan> planCache;
+
+    private final AtomicLong hitsCounter = new AtomicLong(); // Number of requests for which the cache contained the plan
+    private final AtomicLong missesCounter = new AtomicLong(); // Number of requests for which the cache hasn't contained the plan
+
+
+    RestPlanCache( int maximumSize ) {
+        planCache = CacheBuilder.newBuilder()
+                .maximumSize( maximumSize )
+                .build();
+    }
+
+
+    /**
+     * Returns a copy of the cached plan which belongs to the cluster of the given statement or null if there is no
+     * plan for this key.
+     */
+    CachedPlan get( String key, Statement statement ) {
+        CachedPlan cachedPlan = planCache.getIfPresent( key );
+        if ( cachedPlan != null ) {
+            try {
+                RelOptCluster cluster = createCluster( statement.getQueryProcessor().getPlanner(), statement );
+                RelRoot root = copy( cachedPlan.root, cluster, statement.getTransaction().getCatalogReader() );
+                hitsCounter.incrementAndGet();
+                return new CachedPlan( root, cachedPlan.parameterTypes );
+            } catch ( RuntimeException e ) {
+                // E.g. the table does no longer exist
+                log.debug( "Unable to reuse cached plan of REST request", e );
+                planCache.invalidate( key );
+            }
+        }
+        missesCounter.incrementAndGet();
+        return null;
+    }
+
+
+    /**
+     * Stores a copy of the plan. Plans containing other operators than the ones created by the REST interface are
+     * not cached.
+     *
+     * @param parameterTypes Types of the dynamic parameters in the order of their index
+     */
+    void put( String key, RelRoot root, List<RelDataType> parameterTypes, Statement statement ) {
+        try {
+            RelOptCluster cluster = createCluster( new HepPlanner( HepProgram.builder().build() ), statement );
+            planCache.put( key, new CachedPlan( copy( root, cluster, null ), ImmutableList.copyOf( parameterTypes ) ) );
+        } catch ( UnsupportedOperationException e ) {
+            log.debug( "Plan of REST request is not cacheable: {}", e.getMessage() );
+        }
+    }
+
+
+    void reset() {
+        planCache.invalidateAll();
+        hitsCounter.set( 0 );
+        missesCounter.set( 0 );
+    }
+
+
+    long size() {
+        return planCache.size();
+    }
+
+
+    long getHits() {
+        return hitsCounter.get();
+    }
+
+
+    long getMisses() {
+        return missesCounter.get();
+    }
+
+
+    private static RelOptCluster createCluster( RelOptPlanner planner, Statement statement ) {
+        return RelOptCluster.create( planner, new RexBuilder( statement.getTransaction().getTypeFactory() ) );
+    }
+
+
+    /**
+     * Copies the plan into the given cluster. If a catalog reader is specified, the tables are resolved again.
+     */
+    private static RelRoot copy( RelRoot root, RelOptCluster cluster, PolyphenyDbCatalogReader catalogReader ) {
+        RelNode rel = RelOptUtil.copyToCluster( root.rel, cluster, catalogReader );
+        return new RelRoot( rel, root.validatedRowType, root.kind, root.fields, root.collation );
+    }
+
+
+    static class CachedPlan {
+
+        final RelRoot root;
+        final List<RelDataType> parameterTypes;
+
+
+        CachedPlan( RelRoot root, List<RelDataType> parameterTypes ) {
+            this.root = root;
+            this.parameterTypes = parameterTypes;
+        }
+
+    }
+
+}
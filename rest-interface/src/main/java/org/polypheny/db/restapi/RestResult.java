@@ -14,26 +14,34 @@
  * limitations under the License.
  */
 
+
 package org.polypheny.db.restapi;
 
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import com.j256.simplemagic.ContentInfo;
 import com.j256.simplemagic.ContentInfoUtil;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PushbackInputStream;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.Blob;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -42,7 +50,6 @@
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.calcite.avatica.ColumnMetaData;
-import org.apache.commons.lang3.time.StopWatch;
 import org.polypheny.db.rel.type.RelDataType;
 import org.polypheny.db.rel.type.RelDataTypeField;
 import org.polypheny.db.sql.SqlKind;
@@ -55,6 +62,8 @@
 @Slf4j
 public class RestResult {
 
+    private static final Gson gson = new Gson();
+
     private final SqlKind sqlKind;
     private final Iterator<Object> iterator;
     private final RelDataType dataType;
@@ -62,11 +71,10 @@ public class RestResult {
     private List<Map<String, Object>> result;
     @Getter
     private long executionTime;
+    @Getter
+    private int rowsChanged = -1;
 
-    boolean containsFiles = false;
-    File zipFile;
-    FileOutputStream fos;
-    ZipOutputStream zipOut;
+    private ZipOutputStream zipOut;
 
 
     public RestResult( SqlKind sqlKind, Iterator<Object> iterator, RelDataType dataType, List<ColumnMetaData> columns ) {
@@ -77,19 +85,21 @@ public RestResult( SqlKind sqlKind, Iterator<Object> iterator, RelDataType dataT
     }
 
 
+    /**
+     * Consumes the result of a DML statement. The result of a query is not transformed but streamed, see
+     * {@link #stream(Response)}.
+     */
     public RestResult transform() {
-        if ( sqlKind.belongsTo( SqlKind.DML ) ) {
-            transformDML();
-        } else {
-            transformNonDML();
+        if ( !sqlKind.belongsTo( SqlKind.DML ) ) {
+            throw new IllegalStateException( "Results of queries are streamed" );
         }
+        transformDML();
         return this;
     }
 
 
     private void transformDML() {
         Object object;
-        int rowsChanged = -1;
         while ( iterator.hasNext() ) {
             object = iterator.next();
             int num;
@@ -115,83 +125,142 @@ private void transformDML() {
     }
 
 
-    private void transformNonDML() {
-        StopWatch stopWatch = new StopWatch();
-        stopWatch.start();
-        List<Map<String, Object>> result = new ArrayList<>();
-        while ( iterator.hasNext() ) {
-            Object next = iterator.next();
-            Object[] row;
+    /**
+     * Writes the result of a query to the response while iterating over it. Every row is serialized as soon as it
+     * has been produced, so neither the result nor the JSON document is held in memory. Since no content length is
+     * set, the response is sent using chunked transfer encoding.
+     *
+     * If the result contains multimedia columns, the response is a zip archive. The multimedia objects are added to
+     * the archive as they come; the JSON document is spooled to a temporary file and added as last entry.
+     */
+    public void stream( final Response res ) throws IOException {
+        final boolean containsMultimedia = dataType.getFieldList().stream()
+                .anyMatch( field -> field.getType().getPolyType().getFamily() == PolyTypeFamily.MULTIMEDIA );
+        if ( !containsMultimedia ) {
+            final Writer writer = new BufferedWriter( new OutputStreamWriter( res.raw().getOutputStream(), StandardCharsets.UTF_8 ) );
+            writeJson( writer );
+            writer.flush();
+            return;
+        }
+
+        res.header( "Content-Type", "application/octet-stream" );
+        res.type( "application/octet-stream" );
+        res.header( "Content-Disposition", "attachment; filename=result.zip" );
+        final File jsonFile = File.createTempFile( "polypheny-rest-", ".json" );
+        try {
+            zipOut = new ZipOutputStream( new BufferedOutputStream( res.raw().getOutputStream() ) );
+            try ( Writer writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( jsonFile ), StandardCharsets.UTF_8 ) ) ) {
+                writeJson( writer );
+            }
+            zipOut.putNextEntry( new ZipEntry( "data.json" ) );
+            Files.copy( jsonFile.toPath(), zipOut );
+            zipOut.closeEntry();
+            zipOut.finish();
+            zipOut.flush();
+        } finally {
+            if ( !jsonFile.delete() ) {
+                log.warn( "Could not delete {}", jsonFile.getAbsolutePath() );
+            }
+        }
+    }
+
+
+    private void writeJson( Writer writer ) throws IOException {
+        final List<RelDataTypeField> fields = dataType.getFieldList();
+        // Like in a map, a later column overrides an earlier column with the same name
+        final Map<String, Integer> columnIndexes = new LinkedHashMap<>();
+        for ( int i = 0; i < fields.size(); i++ ) {
+            columnIndexes.remove( columns.get( i ).columnName );
+            columnIndexes.put( columns.get( i ).columnName, i );
+        }
+
+        final JsonWriter json = gson.newJsonWriter( writer );
+        json.beginObject();
+        json.name( "result" );
+        json.beginArray();
+        long size = 0;
+        long executionNanos = 0;
+        while ( true ) {
+            final long start = System.nanoTime();
+            if ( !iterator.hasNext() ) {
+                executionNanos += System.nanoTime() - start;
+                break;
+            }
+            final Object next = iterator.next();
+            executionNanos += System.nanoTime() - start;
+
+            final Object[] row;
             if ( next.getClass().isArray() ) {
                 row = (Object[]) next;
             } else {
                 row = new Object[]{ next };
             }
-            HashMap<String, Object> temp = new HashMap<>();
-            int i = 0;
-            for ( RelDataTypeField type : dataType.getFieldList() ) {
-                Object o = row[i];
-                if ( type.getType().getPolyType().getFamily() == PolyTypeFamily.MULTIMEDIA ) {
-                    if ( o instanceof File ) {
-                        o = addZipEntry( o );
-                    } else if ( o instanceof InputStream || o instanceof Blob ) {
-                        o = addZipEntry( o );
-                    } else if ( o instanceof byte[] ) {
-                        o = addZipEntry( o );
-                    }
-                    temp.put( columns.get( i ).columnName, o );
+            json.beginObject();
+            for ( Map.Entry<String, Integer> column : columnIndexes.entrySet() ) {
+                final Object value = transformValue( fields.get( column.getValue() ), row[column.getValue()] );
+                json.name( column.getKey() );
+                if ( value == null ) {
+                    json.nullValue();
                 } else {
-                    if ( type.getType().getPolyType().equals( PolyType.TIMESTAMP ) ) {
-                        Long nanoSeconds = (Long) o;
-                        LocalDateTime localDateTime = LocalDateTime.ofEpochSecond( nanoSeconds / 1000L, (int) ((nanoSeconds % 1000) * 1000), ZoneOffset.UTC );
-                        temp.put( columns.get( i ).columnName, localDateTime.toString() );
-                    } else if ( type.getType().getPolyType().equals( PolyType.TIME ) ) {
-                        temp.put( columns.get( i ).columnName, o.toString() );
-                    } else {
-                        temp.put( columns.get( i ).columnName, o );
-                    }
+                    gson.toJson( value, value.getClass(), json );
                 }
-                i++;
             }
-            result.add( temp );
+            json.endObject();
+            size++;
         }
-        stopWatch.stop();
-        this.executionTime = stopWatch.getNanoTime();
-        this.result = result;
+        json.endArray();
+        json.name( "size" ).value( size );
+        json.endObject();
+        json.flush();
+        this.executionTime = executionNanos;
     }
 
 
-    private String addZipEntry( final Object data ) {
+    private Object transformValue( RelDataTypeField type, Object o ) throws IOException {
+        if ( type.getType().getPolyType().getFamily() == PolyTypeFamily.MULTIMEDIA ) {
+            if ( o instanceof File || o instanceof InputStream || o instanceof Blob || o instanceof byte[] ) {
+                return addZipEntry( o );
+            }
+            return o;
+        } else if ( o == null ) {
+            return null;
+        } else if ( type.getType().getPolyType().equals( PolyType.TIMESTAMP ) ) {
+            Long nanoSeconds = (Long) o;
+            LocalDateTime localDateTime = LocalDateTime.ofEpochSecond( nanoSeconds / 1000L, (int) ((nanoSeconds % 1000) * 1000), ZoneOffset.UTC );
+            return localDateTime.toString();
+        } else if ( type.getType().getPolyType().equals( PolyType.TIME ) ) {
+            return o.toString();
+        }
+        return o;
+    }
+
+
+    private String addZipEntry( Object data ) throws IOException {
         //see https://www.baeldung.com/java-compress-and-uncompress
-        containsFiles = true;
         String tempFileName = UUID.randomUUID().toString();
-        try {
-            if ( zipFile == null ) {
-                zipFile = new File( System.getProperty( "user.home" ), ".polypheny/tmp/" + UUID.randomUUID().toString() + ".zip" );
-                fos = new FileOutputStream( zipFile );
-                zipOut = new ZipOutputStream( fos );
+        if ( data instanceof Blob ) {
+            try {
+                data = ((Blob) data).getBinaryStream();
+            } catch ( SQLException e ) {
+                throw new IOException( "Could not read blob", e );
             }
-            ZipEntry zipEntry = new ZipEntry( tempFileName + getContentType( data ) );
-            zipOut.putNextEntry( zipEntry );
-            if ( data instanceof File ) {
-                File f = ((File) data);
-                FileInputStream fis = new FileInputStream( f );
-                byte[] bytes = new byte[1024];
-                int len;
-                while ( (len = fis.read( bytes )) > 0 ) {
-                    zipOut.write( bytes, 0, len );
-                }
-                fis.close();
-            } else if ( data instanceof InputStream ) {
-                IOUtils.copyLarge( (InputStream) data, fos );
-            } else if ( data instanceof byte[] ) {
-                fos.write( (byte[]) data );
+        }
+        if ( data instanceof InputStream ) {
+            // Allows to determine the content type without losing the first bytes
+            data = new PushbackInputStream( (InputStream) data, ContentInfoUtil.DEFAULT_READ_SIZE );
+        }
+        ZipEntry zipEntry = new ZipEntry( tempFileName + getContentType( data ) );
+        zipOut.putNextEntry( zipEntry );
+        if ( data instanceof File ) {
+            Files.copy( ((File) data).toPath(), zipOut );
+        } else if ( data instanceof InputStream ) {
+            try ( InputStream inputStream = (InputStream) data ) {
+                IOUtils.copyLarge( inputStream, zipOut );
             }
-            //zipOut.close();
-            //fos.close();
-        } catch ( IOException e ) {
-            log.error( "Could not write to zip file", e );
+        } else if ( data instanceof byte[] ) {
+            zipOut.write( (byte[]) data );
         }
+        zipOut.closeEntry();
         return tempFileName;
     }
 
@@ -208,13 +277,16 @@ private String getContentType( Object o ) {
             }
         } else if ( o instanceof byte[] ) {
             info = util.findMatch( (byte[]) o );
-        } else if ( o instanceof InputStream ) {
-            PushbackInputStream pbis = new PushbackInputStream( (InputStream) o, ContentInfoUtil.DEFAULT_READ_SIZE );
+        } else if ( o instanceof PushbackInputStream ) {
+            PushbackInputStream pbis = (PushbackInputStream) o;
             byte[] buffer = new byte[ContentInfoUtil.DEFAULT_READ_SIZE];
             try {
-                pbis.read( buffer );
+                int read = pbis.read( buffer );
+                if ( read <= 0 ) {
+                    return "";
+                }
                 info = util.findMatch( buffer );
-                pbis.unread( buffer );
+                pbis.unread( buffer, 0, read );
             } catch ( IOException e ) {
                 log.error( "Could not determine content type of InputStream" );
                 return "";
@@ -230,40 +302,28 @@ private String getContentType( Object o ) {
     }
 
 
+    /**
+     * Returns the result of a DML statement as JSON.
+     */
     public String getResult( final Response res ) {
-        Gson gson = new Gson();
         Map<String, Object> finalResult = new HashMap<>();
         finalResult.put( "result", result );
         finalResult.put( "size", result.size() );
-        if ( !containsFiles ) {
-            return gson.toJson( finalResult );
-        } else {
-            OutputStream os;
-            ZipEntry zipEntry = new ZipEntry( "data.json" );
-            try {
-                zipOut.putNextEntry( zipEntry );
-                zipOut.write( gson.toJson( finalResult ).getBytes( StandardCharsets.UTF_8 ) );
-                zipOut.close();
-                fos.close();
-                res.header( "Content-Type", "application/octet-stream" );
-                res.type( "application/octet-stream" );
-                res.header( "Content-Disposition", "attachment; filename=result.zip" );
-                os = res.raw().getOutputStream();
-                FileInputStream fis = new FileInputStream( zipFile );
-                byte[] buf = new byte[2048];
-                int len;
-                while ( (len = fis.read( buf )) > 0 ) {
-                    os.write( buf, 0, len );
-                }
-                if ( !zipFile.delete() ) {
-                    log.warn( "Could not delete {}", zipFile.getAbsolutePath() );
-                }
-            } catch ( IOException e ) {
-                zipFile.delete();
-                res.status( 500 );
-            }
-            return "";
-        }
+        return gson.toJson( finalResult );
+    }
+
+
+    /**
+     * Result of a batch consisting of several DML statements. It has the same format as the result of a single DML
+     * statement, with the total number of changed rows.
+     */
+    static String getBatchResult( String columnName, long rowsChanged ) {
+        Map<String, Object> row = new HashMap<>();
+        row.put( columnName == null ? "ROWCOUNT" : columnName, rowsChanged );
+        Map<String, Object> finalResult = new HashMap<>();
+        finalResult.put( "result", Collections.singletonList( row ) );
+        finalResult.put( "size", 1 );
+        return gson.toJson( finalResult );
     }
 
 }
@@ -22,6 +22,9 @@
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.gson.Gson;
+import java.util.List;
+import java.util.Map;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -30,6 +33,7 @@
 import org.polypheny.db.catalog.exceptions.UnknownDatabaseException;
 import org.polypheny.db.catalog.exceptions.UnknownSchemaException;
 import org.polypheny.db.catalog.exceptions.UnknownTableException;
+import org.polypheny.db.restapi.exception.ParserException;
 import org.polypheny.db.restapi.exception.UnauthorizedAccessException;
 import org.polypheny.db.util.Pair;
 
@@ -65,4 +69,21 @@ public void testParseCatalogTableName() throws UnknownTableException, UnknownSch
         verify( mockedCatalog ).getTable( "testdb", "schema1", "table1" );
     }
 
+
+    @Test
+    public void testParseNdjsonRows() {
+        RequestParser requestParser = new RequestParser( mock( Catalog.class ), null, null, "testdb", "username" );
+        List<Object> rows = requestParser.parseNdjsonRows( "{\"public.emps.id\": 1}\r\n\n{\"public.emps.id\": 2}\n", new Gson() );
+        assertEquals( "Empty lines were not skipped.", 2, rows.size() );
+        assertEquals( 2.0, ((Map) rows.get( 1 )).get( "public.emps.id" ) );
+    }
+
+
+    @Test
+    public void testParseNdjsonRowsNoObject() {
+        thrown.expect( ParserException.class );
+        RequestParser requestParser = new RequestParser( mock( Catalog.class ), null, null, "testdb", "username" );
+        requestParser.parseNdjsonRows( "{\"public.emps.id\": 1}\n[1, 2]", new Gson() );
+    }
+
 }
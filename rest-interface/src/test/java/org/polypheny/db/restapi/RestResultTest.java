@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019-2021 The Polypheny Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.polypheny.db.restapi;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.gson.Gson;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.DatabaseMetaData;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.calcite.avatica.ColumnMetaData;
+import org.apache.calcite.avatica.ColumnMetaData.Rep;
+import org.junit.Test;
+import org.polypheny.db.jdbc.JavaTypeFactoryImpl;
+import org.polypheny.db.rel.type.RelDataType;
+import org.polypheny.db.sql.SqlKind;
+import org.polypheny.db.type.PolyType;
+import spark.Response;
+
+
+public class RestResultTest {
+
+    @Test
+    public void testStreamResult() throws IOException {
+        final RelDataType rowType = new JavaTypeFactoryImpl().builder()
+                .add( "id", null, PolyType.INTEGER )
+                .add( "name", null, PolyType.VARCHAR, 20 )
+                .build();
+        final List<ColumnMetaData> columns = Arrays.asList( column( 0, "id", Types.INTEGER, Rep.INTEGER ), column( 1, "name", Types.VARCHAR, Rep.STRING ) );
+        final Iterator<Object> rows = Arrays.<Object>asList(
+                new Object[]{ 1, "foo" },
+                new Object[]{ 2, null },
+                new Object[]{ 3, "bär" } ).iterator();
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final HttpServletResponse servletResponse = mock( HttpServletResponse.class );
+        when( servletResponse.getOutputStream() ).thenReturn( new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+
+            @Override
+            public void setWriteListener( WriteListener writeListener ) {
+            }
+
+
+            @Override
+            public void write( int b ) {
+                body.write( b );
+            }
+        } );
+        final Response response = mock( Response.class );
+        when( response.raw() ).thenReturn( servletResponse );
+
+        new RestResult( SqlKind.SELECT, rows, rowType, columns ).stream( response );
+
+        @SuppressWarnings("unchecked") final Map<String, Object> result = new Gson().fromJson( new String( body.toByteArray(), StandardCharsets.UTF_8 ), Map.class );
+        assertEquals( 3.0, result.get( "size" ) );
+        final List<?> resultRows = (List<?>) result.get( "result" );
+        assertEquals( 3, resultRows.size() );
+        assertEquals( "foo", ((Map<?, ?>) resultRows.get( 0 )).get( "name" ) );
+        assertEquals( 2.0, ((Map<?, ?>) resultRows.get( 1 )).get( "id" ) );
+        assertEquals( "bär", ((Map<?, ?>) resultRows.get( 2 )).get( "name" ) );
+    }
+
+
+    private static ColumnMetaData column( int ordinal, String name, int type, Rep rep ) {
+        return new ColumnMetaData(
+                ordinal,
+                false,
+                true,
+                false,
+                false,
+                DatabaseMetaData.columnNullable,
+                true,
+                20,
+                name,
+                name,
+                null,
+                20,
+                0,
+                null,
+                null,
+                ColumnMetaData.scalar( type, name, rep ),
+                true,
+                false,
+                false,
+                null );
+    }
+
+}
@@ -36,6 +36,7 @@
 import org.polypheny.db.information.InformationManager;
 import org.polypheny.db.information.InformationPage;
 import org.polypheny.db.information.InformationTable;
+import org.polypheny.db.rel.metadata.TableMetadataCache;
 import org.polypheny.db.type.PolyType;
 import org.polypheny.db.type.PolyTypeFamily;
 import org.polypheny.db.util.DateTimeStringUtils;
@@ -136,6 +137,17 @@ private StatisticColumn<T> getColumn( String schema, String table, String column
     }
 
 
+    /**
+     * Gets the number of non-null values of a column as determined by the last evaluation of its statistics
+     *
+     * @return the number of values or null if the column is not tracked
+     */
+    public Integer getColumnCount( String schema, String table, String column ) {
+        StatisticColumn<T> statisticColumn = getColumn( schema, table, column );
+        return statisticColumn == null ? null : statisticColumn.getCount();
+    }
+
+
     /**
      * Adds a new column to the tracked columns and sorts it correctly
      *
@@ -207,7 +219,7 @@ private void reevaluateTable( String qualifiedTable ) {
             }
 
         }
-
+        TableMetadataCache.getInstance().invalidate( splits[0], splits[1] );
     }
 
 
@@ -223,6 +235,7 @@ private void deleteTable( String schema, String table ) {
      */
     private synchronized void replaceStatistics( ConcurrentHashMap<String, HashMap<String, HashMap<String, StatisticColumn<T>>>> map ) {
         this.statisticSchemaMap = new ConcurrentHashMap<>( map );
+        TableMetadataCache.getInstance().invalidateAll();
     }
 
 
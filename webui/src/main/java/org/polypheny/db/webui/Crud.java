@@ -421,7 +421,7 @@ ArrayList<SidebarElement> getSchemaTree( final Request req, final Response res )
                     }
 
                     if ( request.views ) {
-                        if ( table.tableType == TableType.TABLE || table.tableType == TableType.SOURCE ) {
+                        if ( table.tableType == TableType.TABLE || table.tableType == TableType.SOURCE || table.tableType == TableType.MATERIALIZED_VIEW ) {
                             tableElement.setTableType( "TABLE" );
                         } else if ( table.tableType == TableType.VIEW ) {
                             tableElement.setTableType( "VIEW" );
@@ -429,7 +429,7 @@ ArrayList<SidebarElement> getSchemaTree( final Request req, final Response res )
                     }
 
                     /*
-                    if ( table.tableType == TableType.TABLE || table.tableType == TableType.SOURCE ) {
+                    if ( table.tableType == TableType.TABLE || table.tableType == TableType.SOURCE || table.tableType == TableType.MATERIALIZED_VIEW ) {
                         tableTree.add( tableElement );
                     } else if ( request.views && table.tableType == TableType.VIEW ) {
                         viewTree.add( tableElement );
@@ -2646,7 +2646,7 @@ Uml getUml( final Request req, final Response res ) {
 
         List<CatalogTable> catalogTables = catalog.getTables( new Catalog.Pattern( databaseName ), new Catalog.Pattern( request.schema ), null );
         for ( CatalogTable catalogTable : catalogTables ) {
-            if ( catalogTable.tableType == TableType.TABLE || catalogTable.tableType == TableType.SOURCE ) {
+            if ( catalogTable.tableType == TableType.TABLE || catalogTable.tableType == TableType.SOURCE || catalogTable.tableType == TableType.MATERIALIZED_VIEW ) {
                 // get foreign keys
                 List<CatalogForeignKey> foreignKeys = catalog.getForeignKeys( catalogTable.id );
                 for ( CatalogForeignKey catalogForeignKey : foreignKeys ) {